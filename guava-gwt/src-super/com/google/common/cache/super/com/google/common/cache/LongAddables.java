@@ -17,12 +17,31 @@
 package com.google.common.cache;
 
 /**
- * GWT emulation for LongAddables.
+ * GWT emulation for LongAddables. GWT is single-threaded, so a plain {@code long} field is enough.
  *
  * @author Louis Wasserman
  */
 final class LongAddables {
   public static LongAddable create() {
-    return new LongAdder();
+    return new SingleThreadedLongAddable();
+  }
+
+  private static final class SingleThreadedLongAddable implements LongAddable {
+    private long value;
+
+    @Override
+    public void increment() {
+      value++;
+    }
+
+    @Override
+    public void add(long x) {
+      value += x;
+    }
+
+    @Override
+    public long sum() {
+      return value;
+    }
   }
 }
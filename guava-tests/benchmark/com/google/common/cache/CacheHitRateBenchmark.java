@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.caliper.AfterExperiment;
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-threaded benchmark comparing the hit rate of LRU and frequency-aware (W-TinyLFU) eviction
+ * in {@link LoadingCache} on synthetic access traces.
+ */
+public class CacheHitRateBenchmark {
+  enum Policy {
+    LRU {
+      @Override
+      CacheBuilder<Object, Object> configure(CacheBuilder<Object, Object> builder) {
+        return builder;
+      }
+    },
+    TINY_LFU {
+      @Override
+      CacheBuilder<Object, Object> configure(CacheBuilder<Object, Object> builder) {
+        return builder.frequencyAwareEviction();
+      }
+    };
+
+    abstract CacheBuilder<Object, Object> configure(CacheBuilder<Object, Object> builder);
+  }
+
+  enum Trace {
+    /** Keys drawn from a Zipfian distribution over the key space. */
+    ZIPFIAN {
+      @Override
+      int[] generate(Random random, int length, int distinctKeys, double skew) {
+        ZipfianGenerator zipf = new ZipfianGenerator(distinctKeys, skew);
+        int[] keys = new int[length];
+        for (int i = 0; i < length; i++) {
+          keys[i] = zipf.next(random);
+        }
+        return keys;
+      }
+    },
+    /**
+     * A Zipfian trace in which every fourth block of requests is replaced by a sequential scan over
+     * keys that are never requested again, as a batch job or crawler would produce.
+     */
+    ZIPFIAN_WITH_SCANS {
+      @Override
+      int[] generate(Random random, int length, int distinctKeys, double skew) {
+        int[] keys = ZIPFIAN.generate(random, length, distinctKeys, skew);
+        int scanKey = distinctKeys;
+        int block = Math.max(1, length / 64);
+        for (int i = 0; i < length; i++) {
+          if ((i / block) % 4 == 3) {
+            keys[i] = scanKey++;
+          }
+        }
+        return keys;
+      }
+    };
+
+    abstract int[] generate(Random random, int length, int distinctKeys, double skew);
+  }
+
+  @Param({"LRU", "TINY_LFU"})
+  Policy policy;
+
+  @Param({"ZIPFIAN", "ZIPFIAN_WITH_SCANS"})
+  Trace trace;
+
+  @Param({"1000", "10000"})
+  int maximumSize;
+
+  @Param("100000")
+  int distinctKeys;
+
+  @Param("4")
+  int segments;
+
+  // the exponent of the Zipfian distribution; higher means some keys are more popular
+  @Param("0.9")
+  double skew;
+
+  static final int TRACE_LENGTH = 1 << 20;
+  static final int TRACE_MASK = TRACE_LENGTH - 1;
+
+  LoadingCache<Integer, Integer> cache;
+  int[] keys;
+  int position;
+
+  static AtomicLong requests = new AtomicLong(0);
+  static AtomicLong misses = new AtomicLong(0);
+
+  @BeforeExperiment
+  void setUp() {
+    keys = trace.generate(new Random(0), TRACE_LENGTH, distinctKeys, skew);
+    cache =
+        policy
+            .configure(CacheBuilder.newBuilder())
+            .concurrencyLevel(segments)
+            .maximumSize(maximumSize)
+            .build(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer from) {
+                    misses.incrementAndGet();
+                    return from;
+                  }
+                });
+
+    // Warm up with one pass over the trace so that the hit rate reflects the steady state.
+    for (int key : keys) {
+      cache.getUnchecked(key);
+    }
+
+    requests.set(0);
+    misses.set(0);
+  }
+
+  @Benchmark
+  int time(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += cache.getUnchecked(keys[position++ & TRACE_MASK]);
+    }
+    requests.addAndGet(reps);
+    return dummy;
+  }
+
+  @AfterExperiment
+  void tearDown() {
+    double req = requests.get();
+    double hit = req - misses.get();
+    System.out.println(policy + " " + trace + " hit rate: " + hit / req);
+  }
+
+  /**
+   * Draws integers in {@code [0, n)} following a Zipfian distribution with exponent {@code skew}.
+   */
+  static final class ZipfianGenerator {
+    private final double[] cumulative;
+
+    ZipfianGenerator(int n, double skew) {
+      cumulative = new double[n];
+      double sum = 0;
+      for (int i = 0; i < n; i++) {
+        sum += 1.0 / Math.pow(i + 1, skew);
+        cumulative[i] = sum;
+      }
+    }
+
+    int next(Random random) {
+      double u = random.nextDouble() * cumulative[cumulative.length - 1];
+      int index = Arrays.binarySearch(cumulative, u);
+      return (index < 0) ? -index - 1 : index;
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.caliper.AfterExperiment;
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-threaded benchmark of cache hits, which exercises the recording of reads into each
+ * segment's read buffer and the periodic draining of that buffer under the segment lock. Every
+ * thread performs {@code reps} reads, so the time per rep should stay flat as threads are added if
+ * reads scale.
+ */
+public class CacheReadThroughputBenchmark {
+  enum Eviction {
+    NONE {
+      @Override
+      CacheBuilder<Object, Object> configure(CacheBuilder<Object, Object> builder, int size) {
+        return builder;
+      }
+    },
+    MAXIMUM_SIZE {
+      @Override
+      CacheBuilder<Object, Object> configure(CacheBuilder<Object, Object> builder, int size) {
+        return builder.maximumSize(size);
+      }
+    },
+    EXPIRE_AFTER_ACCESS {
+      @Override
+      CacheBuilder<Object, Object> configure(CacheBuilder<Object, Object> builder, int size) {
+        return builder.expireAfterAccess(1, TimeUnit.HOURS);
+      }
+    };
+
+    abstract CacheBuilder<Object, Object> configure(CacheBuilder<Object, Object> builder, int size);
+  }
+
+  @Param({"1", "4", "16", "64"})
+  int threads;
+
+  @Param({"MAXIMUM_SIZE", "EXPIRE_AFTER_ACCESS", "NONE"})
+  Eviction eviction;
+
+  @Param({"4", "64"})
+  int concurrencyLevel;
+
+  @Param("10000")
+  int size;
+
+  // a power of two, so that keys can be selected with a mask
+  static final int KEY_COUNT = 1 << 13;
+  static final int KEY_MASK = KEY_COUNT - 1;
+
+  private LoadingCache<Integer, Integer> cache;
+  private Integer[] keys;
+  private ExecutorService threadPool;
+
+  @BeforeExperiment
+  void setUp() {
+    cache =
+        eviction
+            .configure(CacheBuilder.newBuilder(), size)
+            .concurrencyLevel(concurrencyLevel)
+            .build(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer from) {
+                    return from;
+                  }
+                });
+
+    // preload every key so that each read is a hit
+    Random random = new Random(0);
+    keys = new Integer[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keys[i] = random.nextInt(size);
+      cache.getUnchecked(keys[i]);
+    }
+    threadPool =
+        Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setDaemon(true).build());
+  }
+
+  @AfterExperiment
+  void tearDown() {
+    threadPool.shutdownNow();
+  }
+
+  @Benchmark
+  long get(final int reps) throws ExecutionException, InterruptedException {
+    List<Future<Long>> futures = Lists.newArrayListWithCapacity(threads);
+    for (int i = 0; i < threads; i++) {
+      final int offset = i * (KEY_COUNT / threads);
+      futures.add(
+          threadPool.submit(
+              new Callable<Long>() {
+                @Override
+                public Long call() {
+                  return runGetSingleThread(offset, reps);
+                }
+              }));
+    }
+    long total = 0;
+    for (Future<Long> future : futures) {
+      total += future.get();
+    }
+    return total;
+  }
+
+  private long runGetSingleThread(int offset, int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += cache.getUnchecked(keys[(offset + i) & KEY_MASK]);
+    }
+    return dummy;
+  }
+}
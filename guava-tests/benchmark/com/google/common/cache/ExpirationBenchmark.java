@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.common.base.Ticker;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded benchmark comparing the cost of expiring entries through the fixed-duration write
+ * queue of {@link CacheBuilder#expireAfterWrite} and through the timer wheel of {@link
+ * CacheBuilder#expireAfter}. Each write advances time so that the cache holds about {@code
+ * liveEntries} entries, and so that every write expires one entry on average.
+ */
+public class ExpirationBenchmark {
+  static final long TIME_TO_LIVE = TimeUnit.MINUTES.toNanos(1);
+
+  enum Policy {
+    EXPIRE_AFTER_WRITE {
+      @Override
+      CacheBuilder<Object, Object> configure(CacheBuilder<Object, Object> builder) {
+        return builder.expireAfterWrite(TIME_TO_LIVE, TimeUnit.NANOSECONDS);
+      }
+    },
+    /** The same lifetime for every entry, as with expireAfterWrite. */
+    EXPIRE_AFTER_FIXED {
+      @Override
+      CacheBuilder<Object, Object> configure(CacheBuilder<Object, Object> builder) {
+        return builder.expireAfter(new KeyedExpiry(1));
+      }
+    },
+    /** Lifetimes from a quarter of to twice the base lifetime, which a single queue can't order. */
+    EXPIRE_AFTER_MIXED {
+      @Override
+      CacheBuilder<Object, Object> configure(CacheBuilder<Object, Object> builder) {
+        return builder.expireAfter(new KeyedExpiry(8));
+      }
+    };
+
+    abstract CacheBuilder<Object, Object> configure(CacheBuilder<Object, Object> builder);
+  }
+
+  @Param({"EXPIRE_AFTER_WRITE", "EXPIRE_AFTER_FIXED", "EXPIRE_AFTER_MIXED"})
+  Policy policy;
+
+  @Param({"10000", "1000000"})
+  int liveEntries;
+
+  @Param("4")
+  int segments;
+
+  ManualTicker ticker;
+  Cache<Integer, Integer> cache;
+  long tick;
+  int key;
+
+  @BeforeExperiment
+  void setUp() {
+    ticker = new ManualTicker();
+    cache =
+        policy
+            .configure(CacheBuilder.newBuilder())
+            .concurrencyLevel(segments)
+            .ticker(ticker)
+            .build();
+    tick = Math.max(1, TIME_TO_LIVE / liveEntries);
+
+    // Fill the cache until entries start to expire
+    for (key = 0; key < 2 * liveEntries; key++) {
+      ticker.nanos += tick;
+      cache.put(key, key);
+    }
+  }
+
+  @Benchmark
+  long time(int reps) {
+    for (int i = 0; i < reps; i++) {
+      ticker.nanos += tick;
+      cache.put(key, key);
+      key++;
+    }
+    return cache.size();
+  }
+
+  /** Gives each key one of {@code variants} lifetimes, spread over multiples of a quarter. */
+  static final class KeyedExpiry implements Expiry<Object, Object> {
+    final int variants;
+
+    KeyedExpiry(int variants) {
+      this.variants = variants;
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+      if (variants == 1) {
+        return TIME_TO_LIVE;
+      }
+      return (TIME_TO_LIVE / 4) * (1 + (key.hashCode() & Integer.MAX_VALUE) % variants);
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        Object key, Object value, long currentTime, long currentDuration) {
+      return expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+
+  static final class ManualTicker extends Ticker {
+    long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+}
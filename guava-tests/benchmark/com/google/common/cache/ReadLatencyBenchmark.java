@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.caliper.AfterExperiment;
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded benchmark of the read latency of a {@link LoadingCache} whose removal listener
+ * and reloads are slow, with its maintenance performed by its readers or by an {@linkplain
+ * CacheBuilder#executor executor}. Caliper reports the mean; the 50th, 99th and 99.9th percentiles
+ * of the individual reads are printed after each experiment.
+ *
+ * <p>The reader pauses between reads, as a server handling requests would, so that the executor
+ * can keep up with the work it is handed.
+ */
+public class ReadLatencyBenchmark {
+  enum Maintenance {
+    CALLER {
+      @Override
+      CacheBuilder<Object, Object> configure(
+          CacheBuilder<Object, Object> builder, ExecutorService executor) {
+        return builder;
+      }
+    },
+    EXECUTOR {
+      @Override
+      CacheBuilder<Object, Object> configure(
+          CacheBuilder<Object, Object> builder, ExecutorService executor) {
+        return builder.executor(executor);
+      }
+    };
+
+    abstract CacheBuilder<Object, Object> configure(
+        CacheBuilder<Object, Object> builder, ExecutorService executor);
+  }
+
+  @Param({"CALLER", "EXECUTOR"})
+  Maintenance maintenance;
+
+  @Param("10000")
+  int maximumSize;
+
+  // about one read in ten misses, and evicts an entry
+  @Param("11000")
+  int distinctKeys;
+
+  // how long the removal listener and each reload take
+  @Param({"10", "100"})
+  int workMicros;
+
+  // how long the reader pauses between reads
+  @Param("20")
+  int pauseMicros;
+
+  static final int SAMPLES = 1 << 20;
+  static final int SAMPLE_MASK = SAMPLES - 1;
+
+  ExecutorService executor;
+  LoadingCache<Integer, Integer> cache;
+  Random random = new Random(0);
+  long[] latencies;
+  int samples;
+
+  @BeforeExperiment
+  void setUp() {
+    executor = Executors.newSingleThreadExecutor();
+    cache =
+        maintenance
+            .configure(CacheBuilder.newBuilder(), executor)
+            .maximumSize(maximumSize)
+            .refreshAfterWrite(1, TimeUnit.SECONDS)
+            .removalListener(
+                new RemovalListener<Object, Object>() {
+                  @Override
+                  public void onRemoval(RemovalNotification<Object, Object> notification) {
+                    work(workMicros);
+                  }
+                })
+            .build(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer key) {
+                    return key;
+                  }
+
+                  @Override
+                  public ListenableFuture<Integer> reload(Integer key, Integer oldValue) {
+                    work(workMicros);
+                    return Futures.immediateFuture(oldValue);
+                  }
+                });
+    for (int i = 0; i < maximumSize; i++) {
+      cache.getUnchecked(i);
+    }
+    latencies = new long[SAMPLES];
+    samples = 0;
+  }
+
+  @Benchmark
+  int time(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      int key = random.nextInt(distinctKeys);
+      long start = System.nanoTime();
+      dummy += cache.getUnchecked(key);
+      latencies[samples++ & SAMPLE_MASK] = System.nanoTime() - start;
+      work(pauseMicros);
+    }
+    return dummy;
+  }
+
+  @AfterExperiment
+  void tearDown() {
+    executor.shutdownNow();
+    long[] sorted = Arrays.copyOf(latencies, Math.min(samples, SAMPLES));
+    if (sorted.length == 0) {
+      return;
+    }
+    Arrays.sort(sorted);
+    System.out.printf(
+        "p50: %dns, p99: %dns, p99.9: %dns%n",
+        percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999));
+  }
+
+  private static long percentile(long[] sorted, double fraction) {
+    return sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * fraction))];
+  }
+
+  /** Spins for about {@code micros} microseconds, standing in for a call to a remote service. */
+  static void work(int micros) {
+    long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(micros);
+    while (System.nanoTime() - deadline < 0) {}
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.AfterExperiment;
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.caliper.api.SkipThisScenarioException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-threaded benchmark of the {@link ConcurrentArrayQueue} implementations against {@link
+ * ArrayBlockingQueue} and {@link ConcurrentLinkedQueue}. {@link #throughput} measures the time per
+ * element for {@code producers} threads to pass elements to {@code consumers} threads through one
+ * queue, and {@link #roundTrip} measures the latency of passing an element to another thread and
+ * back through a pair of queues. Queues are skipped for more producers or consumers than they
+ * support.
+ */
+public class ConcurrentArrayQueueBenchmark {
+  private static final int CAPACITY = 1024;
+
+  private static final Integer ELEMENT = 1;
+
+  enum Impl {
+    SPSC(1, 1) {
+      @Override
+      Queue<Integer> create() {
+        return Queues.newSpscArrayQueue(CAPACITY);
+      }
+    },
+    MPSC(Integer.MAX_VALUE, 1) {
+      @Override
+      Queue<Integer> create() {
+        return Queues.newMpscArrayQueue(CAPACITY);
+      }
+    },
+    MPMC(Integer.MAX_VALUE, Integer.MAX_VALUE) {
+      @Override
+      Queue<Integer> create() {
+        return Queues.newMpmcArrayQueue(CAPACITY);
+      }
+    },
+    ARRAY_BLOCKING_QUEUE(Integer.MAX_VALUE, Integer.MAX_VALUE) {
+      @Override
+      Queue<Integer> create() {
+        return new ArrayBlockingQueue<>(CAPACITY);
+      }
+    },
+    CONCURRENT_LINKED_QUEUE(Integer.MAX_VALUE, Integer.MAX_VALUE) {
+      @Override
+      Queue<Integer> create() {
+        return new ConcurrentLinkedQueue<>();
+      }
+    };
+
+    final int maxProducers;
+    final int maxConsumers;
+
+    Impl(int maxProducers, int maxConsumers) {
+      this.maxProducers = maxProducers;
+      this.maxConsumers = maxConsumers;
+    }
+
+    abstract Queue<Integer> create();
+  }
+
+  @Param Impl impl;
+
+  @Param({"1", "4"})
+  int producers;
+
+  @Param({"1", "4"})
+  int consumers;
+
+  private ExecutorService threadPool;
+
+  @BeforeExperiment
+  void setUp() {
+    if (producers > impl.maxProducers || consumers > impl.maxConsumers) {
+      throw new SkipThisScenarioException();
+    }
+    threadPool =
+        Executors.newFixedThreadPool(
+            producers + consumers, new ThreadFactoryBuilder().setDaemon(true).build());
+  }
+
+  @AfterExperiment
+  void tearDown() {
+    threadPool.shutdownNow();
+  }
+
+  @Benchmark
+  long throughput(final int reps) throws ExecutionException, InterruptedException {
+    final Queue<Integer> queue = impl.create();
+    final AtomicLong remaining = new AtomicLong(reps);
+    List<Future<Long>> futures = Lists.newArrayListWithCapacity(producers + consumers);
+    for (int i = 0; i < producers; i++) {
+      final int quota = reps / producers + ((i < reps % producers) ? 1 : 0);
+      futures.add(
+          threadPool.submit(
+              new Callable<Long>() {
+                @Override
+                public Long call() {
+                  long failures = 0;
+                  for (int sent = 0; sent < quota; ) {
+                    if (queue.offer(ELEMENT)) {
+                      sent++;
+                    } else {
+                      failures++;
+                      Thread.yield();
+                    }
+                  }
+                  return failures;
+                }
+              }));
+    }
+    for (int i = 0; i < consumers; i++) {
+      futures.add(
+          threadPool.submit(
+              new Callable<Long>() {
+                @Override
+                public Long call() {
+                  long sum = 0;
+                  while (remaining.get() > 0) {
+                    Integer e = queue.poll();
+                    if (e == null) {
+                      Thread.yield();
+                    } else {
+                      sum += e;
+                      remaining.decrementAndGet();
+                    }
+                  }
+                  return sum;
+                }
+              }));
+    }
+    long dummy = 0;
+    for (Future<Long> future : futures) {
+      dummy += future.get();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long roundTrip(final int reps) throws ExecutionException, InterruptedException {
+    if (producers != 1 || consumers != 1) {
+      throw new SkipThisScenarioException();
+    }
+    final Queue<Integer> ping = impl.create();
+    final Queue<Integer> pong = impl.create();
+    Future<Long> echo =
+        threadPool.submit(
+            new Callable<Long>() {
+              @Override
+              public Long call() {
+                long spins = 0;
+                for (int i = 0; i < reps; i++) {
+                  Integer e;
+                  while ((e = ping.poll()) == null) {
+                    spins++;
+                  }
+                  pong.offer(e);
+                }
+                return spins;
+              }
+            });
+    long spins = 0;
+    for (int i = 0; i < reps; i++) {
+      ping.offer(ELEMENT);
+      while (pong.poll() == null) {
+        spins++;
+      }
+    }
+    return spins + echo.get();
+  }
+}
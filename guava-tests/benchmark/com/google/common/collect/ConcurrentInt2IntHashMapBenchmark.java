@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.AfterExperiment;
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.common.util.concurrent.AtomicLongMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Multi-threaded benchmark of {@link ConcurrentInt2IntHashMap} against a boxed {@link
+ * ConcurrentHashMap} and an {@link AtomicLongMap}, as counters that every thread increments and as
+ * read-mostly lookup tables. Every thread performs {@code reps} operations on randomly chosen keys.
+ */
+public class ConcurrentInt2IntHashMapBenchmark {
+  enum Impl {
+    CONCURRENT_INT2INT_HASH_MAP {
+      @Override
+      Counter newCounter() {
+        final ConcurrentInt2IntHashMap map = new ConcurrentInt2IntHashMap();
+        return new Counter() {
+          @Override
+          void increment(int key) {
+            map.incrementAndGet(key);
+          }
+
+          @Override
+          long get(int key) {
+            return map.get(key);
+          }
+        };
+      }
+    },
+    CONCURRENT_HASH_MAP {
+      @Override
+      Counter newCounter() {
+        final ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+        return new Counter() {
+          @Override
+          void increment(int key) {
+            map.merge(key, 1, Integer::sum);
+          }
+
+          @Override
+          long get(int key) {
+            Integer value = map.get(key);
+            return (value == null) ? 0 : value;
+          }
+        };
+      }
+    },
+    ATOMIC_LONG_MAP {
+      @Override
+      Counter newCounter() {
+        final AtomicLongMap<Integer> map = AtomicLongMap.create();
+        return new Counter() {
+          @Override
+          void increment(int key) {
+            map.incrementAndGet(key);
+          }
+
+          @Override
+          long get(int key) {
+            return map.get(key);
+          }
+        };
+      }
+    };
+
+    abstract Counter newCounter();
+  }
+
+  abstract static class Counter {
+    abstract void increment(int key);
+
+    abstract long get(int key);
+  }
+
+  @Param({"1", "2", "4", "8", "16"})
+  int threads;
+
+  @Param({"1000", "100000"})
+  int keys;
+
+  @Param Impl impl;
+
+  private int[] queries;
+  private Counter counter;
+  private ExecutorService threadPool;
+
+  @BeforeExperiment
+  void setUp() {
+    Random random = new Random(0);
+    queries = new int[1 << 16];
+    for (int i = 0; i < queries.length; i++) {
+      queries[i] = random.nextInt(keys);
+    }
+    counter = impl.newCounter();
+    for (int key = 0; key < keys; key++) {
+      counter.increment(key);
+    }
+    threadPool =
+        Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setDaemon(true).build());
+  }
+
+  @AfterExperiment
+  void tearDown() {
+    threadPool.shutdownNow();
+  }
+
+  @Benchmark
+  long increment(final int reps) throws ExecutionException, InterruptedException {
+    return run(
+        new Task() {
+          @Override
+          long apply(int key) {
+            counter.increment(key);
+            return key;
+          }
+        },
+        reps);
+  }
+
+  @Benchmark
+  long get(final int reps) throws ExecutionException, InterruptedException {
+    return run(
+        new Task() {
+          @Override
+          long apply(int key) {
+            return counter.get(key);
+          }
+        },
+        reps);
+  }
+
+  private abstract static class Task {
+    abstract long apply(int key);
+  }
+
+  private long run(final Task task, final int reps)
+      throws ExecutionException, InterruptedException {
+    List<Future<Long>> futures = Lists.newArrayListWithCapacity(threads);
+    for (int i = 0; i < threads; i++) {
+      final int offset = i * 7919;
+      futures.add(
+          threadPool.submit(
+              new Callable<Long>() {
+                @Override
+                public Long call() {
+                  int[] queries = ConcurrentInt2IntHashMapBenchmark.this.queries;
+                  long dummy = 0;
+                  for (int rep = 0; rep < reps; rep++) {
+                    dummy += task.apply(queries[(offset + rep) & (queries.length - 1)]);
+                  }
+                  return dummy;
+                }
+              }));
+    }
+    long dummy = 0;
+    for (Future<Long> future : futures) {
+      dummy += future.get();
+    }
+    return dummy;
+  }
+}
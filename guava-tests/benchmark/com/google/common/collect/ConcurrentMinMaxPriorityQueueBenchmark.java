@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.AfterExperiment;
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Multi-threaded benchmark of {@link ConcurrentMinMaxPriorityQueue} against a {@link
+ * MinMaxPriorityQueue} guarded by one lock, as a scheduler would use it, and a {@link
+ * PriorityBlockingQueue}. Every thread performs {@code reps} rounds of adding a random element and
+ * polling the least, on a queue that starts with {@code size} elements.
+ */
+public class ConcurrentMinMaxPriorityQueueBenchmark {
+  enum Impl {
+    CONCURRENT_MIN_MAX {
+      @Override
+      Queue<Integer> create() {
+        return ConcurrentMinMaxPriorityQueue.create();
+      }
+    },
+    SYNCHRONIZED_MIN_MAX {
+      @Override
+      Queue<Integer> create() {
+        return Queues.synchronizedQueue(MinMaxPriorityQueue.<Integer>create());
+      }
+    },
+    PRIORITY_BLOCKING_QUEUE {
+      @Override
+      Queue<Integer> create() {
+        return new PriorityBlockingQueue<>();
+      }
+    };
+
+    abstract Queue<Integer> create();
+  }
+
+  @Param({"1", "2", "4", "8"})
+  int threads;
+
+  @Param({"100", "10000"})
+  int size;
+
+  @Param Impl impl;
+
+  private int[] values;
+  private Queue<Integer> queue;
+  private ExecutorService threadPool;
+
+  @BeforeExperiment
+  void setUp() {
+    Random random = new Random(0);
+    values = new int[1 << 16];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextInt();
+    }
+    queue = impl.create();
+    for (int i = 0; i < size; i++) {
+      queue.add(values[i & (values.length - 1)]);
+    }
+    threadPool =
+        Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setDaemon(true).build());
+  }
+
+  @AfterExperiment
+  void tearDown() {
+    threadPool.shutdownNow();
+  }
+
+  @Benchmark
+  long addAndPoll(final int reps) throws ExecutionException, InterruptedException {
+    List<Future<Long>> futures = Lists.newArrayListWithCapacity(threads);
+    for (int i = 0; i < threads; i++) {
+      final int offset = i * 7919;
+      futures.add(
+          threadPool.submit(
+              new Callable<Long>() {
+                @Override
+                public Long call() {
+                  int[] values = ConcurrentMinMaxPriorityQueueBenchmark.this.values;
+                  long dummy = 0;
+                  for (int rep = 0; rep < reps; rep++) {
+                    queue.add(values[(offset + rep) & (values.length - 1)]);
+                    dummy += queue.poll();
+                  }
+                  return dummy;
+                }
+              }));
+    }
+    long dummy = 0;
+    for (Future<Long> future : futures) {
+      dummy += future.get();
+    }
+    return dummy;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.common.primitives.IntTopKSelector;
+import com.google.common.primitives.Ints;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares selecting the least {@code k} of {@code size} random ints with {@link IntTopKSelector},
+ * with {@link Ints#partialSort} on a copy of the array, with the boxed {@link TopKSelector}, and
+ * with sorting the whole copy.
+ */
+public class IntTopKSelectorBenchmark {
+  @Param({"100000", "10000000"})
+  int size;
+
+  @Param({"10", "1000", "100000"})
+  int k;
+
+  private int[] values;
+
+  @BeforeExperiment
+  void setUp() {
+    Random random = new Random(0);
+    values = new int[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = random.nextInt();
+    }
+  }
+
+  @Benchmark
+  int intTopKSelector(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      IntTopKSelector selector = IntTopKSelector.least(k);
+      for (int value : values) {
+        selector.offer(value);
+      }
+      dummy += selector.topK()[k - 1];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int partialSort(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      int[] array = values.clone();
+      Ints.partialSort(array, k);
+      dummy += array[k - 1];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int boxedTopKSelector(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      TopKSelector<Integer> selector = TopKSelector.least(k);
+      for (int value : values) {
+        selector.offer(value);
+      }
+      List<Integer> topK = selector.topK();
+      dummy += topK.get(k - 1);
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int fullSort(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      int[] array = values.clone();
+      Arrays.sort(array);
+      dummy += array[k - 1];
+    }
+    return dummy;
+  }
+}
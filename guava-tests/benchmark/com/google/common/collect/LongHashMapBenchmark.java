@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the throughput of {@link Long2LongHashMap} with a boxed {@code HashMap<Long, Long>}
+ * when putting and getting random keys.
+ */
+public class LongHashMapBenchmark {
+  @Param({"100", "10000", "1000000"})
+  private int size;
+
+  @Param({"0.2", "0.8"})
+  private double hitRate;
+
+  private long[] keys;
+  private long[] queries;
+  private Long2LongHashMap primitiveMap;
+  private Map<Long, Long> boxedMap;
+
+  @BeforeExperiment
+  void setUp() {
+    Random random = new Random(0);
+    keys = new long[size];
+    primitiveMap = new Long2LongHashMap();
+    boxedMap = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      keys[i] = random.nextLong();
+      primitiveMap.put(keys[i], i);
+      boxedMap.put(keys[i], (long) i);
+    }
+    queries = new long[size];
+    for (int i = 0; i < size; i++) {
+      queries[i] = random.nextDouble() < hitRate ? keys[random.nextInt(size)] : random.nextLong();
+    }
+  }
+
+  @Benchmark
+  long putLong2LongHashMap(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      Long2LongHashMap map = new Long2LongHashMap();
+      for (long key : keys) {
+        map.put(key, key);
+      }
+      dummy += map.size();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long putBoxedHashMap(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      Map<Long, Long> map = new HashMap<>();
+      for (long key : keys) {
+        map.put(key, key);
+      }
+      dummy += map.size();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long getLong2LongHashMap(int reps) {
+    Long2LongHashMap map = primitiveMap;
+    long[] queries = this.queries;
+    long missingValue = map.missingValue();
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      long value = map.get(queries[i % queries.length]);
+      if (value != missingValue) {
+        dummy += value;
+      }
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long getBoxedHashMap(int reps) {
+    Map<Long, Long> map = boxedMap;
+    long[] queries = this.queries;
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      Long value = map.get(queries[i % queries.length]);
+      if (value != null) {
+        dummy += value;
+      }
+    }
+    return dummy;
+  }
+}
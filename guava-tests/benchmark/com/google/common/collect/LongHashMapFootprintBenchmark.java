@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Param;
+import com.google.caliper.api.Footprint;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Measures the size of the long-keyed open-addressing collections against the boxed {@link
+ * HashMap} and {@link HashSet} they replace.
+ */
+public class LongHashMapFootprintBenchmark {
+
+  enum Impl {
+    LONG2LONG_HASH_MAP {
+      @Override
+      Object create(long[] keys) {
+        Long2LongHashMap map = new Long2LongHashMap();
+        for (long key : keys) {
+          map.put(key, key);
+        }
+        return map;
+      }
+    },
+    BOXED_LONG_LONG_HASH_MAP {
+      @Override
+      Object create(long[] keys) {
+        HashMap<Long, Long> map = new HashMap<>();
+        for (long key : keys) {
+          map.put(key, key);
+        }
+        return map;
+      }
+    },
+    LONG2OBJECT_HASH_MAP {
+      @Override
+      Object create(long[] keys) {
+        Long2ObjectHashMap<Object> map = new Long2ObjectHashMap<>();
+        for (long key : keys) {
+          map.put(key, VALUE);
+        }
+        return map;
+      }
+    },
+    BOXED_LONG_OBJECT_HASH_MAP {
+      @Override
+      Object create(long[] keys) {
+        HashMap<Long, Object> map = new HashMap<>();
+        for (long key : keys) {
+          map.put(key, VALUE);
+        }
+        return map;
+      }
+    },
+    LONG_HASH_SET {
+      @Override
+      Object create(long[] keys) {
+        LongHashSet set = new LongHashSet();
+        for (long key : keys) {
+          set.add(key);
+        }
+        return set;
+      }
+    },
+    BOXED_LONG_HASH_SET {
+      @Override
+      Object create(long[] keys) {
+        HashSet<Long> set = new HashSet<>();
+        for (long key : keys) {
+          set.add(key);
+        }
+        return set;
+      }
+    };
+
+    abstract Object create(long[] keys);
+  }
+
+  /** The type of {@link #VALUE}, which is excluded from the measurement. */
+  private static final class Value {}
+
+  /** Shared by every entry, so that only the maps themselves are measured. */
+  private static final Value VALUE = new Value();
+
+  @Param({"0", "10", "1000", "100000"})
+  int size;
+
+  @Param Impl impl;
+
+  private long[] keys;
+
+  @BeforeExperiment
+  void setUp() {
+    Random random = new Random(0);
+    keys = new long[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = random.nextLong();
+    }
+  }
+
+  @Footprint(exclude = {Value.class})
+  public Object measureSize() {
+    return impl.create(keys);
+  }
+}
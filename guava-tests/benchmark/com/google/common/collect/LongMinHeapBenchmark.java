@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Compares {@link LongMinHeap} with a {@link PriorityQueue}, both as a plain priority queue
+ * ({@code pollAndAdd}, as in {@link MinMaxPriorityQueueBenchmark}) and in Dijkstra's algorithm on
+ * a random graph, where the {@code PriorityQueue} can't decrease keys and so holds stale entries
+ * that are skipped when polled.
+ */
+public class LongMinHeapBenchmark {
+  @Param({"100", "10000", "1000000"})
+  int size;
+
+  private long[] priorities;
+  private LongMinHeap heap;
+  private PriorityQueue<Long> queue;
+
+  /** The edges of the graph, of which edges offsets[v] until offsets[v + 1] start at vertex v. */
+  private int[] offsets;
+
+  private int[] targets;
+  private long[] weights;
+
+  @BeforeExperiment
+  void setUp() {
+    Random random = new Random(0);
+    priorities = new long[1 << 16];
+    for (int i = 0; i < priorities.length; i++) {
+      priorities[i] = random.nextLong();
+    }
+    heap = LongMinHeap.withExpectedSize(size);
+    queue = new PriorityQueue<>(size);
+    for (int i = 0; i < size; i++) {
+      heap.add(priorities[i & (priorities.length - 1)], i);
+      queue.add(priorities[i & (priorities.length - 1)]);
+    }
+
+    int degree = 8;
+    offsets = new int[size + 1];
+    targets = new int[size * degree];
+    weights = new long[size * degree];
+    for (int v = 0; v < size; v++) {
+      offsets[v + 1] = offsets[v] + degree;
+      for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+        targets[e] = random.nextInt(size);
+        weights[e] = random.nextInt(1000);
+      }
+    }
+  }
+
+  @Benchmark
+  long heapPollAndAdd(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += heap.peekPriority();
+      heap.add(priorities[i & (priorities.length - 1)], heap.removeMin());
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long priorityQueuePollAndAdd(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += queue.poll();
+      queue.add(priorities[i & (priorities.length - 1)]);
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long heapDijkstra(int reps) {
+    long dummy = 0;
+    long[] distance = new long[size];
+    int[] handles = new int[size];
+    LongMinHeap heap = LongMinHeap.withExpectedSize(size);
+    for (int i = 0; i < reps; i++) {
+      Arrays.fill(distance, Long.MAX_VALUE);
+      Arrays.fill(handles, -1);
+      int source = i % size;
+      distance[source] = 0;
+      handles[source] = heap.add(0, source);
+      while (!heap.isEmpty()) {
+        int v = heap.removeMin();
+        handles[v] = -1;
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+          int w = targets[e];
+          long d = distance[v] + weights[e];
+          if (d < distance[w]) {
+            distance[w] = d;
+            if (handles[w] < 0) {
+              handles[w] = heap.add(d, w);
+            } else {
+              heap.decreasePriority(handles[w], d);
+            }
+          }
+        }
+      }
+      dummy += distance[size - 1];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long priorityQueueDijkstra(int reps) {
+    long dummy = 0;
+    long[] distance = new long[size];
+    PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+    for (int i = 0; i < reps; i++) {
+      Arrays.fill(distance, Long.MAX_VALUE);
+      int source = i % size;
+      distance[source] = 0;
+      queue.add(new long[] {0, source});
+      while (!queue.isEmpty()) {
+        long[] entry = queue.poll();
+        int v = (int) entry[1];
+        if (entry[0] > distance[v]) {
+          continue;
+        }
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+          int w = targets[e];
+          long d = distance[v] + weights[e];
+          if (d < distance[w]) {
+            distance[w] = d;
+            queue.add(new long[] {d, w});
+          }
+        }
+      }
+      dummy += distance[size - 1];
+    }
+    return dummy;
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.AfterExperiment;
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.caliper.api.Footprint;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Compares {@link OffHeapIntHashSet}, in direct memory and mapped from a file, with the on-heap
+ * {@link IntHashSet}, for sets of up to 2^29 values. The lookup benchmarks measure the latency of
+ * {@code contains} on random values, half of them present; the footprint benchmark measures the
+ * heap taken by each set, which for the off-heap sets excludes their {@code tableBytes()}.
+ *
+ * <p>Run with a heap of at least 6 GiB and {@code -XX:MaxDirectMemorySize} of at least 4 GiB for
+ * the largest size, and with garbage collection logging to see the pauses the heap set causes.
+ */
+public class OffHeapIntHashSetBenchmark {
+  enum Impl {
+    HEAP {
+      @Override
+      IntSet create(int expectedSize, Path file) {
+        final IntHashSet set = new IntHashSet(capacityFor(expectedSize));
+        return new IntSet() {
+          @Override
+          boolean add(int value) {
+            return set.add(value);
+          }
+
+          @Override
+          boolean contains(int value) {
+            return set.contains(value);
+          }
+
+          @Override
+          Object unwrap() {
+            return set;
+          }
+        };
+      }
+    },
+    DIRECT {
+      @Override
+      IntSet create(int expectedSize, Path file) {
+        return wrap(new OffHeapIntHashSet(capacityFor(expectedSize)));
+      }
+    },
+    MAPPED {
+      @Override
+      IntSet create(int expectedSize, Path file) throws IOException {
+        return wrap(
+            OffHeapIntHashSet.create(
+                file, capacityFor(expectedSize), Hashing.DEFAULT_LOAD_FACTOR));
+      }
+    };
+
+    abstract IntSet create(int expectedSize, Path file) throws IOException;
+
+    static IntSet wrap(final OffHeapIntHashSet set) {
+      return new IntSet() {
+        @Override
+        boolean add(int value) {
+          return set.add(value);
+        }
+
+        @Override
+        boolean contains(int value) {
+          return set.contains(value);
+        }
+
+        @Override
+        Object unwrap() {
+          return set;
+        }
+
+        @Override
+        void close() {
+          set.close();
+        }
+      };
+    }
+
+    /** Returns a capacity at which {@code expectedSize} values fit without rehashing. */
+    static int capacityFor(int expectedSize) {
+      return (int) Math.min(1 << 30, (long) (expectedSize / Hashing.DEFAULT_LOAD_FACTOR) + 1);
+    }
+  }
+
+  abstract static class IntSet {
+    abstract boolean add(int value);
+
+    abstract boolean contains(int value);
+
+    abstract Object unwrap();
+
+    void close() {}
+  }
+
+  private static final int QUERY_COUNT = 1 << 20;
+
+  @Param({"1048576", "268435456", "536870912"})
+  int size;
+
+  @Param Impl impl;
+
+  private Path directory;
+  private IntSet set;
+  private int[] queries;
+
+  @BeforeExperiment
+  void setUp() throws IOException {
+    directory = Files.createTempDirectory("OffHeapIntHashSetBenchmark");
+    set = fill(impl.create(size, directory.resolve("set")), size);
+    Random random = new Random(0);
+    queries = new int[QUERY_COUNT];
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      // values 1 to size are present
+      queries[i] = random.nextBoolean() ? 1 + random.nextInt(size) : -1 - random.nextInt(size);
+    }
+  }
+
+  @AfterExperiment
+  void tearDown() throws IOException {
+    if (set != null) {
+      set.close();
+    }
+    Files.deleteIfExists(directory.resolve("set"));
+    Files.deleteIfExists(directory.resolve("footprint"));
+    Files.delete(directory);
+  }
+
+  private static IntSet fill(IntSet set, int size) {
+    for (int i = 1; i <= size; i++) {
+      set.add(i);
+    }
+    return set;
+  }
+
+  @Benchmark
+  int contains(int reps) {
+    IntSet set = this.set;
+    int[] queries = this.queries;
+    int hits = 0;
+    for (int i = 0; i < reps; i++) {
+      if (set.contains(queries[i & (QUERY_COUNT - 1)])) {
+        hits++;
+      }
+    }
+    return hits;
+  }
+
+  @Benchmark
+  int add(int reps) {
+    IntSet set = this.set;
+    int[] queries = this.queries;
+    int added = 0;
+    for (int i = 0; i < reps; i++) {
+      // absent values are added once and are then present
+      if (set.add(queries[i & (QUERY_COUNT - 1)])) {
+        added++;
+      }
+    }
+    return added;
+  }
+
+  @Footprint
+  public Object heapFootprint() throws IOException {
+    // the set stays open, as Caliper measures it after this method returns
+    return fill(impl.create(size, directory.resolve("footprint")), size).unwrap();
+  }
+}
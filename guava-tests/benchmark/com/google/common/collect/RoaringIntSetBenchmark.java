@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.caliper.api.Footprint;
+import java.util.Random;
+
+/**
+ * Compares the set algebra of {@link RoaringIntSet} with that of {@link IntHashSet}, for two sets
+ * of {@code size} random values drawn from a range {@code spread} times larger, so that a spread
+ * of 1 gives dense sets held in bitmaps and a larger spread gives sparse sets held in arrays.
+ */
+public class RoaringIntSetBenchmark {
+  @Param({"100000", "1000000"})
+  int size;
+
+  @Param({"2", "64"})
+  int spread;
+
+  private RoaringIntSet roaringA;
+  private RoaringIntSet roaringB;
+  private IntHashSet hashA;
+  private IntHashSet hashB;
+
+  @BeforeExperiment
+  void setUp() {
+    Random random = new Random(0);
+    roaringA = RoaringIntSet.create();
+    roaringB = RoaringIntSet.create();
+    fill(roaringA, random);
+    fill(roaringB, random);
+    hashA = roaringA.toIntHashSet();
+    hashB = roaringB.toIntHashSet();
+  }
+
+  private void fill(RoaringIntSet set, Random random) {
+    while (set.size() < size) {
+      set.add(random.nextInt(size * spread));
+    }
+  }
+
+  @Benchmark
+  long roaringAnd(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += RoaringIntSet.and(roaringA, roaringB).cardinality();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long roaringOr(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += RoaringIntSet.or(roaringA, roaringB).cardinality();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long roaringAndCardinality(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += RoaringIntSet.andCardinality(roaringA, roaringB);
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long hashSetAnd(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      IntHashSet result = new IntHashSet(size);
+      IntHashSet.IntIterator iterator = hashA.iterator();
+      while (iterator.hasNext()) {
+        int value = iterator.nextValue();
+        if (hashB.contains(value)) {
+          result.add(value);
+        }
+      }
+      dummy += result.size();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long hashSetOr(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      IntHashSet result = new IntHashSet(4 * size);
+      result.addAll(hashA);
+      result.addAll(hashB);
+      dummy += result.size();
+    }
+    return dummy;
+  }
+
+  @Footprint
+  public Object roaringFootprint() {
+    return RoaringIntSet.copyOf(roaringA);
+  }
+
+  @Footprint
+  public Object hashSetFootprint() {
+    return roaringA.toIntHashSet();
+  }
+}
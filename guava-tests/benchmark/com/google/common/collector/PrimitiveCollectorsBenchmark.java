@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collector;
+
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the collectors of primitive streams in {@link PrimitiveCollectors} with boxed
+ * collection through {@link java.util.stream.Collectors} and the boxed {@code PrimitiveCollectors}
+ * collectors.
+ *
+ * <p>Run with Caliper's allocation instrument ({@code -i allocation}) to count the objects each
+ * benchmark allocates per rep. The primitive collectors allocate only their backing arrays, so
+ * their count does not grow with {@code size}, while the boxed ones allocate at least one object
+ * per element outside the {@code Integer} cache.
+ */
+public class PrimitiveCollectorsBenchmark {
+  @Param({"1000", "100000"})
+  private int size;
+
+  @Param({"16", "65536"})
+  private int distinct;
+
+  @Param({"false", "true"})
+  private boolean parallel;
+
+  private int[] values;
+
+  @BeforeExperiment
+  void setUp() {
+    Random random = new Random(0);
+    values = new int[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = 1024 + random.nextInt(distinct);
+    }
+  }
+
+  private IntStream stream() {
+    IntStream stream = IntStream.of(values);
+    return parallel ? stream.parallel() : stream;
+  }
+
+  @Benchmark
+  int toListBoxed(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += stream().boxed().collect(toList()).size();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int toIntArrayListBoxed(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += stream().boxed().collect(PrimitiveCollectors.toIntArrayList()).size();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int toIntArrayListPrimitive(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += PrimitiveCollectors.intsToIntArrayList().collect(stream()).size();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int toIntHashSetBoxed(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += stream().boxed().collect(PrimitiveCollectors.toIntHashSet()).size();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int toIntHashSetPrimitive(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += PrimitiveCollectors.intsToIntHashSet().collect(stream()).size();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int countingBoxed(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      Map<Integer, Long> counts =
+          stream().boxed().collect(groupingBy(Function.identity(), counting()));
+      dummy += counts.size();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int countingPrimitive(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += PrimitiveCollectors.intsCounting().collect(stream()).size();
+    }
+    return dummy;
+  }
+}
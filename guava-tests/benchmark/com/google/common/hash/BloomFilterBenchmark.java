@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.Random;
+
+/**
+ * Compares the speed of the {@link BloomFilterStrategies} against their false positive rate. Large
+ * filters show the difference best: once the bit array is much bigger than the CPU caches, each
+ * probe of the unblocked strategies is a cache miss, while the blocked strategy misses once.
+ *
+ * <p>Caliper reports only times, so the false positive rate of each filter, measured over a million
+ * absent elements, is printed when it is set up.
+ */
+public class BloomFilterBenchmark {
+  @Param({"100000", "10000000", "100000000"})
+  long expectedInsertions;
+
+  @Param({"0.03", "0.001"})
+  double fpp;
+
+  @Param BloomFilterStrategies strategy;
+
+  private static final int PROBES = 1 << 20;
+
+  private BloomFilter<Long> bloomFilter;
+  private long[] present;
+  private long[] absent;
+
+  @BeforeExperiment
+  void setUp() {
+    bloomFilter = BloomFilter.create(Funnels.longFunnel(), expectedInsertions, fpp, strategy);
+    // Even numbers are inserted, odd numbers are probed for false positives
+    Random random = new Random(0);
+    present = new long[PROBES];
+    for (long i = 0; i < expectedInsertions; i++) {
+      long element = random.nextLong() << 1;
+      bloomFilter.put(element);
+      if (i < PROBES) {
+        present[(int) i] = element;
+      }
+    }
+    absent = new long[PROBES];
+    int falsePositives = 0;
+    for (int i = 0; i < PROBES; i++) {
+      absent[i] = (random.nextLong() << 1) | 1;
+      if (bloomFilter.mightContain(absent[i])) {
+        falsePositives++;
+      }
+    }
+    System.out.printf(
+        "%s, fpp %s, %s insertions: %s bits, false positive rate %.5f%n",
+        strategy, fpp, expectedInsertions, bloomFilter.bitSize(), (double) falsePositives / PROBES);
+  }
+
+  @Benchmark
+  int mightContainPresent(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      if (bloomFilter.mightContain(present[i & (PROBES - 1)])) {
+        dummy++;
+      }
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int mightContainAbsent(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      if (bloomFilter.mightContain(absent[i & (PROBES - 1)])) {
+        dummy++;
+      }
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int put(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      if (bloomFilter.put(present[i & (PROBES - 1)])) {
+        dummy++;
+      }
+    }
+    return dummy;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmarks for {@link HyperLogLog}: the time to put elements into a sketch, compared with adding
+ * them to a {@link HashSet}, to estimate its count and to merge two sketches.
+ *
+ * <p>Caliper reports only times, so the accuracy of the sketches, as the root mean square of their
+ * relative errors over several sketches of {@code cardinality} distinct elements, is printed when
+ * the benchmark is set up, with the relative standard error it should approach.
+ */
+public class HyperLogLogBenchmark {
+  @Param({"10", "14", "18"})
+  int precision;
+
+  @Param({"1000", "100000", "1000000"})
+  int cardinality;
+
+  private static final int TRIALS = 10;
+
+  /** The number of elements put, a power of two so that they can be cycled through with a mask. */
+  private static final int ELEMENTS = 1 << 16;
+
+  private Long[] elements;
+  private HyperLogLog<Long> sketch;
+  private HyperLogLog<Long> other;
+  private Set<Long> set;
+
+  @BeforeExperiment
+  void setUp() {
+    Random random = new Random(0);
+    double sumOfSquares = 0;
+    for (int trial = 0; trial < TRIALS; trial++) {
+      HyperLogLog<Long> trialSketch = HyperLogLog.create(Funnels.longFunnel(), precision);
+      long first = random.nextLong();
+      for (int i = 0; i < cardinality; i++) {
+        trialSketch.put(first + i);
+      }
+      double error = (double) (trialSketch.approximateElementCount() - cardinality) / cardinality;
+      sumOfSquares += error * error;
+      if (trial == 0) {
+        sketch = trialSketch;
+      } else if (trial == 1) {
+        other = trialSketch;
+      }
+    }
+    System.out.printf(
+        "precision %d, cardinality %d: relative error %.4f, expected %.4f%n",
+        precision,
+        cardinality,
+        Math.sqrt(sumOfSquares / TRIALS),
+        sketch.relativeStandardError());
+
+    // As many distinct elements as the cardinality, so that sets are as large as they'd get
+    elements = new Long[ELEMENTS];
+    for (int i = 0; i < ELEMENTS; i++) {
+      elements[i] = (long) random.nextInt(cardinality);
+    }
+    set = new HashSet<>();
+    for (long i = 0; i < cardinality; i++) {
+      set.add(i);
+    }
+  }
+
+  @Benchmark
+  int put(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += sketch.put(elements[i & (ELEMENTS - 1)]) ? 1 : 0;
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int hashSetAdd(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += set.add(elements[i & (ELEMENTS - 1)]) ? 1 : 0;
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long approximateElementCount(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += sketch.approximateElementCount();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int putAll(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      HyperLogLog<Long> union = sketch.copy();
+      union.putAll(other);
+      dummy += union.put(elements[i & (ELEMENTS - 1)]) ? 1 : 0;
+    }
+    return dummy;
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Compares {@link BloomFilter}, {@link ScalableBloomFilter}, {@link CuckooFilter} and {@link
+ * XorFilter} at the same target false positive probability: the time to build a filter of {@code
+ * size} elements, and to query it. The scalable Bloom filter is not told the size, and grows to it
+ * from {@value #SCALABLE_INITIAL_INSERTIONS} elements.
+ *
+ * <p>Caliper reports only times, so the bits per element and the false positive rate of each
+ * filter, measured over a million absent elements, are printed when it is set up.
+ */
+public class MembershipFilterBenchmark {
+  enum Impl {
+    BLOOM {
+      @Override
+      Filter build(List<Long> elements, double fpp) {
+        BloomFilter<Long> filter = BloomFilter.create(Funnels.longFunnel(), elements.size(), fpp);
+        for (Long element : elements) {
+          filter.put(element);
+        }
+        return new Filter(filter::mightContain, filter.bitSize());
+      }
+    },
+    BLOCKED_BLOOM {
+      @Override
+      Filter build(List<Long> elements, double fpp) {
+        BloomFilter<Long> filter =
+            BloomFilter.createBlocked(Funnels.longFunnel(), elements.size(), fpp);
+        for (Long element : elements) {
+          filter.put(element);
+        }
+        return new Filter(filter::mightContain, filter.bitSize());
+      }
+    },
+    SCALABLE_BLOOM {
+      @Override
+      Filter build(List<Long> elements, double fpp) {
+        ScalableBloomFilter<Long> filter =
+            ScalableBloomFilter.create(Funnels.longFunnel(), SCALABLE_INITIAL_INSERTIONS, fpp);
+        for (Long element : elements) {
+          filter.put(element);
+        }
+        return new Filter(filter::mightContain, filter.bitSize());
+      }
+    },
+    CUCKOO {
+      @Override
+      Filter build(List<Long> elements, double fpp) {
+        CuckooFilter<Long> filter =
+            CuckooFilter.create(Funnels.longFunnel(), elements.size(), fpp);
+        for (Long element : elements) {
+          filter.put(element);
+        }
+        return new Filter(filter::mightContain, filter.bitSize());
+      }
+    },
+    XOR {
+      @Override
+      Filter build(List<Long> elements, double fpp) {
+        XorFilter<Long> filter = XorFilter.create(elements, Funnels.longFunnel(), fpp);
+        return new Filter(filter::mightContain, filter.bitSize());
+      }
+    };
+
+    abstract Filter build(List<Long> elements, double fpp);
+  }
+
+  /** A filter's query method and its size. */
+  static final class Filter {
+    final Predicate<Long> mightContain;
+    final long bitSize;
+
+    Filter(Predicate<Long> mightContain, long bitSize) {
+      this.mightContain = mightContain;
+      this.bitSize = bitSize;
+    }
+  }
+
+  @Param({"10000", "1000000", "10000000"})
+  int size;
+
+  @Param({"0.01", "0.001"})
+  double fpp;
+
+  @Param Impl impl;
+
+  private static final int PROBES = 1 << 20;
+
+  private static final int SCALABLE_INITIAL_INSERTIONS = 1000;
+
+  private List<Long> elements;
+  private Predicate<Long> filter;
+  private Long[] present;
+  private Long[] absent;
+
+  @BeforeExperiment
+  void setUp() {
+    // Even numbers are inserted, odd numbers are probed for false positives
+    Random random = new Random(0);
+    elements = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      elements.add(random.nextLong() << 1);
+    }
+    Filter built = impl.build(elements, fpp);
+    filter = built.mightContain;
+
+    present = new Long[PROBES];
+    absent = new Long[PROBES];
+    int falsePositives = 0;
+    for (int i = 0; i < PROBES; i++) {
+      present[i] = elements.get(i % size);
+      absent[i] = (random.nextLong() << 1) | 1;
+      if (filter.test(absent[i])) {
+        falsePositives++;
+      }
+    }
+    System.out.printf(
+        "%s, fpp %s, %s elements: %.2f bits per element, false positive rate %.5f%n",
+        impl, fpp, size, (double) built.bitSize / size, (double) falsePositives / PROBES);
+  }
+
+  @Benchmark
+  int build(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += impl.build(elements, fpp).mightContain.test(present[0]) ? 1 : 0;
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int mightContainPresent(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      if (filter.test(present[i & (PROBES - 1)])) {
+        dummy++;
+      }
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int mightContainAbsent(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      if (filter.test(absent[i & (PROBES - 1)])) {
+        dummy++;
+      }
+    }
+    return dummy;
+  }
+}
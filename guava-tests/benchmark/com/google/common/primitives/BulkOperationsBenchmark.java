@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.primitives;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the bulk operations of {@link Ints}, {@link Longs} and {@link Bytes} with the scalar
+ * loops they replaced, and {@link Ints#sum} with {@link IntStream}. The byte searches look for a
+ * value that is absent, so every repetition scans the whole array.
+ */
+public class BulkOperationsBenchmark {
+  @Param({"16", "256", "4096", "65536", "1048576", "16777216"})
+  int size;
+
+  private int[] ints;
+  private long[] longs;
+  private byte[] bytes;
+  private byte absentByte;
+
+  @BeforeExperiment
+  void setUp() {
+    Random random = new Random(0);
+    ints = new int[size];
+    longs = new long[size];
+    bytes = new byte[size];
+    for (int i = 0; i < size; i++) {
+      ints[i] = random.nextInt();
+      longs[i] = random.nextLong();
+      bytes[i] = (byte) random.nextInt(255);
+    }
+    absentByte = (byte) 255;
+  }
+
+  @Benchmark
+  int intMaxScalar(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      int max = ints[0];
+      for (int j = 1; j < ints.length; j++) {
+        if (ints[j] > max) {
+          max = ints[j];
+        }
+      }
+      dummy += max;
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int intMax(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += Ints.max(ints);
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long longMinScalar(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      long min = longs[0];
+      for (int j = 1; j < longs.length; j++) {
+        if (longs[j] < min) {
+          min = longs[j];
+        }
+      }
+      dummy += min;
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long longMin(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += Longs.min(longs);
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long intSumStream(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += IntStream.of(ints).asLongStream().sum();
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long intSum(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += Ints.sum(ints);
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int byteIndexOfScalar(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += Bytes.indexOf(bytes, absentByte);
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int byteIndexOf(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += Bytes.indexOf(bytes, absentByte, 0, size);
+    }
+    return dummy;
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.primitives;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the radix sorts of {@link Ints}, {@link Longs} and {@link Doubles} with {@link
+ * Arrays#sort} and {@link Arrays#parallelSort}. Each repetition sorts a fresh copy of the same
+ * random array, so every benchmark also pays for one copy.
+ */
+public class RadixSortBenchmark {
+  @Param({"1000", "100000", "10000000"})
+  int size;
+
+  private int[] ints;
+  private long[] longs;
+  private double[] doubles;
+
+  @BeforeExperiment
+  void setUp() {
+    Random random = new Random(0);
+    ints = new int[size];
+    longs = new long[size];
+    doubles = new double[size];
+    for (int i = 0; i < size; i++) {
+      ints[i] = random.nextInt();
+      longs[i] = random.nextLong();
+      doubles[i] = random.nextGaussian();
+    }
+  }
+
+  @Benchmark
+  int intArraysSort(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      int[] array = ints.clone();
+      Arrays.sort(array);
+      dummy += array[i % size];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int intParallelSort(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      int[] array = ints.clone();
+      Arrays.parallelSort(array);
+      dummy += array[i % size];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int intRadixSort(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      int[] array = ints.clone();
+      Ints.radixSort(array);
+      dummy += array[i % size];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int intParallelRadixSort(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      int[] array = ints.clone();
+      Ints.parallelRadixSort(array);
+      dummy += array[i % size];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int intSortedIndexes(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += Ints.sortedIndexes(ints)[i % size];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long longArraysSort(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      long[] array = longs.clone();
+      Arrays.sort(array);
+      dummy += array[i % size];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  long longRadixSort(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      long[] array = longs.clone();
+      Longs.radixSort(array);
+      dummy += array[i % size];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  double doubleArraysSort(int reps) {
+    double dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      double[] array = doubles.clone();
+      Arrays.sort(array);
+      dummy += array[i % size];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  double doubleParallelSort(int reps) {
+    double dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      double[] array = doubles.clone();
+      Arrays.parallelSort(array);
+      dummy += array[i % size];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  double doubleRadixSort(int reps) {
+    double dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      double[] array = doubles.clone();
+      Doubles.radixSort(array);
+      dummy += array[i % size];
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  double doubleParallelRadixSort(int reps) {
+    double dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      double[] array = doubles.clone();
+      Doubles.parallelRadixSort(array);
+      dummy += array[i % size];
+    }
+    return dummy;
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent.atomic;
+
+import com.google.caliper.AfterExperiment;
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-threaded benchmark of counters that every thread updates at once. Every thread performs
+ * {@code reps} updates, so the time per rep stays flat as threads are added if updates scale, and
+ * grows with the number of threads if they serialize on a single cache line, as {@link AtomicLong}
+ * does.
+ */
+public class CounterContentionBenchmark {
+  enum Counter {
+    ATOMIC_LONG {
+      @Override
+      Updater newUpdater() {
+        final AtomicLong counter = new AtomicLong();
+        return new Updater() {
+          @Override
+          void update(long x) {
+            counter.addAndGet(x);
+          }
+
+          @Override
+          long result() {
+            return counter.get();
+          }
+        };
+      }
+    },
+    JDK_LONG_ADDER {
+      @Override
+      Updater newUpdater() {
+        final java.util.concurrent.atomic.LongAdder counter =
+            new java.util.concurrent.atomic.LongAdder();
+        return new Updater() {
+          @Override
+          void update(long x) {
+            counter.add(x);
+          }
+
+          @Override
+          long result() {
+            return counter.sum();
+          }
+        };
+      }
+    },
+    LONG_ADDER {
+      @Override
+      Updater newUpdater() {
+        final LongAdder counter = new LongAdder();
+        return new Updater() {
+          @Override
+          void update(long x) {
+            counter.add(x);
+          }
+
+          @Override
+          long result() {
+            return counter.sum();
+          }
+        };
+      }
+    },
+    LONG_MAX_UPDATER {
+      @Override
+      Updater newUpdater() {
+        final LongMaxUpdater counter = new LongMaxUpdater();
+        return new Updater() {
+          @Override
+          void update(long x) {
+            counter.update(x);
+          }
+
+          @Override
+          long result() {
+            return counter.max();
+          }
+        };
+      }
+    },
+    STRIPED_HISTOGRAM {
+      @Override
+      Updater newUpdater() {
+        final StripedHistogram counter = new StripedHistogram(BUCKETS);
+        return new Updater() {
+          @Override
+          void update(long x) {
+            counter.increment((int) x & (BUCKETS - 1));
+          }
+
+          @Override
+          long result() {
+            return counter.totalCount();
+          }
+        };
+      }
+    };
+
+    abstract Updater newUpdater();
+  }
+
+  abstract static class Updater {
+    abstract void update(long x);
+
+    abstract long result();
+  }
+
+  static final int BUCKETS = 64;
+
+  @Param({"1", "2", "4", "8", "16", "32", "64", "128"})
+  int threads;
+
+  @Param({"ATOMIC_LONG", "JDK_LONG_ADDER", "LONG_ADDER", "LONG_MAX_UPDATER", "STRIPED_HISTOGRAM"})
+  Counter counter;
+
+  private Updater updater;
+  private ExecutorService threadPool;
+
+  @BeforeExperiment
+  void setUp() {
+    updater = counter.newUpdater();
+    threadPool =
+        Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setDaemon(true).build());
+  }
+
+  @AfterExperiment
+  void tearDown() {
+    threadPool.shutdownNow();
+  }
+
+  @Benchmark
+  long update(final int reps) throws ExecutionException, InterruptedException {
+    List<Future<?>> futures = Lists.newArrayListWithCapacity(threads);
+    for (int i = 0; i < threads; i++) {
+      futures.add(
+          threadPool.submit(
+              new Callable<Void>() {
+                @Override
+                public Void call() {
+                  for (int rep = 0; rep < reps; rep++) {
+                    updater.update(rep);
+                  }
+                  return null;
+                }
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    return updater.result();
+  }
+}
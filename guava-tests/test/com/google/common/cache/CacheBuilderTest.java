@@ -35,13 +35,16 @@ import com.google.common.cache.TestingRemovalListeners.QueuingRemovalListener;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.testing.NullPointerTester;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import junit.framework.TestCase;
@@ -239,6 +242,26 @@ public class CacheBuilderTest extends TestCase {
     }
   }
 
+  @GwtIncompatible // frequencyAwareEviction
+  public void testFrequencyAwareEviction_withoutMaximum() {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().frequencyAwareEviction();
+    try {
+      builder.build(identityLoader());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @GwtIncompatible // frequencyAwareEviction
+  public void testFrequencyAwareEviction_setTwice() {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().frequencyAwareEviction();
+    try {
+      builder.frequencyAwareEviction();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
   @GwtIncompatible // weakKeys
   public void testKeyStrengthSetTwice() {
     CacheBuilder<Object, Object> builder1 = CacheBuilder.newBuilder().weakKeys();
@@ -344,6 +367,50 @@ public class CacheBuilderTest extends TestCase {
     }
   }
 
+  @GwtIncompatible // expireAfter
+  public void testExpireAfter_conflicts() {
+    Expiry<Object, Object> expiry =
+        new Expiry<Object, Object>() {
+          @Override
+          public long expireAfterCreate(Object key, Object value, long currentTime) {
+            return 1;
+          }
+
+          @Override
+          public long expireAfterUpdate(
+              Object key, Object value, long currentTime, long currentDuration) {
+            return 1;
+          }
+
+          @Override
+          public long expireAfterRead(
+              Object key, Object value, long currentTime, long currentDuration) {
+            return 1;
+          }
+        };
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().expireAfter(expiry);
+    try {
+      builder.expireAfter(expiry);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      builder.expireAfterWrite(3600, SECONDS);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      builder.expireAfterAccess(3600, SECONDS);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      CacheBuilder.newBuilder().expireAfterAccess(3600, SECONDS).expireAfter(expiry);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
   public void testTimeToIdle_negative() {
     CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
     try {
@@ -454,6 +521,33 @@ public class CacheBuilderTest extends TestCase {
     }
   }
 
+  @GwtIncompatible // executor
+  public void testExecutor_setTwice() {
+    Executor executor = MoreExecutors.directExecutor();
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().executor(executor);
+    try {
+      // even to the same instance is not allowed
+      builder.executor(executor);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @GwtIncompatible // scheduler
+  public void testScheduler_setTwice() {
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().scheduler(scheduler);
+      try {
+        builder.scheduler(scheduler);
+        fail();
+      } catch (IllegalStateException expected) {
+      }
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
   public void testRemovalListener_setTwice() {
     RemovalListener<Object, Object> testListener = nullRemovalListener();
     CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().removalListener(testListener);
@@ -719,7 +813,8 @@ public class CacheBuilderTest extends TestCase {
 
   @GwtIncompatible // NullPointerTester
   public void testNullParameters() throws Exception {
-    NullPointerTester tester = new NullPointerTester();
+    NullPointerTester tester =
+        new NullPointerTester().setDefault(CacheLoader.class, identityLoader());
     CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
     tester.testAllPublicInstanceMethods(builder);
   }
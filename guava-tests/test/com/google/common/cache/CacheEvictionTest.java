@@ -316,6 +316,77 @@ public class CacheEvictionTest extends TestCase {
     assertThat(keySet).containsExactly(2, 10, 11, 12, 6, 7, 8, 13, 14, 15);
   }
 
+  public void testEviction_frequencyAware_maxSize() {
+    CountingRemovalListener<Integer, Integer> removalListener = countingRemovalListener();
+    IdentityLoader<Integer> loader = identityLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .frequencyAwareEviction()
+            .removalListener(removalListener)
+            .build(loader);
+    for (int i = 0; i < 2 * MAX_SIZE; i++) {
+      cache.getUnchecked(i);
+      assertTrue(cache.size() <= MAX_SIZE);
+    }
+
+    assertEquals(MAX_SIZE, CacheTesting.accessQueueSize(cache));
+    assertEquals(MAX_SIZE, cache.size());
+    CacheTesting.processPendingNotifications(cache);
+    assertEquals(MAX_SIZE, removalListener.getCount());
+  }
+
+  public void testEviction_frequencyAware_maxWeight() {
+    IdentityLoader<Integer> loader = identityLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumWeight(2 * MAX_SIZE)
+            .weigher(intValueWeigher())
+            .frequencyAwareEviction()
+            .build(loader);
+    for (int i = 0; i < 10 * MAX_SIZE; i++) {
+      cache.getUnchecked(i % 7);
+      cache.getUnchecked(i);
+      long totalWeight = 0;
+      for (int value : cache.asMap().values()) {
+        totalWeight += value;
+      }
+      assertTrue(totalWeight <= 2 * MAX_SIZE);
+    }
+  }
+
+  public void testEviction_frequencyAware_scanResistant() {
+    // test that a scan does not flush popular entries from a single segment
+    IdentityLoader<Integer> loader = identityLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(MAX_SIZE)
+            .frequencyAwareEviction()
+            .build(loader);
+    for (int i = 0; i < 10; i++) {
+      CacheTesting.warmUp(cache, 0, 10);
+    }
+    CacheTesting.drainRecencyQueues(cache);
+
+    CacheTesting.warmUp(cache, 1000, 1000 + 20 * MAX_SIZE);
+    assertEquals(MAX_SIZE, cache.size());
+    for (int i = 0; i < 10; i++) {
+      assertTrue(cache.asMap().containsKey(i));
+    }
+
+    // the same scan flushes an LRU cache
+    cache = CacheBuilder.newBuilder().concurrencyLevel(1).maximumSize(MAX_SIZE).build(loader);
+    for (int i = 0; i < 10; i++) {
+      CacheTesting.warmUp(cache, 0, 10);
+    }
+    CacheTesting.warmUp(cache, 1000, 1000 + 20 * MAX_SIZE);
+    for (int i = 0; i < 10; i++) {
+      assertFalse(cache.asMap().containsKey(i));
+    }
+  }
+
   public void testEviction_weightedLru() {
     // test weighted lru within a single segment
     IdentityLoader<Integer> loader = identityLoader();
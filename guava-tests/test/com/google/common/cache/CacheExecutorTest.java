@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.cache.TestingCacheLoaders.incrementingLoader;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.cache.TestingCacheLoaders.IncrementingLoader;
+import com.google.common.cache.TestingRemovalListeners.QueuingRemovalListener;
+import com.google.common.testing.FakeTicker;
+import com.google.common.testing.GcFinalization;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import junit.framework.TestCase;
+
+/** Tests for caches built with {@link CacheBuilder#executor} or {@link CacheBuilder#scheduler}. */
+public class CacheExecutorTest extends TestCase {
+
+  public void testRemovalNotification_deliveredByExecutor() {
+    QueuingExecutor executor = new QueuingExecutor();
+    QueuingRemovalListener<Integer, Integer> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(1)
+            .removalListener(listener)
+            .executor(executor)
+            .build();
+
+    cache.put(1, 1);
+    cache.put(2, 2);
+    cache.put(3, 3);
+    assertTrue(listener.isEmpty());
+    // the first task delivers both notifications
+    assertEquals(1, executor.tasks.size());
+
+    executor.runAll();
+    assertEquals(1, (int) listener.poll().getKey());
+    assertEquals(2, (int) listener.poll().getKey());
+    assertTrue(listener.isEmpty());
+  }
+
+  public void testRefresh_loadedByExecutor() {
+    QueuingExecutor executor = new QueuingExecutor();
+    FakeTicker ticker = new FakeTicker();
+    IncrementingLoader loader = incrementingLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .refreshAfterWrite(1, MILLISECONDS)
+            .ticker(ticker)
+            .executor(executor)
+            .build(loader);
+
+    assertEquals(0, (int) cache.getUnchecked(0));
+    assertEquals(1, loader.getLoadCount());
+    ticker.advance(2, MILLISECONDS);
+
+    // readers keep seeing the old value until the executor has reloaded it
+    assertEquals(0, (int) cache.getUnchecked(0));
+    assertEquals(0, (int) cache.getUnchecked(0));
+    assertEquals(0, loader.getReloadCount());
+    assertEquals(1, executor.tasks.size());
+
+    executor.runAll();
+    assertEquals(1, loader.getReloadCount());
+    assertEquals(1, (int) cache.getUnchecked(0));
+    assertEquals(1, loader.getLoadCount());
+  }
+
+  public void testExpiration_cleanedUpByExecutor() {
+    QueuingExecutor executor = new QueuingExecutor();
+    FakeTicker ticker = new FakeTicker();
+    QueuingRemovalListener<Integer, Integer> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .expireAfterWrite(1, MILLISECONDS)
+            .ticker(ticker)
+            .removalListener(listener)
+            .executor(executor)
+            .build();
+
+    cache.put(1, 1);
+    ticker.advance(2, MILLISECONDS);
+    for (int i = 0; i < 1000; i++) {
+      assertNull(cache.getIfPresent(1));
+    }
+    assertEquals(1, cache.size());
+    // reads schedule one cleanup at a time
+    assertEquals(1, executor.tasks.size());
+
+    executor.runAll();
+    assertEquals(0, cache.size());
+    RemovalNotification<Integer, Integer> notification = listener.poll();
+    assertEquals(1, (int) notification.getKey());
+    assertEquals(RemovalCause.EXPIRED, notification.getCause());
+  }
+
+  public void testExecutor_rejected() {
+    Executor executor =
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            throw new RejectedExecutionException();
+          }
+        };
+    QueuingRemovalListener<Integer, Integer> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(0)
+            .removalListener(listener)
+            .executor(executor)
+            .build();
+
+    cache.put(1, 1);
+    assertEquals(RemovalCause.SIZE, listener.poll().getCause());
+  }
+
+  public void testScheduler_cleansUpIdleCache() throws InterruptedException {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    try {
+      FakeTicker ticker = new FakeTicker();
+      final CountDownLatch removed = new CountDownLatch(1);
+      Cache<Integer, Integer> cache =
+          CacheBuilder.newBuilder()
+              .expireAfterWrite(1, MILLISECONDS)
+              .ticker(ticker)
+              .removalListener(
+                  new RemovalListener<Object, Object>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<Object, Object> notification) {
+                      removed.countDown();
+                    }
+                  })
+              .scheduler(scheduler)
+              .build();
+
+      cache.put(1, 1);
+      ticker.advance(2, MILLISECONDS);
+      assertTrue(removed.await(10, SECONDS));
+      assertEquals(0, cache.size());
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+  public void testScheduler_cancelledWhenCacheCollected() throws InterruptedException {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    scheduler.setRemoveOnCancelPolicy(true);
+    try {
+      WeakReference<Cache<Object, Object>> cacheReference =
+          new WeakReference<>(CacheBuilder.newBuilder().scheduler(scheduler).build());
+      assertEquals(1, scheduler.getQueue().size());
+
+      GcFinalization.awaitClear(cacheReference);
+      for (int i = 0; i < 100 && !scheduler.getQueue().isEmpty(); i++) {
+        Thread.sleep(50);
+      }
+      assertTrue(scheduler.getQueue().isEmpty());
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /** Holds the tasks it is given until they are run by {@link #runAll}. */
+  static final class QueuingExecutor implements Executor {
+    final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Override
+    public void execute(Runnable command) {
+      tasks.add(command);
+    }
+
+    void runAll() {
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+        task.run();
+      }
+    }
+  }
+}
@@ -23,7 +23,9 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import com.google.common.cache.TestingCacheLoaders.IdentityLoader;
 import com.google.common.cache.TestingRemovalListeners.CountingRemovalListener;
 import com.google.common.cache.TestingRemovalListeners.QueuingRemovalListener;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Sets;
 import com.google.common.testing.FakeTicker;
 import com.google.common.util.concurrent.Callables;
 import java.util.List;
@@ -72,6 +74,96 @@ public class CacheExpirationTest extends TestCase {
     checkExpiration(cache, loader, ticker, removalListener);
   }
 
+  public void testExpiration_expireAfter() {
+    FakeTicker ticker = new FakeTicker();
+    CountingRemovalListener<String, Integer> removalListener = countingRemovalListener();
+    WatchedCreatorLoader loader = new WatchedCreatorLoader();
+    LoadingCache<String, Integer> cache =
+        CacheBuilder.newBuilder()
+            .expireAfter(new ConstantExpiry(MILLISECONDS.toNanos(EXPIRING_TIME)))
+            .removalListener(removalListener)
+            .ticker(ticker)
+            .build(loader);
+    checkExpiration(cache, loader, ticker, removalListener);
+  }
+
+  public void testExpireAfter_perEntry() {
+    FakeTicker ticker = new FakeTicker();
+    QueuingRemovalListener<Integer, Integer> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .expireAfter(
+                new ConstantExpiry(0) {
+                  @Override
+                  public long expireAfterCreate(Object key, Object value, long currentTime) {
+                    // each value is its own lifetime, in seconds
+                    return TimeUnit.SECONDS.toNanos((Integer) value);
+                  }
+                })
+            .removalListener(listener)
+            .ticker(ticker)
+            .build();
+    for (int i : asList(5, 1, 4, 2, 3)) {
+      cache.put(i, i);
+    }
+
+    ticker.advance(2500, MILLISECONDS);
+    assertNull(cache.getIfPresent(1));
+    assertNull(cache.getIfPresent(2));
+    assertEquals(3, (int) cache.getIfPresent(3));
+    cache.cleanUp();
+    assertEquals(3, cache.size());
+    Set<Integer> removed = Sets.newHashSet();
+    for (RemovalNotification<Integer, Integer> notification : listener) {
+      assertEquals(RemovalCause.EXPIRED, notification.getCause());
+      removed.add(notification.getKey());
+    }
+    assertEquals(ImmutableSet.of(1, 2), removed);
+
+    ticker.advance(1, TimeUnit.MINUTES);
+    cache.cleanUp();
+    assertEquals(0, cache.size());
+    assertEquals(5, listener.size());
+  }
+
+  public void testExpireAfter_readAndUpdate() {
+    FakeTicker ticker = new FakeTicker();
+    Cache<String, String> cache =
+        CacheBuilder.newBuilder()
+            .expireAfter(
+                new ConstantExpiry(TimeUnit.SECONDS.toNanos(1)) {
+                  @Override
+                  public long expireAfterUpdate(
+                      Object key, Object value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                  }
+
+                  @Override
+                  public long expireAfterRead(
+                      Object key, Object value, long currentTime, long currentDuration) {
+                    return TimeUnit.SECONDS.toNanos(10);
+                  }
+                })
+            .ticker(ticker)
+            .build();
+
+    // reading extends the lifetime
+    cache.put("read", "a");
+    ticker.advance(500, MILLISECONDS);
+    assertEquals("a", cache.getIfPresent("read"));
+    ticker.advance(9, TimeUnit.SECONDS);
+    cache.cleanUp();
+    assertEquals("a", cache.getIfPresent("read"));
+
+    // updating keeps the lifetime
+    cache.put("update", "b");
+    ticker.advance(500, MILLISECONDS);
+    cache.put("update", "c");
+    ticker.advance(500, MILLISECONDS);
+    assertNull(cache.getIfPresent("update"));
+  }
+
   private void checkExpiration(
       LoadingCache<String, Integer> cache,
       WatchedCreatorLoader loader,
@@ -475,6 +567,30 @@ public class CacheExpirationTest extends TestCase {
     assertEquals(10, removalListener.getCount());
   }
 
+  private static class ConstantExpiry implements Expiry<Object, Object> {
+    final long duration;
+
+    ConstantExpiry(long duration) {
+      this.duration = duration;
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+      return duration;
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        Object key, Object value, long currentTime, long currentDuration) {
+      return duration;
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+
   private static void getAll(LoadingCache<Integer, Integer> cache, List<Integer> keys) {
     for (int i : keys) {
       cache.getUnchecked(i);
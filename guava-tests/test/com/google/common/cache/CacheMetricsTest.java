@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.cache.TestingCacheLoaders.identityLoader;
+import static com.google.common.cache.TestingCacheLoaders.incrementingLoader;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.cache.CacheExecutorTest.QueuingExecutor;
+import com.google.common.cache.LocalCache.Segment;
+import com.google.common.primitives.ImmutableLongArray;
+import com.google.common.testing.FakeTicker;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/** Tests for {@link CacheMetricsRecorder} and {@link CacheMetrics}. */
+public class CacheMetricsTest extends TestCase {
+
+  public void testBuckets() {
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      long nanos = random.nextLong() >>> (1 + random.nextInt(63));
+      int bucket = CacheMetrics.bucket(nanos);
+      assertTrue(bucket < CacheMetrics.BUCKET_COUNT);
+      long upperBound = CacheMetrics.bucketUpperBound(bucket);
+      assertTrue(upperBound >= nanos);
+      assertTrue(upperBound - nanos <= nanos / 8);
+      if (bucket > 0) {
+        assertTrue(CacheMetrics.bucketUpperBound(bucket - 1) < nanos);
+      }
+    }
+    assertEquals(0, CacheMetrics.bucket(-1));
+    assertEquals(Long.MAX_VALUE, CacheMetrics.bucketUpperBound(CacheMetrics.BUCKET_COUNT - 1));
+  }
+
+  public void testLoadTimes() {
+    CacheMetricsRecorder recorder = new CacheMetricsRecorder();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder().recordMetrics(recorder).build(identityLoader());
+    assertEquals(0, recorder.snapshot().loadTimePercentile(99));
+
+    for (int i = 0; i < 10; i++) {
+      cache.getUnchecked(i);
+      cache.getUnchecked(i);
+    }
+    CacheMetrics metrics = recorder.snapshot();
+    assertEquals(10, metrics.loadCount());
+    assertTrue(metrics.loadTimePercentile(50) <= metrics.loadTimePercentile(99));
+    assertTrue(metrics.loadTimePercentile(99) <= metrics.loadTimePercentile(100));
+    try {
+      metrics.loadTimePercentile(101);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testRemovalCounts() {
+    CacheMetricsRecorder recorder = new CacheMetricsRecorder();
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder().maximumSize(1).recordMetrics(recorder).build();
+    cache.put(1, 1);
+    cache.put(1, 2);
+    cache.put(2, 2);
+    cache.put(3, 3);
+    cache.invalidate(3);
+
+    CacheMetrics metrics = recorder.snapshot();
+    assertEquals(1, metrics.removalCount(RemovalCause.REPLACED));
+    assertEquals(2, metrics.removalCount(RemovalCause.SIZE));
+    assertEquals(1, metrics.removalCount(RemovalCause.EXPLICIT));
+    assertEquals(0, metrics.removalCount(RemovalCause.EXPIRED));
+  }
+
+  public void testSegments() {
+    CacheMetricsRecorder recorder = new CacheMetricsRecorder();
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder().concurrencyLevel(4).recordMetrics(recorder).build();
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, i);
+    }
+
+    CacheMetrics metrics = recorder.snapshot();
+    assertEquals(4, metrics.segmentSizes().length());
+    assertEquals(100, sum(metrics.segmentSizes()));
+    assertEquals(100, sum(metrics.segmentWeights()));
+    assertEquals(4, metrics.segmentLockWaitNanos().length());
+  }
+
+  public void testSharedRecorder() {
+    CacheMetricsRecorder recorder = new CacheMetricsRecorder();
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().concurrencyLevel(2).recordMetrics(recorder);
+    Cache<Integer, Integer> first = builder.build();
+    Cache<Integer, Integer> second = builder.build();
+    first.put(1, 1);
+    second.put(1, 1);
+    second.put(2, 2);
+
+    CacheMetrics metrics = recorder.snapshot();
+    assertEquals(4, metrics.segmentSizes().length());
+    assertEquals(3, sum(metrics.segmentSizes()));
+  }
+
+  public void testPendingRefreshes() {
+    QueuingExecutor executor = new QueuingExecutor();
+    FakeTicker ticker = new FakeTicker();
+    CacheMetricsRecorder recorder = new CacheMetricsRecorder();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .refreshAfterWrite(1, MILLISECONDS)
+            .ticker(ticker)
+            .executor(executor)
+            .recordMetrics(recorder)
+            .build(incrementingLoader());
+    cache.getUnchecked(1);
+    cache.getUnchecked(2);
+    ticker.advance(2, MILLISECONDS);
+    cache.getUnchecked(1);
+    cache.getUnchecked(2);
+    assertEquals(2, recorder.snapshot().pendingRefreshCount());
+
+    executor.runAll();
+    CacheMetrics metrics = recorder.snapshot();
+    assertEquals(0, metrics.pendingRefreshCount());
+    assertEquals(4, metrics.loadCount());
+  }
+
+  public void testLockWait() throws InterruptedException {
+    CacheMetricsRecorder recorder = new CacheMetricsRecorder();
+    final Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder().concurrencyLevel(1).recordMetrics(recorder).build();
+    Segment<?, ?> segment = ((LocalCache.LocalManualCache<?, ?>) cache).localCache.segments[0];
+
+    Thread writer =
+        new Thread() {
+          @Override
+          public void run() {
+            cache.put(1, 1);
+          }
+        };
+    segment.lock();
+    try {
+      writer.start();
+      while (!segment.hasQueuedThreads()) {
+        Thread.yield();
+      }
+    } finally {
+      segment.unlock();
+    }
+    writer.join();
+
+    CacheMetrics metrics = recorder.snapshot();
+    assertEquals(1, metrics.contendedLockCount());
+    assertTrue(metrics.lockWaitNanos() > 0);
+    assertEquals(metrics.lockWaitNanos(), metrics.segmentLockWaitNanos().get(0));
+  }
+
+  public void testSnapshot_equalsWhileIdle() {
+    CacheMetricsRecorder recorder = new CacheMetricsRecorder();
+    Cache<Integer, Integer> cache = CacheBuilder.newBuilder().recordMetrics(recorder).build();
+    cache.put(1, 1);
+    CacheMetrics metrics = recorder.snapshot();
+    assertEquals(metrics, recorder.snapshot());
+    assertEquals(metrics.hashCode(), recorder.snapshot().hashCode());
+    cache.invalidate(1);
+    assertFalse(metrics.equals(recorder.snapshot()));
+  }
+
+  public void testRecordMetrics_setTwice() {
+    CacheMetricsRecorder recorder = new CacheMetricsRecorder();
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordMetrics(recorder);
+    try {
+      builder.recordMetrics(recorder);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  private static long sum(ImmutableLongArray array) {
+    long sum = 0;
+    for (int i = 0; i < array.length(); i++) {
+      sum += array.get(i);
+    }
+    return sum;
+  }
+}
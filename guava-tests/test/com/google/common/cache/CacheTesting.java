@@ -227,7 +227,8 @@ class CacheTesting {
         ReferenceEntry<?, ?> prev = null;
         for (ReferenceEntry<?, ?> current : segment.writeQueue) {
           assertTrue(entries.add(current));
-          if (prev != null) {
+          // a timer wheel links entries in order only within each of its buckets
+          if (prev != null && !cchm.expiresVariably()) {
             assertSame(prev, current.getPreviousInWriteQueue());
             assertSame(prev.getNextInWriteQueue(), current);
             assertThat(prev.getWriteTime()).isAtMost(current.getWriteTime());
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/** Tests for {@link LocalCache.LocalAsyncLoadingCache}. */
+public class LocalAsyncLoadingCacheTest extends TestCase {
+
+  private ScheduledExecutorService executor;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    executor = Executors.newScheduledThreadPool(2);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdownNow();
+    super.tearDown();
+  }
+
+  public void testGet_sharesLoad() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger loads = new AtomicInteger();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .recordStats()
+            .buildAsync(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer key) throws InterruptedException {
+                    loads.incrementAndGet();
+                    release.await();
+                    return key;
+                  }
+                },
+                executor);
+
+    ListenableFuture<Integer> first = cache.get(1);
+    ListenableFuture<Integer> second = cache.get(1);
+    assertSame(first, second);
+    assertFalse(first.isDone());
+    assertSame(first, cache.getIfPresent(1));
+    assertEquals(1, cache.size());
+
+    release.countDown();
+    assertEquals(1, (int) first.get(10, SECONDS));
+    assertEquals(1, loads.get());
+
+    CacheStats stats = cache.stats();
+    assertEquals(2, stats.hitCount());
+    assertEquals(1, stats.missCount());
+    assertEquals(1, stats.loadSuccessCount());
+  }
+
+  public void testGet_failureIsNotCached() throws Exception {
+    final AtomicInteger loads = new AtomicInteger();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .buildAsync(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer key) {
+                    if (loads.incrementAndGet() == 1) {
+                      throw new IllegalStateException();
+                    }
+                    return key;
+                  }
+                },
+                executor);
+
+    ListenableFuture<Integer> failed = cache.get(1);
+    try {
+      failed.get(10, SECONDS);
+      fail();
+    } catch (ExecutionException expected) {
+      assertTrue(expected.getCause() instanceof IllegalStateException);
+    }
+    assertNull(cache.getIfPresent(1));
+
+    assertEquals(1, (int) cache.get(1).get(10, SECONDS));
+    assertEquals(2, loads.get());
+  }
+
+  public void testGet_nullValue() throws Exception {
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .buildAsync(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer key) {
+                    return null;
+                  }
+                },
+                executor);
+
+    try {
+      cache.get(1).get(10, SECONDS);
+      fail();
+    } catch (ExecutionException expected) {
+      assertTrue(expected.getCause() instanceof InvalidCacheLoadException);
+    }
+    assertNull(cache.getIfPresent(1));
+  }
+
+  public void testGetAll_coalescesMissingKeys() throws Exception {
+    final List<Set<Integer>> batches = Lists.newCopyOnWriteArrayList();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .bulkLoadWindow(100, MILLISECONDS)
+            .buildAsync(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer key) {
+                    throw new AssertionError();
+                  }
+
+                  @Override
+                  public Map<Integer, Integer> loadAll(Iterable<? extends Integer> keys) {
+                    batches.add(ImmutableSet.copyOf(keys));
+                    Map<Integer, Integer> result = Maps.newHashMap();
+                    for (Integer key : keys) {
+                      result.put(key, -key);
+                    }
+                    return result;
+                  }
+                },
+                executor);
+
+    ListenableFuture<ImmutableMap<Integer, Integer>> first = cache.getAll(ImmutableList.of(1, 2));
+    ListenableFuture<ImmutableMap<Integer, Integer>> second =
+        cache.getAll(ImmutableList.of(3, 2, 4));
+
+    assertEquals(ImmutableMap.of(1, -1, 2, -2), first.get(10, SECONDS));
+    ImmutableMap<Integer, Integer> secondResult = second.get(10, SECONDS);
+    assertEquals(ImmutableList.of(3, 2, 4), secondResult.keySet().asList());
+    assertEquals(ImmutableMap.of(3, -3, 2, -2, 4, -4), secondResult);
+    assertEquals(ImmutableList.of(ImmutableSet.of(1, 2, 3, 4)), batches);
+  }
+
+  public void testGetAll_overlappingAfterInvalidate() throws Exception {
+    final List<Set<Integer>> batches = Lists.newCopyOnWriteArrayList();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .bulkLoadWindow(100, MILLISECONDS)
+            .buildAsync(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer key) {
+                    throw new AssertionError();
+                  }
+
+                  @Override
+                  public Map<Integer, Integer> loadAll(Iterable<? extends Integer> keys) {
+                    batches.add(ImmutableSet.copyOf(keys));
+                    Map<Integer, Integer> result = Maps.newHashMap();
+                    for (Integer key : keys) {
+                      result.put(key, -key);
+                    }
+                    return result;
+                  }
+                },
+                executor);
+
+    ListenableFuture<ImmutableMap<Integer, Integer>> first = cache.getAll(ImmutableList.of(1, 2));
+    // 1 is still waiting for the flush, so the second call registers a new future for it
+    cache.invalidate(1);
+    ListenableFuture<ImmutableMap<Integer, Integer>> second = cache.getAll(ImmutableList.of(1));
+
+    assertEquals(ImmutableMap.of(1, -1, 2, -2), first.get(10, SECONDS));
+    assertEquals(ImmutableMap.of(1, -1), second.get(10, SECONDS));
+    assertEquals(ImmutableList.of(ImmutableSet.of(1, 2)), batches);
+    assertEquals(-1, (int) cache.getIfPresent(1).get());
+  }
+
+  public void testGetAll_fallsBackToLoad() throws Exception {
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .buildAsync(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer key) {
+                    return -key;
+                  }
+                },
+                executor);
+
+    assertEquals(
+        ImmutableMap.of(1, -1, 2, -2), cache.getAll(ImmutableList.of(1, 2)).get(10, SECONDS));
+  }
+
+  public void testPut_weighsCompletedValue() throws Exception {
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumWeight(10)
+            .weigher(
+                new Weigher<Integer, Integer>() {
+                  @Override
+                  public int weigh(Integer key, Integer value) {
+                    return value;
+                  }
+                })
+            .buildAsync(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer key) {
+                    return key;
+                  }
+                },
+                executor);
+    LocalCache<Integer, ListenableFuture<Integer>> map =
+        ((LocalCache.LocalAsyncLoadingCache<Integer, Integer>) cache).localCache;
+
+    SettableFuture<Integer> future = SettableFuture.create();
+    cache.put(1, future);
+    assertEquals(0, map.segments[0].totalWeight);
+    future.set(7);
+    assertEquals(7, map.segments[0].totalWeight);
+    assertSame(future, cache.getIfPresent(1));
+  }
+
+  public void testBuildAsync_weakValues() {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().weakValues();
+    try {
+      builder.buildAsync(TestingCacheLoaders.identityLoader(), executor);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  public void testBuildAsync_refreshAfterWrite() {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().refreshAfterWrite(1, SECONDS);
+    try {
+      builder.buildAsync(TestingCacheLoaders.identityLoader(), executor);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+}
@@ -40,6 +40,7 @@ import com.google.common.cache.LocalCache.LocalLoadingCache;
 import com.google.common.cache.LocalCache.LocalManualCache;
 import com.google.common.cache.LocalCache.Segment;
 import com.google.common.cache.LocalCache.Strength;
+import com.google.common.cache.LocalCache.TimerWheel;
 import com.google.common.cache.LocalCache.ValueReference;
 import com.google.common.cache.TestingCacheLoaders.CountingLoader;
 import com.google.common.cache.TestingRemovalListeners.CountingRemovalListener;
@@ -2121,6 +2122,39 @@ public class LocalCacheTest extends TestCase {
     }
   }
 
+  public void testTimerWheel() {
+    Random random = new Random(0);
+    TimerWheel<Object, Object> timerWheel = new TimerWheel<>(0);
+    int size = 1000;
+    for (int i = 0; i < size; i++) {
+      DummyEntry<Object, Object> entry = DummyEntry.create(new Object(), i, null);
+      entry.setExpirationTime((long) (random.nextDouble() * TimeUnit.DAYS.toNanos(30)));
+      timerWheel.add(entry);
+      assertTrue(timerWheel.contains(entry));
+    }
+    assertEquals(size, timerWheel.size());
+    assertNull(timerWheel.peek());
+
+    // entries are found to have expired no earlier than their expiration time, and no later than
+    // the first advance past it
+    long now = 0;
+    while (size > 0) {
+      now += (long) (random.nextDouble() * TimeUnit.HOURS.toNanos(12));
+      timerWheel.advance(now);
+      ReferenceEntry<Object, Object> e;
+      while ((e = timerWheel.poll()) != null) {
+        assertThat(e.getExpirationTime()).isAtMost(now);
+        assertFalse(timerWheel.contains(e));
+        size--;
+      }
+      for (ReferenceEntry<Object, Object> remaining : timerWheel) {
+        assertThat(remaining.getExpirationTime()).isGreaterThan(now);
+      }
+      assertEquals(size, timerWheel.size());
+    }
+    assertTrue(timerWheel.isEmpty());
+  }
+
   public void testRecordRead() {
     for (CacheBuilder<Object, Object> builder : allEvictingMakers()) {
       LocalCache<Object, Object> map = makeLocalCache(builder.concurrencyLevel(1));
@@ -2152,9 +2186,11 @@ public class LocalCacheTest extends TestCase {
           segment.recordRead(entry, map.ticker.read());
           reads.add(entry);
           i.remove();
+          assertTrue(segment.recencyQueue.size() <= ReadBuffer.STRIPE_CAPACITY);
         }
       }
-      checkAndDrainRecencyQueue(map, segment, reads);
+      int undrainedIndex = reads.size() - segment.recencyQueue.size();
+      checkAndDrainRecencyQueue(map, segment, reads.subList(undrainedIndex, reads.size()));
       readOrder.addAll(reads);
 
       checkEvictionQueues(map, segment, readOrder, writeOrder);
@@ -2833,6 +2869,18 @@ public class LocalCacheTest extends TestCase {
       this.previousAccess = previous;
     }
 
+    private int accessRegion;
+
+    @Override
+    public int getAccessRegion() {
+      return accessRegion;
+    }
+
+    @Override
+    public void setAccessRegion(int region) {
+      this.accessRegion = region;
+    }
+
     private long writeTime = Long.MAX_VALUE;
 
     @Override
@@ -2868,6 +2916,18 @@ public class LocalCacheTest extends TestCase {
     public void setPreviousInWriteQueue(ReferenceEntry<K, V> previous) {
       this.previousWrite = previous;
     }
+
+    private long expirationTime = Long.MAX_VALUE;
+
+    @Override
+    public long getExpirationTime() {
+      return expirationTime;
+    }
+
+    @Override
+    public void setExpirationTime(long time) {
+      this.expirationTime = time;
+    }
   }
 
   static class DummyValueReference<K, V> implements ValueReference<K, V> {
@@ -0,0 +1,396 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.cache.TestingCacheLoaders.identityLoader;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.TestingRemovalListeners.QueuingRemovalListener;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.testing.FakeTicker;
+import java.io.Closeable;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/** Tests for {@link OffHeapTieredCache} and {@link OffHeapStore}. */
+public class OffHeapTieredCacheTest extends TestCase {
+
+  static final ByteCodec<String> STRING_CODEC =
+      new ByteCodec<String>() {
+        @Override
+        public int encodedLength(String value) {
+          return value.getBytes(UTF_8).length;
+        }
+
+        @Override
+        public void encode(String value, ByteBuffer target) {
+          target.put(value.getBytes(UTF_8));
+        }
+
+        @Override
+        public String decode(ByteBuffer source) {
+          byte[] bytes = new byte[source.remaining()];
+          source.get(bytes);
+          return new String(bytes, UTF_8);
+        }
+      };
+
+  static final ByteCodec<Integer> INTEGER_CODEC =
+      new ByteCodec<Integer>() {
+        @Override
+        public int encodedLength(Integer value) {
+          return Integer.BYTES;
+        }
+
+        @Override
+        public void encode(Integer value, ByteBuffer target) {
+          target.putInt(value);
+        }
+
+        @Override
+        public Integer decode(ByteBuffer source) {
+          return source.getInt();
+        }
+      };
+
+  public void testChunkSizes() {
+    int[] sizes = OffHeapStore.chunkSizes(1024);
+    assertEquals(64, sizes[0]);
+    assertEquals(80, sizes[1]);
+    assertEquals(1024, sizes[sizes.length - 1]);
+    for (int i = 1; i < sizes.length; i++) {
+      assertTrue(sizes[i] > sizes[i - 1]);
+      assertEquals(0, sizes[i] % 8);
+    }
+  }
+
+  public void testEvictionDemotes() throws Exception {
+    final AtomicInteger loads = new AtomicInteger();
+    QueuingRemovalListener<Integer, Integer> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(2)
+            .removalListener(listener)
+            .offHeapTier(1 << 16, INTEGER_CODEC)
+            .build(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer key) {
+                    loads.incrementAndGet();
+                    return key;
+                  }
+                });
+
+    for (int i = 0; i < 10; i++) {
+      cache.getUnchecked(i);
+    }
+    assertEquals(10, loads.get());
+    assertEquals(10, cache.size());
+    assertEquals(2, cache.asMap().size());
+    assertTrue(listener.isEmpty());
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i, (int) cache.getUnchecked(i));
+    }
+    assertEquals(10, loads.get());
+    assertEquals(10, cache.size());
+  }
+
+  public void testGetIfPresent_promotes() {
+    Cache<String, String> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(1)
+            .offHeapTier(1 << 16, STRING_CODEC)
+            .build();
+    cache.put("a", "alpha");
+    cache.put("b", "beta");
+    assertFalse(cache.asMap().containsKey("a"));
+    assertEquals("alpha", cache.getIfPresent("a"));
+    assertTrue(cache.asMap().containsKey("a"));
+    assertEquals("beta", cache.getIfPresent("b"));
+    assertEquals(
+        ImmutableMap.of("a", "alpha", "b", "beta"),
+        cache.getAllPresent(ImmutableList.of("a", "b", "c")));
+    assertEquals(2, cache.size());
+  }
+
+  public void testPut_replacesOffHeapValue() {
+    Cache<String, String> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(1)
+            .offHeapTier(1 << 16, STRING_CODEC)
+            .build();
+    cache.put("a", "alpha");
+    cache.put("b", "beta");
+    cache.put("a", "aleph");
+    cache.put("c", "gamma");
+    assertEquals("aleph", cache.getIfPresent("a"));
+    cache.invalidate("b");
+    assertNull(cache.getIfPresent("b"));
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+  }
+
+  public void testStoreFull_evictsLeastRecentlyStored() {
+    QueuingRemovalListener<String, String> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    Cache<String, String> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(1)
+            .removalListener(listener)
+            // a single page of two 64-byte chunks
+            .offHeapTier(128, STRING_CODEC)
+            .build();
+    cache.put("a", "alpha");
+    cache.put("b", "beta");
+    cache.put("c", "gamma");
+    assertTrue(listener.isEmpty());
+    cache.put("d", "delta");
+
+    RemovalNotification<String, String> notification = listener.remove();
+    assertEquals("a", notification.getKey());
+    assertEquals("alpha", notification.getValue());
+    assertEquals(RemovalCause.SIZE, notification.getCause());
+    assertTrue(listener.isEmpty());
+    assertNull(cache.getIfPresent("a"));
+    assertEquals("beta", cache.getIfPresent("b"));
+  }
+
+  public void testValueLargerThanPage_isEvicted() {
+    QueuingRemovalListener<String, String> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    Cache<String, String> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(1)
+            .removalListener(listener)
+            .offHeapTier(64, STRING_CODEC)
+            .build();
+    String large = new String(new char[65]).replace('\0', 'x');
+    cache.put("a", large);
+    cache.put("b", "beta");
+    assertEquals(RemovalCause.SIZE, listener.remove().getCause());
+    assertNull(cache.getIfPresent("a"));
+  }
+
+  public void testExpiration() {
+    FakeTicker ticker = new FakeTicker();
+    QueuingRemovalListener<String, String> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    Cache<String, String> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(1)
+            .expireAfterWrite(10, TimeUnit.SECONDS)
+            .ticker(ticker)
+            .removalListener(listener)
+            .offHeapTier(1 << 16, STRING_CODEC)
+            .build();
+    cache.put("a", "alpha");
+    cache.put("b", "beta");
+    ticker.advance(10, TimeUnit.SECONDS);
+    assertNull(cache.getIfPresent("a"));
+    RemovalNotification<String, String> notification = listener.remove();
+    assertEquals("a", notification.getKey());
+    assertEquals(RemovalCause.EXPIRED, notification.getCause());
+  }
+
+  public void testMappedFile() throws Exception {
+    File file = File.createTempFile("OffHeapTieredCacheTest", ".bin");
+    file.deleteOnExit();
+    LoadingCache<String, String> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(2)
+            .maximumSize(2)
+            .offHeapTier(file, 1 << 16, STRING_CODEC)
+            .build(
+                new CacheLoader<String, String>() {
+                  @Override
+                  public String load(String key) {
+                    return key + key;
+                  }
+                });
+    for (int i = 0; i < 100; i++) {
+      cache.getUnchecked(Integer.toString(i));
+    }
+    assertEquals(100, cache.size());
+    for (int i = 0; i < 100; i++) {
+      String key = Integer.toString(i);
+      assertEquals(key + key, cache.getIfPresent(key));
+    }
+  }
+
+  public void testAsMap_writesThrough() {
+    QueuingRemovalListener<String, String> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    Cache<String, String> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(1)
+            .removalListener(listener)
+            .offHeapTier(1 << 16, STRING_CODEC)
+            .build();
+    ConcurrentMap<String, String> map = cache.asMap();
+    cache.put("a", "alpha");
+    cache.put("b", "beta");
+    assertFalse(map.containsKey("a"));
+
+    assertEquals("alpha", map.remove("a"));
+    assertEquals(RemovalCause.EXPLICIT, listener.remove().getCause());
+    assertNull(cache.getIfPresent("a"));
+
+    cache.put("a", "alpha");
+    assertFalse(map.containsKey("b"));
+    assertEquals("beta", map.put("b", "bet"));
+    assertEquals(RemovalCause.REPLACED, listener.remove().getCause());
+    assertEquals("bet", cache.getIfPresent("b"));
+
+    assertFalse(map.containsKey("a"));
+    assertEquals("alpha", map.replace("a", "aleph"));
+    assertEquals("aleph", cache.getIfPresent("a"));
+
+    assertFalse(map.containsKey("b"));
+    assertEquals("bet", map.putIfAbsent("b", "beth"));
+    assertFalse(map.remove("a", "alpha"));
+    assertTrue(map.remove("b", "bet"));
+    assertNull(cache.getIfPresent("b"));
+
+    map.clear();
+    assertEquals(0, cache.size());
+    assertNull(cache.getIfPresent("a"));
+  }
+
+  public void testStore_encodeFailureFreesChunk() {
+    OffHeapStore<String, String> store = newSingleChunkStore(FAILING_CODEC);
+    try {
+      store.demote("a", "encode!", ImmutableMap.of());
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    assertTrue(store.demote("b", "beta", ImmutableMap.of()));
+    assertEquals("beta", store.promote("b"));
+  }
+
+  public void testStore_decodeFailureReleasesVictim() {
+    OffHeapStore<String, String> store = newSingleChunkStore(FAILING_CODEC);
+    assertTrue(store.demote("a", "decode!", ImmutableMap.of()));
+    try {
+      store.demote("b", "beta", ImmutableMap.of());
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    assertEquals(0, store.size());
+    assertTrue(store.demote("c", "gamma", ImmutableMap.of()));
+    assertEquals("gamma", store.promote("c"));
+  }
+
+  public void testClose() throws Exception {
+    File file = File.createTempFile("OffHeapTieredCacheTest", ".bin");
+    file.deleteOnExit();
+    QueuingRemovalListener<String, String> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    Cache<String, String> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(1)
+            .removalListener(listener)
+            .offHeapTier(file, 1 << 16, STRING_CODEC)
+            .build();
+    cache.put("a", "alpha");
+    cache.put("b", "beta");
+    assertEquals(2, cache.size());
+
+    ((Closeable) cache).close();
+    assertTrue(listener.isEmpty());
+    assertEquals(1, cache.size());
+    assertNull(cache.getIfPresent("a"));
+    assertEquals("beta", cache.getIfPresent("b"));
+
+    cache.put("c", "gamma");
+    RemovalNotification<String, String> notification = listener.remove();
+    assertEquals("b", notification.getKey());
+    assertEquals(RemovalCause.SIZE, notification.getCause());
+    assertEquals(1, cache.size());
+    ((Closeable) cache).close();
+  }
+
+  /** Returns a store of one 64-byte chunk, with a listener so that evictions decode values. */
+  private static OffHeapStore<String, String> newSingleChunkStore(ByteCodec<String> codec) {
+    return new OffHeapStore<>(
+        64,
+        null,
+        1,
+        codec,
+        TestingRemovalListeners.<String, String>queuingRemovalListener(),
+        Ticker.systemTicker(),
+        0);
+  }
+
+  /** Fails to encode {@code "encode!"}, and to decode {@code "decode!"}. */
+  static final ByteCodec<String> FAILING_CODEC =
+      new ByteCodec<String>() {
+        @Override
+        public int encodedLength(String value) {
+          return STRING_CODEC.encodedLength(value);
+        }
+
+        @Override
+        public void encode(String value, ByteBuffer target) {
+          checkArgument(!value.equals("encode!"));
+          STRING_CODEC.encode(value, target);
+        }
+
+        @Override
+        public String decode(ByteBuffer source) {
+          String value = STRING_CODEC.decode(source);
+          checkArgument(!value.equals("decode!"));
+          return value;
+        }
+      };
+
+  public void testBuild_requiresMaximumSize() {
+    CacheBuilder<Object, String> builder =
+        CacheBuilder.newBuilder().offHeapTier(1 << 16, STRING_CODEC);
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  public void testBuild_requiresStrongKeys() {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().maximumSize(1).weakKeys();
+    try {
+      builder.offHeapTier(1 << 16, STRING_CODEC).build(identityLoader());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+}
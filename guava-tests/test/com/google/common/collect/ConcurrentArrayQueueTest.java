@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import junit.framework.TestCase;
+
+/** Tests for {@link ConcurrentArrayQueue} and the queues returned by {@link Queues}. */
+@GwtIncompatible
+public class ConcurrentArrayQueueTest extends TestCase {
+  enum Kind {
+    SPSC(1, 1) {
+      @Override
+      <E> ConcurrentArrayQueue<E> create(int capacity) {
+        return Queues.newSpscArrayQueue(capacity);
+      }
+    },
+    MPSC(4, 1) {
+      @Override
+      <E> ConcurrentArrayQueue<E> create(int capacity) {
+        return Queues.newMpscArrayQueue(capacity);
+      }
+    },
+    MPMC(4, 4) {
+      @Override
+      <E> ConcurrentArrayQueue<E> create(int capacity) {
+        return Queues.newMpmcArrayQueue(capacity);
+      }
+    };
+
+    final int producers;
+    final int consumers;
+
+    Kind(int producers, int consumers) {
+      this.producers = producers;
+      this.consumers = consumers;
+    }
+
+    abstract <E> ConcurrentArrayQueue<E> create(int capacity);
+  }
+
+  public void testCreate_badCapacity() {
+    for (Kind kind : Kind.values()) {
+      try {
+        kind.create(-1);
+        fail(kind.toString());
+      } catch (IllegalArgumentException expected) {
+      }
+      try {
+        kind.create((1 << 30) + 1);
+        fail(kind.toString());
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  public void testOfferPoll_fifoAcrossLaps() {
+    for (Kind kind : Kind.values()) {
+      // A capacity that isn't a power of two leaves unused slots in the ring.
+      ConcurrentArrayQueue<Integer> queue = kind.create(5);
+      assertEquals(5, queue.capacity());
+      int next = 0;
+      int expected = 0;
+      for (int lap = 0; lap < 10; lap++) {
+        while (queue.offer(next)) {
+          next++;
+        }
+        assertEquals(kind.toString(), 5, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals(expected, (int) queue.peek());
+        for (int i = 0; i < 3; i++) {
+          assertEquals(expected++, (int) queue.poll());
+        }
+        assertEquals(2, queue.size());
+      }
+      while (!queue.isEmpty()) {
+        assertEquals(expected++, (int) queue.poll());
+      }
+      assertEquals(next, expected);
+      assertNull(queue.poll());
+      assertNull(queue.peek());
+      assertEquals(0, queue.size());
+      assertEquals(5, queue.remainingCapacity());
+    }
+  }
+
+  public void testZeroCapacity() {
+    for (Kind kind : Kind.values()) {
+      ConcurrentArrayQueue<String> queue = kind.create(0);
+      assertFalse(queue.offer("a"));
+      assertEquals(0, queue.fill(constant("a"), 3));
+      assertTrue(queue.isEmpty());
+      assertNull(queue.poll());
+    }
+  }
+
+  public void testOffer_null() {
+    for (Kind kind : Kind.values()) {
+      try {
+        kind.create(2).offer(null);
+        fail(kind.toString());
+      } catch (NullPointerException expected) {
+      }
+    }
+  }
+
+  public void testDrainTo() {
+    for (Kind kind : Kind.values()) {
+      ConcurrentArrayQueue<Integer> queue = kind.create(8);
+      for (int i = 0; i < 6; i++) {
+        queue.offer(i);
+      }
+      List<Integer> drained = new ArrayList<>();
+      assertEquals(4, queue.drainTo(drained, 4));
+      assertEquals(Arrays.asList(0, 1, 2, 3), drained);
+      assertEquals(2, queue.drainTo(drained, 100));
+      assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), drained);
+      assertEquals(0, queue.drainTo(drained, 100));
+      try {
+        queue.drainTo(queue, 1);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+      try {
+        queue.drainTo(drained, -1);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  public void testFill() {
+    for (Kind kind : Kind.values()) {
+      ConcurrentArrayQueue<Integer> queue = kind.create(5);
+      final AtomicInteger counter = new AtomicInteger();
+      Supplier<Integer> supplier =
+          new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+              return counter.getAndIncrement();
+            }
+          };
+      assertEquals(3, queue.fill(supplier, 3));
+      assertEquals(2, queue.fill(supplier, 100));
+      assertEquals(5, counter.get());
+      assertEquals(0, queue.fill(supplier, 100));
+      assertEquals(5, counter.get());
+      assertEquals(ImmutableList.of(0, 1, 2, 3, 4), ImmutableList.copyOf(queue));
+    }
+  }
+
+  public void testFill_supplierReturnsNull() {
+    for (Kind kind : Kind.values()) {
+      ConcurrentArrayQueue<String> queue = kind.create(4);
+      final Iterator<String> values = Arrays.asList("a", "b", null, "c").iterator();
+      try {
+        queue.fill(
+            new Supplier<String>() {
+              @Override
+              public String get() {
+                return values.next();
+              }
+            },
+            4);
+        fail(kind.toString());
+      } catch (NullPointerException expected) {
+      }
+      // The slot claimed for the null, if any, is skipped rather than blocking the queue.
+      assertEquals(ImmutableList.of("a", "b"), ImmutableList.copyOf(queue));
+      assertEquals("a", queue.poll());
+      assertEquals("b", queue.peek());
+      assertEquals("b", queue.poll());
+      assertTrue(queue.offer("d"));
+      assertEquals("d", queue.peek());
+      assertEquals("d", queue.poll());
+      assertNull(queue.poll());
+      assertTrue(queue.isEmpty());
+    }
+  }
+
+  public void testIterator() {
+    for (Kind kind : Kind.values()) {
+      ConcurrentArrayQueue<String> queue = kind.create(3);
+      queue.offer("a");
+      queue.offer("b");
+      Iterator<String> iterator = queue.iterator();
+      queue.offer("c");
+      assertEquals("a", iterator.next());
+      try {
+        iterator.remove();
+        fail();
+      } catch (UnsupportedOperationException expected) {
+      }
+      assertEquals("b", iterator.next());
+      assertFalse(iterator.hasNext());
+      assertTrue(queue.contains("c"));
+      assertEquals("[a, b, c]", queue.toString());
+    }
+  }
+
+  public void testConcurrentTransfer() throws Exception {
+    for (Kind kind : Kind.values()) {
+      checkConcurrentTransfer(kind, 16, 50000);
+    }
+  }
+
+  /**
+   * Has {@code kind.producers} threads each add {@code perProducer} elements to a queue, while
+   * {@code kind.consumers} threads remove them, and checks that every element is removed exactly
+   * once, and that each consumer sees the elements of each producer in order.
+   */
+  private static void checkConcurrentTransfer(final Kind kind, int capacity, final int perProducer)
+      throws Exception {
+    final ConcurrentArrayQueue<Integer> queue = kind.create(capacity);
+    final int total = kind.producers * perProducer;
+    final AtomicInteger removed = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(kind.producers + kind.consumers);
+    try {
+      List<Future<int[]>> consumers = new ArrayList<>();
+      for (int c = 0; c < kind.consumers; c++) {
+        final boolean batched = (c % 2 == 0);
+        consumers.add(
+            executor.submit(
+                new Callable<int[]>() {
+                  @Override
+                  public int[] call() {
+                    int[] counts = new int[total];
+                    int[] lastSeen = new int[kind.producers];
+                    Arrays.fill(lastSeen, -1);
+                    final List<Integer> batch = new ArrayList<>();
+                    while (removed.get() < total) {
+                      batch.clear();
+                      if (batched) {
+                        queue.drainTo(batch, 7);
+                      } else {
+                        Integer e = queue.poll();
+                        if (e != null) {
+                          batch.add(e);
+                        }
+                      }
+                      for (int e : batch) {
+                        counts[e]++;
+                        int producer = e / perProducer;
+                        assertTrue(e > lastSeen[producer]);
+                        lastSeen[producer] = e;
+                      }
+                      if (batch.isEmpty()) {
+                        Thread.yield();
+                      }
+                      removed.addAndGet(batch.size());
+                    }
+                    return counts;
+                  }
+                }));
+      }
+      for (int p = 0; p < kind.producers; p++) {
+        final int first = p * perProducer;
+        final boolean batched = (p % 2 == 1);
+        executor.submit(
+            new Callable<Void>() {
+              @Override
+              public Void call() {
+                final int[] next = {first};
+                while (next[0] < first + perProducer) {
+                  boolean added;
+                  if (batched) {
+                    added =
+                        queue.fill(
+                                new Supplier<Integer>() {
+                                  @Override
+                                  public Integer get() {
+                                    return next[0]++;
+                                  }
+                                },
+                                first + perProducer - next[0])
+                            > 0;
+                  } else {
+                    added = queue.offer(next[0]);
+                    if (added) {
+                      next[0]++;
+                    }
+                  }
+                  if (!added) {
+                    Thread.yield();
+                  }
+                }
+                return null;
+              }
+            });
+      }
+      int[] totals = new int[total];
+      for (Future<int[]> consumer : consumers) {
+        int[] counts = consumer.get(60, TimeUnit.SECONDS);
+        for (int i = 0; i < total; i++) {
+          totals[i] += counts[i];
+        }
+      }
+      for (int i = 0; i < total; i++) {
+        assertEquals(kind + " element " + i, 1, totals[i]);
+      }
+      assertTrue(queue.isEmpty());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static <E> Supplier<E> constant(final E value) {
+    return new Supplier<E>() {
+      @Override
+      public E get() {
+        return value;
+      }
+    };
+  }
+}
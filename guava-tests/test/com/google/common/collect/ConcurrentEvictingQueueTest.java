@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Suppliers;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import junit.framework.TestCase;
+
+/** Tests for {@link ConcurrentEvictingQueue}. */
+@GwtIncompatible
+public class ConcurrentEvictingQueueTest extends TestCase {
+
+  public void testCreateWithNegativeSize() {
+    try {
+      ConcurrentEvictingQueue.create(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testCreateWithZeroSize() {
+    ConcurrentEvictingQueue<String> queue = ConcurrentEvictingQueue.create(0);
+    assertEquals(0, queue.size());
+    assertTrue(queue.add("hi"));
+    assertTrue(queue.offer("hi"));
+    assertEquals(0, queue.size());
+    assertEquals(0, queue.remainingCapacity());
+    assertNull(queue.poll());
+  }
+
+  public void testEvictsFromHead() {
+    ConcurrentEvictingQueue<String> queue = ConcurrentEvictingQueue.create(3);
+    assertEquals(3, queue.remainingCapacity());
+    assertTrue(queue.add("one"));
+    assertTrue(queue.add("two"));
+    assertTrue(queue.add("three"));
+    assertEquals(0, queue.remainingCapacity());
+    assertEquals(ImmutableList.of("one", "two", "three"), ImmutableList.copyOf(queue));
+
+    assertTrue(queue.add("four"));
+    assertEquals(ImmutableList.of("two", "three", "four"), ImmutableList.copyOf(queue));
+    assertEquals(3, queue.size());
+
+    assertEquals("two", queue.poll());
+    assertEquals(1, queue.remainingCapacity());
+  }
+
+  public void testFill() {
+    ConcurrentEvictingQueue<Integer> queue = ConcurrentEvictingQueue.create(3);
+    final int[] next = {0};
+    assertEquals(
+        10,
+        queue.fill(
+            new Supplier<Integer>() {
+              @Override
+              public Integer get() {
+                return next[0]++;
+              }
+            },
+            10));
+    assertEquals(ImmutableList.of(7, 8, 9), ImmutableList.copyOf(queue));
+  }
+
+  public void testOfferNull() {
+    ConcurrentEvictingQueue<String> queue = ConcurrentEvictingQueue.create(3);
+    try {
+      queue.offer(null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testOffer_headNotYetWritten() {
+    ConcurrentEvictingQueue<String> queue = ConcurrentEvictingQueue.create(1);
+    assertTrue(queue.offer("a"));
+    assertEquals("a", queue.poll());
+    // claim the next slot as a producer would, without writing it
+    ConcurrentArrayQueue.TAIL.incrementAndGet(queue);
+    assertFalse(queue.offer("b"));
+    assertEquals(0, queue.fill(Suppliers.ofInstance("c"), 3));
+    assertNull(queue.poll());
+  }
+
+  public void testConcurrentProducers() throws Exception {
+    final ConcurrentEvictingQueue<Integer> queue = ConcurrentEvictingQueue.create(100);
+    final int producers = 4;
+    final int perProducer = 20000;
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int p = 0; p < producers; p++) {
+        final int first = p * perProducer;
+        futures.add(
+            executor.submit(
+                new Callable<Void>() {
+                  @Override
+                  public Void call() {
+                    for (int i = first; i < first + perProducer; i++) {
+                      // offer gives up, rarely, when another producer stalls writing the head
+                      while (!queue.offer(i)) {}
+                    }
+                    return null;
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    /*
+     * The queue holds at most 100 elements, each producer's in order. Nothing evicts the element
+     * added last, which must be the final element of one of the producers.
+     */
+    assertTrue(queue.size() <= 100);
+    int[] lastSeen = {-1, -1, -1, -1};
+    for (int e : queue) {
+      int producer = e / perProducer;
+      assertTrue(e > lastSeen[producer]);
+      lastSeen[producer] = e;
+    }
+    boolean sawFinalElement = false;
+    for (int p = 0; p < producers; p++) {
+      sawFinalElement |= (lastSeen[p] == (p + 1) * perProducer - 1);
+    }
+    assertTrue(sawFinalElement);
+  }
+}
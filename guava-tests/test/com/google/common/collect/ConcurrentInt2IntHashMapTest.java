@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.TestCase;
+
+/** Tests for {@link ConcurrentInt2IntHashMap}. */
+public class ConcurrentInt2IntHashMapTest extends TestCase {
+  private static final int THREADS = 8;
+
+  public void testPutGetRemove() {
+    ConcurrentInt2IntHashMap map = new ConcurrentInt2IntHashMap(-1);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(-1, map.put(i * 7919, i));
+    }
+    assertEquals(1000, map.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, map.get(i * 7919));
+    }
+    assertEquals(-1, map.get(1));
+    assertEquals(5, map.put(5 * 7919, 6));
+    assertEquals(6, map.remove(5 * 7919));
+    assertEquals(-1, map.remove(5 * 7919));
+    assertFalse(map.containsKey(5 * 7919));
+    assertEquals(999, map.size());
+    try {
+      map.put(1, -1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testZeroKey() {
+    ConcurrentInt2IntHashMap map = new ConcurrentInt2IntHashMap();
+    assertEquals(Integer.MIN_VALUE, map.get(0));
+    map.put(0, 0);
+    assertEquals(0, map.get(0));
+    assertTrue(map.containsKey(0));
+  }
+
+  public void testAddAndPutIfAbsent() {
+    ConcurrentInt2IntHashMap map = new ConcurrentInt2IntHashMap();
+    assertEquals(3, map.addAndGet(1, 3));
+    assertEquals(3, map.getAndAdd(1, -3));
+    assertEquals(0, map.get(1));
+    assertEquals(1, map.incrementAndGet(2));
+    assertEquals(Integer.MIN_VALUE, map.putIfAbsent(3, 30));
+    assertEquals(30, map.putIfAbsent(3, 31));
+    assertEquals(30, map.computeIfAbsent(3, k -> 32));
+    assertEquals(40, map.computeIfAbsent(4, k -> k * 10));
+    assertEquals(4, map.size());
+    try {
+      map.addAndGet(5, Integer.MIN_VALUE);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testRemovedKeysAreDiscardedOnResize() {
+    ConcurrentInt2IntHashMap map = new ConcurrentInt2IntHashMap();
+    for (int i = 0; i < 100000; i++) {
+      map.put(i, i);
+      map.remove(i);
+    }
+    assertTrue(map.isEmpty());
+    assertTrue(map.capacity() <= 64);
+  }
+
+  public void testIntForEachAndClear() {
+    ConcurrentInt2IntHashMap map = new ConcurrentInt2IntHashMap();
+    Map<Integer, Integer> expected = new HashMap<>();
+    for (int i = -500; i < 500; i++) {
+      map.put(i, -i);
+      expected.put(i, -i);
+    }
+    final Map<Integer, Integer> seen = new HashMap<>();
+    map.intForEach(seen::put);
+    assertEquals(expected, seen);
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertEquals("{}", map.toString());
+    map.put(1, 2);
+    assertEquals("{1=2}", map.toString());
+  }
+
+  public void testConcurrentAddAndGet() throws Exception {
+    final ConcurrentInt2IntHashMap map = new ConcurrentInt2IntHashMap();
+    final int keys = 20000;
+    runInThreads(
+        new Runnable() {
+          @Override
+          public void run() {
+            for (int i = 0; i < keys; i++) {
+              map.incrementAndGet(i);
+            }
+          }
+        });
+    assertEquals(keys, map.size());
+    for (int i = 0; i < keys; i++) {
+      assertEquals(THREADS, map.get(i));
+    }
+  }
+
+  public void testConcurrentDistinctKeys() throws Exception {
+    final ConcurrentInt2IntHashMap map = new ConcurrentInt2IntHashMap();
+    final int keysPerThread = 20000;
+    final AtomicReference<Integer> nextThread = new AtomicReference<>(0);
+    runInThreads(
+        new Runnable() {
+          @Override
+          public void run() {
+            int thread;
+            do {
+              thread = nextThread.get();
+            } while (!nextThread.compareAndSet(thread, thread + 1));
+            for (int i = 0; i < keysPerThread; i++) {
+              int key = thread * keysPerThread + i;
+              assertEquals(Integer.MIN_VALUE, map.put(key, key));
+              if (i % 2 == 0) {
+                assertEquals(key, map.remove(key));
+              }
+            }
+          }
+        });
+    assertEquals(THREADS * keysPerThread / 2, map.size());
+    for (int key = 0; key < THREADS * keysPerThread; key++) {
+      assertEquals((key % 2 == 0) ? Integer.MIN_VALUE : key, map.get(key));
+    }
+  }
+
+  private static void runInThreads(final Runnable task) throws Exception {
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] threads = new Thread[THREADS];
+    for (int i = 0; i < THREADS; i++) {
+      threads[i] =
+          new Thread() {
+            @Override
+            public void run() {
+              try {
+                start.await();
+                task.run();
+              } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+              }
+            }
+          };
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+  }
+}
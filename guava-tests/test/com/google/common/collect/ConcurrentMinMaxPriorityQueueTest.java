@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link ConcurrentMinMaxPriorityQueue}. */
+@GwtIncompatible
+public class ConcurrentMinMaxPriorityQueueTest extends TestCase {
+  public void testCreation_simple() {
+    ConcurrentMinMaxPriorityQueue<Integer> queue = ConcurrentMinMaxPriorityQueue.create();
+    assertEquals(Integer.MAX_VALUE, queue.maximumSize);
+    assertSame(Ordering.natural(), queue.comparator());
+    assertTrue(queue.isEmpty());
+    assertNull(queue.peekFirst());
+    assertNull(queue.pollLast());
+    try {
+      queue.removeLast();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+  }
+
+  public void testCreation_comparatorAndContents() {
+    ConcurrentMinMaxPriorityQueue<Integer> queue =
+        ConcurrentMinMaxPriorityQueue.orderedBy(Ordering.<Integer>natural().reverse())
+            .create(Arrays.asList(3, 1, 4, 1, 5));
+    assertEquals(5, queue.size());
+    assertEquals(5, (int) queue.peek());
+    assertEquals(1, (int) queue.peekLast());
+    assertEquals(Arrays.asList(5, 4, 3, 1, 1), ImmutableList.copyOf(queue));
+  }
+
+  public void testPollBothEnds() {
+    ConcurrentMinMaxPriorityQueue<Integer> queue =
+        ConcurrentMinMaxPriorityQueue.create(Arrays.asList(8, 6, 7, 5, 3, 0, 9));
+    assertEquals(0, (int) queue.pollFirst());
+    assertEquals(9, (int) queue.pollLast());
+    assertEquals(3, (int) queue.removeFirst());
+    assertEquals(8, (int) queue.removeLast());
+    assertEquals(5, (int) queue.poll());
+    assertEquals(Arrays.asList(6, 7), ImmutableList.copyOf(queue));
+    assertEquals(2, queue.size());
+  }
+
+  public void testEqualElementsAreFifo() {
+    ConcurrentMinMaxPriorityQueue<String> queue =
+        ConcurrentMinMaxPriorityQueue.orderedBy(Ordering.natural().onResultOf(String::length))
+            .create();
+    queue.add("b");
+    queue.add("a");
+    queue.add("cc");
+    queue.add("c");
+    assertEquals("b", queue.poll());
+    assertEquals("a", queue.poll());
+    assertEquals("c", queue.poll());
+    assertEquals("cc", queue.poll());
+  }
+
+  public void testMaximumSize() {
+    ConcurrentMinMaxPriorityQueue<Integer> queue =
+        ConcurrentMinMaxPriorityQueue.maximumSize(3).create();
+    assertTrue(queue.offer(5));
+    assertTrue(queue.offer(2));
+    assertTrue(queue.offer(7));
+    assertFalse(queue.offer(9));
+    assertTrue(queue.offer(1));
+    assertEquals(3, queue.size());
+    assertEquals(Arrays.asList(1, 2, 5), ImmutableList.copyOf(queue));
+    try {
+      ConcurrentMinMaxPriorityQueue.maximumSize(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testRemoveAndIterator() {
+    ConcurrentMinMaxPriorityQueue<Integer> queue =
+        ConcurrentMinMaxPriorityQueue.create(Arrays.asList(1, 2, 2, 3));
+    assertTrue(queue.remove(2));
+    assertFalse(queue.remove(4));
+    assertFalse(queue.remove(null));
+    assertEquals(3, queue.size());
+    Iterator<Integer> iterator = queue.iterator();
+    assertEquals(1, (int) iterator.next());
+    iterator.remove();
+    try {
+      iterator.remove();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    assertEquals(Arrays.asList(2, 3), ImmutableList.copyOf(queue));
+    assertTrue(queue.contains(3));
+    queue.clear();
+    assertTrue(queue.isEmpty());
+    assertEquals(0, queue.size());
+  }
+
+  public void testNullElement() {
+    try {
+      ConcurrentMinMaxPriorityQueue.<Integer>create().offer(null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  /**
+   * Has several threads each add distinct elements while removing from alternate ends, and checks
+   * that every element is removed exactly once.
+   */
+  public void testConcurrentAddAndPoll() throws Exception {
+    final ConcurrentMinMaxPriorityQueue<Integer> queue = ConcurrentMinMaxPriorityQueue.create();
+    final int threads = 4;
+    final int perThread = 20000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Integer> removed = new ArrayList<>();
+    try {
+      List<Future<List<Integer>>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        final int first = t * perThread;
+        futures.add(
+            executor.submit(
+                new Callable<List<Integer>>() {
+                  @Override
+                  public List<Integer> call() {
+                    List<Integer> removed = new ArrayList<>();
+                    for (int i = first; i < first + perThread; i++) {
+                      queue.add(i);
+                      if (i % 2 == 0) {
+                        Integer e = (i % 4 == 0) ? queue.pollFirst() : queue.pollLast();
+                        if (e != null) {
+                          removed.add(e);
+                        }
+                      }
+                    }
+                    return removed;
+                  }
+                }));
+      }
+      for (Future<List<Integer>> future : futures) {
+        removed.addAll(future.get(60, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(threads * perThread - removed.size(), queue.size());
+    Integer previous = null;
+    for (Integer e = queue.poll(); e != null; e = queue.poll()) {
+      assertTrue(previous == null || previous < e);
+      previous = e;
+      removed.add(e);
+    }
+    Collections.sort(removed);
+    for (int i = 0; i < threads * perThread; i++) {
+      assertEquals(i, (int) removed.get(i));
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.testing.EqualsTester;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link Int2IntArrayMultimap}. */
+@GwtIncompatible
+public class Int2IntArrayMultimapTest extends TestCase {
+  public void testPutAndGet() {
+    Int2IntArrayMultimap multimap = new Int2IntArrayMultimap();
+    assertTrue(multimap.isEmpty());
+    assertTrue(multimap.put(1, 10));
+    assertTrue(multimap.put(1, 11));
+    assertTrue(multimap.put(1, 10));
+    assertTrue(multimap.put(2, 20));
+    assertEquals(4, multimap.size());
+    assertEquals(2, multimap.keyCount());
+    assertEquals(3, multimap.valueCount(1));
+    assertEquals(0, multimap.valueCount(3));
+    assertTrue(Arrays.equals(new int[] {10, 11, 10}, multimap.get(1)));
+    assertEquals(0, multimap.get(3).length);
+    assertTrue(multimap.containsKey(2));
+    assertFalse(multimap.containsKey(20));
+    assertTrue(multimap.containsEntry(1, 11));
+    assertFalse(multimap.containsEntry(2, 11));
+  }
+
+  public void testRemove() {
+    Int2IntArrayMultimap multimap = new Int2IntArrayMultimap();
+    multimap.put(1, 10);
+    multimap.put(1, 11);
+    multimap.put(1, 10);
+    assertTrue(multimap.remove(1, 10));
+    assertTrue(Arrays.equals(new int[] {11, 10}, multimap.get(1)));
+    assertFalse(multimap.remove(1, 12));
+    assertFalse(multimap.remove(2, 10));
+    assertTrue(multimap.remove(1, 11));
+    assertTrue(multimap.remove(1, 10));
+    assertFalse(multimap.containsKey(1));
+    assertEquals(0, multimap.keyCount());
+    assertTrue(multimap.isEmpty());
+  }
+
+  public void testRemoveAllAndClear() {
+    Int2IntArrayMultimap multimap = new Int2IntArrayMultimap(4, 1);
+    multimap.put(1, 10);
+    multimap.put(1, 11);
+    multimap.put(2, 20);
+    assertEquals(2, multimap.removeAll(1));
+    assertEquals(0, multimap.removeAll(1));
+    assertEquals(1, multimap.size());
+    multimap.clear();
+    assertTrue(multimap.isEmpty());
+    assertEquals(0, multimap.keyCount());
+  }
+
+  public void testForEach() {
+    Int2IntArrayMultimap multimap = new Int2IntArrayMultimap();
+    ListMultimap<Integer, Integer> expected = ArrayListMultimap.create();
+    Random random = new Random(0);
+    for (int i = 0; i < 1000; i++) {
+      int key = random.nextInt(100);
+      int value = random.nextInt();
+      multimap.put(key, value);
+      expected.put(key, value);
+    }
+    ListMultimap<Integer, Integer> actual = ArrayListMultimap.create();
+    multimap.forEach(actual::put);
+    assertEquals(expected, actual);
+
+    List<Integer> keys = new ArrayList<>();
+    multimap.forEachKey(keys::add);
+    assertEquals(expected.keySet(), ImmutableSet.copyOf(keys));
+    assertEquals(expected.keySet().size(), keys.size());
+
+    for (Map.Entry<Integer, List<Integer>> entry : Multimaps.asMap(expected).entrySet()) {
+      List<Integer> values = new ArrayList<>();
+      multimap.forEachValue(entry.getKey(), values::add);
+      assertEquals(entry.getValue(), values);
+    }
+  }
+
+  public void testEqualsAndToString() {
+    Int2IntArrayMultimap multimap = new Int2IntArrayMultimap();
+    multimap.put(1, 10);
+    multimap.put(1, 11);
+    Int2IntArrayMultimap same = new Int2IntArrayMultimap();
+    same.put(1, 10);
+    same.put(1, 11);
+    Int2IntArrayMultimap reordered = new Int2IntArrayMultimap();
+    reordered.put(1, 11);
+    reordered.put(1, 10);
+    new EqualsTester()
+        .addEqualityGroup(multimap, same)
+        .addEqualityGroup(reordered)
+        .addEqualityGroup(new Int2IntArrayMultimap())
+        .testEquals();
+    assertEquals("{1=[10, 11]}", multimap.toString());
+  }
+}
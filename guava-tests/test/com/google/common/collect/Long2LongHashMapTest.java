@@ -0,0 +1,127 @@
+package com.google.common.collect;
+
+import com.google.common.collector.PrimitiveCollectors;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.LongStream;
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+
+/**
+ * Unit test for {@code Long2LongHashMap}, {@code Long2ObjectHashMap} and the collectors that
+ * build them.
+ */
+public class Long2LongHashMapTest extends TestCase {
+
+    public void testPutGet(){
+        Long2LongHashMap map = new Long2LongHashMap(-1L);
+        for(long i = 0; i < 1000; i++){
+            Assert.assertEquals(-1L, map.put(i << 32, i));
+        }
+        Assert.assertEquals(1000, map.size());
+        for(long i = 0; i < 1000; i++){
+            Assert.assertEquals(i, map.get(i << 32));
+            Assert.assertEquals(-1L, map.get(i << 32 | 1));
+        }
+        Assert.assertEquals(5L, map.put(5L << 32, 6L));
+        Assert.assertEquals(6L, map.get(5L << 32));
+    }
+
+    public void testMissingValue_rejected(){
+        Long2LongHashMap map = new Long2LongHashMap(-1L);
+        try {
+            map.put(1L, -1L);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testRemoveAndCompact(){
+        Long2LongHashMap map = new Long2LongHashMap();
+        for(long i = 0; i < 1000; i++){
+            map.put(i, -i);
+        }
+        for(long i = 10; i < 1000; i++){
+            Assert.assertEquals(-i, map.remove(i));
+        }
+        Assert.assertEquals(Long.MIN_VALUE, map.remove(10L));
+        map.compact();
+        Assert.assertEquals(10, map.size());
+        Assert.assertEquals(16, map.capacity());
+        for(long i = 0; i < 10; i++){
+            Assert.assertEquals(-i, map.get(i));
+        }
+    }
+
+    public void testLongForEach(){
+        Long2LongHashMap map = new Long2LongHashMap();
+        Map<Long, Long> expected = new HashMap<>();
+        for(long i = -50; i < 50; i++){
+            map.put(i * 31, i);
+            expected.put(i * 31, i);
+        }
+        final Map<Long, Long> seen = new HashMap<>();
+        map.longForEach(seen::put);
+        Assert.assertEquals(expected, seen);
+        Assert.assertEquals(expected, map);
+    }
+
+    public void testObjectMap(){
+        Long2ObjectHashMap<String> map = new Long2ObjectHashMap<>();
+        for(long i = 0; i < 100; i++){
+            map.put(i << 40, Long.toString(i));
+        }
+        Assert.assertEquals("7", map.get(7L << 40));
+        Assert.assertNull(map.get(7L));
+        Assert.assertEquals("7", map.remove(7L << 40));
+        final Map<Long, String> seen = new HashMap<>();
+        map.longForEach(seen::put);
+        Assert.assertEquals(99, seen.size());
+        Assert.assertEquals(seen, map);
+    }
+
+    public void testAddAndGet(){
+        Long2LongHashMap map = new Long2LongHashMap(0L);
+        Assert.assertEquals(1L << 40, map.addAndGet(3L, 1L << 40));
+        Assert.assertEquals(1L << 40, map.getAndAdd(3L, 1L));
+        Assert.assertEquals((1L << 40) + 2, map.increment(3L));
+        Assert.assertEquals(0L, map.addAndGet(3L, -((1L << 40) + 2)));
+        Assert.assertEquals(0, map.size());
+
+        Long2LongHashMap other = new Long2LongHashMap();
+        for(long i = 0; i < 100; i++){
+            map.put(i, i + 1);
+            other.put(i + 50, -(i + 51));
+        }
+        map.addValues(other);
+        Assert.assertEquals(100, map.size());
+        Assert.assertEquals(50L, map.get(49L));
+        Assert.assertEquals(0L, map.get(50L));
+        Assert.assertEquals(-101L, map.get(100L));
+    }
+
+    public void testCollectors(){
+        Long2LongHashMap squares = LongStream.range(0, 100).parallel().boxed()
+                .collect(PrimitiveCollectors.toLong2LongHashMap(i -> i, i -> i * i));
+        Assert.assertEquals(100, squares.size());
+        Assert.assertEquals(81L, squares.get(9L));
+
+        Long2ObjectHashMap<String> names = LongStream.range(0, 100).parallel().boxed()
+                .collect(PrimitiveCollectors.toLong2ObjectHashMap(i -> i, String::valueOf));
+        Assert.assertEquals("42", names.get(42L));
+
+        LongHashSet set = LongStream.of(1, 2, 2, 3).boxed()
+                .collect(PrimitiveCollectors.toLongHashSet());
+        Assert.assertEquals(3, set.size());
+
+        try {
+            LongStream.of(1, 1).boxed()
+                    .collect(PrimitiveCollectors.toLong2LongHashMap(i -> i, i -> i));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+
+}
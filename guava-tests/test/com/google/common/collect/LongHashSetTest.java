@@ -0,0 +1,85 @@
+package com.google.common.collect;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+
+
+/**
+ * Unit test for {@code LongHashSet}.
+ */
+public class LongHashSetTest extends TestCase {
+
+    public void testStrong_add(){
+        LongHashSet longHashSet = Sets.newLongHashSet();
+        for(long i = 0; i < 100; i++){
+            longHashSet.add(i << 32);
+        }
+        Assert.assertTrue(longHashSet.size() == 100);
+        for(long i = 0; i < 100; i++){
+            Assert.assertTrue(longHashSet.contains(i << 32));
+            Assert.assertTrue(!longHashSet.contains(i << 32 | 1));
+        }
+    }
+
+    public void testStrong_remove(){
+        LongHashSet longHashSet = Sets.newLongHashSet();
+        for(long i = 0; i < 100; i++){
+            longHashSet.add(i);
+        }
+        long[] nums = new long[]{0,1,3,5,7,9};
+        for(long num : nums){
+            Assert.assertTrue(longHashSet.contains(num));
+            longHashSet.remove(num);
+            Assert.assertTrue(!longHashSet.contains(num));
+        }
+        Assert.assertTrue(longHashSet.size() == 94);
+    }
+
+    public void testString_onDuplicate(){
+        LongHashSet longHashSet = Sets.newLongHashSet(new long[] {1,1,2,2,3,3,Long.MAX_VALUE});
+        Assert.assertTrue(longHashSet.size() == 4);
+        Assert.assertTrue(longHashSet.contains(Long.MAX_VALUE));
+    }
+
+    public void testIterator_reused(){
+        LongHashSet longHashSet = Sets.newLongHashSet(new long[] {0,1,2});
+        LongHashSet.LongIterator iterator = longHashSet.iterator();
+        long sum = 0;
+        while(iterator.hasNext()){
+            sum += iterator.nextValue();
+        }
+        Assert.assertEquals(3, sum);
+        Assert.assertSame(iterator, longHashSet.iterator());
+        Assert.assertEquals(3, longHashSet.iterator().remaining());
+    }
+
+    public void testLongForEach(){
+        LongHashSet longHashSet = Sets.newLongHashSet(new long[] {0,-1,Long.MIN_VALUE});
+        final List<Long> seen = new ArrayList<>();
+        longHashSet.longForEach(seen::add);
+        Assert.assertEquals(3, seen.size());
+        Assert.assertTrue(longHashSet.containsAll(seen));
+    }
+
+    public void testCompact(){
+        LongHashSet longHashSet = Sets.newLongHashSet();
+        for(long i = 0; i < 1000; i++){
+            longHashSet.add(i);
+        }
+        for(Iterator<Long> it = longHashSet.iterator(); it.hasNext();){
+            if(it.next() >= 10){
+                it.remove();
+            }
+        }
+        longHashSet.compact();
+        Assert.assertEquals(16, longHashSet.capacity());
+        Assert.assertEquals(Sets.newHashSet(0L,1L,2L,3L,4L,5L,6L,7L,8L,9L), longHashSet);
+    }
+
+
+
+}
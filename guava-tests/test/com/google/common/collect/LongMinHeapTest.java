@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeSet;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link LongMinHeap}. */
+@GwtIncompatible
+public class LongMinHeapTest extends TestCase {
+  public void testEmpty() {
+    LongMinHeap heap = LongMinHeap.create();
+    assertTrue(heap.isEmpty());
+    assertEquals(0, heap.size());
+    assertFalse(heap.contains(0));
+    assertEquals("[]", heap.toString());
+    try {
+      heap.peekPriority();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+    try {
+      heap.removeMin();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+  }
+
+  public void testAddRemoveMin() {
+    LongMinHeap heap = LongMinHeap.withExpectedSize(0);
+    long[] priorities = {5, -3, Long.MAX_VALUE, 0, Long.MIN_VALUE, 7, 5, 2};
+    for (int i = 0; i < priorities.length; i++) {
+      heap.add(priorities[i], i);
+    }
+    assertEquals(priorities.length, heap.size());
+    long[] sorted = priorities.clone();
+    Arrays.sort(sorted);
+    for (long priority : sorted) {
+      assertEquals(priority, heap.peekPriority());
+      assertEquals(priority, priorities[heap.peekValue()]);
+      assertEquals(heap.peekValue(), heap.value(heap.peekHandle()));
+      assertEquals(priority, priorities[heap.removeMin()]);
+    }
+    assertTrue(heap.isEmpty());
+  }
+
+  public void testDecreasePriority() {
+    LongMinHeap heap = LongMinHeap.create();
+    int a = heap.add(10, 100);
+    int b = heap.add(20, 200);
+    int c = heap.add(30, 300);
+    heap.decreasePriority(c, 5);
+    assertEquals(5, heap.priority(c));
+    assertEquals(c, heap.peekHandle());
+    heap.decreasePriority(b, 20);
+    try {
+      heap.decreasePriority(a, 11);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    assertEquals(300, heap.removeMin());
+    assertEquals(100, heap.removeMin());
+    assertEquals(200, heap.removeMin());
+  }
+
+  public void testSetPriorityAndRemove() {
+    LongMinHeap heap = LongMinHeap.create();
+    int a = heap.add(1, 1);
+    int b = heap.add(2, 2);
+    int c = heap.add(3, 3);
+    heap.setPriority(a, 4);
+    assertEquals(b, heap.peekHandle());
+    heap.remove(b);
+    assertFalse(heap.contains(b));
+    assertEquals(2, heap.size());
+    assertEquals(c, heap.peekHandle());
+    try {
+      heap.remove(b);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      heap.priority(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    assertEquals("[3=3, 4=1]", heap.toString());
+  }
+
+  public void testHandlesAreReused() {
+    LongMinHeap heap = LongMinHeap.create();
+    int a = heap.add(1, 1);
+    heap.add(2, 2);
+    heap.removeMin();
+    assertFalse(heap.contains(a));
+    assertEquals(a, heap.add(3, 3));
+    assertEquals(3, heap.value(a));
+    heap.clear();
+    assertTrue(heap.isEmpty());
+    assertFalse(heap.contains(a));
+    assertEquals(0, heap.add(4, 4));
+  }
+
+  /** Applies random operations to a heap and to a sorted set of entries, and compares them. */
+  public void testRandomOperations() {
+    Random random = new Random(0);
+    LongMinHeap heap = LongMinHeap.create();
+    // Entries as {priority, handle}, ordered by priority and then handle.
+    TreeSet<long[]> expected =
+        new TreeSet<>(
+            (x, y) -> (x[0] != y[0]) ? Long.compare(x[0], y[0]) : Long.compare(x[1], y[1]));
+    long[][] byHandle = new long[4096][];
+    List<Integer> handles = new ArrayList<>();
+    for (int i = 0; i < 100000; i++) {
+      // Start with enough adds to make the heap several levels deep, then keep its size level.
+      int operation = (i < 500) ? 0 : random.nextInt(10);
+      if (handles.isEmpty() || operation < 3) {
+        long priority = random.nextInt(1000);
+        int handle = heap.add(priority, i);
+        assertFalse(handles.contains(handle));
+        handles.add(handle);
+        byHandle[handle] = new long[] {priority, handle, i};
+        expected.add(byHandle[handle]);
+      } else if (operation < 5) {
+        long[] least = expected.pollFirst();
+        assertEquals(least[0], heap.peekPriority());
+        int value = heap.removeMin();
+        // Entries of equal priority may come out in any order.
+        long[] removed = (value == least[2]) ? least : findByValue(byHandle, handles, value);
+        if (removed != least) {
+          assertEquals(least[0], removed[0]);
+          expected.remove(removed);
+          expected.add(least);
+        }
+        handles.remove(Integer.valueOf((int) removed[1]));
+      } else {
+        int handle = handles.get(random.nextInt(handles.size()));
+        long[] entry = byHandle[handle];
+        assertEquals(entry[0], heap.priority(handle));
+        expected.remove(entry);
+        if (operation < 7) {
+          entry[0] -= random.nextInt(100);
+          heap.decreasePriority(handle, entry[0]);
+        } else if (operation < 9) {
+          entry[0] = random.nextInt(1000);
+          heap.setPriority(handle, entry[0]);
+        } else {
+          heap.remove(handle);
+          handles.remove(Integer.valueOf(handle));
+          continue;
+        }
+        expected.add(entry);
+      }
+      assertEquals(expected.size(), heap.size());
+      if (!expected.isEmpty()) {
+        assertEquals(expected.first()[0], heap.peekPriority());
+      }
+    }
+  }
+
+  private static long[] findByValue(long[][] byHandle, List<Integer> handles, int value) {
+    for (int handle : handles) {
+      if (byHandle[handle][2] == value) {
+        return byHandle[handle];
+      }
+    }
+    throw new AssertionError(value);
+  }
+
+  /** Checks shortest path lengths on a random graph against a lazy-deletion PriorityQueue. */
+  public void testDijkstra() {
+    Random random = new Random(0);
+    int n = 2000;
+    int[][] targets = new int[n][];
+    long[][] weights = new long[n][];
+    for (int v = 0; v < n; v++) {
+      int degree = random.nextInt(8);
+      targets[v] = new int[degree];
+      weights[v] = new long[degree];
+      for (int e = 0; e < degree; e++) {
+        targets[v][e] = random.nextInt(n);
+        weights[v][e] = random.nextInt(1000);
+      }
+    }
+
+    long[] distance = new long[n];
+    Arrays.fill(distance, Long.MAX_VALUE);
+    int[] handles = new int[n];
+    Arrays.fill(handles, -1);
+    LongMinHeap heap = LongMinHeap.withExpectedSize(n);
+    distance[0] = 0;
+    handles[0] = heap.add(0, 0);
+    while (!heap.isEmpty()) {
+      int v = heap.removeMin();
+      handles[v] = -1;
+      for (int e = 0; e < targets[v].length; e++) {
+        int w = targets[v][e];
+        long d = distance[v] + weights[v][e];
+        if (d < distance[w]) {
+          distance[w] = d;
+          if (handles[w] < 0) {
+            handles[w] = heap.add(d, w);
+          } else {
+            heap.decreasePriority(handles[w], d);
+          }
+        }
+      }
+    }
+
+    long[] expected = new long[n];
+    Arrays.fill(expected, Long.MAX_VALUE);
+    expected[0] = 0;
+    PriorityQueue<long[]> queue = new PriorityQueue<>((x, y) -> Long.compare(x[0], y[0]));
+    queue.add(new long[] {0, 0});
+    while (!queue.isEmpty()) {
+      long[] entry = queue.poll();
+      int v = (int) entry[1];
+      if (entry[0] > expected[v]) {
+        continue;
+      }
+      for (int e = 0; e < targets[v].length; e++) {
+        int w = targets[v][e];
+        long d = expected[v] + weights[v][e];
+        if (d < expected[w]) {
+          expected[w] = d;
+          queue.add(new long[] {d, w});
+        }
+      }
+    }
+    assertTrue(Arrays.equals(expected, distance));
+  }
+}
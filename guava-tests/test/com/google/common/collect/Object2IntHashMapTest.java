@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.google.MultisetTestSuiteBuilder;
+import com.google.common.collect.testing.google.TestStringMultisetGenerator;
+import java.util.Iterator;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/** Unit tests for {@link Object2IntHashMap} and its multiset view. */
+public class Object2IntHashMapTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTest(
+        MultisetTestSuiteBuilder.using(
+                new TestStringMultisetGenerator() {
+                  @Override
+                  protected Multiset<String> create(String[] elements) {
+                    Multiset<String> multiset = new Object2IntHashMap<String>(0).asMultiset();
+                    Iterators.addAll(multiset, Iterators.forArray(elements));
+                    return multiset;
+                  }
+                })
+            .withFeatures(CollectionSize.ANY, CollectionFeature.GENERAL_PURPOSE)
+            .named("Object2IntHashMap.asMultiset")
+            .createTestSuite());
+    suite.addTestSuite(Object2IntHashMapTest.class);
+    return suite;
+  }
+
+  public void testPutGet() {
+    Object2IntHashMap<String> map = new Object2IntHashMap<>(-1);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(-1, map.put("key" + i, i));
+    }
+    assertEquals(1000, map.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, map.getValue("key" + i));
+    }
+    assertEquals(-1, map.getValue("absent"));
+    assertNull(map.get("absent"));
+    assertEquals(Integer.valueOf(7), map.get("key7"));
+    try {
+      map.put("key", -1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testAddAndGet() {
+    Object2IntHashMap<String> map = new Object2IntHashMap<>();
+    assertEquals(1, map.increment("a"));
+    assertEquals(2, map.increment("a"));
+    assertEquals(7, map.addAndGet("a", 5));
+    assertEquals(7, map.getAndAdd("b", 3) + 7);
+    assertEquals(2, map.size());
+
+    assertEquals(3, map.getAndAdd("b", -3));
+    assertFalse(map.containsKey("b"));
+    assertEquals(0, map.addAndGet("c", 0));
+    assertFalse(map.containsKey("c"));
+    assertEquals(-1, map.decrement("d"));
+    assertEquals(-1, map.getValue("d"));
+    assertEquals(2, map.size());
+  }
+
+  public void testRemoveAndCompact() {
+    Object2IntHashMap<Integer> map = new Object2IntHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.increment(i);
+    }
+    for (Iterator<Integer> keys = map.keySet().iterator(); keys.hasNext(); ) {
+      if (keys.next() >= 10) {
+        keys.remove();
+      }
+    }
+    assertEquals(Integer.MIN_VALUE, map.removeKey(500));
+    assertEquals(1, map.removeKey(9));
+    map.compact();
+    assertEquals(9, map.size());
+    assertEquals(16, map.capacity());
+    for (int i = 0; i < 9; i++) {
+      assertEquals(1, map.getValue(i));
+    }
+  }
+
+  public void testComputeIntIfAbsent() {
+    Object2IntHashMap<String> map = new Object2IntHashMap<>(-1);
+    assertEquals(5, map.computeIntIfAbsent("alpha", String::length));
+    assertEquals(5, map.computeIntIfAbsent("alpha", k -> 0));
+    assertEquals(-1, map.computeIntIfAbsent("beta", k -> -1));
+    assertFalse(map.containsKey("beta"));
+    // the boxed Map method remains callable with a lambda
+    assertEquals(Integer.valueOf(4), map.computeIfAbsent("beta", k -> k.length()));
+    assertEquals(ImmutableMap.of("alpha", 5, "beta", 4), map);
+  }
+
+  public void testObjIntForEach() {
+    Object2IntHashMap<String> map = new Object2IntHashMap<>();
+    map.addAndGet("a", 1);
+    map.addAndGet("b", 2);
+    final Object2IntHashMap<String> copy = new Object2IntHashMap<>();
+    map.objIntForEach(copy::put);
+    assertEquals(map, copy);
+    assertEquals(ImmutableMap.of("a", 1, "b", 2), map);
+    assertEquals(ImmutableMap.of("a", 1, "b", 2).hashCode(), map.hashCode());
+  }
+
+  public void testAsMultiset() {
+    Object2IntHashMap<String> map = new Object2IntHashMap<>();
+    Multiset<String> multiset = map.asMultiset();
+    multiset.add("a", 3);
+    map.increment("b");
+    map.put("c", -5);
+    assertEquals(4, multiset.size());
+    assertEquals(3, multiset.count("a"));
+    assertEquals(0, multiset.count("c"));
+    assertEquals(ImmutableMultiset.of("a", "a", "a", "b"), multiset);
+
+    multiset.setCount("a", 0);
+    assertFalse(map.containsKey("a"));
+    multiset.remove("b");
+    assertEquals(ImmutableMap.of("c", -5), map);
+  }
+}
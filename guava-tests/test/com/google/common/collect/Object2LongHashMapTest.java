@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import java.util.Iterator;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link Object2LongHashMap}. */
+public class Object2LongHashMapTest extends TestCase {
+
+  public void testPutGet() {
+    Object2LongHashMap<String> map = new Object2LongHashMap<>(-1);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(-1, map.put("key" + i, (1L << 40) + i));
+    }
+    assertEquals(1000, map.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals((1L << 40) + i, map.getValue("key" + i));
+    }
+    assertEquals(-1, map.getValue("absent"));
+    assertNull(map.get("absent"));
+    assertEquals(Long.valueOf((1L << 40) + 7), map.get("key7"));
+    assertTrue(map.containsValue((1L << 40) + 7));
+    assertFalse(map.containsValue(7L));
+    try {
+      map.put("key", -1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testAddAndGet() {
+    Object2LongHashMap<String> map = new Object2LongHashMap<>();
+    assertEquals(1L << 40, map.addAndGet("a", 1L << 40));
+    assertEquals((1L << 40) + 1, map.increment("a"));
+    assertEquals(Long.MIN_VALUE, map.getValue("b"));
+    assertEquals(0, map.getAndAdd("b", 3));
+    assertEquals(3, map.getAndAdd("b", -3));
+    assertFalse(map.containsKey("b"));
+    assertEquals(0, map.addAndGet("a", -((1L << 40) + 1)));
+    assertTrue(map.isEmpty());
+    assertEquals(-1, map.decrement("c"));
+    assertEquals(-1, map.getValue("c"));
+    assertEquals(1, map.size());
+  }
+
+  public void testRemoveAndCompact() {
+    Object2LongHashMap<Integer> map = new Object2LongHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.increment(i);
+    }
+    for (Iterator<Integer> keys = map.keySet().iterator(); keys.hasNext(); ) {
+      if (keys.next() >= 10) {
+        keys.remove();
+      }
+    }
+    assertEquals(Long.MIN_VALUE, map.removeKey(500));
+    assertEquals(1, map.removeKey(9));
+    assertEquals(Long.valueOf(1), map.remove(8));
+    map.compact();
+    assertEquals(8, map.size());
+    assertEquals(16, map.capacity());
+    for (int i = 0; i < 8; i++) {
+      assertEquals(1, map.getValue(i));
+    }
+  }
+
+  public void testComputeLongIfAbsent() {
+    Object2LongHashMap<String> map = new Object2LongHashMap<>(-1);
+    assertEquals(5, map.computeLongIfAbsent("alpha", String::length));
+    assertEquals(5, map.computeLongIfAbsent("alpha", k -> 0));
+    assertEquals(-1, map.computeLongIfAbsent("beta", k -> -1));
+    assertFalse(map.containsKey("beta"));
+    // the boxed Map method remains callable with a lambda
+    assertEquals(Long.valueOf(4), map.computeIfAbsent("beta", k -> (long) k.length()));
+    assertEquals(ImmutableMap.of("alpha", 5L, "beta", 4L), map);
+  }
+
+  public void testObjLongForEach() {
+    Object2LongHashMap<String> map = new Object2LongHashMap<>();
+    map.addAndGet("a", 1);
+    map.addAndGet("b", 1L << 40);
+    final Object2LongHashMap<String> copy = new Object2LongHashMap<>();
+    map.objLongForEach(copy::put);
+    assertEquals(map, copy);
+    assertEquals(ImmutableMap.of("a", 1L, "b", 1L << 40), map);
+    assertEquals(ImmutableMap.of("a", 1L, "b", 1L << 40).hashCode(), map.hashCode());
+  }
+}
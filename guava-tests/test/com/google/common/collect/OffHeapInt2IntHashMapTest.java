@@ -0,0 +1,124 @@
+package com.google.common.collect;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+
+/**
+ * Unit test for {@code OffHeapInt2IntHashMap}.
+ */
+public class OffHeapInt2IntHashMapTest extends TestCase {
+
+    public void testPutGet(){
+        try (OffHeapInt2IntHashMap map = new OffHeapInt2IntHashMap(8, 0.75f, -1)) {
+            for(int i = 0; i < 1000; i++){
+                Assert.assertEquals(-1, map.put(i << 16, i));
+            }
+            Assert.assertEquals(1000, map.size());
+            for(int i = 0; i < 1000; i++){
+                Assert.assertEquals(i, map.get(i << 16));
+                Assert.assertEquals(-1, map.get(i << 16 | 1));
+            }
+            Assert.assertEquals(5, map.put(5 << 16, 6));
+            Assert.assertEquals(6, map.get(5 << 16));
+            Assert.assertEquals(999, map.maxValue());
+            Assert.assertEquals(0, map.minValue());
+            try {
+                map.put(1, -1);
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    public void testMatchesHashMap(){
+        Random random = new Random(0);
+        Map<Integer, Integer> expected = new HashMap<>();
+        try (OffHeapInt2IntHashMap map = new OffHeapInt2IntHashMap()) {
+            for(int i = 0; i < 20000; i++){
+                int key = random.nextInt(5000) - 100;
+                switch (random.nextInt(3)) {
+                    case 0:
+                        Assert.assertEquals(expected.put(key, i), map.put((Integer) key, (Integer) i));
+                        break;
+                    case 1:
+                        Assert.assertEquals(expected.remove(key), map.remove((Object) key));
+                        break;
+                    default:
+                        int value = expected.merge(key, 1, Integer::sum);
+                        if (value == 0) {
+                            expected.remove(key);
+                        }
+                        Assert.assertEquals(value, map.increment(key));
+                }
+            }
+            Assert.assertEquals(expected, map);
+            Assert.assertEquals(map, expected);
+
+            for (Iterator<Map.Entry<Integer, Integer>> i = map.entrySet().iterator(); i.hasNext(); ) {
+                Map.Entry<Integer, Integer> entry = i.next();
+                if (entry.getKey() % 3 == 0) {
+                    i.remove();
+                    expected.remove(entry.getKey());
+                } else if (entry.getKey() % 3 == 1) {
+                    Assert.assertEquals(expected.get(entry.getKey()), entry.setValue(-entry.getValue()));
+                    expected.put(entry.getKey(), entry.getValue());
+                }
+            }
+            Assert.assertEquals(expected, map);
+
+            map.compact();
+            Assert.assertEquals(expected, map);
+            Map<Integer, Integer> visited = new HashMap<>();
+            map.intForEach(visited::put);
+            Assert.assertEquals(expected, visited);
+        }
+    }
+
+    public void testAddAndGet(){
+        try (OffHeapInt2IntHashMap map = new OffHeapInt2IntHashMap(8, 0.75f, 0)) {
+            Assert.assertEquals(3, map.addAndGet(7, 3));
+            Assert.assertEquals(3, map.getAndAdd(7, -3));
+            Assert.assertFalse(map.containsKey(7));
+            Assert.assertEquals(0, map.size());
+        }
+    }
+
+    public void testSnapshot() throws IOException {
+        Path directory = Files.createTempDirectory("OffHeapInt2IntHashMapTest");
+        Path snapshot = directory.resolve("snapshot");
+        Path file = directory.resolve("map");
+        try {
+            try (OffHeapInt2IntHashMap map = OffHeapInt2IntHashMap.create(file, 8, 0.5f, Integer.MIN_VALUE)) {
+                for(int i = 0; i < 10000; i++){
+                    map.put(i, -i);
+                }
+                map.writeTo(snapshot);
+                map.put(10000, 0);
+            }
+
+            try (OffHeapInt2IntHashMap mapped = OffHeapInt2IntHashMap.map(file);
+                OffHeapInt2IntHashMap loaded = OffHeapInt2IntHashMap.load(snapshot)) {
+                Assert.assertTrue(mapped.isMapped());
+                Assert.assertFalse(loaded.isMapped());
+                Assert.assertEquals(0.5f, loaded.loadFactor(), 0f);
+                Assert.assertEquals(10001, mapped.size());
+                Assert.assertEquals(10000, loaded.size());
+                loaded.put(10000, 0);
+                Assert.assertEquals(loaded, mapped);
+                Assert.assertEquals(-9999, mapped.get(9999));
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.google.common.collect;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+
+/**
+ * Unit test for {@code OffHeapIntHashSet}.
+ */
+public class OffHeapIntHashSetTest extends TestCase {
+
+    private Path directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("OffHeapIntHashSetTest");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    public void testAddRemoveContains(){
+        try (OffHeapIntHashSet set = new OffHeapIntHashSet()) {
+            Assert.assertFalse(set.isMapped());
+            for(int i = 0; i < 1000; i++){
+                Assert.assertTrue(set.add(i * 7));
+                Assert.assertFalse(set.add(i * 7));
+            }
+            Assert.assertEquals(1000, set.size());
+            Assert.assertTrue(set.contains(0));
+            Assert.assertTrue(set.contains(6993));
+            Assert.assertFalse(set.contains(6994));
+            Assert.assertTrue(set.remove(0));
+            Assert.assertFalse(set.remove(0));
+            Assert.assertTrue(set.remove((Object) 7));
+            Assert.assertEquals(998, set.size());
+            Assert.assertEquals(2048, set.capacity());
+            Assert.assertEquals(8192, set.tableBytes());
+        }
+    }
+
+    public void testMatchesHashSet(){
+        Random random = new Random(0);
+        Set<Integer> expected = new HashSet<>();
+        try (OffHeapIntHashSet set = new OffHeapIntHashSet()) {
+            for(int i = 0; i < 20000; i++){
+                int value = random.nextInt(5000) - 100;
+                if (random.nextBoolean()) {
+                    Assert.assertEquals(expected.add(value), set.add(value));
+                } else {
+                    Assert.assertEquals(expected.remove(value), set.remove(value));
+                }
+            }
+            Assert.assertEquals(expected, set);
+            Assert.assertEquals(expected.hashCode(), set.hashCode());
+
+            for (Iterator<Integer> i = set.iterator(); i.hasNext(); ) {
+                int value = i.next();
+                if (value % 3 == 0) {
+                    i.remove();
+                    expected.remove(value);
+                }
+            }
+            Assert.assertEquals(expected, set);
+
+            set.compact();
+            Assert.assertEquals(expected, set);
+            set.clear();
+            Assert.assertTrue(set.isEmpty());
+            Assert.assertFalse(set.contains(1));
+        }
+    }
+
+    public void testSnapshot() throws IOException {
+        Path snapshot = directory.resolve("snapshot");
+        try (OffHeapIntHashSet set = new OffHeapIntHashSet()) {
+            for(int i = 0; i < 1000; i++){
+                set.add(i);
+            }
+            set.writeTo(snapshot);
+        }
+
+        try (OffHeapIntHashSet loaded = OffHeapIntHashSet.load(snapshot)) {
+            Assert.assertFalse(loaded.isMapped());
+            Assert.assertEquals(1000, loaded.size());
+            Assert.assertTrue(loaded.contains(0));
+            Assert.assertTrue(loaded.contains(999));
+            loaded.add(1000);
+        }
+
+        try (OffHeapIntHashSet mapped = OffHeapIntHashSet.map(snapshot)) {
+            Assert.assertTrue(mapped.isMapped());
+            Assert.assertEquals(1000, mapped.size());
+            Assert.assertFalse(mapped.contains(1000));
+        }
+    }
+
+    public void testMappedSetGrowsAndPersists() throws IOException {
+        Path file = directory.resolve("set");
+        try (OffHeapIntHashSet set = OffHeapIntHashSet.create(file, 8, 0.75f)) {
+            for(int i = -5000; i < 5000; i++){
+                set.add(i);
+            }
+            Assert.assertEquals(16384, set.capacity());
+        }
+
+        try (OffHeapIntHashSet set = OffHeapIntHashSet.map(file)) {
+            Assert.assertEquals(10000, set.size());
+            for(int i = -5000; i < 5000; i++){
+                Assert.assertTrue(set.contains(i));
+            }
+            set.remove(0);
+            set.flush();
+            try (OffHeapIntHashSet copy = OffHeapIntHashSet.load(file)) {
+                Assert.assertEquals(set, copy);
+                Assert.assertFalse(copy.contains(0));
+            }
+        }
+        Assert.assertEquals(1, directory.toFile().list().length);
+    }
+
+    public void testRejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("map");
+        try (OffHeapInt2IntHashMap map = OffHeapInt2IntHashMap.create(file, 8, 0.75f, -1)) {
+            map.put(1, 1);
+        }
+        try {
+            OffHeapIntHashSet.load(file);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    public void testClosed(){
+        OffHeapIntHashSet set = new OffHeapIntHashSet();
+        set.add(1);
+        set.close();
+        set.close();
+        try {
+            set.contains(1);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
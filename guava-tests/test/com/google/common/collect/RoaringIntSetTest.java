@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.SerializableTester;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link RoaringIntSet}. */
+@GwtIncompatible
+public class RoaringIntSetTest extends TestCase {
+  public void testAddRemoveContains() {
+    RoaringIntSet set = RoaringIntSet.create();
+    assertTrue(set.isEmpty());
+    assertTrue(set.add(5));
+    assertFalse(set.add(5));
+    assertTrue(set.add(-5));
+    assertTrue(set.add(Integer.MIN_VALUE));
+    assertTrue(set.add(Integer.MAX_VALUE));
+    assertEquals(4, set.size());
+    assertTrue(set.contains(-5));
+    assertTrue(set.contains((Object) Integer.MAX_VALUE));
+    assertFalse(set.contains(6));
+    assertFalse(set.contains("5"));
+    assertEquals("[-2147483648, -5, 5, 2147483647]", set.toString());
+    assertEquals(Integer.MIN_VALUE, set.first());
+    assertEquals(Integer.MAX_VALUE, set.last());
+    assertTrue(set.remove(5));
+    assertFalse(set.remove(5));
+    assertEquals(ImmutableSet.of(-5, Integer.MIN_VALUE, Integer.MAX_VALUE), set);
+    set.clear();
+    assertTrue(set.isEmpty());
+    try {
+      set.first();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+  }
+
+  public void testRandomAgainstTreeSet() {
+    Random random = new Random(0);
+    // dense and sparse values, so that containers change between arrays and bitmaps
+    for (int bound : new int[] {1 << 12, 1 << 16, 1 << 20}) {
+      RoaringIntSet set = RoaringIntSet.create();
+      TreeSet<Integer> expected = new TreeSet<>();
+      for (int i = 0; i < 50000; i++) {
+        int value = random.nextInt(bound) - bound / 2;
+        if (random.nextInt(3) == 0) {
+          assertEquals(expected.remove(value), set.remove(value));
+        } else {
+          assertEquals(expected.add(value), set.add(value));
+        }
+      }
+      assertSameSet(expected, set);
+      set.runOptimize();
+      assertSameSet(expected, set);
+    }
+  }
+
+  public void testRankAndSelect() {
+    Random random = new Random(1);
+    RoaringIntSet set = randomSet(random, 1 << 18, 40000);
+    set.addRange(Range.closed(1 << 20, (1 << 20) + 100000));
+    set.runOptimize();
+    int[] values = set.toIntArray();
+    for (int i = 0; i < values.length; i += 97) {
+      assertEquals(values[i], set.select(i));
+      assertEquals(i + 1, set.rank(values[i]));
+      assertEquals(i, set.rank(values[i] - 1));
+    }
+    assertEquals(0, set.rank(Integer.MIN_VALUE));
+    assertEquals(values.length, set.rank(Integer.MAX_VALUE));
+    try {
+      set.select(values.length);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  public void testSetAlgebra() {
+    Random random = new Random(2);
+    for (int bound : new int[] {1 << 14, 1 << 17, 1 << 22}) {
+      RoaringIntSet a = randomSet(random, bound, 30000);
+      RoaringIntSet b = randomSet(random, bound, 30000);
+      b.addRange(Range.closedOpen(-70000, 70000));
+      b.runOptimize();
+      Set<Integer> x = new TreeSet<>(a);
+      Set<Integer> y = new TreeSet<>(b);
+
+      assertSameSet(Sets.intersection(x, y), RoaringIntSet.and(a, b));
+      assertSameSet(Sets.union(x, y), RoaringIntSet.or(a, b));
+      assertSameSet(Sets.difference(x, y), RoaringIntSet.andNot(a, b));
+      assertSameSet(Sets.difference(y, x), RoaringIntSet.andNot(b, a));
+      assertSameSet(Sets.symmetricDifference(x, y), RoaringIntSet.xor(a, b));
+      assertEquals(Sets.intersection(x, y).size(), RoaringIntSet.andCardinality(a, b));
+      assertEquals(!Sets.intersection(x, y).isEmpty(), RoaringIntSet.intersects(a, b));
+      // the inputs are unchanged
+      assertSameSet(x, a);
+      assertSameSet(y, b);
+
+      RoaringIntSet c = RoaringIntSet.copyOf(a);
+      assertTrue(c.addAll(b));
+      assertSameSet(Sets.union(x, y), c);
+      assertTrue(c.retainAll(a));
+      assertSameSet(x, c);
+      assertEquals(!Sets.intersection(x, y).isEmpty(), c.removeAll(b));
+      assertSameSet(Sets.difference(x, y), c);
+      assertSameSet(x, a);
+    }
+    assertFalse(RoaringIntSet.intersects(RoaringIntSet.of(1, 3), RoaringIntSet.of(2, 1 << 20)));
+  }
+
+  public void testRanges() {
+    RoaringIntSet set = RoaringIntSet.create();
+    RangeSet<Integer> expected = TreeRangeSet.create();
+    Random random = new Random(3);
+    for (int i = 0; i < 200; i++) {
+      int lower = random.nextInt(1 << 22) - (1 << 21);
+      Range<Integer> range = Range.closedOpen(lower, lower + random.nextInt(1 << 18));
+      if (random.nextInt(3) == 0) {
+        set.removeRange(range);
+        expected.remove(range);
+      } else {
+        set.addRange(range);
+        expected.add(range);
+      }
+    }
+    set.addRange(Range.atLeast(Integer.MAX_VALUE - 10));
+    expected.add(Range.atLeast(Integer.MAX_VALUE - 10));
+    set.addRange(Range.lessThan(Integer.MIN_VALUE + 10));
+    expected.add(Range.lessThan(Integer.MIN_VALUE + 10));
+    set.addRange(Range.closedOpen(5, 5));
+
+    RangeSet<Integer> canonical = TreeRangeSet.create();
+    for (Range<Integer> range : expected.asRanges()) {
+      canonical.add(range.canonical(DiscreteDomain.integers()));
+    }
+    assertEquals(
+        canonical.asRanges(),
+        ImmutableRangeSet.copyOf(set.toRangeSet())
+            .asRanges()
+            .stream()
+            .map(range -> range.canonical(DiscreteDomain.integers()))
+            .collect(ImmutableSet.toImmutableSet()));
+    assertEquals(set, RoaringIntSet.copyOf(expected));
+    long cardinality = 0;
+    for (Range<Integer> range : canonical.asRanges()) {
+      long upper = range.hasUpperBound() ? range.upperEndpoint() : Integer.MAX_VALUE + 1L;
+      cardinality += upper - range.lowerEndpoint();
+    }
+    assertEquals(cardinality, set.cardinality());
+
+    RoaringIntSet all = RoaringIntSet.create();
+    all.addRange(Range.all());
+    assertEquals(1L << 32, all.cardinality());
+    assertEquals(Integer.MAX_VALUE, all.size());
+    assertEquals(Integer.MAX_VALUE, all.select((1L << 32) - 1));
+    assertEquals(0, all.select(1L << 31));
+    all.removeRange(Range.closed(-10, 10));
+    assertEquals((1L << 32) - 21, all.cardinality());
+    assertFalse(all.contains(0));
+    assertEquals(
+        ImmutableRangeSet.builder()
+            .add(Range.closed(Integer.MIN_VALUE, -11))
+            .add(Range.closed(11, Integer.MAX_VALUE))
+            .build(),
+        all.toRangeSet());
+  }
+
+  public void testInterop() {
+    ContiguousSet<Integer> contiguous =
+        ContiguousSet.create(Range.closed(-100000, 100000), DiscreteDomain.integers());
+    RoaringIntSet set = RoaringIntSet.copyOf(contiguous);
+    assertEquals(contiguous, set);
+    assertEquals(ImmutableRangeSet.of(Range.closed(-100000, 100000)), set.toRangeSet());
+
+    IntHashSet hashSet = new IntHashSet();
+    Random random = new Random(4);
+    for (int i = 0; i < 10000; i++) {
+      hashSet.add(random.nextInt());
+    }
+    RoaringIntSet fromHashSet = RoaringIntSet.copyOf(hashSet);
+    assertEquals(hashSet, fromHashSet);
+    assertEquals(hashSet, fromHashSet.toIntHashSet());
+    assertEquals(new TreeSet<>(hashSet), fromHashSet);
+    assertEquals(new TreeSet<>(hashSet), ImmutableSortedSet.copyOf(fromHashSet));
+  }
+
+  public void testIteratorRemove() {
+    RoaringIntSet set = randomSet(new Random(5), 1 << 17, 20000);
+    TreeSet<Integer> expected = new TreeSet<>(set);
+    Iterator<Integer> iterator = set.iterator();
+    Iterator<Integer> expectedIterator = expected.iterator();
+    while (expectedIterator.hasNext()) {
+      Integer value = iterator.next();
+      assertEquals(expectedIterator.next(), value);
+      if (value % 3 == 0) {
+        iterator.remove();
+        expectedIterator.remove();
+      }
+    }
+    assertFalse(iterator.hasNext());
+    assertSameSet(expected, set);
+  }
+
+  public void testWriteToAndMap() {
+    Random random = new Random(6);
+    RoaringIntSet set = randomSet(random, 1 << 20, 100000);
+    set.addAll(randomSet(random, 1 << 12, 3000));
+    set.addRange(Range.closedOpen(1 << 24, (1 << 24) + 300000));
+    set.runOptimize();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(set.serializedSizeInBytes() + 3);
+    buffer.position(3);
+    set.writeTo(buffer);
+    assertFalse(buffer.hasRemaining());
+    buffer.position(3);
+
+    RoaringIntSet mapped = RoaringIntSet.map(buffer);
+    assertTrue(mapped.isMapped());
+    assertEquals(set, mapped);
+    assertEquals(mapped, set);
+    assertEquals(set.hashCode(), mapped.hashCode());
+    assertEquals(set.cardinality(), mapped.cardinality());
+    for (int i = 0; i < 10000; i++) {
+      int value = random.nextInt(1 << 26) - (1 << 20);
+      assertEquals(set.contains(value), mapped.contains(value));
+      assertEquals(set.rank(value), mapped.rank(value));
+    }
+    assertEquals(set.select(12345), mapped.select(12345));
+    assertEquals(set.last(), mapped.last());
+    assertEquals(set.toRangeSet(), mapped.toRangeSet());
+    assertEquals(set, ImmutableSet.copyOf(mapped));
+    RoaringIntSet other = randomSet(random, 1 << 20, 1000);
+    assertEquals(RoaringIntSet.or(set, other), RoaringIntSet.or(mapped, other));
+    assertEquals(RoaringIntSet.andNot(other, set), RoaringIntSet.andNot(other, mapped));
+
+    try {
+      mapped.add(1);
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    RoaringIntSet copy = RoaringIntSet.copyOf(mapped);
+    assertFalse(copy.isMapped());
+    copy.add(-1);
+    assertEquals(set.size() + (set.contains(-1) ? 0 : 1), copy.size());
+
+    ByteBuffer rewritten = ByteBuffer.allocate(mapped.serializedSizeInBytes());
+    mapped.writeTo(rewritten);
+    rewritten.flip();
+    assertEquals(set, RoaringIntSet.map(rewritten));
+
+    try {
+      RoaringIntSet.map(ByteBuffer.allocate(16));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testEqualsAndSerialization() {
+    RoaringIntSet runs = RoaringIntSet.create();
+    runs.addRange(Range.closed(0, 9999));
+    RoaringIntSet bitmap = RoaringIntSet.create();
+    for (int i = 0; i < 10000; i++) {
+      bitmap.add(i);
+    }
+    new EqualsTester()
+        .addEqualityGroup(runs, bitmap, ContiguousSet.closed(0, 9999))
+        .addEqualityGroup(RoaringIntSet.of(1, 2), ImmutableSet.of(1, 2))
+        .addEqualityGroup(RoaringIntSet.create(), ImmutableSet.of())
+        .testEquals();
+    SerializableTester.reserializeAndAssert(runs);
+    SerializableTester.reserializeAndAssert(RoaringIntSet.of(3, -3, 1 << 30));
+  }
+
+  private static RoaringIntSet randomSet(Random random, int bound, int count) {
+    RoaringIntSet set = RoaringIntSet.create();
+    for (int i = 0; i < count; i++) {
+      set.add(random.nextInt(bound) - bound / 2);
+    }
+    return set;
+  }
+
+  private static void assertSameSet(Set<Integer> expected, RoaringIntSet actual) {
+    assertEquals(expected.size(), actual.size());
+    List<Integer> values = new ArrayList<>();
+    actual.forEachInt(values::add);
+    assertEquals(ImmutableList.copyOf(new TreeSet<>(expected)), values);
+    assertEquals(values, ImmutableList.copyOf(actual));
+    assertEquals(expected, actual);
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collector;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+
+import com.google.common.collect.Int2IntHashMap;
+import com.google.common.collect.IntArrayList;
+import com.google.common.collect.IntHashSet;
+import com.google.common.collect.Long2LongHashMap;
+import com.google.common.primitives.DoubleArrayList;
+import com.google.common.primitives.ImmutableDoubleArray;
+import com.google.common.primitives.ImmutableIntArray;
+import com.google.common.primitives.ImmutableLongArray;
+import com.google.common.primitives.LongArrayList;
+import java.util.Map;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+
+/**
+ * Unit test for the collectors of primitive streams in {@code PrimitiveCollectors}.
+ */
+public class PrimitiveCollectorsTest extends TestCase {
+
+    private static final int N = 10_000;
+
+    public void testIntsToIntArrayList(){
+        IntArrayList list = PrimitiveCollectors.intsToIntArrayList()
+                .collect(IntStream.range(0, N).parallel());
+        Assert.assertEquals(N, list.size());
+        for(int i = 0; i < N; i++){
+            Assert.assertEquals(i, list.getInt(i));
+        }
+    }
+
+    public void testIntsToImmutableIntArray(){
+        Assert.assertEquals(ImmutableIntArray.copyOf(IntStream.range(0, N)),
+                PrimitiveCollectors.intsToImmutableIntArray()
+                        .collect(IntStream.range(0, N).parallel()));
+        Assert.assertEquals(ImmutableIntArray.of(),
+                PrimitiveCollectors.intsToImmutableIntArray().collect(IntStream.empty()));
+    }
+
+    public void testIntsToIntHashSet(){
+        IntHashSet set = PrimitiveCollectors.intsToIntHashSet()
+                .collect(IntStream.range(0, N).parallel().map(i -> i % 100));
+        Assert.assertEquals(100, set.size());
+        for(int i = 0; i < 100; i++){
+            Assert.assertTrue(set.contains(i));
+        }
+    }
+
+    public void testIntsToInt2IntHashMap(){
+        Int2IntHashMap map = PrimitiveCollectors.intsToInt2IntHashMap(i -> i, i -> -i)
+                .collect(IntStream.range(0, N).parallel());
+        Assert.assertEquals(N, map.size());
+        for(int i = 0; i < N; i++){
+            Assert.assertEquals(-i, map.get(i));
+        }
+    }
+
+    public void testIntsToInt2IntHashMap_duplicateKey(){
+        try {
+            PrimitiveCollectors.intsToInt2IntHashMap(i -> i % 10, i -> i)
+                    .collect(IntStream.range(0, 20));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testToInt2IntHashMap(){
+        Int2IntHashMap map = Stream.of("a", "bb", "ccc")
+                .collect(PrimitiveCollectors.toInt2IntHashMap(String::length, String::hashCode));
+        Assert.assertEquals(3, map.size());
+        Assert.assertEquals("bb".hashCode(), map.get(2));
+        try {
+            Stream.of("a", "b").collect(
+                    PrimitiveCollectors.toInt2IntHashMap(String::length, String::hashCode));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testIntsCounting(){
+        Map<Integer, Long> expected = IntStream.range(0, N).map(i -> i % 37).boxed()
+                .collect(groupingBy(identity(), counting()));
+        Int2IntHashMap counts = PrimitiveCollectors.intsCounting()
+                .collect(IntStream.range(0, N).parallel().map(i -> i % 37));
+        Assert.assertEquals(expected.size(), counts.size());
+        expected.forEach((k, v) -> Assert.assertEquals(v.intValue(), counts.get((int) k)));
+        Assert.assertEquals(0, counts.get(37));
+    }
+
+    public void testIntsCountingBy(){
+        Int2IntHashMap counts = PrimitiveCollectors.intsCountingBy(i -> i & 1)
+                .collect(IntStream.range(0, 11));
+        Assert.assertEquals(2, counts.size());
+        Assert.assertEquals(6, counts.get(0));
+        Assert.assertEquals(5, counts.get(1));
+    }
+
+    public void testLongsToLongArrayList(){
+        LongArrayList list = PrimitiveCollectors.longsToLongArrayList()
+                .collect(LongStream.range(0, N).parallel().map(i -> i << 32));
+        Assert.assertEquals(N, list.size());
+        for(int i = 0; i < N; i++){
+            Assert.assertEquals((long) i << 32, list.getLong(i));
+        }
+    }
+
+    public void testLongsToImmutableLongArray(){
+        Assert.assertEquals(ImmutableLongArray.copyOf(LongStream.range(0, N)),
+                PrimitiveCollectors.longsToImmutableLongArray()
+                        .collect(LongStream.range(0, N).parallel()));
+    }
+
+    public void testLongsToLongHashSet(){
+        Assert.assertEquals(100, PrimitiveCollectors.longsToLongHashSet()
+                .collect(LongStream.range(0, N).parallel().map(i -> i % 100)).size());
+    }
+
+    public void testLongsCounting(){
+        Long2LongHashMap counts = PrimitiveCollectors.longsCounting()
+                .collect(LongStream.range(0, N).parallel().map(i -> (i % 3) << 40));
+        Assert.assertEquals(3, counts.size());
+        Assert.assertEquals(3334L, counts.get(0L));
+        Assert.assertEquals(3333L, counts.get(1L << 40));
+        Assert.assertEquals(3333L, counts.get(2L << 40));
+        Assert.assertEquals(0L, counts.get(3L << 40));
+        Assert.assertEquals(2, PrimitiveCollectors.longsCountingBy(i -> i % 2)
+                .collect(LongStream.range(0, N)).size());
+    }
+
+    public void testDoublesToDoubleArrayList(){
+        DoubleArrayList list = PrimitiveCollectors.doublesToDoubleArrayList()
+                .collect(IntStream.range(0, N).parallel().asDoubleStream());
+        Assert.assertEquals(N, list.size());
+        for(int i = 0; i < N; i++){
+            Assert.assertEquals(i, list.getDouble(i), 0.0);
+        }
+    }
+
+    public void testDoublesToImmutableDoubleArray(){
+        Assert.assertEquals(ImmutableDoubleArray.of(0.5, 1.5),
+                PrimitiveCollectors.doublesToImmutableDoubleArray()
+                        .collect(DoubleStream.of(0.5, 1.5)));
+    }
+
+    public void testInt2IntHashMapAddAndGet(){
+        Int2IntHashMap map = new Int2IntHashMap(-1);
+        Assert.assertEquals(3, map.addAndGet(7, 3));
+        Assert.assertEquals(3, map.getAndAdd(7, 2));
+        Assert.assertEquals(6, map.increment(7));
+        Assert.assertEquals(0, map.addAndGet(7, -6));
+        Assert.assertFalse(map.containsKey(7));
+        Assert.assertEquals(0, map.size());
+        try {
+            map.addAndGet(8, -1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testInt2IntHashMapAddValues(){
+        Int2IntHashMap left = new Int2IntHashMap();
+        Int2IntHashMap right = new Int2IntHashMap(0);
+        for(int i = 0; i < 1000; i++){
+            left.put(i, i);
+            right.put(i + 500, -(i + 500));
+        }
+        left.addValues(right);
+        Assert.assertEquals(1000, left.size());
+        for(int i = 0; i < 500; i++){
+            Assert.assertEquals(i, left.get(i));
+            Assert.assertFalse(left.containsKey(i + 500));
+            Assert.assertEquals(-(i + 1000), left.get(i + 1000));
+        }
+    }
+}
@@ -30,6 +30,7 @@ import com.google.common.testing.SerializableTester;
 import com.google.common.util.concurrent.Uninterruptibles;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.math.RoundingMode;
 import java.util.ArrayList;
@@ -212,6 +213,87 @@ public class BloomFilterTest extends TestCase {
     assertEquals(expectedReportedFpp, actualReportedFpp, 0.00033);
   }
 
+  public void testCreateAndCheckBlockedBloomFilter() {
+    int numInsertions = 1000000;
+    BloomFilter<String> bf =
+        BloomFilter.createBlocked(Funnels.unencodedCharsFunnel(), numInsertions, 0.03);
+    assertEquals(0, bf.bitSize() % BloomFilterStrategies.BITS_PER_BLOCK);
+
+    // Insert "numInsertions" even numbers into the BF.
+    for (int i = 0; i < numInsertions * 2; i += 2) {
+      bf.put(Integer.toString(i));
+    }
+    assertApproximateElementCountGuess(bf, numInsertions);
+
+    // Assert that the BF "might" have all of the even numbers.
+    for (int i = 0; i < numInsertions * 2; i += 2) {
+      assertTrue(bf.mightContain(Integer.toString(i)));
+    }
+
+    // The false positives among the odd numbers are as many as expected, and no more than asked for
+    int numFpp = 0;
+    for (int i = 1; i < numInsertions * 2; i += 2) {
+      if (bf.mightContain(Integer.toString(i))) {
+        numFpp++;
+      }
+    }
+    double actualFpp = (double) numFpp / numInsertions;
+    assertThat(actualFpp).isLessThan(0.03);
+    assertEquals(actualFpp, bf.expectedFpp(), 0.002);
+  }
+
+  public void testBlockedFalsePositiveProbability() {
+    int numInsertions = 100000;
+    for (double fpp : new double[] {0.1, 0.01, 0.001}) {
+      BloomFilter<Integer> bf =
+          BloomFilter.createBlocked(Funnels.integerFunnel(), numInsertions, fpp);
+      for (int i = 0; i < numInsertions; i++) {
+        bf.put(i);
+      }
+      int numProbes = 2000000;
+      int numFpp = 0;
+      for (int i = numInsertions; i < numInsertions + numProbes; i++) {
+        if (bf.mightContain(i)) {
+          numFpp++;
+        }
+      }
+      // Allow for sampling error of a few standard deviations
+      assertThat((double) numFpp / numProbes).isLessThan(fpp * 1.1);
+      // The blocked filter needs more bits than an unblocked one, but not many more
+      assertThat(bf.bitSize()).isAtLeast(BloomFilter.optimalNumOfBits(numInsertions, fpp));
+      assertThat(bf.bitSize()).isAtMost(BloomFilter.optimalNumOfBits(numInsertions, fpp) * 5 / 4);
+    }
+  }
+
+  public void testOptimalBlockedSize() {
+    for (long n : new long[] {1, 10, 1000, 1000000, 100000000}) {
+      for (double fpp : new double[] {0.99, 0.5, 0.03, 1e-3, 1e-6, 1e-10, 1e-15}) {
+        long m = BloomFilter.optimalNumOfBlockedBits(n, fpp);
+        int k = BloomFilter.optimalNumOfBlockedHashFunctions(n, m);
+        assertEquals(0, m % BloomFilterStrategies.BITS_PER_BLOCK);
+        assertThat(m).isAtLeast(BloomFilter.optimalNumOfBits(n, fpp));
+        assertThat(BloomFilter.blockedFalsePositiveProbability(n, m, k)).isAtMost(fpp);
+        assertThat(k).isAtLeast(1);
+        assertThat(k).isAtMost(255);
+      }
+    }
+    assertEquals(0.0, BloomFilter.blockedFalsePositiveProbability(0, 512, 5));
+    try {
+      BloomFilter<String> unused =
+          BloomFilter.createBlocked(HashTestUtils.BAD_FUNNEL, Integer.MAX_VALUE, Double.MIN_VALUE);
+      fail("we can't represent such a large BF!");
+    } catch (IllegalArgumentException expected) {
+    }
+    // Blocking costs a few percent at 3%, and more at lower probabilities
+    assertEquals(1.03, blockingOverhead(1000000, 0.03), 0.01);
+    assertEquals(1.36, blockingOverhead(1000000, 1e-6), 0.01);
+  }
+
+  private static double blockingOverhead(long n, double fpp) {
+    long unblocked = BloomFilter.optimalNumOfBits(n, fpp);
+    return (double) BloomFilter.optimalNumOfBlockedBits(n, fpp) / unblocked;
+  }
+
   /** Sanity checking with many combinations of false positive rates and expected insertions */
   public void testBasic() {
     for (double fpr = 0.0000001; fpr < 0.1; fpr *= 10) {
@@ -523,14 +605,64 @@ public class BloomFilterTest extends TestCase {
     assertEquals(bf, BloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()), funnel));
   }
 
+  public void testBlockedSerialization() throws Exception {
+    Funnel<byte[]> funnel = Funnels.byteArrayFunnel();
+    BloomFilter<byte[]> bf = BloomFilter.createBlocked(funnel, 100, 0.01);
+    for (int i = 0; i < 100; i++) {
+      bf.put(Ints.toByteArray(i));
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    bf.writeTo(out);
+    assertEquals(BloomFilterStrategies.MURMUR128_BLOCKED.ordinal(), out.toByteArray()[0]);
+    BloomFilter<byte[]> read =
+        BloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()), funnel);
+    assertEquals(bf, read);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(read.mightContain(Ints.toByteArray(i)));
+    }
+
+    SerializableTester.reserializeAndAssert(bf);
+  }
+
+  public void testBlockedPutAll() {
+    BloomFilter<Integer> bf1 = BloomFilter.createBlocked(Funnels.integerFunnel(), 100, 0.01);
+    BloomFilter<Integer> bf2 = BloomFilter.createBlocked(Funnels.integerFunnel(), 100, 0.01);
+    bf1.put(1);
+    bf2.put(2);
+    assertTrue(bf1.isCompatible(bf2));
+    bf1.putAll(bf2);
+    assertTrue(bf1.mightContain(1));
+    assertTrue(bf1.mightContain(2));
+
+    BloomFilter<Integer> unblocked =
+        BloomFilter.create(
+            Funnels.integerFunnel(), 100, 0.01, BloomFilterStrategies.MURMUR128_MITZ_64);
+    assertFalse(bf1.isCompatible(unblocked));
+  }
+
+  public void testBlockedReadFromPartialBlock() {
+    // strategy, number of hash functions, number of longs, longs
+    byte[] bytes = new byte[1 + 1 + 4 + 3 * 8];
+    bytes[0] = (byte) BloomFilterStrategies.MURMUR128_BLOCKED.ordinal();
+    bytes[1] = 5;
+    bytes[5] = 3;
+    try {
+      BloomFilter.readFrom(new ByteArrayInputStream(bytes), Funnels.integerFunnel());
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
   /**
    * This test will fail whenever someone updates/reorders the BloomFilterStrategies constants. Only
    * appending a new constant is allowed.
    */
   public void testBloomFilterStrategies() {
-    assertThat(BloomFilterStrategies.values()).hasLength(2);
+    assertThat(BloomFilterStrategies.values()).hasLength(3);
     assertEquals(BloomFilterStrategies.MURMUR128_MITZ_32, BloomFilterStrategies.values()[0]);
     assertEquals(BloomFilterStrategies.MURMUR128_MITZ_64, BloomFilterStrategies.values()[1]);
+    assertEquals(BloomFilterStrategies.MURMUR128_BLOCKED, BloomFilterStrategies.values()[2]);
   }
 
   public void testNoRaceConditions() throws Exception {
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import junit.framework.TestCase;
+
+/** Tests for {@link CuckooFilter}. */
+public class CuckooFilterTest extends TestCase {
+  public void testPutAndMightContain() {
+    int numInsertions = 100000;
+    CuckooFilter<Integer> filter =
+        CuckooFilter.create(Funnels.integerFunnel(), numInsertions, 0.01);
+    for (int i = 0; i < numInsertions; i++) {
+      assertTrue(filter.put(i));
+    }
+    assertEquals(numInsertions, filter.size());
+    for (int i = 0; i < numInsertions; i++) {
+      assertTrue(filter.mightContain(i));
+    }
+
+    int numFpp = 0;
+    for (int i = numInsertions; i < numInsertions * 11; i++) {
+      if (filter.mightContain(i)) {
+        numFpp++;
+      }
+    }
+    double actualFpp = (double) numFpp / (numInsertions * 10);
+    assertThat(actualFpp).isLessThan(0.01);
+    assertEquals(actualFpp, filter.expectedFpp(), 0.001);
+  }
+
+  public void testRemove() {
+    int numInsertions = 10000;
+    CuckooFilter<Integer> filter = CuckooFilter.create(Funnels.integerFunnel(), numInsertions);
+    for (int i = 0; i < numInsertions; i++) {
+      filter.put(i);
+    }
+    for (int i = 0; i < numInsertions; i += 2) {
+      assertTrue(filter.remove(i));
+    }
+    assertEquals(numInsertions / 2, filter.size());
+    for (int i = 1; i < numInsertions; i += 2) {
+      assertTrue(filter.mightContain(i));
+    }
+    int stillContained = 0;
+    for (int i = 0; i < numInsertions; i += 2) {
+      if (filter.mightContain(i)) {
+        stillContained++;
+      }
+    }
+    assertThat(stillContained).isLessThan(numInsertions / 2 / 10);
+  }
+
+  public void testRemoveAbsent() {
+    CuckooFilter<Integer> filter = CuckooFilter.create(Funnels.integerFunnel(), 100, 1e-6);
+    filter.put(1);
+    assertFalse(filter.remove(2));
+    assertTrue(filter.remove(1));
+    assertFalse(filter.remove(1));
+    assertFalse(filter.mightContain(1));
+    assertEquals(0, filter.size());
+  }
+
+  public void testDuplicates() {
+    CuckooFilter<String> filter = CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100);
+    filter.put("a");
+    filter.put("a");
+    assertEquals(2, filter.size());
+    assertTrue(filter.remove("a"));
+    assertTrue(filter.mightContain("a"));
+    assertTrue(filter.remove("a"));
+    assertFalse(filter.mightContain("a"));
+  }
+
+  public void testFull() {
+    int numInsertions = 1000;
+    CuckooFilter<Integer> filter = CuckooFilter.create(Funnels.integerFunnel(), numInsertions);
+    int i = 0;
+    while (filter.put(i)) {
+      i++;
+    }
+    assertThat(i).isAtLeast(numInsertions);
+    assertEquals(i, filter.size());
+    // Nothing was lost on the way
+    for (int j = 0; j < i; j++) {
+      assertTrue(filter.mightContain(j));
+    }
+    // A failed put leaves the filter unchanged
+    CuckooFilter<Integer> copy = filter.copy();
+    assertFalse(filter.put(i));
+    assertEquals(copy, filter);
+
+    // Removing makes room again
+    for (int j = 0; j < 100; j++) {
+      assertTrue(filter.remove(j));
+    }
+    for (int j = 0; j < 50; j++) {
+      assertTrue(filter.put(i + j));
+    }
+    for (int j = 100; j < i + 50; j++) {
+      assertTrue(filter.mightContain(j));
+    }
+  }
+
+  public void testOptimalBitsPerFingerprint() {
+    assertEquals(9, CuckooFilter.optimalBitsPerFingerprint(0.03));
+    assertEquals(13, CuckooFilter.optimalBitsPerFingerprint(0.001));
+    assertEquals(32, CuckooFilter.optimalBitsPerFingerprint(1e-20));
+    assertEquals(4, CuckooFilter.optimalBitsPerFingerprint(0.99));
+  }
+
+  public void testPreconditions() {
+    try {
+      CuckooFilter.create(Funnels.unencodedCharsFunnel(), -1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      CuckooFilter.create(Funnels.unencodedCharsFunnel(), 1, 0.0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      CuckooFilter.create(Funnels.unencodedCharsFunnel(), 1, 1.0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testNullPointers() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicInstanceMethods(CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100));
+    tester.testAllPublicStaticMethods(CuckooFilter.class);
+  }
+
+  public void testEquals() {
+    CuckooFilter<String> filter1 = CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100);
+    filter1.put("1");
+    filter1.put("2");
+    CuckooFilter<String> filter2 = CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100);
+    filter2.put("1");
+    filter2.put("2");
+
+    new EqualsTester()
+        .addEqualityGroup(filter1, filter2, filter1.copy())
+        .addEqualityGroup(CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100))
+        .addEqualityGroup(CuckooFilter.create(Funnels.unencodedCharsFunnel(), 200))
+        .addEqualityGroup(CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100, 0.0001))
+        .addEqualityGroup(CuckooFilter.create(Funnels.integerFunnel(), 100))
+        .testEquals();
+  }
+
+  public void testCustomSerialization() throws Exception {
+    CuckooFilter<Integer> filter = CuckooFilter.create(Funnels.integerFunnel(), 1000, 0.001);
+    for (int i = 0; i < 1000; i++) {
+      filter.put(i);
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    filter.writeTo(out);
+    CuckooFilter<Integer> read =
+        CuckooFilter.readFrom(new ByteArrayInputStream(out.toByteArray()), Funnels.integerFunnel());
+    assertEquals(filter, read);
+    assertTrue(read.remove(0));
+    assertFalse(read.mightContain(0));
+  }
+
+  public void testReadFromTruncated() throws Exception {
+    CuckooFilter<Integer> filter = CuckooFilter.create(Funnels.integerFunnel(), 1000);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    filter.writeTo(out);
+    byte[] bytes = out.toByteArray();
+    // Claim one long fewer than the buckets need
+    bytes[1 + 8 + 8 + 4 + 8 + 3]--;
+    try {
+      CuckooFilter.readFrom(new ByteArrayInputStream(bytes), Funnels.integerFunnel());
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  public void testReadFromCorruptNumBuckets() throws Exception {
+    byte[] bytes = serializedFilter();
+    // Zero buckets
+    ByteBuffer.wrap(bytes).putLong(1, 0);
+    assertReadFromFails(bytes);
+    // 2^62 buckets, whose bit size overflows to zero
+    ByteBuffer.wrap(bytes).putLong(1, 1L << 62);
+    assertReadFromFails(bytes);
+  }
+
+  public void testReadFromCorruptVictimBucket() throws Exception {
+    byte[] bytes = serializedFilter();
+    long numBuckets = ByteBuffer.wrap(bytes).getLong(1);
+    ByteBuffer.wrap(bytes).putInt(1 + 8 + 8, 1).putLong(1 + 8 + 8 + 4, numBuckets);
+    assertReadFromFails(bytes);
+    ByteBuffer.wrap(bytes).putLong(1 + 8 + 8 + 4, -1);
+    assertReadFromFails(bytes);
+    // Without a victim, its bucket is ignored
+    ByteBuffer.wrap(bytes).putInt(1 + 8 + 8, 0);
+    CuckooFilter.readFrom(new ByteArrayInputStream(bytes), Funnels.integerFunnel());
+  }
+
+  private static byte[] serializedFilter() throws IOException {
+    CuckooFilter<Integer> filter = CuckooFilter.create(Funnels.integerFunnel(), 1000);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    filter.writeTo(out);
+    return out.toByteArray();
+  }
+
+  private static void assertReadFromFails(byte[] bytes) {
+    try {
+      CuckooFilter.readFrom(new ByteArrayInputStream(bytes), Funnels.integerFunnel());
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+}
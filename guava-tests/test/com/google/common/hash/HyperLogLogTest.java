@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/** Tests for {@link HyperLogLog}. */
+public class HyperLogLogTest extends TestCase {
+  public void testEmpty() {
+    assertEquals(0, HyperLogLog.create(Funnels.integerFunnel()).approximateElementCount());
+    assertEquals(0, HyperLogLog.create(Funnels.integerFunnel(), 4).approximateElementCount());
+  }
+
+  public void testSmallCountsAreExact() {
+    HyperLogLog<Integer> sketch = HyperLogLog.create(Funnels.integerFunnel());
+    for (int i = 1; i <= 1000; i++) {
+      sketch.put(i);
+      assertEquals(i, sketch.approximateElementCount());
+    }
+    assertTrue(sketch.isSparse());
+  }
+
+  public void testAccuracy() {
+    for (int precision : new int[] {4, 10, 14}) {
+      for (int count : new int[] {100, 10000, 1000000}) {
+        HyperLogLog<Integer> sketch = HyperLogLog.create(Funnels.integerFunnel(), precision);
+        for (int i = 0; i < count; i++) {
+          sketch.put(i);
+        }
+        double error = (double) (sketch.approximateElementCount() - count) / count;
+        assertThat(Math.abs(error)).isLessThan(4 * sketch.relativeStandardError());
+      }
+    }
+  }
+
+  public void testRelativeStandardError() {
+    assertEquals(0.0081, HyperLogLog.create(Funnels.integerFunnel()).relativeStandardError(), 1e-4);
+    assertEquals(0.26, HyperLogLog.create(Funnels.integerFunnel(), 4).relativeStandardError());
+  }
+
+  public void testDuplicates() {
+    HyperLogLog<Integer> sketch = HyperLogLog.create(Funnels.integerFunnel(), 10);
+    for (int i = 0; i < 100000; i++) {
+      sketch.put(i % 5000);
+    }
+    double error = (sketch.approximateElementCount() - 5000) / 5000.0;
+    assertThat(Math.abs(error)).isLessThan(4 * sketch.relativeStandardError());
+  }
+
+  public void testPutReturnValue() {
+    HyperLogLog<Integer> sketch = HyperLogLog.create(Funnels.integerFunnel(), 10);
+    for (int i = 0; i < 10000; i++) {
+      boolean changed = sketch.put(i);
+      assertFalse(sketch.put(i));
+      if (i < 90) {
+        // While the sketch is sparse, distinct indexes are all but certain
+        assertTrue(changed);
+      }
+    }
+  }
+
+  public void testSwitchesToDense() {
+    HyperLogLog<Integer> sketch = HyperLogLog.create(Funnels.integerFunnel(), 10);
+    assertTrue(sketch.isSparse());
+    int i = 0;
+    while (sketch.isSparse()) {
+      sketch.put(i++);
+    }
+    // A sparse representation of 128 slots is full at 96 entries
+    assertEquals(97, i);
+    assertEquals(i, sketch.approximateElementCount(), i * 4 * sketch.relativeStandardError());
+    assertFalse(HyperLogLog.create(Funnels.integerFunnel(), 6).isSparse());
+  }
+
+  public void testDenseIndexAndRank() {
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      long hash = random.nextLong() >>> random.nextInt(64);
+      int entry = HyperLogLog.sparseEntry(hash);
+      for (int precision = HyperLogLog.MIN_PRECISION;
+          precision <= HyperLogLog.MAX_PRECISION;
+          precision++) {
+        assertEquals((int) (hash >>> (64 - precision)), HyperLogLog.denseIndex(entry, precision));
+        assertEquals(
+            Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1,
+            HyperLogLog.denseRank(entry, precision));
+      }
+    }
+  }
+
+  public void testEstimateSaturated() {
+    int[] registers = new int[1 << 10];
+    assertEquals(0.0, HyperLogLog.estimate(registers, 10));
+    Arrays.fill(registers, 64 - 10 + 1);
+    assertEquals(Double.POSITIVE_INFINITY, HyperLogLog.estimate(registers, 10));
+  }
+
+  public void testPutAll() {
+    int[][] ranges = {{0, 50}, {0, 5000}, {10000, 10050}, {10000, 15000}};
+    for (int[] first : ranges) {
+      for (int[] second : ranges) {
+        HyperLogLog<Integer> sketch1 = HyperLogLog.create(Funnels.integerFunnel(), 12);
+        HyperLogLog<Integer> sketch2 = HyperLogLog.create(Funnels.integerFunnel(), 12);
+        HyperLogLog<Integer> union = HyperLogLog.create(Funnels.integerFunnel(), 12);
+        for (int i = first[0]; i < first[1]; i++) {
+          sketch1.put(i);
+          union.put(i);
+        }
+        for (int i = second[0]; i < second[1]; i++) {
+          sketch2.put(i);
+          union.put(i);
+        }
+        HyperLogLog<Integer> copy2 = sketch2.copy();
+        sketch1.putAll(sketch2);
+        assertEquals(union.approximateElementCount(), sketch1.approximateElementCount());
+        assertEquals(copy2, sketch2);
+      }
+    }
+  }
+
+  public void testPutAllIncompatible() {
+    HyperLogLog<Integer> sketch = HyperLogLog.create(Funnels.integerFunnel());
+    List<HyperLogLog<Integer>> incompatibles = new ArrayList<>();
+    incompatibles.add(sketch);
+    incompatibles.add(HyperLogLog.create(Funnels.integerFunnel(), 13));
+    incompatibles.add(HyperLogLog.create(Funnels.integerFunnel(), 14, Hashing.sipHash24()));
+    incompatibles.add(HyperLogLog.<Integer>create(BadFunnel.INSTANCE));
+    for (HyperLogLog<Integer> other : incompatibles) {
+      assertFalse(sketch.isCompatible(other));
+      try {
+        sketch.putAll(other);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+    assertTrue(sketch.isCompatible(HyperLogLog.create(Funnels.integerFunnel())));
+  }
+
+  public void testCopyAndEquals() {
+    HyperLogLog<Integer> sparse = HyperLogLog.create(Funnels.integerFunnel(), 10);
+    HyperLogLog<Integer> dense = HyperLogLog.create(Funnels.integerFunnel(), 10);
+    for (int i = 0; i < 10; i++) {
+      sparse.put(i);
+    }
+    for (int i = 0; i < 1000; i++) {
+      dense.put(i);
+    }
+    HyperLogLog<Integer> sparseCopy = sparse.copy();
+    HyperLogLog<Integer> denseCopy = dense.copy();
+    new EqualsTester()
+        .addEqualityGroup(
+            HyperLogLog.create(Funnels.integerFunnel(), 10),
+            HyperLogLog.create(Funnels.integerFunnel(), 10))
+        .addEqualityGroup(sparse, sparseCopy)
+        .addEqualityGroup(dense, denseCopy)
+        .addEqualityGroup(HyperLogLog.create(Funnels.integerFunnel(), 11))
+        .addEqualityGroup(HyperLogLog.create(Funnels.integerFunnel(), 10, Hashing.sipHash24()))
+        .addEqualityGroup(HyperLogLog.create(Funnels.unencodedCharsFunnel(), 10))
+        .testEquals();
+
+    sparseCopy.put(-1);
+    assertFalse(sparse.equals(sparseCopy));
+    assertEquals(10, sparse.approximateElementCount());
+  }
+
+  public void testSerialization() throws IOException {
+    for (int count : new int[] {0, 10, 100000}) {
+      for (int precision : new int[] {4, 14}) {
+        HyperLogLog<Integer> sketch = HyperLogLog.create(Funnels.integerFunnel(), precision);
+        for (int i = 0; i < count; i++) {
+          sketch.put(i);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sketch.writeTo(out);
+        HyperLogLog<Integer> read =
+            HyperLogLog.readFrom(
+                new ByteArrayInputStream(out.toByteArray()), Funnels.integerFunnel());
+        assertEquals(sketch, read);
+        assertEquals(sketch.approximateElementCount(), read.approximateElementCount());
+      }
+    }
+  }
+
+  public void testSerializationFormat() throws IOException {
+    HyperLogLog<Integer> sparse = HyperLogLog.create(Funnels.integerFunnel(), 10);
+    sparse.put(1);
+    sparse.put(2);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    sparse.writeTo(out);
+    // Precision, representation, count and two ints
+    assertEquals(1 + 1 + 4 + 2 * 4, out.size());
+
+    HyperLogLog<Integer> dense = HyperLogLog.create(Funnels.integerFunnel(), 10);
+    for (int i = 0; i < 1000; i++) {
+      dense.put(i);
+    }
+    out = new ByteArrayOutputStream();
+    dense.writeTo(out);
+    // 1024 registers of 6 bits, 10 to a long
+    assertEquals(1 + 1 + 4 + 103 * 8, out.size());
+  }
+
+  public void testReadFromInvalid() throws IOException {
+    assertReadFails(new byte[] {3, 0, 0, 0, 0, 0});
+    assertReadFails(new byte[] {19, 0, 0, 0, 0, 0});
+    assertReadFails(new byte[] {10, 2, 0, 0, 0, 0});
+    // A dense sketch with the wrong number of longs
+    assertReadFails(new byte[] {10, 1, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0});
+    // A sparse entry with a rank of zero
+    assertReadFails(new byte[] {10, 0, 0, 0, 0, 1, 0, 0, 1, 0});
+    // A truncated stream
+    assertReadFails(new byte[] {10, 0, 0, 0, 0, 1, 0, 0});
+  }
+
+  private static void assertReadFails(byte[] bytes) {
+    try {
+      HyperLogLog.readFrom(new ByteArrayInputStream(bytes), Funnels.integerFunnel());
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  public void testConcurrentPuts() {
+    final HyperLogLog<Integer> sketch = HyperLogLog.create(Funnels.integerFunnel(), 12);
+    HyperLogLog<Integer> expected = HyperLogLog.create(Funnels.integerFunnel(), 12);
+    final int numThreads = 8;
+    final int count = 200000;
+    for (int i = 0; i < count; i++) {
+      expected.put(i);
+    }
+    final List<Throwable> exceptions = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      final int first = t;
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  // Interleaved, so that all threads put while the sketch switches to dense
+                  for (int i = first; i < count; i += numThreads) {
+                    sketch.put(i);
+                  }
+                }
+              });
+      thread.setUncaughtExceptionHandler(
+          new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+              synchronized (exceptions) {
+                exceptions.add(e);
+              }
+            }
+          });
+      threads.add(thread);
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      Uninterruptibles.joinUninterruptibly(t);
+    }
+    assertThat(exceptions).isEmpty();
+    // The registers don't depend on the order of puts, so no update was lost
+    assertEquals(expected, sketch);
+  }
+
+  public void testCreateInvalidArguments() {
+    try {
+      HyperLogLog.create(Funnels.integerFunnel(), HyperLogLog.MIN_PRECISION - 1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      HyperLogLog.create(Funnels.integerFunnel(), HyperLogLog.MAX_PRECISION + 1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      HyperLogLog.create(Funnels.integerFunnel(), 14, Hashing.murmur3_32());
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testNullPointers() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicInstanceMethods(HyperLogLog.create(Funnels.unencodedCharsFunnel()));
+    tester.testAllPublicStaticMethods(HyperLogLog.class);
+  }
+
+  private enum BadFunnel implements Funnel<Integer> {
+    INSTANCE;
+
+    @Override
+    public void funnel(Integer object, PrimitiveSink bytePrimitives) {
+      bytePrimitives.putInt(object);
+    }
+  }
+}
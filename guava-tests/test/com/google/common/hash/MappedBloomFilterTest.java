@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.hash.BloomFilterStrategies.LockFreeBitArray;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/** Tests for {@link BloomFilter#createMapped} and {@link BloomFilter#openMapped}. */
+public class MappedBloomFilterTest extends TestCase {
+  private Path file;
+
+  @Override
+  protected void setUp() throws IOException {
+    file = Files.createTempFile("MappedBloomFilterTest", ".bf");
+  }
+
+  @Override
+  protected void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  public void testCreateAndOpen() throws IOException {
+    BloomFilter<Integer> mapped = createMapped(10000, 0.01);
+    BloomFilter<Integer> heap = BloomFilter.create(Funnels.integerFunnel(), 10000, 0.01);
+    assertEquals(heap.bitSize(), mapped.bitSize());
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(heap.put(i), mapped.put(i));
+    }
+    assertEquals(heap, mapped);
+    assertEquals(heap.approximateElementCount(), mapped.approximateElementCount());
+    assertEquals(heap.expectedFpp(), mapped.expectedFpp());
+
+    BloomFilter<Integer> opened = openMapped(MapMode.READ_ONLY);
+    assertEquals(heap, opened);
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(opened.mightContain(i));
+    }
+    assertTrue(heap.isCompatible(opened));
+  }
+
+  public void testFileFormat() throws IOException {
+    BloomFilter<Integer> mapped = createMapped(100, 0.01);
+    mapped.put(1);
+    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(64 + mapped.bitSize() / 8, bytes.capacity());
+    assertEquals('G', bytes.get(0));
+    assertEquals('B', bytes.get(1));
+    assertEquals('M', bytes.get(2));
+    assertEquals('F', bytes.get(3));
+    assertEquals(1, bytes.get(4));
+    assertEquals(BloomFilterStrategies.MURMUR128_MITZ_64.ordinal(), bytes.get(5));
+    assertEquals(BloomFilter.optimalNumOfHashFunctions(100, mapped.bitSize()), bytes.get(6));
+    assertEquals(mapped.bitSize() / 64, bytes.getInt(8));
+
+    // The bits are those that writeTo writes, little-endian
+    BloomFilter<Integer> heap = BloomFilter.create(Funnels.integerFunnel(), 100, 0.01);
+    heap.put(1);
+    long[] longs = new long[bytes.getInt(8)];
+    for (int i = 0; i < longs.length; i++) {
+      longs[i] = bytes.getLong(64 + i * 8);
+    }
+    assertEquals(heap, readFrom(bytes.get(5), bytes.get(6), longs));
+  }
+
+  public void testSharedBetweenMappings() throws IOException {
+    BloomFilter<Integer> writer = createMapped(1000, 0.01);
+    BloomFilter<Integer> other = openMapped(MapMode.READ_WRITE);
+    BloomFilter<Integer> reader = openMapped(MapMode.READ_ONLY);
+    for (int i = 0; i < 1000; i++) {
+      if (i % 2 == 0) {
+        writer.put(i);
+      } else {
+        other.put(i);
+      }
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(writer.mightContain(i));
+      assertTrue(other.mightContain(i));
+      assertTrue(reader.mightContain(i));
+    }
+    // Counts include the bits set through the other mappings
+    assertEquals(1000, reader.approximateElementCount(), 20);
+    assertEquals(writer.expectedFpp(), reader.expectedFpp());
+  }
+
+  public void testReadOnly() throws IOException {
+    BloomFilter<Integer> writer = createMapped(100, 0.01);
+    writer.put(1);
+    BloomFilter<Integer> reader = openMapped(MapMode.READ_ONLY);
+    assertFalse(reader.put(1));
+    try {
+      reader.put(2);
+      fail();
+    } catch (ReadOnlyBufferException expected) {
+    }
+    BloomFilter<Integer> other = BloomFilter.create(Funnels.integerFunnel(), 100, 0.01);
+    other.put(2);
+    try {
+      reader.putAll(other);
+      fail();
+    } catch (ReadOnlyBufferException expected) {
+    }
+  }
+
+  public void testPrivate() throws IOException {
+    createMapped(100, 0.01).put(1);
+    BloomFilter<Integer> copyOnWrite = openMapped(MapMode.PRIVATE);
+    assertTrue(copyOnWrite.mightContain(1));
+    assertTrue(copyOnWrite.put(2));
+    assertTrue(copyOnWrite.mightContain(2));
+    BloomFilter<Integer> reopened = openMapped(MapMode.READ_ONLY);
+    assertTrue(reopened.mightContain(1));
+    assertFalse(reopened.mightContain(2));
+  }
+
+  public void testPutAllFromHeap() throws IOException {
+    BloomFilter<Integer> heap = BloomFilter.create(Funnels.integerFunnel(), 1000, 0.001);
+    for (int i = 0; i < 1000; i++) {
+      heap.put(i);
+    }
+    BloomFilter<Integer> mapped = createMapped(1000, 0.001);
+    mapped.putAll(heap);
+    assertEquals(heap, openMapped(MapMode.READ_ONLY));
+  }
+
+  public void testCopyIsOnHeap() throws IOException {
+    BloomFilter<Integer> mapped = createMapped(100, 0.01);
+    BloomFilter<Integer> copy = mapped.copy();
+    copy.put(1);
+    assertFalse(mapped.mightContain(1));
+    assertFalse(openMapped(MapMode.READ_ONLY).mightContain(1));
+  }
+
+  public void testBlocked() throws IOException {
+    BloomFilter<Integer> mapped =
+        BloomFilter.createMapped(
+            file, Funnels.integerFunnel(), 10000, 0.01, BloomFilterStrategies.MURMUR128_BLOCKED);
+    BloomFilter<Integer> heap = BloomFilter.createBlocked(Funnels.integerFunnel(), 10000, 0.01);
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(heap.put(i), mapped.put(i));
+    }
+    BloomFilter<Integer> opened = openMapped(MapMode.READ_ONLY);
+    assertEquals(heap, opened);
+    assertEquals(heap.expectedFpp(), opened.expectedFpp(), 1e-12);
+  }
+
+  public void testCreateTruncates() throws IOException {
+    Files.write(file, new byte[100000]);
+    BloomFilter<Integer> mapped = createMapped(100, 0.01);
+    assertEquals(64 + mapped.bitSize() / 8, Files.size(file));
+    assertEquals(0, mapped.approximateElementCount());
+  }
+
+  public void testOpenInvalid() throws IOException {
+    createMapped(100, 0.01);
+    byte[] valid = Files.readAllBytes(file);
+
+    assertOpenFails(new byte[10]);
+    byte[] badMagic = valid.clone();
+    badMagic[0] = 'X';
+    assertOpenFails(badMagic);
+    byte[] badVersion = valid.clone();
+    badVersion[4] = 2;
+    assertOpenFails(badVersion);
+    byte[] badStrategy = valid.clone();
+    badStrategy[5] = 100;
+    assertOpenFails(badStrategy);
+    byte[] noHashFunctions = valid.clone();
+    noHashFunctions[6] = 0;
+    assertOpenFails(noHashFunctions);
+    byte[] badLength = valid.clone();
+    badLength[8]++;
+    assertOpenFails(badLength);
+    assertOpenFails(Arrays.copyOf(valid, valid.length - 8));
+    assertOpenFails(Arrays.copyOf(valid, valid.length + 8));
+  }
+
+  private void assertOpenFails(byte[] contents) throws IOException {
+    Files.write(file, contents);
+    try {
+      openMapped(MapMode.READ_ONLY);
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  public void testMappedLongArraySegments() throws IOException {
+    for (boolean atomic : new boolean[] {false, true}) {
+      if (atomic && !MappedLongArray.usingUnsafe()) {
+        continue;
+      }
+      Files.write(file, new byte[16 + 100 * 8]);
+      MappedLongArray longs;
+      try (FileChannel channel = channel()) {
+        // Segments of 8 longs
+        longs = MappedLongArray.map(channel, MapMode.READ_WRITE, 16, 100, 3, atomic);
+      }
+      assertEquals(100, longs.length());
+      Random random = new Random(0);
+      long[] expected = new long[100];
+      for (int i = 0; i < 100; i++) {
+        expected[i] = random.nextLong();
+        assertFalse(longs.compareAndSet(i, 1, expected[i]));
+        assertTrue(longs.compareAndSet(i, 0, expected[i]));
+      }
+      ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+      for (int i = 0; i < 100; i++) {
+        assertEquals(expected[i], longs.get(i));
+        assertEquals(expected[i], bytes.getLong(16 + i * 8));
+      }
+      try {
+        longs.get(100);
+        fail();
+      } catch (IndexOutOfBoundsException expectedException) {
+      }
+      LockFreeBitArray bits = new LockFreeBitArray(longs);
+      long bitCount = 0;
+      for (long value : expected) {
+        bitCount += Long.bitCount(value);
+      }
+      assertEquals(bitCount, bits.bitCount());
+    }
+  }
+
+  private FileChannel channel() throws IOException {
+    return FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  private BloomFilter<Integer> createMapped(long expectedInsertions, double fpp)
+      throws IOException {
+    return BloomFilter.createMapped(file, Funnels.integerFunnel(), expectedInsertions, fpp);
+  }
+
+  private BloomFilter<Integer> openMapped(MapMode mode) throws IOException {
+    return BloomFilter.openMapped(file, Funnels.integerFunnel(), mode);
+  }
+
+  /** Returns the filter that {@link BloomFilter#readFrom} reads from the given fields. */
+  private static BloomFilter<Integer> readFrom(
+      int strategyOrdinal, int numHashFunctions, long[] data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    DataOutputStream dout = new DataOutputStream(out);
+    dout.writeByte(strategyOrdinal);
+    dout.writeByte(numHashFunctions);
+    dout.writeInt(data.length);
+    for (long value : data) {
+      dout.writeLong(value);
+    }
+    return BloomFilter.readFrom(
+        new ByteArrayInputStream(out.toByteArray()), Funnels.integerFunnel());
+  }
+}
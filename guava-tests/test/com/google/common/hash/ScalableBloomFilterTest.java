@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/** Tests for {@link ScalableBloomFilter}. */
+public class ScalableBloomFilterTest extends TestCase {
+  public void testGrowsPastInitialExpectedInsertions() {
+    int numInsertions = 100000;
+    ScalableBloomFilter<Integer> filter =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 1000, 0.01);
+    for (int i = 0; i < numInsertions; i++) {
+      filter.put(i);
+    }
+    // 1000 * (2^6 - 1) elements fill six stages, and the seventh holds the rest
+    assertEquals(7, filter.stageCount());
+    for (int i = 0; i < numInsertions; i++) {
+      assertTrue(filter.mightContain(i));
+    }
+
+    int numFpp = 0;
+    for (int i = numInsertions; i < numInsertions * 11; i++) {
+      if (filter.mightContain(i)) {
+        numFpp++;
+      }
+    }
+    double actualFpp = (double) numFpp / (numInsertions * 10);
+    assertThat(actualFpp).isLessThan(0.01);
+    assertThat(filter.expectedFpp()).isLessThan(0.01);
+    assertEquals(actualFpp, filter.expectedFpp(), 0.001);
+  }
+
+  public void testFppStaysBelowTargetWhileGrowing() {
+    ScalableBloomFilter<Integer> filter =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.001, 4, 0.5);
+    for (int i = 0; i < 200000; i++) {
+      filter.put(i);
+      if (i % 1000 == 0) {
+        assertThat(filter.expectedFpp()).isLessThan(0.001);
+      }
+    }
+  }
+
+  public void testPutReturnValue() {
+    ScalableBloomFilter<Integer> filter =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 10, 1e-6);
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(filter.put(i));
+    }
+    int stages = filter.stageCount();
+    for (int i = 0; i < 1000; i++) {
+      // Already contained in some stage, so not put again
+      assertFalse(filter.put(i));
+    }
+    assertEquals(stages, filter.stageCount());
+  }
+
+  public void testApproximateElementCount() {
+    ScalableBloomFilter<Integer> filter =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 1000, 0.01);
+    assertEquals(0, filter.approximateElementCount());
+    for (int numInsertions = 1; numInsertions <= 100000; numInsertions++) {
+      filter.put(numInsertions);
+      // Puts of duplicates are not counted
+      filter.put(numInsertions / 2);
+      if (numInsertions % 5000 == 0) {
+        assertEquals(numInsertions, filter.approximateElementCount(), numInsertions * 0.02);
+      }
+    }
+  }
+
+  public void testPutAll() {
+    ScalableBloomFilter<Integer> filter1 =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01);
+    ScalableBloomFilter<Integer> filter2 =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01);
+    for (int i = 0; i < 1000; i++) {
+      filter1.put(i);
+    }
+    for (int i = 1000; i < 5000; i++) {
+      filter2.put(i);
+    }
+    assertThat(filter1.stageCount()).isLessThan(filter2.stageCount());
+
+    filter1.putAll(filter2);
+    assertEquals(filter2.stageCount(), filter1.stageCount());
+    for (int i = 0; i < 5000; i++) {
+      assertTrue(filter1.mightContain(i));
+    }
+    assertEquals(5000, filter1.approximateElementCount(), 5000 * 0.05);
+    // The other filter is not mutated
+    assertFalse(filter2.mightContain(-1) && filter2.mightContain(-2) && filter2.mightContain(-3));
+    assertEquals(4000, filter2.approximateElementCount(), 4000 * 0.05);
+  }
+
+  public void testPutAllIncompatible() {
+    ScalableBloomFilter<Integer> filter =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01);
+    for (ScalableBloomFilter<Integer> other :
+        ImmutableList.of(
+            filter,
+            ScalableBloomFilter.create(Funnels.integerFunnel(), 101, 0.01),
+            ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.02),
+            ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01, 3, 0.8),
+            ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01, 2, 0.9),
+            ScalableBloomFilter.<Integer>create(BadFunnel.INSTANCE, 100, 0.01))) {
+      assertFalse(filter.isCompatible(other));
+      try {
+        filter.putAll(other);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+    assertTrue(
+        filter.isCompatible(ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01)));
+  }
+
+  public void testCopy() {
+    ScalableBloomFilter<Integer> original =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 10, 0.01);
+    for (int i = 0; i < 100; i++) {
+      original.put(i);
+    }
+    ScalableBloomFilter<Integer> copy = original.copy();
+    assertNotSame(original, copy);
+    assertEquals(original, copy);
+    copy.put(1000);
+    assertFalse(original.equals(copy));
+    assertFalse(original.mightContain(1000));
+  }
+
+  public void testEquals() {
+    ScalableBloomFilter<Integer> empty =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01);
+    ScalableBloomFilter<Integer> grown =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01);
+    for (int i = 0; i < 1000; i++) {
+      grown.put(i);
+    }
+    new EqualsTester()
+        .addEqualityGroup(empty, ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01))
+        .addEqualityGroup(grown, grown.copy())
+        .addEqualityGroup(ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.02))
+        .addEqualityGroup(ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01, 4, 0.8))
+        .addEqualityGroup(ScalableBloomFilter.create(Funnels.unencodedCharsFunnel(), 100, 0.01))
+        .testEquals();
+  }
+
+  public void testCreateInvalidArguments() {
+    try {
+      ScalableBloomFilter.create(Funnels.integerFunnel(), 0, 0.01);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 1.0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01, 1, 0.8);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01, 2, 1.0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testConcurrentPutsAcrossGrowth() {
+    final ScalableBloomFilter<Integer> filter =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01);
+    int numThreads = 8;
+    final int perThread = 20000;
+    final AtomicInteger nextThread = new AtomicInteger();
+    final List<Throwable> exceptions = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  int start = nextThread.getAndIncrement() * perThread;
+                  for (int i = start; i < start + perThread; i++) {
+                    filter.put(i);
+                    // False negatives should *never* happen, even while stages are added
+                    assertTrue(filter.mightContain(i));
+                  }
+                }
+              });
+      thread.setUncaughtExceptionHandler(
+          new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+              synchronized (exceptions) {
+                exceptions.add(e);
+              }
+            }
+          });
+      threads.add(thread);
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      Uninterruptibles.joinUninterruptibly(t);
+    }
+    assertThat(exceptions).isEmpty();
+
+    int total = numThreads * perThread;
+    for (int i = 0; i < total; i++) {
+      assertTrue(filter.mightContain(i));
+    }
+    assertEquals(total, filter.approximateElementCount(), total * 0.02);
+    assertThat(filter.expectedFpp()).isLessThan(0.01);
+  }
+
+  public void testNullPointers() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicInstanceMethods(
+        ScalableBloomFilter.create(Funnels.unencodedCharsFunnel(), 100, 0.01));
+    tester.testAllPublicStaticMethods(ScalableBloomFilter.class);
+  }
+
+  private enum BadFunnel implements Funnel<Integer> {
+    INSTANCE;
+
+    @Override
+    public void funnel(Integer object, PrimitiveSink bytePrimitives) {
+      bytePrimitives.putInt(object);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/** Tests for {@link XorFilter}. */
+public class XorFilterTest extends TestCase {
+  public void testMightContain() {
+    for (int size : new int[] {0, 1, 2, 3, 10, 100, 1000, 100000}) {
+      List<Integer> elements = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        elements.add(i * 2);
+      }
+      XorFilter<Integer> filter = XorFilter.create(elements, Funnels.integerFunnel(), 1.0 / 256);
+      for (int element : elements) {
+        assertTrue(filter.mightContain(element));
+      }
+
+      int numProbes = 1000000;
+      int numFpp = 0;
+      for (int i = 0; i < numProbes; i++) {
+        if (filter.mightContain(i * 2 + 1)) {
+          numFpp++;
+        }
+      }
+      assertEquals(filter.expectedFpp(), (double) numFpp / numProbes, 0.0005);
+    }
+  }
+
+  public void testBitsPerElement() {
+    List<Integer> elements = new ArrayList<>();
+    for (int i = 0; i < 1000000; i++) {
+      elements.add(i);
+    }
+    XorFilter<Integer> filter = XorFilter.create(elements, Funnels.integerFunnel(), 0.01);
+    assertEquals(1.0 / 128, filter.expectedFpp());
+    // About 1.13 * 7 bits per element, where a Bloom filter would need 1.44 * 7
+    assertThat((double) filter.bitSize() / elements.size()).isLessThan(1.14 * 7);
+  }
+
+  public void testDuplicates() {
+    XorFilter<String> filter =
+        XorFilter.create(
+            ImmutableList.of("a", "b", "a", "c", "a"), Funnels.unencodedCharsFunnel(), 0.001);
+    assertEquals(
+        filter,
+        XorFilter.create(ImmutableSet.of("a", "b", "c"), Funnels.unencodedCharsFunnel(), 0.001));
+    assertTrue(filter.mightContain("a"));
+    assertTrue(filter.mightContain("b"));
+    assertTrue(filter.mightContain("c"));
+  }
+
+  public void testOptimalBitsPerFingerprint() {
+    assertEquals(6, XorFilter.optimalBitsPerFingerprint(0.03));
+    assertEquals(8, XorFilter.optimalBitsPerFingerprint(1.0 / 256));
+    assertEquals(10, XorFilter.optimalBitsPerFingerprint(0.001));
+    assertEquals(32, XorFilter.optimalBitsPerFingerprint(1e-20));
+    assertEquals(1, XorFilter.optimalBitsPerFingerprint(0.99));
+  }
+
+  public void testSizes() {
+    for (int size = 0; size < 10000000; size = size * 3 + 1) {
+      int segmentLength = XorFilter.segmentLength(size);
+      int arrayLength = XorFilter.arrayLength(size, segmentLength);
+      assertEquals(0, segmentLength & (segmentLength - 1));
+      assertEquals(0, arrayLength % segmentLength);
+      assertThat(arrayLength / segmentLength).isAtLeast(3);
+      assertThat((long) arrayLength).isAtLeast(size * 9L / 8);
+    }
+  }
+
+  public void testPreconditions() {
+    try {
+      XorFilter.create(ImmutableList.of("a"), Funnels.unencodedCharsFunnel(), 0.0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      XorFilter.create(ImmutableList.of("a"), Funnels.unencodedCharsFunnel(), 1.0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testNullPointers() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicInstanceMethods(
+        XorFilter.create(ImmutableList.of("a"), Funnels.unencodedCharsFunnel(), 0.01));
+    tester.testAllPublicStaticMethods(XorFilter.class);
+  }
+
+  public void testEquals() {
+    new EqualsTester()
+        .addEqualityGroup(
+            XorFilter.create(ImmutableList.of("a", "b"), Funnels.unencodedCharsFunnel(), 0.01),
+            XorFilter.create(ImmutableList.of("b", "a"), Funnels.unencodedCharsFunnel(), 0.01))
+        .addEqualityGroup(
+            XorFilter.create(ImmutableList.of("a", "c"), Funnels.unencodedCharsFunnel(), 0.01))
+        .addEqualityGroup(
+            XorFilter.create(ImmutableList.of("a", "b"), Funnels.unencodedCharsFunnel(), 0.001))
+        .addEqualityGroup(
+            XorFilter.create(ImmutableList.of("a", "b"), Funnels.stringFunnel(UTF_8), 0.01))
+        .testEquals();
+  }
+
+  public void testCustomSerialization() throws Exception {
+    List<Integer> elements = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      elements.add(i);
+    }
+    XorFilter<Integer> filter = XorFilter.create(elements, Funnels.integerFunnel(), 0.001);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    filter.writeTo(out);
+    XorFilter<Integer> read =
+        XorFilter.readFrom(new ByteArrayInputStream(out.toByteArray()), Funnels.integerFunnel());
+    assertEquals(filter, read);
+    for (int element : elements) {
+      assertTrue(read.mightContain(element));
+    }
+  }
+
+  public void testReadFromTruncated() throws Exception {
+    XorFilter<Integer> filter =
+        XorFilter.create(ImmutableList.of(1, 2, 3), Funnels.integerFunnel(), 0.001);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    filter.writeTo(out);
+    byte[] bytes = out.toByteArray();
+    try {
+      XorFilter.readFrom(
+          new ByteArrayInputStream(bytes, 0, bytes.length - 1), Funnels.integerFunnel());
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+}
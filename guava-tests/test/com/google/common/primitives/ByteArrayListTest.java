@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.primitives;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.testing.ListTestSuiteBuilder;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.ListFeature;
+import com.google.common.collector.PrimitiveCollectors;
+import com.google.common.primitives.ByteArrayAsListTest.TestByteListGenerator;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/** Tests for {@link ByteArrayList}. */
+@GwtIncompatible
+public class ByteArrayListTest extends TestCase {
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTest(
+        ListTestSuiteBuilder.using(
+                new TestByteListGenerator() {
+                  @Override
+                  protected List<Byte> create(Byte[] elements) {
+                    ByteArrayList list = new ByteArrayList();
+                    list.addAll(Arrays.asList(elements));
+                    return list;
+                  }
+                })
+            .named("ByteArrayList")
+            .withFeatures(
+                CollectionSize.ANY,
+                CollectionFeature.SERIALIZABLE,
+                CollectionFeature.FAILS_FAST_ON_CONCURRENT_MODIFICATION,
+                ListFeature.GENERAL_PURPOSE)
+            .createTestSuite());
+    suite.addTestSuite(ByteArrayListTest.class);
+    return suite;
+  }
+
+  public void testAddAndGetWithoutBoxing() {
+    ByteArrayList list = new ByteArrayList(0);
+    for (int i = 0; i < 300; i++) {
+      list.addByte((byte) i);
+    }
+    assertEquals(300, list.size());
+    for (int i = 0; i < 300; i++) {
+      assertEquals((byte) i, list.getByte(i));
+    }
+  }
+
+  public void testIntStreamWidensSigned() {
+    ByteArrayList list = new ByteArrayList(new byte[] {-1, 2, 3}, 2);
+    assertTrue(Arrays.equals(new int[] {-1, 2}, list.intStream().toArray()));
+  }
+
+  public void testFastUnorderedRemoveAndPop() {
+    ByteArrayList list = new ByteArrayList(new byte[] {1, 2, 3}, 3);
+    assertTrue(list.fastUnorderedRemoveByte((byte) 1));
+    assertThat(list).containsExactly((byte) 3, (byte) 2).inOrder();
+    list.pushByte((byte) 4);
+    assertEquals(4, list.popByte());
+  }
+
+  public void testFreeze() {
+    ByteArrayList list =
+        Stream.of((byte) 1, (byte) 2, (byte) 3).collect(PrimitiveCollectors.toByteArrayList());
+    list.popByte();
+    ByteBuffer frozen = list.freeze();
+    assertTrue(list.isEmpty());
+    assertTrue(frozen.isReadOnly());
+    assertEquals(0, frozen.position());
+    assertEquals(2, frozen.remaining());
+    assertEquals(1, frozen.get(0));
+    assertEquals(2, frozen.get(1));
+    try {
+      frozen.put(0, (byte) 0);
+      fail();
+    } catch (ReadOnlyBufferException expected) {
+    }
+    assertEquals(0, list.freeze().remaining());
+  }
+
+  public void testFreeze_wrappedArrayIsCopied() {
+    byte[] array = {1, 2, 3};
+    ByteArrayList list = new ByteArrayList(array, 2);
+    ByteBuffer frozen = list.freeze();
+    array[0] = 9;
+    assertEquals(2, frozen.remaining());
+    assertEquals(1, frozen.get(0));
+    assertEquals(2, frozen.get(1));
+  }
+}
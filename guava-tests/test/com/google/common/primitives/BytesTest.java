@@ -20,6 +20,9 @@ import com.google.common.annotations.GwtCompatible;
 import com.google.common.annotations.GwtIncompatible;
 import com.google.common.collect.testing.Helpers;
 import com.google.common.testing.NullPointerTester;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -66,6 +69,70 @@ public class BytesTest extends TestCase {
     assertEquals(1, Bytes.indexOf(new byte[] {(byte) 2, (byte) 3, (byte) 2, (byte) 3}, (byte) 3));
   }
 
+  @GwtIncompatible // Bytes.indexOf(byte[], byte, int, int)
+  public void testIndexOf_range() {
+    byte[] array = {(byte) 2, (byte) 3, (byte) 2, (byte) 3};
+    assertEquals(-1, Bytes.indexOf(array, (byte) 2, 0, 0));
+    assertEquals(0, Bytes.indexOf(array, (byte) 2, 0, 4));
+    assertEquals(2, Bytes.indexOf(array, (byte) 2, 1, 4));
+    assertEquals(-1, Bytes.indexOf(array, (byte) 2, 3, 4));
+    try {
+      Bytes.indexOf(array, (byte) 2, 0, 5);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    try {
+      Bytes.indexOf(array, (byte) 2, 3, 2);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  @GwtIncompatible // ClassLoader
+  public void testIndexOf_range_unsafeSearcherInitializedFirst() throws Exception {
+    // A fresh class loader, so that no searcher class has been initialized yet.
+    URL[] classPath = {Bytes.class.getProtectionDomain().getCodeSource().getLocation()};
+    try (URLClassLoader loader = new URLClassLoader(classPath, null)) {
+      Class.forName(ByteArraySearcher.UnsafeSearcher.class.getName(), true, loader);
+      Method indexOf =
+          Class.forName(Bytes.class.getName(), true, loader)
+              .getMethod("indexOf", byte[].class, byte.class, int.class, int.class);
+      byte[] array = {(byte) 2, (byte) 3, (byte) 2, (byte) 3};
+      assertEquals(2, indexOf.invoke(null, array, (byte) 2, 1, 4));
+    }
+  }
+
+  @GwtIncompatible // ByteArraySearcher
+  public void testByteArraySearchers() {
+    // Bytes that differ from the target by one bit, or only in the sign bit, must not match.
+    byte[] targets = {0, 1, (byte) 0x7F, (byte) 0x80, (byte) 0xFF};
+    ByteArraySearcher[] searchers = {
+      ByteArraySearcher.UnsafeSearcher.INSTANCE, ByteArraySearcher.PureJavaSearcher.INSTANCE
+    };
+    for (byte target : targets) {
+      for (int length = 0; length <= 40; length++) {
+        for (int position = -1; position < length; position++) {
+          byte[] array = new byte[length];
+          for (int i = 0; i < length; i++) {
+            array[i] = (byte) (target ^ (1 << (i % 8)));
+          }
+          if (position >= 0) {
+            array[position] = target;
+          }
+          for (int start = 0; start <= length; start++) {
+            for (int end = start; end <= length; end++) {
+              int expected = position >= start && position < end ? position : -1;
+              for (ByteArraySearcher searcher : searchers) {
+                assertEquals(
+                    searcher.toString(), expected, searcher.indexOf(array, target, start, end));
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
   public void testIndexOf_arrayTarget() {
     assertEquals(0, Bytes.indexOf(EMPTY, EMPTY));
     assertEquals(0, Bytes.indexOf(ARRAY234, EMPTY));
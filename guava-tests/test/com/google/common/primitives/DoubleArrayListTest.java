@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.primitives;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.testing.ListTestSuiteBuilder;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.ListFeature;
+import com.google.common.collector.PrimitiveCollectors;
+import com.google.common.primitives.DoubleArrayAsListTest.TestDoubleListGenerator;
+import com.google.common.testing.EqualsTester;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.DoubleStream;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/** Tests for {@link DoubleArrayList}. */
+@GwtIncompatible
+public class DoubleArrayListTest extends TestCase {
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTest(
+        ListTestSuiteBuilder.using(
+                new TestDoubleListGenerator() {
+                  @Override
+                  protected List<Double> create(Double[] elements) {
+                    DoubleArrayList list = new DoubleArrayList();
+                    list.addAll(Arrays.asList(elements));
+                    return list;
+                  }
+                })
+            .named("DoubleArrayList")
+            .withFeatures(
+                CollectionSize.ANY,
+                CollectionFeature.SERIALIZABLE,
+                CollectionFeature.FAILS_FAST_ON_CONCURRENT_MODIFICATION,
+                ListFeature.GENERAL_PURPOSE)
+            .createTestSuite());
+    suite.addTestSuite(DoubleArrayListTest.class);
+    return suite;
+  }
+
+  public void testAddAndGetWithoutBoxing() {
+    DoubleArrayList list = new DoubleArrayList(0);
+    for (int i = 0; i < 100; i++) {
+      list.addDouble(i / 4.0);
+    }
+    assertEquals(100, list.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i / 4.0, list.getDouble(i));
+    }
+  }
+
+  public void testEqualityOfSpecialValues() {
+    DoubleArrayList list = new DoubleArrayList(new double[] {Double.NaN, 0.0, -0.0}, 3);
+    assertEquals(0, list.indexOf(Double.NaN));
+    assertEquals(1, list.indexOf(0.0));
+    assertEquals(2, list.indexOf(-0.0));
+    assertTrue(list.fastUnorderedRemoveDouble(-0.0));
+    assertFalse(list.contains(-0.0));
+    assertTrue(list.contains(0.0));
+  }
+
+  public void testFastUnorderedRemoveAndPop() {
+    DoubleArrayList list = new DoubleArrayList(new double[] {1, 2, 3}, 3);
+    assertEquals(1.0, list.fastUnorderedRemove(0));
+    assertThat(list).containsExactly(3.0, 2.0).inOrder();
+    list.pushDouble(4);
+    assertEquals(4.0, list.popDouble());
+    assertEquals(5.0, list.doubleStream().sum());
+  }
+
+  public void testFreeze() {
+    DoubleArrayList list =
+        DoubleStream.of(1, 2).boxed().collect(PrimitiveCollectors.toDoubleArrayList());
+    ImmutableDoubleArray frozen = list.freeze();
+    assertEquals(ImmutableDoubleArray.of(1, 2), frozen);
+    assertTrue(list.isEmpty());
+    list.addDouble(3);
+    assertEquals(ImmutableDoubleArray.of(1, 2), frozen);
+    assertEquals(
+        ImmutableDoubleArray.of(0, 1, 2),
+        DoubleStream.of(0, 1, 2).boxed().collect(PrimitiveCollectors.toImmutableDoubleArray()));
+  }
+
+  public void testFreeze_wrappedArrayIsCopied() {
+    double[] array = {1, 2, 3};
+    DoubleArrayList list = new DoubleArrayList(array, 2);
+    ImmutableDoubleArray frozen = list.freeze();
+    array[0] = 9;
+    assertEquals(ImmutableDoubleArray.of(1, 2), frozen);
+  }
+
+  public void testEquals() {
+    new EqualsTester()
+        .addEqualityGroup(new DoubleArrayList(), new ArrayList<Double>())
+        .addEqualityGroup(
+            new DoubleArrayList(new double[] {Double.NaN, 2}, 2),
+            new DoubleArrayList(new double[] {Double.NaN, 2, 3}, 2),
+            Arrays.asList(Double.NaN, 2.0))
+        .addEqualityGroup(new DoubleArrayList(new double[] {0.0}, 1))
+        .addEqualityGroup(new DoubleArrayList(new double[] {-0.0}, 1))
+        .testEquals();
+  }
+}
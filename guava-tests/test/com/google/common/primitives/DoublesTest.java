@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 import java.util.regex.Pattern;
 import junit.framework.TestCase;
 
@@ -401,6 +402,71 @@ public class DoublesTest extends TestCase {
         new double[] {-1, 1, Double.NaN, -2, 2}, 1, 4, new double[] {-1, Double.NaN, 1, -2, 2});
   }
 
+  @GwtIncompatible // radixSort
+  public void testRadixSort() {
+    Random random = new Random(0);
+    for (int length : new int[] {0, 1, 100, 1000, 100000, 300000}) {
+      double[] array = randomArray(random, length);
+      double[] expected = array.clone();
+      Arrays.sort(expected);
+      double[] actual = array.clone();
+      Doubles.radixSort(actual);
+      assertSameOrder(expected, actual);
+      actual = array.clone();
+      Doubles.parallelRadixSort(actual);
+      assertSameOrder(expected, actual);
+      actual = array.clone();
+      Doubles.radixSort(actual, length / 4, length / 2);
+      expected = array.clone();
+      Arrays.sort(expected, length / 4, length / 2);
+      assertSameOrder(expected, actual);
+    }
+  }
+
+  @GwtIncompatible // sortedIndexes
+  public void testSortedIndexes() {
+    Random random = new Random(1);
+    double[] array = randomArray(random, 10000);
+    int[] indexes = Doubles.sortedIndexes(array);
+    boolean[] seen = new boolean[array.length];
+    for (int i = 0; i < indexes.length; i++) {
+      assertFalse(seen[indexes[i]]);
+      seen[indexes[i]] = true;
+      if (i > 0) {
+        int comparison = Double.compare(array[indexes[i - 1]], array[indexes[i]]);
+        assertTrue(comparison < 0 || (comparison == 0 && indexes[i - 1] < indexes[i]));
+      }
+    }
+  }
+
+  @GwtIncompatible // Random
+  private static double[] randomArray(Random random, int length) {
+    double[] special = {
+      NaN,
+      -0.0,
+      0.0,
+      Double.NEGATIVE_INFINITY,
+      Double.POSITIVE_INFINITY,
+      Double.MIN_VALUE,
+      -Double.MAX_VALUE
+    };
+    double[] array = new double[length];
+    for (int i = 0; i < length; i++) {
+      array[i] =
+          random.nextInt(100) == 0
+              ? special[random.nextInt(special.length)]
+              : (double) (random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10));
+    }
+    return array;
+  }
+
+  @GwtIncompatible // radixSort
+  private static void assertSameOrder(double[] expected, double[] actual) {
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(0, Double.compare(expected[i], actual[i]));
+    }
+  }
+
   @GwtIncompatible // SerializableTester
   public void testLexicographicalComparatorSerializable() {
     Comparator<double[]> comparator = Doubles.lexicographicalComparator();
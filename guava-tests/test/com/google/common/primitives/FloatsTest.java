@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 import junit.framework.TestCase;
 
 /**
@@ -382,6 +383,71 @@ public class FloatsTest extends TestCase {
         new float[] {-1, 1, Float.NaN, -2, 2}, 1, 4, new float[] {-1, Float.NaN, 1, -2, 2});
   }
 
+  @GwtIncompatible // radixSort
+  public void testRadixSort() {
+    Random random = new Random(0);
+    for (int length : new int[] {0, 1, 100, 1000, 100000, 300000}) {
+      float[] array = randomArray(random, length);
+      float[] expected = array.clone();
+      Arrays.sort(expected);
+      float[] actual = array.clone();
+      Floats.radixSort(actual);
+      assertSameOrder(expected, actual);
+      actual = array.clone();
+      Floats.parallelRadixSort(actual);
+      assertSameOrder(expected, actual);
+      actual = array.clone();
+      Floats.radixSort(actual, length / 4, length / 2);
+      expected = array.clone();
+      Arrays.sort(expected, length / 4, length / 2);
+      assertSameOrder(expected, actual);
+    }
+  }
+
+  @GwtIncompatible // sortedIndexes
+  public void testSortedIndexes() {
+    Random random = new Random(1);
+    float[] array = randomArray(random, 10000);
+    int[] indexes = Floats.sortedIndexes(array);
+    boolean[] seen = new boolean[array.length];
+    for (int i = 0; i < indexes.length; i++) {
+      assertFalse(seen[indexes[i]]);
+      seen[indexes[i]] = true;
+      if (i > 0) {
+        int comparison = Float.compare(array[indexes[i - 1]], array[indexes[i]]);
+        assertTrue(comparison < 0 || (comparison == 0 && indexes[i - 1] < indexes[i]));
+      }
+    }
+  }
+
+  @GwtIncompatible // Random
+  private static float[] randomArray(Random random, int length) {
+    float[] special = {
+      NaN,
+      -0.0f,
+      0.0f,
+      Float.NEGATIVE_INFINITY,
+      Float.POSITIVE_INFINITY,
+      Float.MIN_VALUE,
+      -Float.MAX_VALUE
+    };
+    float[] array = new float[length];
+    for (int i = 0; i < length; i++) {
+      array[i] =
+          random.nextInt(100) == 0
+              ? special[random.nextInt(special.length)]
+              : (float) (random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10));
+    }
+    return array;
+  }
+
+  @GwtIncompatible // radixSort
+  private static void assertSameOrder(float[] expected, float[] actual) {
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(0, Float.compare(expected[i], actual[i]));
+    }
+  }
+
   @GwtIncompatible // SerializableTester
   public void testStringConverterSerialization() {
     SerializableTester.reserializeAndAssert(Floats.stringConverter());
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.primitives;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link IntTopKSelector}. */
+@GwtIncompatible
+public class IntTopKSelectorTest extends TestCase {
+  public void testLeast() {
+    IntTopKSelector selector = IntTopKSelector.least(3);
+    selector.offerAll(5, 1, 9, -2, 7, 1, Integer.MIN_VALUE);
+    assertTrue(Arrays.equals(new int[] {Integer.MIN_VALUE, -2, 1}, selector.topK()));
+    selector.offer(-3);
+    assertTrue(Arrays.equals(new int[] {Integer.MIN_VALUE, -3, -2}, selector.topK()));
+  }
+
+  public void testGreatest() {
+    IntTopKSelector selector = IntTopKSelector.greatest(3);
+    selector.offerAll(5, 1, 9, -2, Integer.MAX_VALUE, 9, Integer.MIN_VALUE);
+    assertTrue(Arrays.equals(new int[] {Integer.MAX_VALUE, 9, 9}, selector.topK()));
+  }
+
+  public void testFewerThanK() {
+    IntTopKSelector selector = IntTopKSelector.greatest(10);
+    assertEquals(0, selector.topK().length);
+    selector.offerAll(2, 3, 1);
+    assertTrue(Arrays.equals(new int[] {3, 2, 1}, selector.topK()));
+  }
+
+  public void testZeroK() {
+    IntTopKSelector selector = IntTopKSelector.least(0);
+    selector.offerAll(1, 2, 3);
+    assertEquals(0, selector.topK().length);
+  }
+
+  public void testNegativeK() {
+    try {
+      IntTopKSelector.least(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testRandom() {
+    Random random = new Random(0);
+    for (int k : new int[] {1, 10, 1000}) {
+      for (int bound : new int[] {10, Integer.MAX_VALUE}) {
+        int[] values = new int[100000];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = random.nextInt(bound);
+        }
+        IntTopKSelector least = IntTopKSelector.least(k);
+        IntTopKSelector greatest = IntTopKSelector.greatest(k);
+        for (int value : values) {
+          least.offer(value);
+          greatest.offer(value);
+        }
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        assertTrue(Arrays.equals(Arrays.copyOf(sorted, k), least.topK()));
+        Ints.reverse(sorted);
+        assertTrue(Arrays.equals(Arrays.copyOf(sorted, k), greatest.topK()));
+      }
+    }
+  }
+}
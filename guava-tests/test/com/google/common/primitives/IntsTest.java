@@ -155,6 +155,14 @@ public class IntsTest extends TestCase {
     assertEquals(3, Ints.lastIndexOf(new int[] {(int) 2, (int) 3, (int) 2, (int) 3}, (int) 3));
   }
 
+  public void testSum() {
+    assertEquals(0L, Ints.sum());
+    assertEquals((long) LEAST, Ints.sum(LEAST));
+    assertEquals(9L, Ints.sum((int) 8, (int) 6, (int) 7, (int) 5, (int) 3, (int) 0, (int) -20));
+    assertEquals(2L * GREATEST, Ints.sum(GREATEST, GREATEST));
+    assertEquals(-1L, Ints.sum(LEAST, GREATEST));
+  }
+
   public void testMax_noArgs() {
     try {
       Ints.max();
@@ -363,6 +371,101 @@ public class IntsTest extends TestCase {
     testSortDescending(new int[] {-1, -2, 1, 2}, 1, 3, new int[] {-1, 1, -2, 2});
   }
 
+  @GwtIncompatible // radixSort
+  public void testRadixSort() {
+    Random random = new Random(0);
+    for (int length : new int[] {0, 1, 100, 1000, 100000, 300000}) {
+      int[] array = randomIntArray(random, length);
+      int[] expected = array.clone();
+      Arrays.sort(expected);
+      int[] actual = array.clone();
+      Ints.radixSort(actual);
+      assertTrue(Arrays.equals(expected, actual));
+      actual = array.clone();
+      Ints.parallelRadixSort(actual);
+      assertTrue(Arrays.equals(expected, actual));
+    }
+  }
+
+  @GwtIncompatible // radixSort
+  public void testRadixSortIndexed() {
+    Random random = new Random(1);
+    for (int length : new int[] {1000, 300000}) {
+      int[] array = randomIntArray(random, length);
+      int[] expected = array.clone();
+      Arrays.sort(expected, length / 4, length / 2);
+      int[] actual = array.clone();
+      Ints.radixSort(actual, length / 4, length / 2);
+      assertTrue(Arrays.equals(expected, actual));
+      actual = array.clone();
+      Ints.parallelRadixSort(actual, length / 4, length / 2);
+      assertTrue(Arrays.equals(expected, actual));
+    }
+  }
+
+  @GwtIncompatible // sortedIndexes
+  public void testSortedIndexes() {
+    Random random = new Random(2);
+    int[] array = new int[10000];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = random.nextInt(100);
+    }
+    int[] indexes = Ints.sortedIndexes(array);
+    boolean[] seen = new boolean[array.length];
+    for (int i = 0; i < indexes.length; i++) {
+      assertFalse(seen[indexes[i]]);
+      seen[indexes[i]] = true;
+      if (i > 0) {
+        int previous = array[indexes[i - 1]];
+        assertTrue(previous <= array[indexes[i]]);
+        // equal elements stay in index order
+        assertTrue(previous < array[indexes[i]] || indexes[i - 1] < indexes[i]);
+      }
+    }
+    assertEquals(0, Ints.sortedIndexes(new int[0]).length);
+  }
+
+  @GwtIncompatible // partialSort
+  public void testPartialSort() {
+    Random random = new Random(3);
+    for (int length : new int[] {0, 1, 10, 1000, 10000}) {
+      int[] array = randomIntArray(random, length);
+      int[] sorted = array.clone();
+      Arrays.sort(sorted);
+      for (int k : new int[] {0, Math.min(1, length), length / 10, length / 2, length}) {
+        int[] actual = array.clone();
+        Ints.partialSort(actual, k);
+        assertTrue(Arrays.equals(Arrays.copyOf(sorted, k), Arrays.copyOf(actual, k)));
+        Arrays.sort(actual);
+        assertTrue(Arrays.equals(sorted, actual));
+      }
+    }
+    // many duplicates
+    int[] array = new int[10000];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = random.nextInt(3);
+    }
+    Ints.partialSort(array, 5000);
+    for (int i = 1; i < 5000; i++) {
+      assertTrue(array[i - 1] <= array[i]);
+    }
+    try {
+      Ints.partialSort(array, array.length + 1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @GwtIncompatible // Random
+  private static int[] randomIntArray(Random random, int length) {
+    int[] array = new int[length];
+    for (int i = 0; i < length; i++) {
+      // values of every magnitude, so that no digit is the same for all of them
+      array[i] = random.nextInt() >> random.nextInt(Integer.SIZE);
+    }
+    return array;
+  }
+
   @GwtIncompatible // SerializableTester
   public void testStringConverterSerialization() {
     SerializableTester.reserializeAndAssert(Ints.stringConverter());
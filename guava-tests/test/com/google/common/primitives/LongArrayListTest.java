@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.primitives;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.testing.ListTestSuiteBuilder;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.ListFeature;
+import com.google.common.collector.PrimitiveCollectors;
+import com.google.common.primitives.LongArrayAsListTest.TestLongListGenerator;
+import com.google.common.testing.EqualsTester;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.LongStream;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/** Tests for {@link LongArrayList}. */
+@GwtIncompatible
+public class LongArrayListTest extends TestCase {
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTest(
+        ListTestSuiteBuilder.using(
+                new TestLongListGenerator() {
+                  @Override
+                  protected List<Long> create(Long[] elements) {
+                    LongArrayList list = new LongArrayList();
+                    list.addAll(Arrays.asList(elements));
+                    return list;
+                  }
+                })
+            .named("LongArrayList")
+            .withFeatures(
+                CollectionSize.ANY,
+                CollectionFeature.SERIALIZABLE,
+                CollectionFeature.FAILS_FAST_ON_CONCURRENT_MODIFICATION,
+                ListFeature.GENERAL_PURPOSE)
+            .createTestSuite());
+    suite.addTestSuite(LongArrayListTest.class);
+    return suite;
+  }
+
+  public void testAddAndGetWithoutBoxing() {
+    LongArrayList list = new LongArrayList(0);
+    for (long i = 0; i < 100; i++) {
+      list.addLong(i << 40);
+    }
+    assertEquals(100, list.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals((long) i << 40, list.getLong(i));
+    }
+    assertEquals(2L << 40, list.setLong(2, -1));
+    assertEquals(-1, list.getLong(2));
+  }
+
+  public void testAddAtIndex() {
+    LongArrayList list =
+        LongStream.of(1, 2, 4).boxed().collect(PrimitiveCollectors.toLongArrayList());
+    list.addLong(2, 3);
+    list.addLong(0, 0);
+    list.addLong(5, 5);
+    assertThat(list).containsExactly(0L, 1L, 2L, 3L, 4L, 5L).inOrder();
+    try {
+      list.addLong(7, 7);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  public void testWrap() {
+    long[] array = {1, 2, 3, 4};
+    LongArrayList list = new LongArrayList(array, 2);
+    assertThat(list).containsExactly(1L, 2L).inOrder();
+    list.addLong(5);
+    assertEquals(5, array[2]);
+
+    list.wrap(new long[0], 0);
+    assertTrue(list.isEmpty());
+    list.addLong(6);
+    assertThat(list).containsExactly(6L);
+
+    try {
+      list.wrap(array, 5);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testFastUnorderedRemove() {
+    LongArrayList list = new LongArrayList(new long[] {1, 2, 3, 4, 5}, 5);
+    assertEquals(2, list.fastUnorderedRemove(1));
+    assertThat(list).containsExactly(1L, 5L, 3L, 4L).inOrder();
+    assertTrue(list.fastUnorderedRemoveLong(1));
+    assertThat(list).containsExactly(4L, 5L, 3L).inOrder();
+    assertFalse(list.fastUnorderedRemoveLong(1));
+    assertEquals(3, list.fastUnorderedRemove(2));
+    assertThat(list).containsExactly(4L, 5L).inOrder();
+  }
+
+  public void testRemoveLong() {
+    LongArrayList list = new LongArrayList(new long[] {1, 2, 1}, 3);
+    assertTrue(list.removeLong(1));
+    assertThat(list).containsExactly(2L, 1L).inOrder();
+    assertFalse(list.removeLong(3));
+  }
+
+  public void testPushAndPop() {
+    LongArrayList stack = new LongArrayList();
+    stack.pushLong(1);
+    stack.pushLong(2);
+    assertEquals(2, stack.popLong());
+    assertEquals(1, stack.popLong());
+    try {
+      stack.popLong();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+  }
+
+  public void testIndexOf() {
+    LongArrayList list = new LongArrayList(new long[] {7, 8, 7}, 3);
+    assertEquals(0, list.indexOf(7L));
+    assertEquals(2, list.lastIndexOf(7L));
+    assertEquals(-1, list.indexOf(9L));
+    assertEquals(-1, list.indexOf((Object) 7));
+    assertTrue(list.contains(8L));
+    assertFalse(list.contains((Object) 8));
+  }
+
+  public void testStreamAndForEach() {
+    LongArrayList list = new LongArrayList(new long[] {3, 1, 2, 9}, 3);
+    assertEquals(6, list.longStream().sum());
+    List<Long> seen = new ArrayList<>();
+    list.forEachOrderedLong(seen::add);
+    assertThat(seen).containsExactly(3L, 1L, 2L).inOrder();
+    assertTrue(Arrays.equals(new long[] {3, 1, 2}, list.toLongArray()));
+  }
+
+  public void testFreeze() {
+    LongArrayList list = new LongArrayList();
+    list.addLong(1);
+    list.addLong(2);
+    ImmutableLongArray frozen = list.freeze();
+    assertEquals(ImmutableLongArray.of(1, 2), frozen);
+    assertTrue(list.isEmpty());
+
+    list.addLong(3);
+    assertEquals(ImmutableLongArray.of(1, 2), frozen);
+    assertThat(list).containsExactly(3L);
+
+    list.clear();
+    assertSame(ImmutableLongArray.of(), list.freeze());
+  }
+
+  public void testFreeze_wrappedArrayIsCopied() {
+    long[] array = {1, 2, 3};
+    LongArrayList list = new LongArrayList(array, 2);
+    ImmutableLongArray frozen = list.freeze();
+    array[0] = 9;
+    assertEquals(ImmutableLongArray.of(1, 2), frozen);
+
+    list.wrap(array, 3);
+    list.addLong(4);
+    frozen = list.freeze();
+    array[1] = 9;
+    assertEquals(ImmutableLongArray.of(9, 2, 3, 4), frozen);
+  }
+
+  public void testToImmutableLongArray() {
+    assertEquals(
+        ImmutableLongArray.of(0, 1, 2, 3),
+        LongStream.range(0, 4).boxed().collect(PrimitiveCollectors.toImmutableLongArray()));
+    assertEquals(
+        ImmutableLongArray.of(),
+        LongStream.empty().boxed().collect(PrimitiveCollectors.toImmutableLongArray()));
+  }
+
+  public void testParallelCollect() {
+    LongArrayList list =
+        LongStream.range(0, 10_000)
+            .parallel()
+            .boxed()
+            .collect(PrimitiveCollectors.toLongArrayList());
+    assertEquals(10_000, list.size());
+    for (int i = 0; i < list.size(); i++) {
+      assertEquals(i, list.getLong(i));
+    }
+  }
+
+  public void testTrimAndEnsureCapacity() {
+    LongArrayList list = new LongArrayList(100);
+    list.addLong(1);
+    list.trimToSize();
+    list.ensureCapacity(50);
+    list.addLong(2);
+    assertThat(list).containsExactly(1L, 2L).inOrder();
+  }
+
+  public void testEquals() {
+    new EqualsTester()
+        .addEqualityGroup(
+            new LongArrayList(),
+            new LongArrayList(new long[] {5}, 0),
+            new ArrayList<Long>())
+        .addEqualityGroup(
+            new LongArrayList(new long[] {1, 2}, 2),
+            new LongArrayList(new long[] {1, 2, 3}, 2),
+            Arrays.asList(1L, 2L))
+        .addEqualityGroup(new LongArrayList(new long[] {2, 1}, 2))
+        .testEquals();
+  }
+
+  public void testToString() {
+    assertEquals("[]", new LongArrayList().toString());
+    assertEquals("[1, -2]", new LongArrayList(new long[] {1, -2}, 2).toString());
+  }
+}
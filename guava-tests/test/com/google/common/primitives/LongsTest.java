@@ -377,6 +377,101 @@ public class LongsTest extends TestCase {
     testSortDescending(new long[] {-1, -2, 1, 2}, 1, 3, new long[] {-1, 1, -2, 2});
   }
 
+  @GwtIncompatible // radixSort
+  public void testRadixSort() {
+    Random random = new Random(0);
+    for (int length : new int[] {0, 1, 100, 1000, 100000, 300000}) {
+      long[] array = randomLongArray(random, length);
+      long[] expected = array.clone();
+      Arrays.sort(expected);
+      long[] actual = array.clone();
+      Longs.radixSort(actual);
+      assertTrue(Arrays.equals(expected, actual));
+      actual = array.clone();
+      Longs.parallelRadixSort(actual);
+      assertTrue(Arrays.equals(expected, actual));
+    }
+  }
+
+  @GwtIncompatible // radixSort
+  public void testRadixSortIndexed() {
+    Random random = new Random(1);
+    for (int length : new int[] {1000, 300000}) {
+      long[] array = randomLongArray(random, length);
+      long[] expected = array.clone();
+      Arrays.sort(expected, length / 4, length / 2);
+      long[] actual = array.clone();
+      Longs.radixSort(actual, length / 4, length / 2);
+      assertTrue(Arrays.equals(expected, actual));
+      actual = array.clone();
+      Longs.parallelRadixSort(actual, length / 4, length / 2);
+      assertTrue(Arrays.equals(expected, actual));
+    }
+  }
+
+  @GwtIncompatible // sortedIndexes
+  public void testSortedIndexes() {
+    Random random = new Random(2);
+    long[] array = new long[10000];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = random.nextInt(100);
+    }
+    int[] indexes = Longs.sortedIndexes(array);
+    boolean[] seen = new boolean[array.length];
+    for (int i = 0; i < indexes.length; i++) {
+      assertFalse(seen[indexes[i]]);
+      seen[indexes[i]] = true;
+      if (i > 0) {
+        long previous = array[indexes[i - 1]];
+        assertTrue(previous <= array[indexes[i]]);
+        // equal elements stay in index order
+        assertTrue(previous < array[indexes[i]] || indexes[i - 1] < indexes[i]);
+      }
+    }
+    assertEquals(0, Longs.sortedIndexes(new long[0]).length);
+  }
+
+  @GwtIncompatible // partialSort
+  public void testPartialSort() {
+    Random random = new Random(3);
+    for (int length : new int[] {0, 1, 10, 1000, 10000}) {
+      long[] array = randomLongArray(random, length);
+      long[] sorted = array.clone();
+      Arrays.sort(sorted);
+      for (int k : new int[] {0, Math.min(1, length), length / 10, length / 2, length}) {
+        long[] actual = array.clone();
+        Longs.partialSort(actual, k);
+        assertTrue(Arrays.equals(Arrays.copyOf(sorted, k), Arrays.copyOf(actual, k)));
+        Arrays.sort(actual);
+        assertTrue(Arrays.equals(sorted, actual));
+      }
+    }
+    // many duplicates
+    long[] array = new long[10000];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = random.nextInt(3);
+    }
+    Longs.partialSort(array, 5000);
+    for (int i = 1; i < 5000; i++) {
+      assertTrue(array[i - 1] <= array[i]);
+    }
+    try {
+      Longs.partialSort(array, array.length + 1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @GwtIncompatible // Random
+  private static long[] randomLongArray(Random random, int length) {
+    long[] array = new long[length];
+    for (int i = 0; i < length; i++) {
+      // values of every magnitude, so that no digit is the same for all of them
+      array[i] = random.nextLong() >> random.nextInt(Long.SIZE);
+    }
+    return array;
+  }
+
   @GwtIncompatible // SerializableTester
   public void testStringConverterSerialization() {
     SerializableTester.reserializeAndAssert(Longs.stringConverter());
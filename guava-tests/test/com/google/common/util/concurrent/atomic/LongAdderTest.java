@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent.atomic;
+
+import com.google.common.testing.SerializableTester;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import junit.framework.TestCase;
+
+/** Tests for {@link LongAdder}. */
+public class LongAdderTest extends TestCase {
+  static final int THREADS = 8;
+  static final int UPDATES_PER_THREAD = 100000;
+
+  public void testAdd() {
+    LongAdder adder = new LongAdder();
+    assertEquals(0, adder.sum());
+    adder.add(5);
+    adder.add(-2);
+    assertEquals(3, adder.sum());
+    adder.increment();
+    adder.increment();
+    adder.decrement();
+    assertEquals(4, adder.sum());
+  }
+
+  public void testReset() {
+    LongAdder adder = new LongAdder();
+    adder.add(42);
+    adder.reset();
+    assertEquals(0, adder.sum());
+    adder.add(42);
+    assertEquals(42, adder.sumThenReset());
+    assertEquals(0, adder.sum());
+  }
+
+  public void testNumberValues() {
+    LongAdder adder = new LongAdder();
+    adder.add(Integer.MAX_VALUE + 2L);
+    assertEquals(Integer.MAX_VALUE + 2L, adder.longValue());
+    assertEquals(Integer.MIN_VALUE + 1, adder.intValue());
+    assertEquals((float) (Integer.MAX_VALUE + 2L), adder.floatValue());
+    assertEquals((double) (Integer.MAX_VALUE + 2L), adder.doubleValue());
+    assertEquals(Long.toString(Integer.MAX_VALUE + 2L), adder.toString());
+  }
+
+  public void testSerialization() {
+    LongAdder adder = new LongAdder();
+    adder.add(17);
+    assertEquals(17, SerializableTester.reserialize(adder).sum());
+  }
+
+  public void testConcurrentAdds() throws InterruptedException {
+    final LongAdder adder = new LongAdder();
+    runInThreads(
+        new Runnable() {
+          @Override
+          public void run() {
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+              adder.increment();
+            }
+          }
+        });
+    assertEquals(THREADS * UPDATES_PER_THREAD, adder.sum());
+  }
+
+  /** Runs {@code task} in {@link #THREADS} threads at once, and waits for them to finish. */
+  static void runInThreads(final Runnable task) throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      Thread thread =
+          new Thread() {
+            @Override
+            public void run() {
+              try {
+                start.await();
+              } catch (InterruptedException e) {
+                throw new AssertionError(e);
+              }
+              task.run();
+            }
+          };
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent.atomic;
+
+import static com.google.common.util.concurrent.atomic.LongAdderTest.THREADS;
+import static com.google.common.util.concurrent.atomic.LongAdderTest.UPDATES_PER_THREAD;
+import static com.google.common.util.concurrent.atomic.LongAdderTest.runInThreads;
+
+import com.google.common.testing.SerializableTester;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/** Tests for {@link LongMinUpdater}. */
+public class LongMinUpdaterTest extends TestCase {
+
+  public void testUpdate() {
+    LongMinUpdater updater = new LongMinUpdater();
+    assertEquals(Long.MAX_VALUE, updater.min());
+    updater.update(5);
+    assertEquals(5, updater.min());
+    updater.update(-3);
+    updater.update(1);
+    assertEquals(-3, updater.min());
+    assertEquals("-3", updater.toString());
+  }
+
+  public void testReset() {
+    LongMinUpdater updater = new LongMinUpdater();
+    updater.update(42);
+    updater.reset();
+    assertEquals(Long.MAX_VALUE, updater.min());
+    updater.update(42);
+    assertEquals(42, updater.minThenReset());
+    assertEquals(Long.MAX_VALUE, updater.min());
+  }
+
+  public void testSerialization() {
+    LongMinUpdater updater = new LongMinUpdater();
+    updater.update(17);
+    assertEquals(17, SerializableTester.reserialize(updater).min());
+  }
+
+  public void testConcurrentUpdates() throws InterruptedException {
+    final LongMinUpdater updater = new LongMinUpdater();
+    final AtomicInteger nextThread = new AtomicInteger();
+    runInThreads(
+        new Runnable() {
+          @Override
+          public void run() {
+            int thread = nextThread.getAndIncrement();
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+              updater.update(-((long) i * THREADS + thread));
+            }
+          }
+        });
+    assertEquals(1 - (long) UPDATES_PER_THREAD * THREADS, updater.min());
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent.atomic;
+
+import com.google.common.BitUtil;
+import com.google.common.util.concurrent.atomic.Striped64.Cell;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import junit.framework.TestCase;
+
+/** Tests for {@link Striped64}. */
+public class Striped64Test extends TestCase {
+
+  public void testCellPadding() {
+    int before = 0;
+    int after = 0;
+    boolean seenValue = false;
+    for (Field field : Cell.class.getDeclaredFields()) {
+      if (Modifier.isStatic(field.getModifiers())) {
+        continue;
+      }
+      assertEquals(long.class, field.getType());
+      if (field.getName().equals("value")) {
+        seenValue = true;
+      } else if (seenValue) {
+        after++;
+      } else {
+        before++;
+      }
+    }
+    assertTrue(seenValue);
+    assertEquals(BitUtil.CACHE_LINE_LENGTH / BitUtil.SIZE_OF_LONG - 1, Striped64.PADDING_LONGS);
+    assertEquals(Striped64.PADDING_LONGS, before);
+    assertEquals(Striped64.PADDING_LONGS, after);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent.atomic;
+
+import static com.google.common.util.concurrent.atomic.LongAdderTest.THREADS;
+import static com.google.common.util.concurrent.atomic.LongAdderTest.UPDATES_PER_THREAD;
+import static com.google.common.util.concurrent.atomic.LongAdderTest.runInThreads;
+
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/** Tests for {@link StripedHistogram}. */
+public class StripedHistogramTest extends TestCase {
+
+  public void testConstructor_invalidBucketCount() {
+    try {
+      new StripedHistogram(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testAdd() {
+    StripedHistogram histogram = new StripedHistogram(4);
+    assertEquals(4, histogram.bucketCount());
+    assertTrue(Arrays.equals(new long[4], histogram.counts()));
+
+    histogram.increment(0);
+    histogram.increment(3);
+    histogram.add(3, 5);
+    assertEquals(1, histogram.count(0));
+    assertEquals(0, histogram.count(1));
+    assertEquals(6, histogram.count(3));
+    assertTrue(Arrays.equals(new long[] {1, 0, 0, 6}, histogram.counts()));
+    assertEquals(7, histogram.totalCount());
+    assertEquals("[1, 0, 0, 6]", histogram.toString());
+  }
+
+  public void testBucketOutOfRange() {
+    StripedHistogram histogram = new StripedHistogram(4);
+    try {
+      histogram.increment(4);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    try {
+      histogram.add(-1, 1);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    try {
+      histogram.count(4);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  public void testReset() {
+    StripedHistogram histogram = new StripedHistogram(2);
+    histogram.add(1, 3);
+    histogram.reset();
+    assertEquals(0, histogram.totalCount());
+  }
+
+  public void testConcurrentIncrements() throws InterruptedException {
+    final StripedHistogram histogram = new StripedHistogram(3);
+    runInThreads(
+        new Runnable() {
+          @Override
+          public void run() {
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+              histogram.increment(i % 3);
+            }
+          }
+        });
+    long[] counts = histogram.counts();
+    assertEquals(THREADS * UPDATES_PER_THREAD, counts[0] + counts[1] + counts[2]);
+    assertEquals(THREADS * ((UPDATES_PER_THREAD + 2) / 3), counts[0]);
+  }
+}
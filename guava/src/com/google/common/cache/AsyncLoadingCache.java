@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.ConcurrentMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A semi-persistent mapping from keys to futures of values, which are loaded asynchronously by an
+ * executor. A future is stored in the cache as soon as its load begins, so every caller requesting
+ * a key that is being loaded shares the same load, and no caller ever blocks waiting for a {@link
+ * CacheLoader}. A future that fails, or that completes with {@code null}, is removed from the cache
+ * so that a later request loads the value again.
+ *
+ * <p>Calls to {@link #getAll} load the missing keys with {@link CacheLoader#loadAll}. Missing keys
+ * of {@code getAll} calls that arrive within the {@linkplain CacheBuilder#bulkLoadWindow bulk load
+ * window} are merged into a single call to {@code loadAll}, and keys that are already being loaded
+ * by an earlier call are not loaded again.
+ *
+ * <p>Size-based eviction, expiration, removal notifications and statistics behave as for a {@link
+ * LoadingCache}, except that an entry whose value is still loading has a weight of zero and is not
+ * reported to the removal listener. An entry is weighed, and its write time recorded, again when
+ * its load completes.
+ *
+ * <p>Implementations of this interface are expected to be thread-safe, and can be safely accessed
+ * by multiple concurrent threads.
+ */
+@GwtIncompatible
+public interface AsyncLoadingCache<K, V> {
+
+  /**
+   * Returns the future associated with {@code key} in this cache, or {@code null} if there is no
+   * cached future for {@code key}. The future may still be loading.
+   */
+  @Nullable
+  ListenableFuture<V> getIfPresent(Object key);
+
+  /**
+   * Returns the future associated with {@code key} in this cache, first starting to load the value
+   * on the cache's executor if necessary. This method never blocks on a {@link CacheLoader}.
+   *
+   * <p>If the load fails, the returned future fails with the loader's exception, or with an {@link
+   * CacheLoader.InvalidCacheLoadException} if the loader returned {@code null}.
+   */
+  ListenableFuture<V> get(K key);
+
+  /**
+   * Returns a future of a map of the values associated with {@code keys}, starting to load any
+   * values that are missing. The returned map contains all of the requested keys, in the order in
+   * which they were requested, and the future fails if the value of any of them fails to load.
+   *
+   * <p>Keys that are neither cached nor already loading are loaded together by a call to {@link
+   * CacheLoader#loadAll}, possibly shared with other callers of this method. If the loader does not
+   * implement {@code loadAll}, each missing key is loaded by {@link CacheLoader#load}. Entries
+   * returned by {@code loadAll} for keys that were not requested are also cached, unless their keys
+   * are already present.
+   */
+  ListenableFuture<ImmutableMap<K, V>> getAll(Iterable<? extends K> keys);
+
+  /**
+   * Associates {@code valueFuture} with {@code key} in this cache, replacing any existing future.
+   * If {@code valueFuture} fails, or completes with {@code null}, the entry is removed.
+   */
+  void put(K key, ListenableFuture<V> valueFuture);
+
+  /** Discards any cached future for {@code key}. A load that is in progress is not cancelled. */
+  void invalidate(Object key);
+
+  /** Discards all entries in the cache. Loads that are in progress are not cancelled. */
+  void invalidateAll();
+
+  /** Returns the approximate number of entries in this cache, including those still loading. */
+  long size();
+
+  /**
+   * Returns a current snapshot of this cache's cumulative statistics. A load is recorded when its
+   * future completes.
+   */
+  CacheStats stats();
+
+  /** Performs any pending maintenance operations needed by the cache. */
+  void cleanUp();
+
+  /**
+   * Returns a view of the entries stored in this cache as a thread-safe map. Modifications made to
+   * the map directly affect the cache.
+   */
+  ConcurrentMap<K, ListenableFuture<V>> asMap();
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts cache values to and from bytes, so that they can be held outside of the Java heap by a
+ * cache configured with {@link CacheBuilder#offHeapTier}.
+ *
+ * <p>The buffers passed to a codec are views of off-heap memory that is reused once the codec
+ * returns, so a codec must not retain them. In particular, {@link #decode} must copy whatever it
+ * needs out of its buffer rather than returning a value that wraps it.
+ *
+ * <p>Implementations must be thread-safe.
+ */
+@GwtIncompatible
+public interface ByteCodec<V> {
+
+  /** Returns the exact number of bytes that {@link #encode} will write for {@code value}. */
+  int encodedLength(V value);
+
+  /**
+   * Writes the encoded form of {@code value} to {@code target}, starting at its position. {@code
+   * target} has exactly {@link #encodedLength encodedLength(value)} bytes remaining, all of which
+   * must be written.
+   */
+  void encode(V value, ByteBuffer target);
+
+  /**
+   * Reads a value from {@code source}, a read-only buffer positioned at the first byte written by
+   * {@link #encode} and limited to the last. {@code source} reads the off-heap memory directly, so
+   * no copy is made before decoding.
+   */
+  V decode(ByteBuffer source);
+}
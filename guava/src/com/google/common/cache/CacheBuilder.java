@@ -17,6 +17,7 @@ package com.google.common.cache;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 
 import com.google.common.annotations.GwtCompatible;
 import com.google.common.annotations.GwtIncompatible;
@@ -31,16 +32,20 @@ import com.google.common.cache.AbstractCache.StatsCounter;
 import com.google.common.cache.LocalCache.Strength;
 import com.google.errorprone.annotations.CheckReturnValue;
 import com.google.j2objc.annotations.J2ObjCIncompatible;
+import java.io.File;
 import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.util.ConcurrentModificationException;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * A builder of {@link LoadingCache} and {@link Cache} instances having any combination of the
@@ -134,6 +139,9 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
  * {@linkplain #removalListener removalListener}, {@linkplain #expireAfterWrite expireAfterWrite},
  * {@linkplain #expireAfterAccess expireAfterAccess}, {@linkplain #weakKeys weakKeys}, {@linkplain
  * #weakValues weakValues}, or {@linkplain #softValues softValues} perform periodic maintenance.
+ * Caches built with an {@linkplain #executor executor} hand the maintenance that reads would
+ * perform, removal notifications and refreshes to it, and caches built with a {@linkplain
+ * #scheduler scheduler} also perform maintenance while they are idle.
  *
  * <p>The caches produced by {@code CacheBuilder} are serializable, and the deserialized caches
  * retain all the configuration properties of the original cache. Note that the serialized form does
@@ -228,21 +236,31 @@ public final class CacheBuilder<K, V> {
   long maximumSize = UNSET_INT;
   long maximumWeight = UNSET_INT;
   @MonotonicNonNull Weigher<? super K, ? super V> weigher;
+  boolean frequencyAwareEviction;
 
   @MonotonicNonNull Strength keyStrength;
   @MonotonicNonNull Strength valueStrength;
 
   long expireAfterWriteNanos = UNSET_INT;
   long expireAfterAccessNanos = UNSET_INT;
+  @MonotonicNonNull Expiry<? super K, ? super V> expiry;
   long refreshNanos = UNSET_INT;
+  long bulkLoadWindowNanos = UNSET_INT;
+
+  long offHeapCapacity = UNSET_INT;
+  @Nullable File offHeapFile;
+  @MonotonicNonNull ByteCodec<?> offHeapCodec;
 
   @MonotonicNonNull Equivalence<Object> keyEquivalence;
   @MonotonicNonNull Equivalence<Object> valueEquivalence;
 
   @MonotonicNonNull RemovalListener<? super K, ? super V> removalListener;
   @MonotonicNonNull Ticker ticker;
+  @MonotonicNonNull Executor executor;
+  @MonotonicNonNull ScheduledExecutorService scheduler;
 
   Supplier<? extends StatsCounter> statsCounterSupplier = NULL_STATS_COUNTER;
+  @MonotonicNonNull CacheMetricsRecorder metricsRecorder;
 
   private CacheBuilder() {}
 
@@ -534,6 +552,35 @@ public final class CacheBuilder<K, V> {
     return (Weigher<K1, V1>) MoreObjects.firstNonNull(weigher, OneWeigher.INSTANCE);
   }
 
+  /**
+   * Specifies that size-based eviction should take the popularity of entries into account,
+   * rather than evicting purely by recency. Requires {@link #maximumSize} or {@link
+   * #maximumWeight}, which continue to bound the cache exactly as before.
+   *
+   * <p>The cache uses the W-TinyLFU policy: newly added entries are held in a small
+   * least-recently-used admission window, and an entry leaving the window is only retained if a
+   * compact frequency sketch estimates that it is accessed more often than the entry it would
+   * displace. Entries that prove popular are protected from eviction by a segmented LRU. This
+   * typically yields a considerably higher hit rate than LRU for skewed workloads, and keeps the
+   * working set intact when the cache is subjected to scans or bursts of one-time accesses.
+   *
+   * <p>As with LRU, the policy is applied per segment; the approximation improves as each segment
+   * holds more entries.
+   *
+   * @return this {@code CacheBuilder} instance (for chaining)
+   * @throws IllegalStateException if frequency-aware eviction was already requested
+   */
+  @GwtIncompatible // To be supported
+  public CacheBuilder<K, V> frequencyAwareEviction() {
+    checkState(!frequencyAwareEviction, "frequency-aware eviction was already requested");
+    frequencyAwareEviction = true;
+    return this;
+  }
+
+  boolean usesFrequencyAwareEviction() {
+    return frequencyAwareEviction;
+  }
+
   /**
    * Specifies that each key (not value) stored in the cache should be wrapped in a {@link
    * WeakReference} (by default, strong references are used).
@@ -638,7 +685,8 @@ public final class CacheBuilder<K, V> {
    *     removed
    * @return this {@code CacheBuilder} instance (for chaining)
    * @throws IllegalArgumentException if {@code duration} is negative
-   * @throws IllegalStateException if the time to live or time to idle was already set
+   * @throws IllegalStateException if the time to live or time to idle was already set, or an {@link
+   *     Expiry} was set
    * @throws ArithmeticException for durations greater than +/- approximately 292 years
    * @since 25.0
    */
@@ -668,13 +716,15 @@ public final class CacheBuilder<K, V> {
    * @param unit the unit that {@code duration} is expressed in
    * @return this {@code CacheBuilder} instance (for chaining)
    * @throws IllegalArgumentException if {@code duration} is negative
-   * @throws IllegalStateException if the time to live or time to idle was already set
+   * @throws IllegalStateException if the time to live or time to idle was already set, or an {@link
+   *     Expiry} was set
    */
   public CacheBuilder<K, V> expireAfterWrite(long duration, TimeUnit unit) {
     checkState(
         expireAfterWriteNanos == UNSET_INT,
         "expireAfterWrite was already set to %s ns",
         expireAfterWriteNanos);
+    checkState(expiry == null, "expireAfterWrite cannot be combined with expireAfter");
     checkArgument(duration >= 0, "duration cannot be negative: %s %s", duration, unit);
     this.expireAfterWriteNanos = unit.toNanos(duration);
     return this;
@@ -703,7 +753,8 @@ public final class CacheBuilder<K, V> {
    *     automatically removed
    * @return this {@code CacheBuilder} instance (for chaining)
    * @throws IllegalArgumentException if {@code duration} is negative
-   * @throws IllegalStateException if the time to idle or time to live was already set
+   * @throws IllegalStateException if the time to idle or time to live was already set, or an {@link
+   *     Expiry} was set
    * @throws ArithmeticException for durations greater than +/- approximately 292 years
    * @since 25.0
    */
@@ -736,13 +787,15 @@ public final class CacheBuilder<K, V> {
    * @param unit the unit that {@code duration} is expressed in
    * @return this {@code CacheBuilder} instance (for chaining)
    * @throws IllegalArgumentException if {@code duration} is negative
-   * @throws IllegalStateException if the time to idle or time to live was already set
+   * @throws IllegalStateException if the time to idle or time to live was already set, or an {@link
+   *     Expiry} was set
    */
   public CacheBuilder<K, V> expireAfterAccess(long duration, TimeUnit unit) {
     checkState(
         expireAfterAccessNanos == UNSET_INT,
         "expireAfterAccess was already set to %s ns",
         expireAfterAccessNanos);
+    checkState(expiry == null, "expireAfterAccess cannot be combined with expireAfter");
     checkArgument(duration >= 0, "duration cannot be negative: %s %s", duration, unit);
     this.expireAfterAccessNanos = unit.toNanos(duration);
     return this;
@@ -754,6 +807,51 @@ public final class CacheBuilder<K, V> {
         : expireAfterAccessNanos;
   }
 
+  /**
+   * Specifies that each entry should be automatically removed from the cache once a duration
+   * calculated by {@code expiry} has elapsed. The duration is calculated separately for each entry
+   * when it is created, when its value is replaced, and when it is read, so entries of the same
+   * cache may have different lifetimes; for example, a lifetime taken from the value itself.
+   *
+   * <p>Expired entries may be counted in {@link Cache#size}, but will never be visible to read or
+   * write operations. Expired entries are cleaned up as part of the routine maintenance described
+   * in the class javadoc. Each segment orders its entries by expiration time in a hierarchical
+   * timing wheel, so that this cleanup takes amortized constant time per entry, but an entry may
+   * only be cleaned up about a second after it expires.
+   *
+   * <p><b>Warning:</b> after invoking this method, do not continue to use <i>this</i> cache builder
+   * reference; instead use the reference this method <i>returns</i>.
+   *
+   * @param expiry calculates how long each entry remains in the cache
+   * @return the cache builder reference that should be used instead of {@code this} for any
+   *     remaining configuration and cache building
+   * @throws IllegalStateException if an expiry, the time to live or the time to idle was already
+   *     set
+   */
+  @GwtIncompatible // To be supported
+  @CheckReturnValue
+  public <K1 extends K, V1 extends V> CacheBuilder<K1, V1> expireAfter(
+      Expiry<? super K1, ? super V1> expiry) {
+    checkState(this.expiry == null, "expireAfter was already set to %s", this.expiry);
+    checkState(
+        expireAfterWriteNanos == UNSET_INT, "expireAfter cannot be combined with expireAfterWrite");
+    checkState(
+        expireAfterAccessNanos == UNSET_INT,
+        "expireAfter cannot be combined with expireAfterAccess");
+
+    // safely limiting the kinds of caches this can produce
+    @SuppressWarnings("unchecked")
+    CacheBuilder<K1, V1> me = (CacheBuilder<K1, V1>) this;
+    me.expiry = checkNotNull(expiry);
+    return me;
+  }
+
+  // Make a safe contravariant cast now so we don't have to do it over and over.
+  @SuppressWarnings("unchecked")
+  <K1 extends K, V1 extends V> @Nullable Expiry<K1, V1> getExpiry() {
+    return (Expiry<K1, V1>) expiry;
+  }
+
   /**
    * Specifies that active entries are eligible for automatic refresh once a fixed duration has
    * elapsed after the entry's creation, or the most recent replacement of its value. The semantics
@@ -828,6 +926,113 @@ public final class CacheBuilder<K, V> {
     return (refreshNanos == UNSET_INT) ? DEFAULT_REFRESH_NANOS : refreshNanos;
   }
 
+  /**
+   * Specifies how long an {@link AsyncLoadingCache} waits after a call to {@link
+   * AsyncLoadingCache#getAll} finds missing keys before loading them, so that the missing keys of
+   * other calls arriving in the meantime are loaded by the same call to {@link
+   * CacheLoader#loadAll}. By default the missing keys are loaded as soon as an executor thread is
+   * available, which only merges calls that arrive while all executor threads are busy.
+   *
+   * <p>A longer window yields fewer, larger bulk loads, at the cost of adding up to the window to
+   * the latency of each {@code getAll} call that misses.
+   *
+   * @param duration the length of time to collect missing keys before loading them
+   * @param unit the unit that {@code duration} is expressed in
+   * @return this {@code CacheBuilder} instance (for chaining)
+   * @throws IllegalArgumentException if {@code duration} is negative
+   * @throws IllegalStateException if the bulk load window was already set
+   */
+  @GwtIncompatible // To be supported
+  public CacheBuilder<K, V> bulkLoadWindow(long duration, TimeUnit unit) {
+    checkNotNull(unit);
+    checkState(
+        bulkLoadWindowNanos == UNSET_INT,
+        "bulkLoadWindow was already set to %s ns",
+        bulkLoadWindowNanos);
+    checkArgument(duration >= 0, "duration cannot be negative: %s %s", duration, unit);
+    this.bulkLoadWindowNanos = unit.toNanos(duration);
+    return this;
+  }
+
+  long getBulkLoadWindowNanos() {
+    return (bulkLoadWindowNanos == UNSET_INT) ? 0 : bulkLoadWindowNanos;
+  }
+
+  /**
+   * Specifies that entries evicted because of {@link #maximumSize} or {@link #maximumWeight} should
+   * not be discarded, but encoded with {@code codec} and held outside of the Java heap, in up to
+   * {@code capacityInBytes} bytes of direct memory. A request for a key that is held off-heap
+   * decodes its value and moves it back onto the heap, without calling the cache's loader.
+   *
+   * <p>Off-heap memory is allocated in pages of up to one megabyte, each divided into chunks of a
+   * single size, so a value occupies a chunk up to a quarter larger than its encoding. When the
+   * capacity is exhausted, storing a value evicts the least-recently-stored value whose encoding
+   * has a similar size, and the removal listener is then notified with {@link RemovalCause#SIZE}.
+   * Values whose encoding is larger than a page are discarded instead of being stored.
+   *
+   * <p>Entries held off-heap still expire after the shortest of the configured expiration
+   * durations, measured from when they were evicted from the heap, but are not visible to the
+   * queries of the {@link Cache#asMap} view, though its writes replace or remove them, and cannot
+   * be refreshed until they are moved back onto the heap.
+   *
+   * <p>The cache that is built implements {@link java.io.Closeable}; closing it discards the
+   * entries held off-heap without notification and releases their memory, after which entries
+   * evicted from the heap are discarded.
+   *
+   * <p><b>Warning:</b> after invoking this method, do not continue to use <i>this</i> cache builder
+   * reference; instead use the reference this method <i>returns</i>.
+   *
+   * @param capacityInBytes the amount of direct memory in which to hold evicted values
+   * @param codec converts values to and from their off-heap encoding
+   * @return the cache builder reference that should be used instead of {@code this} for any
+   *     remaining configuration and cache building
+   * @throws IllegalArgumentException if {@code capacityInBytes} is not positive
+   * @throws IllegalStateException if an off-heap tier was already set
+   */
+  @GwtIncompatible // To be supported
+  @CheckReturnValue
+  public <V1 extends V> CacheBuilder<K, V1> offHeapTier(
+      long capacityInBytes, ByteCodec<V1> codec) {
+    checkNotNull(codec);
+    checkState(
+        offHeapCapacity == UNSET_INT,
+        "off-heap tier was already set to %s bytes",
+        offHeapCapacity);
+    checkArgument(capacityInBytes > 0, "capacityInBytes must be positive: %s", capacityInBytes);
+
+    // safely limiting the kinds of caches this can produce
+    @SuppressWarnings("unchecked")
+    CacheBuilder<K, V1> me = (CacheBuilder<K, V1>) this;
+    me.offHeapCapacity = capacityInBytes;
+    me.offHeapCodec = codec;
+    return me;
+  }
+
+  /**
+   * Specifies that entries evicted because of {@link #maximumSize} or {@link #maximumWeight} should
+   * be held off-heap as for {@link #offHeapTier(long, ByteCodec)}, but in memory mapped from
+   * {@code file} rather than in direct memory, so that the operating system may page them out. The
+   * file is created if necessary and grows to at most {@code capacityInBytes} bytes. Its contents
+   * are not read when the cache is built, so entries are not recovered from a previous run.
+   *
+   * @param file the file in which to hold evicted values
+   * @param capacityInBytes the number of bytes of {@code file} in which to hold evicted values
+   * @param codec converts values to and from their off-heap encoding
+   * @return the cache builder reference that should be used instead of {@code this} for any
+   *     remaining configuration and cache building
+   * @throws IllegalArgumentException if {@code capacityInBytes} is not positive
+   * @throws IllegalStateException if an off-heap tier was already set
+   */
+  @GwtIncompatible // To be supported
+  @CheckReturnValue
+  public <V1 extends V> CacheBuilder<K, V1> offHeapTier(
+      File file, long capacityInBytes, ByteCodec<V1> codec) {
+    checkNotNull(file);
+    CacheBuilder<K, V1> me = offHeapTier(capacityInBytes, codec);
+    me.offHeapFile = file;
+    return me;
+  }
+
   /**
    * Specifies a nanosecond-precision time source for this cache. By default, {@link
    * System#nanoTime} is used.
@@ -851,6 +1056,63 @@ public final class CacheBuilder<K, V> {
     return recordsTime ? Ticker.systemTicker() : NULL_TICKER;
   }
 
+  /**
+   * Specifies the executor on which caches perform their routine maintenance, notify their
+   * {@linkplain #removalListener removal listener}, and {@linkplain LoadingCache#refresh refresh}
+   * values, so that this work is taken off the threads that read the cache. By default this work is
+   * performed by the thread whose read or write made it necessary, and a read that triggers a
+   * refresh waits for {@link CacheLoader#reload} unless the loader is {@linkplain
+   * CacheLoader#asyncReloading asynchronous}.
+   *
+   * <p>A read that finds maintenance due submits it to {@code executor} and returns at once, and a
+   * read that finds a value due for refresh returns the old value while {@code executor} loads the
+   * new one. Writes still remove expired and evicted entries from the segment they lock, as they
+   * hold its lock already, but leave notifying the listener to {@code executor}. Removal
+   * notifications are delivered one at a time, in the order in which the entries were removed.
+   *
+   * <p>{@code executor} should not run tasks on the calling thread, nor reject them, as either
+   * returns the work to the cache's callers. If {@code executor} rejects a task, the work is
+   * performed on the calling thread instead.
+   *
+   * @return this {@code CacheBuilder} instance (for chaining)
+   * @throws IllegalStateException if an executor was already set
+   */
+  @GwtIncompatible // To be supported
+  public CacheBuilder<K, V> executor(Executor executor) {
+    checkState(this.executor == null, "executor was already set to %s", this.executor);
+    this.executor = checkNotNull(executor);
+    return this;
+  }
+
+  Executor getExecutor() {
+    return MoreObjects.firstNonNull(executor, directExecutor());
+  }
+
+  /**
+   * Specifies a scheduler that caches use to perform their routine maintenance about once a second,
+   * so that expired entries, and the values of entries whose keys or values were reclaimed, are
+   * removed and the removal listener notified even while the cache is not being used. Without a
+   * scheduler such entries linger until the cache is next read or written.
+   *
+   * <p>The maintenance itself runs on the cache's {@linkplain #executor executor}, if one was set,
+   * and otherwise on {@code scheduler}. A cache does not keep itself reachable through {@code
+   * scheduler}; its periodic task is cancelled once the cache has been garbage collected.
+   *
+   * @return this {@code CacheBuilder} instance (for chaining)
+   * @throws IllegalStateException if a scheduler was already set
+   */
+  @GwtIncompatible // To be supported
+  public CacheBuilder<K, V> scheduler(ScheduledExecutorService scheduler) {
+    checkState(this.scheduler == null, "scheduler was already set to %s", this.scheduler);
+    this.scheduler = checkNotNull(scheduler);
+    return this;
+  }
+
+  @Nullable
+  ScheduledExecutorService getScheduler() {
+    return scheduler;
+  }
+
   /**
    * Specifies a listener instance that caches should notify each time an entry is removed for any
    * {@linkplain RemovalCause reason}. Each cache created by this builder will invoke this listener
@@ -913,6 +1175,32 @@ public final class CacheBuilder<K, V> {
     return statsCounterSupplier;
   }
 
+  /**
+   * Enables the recording of detailed {@link CacheMetrics} by {@code recorder}: load time
+   * percentiles, removals by cause, refreshes in progress, segment lock contention, and the number
+   * and weight of the entries in each segment. Snapshots are taken with {@link
+   * CacheMetricsRecorder#snapshot}, and may be taken while the cache is in use.
+   *
+   * <p>Recording metrics adds a few counter increments to each load, removal and refresh, and
+   * measures the time that a thread waits whenever it finds a segment locked. Caches built without
+   * a recorder do none of this work.
+   *
+   * @param recorder the recorder of this cache's metrics, which may be shared with other caches
+   * @return this {@code CacheBuilder} instance (for chaining)
+   * @throws IllegalStateException if a recorder was already set
+   */
+  @GwtIncompatible // To be supported
+  public CacheBuilder<K, V> recordMetrics(CacheMetricsRecorder recorder) {
+    checkState(metricsRecorder == null, "metrics recorder was already set");
+    this.metricsRecorder = checkNotNull(recorder);
+    return this;
+  }
+
+  @Nullable
+  CacheMetricsRecorder getMetricsRecorder() {
+    return metricsRecorder;
+  }
+
   /**
    * Builds a cache, which either returns an already-loaded value for a given key or atomically
    * computes or retrieves it using the supplied {@code CacheLoader}. If another thread is currently
@@ -928,9 +1216,79 @@ public final class CacheBuilder<K, V> {
   public <K1 extends K, V1 extends V> LoadingCache<K1, V1> build(
       CacheLoader<? super K1, V1> loader) {
     checkWeightWithWeigher();
+    checkFrequencyAwareEviction();
+    if (offHeapCapacity != UNSET_INT) {
+      checkOffHeapTier();
+      return new OffHeapTieredCache.Loading<>(this, loader);
+    }
     return new LocalCache.LocalLoadingCache<>(this, loader);
   }
 
+  /**
+   * Builds a cache which holds futures of values, and which loads missing values asynchronously on
+   * {@code executor} using the supplied {@code CacheLoader}. Callers requesting a value that is
+   * being loaded share its future rather than blocking, and the missing keys of concurrent bulk
+   * requests are coalesced into shared calls to {@link CacheLoader#loadAll}; see {@link
+   * #bulkLoadWindow}.
+   *
+   * <p>Values are held strongly, and refreshing is not supported.
+   *
+   * <p>This method does not alter the state of this {@code CacheBuilder} instance, so it can be
+   * invoked again to create multiple independent caches.
+   *
+   * @param loader the cache loader used to obtain new values
+   * @param executor the executor on which loads are performed, and bulk loads are scheduled
+   * @return a cache having the requested features
+   * @throws IllegalStateException if weak or soft values, refreshing, an off-heap tier or an
+   *     {@link Expiry} were requested
+   */
+  @GwtIncompatible // To be supported
+  public <K1 extends K, V1 extends V> AsyncLoadingCache<K1, V1> buildAsync(
+      CacheLoader<? super K1, V1> loader, ScheduledExecutorService executor) {
+    checkWeightWithWeigher();
+    checkFrequencyAwareEviction();
+    checkState(getValueStrength() == Strength.STRONG, "AsyncLoadingCache requires strong values");
+    checkState(
+        refreshNanos == UNSET_INT, "refreshAfterWrite is not supported by AsyncLoadingCache");
+    checkState(
+        offHeapCapacity == UNSET_INT, "offHeapTier is not supported by AsyncLoadingCache");
+    checkState(expiry == null, "expireAfter is not supported by AsyncLoadingCache");
+    return new LocalCache.LocalAsyncLoadingCache<>(this, loader, executor);
+  }
+
+  /**
+   * Returns a copy of this builder, but with the given weigher and removal listener (either of
+   * which may be null), for a cache whose values differ in type from this builder's. The {@link
+   * Expiry}, which depends on the value type, is not copied.
+   */
+  <K1, V1> CacheBuilder<K1, V1> copyWith(
+      @Nullable Weigher<? super K1, ? super V1> weigher,
+      @Nullable RemovalListener<? super K1, ? super V1> removalListener) {
+    CacheBuilder<K1, V1> copy = new CacheBuilder<>();
+    copy.strictParsing = strictParsing;
+    copy.initialCapacity = initialCapacity;
+    copy.concurrencyLevel = concurrencyLevel;
+    copy.maximumSize = maximumSize;
+    copy.maximumWeight = maximumWeight;
+    copy.weigher = weigher;
+    copy.frequencyAwareEviction = frequencyAwareEviction;
+    copy.keyStrength = keyStrength;
+    copy.valueStrength = valueStrength;
+    copy.expireAfterWriteNanos = expireAfterWriteNanos;
+    copy.expireAfterAccessNanos = expireAfterAccessNanos;
+    copy.refreshNanos = refreshNanos;
+    copy.bulkLoadWindowNanos = bulkLoadWindowNanos;
+    copy.keyEquivalence = keyEquivalence;
+    copy.valueEquivalence = valueEquivalence;
+    copy.removalListener = removalListener;
+    copy.ticker = ticker;
+    copy.executor = executor;
+    copy.scheduler = scheduler;
+    copy.statsCounterSupplier = statsCounterSupplier;
+    copy.metricsRecorder = metricsRecorder;
+    return copy;
+  }
+
   /**
    * Builds a cache which does not automatically load values when keys are requested.
    *
@@ -945,7 +1303,12 @@ public final class CacheBuilder<K, V> {
    */
   public <K1 extends K, V1 extends V> Cache<K1, V1> build() {
     checkWeightWithWeigher();
+    checkFrequencyAwareEviction();
     checkNonLoadingCache();
+    if (offHeapCapacity != UNSET_INT) {
+      checkOffHeapTier();
+      return new OffHeapTieredCache<>(this, null);
+    }
     return new LocalCache.LocalManualCache<>(this);
   }
 
@@ -953,6 +1316,22 @@ public final class CacheBuilder<K, V> {
     checkState(refreshNanos == UNSET_INT, "refreshAfterWrite requires a LoadingCache");
   }
 
+  private void checkOffHeapTier() {
+    checkState(
+        maximumSize != UNSET_INT || maximumWeight != UNSET_INT,
+        "offHeapTier requires maximumSize or maximumWeight");
+    checkState(getKeyStrength() == Strength.STRONG, "offHeapTier requires strong keys");
+    checkState(expiry == null, "offHeapTier cannot be combined with expireAfter");
+  }
+
+  private void checkFrequencyAwareEviction() {
+    if (frequencyAwareEviction) {
+      checkState(
+          maximumSize != UNSET_INT || maximumWeight != UNSET_INT,
+          "frequencyAwareEviction requires maximumSize or maximumWeight");
+    }
+  }
+
   private void checkWeightWithWeigher() {
     if (weigher == null) {
       checkState(maximumWeight == UNSET_INT, "maximumWeight requires weigher");
@@ -986,12 +1365,24 @@ public final class CacheBuilder<K, V> {
     if (maximumWeight != UNSET_INT) {
       s.add("maximumWeight", maximumWeight);
     }
+    if (frequencyAwareEviction) {
+      s.addValue("frequencyAwareEviction");
+    }
     if (expireAfterWriteNanos != UNSET_INT) {
       s.add("expireAfterWrite", expireAfterWriteNanos + "ns");
     }
     if (expireAfterAccessNanos != UNSET_INT) {
       s.add("expireAfterAccess", expireAfterAccessNanos + "ns");
     }
+    if (expiry != null) {
+      s.addValue("expireAfter");
+    }
+    if (bulkLoadWindowNanos != UNSET_INT) {
+      s.add("bulkLoadWindow", bulkLoadWindowNanos + "ns");
+    }
+    if (offHeapCapacity != UNSET_INT) {
+      s.add("offHeapTier", offHeapCapacity + "B");
+    }
     if (keyStrength != null) {
       s.add("keyStrength", Ascii.toLowerCase(keyStrength.toString()));
     }
@@ -1007,6 +1398,15 @@ public final class CacheBuilder<K, V> {
     if (removalListener != null) {
       s.addValue("removalListener");
     }
+    if (executor != null) {
+      s.addValue("executor");
+    }
+    if (scheduler != null) {
+      s.addValue("scheduler");
+    }
+    if (metricsRecorder != null) {
+      s.addValue("recordMetrics");
+    }
     return s.toString();
   }
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.primitives.ImmutableLongArray;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Detailed measurements of the caches built with a {@link CacheMetricsRecorder}, as taken by {@link
+ * CacheMetricsRecorder#snapshot}. Instances of this class are immutable.
+ *
+ * <p>The measurements are read while the caches remain in use, so they need not be consistent with
+ * one another: a snapshot may, for example, include a removal but not the load that preceded it.
+ * The segment measurements list the segments of each cache in turn, in the order in which the
+ * caches were built.
+ */
+@GwtIncompatible
+public final class CacheMetrics {
+  /** Load times below this are counted exactly; larger ones in buckets of 8 per power of two. */
+  private static final int SUB_BUCKET_BITS = 3;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /** The number of buckets needed to count every non-negative {@code long} load time. */
+  static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final long[] loadTimeCounts;
+  private final long loadCount;
+  private final long[] removalCounts;
+  private final long pendingRefreshCount;
+  private final long contendedLockCount;
+  private final ImmutableLongArray segmentLockWaitNanos;
+  private final ImmutableLongArray segmentSizes;
+  private final ImmutableLongArray segmentWeights;
+
+  CacheMetrics(
+      long[] loadTimeCounts,
+      long[] removalCounts,
+      long pendingRefreshCount,
+      long contendedLockCount,
+      ImmutableLongArray segmentLockWaitNanos,
+      ImmutableLongArray segmentSizes,
+      ImmutableLongArray segmentWeights) {
+    checkArgument(loadTimeCounts.length == BUCKET_COUNT);
+    checkArgument(removalCounts.length == RemovalCause.values().length);
+    this.loadTimeCounts = loadTimeCounts;
+    long loadCount = 0;
+    for (long count : loadTimeCounts) {
+      loadCount += count;
+    }
+    this.loadCount = loadCount;
+    this.removalCounts = removalCounts;
+    this.pendingRefreshCount = Math.max(0, pendingRefreshCount);
+    this.contendedLockCount = contendedLockCount;
+    this.segmentLockWaitNanos = checkNotNull(segmentLockWaitNanos);
+    this.segmentSizes = checkNotNull(segmentSizes);
+    this.segmentWeights = checkNotNull(segmentWeights);
+  }
+
+  /** Returns the number of loads, successful or not, whose time was recorded. */
+  public long loadCount() {
+    return loadCount;
+  }
+
+  /**
+   * Returns the time, in nanoseconds, within which {@code percentile} percent of the recorded loads
+   * completed, or 0 if no loads were recorded. Load times are counted in buckets, so the result
+   * may exceed the actual time by up to an eighth.
+   *
+   * @throws IllegalArgumentException if {@code percentile} is not between 0 and 100
+   */
+  public long loadTimePercentile(double percentile) {
+    checkArgument(
+        percentile >= 0.0 && percentile <= 100.0,
+        "percentile must be between 0 and 100: %s",
+        percentile);
+    if (loadCount == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(loadCount * percentile / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += loadTimeCounts[i];
+      if (seen >= rank) {
+        return bucketUpperBound(i);
+      }
+    }
+    return bucketUpperBound(BUCKET_COUNT - 1);
+  }
+
+  /**
+   * Returns the number of entries removed from the caches for {@code cause}, whether or not a
+   * removal listener was notified.
+   */
+  public long removalCount(RemovalCause cause) {
+    return removalCounts[cause.ordinal()];
+  }
+
+  /** Returns the number of refreshes that have started but not yet completed. */
+  public long pendingRefreshCount() {
+    return pendingRefreshCount;
+  }
+
+  /** Returns the number of times a thread had to wait to lock a segment. */
+  public long contendedLockCount() {
+    return contendedLockCount;
+  }
+
+  /** Returns the total time, in nanoseconds, that threads have waited to lock a segment. */
+  public long lockWaitNanos() {
+    long total = 0;
+    for (int i = 0; i < segmentLockWaitNanos.length(); i++) {
+      total += segmentLockWaitNanos.get(i);
+    }
+    return total;
+  }
+
+  /** Returns the time, in nanoseconds, that threads have waited to lock each segment. */
+  public ImmutableLongArray segmentLockWaitNanos() {
+    return segmentLockWaitNanos;
+  }
+
+  /**
+   * Returns the number of entries in each segment, including any that have yet to be cleaned up.
+   */
+  public ImmutableLongArray segmentSizes() {
+    return segmentSizes;
+  }
+
+  /** Returns the total weight of the entries in each segment, which is their number by default. */
+  public ImmutableLongArray segmentWeights() {
+    return segmentWeights;
+  }
+
+  /** Returns the bucket in which a load taking {@code nanos} is counted. */
+  static int bucket(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) Math.max(0, nanos);
+    }
+    int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(nanos);
+    int mantissa = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+  }
+
+  /** Returns the longest load time counted in {@code bucket}. */
+  static long bucketUpperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    int shift = exponent - SUB_BUCKET_BITS;
+    long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowerBound + ((1L << shift) - 1);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(
+        Arrays.hashCode(loadTimeCounts),
+        Arrays.hashCode(removalCounts),
+        pendingRefreshCount,
+        contendedLockCount,
+        segmentLockWaitNanos,
+        segmentSizes,
+        segmentWeights);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object instanceof CacheMetrics) {
+      CacheMetrics other = (CacheMetrics) object;
+      return Arrays.equals(loadTimeCounts, other.loadTimeCounts)
+          && Arrays.equals(removalCounts, other.removalCounts)
+          && pendingRefreshCount == other.pendingRefreshCount
+          && contendedLockCount == other.contendedLockCount
+          && segmentLockWaitNanos.equals(other.segmentLockWaitNanos)
+          && segmentSizes.equals(other.segmentSizes)
+          && segmentWeights.equals(other.segmentWeights);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    MoreObjects.ToStringHelper s =
+        MoreObjects.toStringHelper(this)
+            .add("loadCount", loadCount)
+            .add("loadTimeP50", loadTimePercentile(50))
+            .add("loadTimeP99", loadTimePercentile(99))
+            .add("loadTimeP999", loadTimePercentile(99.9));
+    for (RemovalCause cause : RemovalCause.values()) {
+      s.add("removalCount" + cause, removalCount(cause));
+    }
+    return s.add("pendingRefreshCount", pendingRefreshCount)
+        .add("contendedLockCount", contendedLockCount)
+        .add("lockWaitNanos", lockWaitNanos())
+        .add("segmentSizes", segmentSizes)
+        .add("segmentWeights", segmentWeights)
+        .toString();
+  }
+}
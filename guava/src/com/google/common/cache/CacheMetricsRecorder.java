@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.cache.AbstractCache.StatsCounter;
+import com.google.common.cache.LocalCache.Segment;
+import com.google.common.primitives.ImmutableLongArray;
+import com.google.common.util.concurrent.atomic.LongAdder;
+import com.google.common.util.concurrent.atomic.StripedHistogram;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records detailed measurements of the caches built with it by {@link CacheBuilder#recordMetrics},
+ * beyond the {@link CacheStats} that {@link CacheBuilder#recordStats} enables: a histogram of load
+ * times, the number of entries removed for each {@link RemovalCause}, the number of refreshes in
+ * progress, how long threads wait to lock each segment, and the number and weight of the entries
+ * in each segment.
+ *
+ * <p>A recorder may be used to build any number of caches, in which case it reports their combined
+ * measurements. It references the caches weakly, so it does not keep them from being garbage
+ * collected. A {@link #snapshot} does not lock the caches, so it can be taken at any time without
+ * delaying them.
+ *
+ * <p>A cache built without a recorder does no more work than before.
+ */
+@GwtIncompatible
+public final class CacheMetricsRecorder {
+  private final StripedHistogram loadTimes = new StripedHistogram(CacheMetrics.BUCKET_COUNT);
+  private final LongAdder[] removalCounts;
+  private final LongAdder pendingRefreshCount = new LongAdder();
+  private final List<WeakReference<LocalCache<?, ?>>> caches = new CopyOnWriteArrayList<>();
+
+  /** Creates a recorder that has no caches to measure yet. */
+  public CacheMetricsRecorder() {
+    removalCounts = new LongAdder[RemovalCause.values().length];
+    for (int i = 0; i < removalCounts.length; i++) {
+      removalCounts[i] = new LongAdder();
+    }
+  }
+
+  /** Returns the current measurements of the caches built with this recorder. */
+  public CacheMetrics snapshot() {
+    long[] removals = new long[removalCounts.length];
+    for (int i = 0; i < removals.length; i++) {
+      removals[i] = removalCounts[i].sum();
+    }
+
+    long contendedLockCount = 0;
+    ImmutableLongArray.Builder lockWaitNanos = ImmutableLongArray.builder();
+    ImmutableLongArray.Builder sizes = ImmutableLongArray.builder();
+    ImmutableLongArray.Builder weights = ImmutableLongArray.builder();
+    for (WeakReference<LocalCache<?, ?>> reference : caches) {
+      LocalCache<?, ?> cache = reference.get();
+      if (cache == null) {
+        continue;
+      }
+      for (Segment<?, ?> segment : cache.segments) {
+        contendedLockCount += segment.contendedLockCount;
+        lockWaitNanos.add(segment.lockWaitNanos);
+        // both are volatile, so neither read needs the segment's lock
+        sizes.add(segment.count);
+        weights.add(segment.totalWeight);
+      }
+    }
+    return new CacheMetrics(
+        loadTimes.counts(),
+        removals,
+        pendingRefreshCount.sum(),
+        contendedLockCount,
+        lockWaitNanos.build(),
+        sizes.build(),
+        weights.build());
+  }
+
+  /** Starts measuring {@code cache}, forgetting any caches that have been garbage collected. */
+  void register(LocalCache<?, ?> cache) {
+    for (WeakReference<LocalCache<?, ?>> reference : caches) {
+      if (reference.get() == null) {
+        caches.remove(reference);
+      }
+    }
+    caches.add(new WeakReference<LocalCache<?, ?>>(cache));
+  }
+
+  /** Returns a counter that forwards to {@code delegate}, and records the time of each load. */
+  StatsCounter recordingLoadTimes(final StatsCounter delegate) {
+    checkNotNull(delegate);
+    return new StatsCounter() {
+      @Override
+      public void recordHits(int count) {
+        delegate.recordHits(count);
+      }
+
+      @Override
+      public void recordMisses(int count) {
+        delegate.recordMisses(count);
+      }
+
+      @Override
+      public void recordLoadSuccess(long loadTime) {
+        delegate.recordLoadSuccess(loadTime);
+        recordLoad(loadTime);
+      }
+
+      @Override
+      public void recordLoadException(long loadTime) {
+        delegate.recordLoadException(loadTime);
+        recordLoad(loadTime);
+      }
+
+      @Override
+      public void recordEviction() {
+        delegate.recordEviction();
+      }
+
+      @Override
+      public CacheStats snapshot() {
+        return delegate.snapshot();
+      }
+    };
+  }
+
+  void recordLoad(long nanos) {
+    loadTimes.increment(CacheMetrics.bucket(nanos));
+  }
+
+  void recordRemoval(RemovalCause cause) {
+    removalCounts[cause.ordinal()].increment();
+  }
+
+  void recordRefreshStarted() {
+    pendingRefreshCount.increment();
+  }
+
+  void recordRefreshCompleted() {
+    pendingRefreshCount.decrement();
+  }
+}
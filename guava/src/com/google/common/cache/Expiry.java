@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.common.annotations.GwtIncompatible;
+
+/**
+ * Calculates when each cache entry expires, so that entries of the same cache can have different
+ * lifetimes; see {@link CacheBuilder#expireAfter}. Each method returns the length of time, in
+ * nanoseconds, that the entry should remain in the cache from {@code currentTime}, as read from the
+ * cache's {@linkplain CacheBuilder#ticker ticker}. A duration of zero or less expires the entry
+ * immediately.
+ *
+ * <p>These methods are called while the cache holds a lock, or on the hot path of a read, so they
+ * should be fast and must not access the cache.
+ *
+ * @param <K> the most general type of keys this policy can determine the lifetime of
+ * @param <V> the most general type of values this policy can determine the lifetime of
+ */
+@GwtIncompatible
+public interface Expiry<K, V> {
+
+  /**
+   * Returns how long the entry for {@code key} should remain in the cache after it is created with
+   * {@code value}, either by a load or by an explicit write.
+   */
+  long expireAfterCreate(K key, V value, long currentTime);
+
+  /**
+   * Returns how long the entry for {@code key} should remain in the cache after its value is
+   * replaced with {@code value}. Return {@code currentDuration} to leave the entry's expiration
+   * time unchanged.
+   *
+   * @param currentDuration the time remaining before the entry would have expired, in nanoseconds
+   */
+  long expireAfterUpdate(K key, V value, long currentTime, long currentDuration);
+
+  /**
+   * Returns how long the entry for {@code key} should remain in the cache after {@code value} is
+   * read. Return {@code currentDuration} to leave the entry's expiration time unchanged.
+   *
+   * @param currentDuration the time remaining before the entry would have expired, in nanoseconds
+   */
+  long expireAfterRead(K key, V value, long currentTime, long currentDuration);
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.GwtIncompatible;
+
+/**
+ * A probabilistic multiset for estimating the popularity of an element within a time window. The
+ * maximum frequency of an element is limited to 15 (4-bits) and an aging process periodically
+ * halves the popularity of all elements.
+ *
+ * <p>The sketch is a count-min sketch of depth four. Counters are packed sixteen to a {@code long},
+ * so the table costs eight bytes per tracked element and stays small enough to remain cache
+ * resident for moderately sized segments.
+ *
+ * <p>This class is not thread-safe; {@link LocalCache.Segment} only accesses it while holding the
+ * segment lock.
+ */
+@GwtIncompatible
+final class FrequencySketch {
+
+  /*
+   * The table is sized to the closest power of two that is at least the number of entries that the
+   * segment is expected to hold. Each slot holds sixteen 4-bit counters. An element selects a group
+   * of four counters by the low two bits of its hash, and each hash function then selects a slot in
+   * which the element uses its own counter of that group.
+   *
+   * When the number of increments reaches ten times the table's capacity, all counters are halved
+   * (the "reset" operation of TinyLFU) so that the sketch favors recent popularity. Odd counters
+   * lose their low bit, which is compensated by subtracting a quarter of the odd count from the
+   * running sample size.
+   */
+
+  /** Random seeds for the four hash functions. */
+  private static final long[] SEED = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+
+  /** The largest table that will be allocated, in slots. */
+  private static final int MAXIMUM_TABLE_SIZE = 1 << 26;
+
+  private int sampleSize;
+  private int tableMask;
+  private long[] table;
+  private int size;
+
+  /**
+   * Creates a sketch sized to estimate the frequencies of roughly {@code expectedSize} distinct
+   * elements. The sketch may later be enlarged by {@link #ensureCapacity}.
+   */
+  FrequencySketch(long expectedSize) {
+    checkArgument(expectedSize >= 0, "expectedSize must not be negative: %s", expectedSize);
+    table = new long[0];
+    ensureCapacity(expectedSize);
+  }
+
+  /**
+   * Grows the sketch, if necessary, so that it can estimate the frequencies of {@code
+   * expectedSize} distinct elements. Growing discards the frequency history.
+   */
+  void ensureCapacity(long expectedSize) {
+    int capacity = (int) Math.min(Math.max(expectedSize, 1), MAXIMUM_TABLE_SIZE);
+    if (table.length >= capacity) {
+      return;
+    }
+    table = new long[ceilingPowerOfTwo(capacity)];
+    tableMask = table.length - 1;
+    sampleSize = 10 * capacity;
+    size = 0;
+  }
+
+  /**
+   * Returns the estimated number of occurrences of an element with the given (already smeared)
+   * hash, up to the maximum of 15.
+   */
+  int frequency(int hash) {
+    int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Increments the popularity of the element with the given (already smeared) hash if it does not
+   * exceed the maximum of 15. Periodically all elements' popularities are halved so that the
+   * history ages.
+   */
+  void increment(int hash) {
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      added |= incrementAt(index, start + i);
+    }
+    if (added && (++size == sampleSize)) {
+      reset();
+    }
+  }
+
+  /** Increments the specified counter by 1 unless it is already at the maximum of 15. */
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /** Halves every counter and adjusts the sample size for the truncated low bits. */
+  void reset() {
+    long odd = 0;
+    for (int i = 0; i < table.length; i++) {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (int) Math.max(0, (size >>> 1) - (odd >>> 2));
+  }
+
+  /** Returns the table slot for the given hash under the {@code i}th hash function. */
+  private int indexOf(int hash, int i) {
+    long h = (SEED[i] + hash) * SEED[i];
+    h += (h >>> 32);
+    return ((int) h) & tableMask;
+  }
+
+  private static int ceilingPowerOfTwo(int x) {
+    return (x <= 1) ? 1 : Integer.highestOneBit(x - 1) << 1;
+  }
+}
@@ -42,6 +42,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.math.LongMath;
 import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ExecutionError;
 import com.google.common.util.concurrent.Futures;
@@ -66,16 +67,23 @@ import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantLock;
@@ -125,6 +133,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
    * rate, and ability to be implemented with O(1) time complexity. The initial LRU implementation
    * operates per-segment rather than globally for increased implementation simplicity. We expect
    * the cache hit rate to be similar to that of a global LRU algorithm.
+   *
+   * When frequency-aware eviction is requested, each segment instead runs W-TinyLFU on top of the
+   * same access links: a small LRU admission window feeds a segmented LRU main space, and a
+   * count-min sketch of recent access frequencies decides whether an entry leaving the window is
+   * worth keeping in place of the main space's victim. This retains a popular working set across
+   * scans and one-hit wonders that would flush a plain LRU.
    */
 
   // Constants
@@ -143,9 +157,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
   static final int CONTAINS_VALUE_RETRIES = 3;
 
   /**
-   * Number of cache access operations that can be buffered per segment before the cache's recency
-   * ordering information is updated. This is used to avoid lock contention by recording a memento
-   * of reads and delaying a lock acquisition until the threshold is crossed or a mutation occurs.
+   * Number of cache access operations that may be performed on a segment that does not buffer reads
+   * before routine cleanup is attempted from a read. Segments with an access queue or a timer wheel
+   * instead buffer reads in a {@link ReadBuffer}, and clean up when one of its stripes fills.
    *
    * <p>This must be a (2^n)-1 as it is used as a mask.
    */
@@ -158,6 +172,18 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
   // TODO(fry): empirically optimize this
   static final int DRAIN_MAX = 16;
 
+  /**
+   * The longest duration that an {@link Expiry} may give an entry, about 146 years, so that adding
+   * it to the current time cannot overflow.
+   */
+  static final long MAXIMUM_EXPIRY = Long.MAX_VALUE >> 1;
+
+  /**
+   * How often a cache built with a {@link CacheBuilder#scheduler scheduler} performs routine
+   * cleanup, which is the granularity at which the timer wheel finds expired entries.
+   */
+  static final long CLEANUP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
   // Fields
 
   static final Logger logger = Logger.getLogger(LocalCache.class.getName());
@@ -198,6 +224,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
   /** Weigher to weigh cache entries. */
   final Weigher<K, V> weigher;
 
+  /** Whether size-based eviction uses the W-TinyLFU policy rather than plain LRU. */
+  final boolean frequencyAwareEviction;
+
   /** How long after the last access to an entry the map will retain that entry. */
   final long expireAfterAccessNanos;
 
@@ -207,6 +236,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
   /** How long after the last write an entry becomes a candidate for refresh. */
   final long refreshNanos;
 
+  /** Calculates when each entry expires, or null if entries expire after fixed durations. */
+  final @Nullable Expiry<K, V> expiry;
+
   /** Entries waiting to be consumed by the removal listener. */
   // TODO(fry): define a new type which creates event objects and automates the clear logic
   final Queue<RemovalNotification<K, V>> removalNotificationQueue;
@@ -220,6 +252,15 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
   /** Measures time in a testable way. */
   final Ticker ticker;
 
+  /** Performs routine cleanup, removal notifications and refreshes off the calling thread. */
+  final Executor executor;
+
+  /** Whether a task delivering removal notifications is waiting to run or running on executor. */
+  final AtomicBoolean notifying = new AtomicBoolean();
+
+  /** Records detailed metrics of this map, or null if it does not record them. */
+  final @Nullable CacheMetricsRecorder metrics;
+
   /** Factory used to create new entries. */
   final EntryFactory entryFactory;
 
@@ -247,9 +288,11 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     maxWeight = builder.getMaximumWeight();
     weigher = builder.getWeigher();
+    frequencyAwareEviction = builder.usesFrequencyAwareEviction();
     expireAfterAccessNanos = builder.getExpireAfterAccessNanos();
     expireAfterWriteNanos = builder.getExpireAfterWriteNanos();
     refreshNanos = builder.getRefreshNanos();
+    expiry = builder.getExpiry();
 
     removalListener = builder.getRemovalListener();
     removalNotificationQueue =
@@ -258,8 +301,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             : new ConcurrentLinkedQueue<RemovalNotification<K, V>>();
 
     ticker = builder.getTicker(recordsTime());
+    executor = builder.getExecutor();
+    metrics = builder.getMetricsRecorder();
     entryFactory = EntryFactory.getFactory(keyStrength, usesAccessEntries(), usesWriteEntries());
-    globalStatsCounter = builder.getStatsCounterSupplier().get();
+    globalStatsCounter = newStatsCounter(builder);
     defaultLoader = loader;
 
     int initialCapacity = Math.min(builder.getInitialCapacity(), MAXIMUM_CAPACITY);
@@ -302,14 +347,28 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
           maxSegmentWeight--;
         }
         this.segments[i] =
-            createSegment(segmentSize, maxSegmentWeight, builder.getStatsCounterSupplier().get());
+            createSegment(segmentSize, maxSegmentWeight, newStatsCounter(builder));
       }
     } else {
       for (int i = 0; i < this.segments.length; ++i) {
         this.segments[i] =
-            createSegment(segmentSize, UNSET_INT, builder.getStatsCounterSupplier().get());
+            createSegment(segmentSize, UNSET_INT, newStatsCounter(builder));
       }
     }
+
+    if (metrics != null) {
+      metrics.register(this);
+    }
+    ScheduledExecutorService scheduler = builder.getScheduler();
+    if (scheduler != null) {
+      PeriodicCleanUp.schedule(this, scheduler);
+    }
+  }
+
+  /** Returns a new stats counter, which also records load times if this map records metrics. */
+  private StatsCounter newStatsCounter(CacheBuilder<?, ?> builder) {
+    StatsCounter statsCounter = builder.getStatsCounterSupplier().get();
+    return (metrics == null) ? statsCounter : metrics.recordingLoadTimes(statsCounter);
   }
 
   boolean evictsBySize() {
@@ -320,8 +379,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     return weigher != OneWeigher.INSTANCE;
   }
 
+  boolean evictsByFrequency() {
+    return evictsBySize() && frequencyAwareEviction;
+  }
+
   boolean expires() {
-    return expiresAfterWrite() || expiresAfterAccess();
+    return expiresAfterWrite() || expiresAfterAccess() || expiresVariably();
   }
 
   boolean expiresAfterWrite() {
@@ -332,16 +395,25 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     return expireAfterAccessNanos > 0;
   }
 
+  boolean expiresVariably() {
+    return expiry != null;
+  }
+
   boolean refreshes() {
     return refreshNanos > 0;
   }
 
+  /** Returns whether routine cleanup, notifications and refreshes are handed to an executor. */
+  boolean maintainsAsynchronously() {
+    return executor != directExecutor();
+  }
+
   boolean usesAccessQueue() {
     return expiresAfterAccess() || evictsBySize();
   }
 
   boolean usesWriteQueue() {
-    return expiresAfterWrite();
+    return expiresAfterWrite() || expiresVariably();
   }
 
   boolean recordsWrite() {
@@ -353,7 +425,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
   }
 
   boolean recordsTime() {
-    return recordsWrite() || recordsAccess();
+    return recordsWrite() || recordsAccess() || expiresVariably();
+  }
+
+  /** Returns whether reads are buffered in each segment's recency queue. */
+  boolean buffersReads() {
+    return usesAccessQueue() || expiresVariably();
   }
 
   boolean usesWriteEntries() {
@@ -599,6 +676,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       // TODO(fry): when we link values instead of entries this method can go
       // away, as can connectAccessOrder, nullifyAccessOrder.
       newEntry.setAccessTime(original.getAccessTime());
+      newEntry.setAccessRegion(original.getAccessRegion());
 
       connectAccessOrder(original.getPreviousInAccessQueue(), newEntry);
       connectAccessOrder(newEntry, original.getNextInAccessQueue());
@@ -611,6 +689,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       // TODO(fry): when we link values instead of entries this method can go
       // away, as can connectWriteOrder, nullifyWriteOrder.
       newEntry.setWriteTime(original.getWriteTime());
+      newEntry.setExpirationTime(original.getExpirationTime());
 
       connectWriteOrder(original.getPreviousInWriteQueue(), newEntry);
       connectWriteOrder(newEntry, original.getNextInWriteQueue());
@@ -776,6 +855,14 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     @Override
     public void setPreviousInAccessQueue(ReferenceEntry<Object, Object> previous) {}
 
+    @Override
+    public int getAccessRegion() {
+      return 0;
+    }
+
+    @Override
+    public void setAccessRegion(int region) {}
+
     @Override
     public long getWriteTime() {
       return 0;
@@ -799,6 +886,14 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     @Override
     public void setPreviousInWriteQueue(ReferenceEntry<Object, Object> previous) {}
+
+    @Override
+    public long getExpirationTime() {
+      return 0;
+    }
+
+    @Override
+    public void setExpirationTime(long time) {}
   }
 
   abstract static class AbstractReferenceEntry<K, V> implements ReferenceEntry<K, V> {
@@ -857,6 +952,16 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public int getAccessRegion() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAccessRegion(int region) {
+      throw new UnsupportedOperationException();
+    }
+
     @Override
     public long getWriteTime() {
       throw new UnsupportedOperationException();
@@ -886,6 +991,16 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     public void setPreviousInWriteQueue(ReferenceEntry<K, V> previous) {
       throw new UnsupportedOperationException();
     }
+
+    @Override
+    public long getExpirationTime() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setExpirationTime(long time) {
+      throw new UnsupportedOperationException();
+    }
   }
 
   @SuppressWarnings("unchecked") // impl never uses a parameter or returns any non-null value
@@ -1021,6 +1136,19 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     public void setPreviousInAccessQueue(ReferenceEntry<K, V> previous) {
       this.previousAccess = previous;
     }
+
+    // Guarded By Segment.this
+    int accessRegion;
+
+    @Override
+    public int getAccessRegion() {
+      return accessRegion;
+    }
+
+    @Override
+    public void setAccessRegion(int region) {
+      this.accessRegion = region;
+    }
   }
 
   static final class StrongWriteEntry<K, V> extends StrongEntry<K, V> {
@@ -1067,6 +1195,18 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     public void setPreviousInWriteQueue(ReferenceEntry<K, V> previous) {
       this.previousWrite = previous;
     }
+
+    volatile long expirationTime = Long.MAX_VALUE;
+
+    @Override
+    public long getExpirationTime() {
+      return expirationTime;
+    }
+
+    @Override
+    public void setExpirationTime(long time) {
+      this.expirationTime = time;
+    }
   }
 
   static final class StrongAccessWriteEntry<K, V> extends StrongEntry<K, V> {
@@ -1114,6 +1254,19 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       this.previousAccess = previous;
     }
 
+    // Guarded By Segment.this
+    int accessRegion;
+
+    @Override
+    public int getAccessRegion() {
+      return accessRegion;
+    }
+
+    @Override
+    public void setAccessRegion(int region) {
+      this.accessRegion = region;
+    }
+
     // The code below is exactly the same for each write entry type.
 
     volatile long writeTime = Long.MAX_VALUE;
@@ -1153,6 +1306,18 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     public void setPreviousInWriteQueue(ReferenceEntry<K, V> previous) {
       this.previousWrite = previous;
     }
+
+    volatile long expirationTime = Long.MAX_VALUE;
+
+    @Override
+    public long getExpirationTime() {
+      return expirationTime;
+    }
+
+    @Override
+    public void setExpirationTime(long time) {
+      this.expirationTime = time;
+    }
   }
 
   /** Used for weakly-referenced keys. */
@@ -1205,6 +1370,16 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public int getAccessRegion() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAccessRegion(int region) {
+      throw new UnsupportedOperationException();
+    }
+
     // null write
 
     @Override
@@ -1237,6 +1412,16 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public long getExpirationTime() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setExpirationTime(long time) {
+      throw new UnsupportedOperationException();
+    }
+
     // The code below is exactly the same for each entry type.
 
     final int hash;
@@ -1308,6 +1493,19 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     public void setPreviousInAccessQueue(ReferenceEntry<K, V> previous) {
       this.previousAccess = previous;
     }
+
+    // Guarded By Segment.this
+    int accessRegion;
+
+    @Override
+    public int getAccessRegion() {
+      return accessRegion;
+    }
+
+    @Override
+    public void setAccessRegion(int region) {
+      this.accessRegion = region;
+    }
   }
 
   static final class WeakWriteEntry<K, V> extends WeakEntry<K, V> {
@@ -1354,6 +1552,18 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     public void setPreviousInWriteQueue(ReferenceEntry<K, V> previous) {
       this.previousWrite = previous;
     }
+
+    volatile long expirationTime = Long.MAX_VALUE;
+
+    @Override
+    public long getExpirationTime() {
+      return expirationTime;
+    }
+
+    @Override
+    public void setExpirationTime(long time) {
+      this.expirationTime = time;
+    }
   }
 
   static final class WeakAccessWriteEntry<K, V> extends WeakEntry<K, V> {
@@ -1402,6 +1612,19 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       this.previousAccess = previous;
     }
 
+    // Guarded By Segment.this
+    int accessRegion;
+
+    @Override
+    public int getAccessRegion() {
+      return accessRegion;
+    }
+
+    @Override
+    public void setAccessRegion(int region) {
+      this.accessRegion = region;
+    }
+
     // The code below is exactly the same for each write entry type.
 
     volatile long writeTime = Long.MAX_VALUE;
@@ -1441,6 +1664,18 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     public void setPreviousInWriteQueue(ReferenceEntry<K, V> previous) {
       this.previousWrite = previous;
     }
+
+    volatile long expirationTime = Long.MAX_VALUE;
+
+    @Override
+    public long getExpirationTime() {
+      return expirationTime;
+    }
+
+    @Override
+    public void setExpirationTime(long time) {
+      this.expirationTime = time;
+    }
   }
 
   /** References a weak value. */
@@ -1766,9 +2001,20 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     if (expiresAfterWrite() && (now - entry.getWriteTime() >= expireAfterWriteNanos)) {
       return true;
     }
+    if (expiresVariably() && (now - entry.getExpirationTime() >= 0)) {
+      return true;
+    }
     return false;
   }
 
+  /**
+   * Returns the time at which an entry given {@code duration} by the {@link Expiry} at {@code now}
+   * expires.
+   */
+  static long expirationTime(long now, long duration) {
+    return now + Math.max(0, Math.min(duration, MAXIMUM_EXPIRY));
+  }
+
   // queues
 
   // Guarded By Segment.this
@@ -1801,8 +2047,28 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
    * Notifies listeners that an entry has been automatically removed due to expiration, eviction, or
    * eligibility for garbage collection. This should be called every time expireEntries or
    * evictEntry is called (once the lock is released).
+   *
+   * <p>If the cache has an executor, the listener is notified there, by a single task at a time so
+   * that notifications are delivered in order.
    */
   void processPendingNotifications() {
+    if (!maintainsAsynchronously()) {
+      deliverPendingNotifications();
+    } else if (!removalNotificationQueue.isEmpty() && notifying.compareAndSet(false, true)) {
+      execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              deliverPendingNotifications();
+              notifying.set(false);
+              // a notification queued after the queue was found empty would otherwise be stranded
+              processPendingNotifications();
+            }
+          });
+    }
+  }
+
+  void deliverPendingNotifications() {
     RemovalNotification<K, V> notification;
     while ((notification = removalNotificationQueue.poll()) != null) {
       try {
@@ -1813,6 +2079,16 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
   }
 
+  /** Runs {@code task} on the executor, or on the calling thread if the executor rejects it. */
+  void execute(Runnable task) {
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      logger.log(Level.WARNING, "Exception thrown when submitting maintenance task", e);
+      task.run();
+    }
+  }
+
   @SuppressWarnings("unchecked")
   final Segment<K, V>[] newSegmentArray(int ssize) {
     return new Segment[ssize];
@@ -1865,9 +2141,11 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     /** The number of live elements in this segment's region. */
     volatile int count;
 
-    /** The weight of the live elements in this segment's region. */
-    @GuardedBy("this")
-    long totalWeight;
+    /**
+     * The weight of the live elements in this segment's region. Written while holding the lock, and
+     * volatile so that a {@link CacheMetricsRecorder} can read it without locking.
+     */
+    volatile long totalWeight;
 
     /**
      * Number of updates that alter the size of the table. This is used during bulk-read methods to
@@ -1903,27 +2181,33 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     /**
      * The recency queue is used to record which entries were accessed for updating the access
-     * list's ordering. It is drained as a batch operation when either the DRAIN_THRESHOLD is
-     * crossed or a write occurs on the segment.
+     * list's ordering, and the timer wheel's placement of entries whose expiration time a read may
+     * have changed. It is a striped, lossy {@link ReadBuffer} that is drained as a batch
+     * operation when either the reading thread's stripe fills or a write occurs on the segment.
      */
     final Queue<ReferenceEntry<K, V>> recencyQueue;
 
     /**
      * A counter of the number of reads since the last write, used to drain queues on a small
-     * fraction of read operations.
+     * fraction of read operations when the segment has no recency queue.
      */
     final AtomicInteger readCount = new AtomicInteger();
 
+    /** Whether a cleanup of this segment is waiting to run on the map's executor. */
+    final AtomicBoolean cleanUpScheduled = new AtomicBoolean();
+
     /**
      * A queue of elements currently in the map, ordered by write time. Elements are added to the
-     * tail of the queue on write.
+     * tail of the queue on write. When the map has an {@link Expiry}, this is instead a {@link
+     * TimerWheel} ordering elements by their expiration time.
      */
     @GuardedBy("this")
     final Queue<ReferenceEntry<K, V>> writeQueue;
 
     /**
      * A queue of elements currently in the map, ordered by access time. Elements are added to the
-     * tail of the queue on access (note that writes count as accesses).
+     * tail of the queue on access (note that writes count as accesses). When the cache evicts by
+     * frequency this is a {@link TinyLfuAccessQueue}, which splits the ordering into regions.
      */
     @GuardedBy("this")
     final Queue<ReferenceEntry<K, V>> accessQueue;
@@ -1931,6 +2215,14 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     /** Accumulates cache statistics. */
     final StatsCounter statsCounter;
 
+    /**
+     * The number of times a thread had to wait to lock this segment, and how long those threads
+     * waited in total. Only measured when the map records metrics; written while holding the lock.
+     */
+    volatile long contendedLockCount;
+
+    volatile long lockWaitNanos;
+
     Segment(
         LocalCache<K, V> map,
         int initialCapacity,
@@ -1946,19 +2238,43 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       valueReferenceQueue = map.usesValueReferences() ? new ReferenceQueue<V>() : null;
 
       recencyQueue =
-          map.usesAccessQueue()
-              ? new ConcurrentLinkedQueue<ReferenceEntry<K, V>>()
+          map.buffersReads()
+              ? new ReadBuffer<ReferenceEntry<K, V>>()
               : LocalCache.<ReferenceEntry<K, V>>discardingQueue();
 
-      writeQueue =
-          map.usesWriteQueue()
-              ? new WriteQueue<K, V>()
-              : LocalCache.<ReferenceEntry<K, V>>discardingQueue();
+      if (map.expiresVariably()) {
+        writeQueue = new TimerWheel<K, V>(map.ticker.read());
+      } else if (map.usesWriteQueue()) {
+        writeQueue = new WriteQueue<K, V>();
+      } else {
+        writeQueue = LocalCache.<ReferenceEntry<K, V>>discardingQueue();
+      }
 
-      accessQueue =
-          map.usesAccessQueue()
-              ? new AccessQueue<K, V>()
-              : LocalCache.<ReferenceEntry<K, V>>discardingQueue();
+      if (!map.usesAccessQueue()) {
+        accessQueue = LocalCache.<ReferenceEntry<K, V>>discardingQueue();
+      } else if (map.evictsByFrequency()) {
+        // a custom weigher leaves the number of entries unknown, so grow the sketch as we go
+        long expectedSize = map.customWeigher() ? initialCapacity : maxSegmentWeight;
+        accessQueue = new TinyLfuAccessQueue<K, V>(maxSegmentWeight, expectedSize);
+      } else {
+        accessQueue = new AccessQueue<K, V>();
+      }
+    }
+
+    /**
+     * Acquires the lock, measuring how long this thread had to wait for it if the map records
+     * metrics.
+     */
+    @Override
+    public void lock() {
+      if (map.metrics == null) {
+        super.lock();
+      } else if (!tryLock()) {
+        long start = System.nanoTime();
+        super.lock();
+        contendedLockCount++;
+        lockWaitNanos += System.nanoTime() - start;
+      }
     }
 
     AtomicReferenceArray<ReferenceEntry<K, V>> newEntryArray(int size) {
@@ -2012,6 +2328,17 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       ValueReference<K, V> valueReference =
           map.valueStrength.referenceValue(this, entry, value, weight);
       entry.setValueReference(valueReference);
+      if (map.evictsByFrequency()) {
+        ((TinyLfuAccessQueue<K, V>) accessQueue).reweigh(entry, previous.getWeight(), weight);
+      }
+      if (map.expiresVariably()) {
+        // a live previous value, including the old value of a refresh, makes this an update
+        long duration =
+            (previous.get() == null)
+                ? map.expiry.expireAfterCreate(key, value, now)
+                : map.expiry.expireAfterUpdate(key, value, now, entry.getExpirationTime() - now);
+        entry.setExpirationTime(expirationTime(now, duration));
+      }
       recordWrite(entry, weight, now);
       previous.notifyNewValue(value);
     }
@@ -2293,6 +2620,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
               } catch (Throwable t) {
                 logger.log(Level.WARNING, "Exception thrown during refresh", t);
                 loadingValueReference.setException(t);
+              } finally {
+                if (map.metrics != null) {
+                  map.metrics.recordRefreshCompleted();
+                }
               }
             }
           },
@@ -2349,12 +2680,28 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
      * refresh.
      */
     @Nullable
-    V refresh(K key, int hash, CacheLoader<? super K, V> loader, boolean checkTime) {
+    V refresh(
+        final K key, final int hash, final CacheLoader<? super K, V> loader, boolean checkTime) {
       final LoadingValueReference<K, V> loadingValueReference =
           insertLoadingValueReference(key, hash, checkTime);
       if (loadingValueReference == null) {
         return null;
       }
+      if (map.metrics != null) {
+        map.metrics.recordRefreshStarted();
+      }
+
+      if (map.maintainsAsynchronously()) {
+        // readers see the old value until the executor has loaded the new one
+        map.execute(
+            new Runnable() {
+              @Override
+              public void run() {
+                loadAsync(key, hash, loadingValueReference, loader);
+              }
+            });
+        return null;
+      }
 
       ListenableFuture<V> result = loadAsync(key, hash, loadingValueReference, loader);
       if (result.isDone()) {
@@ -2426,7 +2773,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     /** Cleanup collected entries when the lock is available. */
     void tryDrainReferenceQueues() {
-      if (tryLock()) {
+      if (map.maintainsAsynchronously()) {
+        scheduleCleanUp();
+      } else if (tryLock()) {
         try {
           drainReferenceQueues();
         } finally {
@@ -2499,8 +2848,8 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     /**
      * Records the relative order in which this read was performed by adding {@code entry} to the
-     * recency queue. At write-time, or when the queue is full past the threshold, the queue will be
-     * drained and the entries therein processed.
+     * recency queue. At write-time, or when the reading thread's stripe of the queue is full, the
+     * queue will be drained and the entries therein processed.
      *
      * <p>Note: locked reads should use {@link #recordLockedRead}.
      */
@@ -2508,7 +2857,21 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       if (map.recordsAccess()) {
         entry.setAccessTime(now);
       }
-      recencyQueue.add(entry);
+      if (map.expiresVariably()) {
+        // the entry is moved to its new bucket of the timer wheel when the queue is drained
+        recordExpirationOnRead(entry, now);
+      }
+      if (!recencyQueue.offer(entry)) {
+        // the stripe is full; if another thread holds the lock, or the executor is about to drain
+        // the queue, this read is simply dropped
+        if (map.maintainsAsynchronously()) {
+          scheduleCleanUp();
+        } else {
+          runLockedCleanup(now);
+          runUnlockedCleanup();
+          recencyQueue.offer(entry);
+        }
+      }
     }
 
     /**
@@ -2524,6 +2887,21 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         entry.setAccessTime(now);
       }
       accessQueue.add(entry);
+      if (map.expiresVariably()) {
+        recordExpirationOnRead(entry, now);
+        writeQueue.add(entry);
+      }
+    }
+
+    /** Updates the expiration time of {@code entry}, which was just read, using the Expiry. */
+    void recordExpirationOnRead(ReferenceEntry<K, V> entry, long now) {
+      K key = entry.getKey();
+      V value = entry.getValueReference().get();
+      if (key != null && value != null) {
+        long duration =
+            map.expiry.expireAfterRead(key, value, now, entry.getExpirationTime() - now);
+        entry.setExpirationTime(expirationTime(now, duration));
+      }
     }
 
     /**
@@ -2563,6 +2941,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         if (accessQueue.contains(e)) {
           accessQueue.add(e);
         }
+        // the read may have changed the entry's expiration time
+        if (map.expiresVariably() && writeQueue.contains(e)) {
+          writeQueue.add(e);
+        }
       }
     }
 
@@ -2570,7 +2952,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     /** Cleanup expired entries when the lock is available. */
     void tryExpireEntries(long now) {
-      if (tryLock()) {
+      if (map.maintainsAsynchronously()) {
+        scheduleCleanUp();
+      } else if (tryLock()) {
         try {
           expireEntries(now);
         } finally {
@@ -2585,9 +2969,22 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       drainRecencyQueue();
 
       ReferenceEntry<K, V> e;
-      while ((e = writeQueue.peek()) != null && map.isExpired(e, now)) {
-        if (!removeEntry(e, e.getHash(), RemovalCause.EXPIRED)) {
-          throw new AssertionError();
+      if (map.expiresVariably()) {
+        TimerWheel<K, V> timerWheel = (TimerWheel<K, V>) writeQueue;
+        timerWheel.advance(now);
+        while ((e = timerWheel.peek()) != null) {
+          if (!map.isExpired(e, now)) {
+            // a concurrent read extended the entry's lifetime after the wheel found it expired
+            timerWheel.add(e);
+          } else if (!removeEntry(e, e.getHash(), RemovalCause.EXPIRED)) {
+            throw new AssertionError();
+          }
+        }
+      } else {
+        while ((e = writeQueue.peek()) != null && map.isExpired(e, now)) {
+          if (!removeEntry(e, e.getHash(), RemovalCause.EXPIRED)) {
+            throw new AssertionError();
+          }
         }
       }
       while ((e = accessQueue.peek()) != null && map.isExpired(e, now)) {
@@ -2606,6 +3003,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       if (cause.wasEvicted()) {
         statsCounter.recordEviction();
       }
+      if (map.metrics != null) {
+        map.metrics.recordRemoval(cause);
+      }
       if (map.removalNotificationQueue != DISCARDING_QUEUE) {
         RemovalNotification<K, V> notification = RemovalNotification.create(key, value, cause);
         map.removalNotificationQueue.offer(notification);
@@ -2645,6 +3045,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     // TODO(fry): instead implement this with an eviction head
     @GuardedBy("this")
     ReferenceEntry<K, V> getNextEvictable() {
+      if (map.evictsByFrequency()) {
+        return ((TinyLfuAccessQueue<K, V>) accessQueue).nextEvictable();
+      }
       for (ReferenceEntry<K, V> e : accessQueue) {
         int weight = e.getValueReference().getWeight();
         if (weight > 0) {
@@ -2971,6 +3374,42 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       }
     }
 
+    /**
+     * Writes {@code value} again if it is still the value of the entry for {@code key}, so that the
+     * entry is reweighed and its write time updated. No removal notification is sent. This is used
+     * when a value that is a future completes.
+     */
+    void rewrite(K key, int hash, V value) {
+      lock();
+      try {
+        long now = map.ticker.read();
+        preWriteCleanup(now);
+
+        AtomicReferenceArray<ReferenceEntry<K, V>> table = this.table;
+        int index = hash & (table.length() - 1);
+        ReferenceEntry<K, V> first = table.get(index);
+
+        for (ReferenceEntry<K, V> e = first; e != null; e = e.getNext()) {
+          K entryKey = e.getKey();
+          if (e.getHash() == hash
+              && entryKey != null
+              && map.keyEquivalence.equivalent(key, entryKey)) {
+            ValueReference<K, V> valueReference = e.getValueReference();
+            if (valueReference.get() == value) {
+              ++modCount;
+              totalWeight -= valueReference.getWeight();
+              setValue(e, key, value, now);
+              evictEntries(e);
+            }
+            return;
+          }
+        }
+      } finally {
+        unlock();
+        postWriteCleanup();
+      }
+    }
+
     @Nullable
     V replace(K key, int hash, V newValue) {
       lock();
@@ -3417,8 +3856,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
      * is not observed after a sufficient number of reads, try cleaning up from the read thread.
      */
     void postReadCleanup() {
-      if ((readCount.incrementAndGet() & DRAIN_THRESHOLD) == 0) {
-        cleanUp();
+      // with a recency queue, cleanup is driven by its stripes filling up in recordRead, which
+      // avoids contending on a shared counter
+      if (!map.buffersReads() && (readCount.incrementAndGet() & DRAIN_THRESHOLD) == 0) {
+        scheduleCleanUp();
       }
     }
 
@@ -3444,6 +3885,25 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       runUnlockedCleanup();
     }
 
+    /**
+     * Performs routine cleanup on the map's executor, unless a cleanup of this segment is already
+     * waiting to run there. Without an executor, the cleanup is performed right away.
+     */
+    void scheduleCleanUp() {
+      if (!map.maintainsAsynchronously()) {
+        cleanUp();
+      } else if (cleanUpScheduled.compareAndSet(false, true)) {
+        map.execute(
+            new Runnable() {
+              @Override
+              public void run() {
+                cleanUpScheduled.set(false);
+                cleanUp();
+              }
+            });
+      }
+    }
+
     void runLockedCleanup(long now) {
       if (tryLock()) {
         try {
@@ -3744,31 +4204,238 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
   }
 
   /**
-   * A custom queue for managing access order. Note that this is tightly integrated with {@code
-   * ReferenceEntry}, upon which it relies to perform its linking.
+   * A hierarchical timing wheel of the entries of a segment whose map has an {@link Expiry}. The
+   * wheel replaces the write queue, and links entries through their write queue fields.
    *
-   * <p>Note that this entire implementation makes the assumption that all elements which are in the
-   * map are also in this queue, and that all elements not in the queue are not in the map.
+   * <p>Each level of the wheel is an array of buckets, each bucket holding the entries that expire
+   * within one tick of that level; a tick of the first level is about a second, and of the next
+   * about a minute, an hour and a day. An entry is placed in the finest level whose span covers the
+   * time until it expires, which takes constant time. As the wheel is advanced, the buckets of each
+   * level whose ticks have passed are emptied, and their entries either found to have expired or
+   * placed again in a finer level. Each entry is therefore touched at most once per level before it
+   * expires, so expiring entries costs amortized constant time however their lifetimes vary,
+   * whereas a queue ordered by a single fixed duration cannot order entries of mixed lifetimes.
    *
-   * <p>The benefits of creating our own queue are that (1) we can replace elements in the middle of
-   * the queue as part of copyWriteEntry, and (2) the contains method is highly optimized for the
-   * current model.
+   * <p>Entries found to have expired are kept in a separate queue, which is the head of this queue
+   * as seen by {@link #peek} and {@link #poll}. Buckets are created when first used.
    */
-  static final class AccessQueue<K, V> extends AbstractQueue<ReferenceEntry<K, V>> {
-    final ReferenceEntry<K, V> head =
-        new AbstractReferenceEntry<K, V>() {
+  static final class TimerWheel<K, V> extends AbstractQueue<ReferenceEntry<K, V>> {
+    static final int[] BUCKETS = {64, 64, 32, 4, 1};
+
+    static final long[] SPANS = {
+      LongMath.ceilingPowerOfTwo(TimeUnit.SECONDS.toNanos(1)), // 1.07s
+      LongMath.ceilingPowerOfTwo(TimeUnit.MINUTES.toNanos(1)), // 1.14m
+      LongMath.ceilingPowerOfTwo(TimeUnit.HOURS.toNanos(1)), // 1.22h
+      LongMath.ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)), // 1.63d
+      BUCKETS[3] * LongMath.ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)), // 6.5d
+      BUCKETS[3] * LongMath.ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)), // 6.5d
+    };
 
-          @Override
-          public long getAccessTime() {
-            return Long.MAX_VALUE;
-          }
+    static final long[] SHIFT = {
+      Long.numberOfTrailingZeros(SPANS[0]),
+      Long.numberOfTrailingZeros(SPANS[1]),
+      Long.numberOfTrailingZeros(SPANS[2]),
+      Long.numberOfTrailingZeros(SPANS[3]),
+      Long.numberOfTrailingZeros(SPANS[4]),
+    };
 
-          @Override
-          public void setAccessTime(long time) {}
+    final WriteQueue<K, V>[][] wheel;
+    final WriteQueue<K, V> expired = new WriteQueue<>();
 
-          ReferenceEntry<K, V> nextAccess = this;
+    /** The time up to which the wheel has been advanced. */
+    long nanos;
 
-          @Override
+    @SuppressWarnings("unchecked")
+    TimerWheel(long nanos) {
+      this.nanos = nanos;
+      wheel = (WriteQueue<K, V>[][]) new WriteQueue<?, ?>[BUCKETS.length][];
+      for (int i = 0; i < wheel.length; i++) {
+        wheel[i] = (WriteQueue<K, V>[]) new WriteQueue<?, ?>[BUCKETS[i]];
+      }
+    }
+
+    /**
+     * Advances the wheel to {@code currentTimeNanos}, moving the entries that have expired by then
+     * to the head of this queue, and the entries of passed buckets that have not into finer levels.
+     */
+    void advance(long currentTimeNanos) {
+      long previousTimeNanos = nanos;
+      nanos = currentTimeNanos;
+      for (int i = 0; i < SHIFT.length; i++) {
+        long previousTicks = previousTimeNanos >>> SHIFT[i];
+        long currentTicks = currentTimeNanos >>> SHIFT[i];
+        if (currentTicks - previousTicks <= 0L) {
+          break;
+        }
+        expire(i, previousTicks, currentTicks - previousTicks);
+      }
+    }
+
+    /** Empties the buckets of level {@code index} that were passed by the last advance. */
+    void expire(int index, long previousTicks, long delta) {
+      WriteQueue<K, V>[] buckets = wheel[index];
+      int mask = buckets.length - 1;
+      // the bucket of the current tick is included, as entries that were scheduled after the
+      // previous advance may have expired within it
+      int steps = (int) Math.min(delta + 1, buckets.length);
+      int start = (int) (previousTicks & mask);
+      for (int i = start; i < start + steps; i++) {
+        WriteQueue<K, V> bucket = buckets[i & mask];
+        if (bucket == null || bucket.isEmpty()) {
+          continue;
+        }
+
+        // detach the bucket's entries, as entries that have not expired may be placed back in it
+        ReferenceEntry<K, V> head = bucket.head;
+        ReferenceEntry<K, V> e = head.getNextInWriteQueue();
+        head.setNextInWriteQueue(head);
+        head.setPreviousInWriteQueue(head);
+        while (e != head) {
+          ReferenceEntry<K, V> next = e.getNextInWriteQueue();
+          nullifyWriteOrder(e);
+          offer(e);
+          e = next;
+        }
+      }
+    }
+
+    /** Returns the bucket for an entry that expires at {@code time}, creating it if necessary. */
+    WriteQueue<K, V> findBucket(long time) {
+      long duration = time - nanos;
+      if (duration <= 0) {
+        return expired;
+      }
+      int level = wheel.length - 1;
+      for (int i = 0; i < wheel.length - 1; i++) {
+        if (duration < SPANS[i + 1]) {
+          level = i;
+          break;
+        }
+      }
+      WriteQueue<K, V>[] buckets = wheel[level];
+      int index = (int) ((time >>> SHIFT[level]) & (buckets.length - 1));
+      WriteQueue<K, V> bucket = buckets[index];
+      if (bucket == null) {
+        bucket = buckets[index] = new WriteQueue<>();
+      }
+      return bucket;
+    }
+
+    // implements Queue
+
+    /** Places {@code entry} according to its expiration time, moving it if it is already placed. */
+    @Override
+    public boolean offer(ReferenceEntry<K, V> entry) {
+      // WriteQueue.offer unlinks the entry from whichever bucket it is in
+      return findBucket(entry.getExpirationTime()).offer(entry);
+    }
+
+    @Override
+    public ReferenceEntry<K, V> peek() {
+      return expired.peek();
+    }
+
+    @Override
+    public ReferenceEntry<K, V> poll() {
+      return expired.poll();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+      ReferenceEntry<K, V> e = (ReferenceEntry) o;
+      ReferenceEntry<K, V> previous = e.getPreviousInWriteQueue();
+      ReferenceEntry<K, V> next = e.getNextInWriteQueue();
+      connectWriteOrder(previous, next);
+      nullifyWriteOrder(e);
+
+      return next != NullEntry.INSTANCE;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+      ReferenceEntry<K, V> e = (ReferenceEntry) o;
+      return e.getNextInWriteQueue() != NullEntry.INSTANCE;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      for (WriteQueue<K, V> bucket : buckets()) {
+        if (!bucket.isEmpty()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (WriteQueue<K, V> bucket : buckets()) {
+        size += bucket.size();
+      }
+      return size;
+    }
+
+    @Override
+    public void clear() {
+      for (WriteQueue<K, V> bucket : buckets()) {
+        bucket.clear();
+      }
+    }
+
+    /** Iterates over the expired entries first, and then over the buckets of each level in turn. */
+    @Override
+    public Iterator<ReferenceEntry<K, V>> iterator() {
+      List<Iterator<ReferenceEntry<K, V>>> iterators = new ArrayList<>();
+      for (WriteQueue<K, V> bucket : buckets()) {
+        iterators.add(bucket.iterator());
+      }
+      return Iterators.concat(iterators.iterator());
+    }
+
+    /** Returns the queue of expired entries followed by every bucket that has been created. */
+    List<WriteQueue<K, V>> buckets() {
+      List<WriteQueue<K, V>> buckets = new ArrayList<>();
+      buckets.add(expired);
+      for (WriteQueue<K, V>[] level : wheel) {
+        for (WriteQueue<K, V> bucket : level) {
+          if (bucket != null) {
+            buckets.add(bucket);
+          }
+        }
+      }
+      return buckets;
+    }
+  }
+
+  /**
+   * A custom queue for managing access order. Note that this is tightly integrated with {@code
+   * ReferenceEntry}, upon which it relies to perform its linking.
+   *
+   * <p>Note that this entire implementation makes the assumption that all elements which are in the
+   * map are also in this queue, and that all elements not in the queue are not in the map.
+   *
+   * <p>The benefits of creating our own queue are that (1) we can replace elements in the middle of
+   * the queue as part of copyWriteEntry, and (2) the contains method is highly optimized for the
+   * current model.
+   */
+  static final class AccessQueue<K, V> extends AbstractQueue<ReferenceEntry<K, V>> {
+    final ReferenceEntry<K, V> head =
+        new AbstractReferenceEntry<K, V>() {
+
+          @Override
+          public long getAccessTime() {
+            return Long.MAX_VALUE;
+          }
+
+          @Override
+          public void setAccessTime(long time) {}
+
+          ReferenceEntry<K, V> nextAccess = this;
+
+          @Override
           public ReferenceEntry<K, V> getNextInAccessQueue() {
             return nextAccess;
           }
@@ -3882,6 +4549,246 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
   }
 
+  /**
+   * An access queue that orders a size-bounded segment's entries for the W-TinyLFU eviction policy.
+   *
+   * <p>New entries are admitted into a small LRU <i>window</i>. Entries that overflow the window
+   * move to the <i>probation</i> region of a segmented LRU main space, where they compete with the
+   * main space's least recently used entry: when the segment must evict, whichever of the two the
+   * {@link FrequencySketch} estimates to be less popular is chosen. An entry that is accessed while
+   * on probation is promoted to the <i>protected</i> region, whose least recently used entries are
+   * demoted back to probation when it overflows. This lets a popular working set survive scans
+   * that would flush a plain LRU.
+   *
+   * <p>Each region is itself an {@link AccessQueue}, so entries keep using their ordinary access
+   * links and {@link #remove} and {@link #contains} work regardless of the region an entry is in.
+   * Iteration visits the window, then probation, then protected. {@link #peek} returns the least
+   * recently accessed of the three region heads, so that access expiration may continue to drain
+   * the queue from its head.
+   */
+  static final class TinyLfuAccessQueue<K, V> extends AbstractQueue<ReferenceEntry<K, V>> {
+    static final int WINDOW = 0;
+    static final int PROBATION = 1;
+    static final int PROTECTED = 2;
+
+    /** Percentage of the segment's maximum weight given to the admission window. */
+    static final int WINDOW_PERCENT = 1;
+
+    /** Percentage of the main space's maximum weight given to the protected region. */
+    static final int PROTECTED_PERCENT = 80;
+
+    final AccessQueue<K, V> window = new AccessQueue<>();
+    final AccessQueue<K, V> probation = new AccessQueue<>();
+    final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+
+    final FrequencySketch sketch;
+    final long maxWindowWeight;
+    final long maxProtectedWeight;
+
+    long windowWeight;
+    long protectedWeight;
+    int size;
+
+    /**
+     * @param maxSegmentWeight the maximum weight of the owning segment
+     * @param expectedSize the number of entries the segment is initially expected to hold, used to
+     *     size the frequency sketch
+     */
+    TinyLfuAccessQueue(long maxSegmentWeight, long expectedSize) {
+      this.maxWindowWeight = Math.max(1, maxSegmentWeight * WINDOW_PERCENT / 100);
+      this.maxProtectedWeight =
+          Math.max(0, (maxSegmentWeight - maxWindowWeight) * PROTECTED_PERCENT / 100);
+      this.sketch = new FrequencySketch(expectedSize);
+    }
+
+    /**
+     * Records an access to {@code entry}. Entries that are not yet linked are added to the window;
+     * entries on probation are promoted to the protected region; all others move to the tail of
+     * their region.
+     */
+    @Override
+    public boolean offer(ReferenceEntry<K, V> entry) {
+      sketch.increment(entry.getHash());
+      if (!contains(entry)) {
+        entry.setAccessRegion(WINDOW);
+        window.offer(entry);
+        windowWeight += weightOf(entry);
+        sketch.ensureCapacity(++size);
+        evictFromWindow();
+        return true;
+      }
+
+      switch (entry.getAccessRegion()) {
+        case WINDOW:
+          window.offer(entry);
+          break;
+        case PROBATION:
+          entry.setAccessRegion(PROTECTED);
+          protectedQueue.offer(entry);
+          protectedWeight += weightOf(entry);
+          demoteFromProtected();
+          break;
+        case PROTECTED:
+          protectedQueue.offer(entry);
+          break;
+        default:
+          throw new AssertionError();
+      }
+      return true;
+    }
+
+    /** Moves the least recently used window entries to probation while the window overflows. */
+    void evictFromWindow() {
+      ReferenceEntry<K, V> e;
+      while (windowWeight > maxWindowWeight && (e = window.peek()) != null) {
+        windowWeight -= weightOf(e);
+        e.setAccessRegion(PROBATION);
+        probation.offer(e);
+      }
+    }
+
+    /** Moves the least recently used protected entries to probation while protected overflows. */
+    void demoteFromProtected() {
+      ReferenceEntry<K, V> e;
+      while (protectedWeight > maxProtectedWeight && (e = protectedQueue.peek()) != null) {
+        protectedWeight -= weightOf(e);
+        e.setAccessRegion(PROBATION);
+        probation.offer(e);
+      }
+    }
+
+    /**
+     * Returns the entry that should be evicted next. The victim is the least recently used entry
+     * of the main space; it is compared against the candidate that most recently arrived on
+     * probation, and the one with the lower estimated frequency is returned. Entries with a weight
+     * of zero are never chosen, as evicting them would not reduce the segment's weight.
+     */
+    ReferenceEntry<K, V> nextEvictable() {
+      ReferenceEntry<K, V> victim = firstWeighted(probation);
+      if (victim == null) {
+        victim = firstWeighted(protectedQueue);
+        if (victim == null) {
+          victim = firstWeighted(window);
+          if (victim == null) {
+            throw new AssertionError();
+          }
+        }
+        return victim;
+      }
+
+      ReferenceEntry<K, V> candidate = probation.head.getPreviousInAccessQueue();
+      if ((candidate == victim) || (weightOf(candidate) == 0)) {
+        return victim;
+      }
+      return (sketch.frequency(candidate.getHash()) > sketch.frequency(victim.getHash()))
+          ? victim
+          : candidate;
+    }
+
+    @Nullable
+    static <K, V> ReferenceEntry<K, V> firstWeighted(AccessQueue<K, V> region) {
+      for (ReferenceEntry<K, V> e : region) {
+        if (weightOf(e) > 0) {
+          return e;
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Updates the weight charged to the region of {@code entry} after its value was replaced. This
+     * must be called before the entry is re-offered, as {@link #offer} only charges the weight of
+     * newly linked entries.
+     */
+    void reweigh(ReferenceEntry<K, V> entry, int oldWeight, int newWeight) {
+      if (contains(entry)) {
+        if (entry.getAccessRegion() == WINDOW) {
+          windowWeight += newWeight - oldWeight;
+        } else if (entry.getAccessRegion() == PROTECTED) {
+          protectedWeight += newWeight - oldWeight;
+        }
+      }
+    }
+
+    static int weightOf(ReferenceEntry<?, ?> entry) {
+      return entry.getValueReference().getWeight();
+    }
+
+    @Override
+    public ReferenceEntry<K, V> peek() {
+      ReferenceEntry<K, V> head = window.peek();
+      ReferenceEntry<K, V> e = probation.peek();
+      if (head == null || (e != null && e.getAccessTime() < head.getAccessTime())) {
+        head = e;
+      }
+      e = protectedQueue.peek();
+      if (head == null || (e != null && e.getAccessTime() < head.getAccessTime())) {
+        head = e;
+      }
+      return head;
+    }
+
+    @Override
+    public ReferenceEntry<K, V> poll() {
+      ReferenceEntry<K, V> next = peek();
+      if (next == null) {
+        return null;
+      }
+
+      remove(next);
+      return next;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+      ReferenceEntry<K, V> e = (ReferenceEntry) o;
+      if (!contains(e)) {
+        return false;
+      }
+      if (e.getAccessRegion() == WINDOW) {
+        windowWeight -= weightOf(e);
+      } else if (e.getAccessRegion() == PROTECTED) {
+        protectedWeight -= weightOf(e);
+      }
+      size--;
+      // the regions share the access links, so any of them can unlink the entry
+      return window.remove(e);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+      ReferenceEntry<K, V> e = (ReferenceEntry) o;
+      return e.getNextInAccessQueue() != NullEntry.INSTANCE;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return size == 0;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void clear() {
+      window.clear();
+      probation.clear();
+      protectedQueue.clear();
+      windowWeight = 0;
+      protectedWeight = 0;
+      size = 0;
+    }
+
+    @Override
+    public Iterator<ReferenceEntry<K, V>> iterator() {
+      return Iterators.concat(window.iterator(), probation.iterator(), protectedQueue.iterator());
+    }
+  }
+
   // Cache support
 
   public void cleanUp() {
@@ -3890,6 +4797,48 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
   }
 
+  /**
+   * Performs routine cleanup of a cache on behalf of its {@linkplain CacheBuilder#scheduler
+   * scheduler}. The task references the cache weakly, so that the scheduler does not keep an unused
+   * cache reachable, and cancels itself once the cache has been collected.
+   */
+  static final class PeriodicCleanUp implements Runnable {
+    final WeakReference<LocalCache<?, ?>> cacheReference;
+    volatile @Nullable Future<?> future;
+
+    PeriodicCleanUp(LocalCache<?, ?> cache) {
+      this.cacheReference = new WeakReference<LocalCache<?, ?>>(cache);
+    }
+
+    static void schedule(LocalCache<?, ?> cache, ScheduledExecutorService scheduler) {
+      PeriodicCleanUp task = new PeriodicCleanUp(cache);
+      task.future =
+          scheduler.scheduleWithFixedDelay(
+              task, CLEANUP_INTERVAL_NANOS, CLEANUP_INTERVAL_NANOS, NANOSECONDS);
+    }
+
+    @Override
+    public void run() {
+      LocalCache<?, ?> cache = cacheReference.get();
+      if (cache == null) {
+        Future<?> future = this.future;
+        if (future != null) {
+          future.cancel(false);
+        }
+        return;
+      }
+      for (Segment<?, ?> segment : cache.segments) {
+        segment.scheduleCleanUp();
+      }
+    }
+  }
+
+  /** Reweighs the entry for {@code key}, if it is still mapped to {@code value}. */
+  void rewrite(K key, V value) {
+    int hash = hash(checkNotNull(key));
+    segmentFor(hash).rewrite(key, hash, value);
+  }
+
   // ConcurrentMap methods
 
   @Override
@@ -4693,8 +5642,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     final Equivalence<Object> valueEquivalence;
     final long expireAfterWriteNanos;
     final long expireAfterAccessNanos;
+    final @Nullable Expiry<K, V> expiry;
     final long maxWeight;
     final Weigher<K, V> weigher;
+    final boolean frequencyAwareEviction;
     final int concurrencyLevel;
     final RemovalListener<? super K, ? super V> removalListener;
     final @Nullable Ticker ticker;
@@ -4710,8 +5661,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
           cache.valueEquivalence,
           cache.expireAfterWriteNanos,
           cache.expireAfterAccessNanos,
+          cache.expiry,
           cache.maxWeight,
           cache.weigher,
+          cache.frequencyAwareEviction,
           cache.concurrencyLevel,
           cache.removalListener,
           cache.ticker,
@@ -4725,8 +5678,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         Equivalence<Object> valueEquivalence,
         long expireAfterWriteNanos,
         long expireAfterAccessNanos,
+        @Nullable Expiry<K, V> expiry,
         long maxWeight,
         Weigher<K, V> weigher,
+        boolean frequencyAwareEviction,
         int concurrencyLevel,
         RemovalListener<? super K, ? super V> removalListener,
         Ticker ticker,
@@ -4737,8 +5692,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       this.valueEquivalence = valueEquivalence;
       this.expireAfterWriteNanos = expireAfterWriteNanos;
       this.expireAfterAccessNanos = expireAfterAccessNanos;
+      this.expiry = expiry;
       this.maxWeight = maxWeight;
       this.weigher = weigher;
+      this.frequencyAwareEviction = frequencyAwareEviction;
       this.concurrencyLevel = concurrencyLevel;
       this.removalListener = removalListener;
       this.ticker = (ticker == Ticker.systemTicker() || ticker == NULL_TICKER) ? null : ticker;
@@ -4761,6 +5718,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       if (expireAfterAccessNanos > 0) {
         builder.expireAfterAccess(expireAfterAccessNanos, TimeUnit.NANOSECONDS);
       }
+      if (expiry != null) {
+        builder = builder.expireAfter(expiry);
+      }
       if (weigher != OneWeigher.INSTANCE) {
         builder.weigher(weigher);
         if (maxWeight != UNSET_INT) {
@@ -4771,6 +5731,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
           builder.maximumSize(maxWeight);
         }
       }
+      if (frequencyAwareEviction && maxWeight != UNSET_INT) {
+        builder.frequencyAwareEviction();
+      }
       if (ticker != null) {
         builder.ticker(ticker);
       }
@@ -4991,4 +5954,374 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       return new LoadingSerializationProxy<>(localCache);
     }
   }
+
+  @GwtIncompatible
+  static class LocalAsyncLoadingCache<K, V> implements AsyncLoadingCache<K, V> {
+    final LocalCache<K, ListenableFuture<V>> localCache;
+    final CacheLoader<? super K, V> loader;
+    final ScheduledExecutorService executor;
+    final long bulkLoadWindowNanos;
+
+    /**
+     * Keys whose values are to be loaded by the next call to {@link CacheLoader#loadAll}, mapped to
+     * the futures that are already cached for them. A flush is scheduled whenever this becomes
+     * non-empty.
+     */
+    @GuardedBy("pendingBulkLoads")
+    final Map<K, SettableFuture<V>> pendingBulkLoads = Maps.newLinkedHashMap();
+
+    LocalAsyncLoadingCache(
+        CacheBuilder<? super K, ? super V> builder,
+        CacheLoader<? super K, V> loader,
+        ScheduledExecutorService executor) {
+      Weigher<K, V> weigher = builder.getWeigher();
+      RemovalListener<K, V> removalListener = builder.getRemovalListener();
+      CacheBuilder<K, ListenableFuture<V>> futureBuilder =
+          builder.copyWith(
+              (builder.weigher == null) ? null : new FutureWeigher<K, V>(weigher),
+              (builder.removalListener == null)
+                  ? null
+                  : new FutureRemovalListener<K, V>(removalListener));
+      this.localCache = new LocalCache<K, ListenableFuture<V>>(futureBuilder, null);
+      this.loader = checkNotNull(loader);
+      this.executor = checkNotNull(executor);
+      this.bulkLoadWindowNanos = builder.getBulkLoadWindowNanos();
+    }
+
+    @Override
+    public @Nullable ListenableFuture<V> getIfPresent(Object key) {
+      return localCache.getIfPresent(key);
+    }
+
+    @Override
+    public ListenableFuture<V> get(final K key) {
+      ListenableFuture<V> future = localCache.getIfPresent(checkNotNull(key));
+      if (future != null) {
+        return future;
+      }
+      final SettableFuture<V> loading = SettableFuture.create();
+      future = localCache.putIfAbsent(key, loading);
+      if (future != null) {
+        // another caller started loading key first
+        return future;
+      }
+      try {
+        executor.execute(
+            new Runnable() {
+              @Override
+              public void run() {
+                load(key, loading);
+              }
+            });
+      } catch (RuntimeException e) {
+        fail(key, loading, e);
+      }
+      return loading;
+    }
+
+    @Override
+    public ListenableFuture<ImmutableMap<K, V>> getAll(Iterable<? extends K> keys) {
+      int hits = 0;
+      int misses = 0;
+
+      final Map<K, ListenableFuture<V>> futures = Maps.newLinkedHashMap();
+      Map<K, SettableFuture<V>> toLoad = Maps.newLinkedHashMap();
+      for (K key : keys) {
+        if (futures.containsKey(checkNotNull(key))) {
+          continue;
+        }
+        ListenableFuture<V> future = localCache.get(key);
+        if (future == null) {
+          misses++;
+          SettableFuture<V> loading = SettableFuture.create();
+          future = localCache.putIfAbsent(key, loading);
+          if (future == null) {
+            future = loading;
+            toLoad.put(key, loading);
+          }
+        } else {
+          hits++;
+        }
+        futures.put(key, future);
+      }
+      localCache.globalStatsCounter.recordHits(hits);
+      localCache.globalStatsCounter.recordMisses(misses);
+
+      if (!toLoad.isEmpty()) {
+        enqueueBulkLoad(toLoad);
+      }
+      return transform(
+          Futures.allAsList(futures.values()),
+          new com.google.common.base.Function<List<V>, ImmutableMap<K, V>>() {
+            @Override
+            public ImmutableMap<K, V> apply(List<V> values) {
+              ImmutableMap.Builder<K, V> result = ImmutableMap.builder();
+              Iterator<V> valueIterator = values.iterator();
+              for (K key : futures.keySet()) {
+                result.put(key, valueIterator.next());
+              }
+              return result.build();
+            }
+          },
+          directExecutor());
+    }
+
+    @Override
+    public void put(K key, ListenableFuture<V> valueFuture) {
+      localCache.put(key, valueFuture);
+      watch(key, valueFuture);
+    }
+
+    @Override
+    public void invalidate(Object key) {
+      checkNotNull(key);
+      localCache.remove(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+      localCache.clear();
+    }
+
+    @Override
+    public long size() {
+      return localCache.longSize();
+    }
+
+    @Override
+    public CacheStats stats() {
+      SimpleStatsCounter aggregator = new SimpleStatsCounter();
+      aggregator.incrementBy(localCache.globalStatsCounter);
+      for (Segment<K, ListenableFuture<V>> segment : localCache.segments) {
+        aggregator.incrementBy(segment.statsCounter);
+      }
+      return aggregator.snapshot();
+    }
+
+    @Override
+    public void cleanUp() {
+      localCache.cleanUp();
+    }
+
+    @Override
+    public ConcurrentMap<K, ListenableFuture<V>> asMap() {
+      return localCache;
+    }
+
+    /**
+     * Arranges for the entry of a future that was supplied by the user to be removed if the future
+     * fails or completes with {@code null}, and otherwise to be rewritten once it completes.
+     */
+    void watch(final K key, final ListenableFuture<V> future) {
+      future.addListener(
+          new Runnable() {
+            @Override
+            public void run() {
+              if (getDoneValue(future) == null) {
+                localCache.remove(key, future);
+              } else {
+                rewrite(key, future);
+              }
+            }
+          },
+          directExecutor());
+    }
+
+    /** Completes a loading future, and then reweighs its entry. */
+    void succeed(K key, SettableFuture<V> future, V value) {
+      future.set(value);
+      rewrite(key, future);
+    }
+
+    /**
+     * Removes the entry of a loading future before failing the future, so that callers observing
+     * the failure never find the failed future in the cache.
+     */
+    void fail(K key, SettableFuture<V> future, Throwable t) {
+      localCache.remove(key, future);
+      future.setException(t);
+    }
+
+    void rewrite(K key, ListenableFuture<V> future) {
+      if (localCache.customWeigher() || localCache.expiresAfterWrite()) {
+        localCache.rewrite(key, future);
+      }
+    }
+
+    /** Loads the value of a single key into {@code future}, on the calling executor thread. */
+    void load(K key, SettableFuture<V> future) {
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      try {
+        V value = loader.load(key);
+        if (value == null) {
+          throw new InvalidCacheLoadException("CacheLoader returned null for key " + key + ".");
+        }
+        localCache.globalStatsCounter.recordLoadSuccess(stopwatch.elapsed(NANOSECONDS));
+        succeed(key, future, value);
+      } catch (Throwable t) {
+        localCache.globalStatsCounter.recordLoadException(stopwatch.elapsed(NANOSECONDS));
+        if (t instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+        }
+        fail(key, future, t);
+      }
+    }
+
+    void enqueueBulkLoad(Map<K, SettableFuture<V>> toLoad) {
+      boolean scheduleFlush;
+      synchronized (pendingBulkLoads) {
+        scheduleFlush = pendingBulkLoads.isEmpty();
+        for (Entry<K, SettableFuture<V>> entry : toLoad.entrySet()) {
+          SettableFuture<V> previous = pendingBulkLoads.put(entry.getKey(), entry.getValue());
+          if (previous != null) {
+            // The key was invalidated or evicted while it waited; load it once for both callers.
+            previous.setFuture(entry.getValue());
+          }
+        }
+      }
+      if (!scheduleFlush) {
+        // a flush is already scheduled, and will load these keys along with the others
+        return;
+      }
+      Runnable flush =
+          new Runnable() {
+            @Override
+            public void run() {
+              loadAll(drainPendingBulkLoads());
+            }
+          };
+      try {
+        if (bulkLoadWindowNanos > 0) {
+          executor.schedule(flush, bulkLoadWindowNanos, NANOSECONDS);
+        } else {
+          executor.execute(flush);
+        }
+      } catch (RuntimeException e) {
+        for (Entry<K, SettableFuture<V>> entry : drainPendingBulkLoads().entrySet()) {
+          fail(entry.getKey(), entry.getValue(), e);
+        }
+      }
+    }
+
+    Map<K, SettableFuture<V>> drainPendingBulkLoads() {
+      synchronized (pendingBulkLoads) {
+        Map<K, SettableFuture<V>> batch = Maps.newLinkedHashMap(pendingBulkLoads);
+        pendingBulkLoads.clear();
+        return batch;
+      }
+    }
+
+    /** Loads the values of a batch of keys into their futures, on the calling executor thread. */
+    void loadAll(Map<K, SettableFuture<V>> batch) {
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      Map<K, V> result;
+      try {
+        @SuppressWarnings("unchecked") // safe since all keys extend K
+        Map<K, V> map = (Map<K, V>) loader.loadAll(batch.keySet());
+        result = map;
+      } catch (UnsupportedLoadingOperationException e) {
+        for (Entry<K, SettableFuture<V>> entry : batch.entrySet()) {
+          load(entry.getKey(), entry.getValue());
+        }
+        return;
+      } catch (Throwable t) {
+        localCache.globalStatsCounter.recordLoadException(stopwatch.elapsed(NANOSECONDS));
+        if (t instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+        }
+        for (Entry<K, SettableFuture<V>> entry : batch.entrySet()) {
+          fail(entry.getKey(), entry.getValue(), t);
+        }
+        return;
+      }
+
+      if (result == null) {
+        localCache.globalStatsCounter.recordLoadException(stopwatch.elapsed(NANOSECONDS));
+        Exception e = new InvalidCacheLoadException(loader + " returned null map from loadAll");
+        for (Entry<K, SettableFuture<V>> entry : batch.entrySet()) {
+          fail(entry.getKey(), entry.getValue(), e);
+        }
+        return;
+      }
+
+      boolean nullsPresent = false;
+      for (Entry<K, SettableFuture<V>> entry : batch.entrySet()) {
+        V value = result.get(entry.getKey());
+        if (value == null) {
+          nullsPresent = true;
+          fail(
+              entry.getKey(),
+              entry.getValue(),
+              new InvalidCacheLoadException(
+                  "loadAll failed to return a value for " + entry.getKey()));
+        } else {
+          succeed(entry.getKey(), entry.getValue(), value);
+        }
+      }
+      for (Entry<K, V> entry : result.entrySet()) {
+        K key = entry.getKey();
+        V value = entry.getValue();
+        if (key != null && value != null && !batch.containsKey(key)) {
+          // already complete, so weighed correctly when it is stored
+          localCache.putIfAbsent(key, Futures.immediateFuture(value));
+        }
+      }
+
+      if (nullsPresent) {
+        localCache.globalStatsCounter.recordLoadException(stopwatch.elapsed(NANOSECONDS));
+      } else {
+        localCache.globalStatsCounter.recordLoadSuccess(stopwatch.elapsed(NANOSECONDS));
+      }
+    }
+
+    /**
+     * Returns the value of {@code future} if it has completed successfully, or {@code null} if it
+     * is still loading, has failed, or was cancelled.
+     */
+    static <V> @Nullable V getDoneValue(ListenableFuture<V> future) {
+      if (!future.isDone()) {
+        return null;
+      }
+      try {
+        return Futures.getDone(future);
+      } catch (ExecutionException | CancellationException e) {
+        return null;
+      }
+    }
+
+    /** Weighs the value of a completed future, and an incomplete or failed future as zero. */
+    static final class FutureWeigher<K, V> implements Weigher<K, ListenableFuture<V>> {
+      final Weigher<K, V> delegate;
+
+      FutureWeigher(Weigher<K, V> delegate) {
+        this.delegate = delegate;
+      }
+
+      @Override
+      public int weigh(K key, ListenableFuture<V> future) {
+        V value = getDoneValue(future);
+        return (value == null) ? 0 : delegate.weigh(key, value);
+      }
+    }
+
+    /** Notifies the delegate of the removal of completed futures' values. */
+    static final class FutureRemovalListener<K, V>
+        implements RemovalListener<K, ListenableFuture<V>> {
+      final RemovalListener<K, V> delegate;
+
+      FutureRemovalListener(RemovalListener<K, V> delegate) {
+        this.delegate = delegate;
+      }
+
+      @Override
+      public void onRemoval(RemovalNotification<K, ListenableFuture<V>> notification) {
+        ListenableFuture<V> future = notification.getValue();
+        V value = (future == null) ? null : getDoneValue(future);
+        if (value != null) {
+          delegate.onRemoval(
+              RemovalNotification.create(notification.getKey(), value, notification.getCause()));
+        }
+      }
+    }
+  }
 }
@@ -15,59 +15,35 @@
 package com.google.common.cache;
 
 import com.google.common.annotations.GwtCompatible;
-import com.google.common.base.Supplier;
-import java.util.concurrent.atomic.AtomicLong;
+import com.google.common.util.concurrent.atomic.LongAdder;
 
 /**
- * Source of {@link LongAddable} objects that deals with GWT, Unsafe, and all that.
+ * Source of {@link LongAddable} objects, which are backed by {@link LongAdder} except under GWT.
  *
  * @author Louis Wasserman
  */
 @GwtCompatible(emulated = true)
 final class LongAddables {
-  private static final Supplier<LongAddable> SUPPLIER;
-
-  static {
-    Supplier<LongAddable> supplier;
-    try {
-      new LongAdder(); // trigger static initialization of the LongAdder class, which may fail
-      supplier =
-          new Supplier<LongAddable>() {
-            @Override
-            public LongAddable get() {
-              return new LongAdder();
-            }
-          };
-    } catch (Throwable t) { // we really want to catch *everything*
-      supplier =
-          new Supplier<LongAddable>() {
-            @Override
-            public LongAddable get() {
-              return new PureJavaLongAddable();
-            }
-          };
-    }
-    SUPPLIER = supplier;
-  }
-
   public static LongAddable create() {
-    return SUPPLIER.get();
+    return new StripedLongAddable();
   }
 
-  private static final class PureJavaLongAddable extends AtomicLong implements LongAddable {
+  private static final class StripedLongAddable implements LongAddable {
+    private final LongAdder adder = new LongAdder();
+
     @Override
     public void increment() {
-      getAndIncrement();
+      adder.increment();
     }
 
     @Override
     public void add(long x) {
-      getAndAdd(x);
+      adder.add(x);
     }
 
     @Override
     public long sum() {
-      return get();
+      return adder.sum();
     }
   }
 }
@@ -0,0 +1,648 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Holds encoded cache values outside of the Java heap, in memory that is allocated in slabs: either
+ * direct {@link ByteBuffer}s or regions of a memory-mapped file. Keys, and the index from keys to
+ * the memory holding their values, stay on the heap.
+ *
+ * <p>As in memcached, memory is divided into fixed-size pages, and each page is assigned on first
+ * use to a size class and split into chunks of that class's size. Chunk sizes grow geometrically,
+ * so at most a fifth of a chunk is wasted. Each size class keeps its own least-recently-used
+ * ordering, and once every page has been assigned, storing a value evicts the least-recently-used
+ * value of its class. Values larger than a page are not stored.
+ *
+ * <p>The store is striped by key hash; each stripe has its own pages and is guarded by its own
+ * monitor. Removal notifications are delivered outside of the monitor.
+ *
+ * <p>Closing the store discards its values without notification, frees its pages where the JDK
+ * allows it, and closes its file. A closed store holds nothing, and declines values to demote.
+ */
+@GwtIncompatible
+final class OffHeapStore<K, V> implements Closeable {
+
+  /** The size of the smallest chunk, in bytes. */
+  static final int MINIMUM_CHUNK_SIZE = 64;
+
+  /** The size of a page, unless a stripe's share of the capacity is smaller than this. */
+  static final int MAXIMUM_PAGE_SIZE = 1 << 20;
+
+  /** The ratio of the sizes of consecutive size classes. */
+  static final double CHUNK_GROWTH_FACTOR = 1.25;
+
+  private static final Logger logger = Logger.getLogger(OffHeapStore.class.getName());
+
+  final ByteCodec<V> codec;
+  final RemovalListener<K, V> removalListener;
+  final Ticker ticker;
+
+  /** How long a value may stay in the store, or zero if values do not expire. */
+  final long expireAfterNanos;
+
+  final int pageSize;
+  final int[] chunkSizes;
+  final Stripe<K, V>[] stripes;
+  final @Nullable FileChannel channel;
+
+  /**
+   * Creates a store of {@code capacity} bytes, backed by direct buffers if {@code file} is null
+   * and otherwise by regions of {@code file}, which is created or overwritten.
+   */
+  OffHeapStore(
+      long capacity,
+      @Nullable File file,
+      int stripeCount,
+      ByteCodec<V> codec,
+      RemovalListener<K, V> removalListener,
+      Ticker ticker,
+      long expireAfterNanos) {
+    checkArgument(stripeCount > 0);
+    long stripeCapacity = capacity / stripeCount;
+    checkArgument(
+        stripeCapacity >= MINIMUM_CHUNK_SIZE,
+        "off-heap capacity of %s bytes is too small for %s stripes",
+        capacity,
+        stripeCount);
+    this.codec = checkNotNull(codec);
+    this.removalListener = checkNotNull(removalListener);
+    this.ticker = checkNotNull(ticker);
+    this.expireAfterNanos = expireAfterNanos;
+    this.pageSize = (int) Math.min(MAXIMUM_PAGE_SIZE, stripeCapacity);
+    this.chunkSizes = chunkSizes(pageSize);
+
+    int pagesPerStripe = (int) Math.min(Integer.MAX_VALUE, stripeCapacity / pageSize);
+    this.channel = (file == null) ? null : openChannel(file);
+    stripes = newStripeArray(stripeCount);
+    for (int i = 0; i < stripeCount; i++) {
+      PageSource pages =
+          (channel == null)
+              ? new DirectPageSource(pageSize)
+              : new MappedPageSource(channel, (long) i * pagesPerStripe * pageSize, pageSize);
+      stripes[i] = new Stripe<>(this, pages, pagesPerStripe);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K, V> Stripe<K, V>[] newStripeArray(int size) {
+    return (Stripe<K, V>[]) new Stripe<?, ?>[size];
+  }
+
+  private static FileChannel openChannel(File file) {
+    try {
+      @SuppressWarnings("resource") // closing the file leaves the channel, and its mappings, open
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      return raf.getChannel();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Returns the chunk size of each size class, in increasing order, ending with the page size. */
+  @VisibleForTesting
+  static int[] chunkSizes(int pageSize) {
+    List<Integer> sizes = Lists.newArrayList();
+    double size = MINIMUM_CHUNK_SIZE;
+    while (size < pageSize) {
+      // keep chunks 8-byte aligned
+      int aligned = ((int) Math.ceil(size) + 7) & ~7;
+      if (aligned >= pageSize) {
+        break;
+      }
+      sizes.add(aligned);
+      size = aligned * CHUNK_GROWTH_FACTOR;
+    }
+    sizes.add(pageSize);
+    int[] result = new int[sizes.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = sizes.get(i);
+    }
+    return result;
+  }
+
+  Stripe<K, V> stripeFor(Object key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return stripes[(h & Integer.MAX_VALUE) % stripes.length];
+  }
+
+  /**
+   * Stores {@code value} for {@code key}, unless {@code shadow} (the on-heap tier) contains {@code
+   * key}, in which case the on-heap value supersedes it. Any value already stored for {@code key}
+   * is discarded without notification. Returns whether the value was stored.
+   */
+  boolean demote(K key, V value, Map<?, ?> shadow) {
+    List<RemovalNotification<K, V>> evicted = Lists.newArrayList();
+    boolean stored;
+    Stripe<K, V> stripe = stripeFor(key);
+    synchronized (stripe) {
+      stored = !shadow.containsKey(key) && stripe.put(key, value, evicted);
+    }
+    notifyAll(evicted);
+    return stored;
+  }
+
+  /**
+   * Removes and returns the value stored for {@code key}, or returns null if there is none. An
+   * expired value is removed and reported, and null returned.
+   */
+  @Nullable
+  V promote(Object key) {
+    List<RemovalNotification<K, V>> removed = Lists.newArrayList();
+    V value;
+    Stripe<K, V> stripe = stripeFor(key);
+    synchronized (stripe) {
+      value = stripe.remove(key, removed);
+    }
+    notifyAll(removed);
+    return value;
+  }
+
+  /**
+   * Discards and returns the value stored for {@code key}, if any, reporting it with {@code cause}
+   * unless {@code cause} is null.
+   */
+  @CanIgnoreReturnValue
+  @Nullable
+  V invalidate(Object key, @Nullable RemovalCause cause) {
+    List<RemovalNotification<K, V>> removed = Lists.newArrayList();
+    V value;
+    Stripe<K, V> stripe = stripeFor(key);
+    synchronized (stripe) {
+      value = stripe.remove(key, removed);
+      if (value != null && cause != null && removalListener != CacheBuilder.NullListener.INSTANCE) {
+        @SuppressWarnings("unchecked") // the store only holds keys of type K
+        K storedKey = (K) key;
+        removed.add(RemovalNotification.create(storedKey, value, cause));
+      }
+    }
+    notifyAll(removed);
+    return value;
+  }
+
+  /** Discards every stored value, reporting each with {@code cause}. */
+  void clear(RemovalCause cause) {
+    for (Stripe<K, V> stripe : stripes) {
+      List<RemovalNotification<K, V>> removed = Lists.newArrayList();
+      synchronized (stripe) {
+        stripe.clear(cause, removed);
+      }
+      notifyAll(removed);
+    }
+  }
+
+  /**
+   * Discards every stored value without notification, frees the pages, and closes the file if the
+   * store has one. Closing a closed store has no effect.
+   */
+  @Override
+  public void close() throws IOException {
+    for (Stripe<K, V> stripe : stripes) {
+      synchronized (stripe) {
+        stripe.close();
+      }
+    }
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+  /** Returns the number of stored values. */
+  long size() {
+    long size = 0;
+    for (Stripe<K, V> stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.index.size();
+      }
+    }
+    return size;
+  }
+
+  void notifyAll(List<RemovalNotification<K, V>> notifications) {
+    for (RemovalNotification<K, V> notification : notifications) {
+      try {
+        removalListener.onRemoval(notification);
+      } catch (Throwable e) {
+        logger.log(Level.WARNING, "Exception thrown by removal listener", e);
+      }
+    }
+  }
+
+  /** Provides the pages of one stripe. */
+  interface PageSource {
+    ByteBuffer page(int index);
+  }
+
+  static final class DirectPageSource implements PageSource {
+    final int pageSize;
+
+    DirectPageSource(int pageSize) {
+      this.pageSize = pageSize;
+    }
+
+    @Override
+    public ByteBuffer page(int index) {
+      return ByteBuffer.allocateDirect(pageSize);
+    }
+  }
+
+  static final class MappedPageSource implements PageSource {
+    final FileChannel channel;
+    final long base;
+    final int pageSize;
+
+    MappedPageSource(FileChannel channel, long base, int pageSize) {
+      this.channel = channel;
+      this.base = base;
+      this.pageSize = pageSize;
+    }
+
+    @Override
+    public ByteBuffer page(int index) {
+      try {
+        long position = base + (long) index * pageSize;
+        return channel.map(FileChannel.MapMode.READ_WRITE, position, pageSize);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Frees the memory of direct and mapped buffers eagerly, rather than when they are garbage
+   * collected. Uses reflection to find the JDK's cleaner, and does nothing if it isn't available.
+   */
+  static final class BufferReleaser {
+    /** {@code Unsafe.invokeCleaner(ByteBuffer)}, which JDK 9 and later provide. */
+    private static final @Nullable Method INVOKE_CLEANER;
+
+    private static final @Nullable Object THE_UNSAFE;
+
+    static {
+      Method invokeCleaner = null;
+      Object theUnsafe = null;
+      try {
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Field field = unsafeClass.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        theUnsafe = field.get(null);
+        invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      } catch (Throwable t) { // ensure we really catch *everything*
+        invokeCleaner = null;
+      }
+      INVOKE_CLEANER = invokeCleaner;
+      THE_UNSAFE = theUnsafe;
+    }
+
+    private BufferReleaser() {}
+
+    static void release(ByteBuffer buffer) {
+      if (!buffer.isDirect()) {
+        return;
+      }
+      try {
+        if (INVOKE_CLEANER != null) {
+          INVOKE_CLEANER.invoke(THE_UNSAFE, buffer);
+        } else {
+          // JDK 8: sun.nio.ch.DirectBuffer.cleaner().clean()
+          Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+          cleanerMethod.setAccessible(true);
+          Object cleaner = cleanerMethod.invoke(buffer);
+          if (cleaner != null) {
+            cleaner.getClass().getMethod("clean").invoke(cleaner);
+          }
+        }
+      } catch (Throwable t) { // ensure we really catch *everything*
+        // leave the buffer to the garbage collector
+      }
+    }
+  }
+
+  /** The location of one stored value, linked into its size class's LRU list. */
+  static final class Slot<K> {
+    final K key;
+    final long chunk;
+    final int length;
+    final int sizeClass;
+    final long expirationTime;
+
+    @Nullable Slot<K> previous;
+    @Nullable Slot<K> next;
+
+    Slot(K key, long chunk, int length, int sizeClass, long expirationTime) {
+      this.key = key;
+      this.chunk = chunk;
+      this.length = length;
+      this.sizeClass = sizeClass;
+      this.expirationTime = expirationTime;
+    }
+  }
+
+  /**
+   * One stripe of the store. A chunk is identified by a {@code long} holding its page index in the
+   * high 32 bits and its offset within the page in the low 32 bits.
+   */
+  static final class Stripe<K, V> {
+    final OffHeapStore<K, V> store;
+    final PageSource pageSource;
+    final ByteBuffer[] pages;
+
+    @GuardedBy("this")
+    int pageCount;
+
+    @GuardedBy("this")
+    final Map<K, Slot<K>> index = Maps.newHashMap();
+
+    /** Free chunks of each size class, as a stack. */
+    @GuardedBy("this")
+    final long[][] freeChunks;
+
+    @GuardedBy("this")
+    final int[] freeCounts;
+
+    /** The most recently stored value of each size class. */
+    @GuardedBy("this")
+    final Slot<K>[] heads;
+
+    /** The least recently stored value of each size class, which is the next to be evicted. */
+    @GuardedBy("this")
+    final Slot<K>[] tails;
+
+    @GuardedBy("this")
+    boolean closed;
+
+    @SuppressWarnings("unchecked")
+    Stripe(OffHeapStore<K, V> store, PageSource pageSource, int maxPages) {
+      this.store = store;
+      this.pageSource = pageSource;
+      this.pages = new ByteBuffer[maxPages];
+      int classes = store.chunkSizes.length;
+      this.freeChunks = new long[classes][];
+      this.freeCounts = new int[classes];
+      this.heads = (Slot<K>[]) new Slot<?>[classes];
+      this.tails = (Slot<K>[]) new Slot<?>[classes];
+    }
+
+    @GuardedBy("this")
+    boolean put(K key, V value, List<RemovalNotification<K, V>> evicted) {
+      Slot<K> existing = index.remove(key);
+      if (existing != null) {
+        release(existing);
+      }
+      if (closed) {
+        return false;
+      }
+
+      int length = store.codec.encodedLength(value);
+      int sizeClass = sizeClassFor(length);
+      if (sizeClass < 0) {
+        return false;
+      }
+      long chunk = allocate(sizeClass, evicted);
+      if (chunk < 0) {
+        return false;
+      }
+
+      ByteBuffer target = chunkBuffer(chunk, length);
+      try {
+        store.codec.encode(value, target);
+      } catch (Throwable t) {
+        freePush(sizeClass, chunk);
+        throw t;
+      }
+      if (target.hasRemaining()) {
+        freePush(sizeClass, chunk);
+        throw new IllegalStateException(
+            "ByteCodec wrote " + target.position() + " of " + length + " bytes for " + key);
+      }
+
+      long expirationTime =
+          (store.expireAfterNanos > 0) ? store.ticker.read() + store.expireAfterNanos : 0;
+      Slot<K> slot = new Slot<K>(key, chunk, length, sizeClass, expirationTime);
+      index.put(key, slot);
+      linkFirst(slot);
+      return true;
+    }
+
+    /**
+     * Removes and decodes the value for {@code key}. If the value has expired it is reported to
+     * {@code removed} instead, and null is returned.
+     */
+    @GuardedBy("this")
+    @Nullable
+    V remove(Object key, List<RemovalNotification<K, V>> removed) {
+      Slot<K> slot = index.remove(key);
+      if (slot == null) {
+        return null;
+      }
+      V value = releaseAndDecode(slot);
+      if (slot.expirationTime != 0 && store.ticker.read() - slot.expirationTime >= 0) {
+        removed.add(RemovalNotification.create(slot.key, value, RemovalCause.EXPIRED));
+        return null;
+      }
+      return value;
+    }
+
+    @GuardedBy("this")
+    void clear(RemovalCause cause, List<RemovalNotification<K, V>> removed) {
+      boolean notify = store.removalListener != CacheBuilder.NullListener.INSTANCE;
+      for (Iterator<Slot<K>> i = index.values().iterator(); i.hasNext(); ) {
+        Slot<K> slot = i.next();
+        i.remove();
+        if (notify) {
+          removed.add(RemovalNotification.create(slot.key, releaseAndDecode(slot), cause));
+        } else {
+          release(slot);
+        }
+      }
+    }
+
+    /** Discards every value without notification and frees the pages, leaving none to assign. */
+    @GuardedBy("this")
+    void close() {
+      closed = true;
+      index.clear();
+      Arrays.fill(heads, null);
+      Arrays.fill(tails, null);
+      Arrays.fill(freeCounts, 0);
+      for (int i = 0; i < pageCount; i++) {
+        BufferReleaser.release(pages[i]);
+        pages[i] = null;
+      }
+      pageCount = 0;
+    }
+
+    /** Returns the index of the smallest size class that fits {@code length}, or -1 if none. */
+    int sizeClassFor(int length) {
+      int[] sizes = store.chunkSizes;
+      for (int i = 0; i < sizes.length; i++) {
+        if (length <= sizes[i]) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Returns a free chunk of {@code sizeClass}, assigning a new page to the class or evicting the
+     * class's least-recently-stored value if necessary, or -1 if the class has no chunks at all.
+     */
+    @GuardedBy("this")
+    long allocate(int sizeClass, List<RemovalNotification<K, V>> evicted) {
+      if (freeCounts[sizeClass] == 0) {
+        if (pageCount < pages.length) {
+          assignPage(sizeClass);
+        } else {
+          Slot<K> victim = tails[sizeClass];
+          if (victim == null) {
+            return -1;
+          }
+          index.remove(victim.key);
+          if (store.removalListener != CacheBuilder.NullListener.INSTANCE) {
+            evicted.add(
+                RemovalNotification.create(
+                    victim.key, releaseAndDecode(victim), RemovalCause.SIZE));
+          } else {
+            release(victim);
+          }
+        }
+      }
+      return freeChunks[sizeClass][--freeCounts[sizeClass]];
+    }
+
+    @GuardedBy("this")
+    void assignPage(int sizeClass) {
+      int page = pageCount;
+      pages[page] = pageSource.page(page);
+      pageCount++;
+
+      int chunkSize = store.chunkSizes[sizeClass];
+      int chunks = store.pageSize / chunkSize;
+      long[] free = freeChunks[sizeClass];
+      int needed = freeCounts[sizeClass] + chunks;
+      if (free == null || free.length < needed) {
+        long[] grown = new long[Math.max(needed, (free == null) ? 0 : free.length * 2)];
+        if (free != null) {
+          System.arraycopy(free, 0, grown, 0, freeCounts[sizeClass]);
+        }
+        freeChunks[sizeClass] = free = grown;
+      }
+      // push in reverse so that chunks are handed out in address order
+      for (int i = chunks - 1; i >= 0; i--) {
+        free[freeCounts[sizeClass]++] = ((long) page << 32) | ((long) i * chunkSize);
+      }
+    }
+
+    @GuardedBy("this")
+    void release(Slot<K> slot) {
+      unlink(slot);
+      freePush(slot.sizeClass, slot.chunk);
+    }
+
+    /**
+     * Releases a slot that was removed from the index, and returns its decoded value. The chunk is
+     * freed even if the codec throws.
+     */
+    @GuardedBy("this")
+    V releaseAndDecode(Slot<K> slot) {
+      unlink(slot);
+      try {
+        return decode(slot);
+      } finally {
+        freePush(slot.sizeClass, slot.chunk);
+      }
+    }
+
+    @GuardedBy("this")
+    void freePush(int sizeClass, long chunk) {
+      // a chunk being returned was handed out by allocate, so the stack has room for it
+      freeChunks[sizeClass][freeCounts[sizeClass]++] = chunk;
+    }
+
+    @GuardedBy("this")
+    V decode(Slot<K> slot) {
+      return store.codec.decode(chunkBuffer(slot.chunk, slot.length).asReadOnlyBuffer());
+    }
+
+    ByteBuffer chunkBuffer(long chunk, int length) {
+      ByteBuffer page = pages[(int) (chunk >>> 32)].duplicate();
+      int offset = (int) chunk;
+      page.limit(offset + length);
+      page.position(offset);
+      return page.slice();
+    }
+
+    @GuardedBy("this")
+    void linkFirst(Slot<K> slot) {
+      int c = slot.sizeClass;
+      slot.previous = null;
+      slot.next = heads[c];
+      if (heads[c] == null) {
+        tails[c] = slot;
+      } else {
+        heads[c].previous = slot;
+      }
+      heads[c] = slot;
+    }
+
+    @GuardedBy("this")
+    void unlink(Slot<K> slot) {
+      int c = slot.sizeClass;
+      if (slot.previous == null) {
+        checkState(heads[c] == slot);
+        heads[c] = slot.next;
+      } else {
+        slot.previous.next = slot.next;
+      }
+      if (slot.next == null) {
+        tails[c] = slot.previous;
+      } else {
+        slot.next.previous = slot.previous;
+      }
+      slot.previous = null;
+      slot.next = null;
+    }
+  }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.cache.AbstractCache.SimpleStatsCounter;
+import com.google.common.cache.CacheBuilder.NullListener;
+import com.google.common.cache.LocalCache.Segment;
+import com.google.common.collect.ForwardingConcurrentMap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A cache whose entries are held on the heap until they are evicted by size, and are then encoded
+ * into an {@link OffHeapStore} instead of being discarded. A lookup that misses the heap decodes
+ * the entry from the store, removes it there, and returns it to the heap, so that each key is held
+ * by at most one tier.
+ *
+ * <p>Entries move between the tiers through the hooks that {@link LocalCache} already offers: the
+ * heap's removal listener demotes entries that are evicted by size, and the heap's loader promotes
+ * entries before falling back to the user's loader. As a result the user's removal listener hears
+ * of an entry evicted by size only when it leaves the store, and a promotion is recorded in the
+ * statistics as a miss followed by a successful load. The {@link #asMap} view reads only the heap,
+ * but its writes reach both tiers.
+ *
+ * <p>Closing the cache closes the store, after which entries evicted from the heap are discarded.
+ */
+@GwtIncompatible
+class OffHeapTieredCache<K, V> implements Cache<K, V>, Closeable {
+  final LocalCache<K, V> heap;
+  final OffHeapStore<K, V> store;
+  final RemovalListener<K, V> removalListener;
+  final ConcurrentMap<K, V> asMap = new TieredMap();
+
+  OffHeapTieredCache(
+      CacheBuilder<? super K, ? super V> builder, @Nullable CacheLoader<? super K, V> loader) {
+    this.removalListener = builder.getRemovalListener();
+    @SuppressWarnings("unchecked") // the builder's codec was set for its value type
+    ByteCodec<V> codec = (ByteCodec<V>) builder.offHeapCodec;
+    this.store =
+        new OffHeapStore<K, V>(
+            builder.offHeapCapacity,
+            builder.offHeapFile,
+            builder.getConcurrencyLevel(),
+            codec,
+            removalListener,
+            builder.getTicker(true),
+            offHeapExpiration(builder));
+    Weigher<K, V> weigher = builder.getWeigher();
+    CacheBuilder<K, V> heapBuilder =
+        builder.copyWith((builder.weigher == null) ? null : weigher, new DemotingListener());
+    this.heap =
+        new LocalCache<K, V>(heapBuilder, (loader == null) ? null : new PromotingLoader(loader));
+  }
+
+  /**
+   * Returns how long a value may stay in the store after it is demoted: the shorter of the
+   * expiration durations, as the time since the value was written or read is not tracked there.
+   */
+  private static long offHeapExpiration(CacheBuilder<?, ?> builder) {
+    long write = builder.getExpireAfterWriteNanos();
+    long access = builder.getExpireAfterAccessNanos();
+    if (write == 0 || access == 0) {
+      return Math.max(write, access);
+    }
+    return Math.min(write, access);
+  }
+
+  // Cache methods
+
+  @Override
+  public @Nullable V getIfPresent(Object key) {
+    V value = heap.getIfPresent(key);
+    return (value == null) ? promote(key) : value;
+  }
+
+  /**
+   * Moves the value stored off-heap for {@code key}, if any, onto the heap, and returns the value
+   * that the heap then holds for {@code key}, or null if neither tier holds one.
+   */
+  @Nullable
+  V promote(@Nullable Object key) {
+    if (key == null) {
+      return null;
+    }
+    V value = store.promote(key);
+    if (value == null) {
+      return null;
+    }
+    @SuppressWarnings("unchecked") // the store only holds keys of type K
+    K storedKey = (K) key;
+    V existing = heap.putIfAbsent(storedKey, value);
+    return (existing == null) ? value : existing;
+  }
+
+  @Override
+  public V get(K key, final Callable<? extends V> valueLoader) throws ExecutionException {
+    checkNotNull(valueLoader);
+    return heap.get(
+        key,
+        new CacheLoader<K, V>() {
+          @Override
+          public V load(K key) throws Exception {
+            V value = store.promote(key);
+            return (value == null) ? valueLoader.call() : value;
+          }
+        });
+  }
+
+  @Override
+  public ImmutableMap<K, V> getAllPresent(Iterable<?> keys) {
+    Map<K, V> result = Maps.newLinkedHashMap();
+    for (Object key : keys) {
+      V value = getIfPresent(key);
+      if (value != null) {
+        @SuppressWarnings("unchecked") // getIfPresent found a value, so the key is a K
+        K castKey = (K) key;
+        result.put(castKey, value);
+      }
+    }
+    return ImmutableMap.copyOf(result);
+  }
+
+  @Override
+  public void put(K key, V value) {
+    heap.put(key, value);
+    store.invalidate(key, RemovalCause.REPLACED);
+  }
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> m) {
+    for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+      put(e.getKey(), e.getValue());
+    }
+  }
+
+  @Override
+  public void invalidate(Object key) {
+    checkNotNull(key);
+    heap.remove(key);
+    store.invalidate(key, RemovalCause.EXPLICIT);
+  }
+
+  @Override
+  public void invalidateAll(Iterable<?> keys) {
+    for (Object key : keys) {
+      invalidate(key);
+    }
+  }
+
+  @Override
+  public void invalidateAll() {
+    heap.clear();
+    store.clear(RemovalCause.EXPLICIT);
+  }
+
+  /** Returns the number of entries in both tiers. */
+  @Override
+  public long size() {
+    return heap.longSize() + store.size();
+  }
+
+  /**
+   * Returns a view of the entries held on the heap. Entries held off-heap are not visible to its
+   * queries or collection views, but are replaced or removed by its writes, and its conditional
+   * writes first move the entry for their key onto the heap.
+   */
+  @Override
+  public ConcurrentMap<K, V> asMap() {
+    return asMap;
+  }
+
+  @Override
+  public CacheStats stats() {
+    SimpleStatsCounter aggregator = new SimpleStatsCounter();
+    aggregator.incrementBy(heap.globalStatsCounter);
+    for (Segment<K, V> segment : heap.segments) {
+      aggregator.incrementBy(segment.statsCounter);
+    }
+    return aggregator.snapshot();
+  }
+
+  @Override
+  public void cleanUp() {
+    heap.cleanUp();
+  }
+
+  /**
+   * Discards the entries held off-heap without notification, and releases their memory and file.
+   * The entries held on the heap are kept, but are discarded when they are evicted by size.
+   */
+  @Override
+  public void close() throws IOException {
+    store.close();
+  }
+
+  /** The {@link #asMap} view, which writes through to the store. */
+  final class TieredMap extends ForwardingConcurrentMap<K, V> {
+    @Override
+    protected ConcurrentMap<K, V> delegate() {
+      return heap;
+    }
+
+    @Override
+    public V put(K key, V value) {
+      V previous = heap.put(key, value);
+      V demoted = store.invalidate(key, RemovalCause.REPLACED);
+      return (previous == null) ? demoted : previous;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+      for (Map.Entry<? extends K, ? extends V> e : map.entrySet()) {
+        put(e.getKey(), e.getValue());
+      }
+    }
+
+    @Override
+    public V remove(@Nullable Object key) {
+      if (key == null) {
+        return null;
+      }
+      V previous = heap.remove(key);
+      V demoted = store.invalidate(key, RemovalCause.EXPLICIT);
+      return (previous == null) ? demoted : previous;
+    }
+
+    @Override
+    public void clear() {
+      heap.clear();
+      store.clear(RemovalCause.EXPLICIT);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+      promote(key);
+      return heap.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(@Nullable Object key, @Nullable Object value) {
+      promote(key);
+      return heap.remove(key, value);
+    }
+
+    @Override
+    public V replace(K key, V value) {
+      promote(key);
+      return heap.replace(key, value);
+    }
+
+    @Override
+    public boolean replace(K key, @Nullable V oldValue, V newValue) {
+      promote(key);
+      return heap.replace(key, oldValue, newValue);
+    }
+  }
+
+  /**
+   * Demotes entries that the heap evicts by size, and forwards every other removal to the user's
+   * listener. An entry that the store cannot hold is reported as evicted by size right away.
+   */
+  final class DemotingListener implements RemovalListener<K, V> {
+    @Override
+    public void onRemoval(RemovalNotification<K, V> notification) {
+      K key = notification.getKey();
+      V value = notification.getValue();
+      if (notification.getCause() == RemovalCause.SIZE) {
+        if (key != null && value != null && store.demote(key, value, heap)) {
+          return;
+        }
+      } else if (key != null) {
+        // the heap's entry supersedes any stale copy in the store
+        store.invalidate(key, null);
+      }
+      if (removalListener != NullListener.INSTANCE) {
+        removalListener.onRemoval(notification);
+      }
+    }
+  }
+
+  /** Promotes values from the store, loading only those it does not hold. */
+  final class PromotingLoader extends CacheLoader<K, V> {
+    final CacheLoader<? super K, V> loader;
+
+    PromotingLoader(CacheLoader<? super K, V> loader) {
+      this.loader = checkNotNull(loader);
+    }
+
+    @Override
+    public V load(K key) throws Exception {
+      V value = store.promote(key);
+      return (value == null) ? loader.load(key) : value;
+    }
+
+    @Override
+    public ListenableFuture<V> reload(K key, V oldValue) throws Exception {
+      return loader.reload(key, oldValue);
+    }
+
+    @Override
+    public Map<K, V> loadAll(Iterable<? extends K> keys) throws Exception {
+      Map<K, V> result = Maps.newLinkedHashMap();
+      Map<K, V> missing = Maps.newLinkedHashMap();
+      for (K key : keys) {
+        V value = store.promote(key);
+        if (value == null) {
+          missing.put(key, null);
+        } else {
+          result.put(key, value);
+        }
+      }
+      if (missing.isEmpty()) {
+        return result;
+      }
+      try {
+        @SuppressWarnings("unchecked") // the user's loader returns entries of K and V
+        Map<K, V> loaded = (Map<K, V>) loader.loadAll(missing.keySet());
+        result.putAll(loaded);
+      } catch (UnsupportedLoadingOperationException e) {
+        for (K key : missing.keySet()) {
+          result.put(key, loader.load(key));
+        }
+      }
+      return result;
+    }
+  }
+
+  static final class Loading<K, V> extends OffHeapTieredCache<K, V>
+      implements LoadingCache<K, V> {
+
+    Loading(CacheBuilder<? super K, ? super V> builder, CacheLoader<? super K, V> loader) {
+      super(builder, checkNotNull(loader));
+    }
+
+    // LoadingCache methods
+
+    @Override
+    public V get(K key) throws ExecutionException {
+      return heap.getOrLoad(key);
+    }
+
+    @Override
+    public V getUnchecked(K key) {
+      try {
+        return get(key);
+      } catch (ExecutionException e) {
+        throw new UncheckedExecutionException(e.getCause());
+      }
+    }
+
+    @Override
+    public ImmutableMap<K, V> getAll(Iterable<? extends K> keys) throws ExecutionException {
+      return heap.getAll(keys);
+    }
+
+    @Override
+    public void refresh(K key) {
+      heap.refresh(key);
+    }
+
+    @Deprecated
+    @Override
+    public final V apply(K key) {
+      return getUnchecked(key);
+    }
+  }
+}
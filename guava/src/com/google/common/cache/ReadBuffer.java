@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A striped, lossy, bounded buffer of reads that is filled by many threads and drained by one. Each
+ * thread records into a stripe selected by its thread id, and each stripe is a fixed-size ring whose
+ * slots are claimed by a single compare-and-set, so recording a read never allocates and never
+ * blocks.
+ *
+ * <p>The buffer only carries hints for reordering the access queue, so it is permitted to lose
+ * them: a read that races with another thread for the same slot is silently discarded. {@link
+ * #offer} returns {@code false} only when the caller's stripe is full, which signals that the buffer
+ * should be drained.
+ *
+ * <p>{@link #poll}, {@link #peek} and {@link #iterator} must only be called by the draining thread,
+ * which {@link LocalCache.Segment} guarantees by holding the segment lock.
+ */
+@GwtIncompatible
+final class ReadBuffer<E> extends AbstractQueue<E> {
+
+  /** The number of reads each stripe can hold before it must be drained. Must be a power of two. */
+  static final int STRIPE_CAPACITY = 16;
+
+  static final int STRIPE_MASK = STRIPE_CAPACITY - 1;
+
+  /** The maximum number of stripes, to bound the memory held by each segment. */
+  static final int MAXIMUM_STRIPES = 64;
+
+  /** Number of CPUS, to place bound on the number of stripes. */
+  static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+  /** Stripes are created on first use, so an idle or single-threaded buffer stays small. */
+  final AtomicReferenceArray<Stripe<E>> stripes;
+
+  final int stripeMask;
+
+  /** The stripe at which the next drain resumes. Only accessed by the draining thread. */
+  int drainIndex;
+
+  ReadBuffer() {
+    int stripeCount = Math.min(ceilingPowerOfTwo(NCPU), MAXIMUM_STRIPES);
+    stripes = new AtomicReferenceArray<Stripe<E>>(stripeCount);
+    stripeMask = stripeCount - 1;
+  }
+
+  /**
+   * Records {@code e} in the calling thread's stripe. Returns {@code false} if the stripe is full,
+   * and {@code true} otherwise, including when the element was discarded due to contention.
+   */
+  @Override
+  public boolean offer(E e) {
+    checkNotNull(e);
+    Stripe<E> stripe = stripeForCurrentThread();
+    long tail = stripe.writeCounter;
+    if (tail - stripe.readCounter >= STRIPE_CAPACITY) {
+      return false;
+    }
+    if (Stripe.WRITE_COUNTER.compareAndSet(stripe, tail, tail + 1)) {
+      stripe.buffer.lazySet((int) tail & STRIPE_MASK, e);
+    }
+    return true;
+  }
+
+  @Override
+  public E poll() {
+    for (int i = 0; i <= stripeMask; i++) {
+      Stripe<E> stripe = stripes.get((drainIndex + i) & stripeMask);
+      E e = (stripe == null) ? null : stripe.poll();
+      if (e != null) {
+        drainIndex = (drainIndex + i) & stripeMask;
+        return e;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public E peek() {
+    for (int i = 0; i <= stripeMask; i++) {
+      Stripe<E> stripe = stripes.get((drainIndex + i) & stripeMask);
+      E e = (stripe == null) ? null : stripe.peek();
+      if (e != null) {
+        return e;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the number of slots that have been claimed but not yet drained. This is a snapshot and
+   * may include reads whose elements have not yet been published.
+   */
+  @Override
+  public int size() {
+    long size = 0;
+    for (int i = 0; i <= stripeMask; i++) {
+      Stripe<E> stripe = stripes.get(i);
+      if (stripe != null) {
+        size += Math.max(0, stripe.writeCounter - stripe.readCounter);
+      }
+    }
+    return (int) size;
+  }
+
+  /** Returns an iterator over a snapshot of the published elements, in the order of draining. */
+  @Override
+  public Iterator<E> iterator() {
+    List<E> snapshot = new ArrayList<E>();
+    for (int i = 0; i <= stripeMask; i++) {
+      Stripe<E> stripe = stripes.get((drainIndex + i) & stripeMask);
+      if (stripe != null) {
+        stripe.copyInto(snapshot);
+      }
+    }
+    return Collections.unmodifiableList(snapshot).iterator();
+  }
+
+  Stripe<E> stripeForCurrentThread() {
+    int index = stripeIndex(Thread.currentThread().getId()) & stripeMask;
+    Stripe<E> stripe = stripes.get(index);
+    if (stripe == null) {
+      stripes.compareAndSet(index, null, new Stripe<E>());
+      stripe = stripes.get(index);
+    }
+    return stripe;
+  }
+
+  /** Spreads sequential thread ids across the stripes. */
+  static int stripeIndex(long threadId) {
+    int h = (int) (threadId * 0x9E3779B97F4A7C15L >>> 32);
+    return h ^ (h >>> 16);
+  }
+
+  static int ceilingPowerOfTwo(int x) {
+    return (x <= 1) ? 1 : Integer.highestOneBit(x - 1) << 1;
+  }
+
+  /**
+   * A single-consumer ring buffer whose counters are each padded to a {@linkplain
+   * com.google.common.BitUtil#CACHE_LINE_LENGTH cache line}, so that producers advancing the tail
+   * do not invalidate the consumer's cache line and vice versa.
+   */
+  static final class Stripe<E> {
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<Stripe> WRITE_COUNTER =
+        AtomicLongFieldUpdater.newUpdater(Stripe.class, "writeCounter");
+
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<Stripe> READ_COUNTER =
+        AtomicLongFieldUpdater.newUpdater(Stripe.class, "readCounter");
+
+    final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<E>(STRIPE_CAPACITY);
+
+    volatile long p0, p1, p2, p3, p4, p5, p6;
+    volatile long readCounter;
+    volatile long q0, q1, q2, q3, q4, q5, q6;
+    volatile long writeCounter;
+    volatile long r0, r1, r2, r3, r4, r5, r6;
+
+    E poll() {
+      long head = readCounter;
+      if (head == writeCounter) {
+        return null;
+      }
+      int index = (int) head & STRIPE_MASK;
+      E e = buffer.get(index);
+      if (e != null) {
+        // the slot has been published; hand it back to the producers
+        buffer.lazySet(index, null);
+        READ_COUNTER.lazySet(this, head + 1);
+      }
+      return e;
+    }
+
+    E peek() {
+      long head = readCounter;
+      return (head == writeCounter) ? null : buffer.get((int) head & STRIPE_MASK);
+    }
+
+    void copyInto(List<E> list) {
+      for (long i = readCounter, tail = writeCounter; i < tail; i++) {
+        E e = buffer.get((int) i & STRIPE_MASK);
+        if (e == null) {
+          break;
+        }
+        list.add(e);
+      }
+    }
+  }
+}
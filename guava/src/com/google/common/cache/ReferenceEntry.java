@@ -81,6 +81,18 @@ interface ReferenceEntry<K, V> {
   /** Sets the previous entry in the access queue. */
   void setPreviousInAccessQueue(ReferenceEntry<K, V> previous);
 
+  /*
+   * Used by access entries when the cache uses frequency-aware eviction. The access queue is then
+   * split into window, probation and protected regions, and each entry records the region it is
+   * currently linked into.
+   */
+
+  /** Returns the region of the access queue that this entry is linked into. */
+  int getAccessRegion();
+
+  /** Sets the region of the access queue that this entry is linked into. */
+  void setAccessRegion(int region);
+
   /*
    * Implemented by entries that use write order. Write entries are maintained in a doubly-linked
    * list. New entries are added at the tail of the list at write time and stale entries are
@@ -104,4 +116,15 @@ interface ReferenceEntry<K, V> {
 
   /** Sets the previous entry in the write queue. */
   void setPreviousInWriteQueue(ReferenceEntry<K, V> previous);
+
+  /*
+   * Implemented by write entries, and used when the cache has an Expiry. The write queue is then a
+   * timer wheel, and the write queue links connect the entry to the other entries of its bucket.
+   */
+
+  /** Returns the time at which this entry expires, in ns. */
+  long getExpirationTime();
+
+  /** Sets the entry expiration time in ns. */
+  void setExpirationTime(long time);
 }
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.math.IntMath;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, lock-free queue backed by a ring buffer, which orders elements FIFO
+ * (first-in-first-out). Obtain instances from {@link Queues#newSpscArrayQueue}, {@link
+ * Queues#newMpscArrayQueue} or {@link Queues#newMpmcArrayQueue}, according to how many threads may
+ * add elements to the queue and how many may remove them at once, or from {@link
+ * ConcurrentEvictingQueue#create}. Using a queue from more producer or consumer threads than it was
+ * created for is a programming error, which may lose or duplicate elements.
+ *
+ * <p>Unlike {@link java.util.concurrent.ArrayBlockingQueue}, these queues never lock and never
+ * block: {@link #offer} returns {@code false} when the queue is full, and {@link #poll} returns
+ * {@code null} when it is empty. The consumer's and producers' positions in the ring are each
+ * padded to a {@linkplain com.google.common.BitUtil#CACHE_LINE_LENGTH cache line}, so that adding
+ * elements does not invalidate the cache line that removing them reads, and vice versa. Elements
+ * may be transferred in batches with {@link #drain} and {@link #fill}, which some implementations
+ * publish with a single write.
+ *
+ * <p>{@link #size} and {@link #iterator} are snapshots, which may be stale by the time they return.
+ * The iterator is weakly consistent and does not support {@link Iterator#remove}, so neither does
+ * {@link #remove(Object)}. Null elements are not permitted.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+@Beta
+@GwtIncompatible
+public abstract class ConcurrentArrayQueue<E> extends AbstractQueue<E> {
+  @SuppressWarnings("rawtypes")
+  static final AtomicLongFieldUpdater<ConcurrentArrayQueue> HEAD =
+      AtomicLongFieldUpdater.newUpdater(ConcurrentArrayQueue.class, "head");
+
+  @SuppressWarnings("rawtypes")
+  static final AtomicLongFieldUpdater<ConcurrentArrayQueue> TAIL =
+      AtomicLongFieldUpdater.newUpdater(ConcurrentArrayQueue.class, "tail");
+
+  /** The largest supported capacity, whose ring is the largest power of two array. */
+  static final int MAXIMUM_CAPACITY = 1 << 30;
+
+  /** The ring, whose length is the capacity rounded up to a power of two. */
+  final AtomicReferenceArray<E> buffer;
+
+  final int capacity;
+  final int mask;
+
+  /*
+   * The number of elements ever removed and ever added (or claimed, for multiple producers). The
+   * element at position i is in buffer slot i & mask.
+   */
+  volatile long p0, p1, p2, p3, p4, p5, p6;
+  volatile long head;
+  volatile long q0, q1, q2, q3, q4, q5, q6;
+  volatile long tail;
+  volatile long r0, r1, r2, r3, r4, r5, r6;
+
+  ConcurrentArrayQueue(int capacity) {
+    checkArgument(
+        capacity >= 0 && capacity <= MAXIMUM_CAPACITY,
+        "capacity must be between 0 and %s: %s",
+        MAXIMUM_CAPACITY,
+        capacity);
+    int ringSize = IntMath.ceilingPowerOfTwo(Math.max(capacity, 1));
+    this.buffer = new AtomicReferenceArray<E>(ringSize);
+    this.capacity = capacity;
+    this.mask = ringSize - 1;
+  }
+
+  /** Returns the maximum number of elements this queue can hold. */
+  public final int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the number of additional elements that this queue can accept without rejecting (or
+   * evicting) any; zero if the queue is currently full.
+   */
+  public final int remainingCapacity() {
+    return capacity - size();
+  }
+
+  @Override
+  public final int size() {
+    // Re-read head until it is stable, so that tail was read in between two equal values of it.
+    long after = head;
+    while (true) {
+      long before = after;
+      long currentTail = tail;
+      after = head;
+      if (before == after) {
+        return (int) Math.max(0, Math.min(currentTail - after, capacity));
+      }
+    }
+  }
+
+  @Override
+  public final boolean isEmpty() {
+    return head >= tail;
+  }
+
+  /**
+   * Removes up to {@code maxElements} available elements from this queue, passing each of them to
+   * {@code consumer} in FIFO order. This is the non-blocking counterpart of {@link
+   * Queues#drain(java.util.concurrent.BlockingQueue, Collection, int, long,
+   * java.util.concurrent.TimeUnit) Queues.drain}: it stops as soon as no element is available.
+   *
+   * @return the number of elements removed
+   * @throws IllegalArgumentException if {@code maxElements} is negative
+   */
+  @CanIgnoreReturnValue
+  public int drain(Consumer<? super E> consumer, int maxElements) {
+    checkNotNull(consumer);
+    checkArgument(maxElements >= 0, "maxElements must be nonnegative: %s", maxElements);
+    int drained = 0;
+    E e;
+    while (drained < maxElements && (e = poll()) != null) {
+      consumer.accept(e);
+      drained++;
+    }
+    return drained;
+  }
+
+  /**
+   * Removes up to {@code maxElements} available elements from this queue and adds them to {@code
+   * collection}, as {@link java.util.concurrent.BlockingQueue#drainTo(Collection, int)} does.
+   *
+   * @return the number of elements transferred
+   * @throws IllegalArgumentException if {@code collection} is this queue, or {@code maxElements}
+   *     is negative
+   */
+  @CanIgnoreReturnValue
+  public final int drainTo(final Collection<? super E> collection, int maxElements) {
+    checkNotNull(collection);
+    checkArgument(collection != this, "cannot drain a queue into itself");
+    return drain(
+        new Consumer<E>() {
+          @Override
+          public void accept(E e) {
+            collection.add(e);
+          }
+        },
+        maxElements);
+  }
+
+  /**
+   * Adds up to {@code maxElements} elements obtained from {@code supplier} to the tail of this
+   * queue, stopping early if it fills. Room is reserved for each element before the supplier is
+   * called, so every element supplied is added.
+   *
+   * @return the number of elements added
+   * @throws IllegalArgumentException if {@code maxElements} is negative
+   * @throws NullPointerException if the supplier returns {@code null}; the elements supplied before
+   *     it have been added
+   */
+  @CanIgnoreReturnValue
+  public abstract int fill(Supplier<? extends E> supplier, int maxElements);
+
+  /**
+   * Published by a producer in place of an element when the supplier passed to {@link #fill} fails
+   * after the producer has claimed a slot, which consumers are waiting to see filled. Consumers
+   * discard it.
+   */
+  static final Object SKIPPED = new Object();
+
+  @SuppressWarnings("unchecked") // SKIPPED is never returned as an E
+  static <E> E skipped() {
+    return (E) SKIPPED;
+  }
+
+  /**
+   * Removes and passes to {@code consumer} the available elements from the head of a queue with a
+   * single consumer, publishing the new head once at the end.
+   */
+  final int drainSingleConsumer(Consumer<? super E> consumer, int maxElements) {
+    checkNotNull(consumer);
+    checkArgument(maxElements >= 0, "maxElements must be nonnegative: %s", maxElements);
+    long h = head;
+    long removed = 0;
+    int drained = 0;
+    try {
+      while (drained < maxElements) {
+        int index = (int) (h + removed) & mask;
+        E e = buffer.get(index);
+        if (e == null) {
+          break;
+        }
+        buffer.lazySet(index, null);
+        removed++;
+        if (e != SKIPPED) {
+          drained++;
+          consumer.accept(e);
+        }
+      }
+    } finally {
+      HEAD.lazySet(this, h + removed);
+    }
+    return drained;
+  }
+
+  /**
+   * Returns an unmodifiable iterator over a snapshot of the elements that have been published, in
+   * FIFO order.
+   */
+  @Override
+  public final Iterator<E> iterator() {
+    List<E> snapshot = new ArrayList<E>();
+    for (long i = head, end = tail; i < end; i++) {
+      E e = buffer.get((int) i & mask);
+      if (e == null) {
+        break;
+      }
+      if (e != SKIPPED) {
+        snapshot.add(e);
+      }
+    }
+    return Collections.unmodifiableList(snapshot).iterator();
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe, lock-free counterpart of {@link EvictingQueue}: a bounded {@link
+ * ConcurrentArrayQueue} which automatically evicts elements from its head when elements are added
+ * while it is full. Any number of threads may add and remove elements at once.
+ *
+ * <p>Each time an element is offered to a full queue, the offering thread removes and discards the
+ * head element, and tries again. This makes the queue a ring buffer of the most recent elements
+ * added, such as a log of recent events that many threads write and a monitoring thread reads.
+ * Under contention, more elements than strictly necessary may be evicted, since several producers
+ * may each evict an element to make room for their own.
+ *
+ * <p>The head of a full queue cannot be evicted while the producer that claimed its slot has yet to
+ * write it. Rather than wait for that producer, which may have been descheduled, {@link #offer}
+ * retries a bounded number of times and then returns {@code false}, so it never blocks. This is
+ * rare, as a producer writes its slot immediately after claiming it.
+ *
+ * <p>This class does not accept null elements.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+@Beta
+@GwtIncompatible
+public final class ConcurrentEvictingQueue<E> extends MpmcArrayQueue<E> {
+  /**
+   * Creates and returns a new concurrent evicting queue that will hold up to {@code maxSize}
+   * elements.
+   *
+   * <p>When {@code maxSize} is zero, elements are evicted as soon as they are added.
+   *
+   * @throws IllegalArgumentException if {@code maxSize} is negative or greater than {@code 2^30}
+   */
+  public static <E> ConcurrentEvictingQueue<E> create(int maxSize) {
+    return new ConcurrentEvictingQueue<E>(maxSize);
+  }
+
+  /**
+   * How many times {@link #offer} finds the queue full and its head not yet written before giving
+   * up. Each failed attempt yields, to let the producer of the head finish writing it.
+   */
+  private static final int MAX_STALLED_EVICTIONS = 64;
+
+  private ConcurrentEvictingQueue(int maxSize) {
+    super(maxSize);
+  }
+
+  /**
+   * Adds the given element to this queue. If the queue is currently full, the element at the head
+   * of the queue is evicted to make way for the new element.
+   *
+   * @return {@code true} unless the queue was full and its head remained unwritten by the producer
+   *     that claimed it, in which case {@code e} is not added
+   */
+  @Override
+  @CanIgnoreReturnValue
+  public boolean offer(E e) {
+    checkNotNull(e);
+    if (capacity == 0) {
+      return true;
+    }
+    int stalls = 0;
+    while (!super.offer(e)) {
+      if (poll() == null) {
+        // the head has been claimed but not yet written, or another consumer took it
+        if (++stalls == MAX_STALLED_EVICTIONS) {
+          return false;
+        }
+        Thread.yield();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds up to {@code maxElements} elements obtained from {@code supplier} to this queue, evicting
+   * as many elements from its head as needed to make room for them. Stops early, discarding the
+   * element last obtained, if {@link #offer} would return {@code false} for it.
+   *
+   * @return the number of elements added, which is {@code maxElements} unless filling stopped early
+   */
+  @Override
+  @CanIgnoreReturnValue
+  public int fill(Supplier<? extends E> supplier, int maxElements) {
+    checkNotNull(supplier);
+    checkArgument(maxElements >= 0, "maxElements must be nonnegative: %s", maxElements);
+    for (int i = 0; i < maxElements; i++) {
+      if (!offer(supplier.get())) {
+        return i;
+      }
+    }
+    return maxElements;
+  }
+}
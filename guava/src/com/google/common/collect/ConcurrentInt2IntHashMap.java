@@ -0,0 +1,524 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.BitUtil.findNextPositivePowerOfTwo;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.CollectionUtil.validateLoadFactor;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.atomic.LongAdder;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A thread-safe map from {@code int} keys to {@code int} values, which stores both in a single
+ * open-addressing table rather than boxing them as a {@code ConcurrentHashMap<Integer, Integer>}
+ * must. Like {@link Int2IntHashMap}, it reserves a {@linkplain #missingValue missing value} that
+ * cannot be stored and is returned when a key is absent.
+ *
+ * <p>{@link #get} never blocks or writes. Updates claim a key's slot and then change its value
+ * with a compare-and-set, so a thread is never blocked by another thread's update. When the table
+ * fills, a larger one is allocated and every thread that updates the map helps to copy a chunk of
+ * the old table into it, so no single thread pays for the whole resize.
+ *
+ * <p>A key keeps its slot until the next resize once it has been inserted, even if it is then
+ * removed, so a map with many short-lived keys is periodically rebuilt to discard them. Iteration
+ * with {@link #intForEach} is weakly consistent: it visits every entry present throughout the
+ * iteration once, and may or may not visit entries added or removed during it.
+ */
+@GwtIncompatible
+public final class ConcurrentInt2IntHashMap {
+  static final int MIN_CAPACITY = 8;
+
+  /** The largest capacity, whose table of key and value words an array can still hold. */
+  private static final int MAX_CAPACITY = Ints.MAX_POWER_OF_TWO >> 1;
+
+  /** The number of slots a thread copies each time it helps to resize the table. */
+  private static final int COPY_CHUNK = 256;
+
+  /** Set in a key word holding a key, which is otherwise zero when the slot is empty. */
+  private static final long CLAIMED = 1L << 32;
+
+  /** The value word of a slot whose key has been claimed but whose value is yet to be set. */
+  private static final long UNSET = 1L << 32;
+
+  /**
+   * Set in a value word once the slot has been copied into the next table, or is about to be.
+   * Also used as the key word of an empty slot that may no longer be claimed.
+   */
+  private static final long FROZEN = 1L << 33;
+
+  private static final int PUT = 0;
+  private static final int PUT_IF_ABSENT = 1;
+  private static final int ADD = 2;
+  private static final int REMOVE = 3;
+
+  private final float loadFactor;
+  private final int missingValue;
+  private final LongAdder size = new LongAdder();
+  private final AtomicReference<Table> table;
+
+  /** Creates an empty map whose missing value is {@link Integer#MIN_VALUE}. */
+  public ConcurrentInt2IntHashMap() {
+    this(MIN_CAPACITY, Hashing.DEFAULT_LOAD_FACTOR, Integer.MIN_VALUE);
+  }
+
+  /** Creates an empty map with the given missing value. */
+  public ConcurrentInt2IntHashMap(int missingValue) {
+    this(MIN_CAPACITY, Hashing.DEFAULT_LOAD_FACTOR, missingValue);
+  }
+
+  /**
+   * Creates an empty map.
+   *
+   * @param initialCapacity the number of slots to allocate, which is rounded up to a power of two
+   * @param loadFactor the fraction of the slots that may be claimed before the table is resized
+   * @param missingValue the value that represents an absent key
+   */
+  public ConcurrentInt2IntHashMap(int initialCapacity, float loadFactor, int missingValue) {
+    validateLoadFactor(loadFactor);
+    checkArgument(
+        initialCapacity >= 0, "initialCapacity must not be negative: %s", initialCapacity);
+    this.loadFactor = loadFactor;
+    this.missingValue = missingValue;
+    int capacity = Math.min(MAX_CAPACITY, Math.max(MIN_CAPACITY, initialCapacity));
+    this.table = new AtomicReference<>(new Table(findNextPositivePowerOfTwo(capacity)));
+  }
+
+  /** Returns the value that represents an absent key. */
+  public int missingValue() {
+    return missingValue;
+  }
+
+  /** Returns the load factor beyond which the table is resized. */
+  public float loadFactor() {
+    return loadFactor;
+  }
+
+  /** Returns the number of slots in the current table. */
+  public int capacity() {
+    return table.get().capacity();
+  }
+
+  /**
+   * Returns the number of entries. Entries may be added or removed while it is being counted, so
+   * the result is only exact when the map is not being updated.
+   */
+  public int size() {
+    return Ints.saturatedCast(Math.max(0, size.sum()));
+  }
+
+  /** Returns whether the map has no entries, with the same caveat as {@link #size}. */
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /** Returns the value of {@code key}, or {@link #missingValue} if it is absent. */
+  public int get(int key) {
+    long keyWord = keyWord(key);
+    for (Table t = table.get(); t != null; t = t.next.get()) {
+      int mask = t.mask;
+      int index = Hashing.evenHash(key, mask);
+      for (int probes = 0; probes <= mask; probes += 2) {
+        long k = t.slots.get(index);
+        if (k == keyWord) {
+          long v = t.slots.get(index + 1);
+          if (!isFrozen(v)) {
+            return valueOf(v);
+          }
+          copySlot(t, index);
+          break;
+        } else if (k == 0 || k == FROZEN) {
+          break;
+        }
+        index = next(index, mask);
+      }
+    }
+    return missingValue;
+  }
+
+  /** Returns whether {@code key} is present. */
+  public boolean containsKey(int key) {
+    return get(key) != missingValue;
+  }
+
+  /**
+   * Associates {@code value} with {@code key}.
+   *
+   * @return the previous value of {@code key}, or {@link #missingValue} if it was absent
+   * @throws IllegalArgumentException if {@code value} is the missing value
+   */
+  @CanIgnoreReturnValue
+  public int put(int key, int value) {
+    checkValue(value);
+    return update(key, value, PUT);
+  }
+
+  /**
+   * Associates {@code value} with {@code key} if it is absent.
+   *
+   * @return the current value of {@code key}, or {@link #missingValue} if it was absent and
+   *     {@code value} has been associated with it
+   * @throws IllegalArgumentException if {@code value} is the missing value
+   */
+  @CanIgnoreReturnValue
+  public int putIfAbsent(int key, int value) {
+    checkValue(value);
+    return update(key, value, PUT_IF_ABSENT);
+  }
+
+  /**
+   * Adds {@code delta} to the value of {@code key}, treating an absent key as having the value
+   * zero. Unlike {@link Object2IntHashMap#addAndGet}, a value that becomes zero is kept, as {@link
+   * com.google.common.util.concurrent.AtomicLongMap} keeps it.
+   *
+   * @return the new value of {@code key}
+   * @throws IllegalArgumentException if the new value would be the missing value
+   */
+  @CanIgnoreReturnValue
+  public int addAndGet(int key, int delta) {
+    return update(key, delta, ADD);
+  }
+
+  /**
+   * Adds {@code delta} to the value of {@code key} as {@link #addAndGet} does.
+   *
+   * @return the previous value of {@code key}, which is zero if it was absent
+   * @throws IllegalArgumentException if the new value would be the missing value
+   */
+  @CanIgnoreReturnValue
+  public int getAndAdd(int key, int delta) {
+    return update(key, delta, ADD) - delta;
+  }
+
+  /** Equivalent to {@code addAndGet(key, 1)}. */
+  @CanIgnoreReturnValue
+  public int incrementAndGet(int key) {
+    return addAndGet(key, 1);
+  }
+
+  /**
+   * Returns the value of {@code key}, first associating it with the result of {@code
+   * mappingFunction} if it is absent and the result is not the missing value. The function is not
+   * applied while holding any lock, so if several threads compute the value of an absent key at
+   * once, only one of the results is stored, and every thread returns that one.
+   */
+  public int computeIfAbsent(int key, IntUnaryOperator mappingFunction) {
+    checkNotNull(mappingFunction);
+    int value = get(key);
+    if (value == missingValue) {
+      value = mappingFunction.applyAsInt(key);
+      if (value != missingValue) {
+        int previous = update(key, value, PUT_IF_ABSENT);
+        if (previous != missingValue) {
+          value = previous;
+        }
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Removes {@code key}.
+   *
+   * @return the previous value of {@code key}, or {@link #missingValue} if it was absent
+   */
+  @CanIgnoreReturnValue
+  public int remove(int key) {
+    return update(key, 0, REMOVE);
+  }
+
+  /**
+   * Removes every entry. This is not atomic: entries added while the map is being cleared may
+   * remain.
+   */
+  public void clear() {
+    intForEach((key, value) -> remove(key));
+  }
+
+  /** Calls {@code consumer} with each key and value, as described in the class documentation. */
+  public void intForEach(IntIntConsumer consumer) {
+    checkNotNull(consumer);
+    // Move every entry into the newest table, so that none can be visited twice
+    Table t = table.get();
+    for (Table next; (next = t.next.get()) != null; t = next) {
+      for (int index = 0; index <= t.mask; index += 2) {
+        freeze(t, index);
+        copySlot(t, index);
+      }
+    }
+    for (int index = 0; index <= t.mask; index += 2) {
+      long k = t.slots.get(index);
+      if ((k & CLAIMED) != 0) {
+        long v = t.slots.get(index + 1);
+        int value = isFrozen(v) ? get((int) k) : valueOf(v);
+        if (value != missingValue) {
+          consumer.accept((int) k, value);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder().append('{');
+    intForEach(
+        (key, value) -> {
+          if (sb.length() > 1) {
+            sb.append(", ");
+          }
+          sb.append(key).append('=').append(value);
+        });
+    return sb.append('}').toString();
+  }
+
+  /** Finds or claims the slot of {@code key}, and changes its value according to {@code mode}. */
+  private int update(int key, int operand, int mode) {
+    long keyWord = keyWord(key);
+    Table t = helpResize();
+    retry:
+    while (true) {
+      Table next = t.next.get();
+      int mask = t.mask;
+      int index = Hashing.evenHash(key, mask);
+      for (int probes = 0; ; probes += 2) {
+        if (probes > mask) {
+          // Every slot holds another key
+          t = resize(t);
+          continue retry;
+        }
+        long k = t.slots.get(index);
+        if (k == 0) {
+          if (mode == REMOVE && next == null) {
+            return missingValue;
+          } else if (next != null || t.claimed.get() >= t.resizeThreshold) {
+            // The key is not in this table. Stop it being added here before looking in the next,
+            // so that it cannot be in both.
+            if (t.slots.compareAndSet(index, 0, FROZEN)) {
+              t = resize(t);
+              continue retry;
+            }
+          } else if (t.slots.compareAndSet(index, 0, keyWord)) {
+            t.claimed.incrementAndGet();
+            break;
+          }
+          k = t.slots.get(index);
+        }
+        if (k == keyWord) {
+          break;
+        } else if (k == FROZEN) {
+          t = resize(t);
+          continue retry;
+        }
+        index = next(index, mask);
+      }
+
+      while (true) {
+        long v = t.slots.get(index + 1);
+        if (isFrozen(v)) {
+          copySlot(t, index);
+          t = t.next.get();
+          continue retry;
+        }
+        int oldValue = valueOf(v);
+        int newValue;
+        switch (mode) {
+          case PUT:
+            newValue = operand;
+            break;
+          case PUT_IF_ABSENT:
+            if (oldValue != missingValue) {
+              return oldValue;
+            }
+            newValue = operand;
+            break;
+          case ADD:
+            newValue = ((oldValue == missingValue) ? 0 : oldValue) + operand;
+            checkArgument(newValue != missingValue, "cannot accept missingValue");
+            break;
+          default:
+            if (oldValue == missingValue) {
+              return missingValue;
+            }
+            newValue = missingValue;
+            break;
+        }
+        if (t.slots.compareAndSet(index + 1, v, valueWord(newValue))) {
+          if (oldValue == missingValue) {
+            size.increment();
+          } else if (newValue == missingValue) {
+            size.decrement();
+          }
+          return (mode == ADD) ? newValue : oldValue;
+        }
+      }
+    }
+  }
+
+  /**
+   * Starts to resize {@code t}, unless another thread already has, and returns the table that
+   * will replace it.
+   */
+  private Table resize(Table t) {
+    Table next = t.next.get();
+    if (next == null) {
+      // Size the new table for the live entries alone, dropping the removed keys that fill this one
+      long capacity = (long) Math.ceil(2 * Math.max(size.sum(), 1) / (double) loadFactor);
+      if (capacity > MAX_CAPACITY) {
+        throw new IllegalStateException("max capacity reached at size=" + size.sum());
+      }
+      Table created = new Table(findNextPositivePowerOfTwo(Math.max(MIN_CAPACITY, (int) capacity)));
+      next = t.next.compareAndSet(null, created) ? created : t.next.get();
+    }
+    return next;
+  }
+
+  /**
+   * Copies a chunk of the current table into the next one if it is being resized, replacing the
+   * current table once every chunk has been copied, and returns the table to update.
+   */
+  private Table helpResize() {
+    Table t = table.get();
+    if (t.next.get() != null) {
+      int capacity = t.capacity();
+      int start = t.copyIndex.getAndAdd(COPY_CHUNK);
+      if (start < capacity) {
+        int end = Math.min(start + COPY_CHUNK, capacity);
+        for (int slot = start; slot < end; slot++) {
+          freeze(t, slot << 1);
+          copySlot(t, slot << 1);
+        }
+        if (t.copyDone.addAndGet(end - start) == capacity) {
+          table.compareAndSet(t, t.next.get());
+        }
+      }
+    }
+    return t;
+  }
+
+  /** Stops the slot at {@code index} of {@code t} being claimed or updated. */
+  private static void freeze(Table t, int index) {
+    if (!t.slots.compareAndSet(index, 0, FROZEN)) {
+      long v;
+      do {
+        v = t.slots.get(index + 1);
+      } while (!isFrozen(v) && !t.slots.compareAndSet(index + 1, v, v | FROZEN));
+    }
+  }
+
+  /**
+   * Copies the frozen slot at {@code index} of {@code t} into the next table, unless the key has
+   * already been given a value there. It is safe for any number of threads to copy the same slot.
+   */
+  private void copySlot(Table t, int index) {
+    long v = t.slots.get(index + 1) & ~FROZEN;
+    if (v == UNSET || (int) v == missingValue) {
+      return;
+    }
+    long keyWord = t.slots.get(index);
+    int key = (int) keyWord;
+    Table target = t.next.get();
+    retry:
+    while (true) {
+      int mask = target.mask;
+      int i = Hashing.evenHash(key, mask);
+      for (int probes = 0; ; probes += 2) {
+        if (probes > mask) {
+          target = resize(target);
+          continue retry;
+        }
+        long k = target.slots.get(i);
+        if (k == 0 && target.slots.compareAndSet(i, 0, keyWord)) {
+          target.claimed.incrementAndGet();
+          break;
+        }
+        k = target.slots.get(i);
+        if (k == keyWord) {
+          break;
+        } else if (k == FROZEN) {
+          target = resize(target);
+          continue retry;
+        }
+        i = next(i, mask);
+      }
+      if (target.slots.compareAndSet(i + 1, UNSET, v)
+          || target.slots.get(i + 1) != (UNSET | FROZEN)) {
+        // Copied, or the key was updated in the target after this slot was frozen
+        return;
+      }
+      // The target is itself being resized, and its slot was frozen before the key was copied
+      target = target.next.get();
+    }
+  }
+
+  private void checkValue(int value) {
+    checkArgument(value != missingValue, "cannot accept missingValue");
+  }
+
+  private int valueOf(long valueWord) {
+    return ((valueWord & UNSET) != 0) ? missingValue : (int) valueWord;
+  }
+
+  private static long keyWord(int key) {
+    return CLAIMED | (key & 0xFFFFFFFFL);
+  }
+
+  private static long valueWord(int value) {
+    return value & 0xFFFFFFFFL;
+  }
+
+  private static boolean isFrozen(long valueWord) {
+    return (valueWord & FROZEN) != 0;
+  }
+
+  private static int next(int index, int mask) {
+    return (index + 2) & mask;
+  }
+
+  /** A table of slots, and the table replacing it when it is being resized. */
+  private final class Table {
+    /** The key word of each slot followed by its value word. */
+    final AtomicLongArray slots;
+
+    final int mask;
+    final int resizeThreshold;
+    final AtomicInteger claimed = new AtomicInteger();
+    final AtomicInteger copyIndex = new AtomicInteger();
+    final AtomicInteger copyDone = new AtomicInteger();
+    final AtomicReference<Table> next = new AtomicReference<>();
+
+    Table(int capacity) {
+      long[] words = new long[capacity << 1];
+      for (int i = 1; i < words.length; i += 2) {
+        words[i] = UNSET;
+      }
+      this.slots = new AtomicLongArray(words);
+      this.mask = words.length - 1;
+      this.resizeThreshold = (int) (capacity * loadFactor);
+    }
+
+    int capacity() {
+      return slots.length() >> 1;
+    }
+  }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.AbstractQueue;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A thread-safe, lock-free double-ended priority queue: the concurrent counterpart of {@link
+ * MinMaxPriorityQueue}, with the same methods and the same optional maximum size. Any number of
+ * threads may add elements and remove the least or greatest of them at once, without the single
+ * lock that guarding a {@code MinMaxPriorityQueue} would need.
+ *
+ * <p>Elements are held in a {@link ConcurrentSkipListMap}, ordered by the queue's comparator and
+ * then by the order in which they were added, so unlike {@code MinMaxPriorityQueue}, elements that
+ * compare equal are removed from the head in FIFO order. The ordering is exact: {@link #poll} and
+ * {@link #pollLast} return the least and greatest element present at the moment they take effect.
+ *
+ * <p>If the queue has a maximum size, then each time an addition makes it exceed that size, the
+ * adding thread removes the queue's greatest element (which might be the element that was just
+ * added). Concurrent additions may transiently exceed the maximum size by the number of threads
+ * adding at once, and may each remove an element, so that the queue ends up smaller than its
+ * maximum.
+ *
+ * <p>{@link #size} is a counter that is updated after each addition and removal, so it may lag
+ * behind concurrent changes. Iterators are weakly consistent, and return elements in ascending
+ * order. This class does not accept null elements.
+ *
+ * <p><i>Performance notes:</i> {@link #offer}, {@link #poll} and {@link #pollLast} run in expected
+ * {@code O(log n)} time, and {@link #peek} and {@link #peekLast} in expected {@code O(1)} time
+ * after skipping any elements being removed concurrently. {@link #remove(Object)} and {@link
+ * #contains} require linear time.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+@Beta
+@GwtIncompatible
+public final class ConcurrentMinMaxPriorityQueue<E> extends AbstractQueue<E> {
+
+  /** Creates a new concurrent min-max priority queue with natural order and no maximum size. */
+  public static <E extends Comparable<E>> ConcurrentMinMaxPriorityQueue<E> create() {
+    return new Builder<Comparable>(Ordering.natural()).create();
+  }
+
+  /**
+   * Creates a new concurrent min-max priority queue using natural order, no maximum size, and
+   * initially containing the given elements.
+   */
+  public static <E extends Comparable<E>> ConcurrentMinMaxPriorityQueue<E> create(
+      Iterable<? extends E> initialContents) {
+    return new Builder<E>(Ordering.<E>natural()).create(initialContents);
+  }
+
+  /**
+   * Creates and returns a new builder, configured to build {@code ConcurrentMinMaxPriorityQueue}
+   * instances that use {@code comparator} to determine the least and greatest elements.
+   */
+  public static <B> Builder<B> orderedBy(Comparator<B> comparator) {
+    return new Builder<B>(comparator);
+  }
+
+  /**
+   * Creates and returns a new builder, configured to build {@code ConcurrentMinMaxPriorityQueue}
+   * instances that are limited to {@code maximumSize} elements. Each time a queue grows beyond this
+   * bound, it removes its greatest element (according to its comparator), which might be the
+   * element that was just added.
+   */
+  public static Builder<Comparable> maximumSize(int maximumSize) {
+    return new Builder<Comparable>(Ordering.natural()).maximumSize(maximumSize);
+  }
+
+  /**
+   * The builder class used in creation of concurrent min-max priority queues. Instead of
+   * constructing one directly, use {@link ConcurrentMinMaxPriorityQueue#orderedBy(Comparator)} or
+   * {@link ConcurrentMinMaxPriorityQueue#maximumSize(int)}.
+   *
+   * @param <B> the upper bound on the eventual type that can be produced by this builder (for
+   *     example, a {@code Builder<Number>} can produce a {@code Queue<Number>} or {@code
+   *     Queue<Integer>} but not a {@code Queue<Object>}).
+   */
+  @Beta
+  public static final class Builder<B> {
+    private final Comparator<B> comparator;
+    private int maximumSize = Integer.MAX_VALUE;
+
+    private Builder(Comparator<B> comparator) {
+      this.comparator = checkNotNull(comparator);
+    }
+
+    /**
+     * Configures this builder to build {@code ConcurrentMinMaxPriorityQueue} instances that are
+     * limited to {@code maximumSize} elements. Each time a queue grows beyond this bound, it
+     * removes its greatest element (according to its comparator), which might be the element that
+     * was just added.
+     */
+    @CanIgnoreReturnValue
+    public Builder<B> maximumSize(int maximumSize) {
+      checkArgument(maximumSize > 0);
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /**
+     * Builds a new concurrent min-max priority queue using the previously specified options, and
+     * having no initial contents.
+     */
+    public <T extends B> ConcurrentMinMaxPriorityQueue<T> create() {
+      return create(Collections.<T>emptySet());
+    }
+
+    /**
+     * Builds a new concurrent min-max priority queue using the previously specified options, and
+     * having the given initial elements.
+     */
+    public <T extends B> ConcurrentMinMaxPriorityQueue<T> create(
+        Iterable<? extends T> initialContents) {
+      ConcurrentMinMaxPriorityQueue<T> queue = new ConcurrentMinMaxPriorityQueue<T>(this);
+      for (T element : initialContents) {
+        queue.offer(element);
+      }
+      return queue;
+    }
+
+    @SuppressWarnings("unchecked") // safe "contravariant cast"
+    private <T extends B> Comparator<T> comparator() {
+      return (Comparator<T>) comparator;
+    }
+  }
+
+  /**
+   * An element with the sequence number of its addition, which breaks ties between elements that
+   * compare equal and makes every node distinct, although the elements need not be.
+   */
+  private static final class Node<E> {
+    final E element;
+    final long sequence;
+
+    Node(E element, long sequence) {
+      this.element = element;
+      this.sequence = sequence;
+    }
+  }
+
+  private final Comparator<? super E> comparator;
+  private final ConcurrentSkipListMap<Node<E>, Boolean> nodes;
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicInteger size = new AtomicInteger();
+  @VisibleForTesting final int maximumSize;
+
+  private ConcurrentMinMaxPriorityQueue(Builder<? super E> builder) {
+    final Comparator<E> comparator = builder.comparator();
+    this.comparator = comparator;
+    this.nodes =
+        new ConcurrentSkipListMap<Node<E>, Boolean>(
+            new Comparator<Node<E>>() {
+              @Override
+              public int compare(Node<E> a, Node<E> b) {
+                int result = comparator.compare(a.element, b.element);
+                return (result != 0) ? result : Long.compare(a.sequence, b.sequence);
+              }
+            });
+    this.maximumSize = builder.maximumSize;
+  }
+
+  @Override
+  public int size() {
+    return Math.max(0, size.get());
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return nodes.isEmpty();
+  }
+
+  /**
+   * Adds the given element to this queue. If this queue has a maximum size, after adding {@code
+   * element} the queue will automatically evict its greatest element (according to its
+   * comparator), which may be {@code element} itself.
+   *
+   * @return {@code true} always
+   */
+  @CanIgnoreReturnValue
+  @Override
+  public boolean add(E element) {
+    offer(element);
+    return true;
+  }
+
+  /**
+   * Adds the given element to this queue. If this queue has a maximum size, after adding {@code
+   * element} the queue will automatically evict its greatest element (according to its
+   * comparator), which may be {@code element} itself.
+   *
+   * @return {@code false} if {@code element} was evicted from the queue by this call, {@code true}
+   *     otherwise
+   */
+  @CanIgnoreReturnValue
+  @Override
+  public boolean offer(E element) {
+    checkNotNull(element);
+    Node<E> node = new Node<E>(element, sequence.getAndIncrement());
+    nodes.put(node, Boolean.TRUE);
+    if (size.incrementAndGet() > maximumSize) {
+      Map.Entry<Node<E>, Boolean> evicted = nodes.pollLastEntry();
+      if (evicted != null) {
+        size.decrementAndGet();
+        return evicted.getKey() != node;
+      }
+    }
+    return true;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public @Nullable E poll() {
+    return pollFirst();
+  }
+
+  @Override
+  public @Nullable E peek() {
+    return peekFirst();
+  }
+
+  /**
+   * Removes and returns the least element of this queue, or returns {@code null} if the queue is
+   * empty.
+   */
+  @CanIgnoreReturnValue
+  public @Nullable E pollFirst() {
+    return removed(nodes.pollFirstEntry());
+  }
+
+  /**
+   * Removes and returns the least element of this queue.
+   *
+   * @throws NoSuchElementException if the queue is empty
+   */
+  @CanIgnoreReturnValue
+  public E removeFirst() {
+    return remove();
+  }
+
+  /**
+   * Retrieves, but does not remove, the least element of this queue, or returns {@code null} if the
+   * queue is empty.
+   */
+  public @Nullable E peekFirst() {
+    return element(nodes.firstEntry());
+  }
+
+  /**
+   * Removes and returns the greatest element of this queue, or returns {@code null} if the queue is
+   * empty.
+   */
+  @CanIgnoreReturnValue
+  public @Nullable E pollLast() {
+    return removed(nodes.pollLastEntry());
+  }
+
+  /**
+   * Removes and returns the greatest element of this queue.
+   *
+   * @throws NoSuchElementException if the queue is empty
+   */
+  @CanIgnoreReturnValue
+  public E removeLast() {
+    E element = pollLast();
+    if (element == null) {
+      throw new NoSuchElementException();
+    }
+    return element;
+  }
+
+  /**
+   * Retrieves, but does not remove, the greatest element of this queue, or returns {@code null} if
+   * the queue is empty.
+   */
+  public @Nullable E peekLast() {
+    return element(nodes.lastEntry());
+  }
+
+  private @Nullable E removed(Map.@Nullable Entry<Node<E>, Boolean> entry) {
+    if (entry == null) {
+      return null;
+    }
+    size.decrementAndGet();
+    return entry.getKey().element;
+  }
+
+  private static <E> @Nullable E element(Map.@Nullable Entry<Node<E>, Boolean> entry) {
+    return (entry == null) ? null : entry.getKey().element;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public boolean remove(@Nullable Object object) {
+    if (object == null) {
+      return false;
+    }
+    for (Node<E> node : nodes.keySet()) {
+      if (object.equals(node.element) && nodes.remove(node) != null) {
+        size.decrementAndGet();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns a weakly consistent iterator over the elements of this queue, in ascending order. The
+   * iterator supports {@link Iterator#remove}.
+   */
+  @Override
+  public Iterator<E> iterator() {
+    final Iterator<Node<E>> nodeIterator = nodes.keySet().iterator();
+    return new Iterator<E>() {
+      @Nullable Node<E> last;
+
+      @Override
+      public boolean hasNext() {
+        return nodeIterator.hasNext();
+      }
+
+      @Override
+      public E next() {
+        last = nodeIterator.next();
+        return last.element;
+      }
+
+      @Override
+      public void remove() {
+        checkState(last != null, "no calls to next() since the last call to remove()");
+        if (nodes.remove(last) != null) {
+          size.decrementAndGet();
+        }
+        last = null;
+      }
+    };
+  }
+
+  @Override
+  public void clear() {
+    while (pollFirst() != null) {}
+  }
+
+  /**
+   * Returns the comparator used to order the elements in this queue. Obeys the general contract of
+   * {@link java.util.PriorityQueue#comparator}, but returns {@link Ordering#natural} instead of
+   * {@code null} to indicate natural ordering.
+   */
+  public Comparator<? super E> comparator() {
+    return comparator;
+  }
+}
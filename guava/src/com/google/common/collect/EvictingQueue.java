@@ -38,7 +38,8 @@ import java.util.Queue;
  * full queue, the queue automatically removes its head element. This is different from conventional
  * bounded queues, which either block or reject new elements when full.
  *
- * <p>This class is not thread-safe, and does not accept null elements.
+ * <p>This class is not thread-safe, and does not accept null elements. {@link
+ * ConcurrentEvictingQueue} is a lock-free alternative that many threads may use at once.
  *
  * @author Kurt Alfred Kluever
  * @since 15.0
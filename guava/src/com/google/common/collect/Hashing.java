@@ -117,6 +117,47 @@ final class Hashing {
     return hash & mask;
   }
 
+  /**
+   * Generate a hash for a long value.
+   *
+   * @param value to be hashed.
+   * @param mask  mask to be applied that must be a power of 2 - 1.
+   * @return the hash of the value.
+   */
+  public static int hash(final long value, final int mask)
+  {
+    return hash(value) & mask;
+  }
+
+  /**
+   * Generate a hash for an object key, spreading the bits of its {@link Object#hashCode()} so that
+   * keys whose hash codes differ only in their upper bits do not collide.
+   *
+   * @param value to be hashed, which must not be null.
+   * @param mask  mask to be applied that must be a power of 2 - 1.
+   * @return the hash of the value.
+   */
+  public static int hash(final Object value, final int mask)
+  {
+    return smear(value.hashCode()) & mask;
+  }
+
+  /**
+   * Generate an even hash for a long value, for tables that hold a key and its value in adjacent
+   * slots.
+   *
+   * @param value to be hashed.
+   * @param mask  mask to be applied that must be a power of 2 - 1.
+   * @return the hash of the value which is always even.
+   */
+  public static int evenHash(final long value, final int mask)
+  {
+    final int h = (int)value ^ (int)(value >>> 32);
+    final int hash = (h << 1) - (h << 8);
+
+    return hash & mask;
+  }
+
 
 
 }
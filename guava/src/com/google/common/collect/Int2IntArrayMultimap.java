@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.function.IntConsumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A multimap from {@code int} keys to {@code int} values, which is the primitive counterpart of an
+ * {@code ArrayListMultimap<Integer, Integer>}. The values of each key are held in an {@link
+ * IntArrayList}, in the order they were added, and the lists are held in an {@link
+ * Int2ObjectHashMap}; neither keys nor values are boxed.
+ *
+ * <p>As in {@link ArrayListMultimap}, a key may be associated with the same value more than once,
+ * and a key is only present while it has at least one value. Visiting the values of a key with
+ * {@link #forEachValue} allocates nothing.
+ *
+ * <p>This class is not thread-safe.
+ */
+@GwtIncompatible
+public final class Int2IntArrayMultimap {
+  private static final int EXPECTED_VALUES_PER_KEY = 3;
+
+  private final Int2ObjectHashMap<IntArrayList> map;
+  private final int expectedValuesPerKey;
+  private int size;
+
+  /** Creates an empty multimap. */
+  public Int2IntArrayMultimap() {
+    this(0, EXPECTED_VALUES_PER_KEY);
+  }
+
+  /**
+   * Creates an empty multimap with room for {@code expectedKeys} keys, whose value lists start with
+   * room for {@code expectedValuesPerKey} values.
+   */
+  public Int2IntArrayMultimap(int expectedKeys, int expectedValuesPerKey) {
+    CollectPreconditions.checkNonnegative(expectedKeys, "expectedKeys");
+    CollectPreconditions.checkNonnegative(expectedValuesPerKey, "expectedValuesPerKey");
+    this.map =
+        new Int2ObjectHashMap<>(
+            (int) Math.ceil(expectedKeys / (double) Hashing.DEFAULT_LOAD_FACTOR),
+            Hashing.DEFAULT_LOAD_FACTOR,
+            false);
+    this.expectedValuesPerKey = expectedValuesPerKey;
+  }
+
+  /** Returns the number of key-value pairs in this multimap. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns whether this multimap contains no key-value pairs. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns the number of distinct keys in this multimap. */
+  public int keyCount() {
+    return map.size();
+  }
+
+  /** Returns the number of values associated with {@code key}, which is zero if it is absent. */
+  public int valueCount(int key) {
+    IntArrayList values = map.get(key);
+    return (values == null) ? 0 : values.size();
+  }
+
+  /** Returns whether this multimap has at least one value for {@code key}. */
+  public boolean containsKey(int key) {
+    return map.containsKey(key);
+  }
+
+  /** Returns whether {@code key} is associated with {@code value} at least once. */
+  public boolean containsEntry(int key, int value) {
+    IntArrayList values = map.get(key);
+    return values != null && values.contains(value);
+  }
+
+  /**
+   * Associates {@code value} with {@code key}, after any values already associated with it.
+   *
+   * @return {@code true}, as the size of the multimap always increases
+   */
+  @CanIgnoreReturnValue
+  public boolean put(int key, int value) {
+    IntArrayList values = map.get(key);
+    if (values == null) {
+      values = new IntArrayList(expectedValuesPerKey);
+      map.put(key, values);
+    }
+    values.addInt(value);
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes the first association of {@code key} with {@code value}, preserving the order of the
+   * other values of {@code key}.
+   *
+   * @return whether the multimap changed
+   */
+  @CanIgnoreReturnValue
+  public boolean remove(int key, int value) {
+    IntArrayList values = map.get(key);
+    if (values == null || !values.removeInt(value)) {
+      return false;
+    }
+    if (values.isEmpty()) {
+      map.remove(key);
+    }
+    size--;
+    return true;
+  }
+
+  /**
+   * Removes every value associated with {@code key}.
+   *
+   * @return the number of values removed
+   */
+  @CanIgnoreReturnValue
+  public int removeAll(int key) {
+    IntArrayList values = map.remove(key);
+    if (values == null) {
+      return 0;
+    }
+    size -= values.size();
+    return values.size();
+  }
+
+  /** Removes every key-value pair from this multimap. */
+  public void clear() {
+    map.clear();
+    size = 0;
+  }
+
+  /**
+   * Returns a new array holding the values associated with {@code key} in the order they were
+   * added, which is empty if the key is absent.
+   */
+  public int[] get(int key) {
+    IntArrayList values = map.get(key);
+    return (values == null) ? new int[0] : values.toIntArray();
+  }
+
+  /**
+   * Calls {@code action} with each value associated with {@code key}, in the order they were added.
+   * The values must not be modified while they are being visited.
+   */
+  public void forEachValue(int key, IntConsumer action) {
+    checkNotNull(action);
+    IntArrayList values = map.get(key);
+    if (values != null) {
+      values.forEachOrderedInt(action);
+    }
+  }
+
+  /**
+   * Calls {@code action} with each key-value pair in this multimap. The values of each key are
+   * visited together, in the order they were added; the keys are visited in no particular order.
+   */
+  public void forEach(IntIntConsumer action) {
+    checkNotNull(action);
+    for (Int2ObjectHashMap<IntArrayList>.KeyIterator keys = map.keySet().iterator();
+        keys.hasNext(); ) {
+      int key = keys.nextInt();
+      IntArrayList values = map.get(key);
+      for (int i = 0, n = values.size(); i < n; i++) {
+        action.accept(key, values.getInt(i));
+      }
+    }
+  }
+
+  /** Calls {@code action} with each distinct key in this multimap, in no particular order. */
+  public void forEachKey(IntConsumer action) {
+    checkNotNull(action);
+    for (Int2ObjectHashMap<IntArrayList>.KeyIterator keys = map.keySet().iterator();
+        keys.hasNext(); ) {
+      action.accept(keys.nextInt());
+    }
+  }
+
+  /**
+   * Compares the specified object to this multimap for equality. Two instances are equal if they
+   * associate the same keys with the same values in the same order, as for {@link
+   * ListMultimap#equals}.
+   */
+  @Override
+  public boolean equals(@Nullable Object object) {
+    return object instanceof Int2IntArrayMultimap
+        && size == ((Int2IntArrayMultimap) object).size
+        && map.equals(((Int2IntArrayMultimap) object).map);
+  }
+
+  @Override
+  public int hashCode() {
+    return map.hashCode();
+  }
+
+  /** Returns a string in the same form as {@code ArrayListMultimap.toString()}. */
+  @Override
+  public String toString() {
+    return map.toString();
+  }
+}
@@ -360,6 +360,116 @@ public class Int2IntHashMap extends AbstractMap<Integer,Integer> implements Map<
         return value;
     }
 
+    /**
+     * Add {@code delta} to the value associated with a key, treating an absent key as having the
+     * value zero. A key whose value becomes zero is removed, so the map can be used as a counter
+     * without any boxing.
+     *
+     * @param key   lookup key
+     * @param delta to add to the value
+     * @return the new value associated with key, which is zero if it has been removed.
+     * @throws IllegalArgumentException if the new value would be missingValue
+     */
+    public int addAndGet(final int key, final int delta)
+    {
+        final int[] entries = this.entries;
+        final int missingValue = this.missingValue;
+        final int mask = entries.length - 1;
+        int index = Hashing.evenHash(key, mask);
+
+        boolean found = false;
+        while (entries[index + 1] != missingValue)
+        {
+            if (entries[index] == key)
+            {
+                found = true;
+                break;
+            }
+
+            index = next(index, mask);
+        }
+
+        final int newValue = (found ? entries[index + 1] : 0) + delta;
+        if (0 == newValue)
+        {
+            if (found)
+            {
+                entries[index + 1] = missingValue;
+                size--;
+                compactChain(index);
+            }
+        }
+        else if (newValue == missingValue)
+        {
+            throw new IllegalArgumentException("cannot accept missingValue");
+        }
+        else
+        {
+            entries[index + 1] = newValue;
+            if (!found)
+            {
+                ++size;
+                entries[index] = key;
+                increaseCapacity();
+            }
+        }
+
+        return newValue;
+    }
+
+    /**
+     * Add {@code delta} to the value of a key as {@link #addAndGet(int, int)} does.
+     *
+     * @param key   lookup key
+     * @param delta to add to the value
+     * @return the previous value associated with key, which is zero if it was absent.
+     * @throws IllegalArgumentException if the new value would be missingValue
+     */
+    public int getAndAdd(final int key, final int delta)
+    {
+        return addAndGet(key, delta) - delta;
+    }
+
+    /**
+     * Equivalent to {@code addAndGet(key, 1)}.
+     *
+     * @param key lookup key
+     * @return the new value associated with key.
+     */
+    public int increment(final int key)
+    {
+        return addAndGet(key, 1);
+    }
+
+    /**
+     * Add each value of another map to the value associated with the same key in this map, as
+     * {@link #addAndGet(int, int)} does. The table is resized at most once, up front, and the other
+     * map's table is read directly, so merging partial counts allocates nothing else.
+     *
+     * @param other map whose values are to be added to this map.
+     * @throws IllegalArgumentException if a new value would be missingValue
+     */
+    public void addValues(final Int2IntHashMap other)
+    {
+        final int requiredSize = size + other.size;
+        if (requiredSize > resizeThreshold)
+        {
+            final int requiredCapacity = (int)Math.ceil(requiredSize / (double)loadFactor);
+            rehash(findNextPositivePowerOfTwo(Math.max(MIN_CAPACITY, requiredCapacity)));
+        }
+
+        final int[] otherEntries = other.entries;
+        final int otherMissingValue = other.missingValue;
+        for (int keyIndex = 0, length = otherEntries.length; keyIndex < length; keyIndex += 2)
+        {
+            final int value = otherEntries[keyIndex + 1];
+            if (value != otherMissingValue)
+            {
+                addAndGet(otherEntries[keyIndex], value);
+            }
+        }
+    }
+
     // ---------------- Boxed Versions Below ----------------
 
     /**
@@ -180,6 +180,24 @@ public class IntArrayList extends AbstractList<Integer> implements List<Integer>
         size++;
     }
 
+    /**
+     * Append all the elements of another list without boxing them.
+     *
+     * @param list whose elements are to be appended.
+     * @return true if this list changed as a result of the call.
+     */
+    public boolean addAll(final IntArrayList list) {
+        final int numElements = list.size;
+        if (numElements > 0) {
+            ensureCapacityPrivate(size + numElements);
+            System.arraycopy(list.elements, 0, elements, size, numElements);
+            size += numElements;
+            return true;
+        }
+
+        return false;
+    }
+
     public Integer set(
             final int index,
             @NotNull  final Integer element) {
@@ -516,6 +534,10 @@ public class IntArrayList extends AbstractList<Integer> implements List<Integer>
                 newCapacity = MAX_CAPACITY;
             }
 
+            if (newCapacity < requiredCapacity) {
+                newCapacity = requiredCapacity;
+            }
+
             final int[] newElements = new int[newCapacity];
             System.arraycopy(elements, 0, newElements, 0, currentCapacity);
             elements = newElements;
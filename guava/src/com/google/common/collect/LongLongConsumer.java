@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2012 The Guava Authors
+ * Copyright 2014-2018 Real Logic Ltd.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -13,27 +13,19 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
-package com.google.common.cache;
+package com.google.common.collect;
 
 /**
- * GWT emulated version of LongAdder.
- *
- * @author Charles Fry
+ * This is an (long, long) primitive specialisation of a BiConsumer
  */
-class LongAdder implements LongAddable {
-
-  private long value;
-
-  public void increment() {
-    value++;
-  }
-
-  public void add(long x) {
-    value += x;
-  }
-
-  public long sum() {
-    return value;
-  }
+@FunctionalInterface
+public interface LongLongConsumer
+{
+    /**
+     * Accept two values that comes as a tuple of longs.
+     *
+     * @param valueOne for the tuple.
+     * @param valueTwo for the tuple.
+     */
+    void accept(long valueOne, long valueTwo);
 }
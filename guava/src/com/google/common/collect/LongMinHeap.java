@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A min-heap of {@code int} values with {@code long} priorities, which supports changing the
+ * priority of, and removing, any entry it holds. Neither priorities nor values are boxed, so this
+ * is suited to Dijkstra's and Prim's algorithms, event schedulers and other uses of a priority
+ * queue with decrease-key.
+ *
+ * <p>{@link #add} returns a <i>handle</i> for the new entry, which {@link #decreasePriority},
+ * {@link #setPriority}, {@link #remove(int)} and the accessors take to identify it. A handle stays
+ * valid until its entry is removed, after which a later {@code add} may reuse it. Handles are small
+ * nonnegative ints, less than the greatest size the heap has had, so they can index arrays.
+ *
+ * <p>Usage example, for Dijkstra's algorithm from {@code source} on a graph of {@code n} vertices
+ * with nonnegative edge weights:
+ *
+ * <pre>{@code
+ * long[] distance = new long[n];
+ * Arrays.fill(distance, Long.MAX_VALUE);
+ * int[] handles = new int[n];
+ * Arrays.fill(handles, -1);
+ * LongMinHeap heap = LongMinHeap.withExpectedSize(n);
+ * distance[source] = 0;
+ * handles[source] = heap.add(0, source);
+ * while (!heap.isEmpty()) {
+ *   int vertex = heap.removeMin();
+ *   handles[vertex] = -1;
+ *   for (Edge edge : edgesFrom(vertex)) {
+ *     long d = distance[vertex] + edge.weight;
+ *     if (d < distance[edge.to]) {
+ *       distance[edge.to] = d;
+ *       if (handles[edge.to] < 0) {
+ *         handles[edge.to] = heap.add(d, edge.to);
+ *       } else {
+ *         heap.decreasePriority(handles[edge.to], d);
+ *       }
+ *     }
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>The heap is 4-ary, which halves its depth compared to a binary heap and keeps the children of
+ * each entry in one or two cache lines. Priorities are stored in heap order alongside the handles,
+ * so comparisons never leave the heap arrays. Entries of equal priority are removed in no
+ * particular order.
+ *
+ * <p><i>Performance notes:</i> {@link #add}, {@link #decreasePriority} and {@link #removeMin} run
+ * in {@code O(log n)} time, as do {@link #setPriority} and {@link #remove(int)}; {@link
+ * #peekPriority}, {@link #peekValue}, {@link #peekHandle} and the accessors run in constant time.
+ *
+ * <p>This class is not thread-safe.
+ */
+@Beta
+@GwtIncompatible
+public final class LongMinHeap {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** The value of {@code positions[handle]} that marks the end of the list of free handles. */
+  private static final int NO_FREE_HANDLE = -1;
+
+  /**
+   * The entries in 4-ary heap order: the entry at index i has priority heapPriorities[i] and
+   * handle heapHandles[i], and its children are at indexes 4i + 1 to 4i + 4.
+   */
+  private long[] heapPriorities;
+
+  private int[] heapHandles;
+  private int size;
+
+  /**
+   * For each handle in use, the index of its entry in the heap arrays. Free handles form a linked
+   * list, in which positions[h] is -2 - (the next free handle), or -2 - NO_FREE_HANDLE at its end.
+   */
+  private int[] positions;
+
+  private int[] values;
+
+  /** The number of distinct handles handed out, all of which are less than this. */
+  private int handleCount;
+
+  private int firstFreeHandle = NO_FREE_HANDLE;
+
+  /** Creates a new, empty heap. */
+  public static LongMinHeap create() {
+    return new LongMinHeap(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a new, empty heap sized to hold {@code expectedSize} entries without growing.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  public static LongMinHeap withExpectedSize(int expectedSize) {
+    checkArgument(expectedSize >= 0, "expectedSize cannot be negative but was: %s", expectedSize);
+    return new LongMinHeap(expectedSize);
+  }
+
+  private LongMinHeap(int capacity) {
+    heapPriorities = new long[capacity];
+    heapHandles = new int[capacity];
+    positions = new int[capacity];
+    values = new int[capacity];
+  }
+
+  /** Returns the number of entries in this heap. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns {@code true} if this heap has no entries. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns {@code true} if {@code handle} identifies an entry of this heap. */
+  public boolean contains(int handle) {
+    return handle >= 0 && handle < handleCount && positions[handle] >= 0;
+  }
+
+  /**
+   * Adds an entry with the given priority and value to this heap, and returns its handle.
+   *
+   * @throws IllegalStateException if the heap already holds the maximum array size of entries
+   */
+  @CanIgnoreReturnValue
+  public int add(long priority, int value) {
+    int handle = allocateHandle();
+    values[handle] = value;
+    siftUp(size++, priority, handle);
+    return handle;
+  }
+
+  /**
+   * Returns the least priority in this heap.
+   *
+   * @throws NoSuchElementException if the heap is empty
+   */
+  public long peekPriority() {
+    checkNotEmpty();
+    return heapPriorities[0];
+  }
+
+  /**
+   * Returns the value of the entry with the least priority in this heap.
+   *
+   * @throws NoSuchElementException if the heap is empty
+   */
+  public int peekValue() {
+    checkNotEmpty();
+    return values[heapHandles[0]];
+  }
+
+  /**
+   * Returns the handle of the entry with the least priority in this heap.
+   *
+   * @throws NoSuchElementException if the heap is empty
+   */
+  public int peekHandle() {
+    checkNotEmpty();
+    return heapHandles[0];
+  }
+
+  /**
+   * Removes the entry with the least priority from this heap, and returns its value. Read {@link
+   * #peekPriority} first for its priority.
+   *
+   * @throws NoSuchElementException if the heap is empty
+   */
+  @CanIgnoreReturnValue
+  public int removeMin() {
+    checkNotEmpty();
+    int handle = heapHandles[0];
+    removeAt(0);
+    return values[handle];
+  }
+
+  /**
+   * Removes the entry identified by {@code handle} from this heap.
+   *
+   * @throws IllegalArgumentException if {@code handle} does not identify an entry of this heap
+   */
+  public void remove(int handle) {
+    checkHandle(handle);
+    removeAt(positions[handle]);
+  }
+
+  /**
+   * Returns the priority of the entry identified by {@code handle}.
+   *
+   * @throws IllegalArgumentException if {@code handle} does not identify an entry of this heap
+   */
+  public long priority(int handle) {
+    checkHandle(handle);
+    return heapPriorities[positions[handle]];
+  }
+
+  /**
+   * Returns the value of the entry identified by {@code handle}.
+   *
+   * @throws IllegalArgumentException if {@code handle} does not identify an entry of this heap
+   */
+  public int value(int handle) {
+    checkHandle(handle);
+    return values[handle];
+  }
+
+  /**
+   * Lowers the priority of the entry identified by {@code handle} to {@code priority}. This is
+   * cheaper than {@link #setPriority}, because the entry can only move towards the top of the heap.
+   *
+   * @throws IllegalArgumentException if {@code handle} does not identify an entry of this heap, or
+   *     {@code priority} is greater than the entry's current priority
+   */
+  public void decreasePriority(int handle, long priority) {
+    checkHandle(handle);
+    int index = positions[handle];
+    checkArgument(
+        priority <= heapPriorities[index],
+        "new priority %s is greater than current priority %s",
+        priority,
+        heapPriorities[index]);
+    siftUp(index, priority, handle);
+  }
+
+  /**
+   * Changes the priority of the entry identified by {@code handle} to {@code priority}.
+   *
+   * @throws IllegalArgumentException if {@code handle} does not identify an entry of this heap
+   */
+  public void setPriority(int handle, long priority) {
+    checkHandle(handle);
+    int index = positions[handle];
+    if (priority < heapPriorities[index]) {
+      siftUp(index, priority, handle);
+    } else {
+      siftDown(index, priority, handle);
+    }
+  }
+
+  /** Removes all entries from this heap, and frees all handles. */
+  public void clear() {
+    size = 0;
+    handleCount = 0;
+    firstFreeHandle = NO_FREE_HANDLE;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(size * 12).append('[');
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(heapPriorities[i]).append('=').append(values[heapHandles[i]]);
+    }
+    return builder.append(']').toString();
+  }
+
+  private void removeAt(int index) {
+    freeHandle(heapHandles[index]);
+    int last = --size;
+    if (index != last) {
+      long priority = heapPriorities[last];
+      int handle = heapHandles[last];
+      if (priority < heapPriorities[index]) {
+        siftUp(index, priority, handle);
+      } else {
+        siftDown(index, priority, handle);
+      }
+    }
+  }
+
+  /** Moves the hole at {@code index} up until {@code priority} fits in it, then fills it. */
+  private void siftUp(int index, long priority, int handle) {
+    long[] heapPriorities = this.heapPriorities;
+    int[] heapHandles = this.heapHandles;
+    while (index > 0) {
+      int parent = (index - 1) >>> 2;
+      long parentPriority = heapPriorities[parent];
+      if (parentPriority <= priority) {
+        break;
+      }
+      move(parent, index, parentPriority);
+      index = parent;
+    }
+    heapPriorities[index] = priority;
+    heapHandles[index] = handle;
+    positions[handle] = index;
+  }
+
+  /** Moves the hole at {@code index} down until {@code priority} fits in it, then fills it. */
+  private void siftDown(int index, long priority, int handle) {
+    long[] heapPriorities = this.heapPriorities;
+    int[] heapHandles = this.heapHandles;
+    // The entries at indexes up to lastParent have children; 4 * index + 1 may overflow otherwise.
+    int lastParent = (size - 2) >> 2;
+    while (index <= lastParent) {
+      int firstChild = (index << 2) + 1;
+      int end = Math.min(firstChild + 4, size);
+      int least = firstChild;
+      long leastPriority = heapPriorities[firstChild];
+      for (int child = firstChild + 1; child < end; child++) {
+        if (heapPriorities[child] < leastPriority) {
+          least = child;
+          leastPriority = heapPriorities[child];
+        }
+      }
+      if (priority <= leastPriority) {
+        break;
+      }
+      move(least, index, leastPriority);
+      index = least;
+    }
+    heapPriorities[index] = priority;
+    heapHandles[index] = handle;
+    positions[handle] = index;
+  }
+
+  private void move(int from, int to, long priority) {
+    int handle = heapHandles[from];
+    heapPriorities[to] = priority;
+    heapHandles[to] = handle;
+    positions[handle] = to;
+  }
+
+  private int allocateHandle() {
+    if (firstFreeHandle != NO_FREE_HANDLE) {
+      int handle = firstFreeHandle;
+      firstFreeHandle = -2 - positions[handle];
+      return handle;
+    }
+    if (handleCount == positions.length) {
+      grow();
+    }
+    return handleCount++;
+  }
+
+  private void freeHandle(int handle) {
+    positions[handle] = -2 - firstFreeHandle;
+    firstFreeHandle = handle;
+  }
+
+  private void grow() {
+    int oldCapacity = positions.length;
+    if (oldCapacity == Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("LongMinHeap cannot grow beyond " + oldCapacity);
+    }
+    int newCapacity = (int) Math.min(oldCapacity + (oldCapacity >> 1) + 1L, Integer.MAX_VALUE - 8);
+    heapPriorities = Arrays.copyOf(heapPriorities, newCapacity);
+    heapHandles = Arrays.copyOf(heapHandles, newCapacity);
+    positions = Arrays.copyOf(positions, newCapacity);
+    values = Arrays.copyOf(values, newCapacity);
+  }
+
+  private void checkNotEmpty() {
+    if (size == 0) {
+      throw new NoSuchElementException();
+    }
+  }
+
+  private void checkHandle(int handle) {
+    checkArgument(contains(handle), "handle %s is not in this heap", handle);
+  }
+}
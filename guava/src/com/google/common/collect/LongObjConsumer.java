@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014-2018 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.common.collect;
+
+/**
+ * This is an (long, Object) primitive specialisation of a BiConsumer
+ *
+ * @param <V> the type of the second argument
+ */
+@FunctionalInterface
+public interface LongObjConsumer<V>
+{
+    /**
+     * Accept a long key and the value that it maps to.
+     *
+     * @param key   for the tuple.
+     * @param value for the tuple.
+     */
+    void accept(long key, V value);
+}
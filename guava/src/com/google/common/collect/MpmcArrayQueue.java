@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link ConcurrentArrayQueue} for any number of producer and consumer threads, after Dmitry
+ * Vyukov's bounded MPMC queue. Each slot has a sequence number which says whose turn it is: {@code
+ * p} when the producer of position {@code p} may write it, {@code p + 1} once that producer has
+ * written it, and {@code p + ringSize} once the consumer of position {@code p} has emptied it for
+ * the next lap. Producers and consumers claim positions by a compare-and-set of the tail and head
+ * respectively, and only after checking the slot's sequence number, so neither ever waits for the
+ * other.
+ *
+ * <p>A consequence is that {@link #poll} returns {@code null} when the element at the head has
+ * been claimed by a producer that has not yet written it, even though the queue is not empty.
+ */
+@GwtIncompatible
+class MpmcArrayQueue<E> extends ConcurrentArrayQueue<E> {
+  private final AtomicLongArray sequences;
+
+  MpmcArrayQueue(int capacity) {
+    super(capacity);
+    sequences = new AtomicLongArray(mask + 1);
+    for (int i = 0; i <= mask; i++) {
+      sequences.lazySet(i, i);
+    }
+  }
+
+  /** Claims the slot at the tail, returning its position, or -1 if the queue is full. */
+  private long claim() {
+    // When the capacity fills the ring, the sequence numbers alone show when it is full.
+    boolean checkHead = capacity <= mask;
+    while (true) {
+      long t = tail;
+      long sequence = sequences.get((int) t & mask);
+      if (sequence == t) {
+        if (checkHead && t - head >= capacity) {
+          return -1;
+        }
+        if (TAIL.compareAndSet(this, t, t + 1)) {
+          return t;
+        }
+      } else if (sequence < t) {
+        // the slot still holds the element from the previous lap
+        return -1;
+      }
+      // otherwise another producer has claimed t; try again at the new tail
+    }
+  }
+
+  private void publish(long t, E e) {
+    int index = (int) t & mask;
+    buffer.lazySet(index, e);
+    sequences.lazySet(index, t + 1);
+  }
+
+  @Override
+  public boolean offer(E e) {
+    checkNotNull(e);
+    long t = claim();
+    if (t < 0) {
+      return false;
+    }
+    publish(t, e);
+    return true;
+  }
+
+  @Override
+  public @Nullable E poll() {
+    while (true) {
+      long h = head;
+      int index = (int) h & mask;
+      long sequence = sequences.get(index);
+      if (sequence == h + 1) {
+        if (HEAD.compareAndSet(this, h, h + 1)) {
+          E e = buffer.get(index);
+          buffer.lazySet(index, null);
+          sequences.lazySet(index, h + mask + 1);
+          if (e != SKIPPED) {
+            return e;
+          }
+        }
+      } else if (sequence < h + 1) {
+        // empty, or the producer of h has yet to write it
+        return null;
+      }
+      // otherwise another consumer has taken h; try again at the new head
+    }
+  }
+
+  @Override
+  public @Nullable E peek() {
+    while (true) {
+      long h = head;
+      int index = (int) h & mask;
+      long sequence = sequences.get(index);
+      if (sequence == h + 1) {
+        E e = buffer.get(index);
+        if (e == SKIPPED) {
+          // consume the placeholder, as poll would, and look again
+          if (HEAD.compareAndSet(this, h, h + 1)) {
+            buffer.lazySet(index, null);
+            sequences.lazySet(index, h + mask + 1);
+          }
+        } else if (e != null && head == h) {
+          // h was still unconsumed after e was read, so e is its element
+          return e;
+        }
+      } else if (sequence < h + 1) {
+        return null;
+      }
+    }
+  }
+
+  @Override
+  public int fill(Supplier<? extends E> supplier, int maxElements) {
+    checkNotNull(supplier);
+    checkArgument(maxElements >= 0, "maxElements must be nonnegative: %s", maxElements);
+    int filled = 0;
+    while (filled < maxElements) {
+      long t = claim();
+      if (t < 0) {
+        break;
+      }
+      E e = ConcurrentArrayQueue.<E>skipped();
+      try {
+        e = checkNotNull(supplier.get());
+      } finally {
+        // consumers wait for the claimed slot to be written, even if the supplier failed
+        publish(t, e);
+      }
+      filled++;
+    }
+    return filled;
+  }
+}
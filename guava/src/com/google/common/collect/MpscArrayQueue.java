@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link ConcurrentArrayQueue} for any number of producer threads and a single consumer thread.
+ * Producers claim a position by a compare-and-set of the tail and then write their element into
+ * its slot; the consumer recognizes published elements by their slot being non-null, and waits
+ * briefly in {@link #poll} for a producer that has claimed the head position but not yet written
+ * it.
+ */
+@GwtIncompatible
+final class MpscArrayQueue<E> extends ConcurrentArrayQueue<E> {
+  @SuppressWarnings("rawtypes")
+  private static final AtomicLongFieldUpdater<MpscArrayQueue> PRODUCER_LIMIT =
+      AtomicLongFieldUpdater.newUpdater(MpscArrayQueue.class, "producerLimit");
+
+  /**
+   * A lower bound on {@code head + capacity}, shared by the producers so that they only read the
+   * consumer's head when the tail reaches it.
+   */
+  private volatile long producerLimit;
+
+  MpscArrayQueue(int capacity) {
+    super(capacity);
+    this.producerLimit = capacity;
+  }
+
+  /** Claims the slot at the tail, returning its position, or -1 if the queue is full. */
+  private long claim() {
+    while (true) {
+      long t = tail;
+      if (t >= producerLimit) {
+        long limit = head + capacity;
+        if (t >= limit) {
+          return -1;
+        }
+        PRODUCER_LIMIT.lazySet(this, limit);
+      }
+      if (TAIL.compareAndSet(this, t, t + 1)) {
+        return t;
+      }
+    }
+  }
+
+  @Override
+  public boolean offer(E e) {
+    checkNotNull(e);
+    long t = claim();
+    if (t < 0) {
+      return false;
+    }
+    buffer.lazySet((int) t & mask, e);
+    return true;
+  }
+
+  @Override
+  public @Nullable E poll() {
+    while (true) {
+      long h = head;
+      int index = (int) h & mask;
+      E e = buffer.get(index);
+      if (e == null) {
+        if (h == tail) {
+          return null;
+        }
+        // a producer has claimed the head position, and is about to write it
+        do {
+          e = buffer.get(index);
+        } while (e == null);
+      }
+      buffer.lazySet(index, null);
+      HEAD.lazySet(this, h + 1);
+      if (e != SKIPPED) {
+        return e;
+      }
+    }
+  }
+
+  @Override
+  public @Nullable E peek() {
+    while (true) {
+      long h = head;
+      int index = (int) h & mask;
+      E e = buffer.get(index);
+      if (e == null) {
+        if (h == tail) {
+          return null;
+        }
+        do {
+          e = buffer.get(index);
+        } while (e == null);
+      }
+      if (e != SKIPPED) {
+        return e;
+      }
+      // only the consumer peeks, so it may discard the placeholder here
+      buffer.lazySet(index, null);
+      HEAD.lazySet(this, h + 1);
+    }
+  }
+
+  @Override
+  public int drain(Consumer<? super E> consumer, int maxElements) {
+    return drainSingleConsumer(consumer, maxElements);
+  }
+
+  @Override
+  public int fill(Supplier<? extends E> supplier, int maxElements) {
+    checkNotNull(supplier);
+    checkArgument(maxElements >= 0, "maxElements must be nonnegative: %s", maxElements);
+    int filled = 0;
+    while (filled < maxElements) {
+      long t = claim();
+      if (t < 0) {
+        break;
+      }
+      E e = ConcurrentArrayQueue.<E>skipped();
+      try {
+        e = checkNotNull(supplier.get());
+      } finally {
+        // the consumer waits for the claimed slot to be written, even if the supplier failed
+        buffer.lazySet((int) t & mask, e);
+      }
+      filled++;
+    }
+    return filled;
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.CollectPreconditions.checkNonnegative;
+import static com.google.common.collect.CollectPreconditions.checkRemove;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.primitives.Ints;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The {@link Multiset} view returned by {@link Object2IntHashMap#asMultiset}. The count of each
+ * element is its value in the map; keys whose value is not positive are not elements.
+ *
+ * <p>Unlike {@link HashMultiset}, which holds a mutable count object for each element, this view
+ * keeps its counts in the map's {@code int[]}, so counting an element that is already present
+ * allocates nothing. Queries that span the whole multiset, such as {@link #size}, scan the map.
+ */
+@GwtIncompatible
+final class Object2IntHashMapMultiset<E> extends AbstractMultiset<E> {
+  private final Object2IntHashMap<E> map;
+
+  Object2IntHashMapMultiset(Object2IntHashMap<E> map) {
+    this.map = checkNotNull(map);
+  }
+
+  @Override
+  public int count(@Nullable Object element) {
+    int value = map.getValue(checkNotNull(element));
+    return (value == map.missingValue()) ? 0 : Math.max(value, 0);
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public int add(E element, int occurrences) {
+    checkNotNull(element);
+    int oldCount = count(element);
+    if (checkNonnegative(occurrences, "occurrences") > 0) {
+      long newCount = (long) oldCount + occurrences;
+      checkArgument(newCount <= Integer.MAX_VALUE, "too many occurrences: %s", newCount);
+      map.put(element, (int) newCount);
+    }
+    return oldCount;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  @SuppressWarnings("unchecked") // only removes an element that is present, and so is an E
+  public int remove(@Nullable Object element, int occurrences) {
+    int oldCount = count(element);
+    if (checkNonnegative(occurrences, "occurrences") > 0 && oldCount > 0) {
+      if (occurrences >= oldCount) {
+        map.removeKey(element);
+      } else {
+        map.put((E) element, oldCount - occurrences);
+      }
+    }
+    return oldCount;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public int setCount(E element, int count) {
+    checkNotNull(element);
+    checkNonnegative(count, "count");
+    int oldCount = count(element);
+    if (count == 0) {
+      map.removeKey(element);
+    } else {
+      map.put(element, count);
+    }
+    return oldCount;
+  }
+
+  @Override
+  public void clear() {
+    map.clear();
+  }
+
+  @Override
+  public int size() {
+    long size = 0;
+    for (Iterator<Entry<E>> entries = entryIterator(); entries.hasNext(); ) {
+      size += entries.next().getCount();
+    }
+    return Ints.saturatedCast(size);
+  }
+
+  @Override
+  int distinctElements() {
+    int distinct = 0;
+    for (Iterator<E> elements = elementIterator(); elements.hasNext(); elements.next()) {
+      distinct++;
+    }
+    return distinct;
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return Multisets.iteratorImpl(this);
+  }
+
+  @Override
+  Iterator<E> elementIterator() {
+    return new Itr<E>() {
+      @Override
+      E output(E element, int count) {
+        return element;
+      }
+    };
+  }
+
+  @Override
+  Iterator<Entry<E>> entryIterator() {
+    return new Itr<Entry<E>>() {
+      @Override
+      Entry<E> output(E element, int count) {
+        return Multisets.immutableEntry(element, count);
+      }
+    };
+  }
+
+  /**
+   * Iterates over the keys of the map with a positive value. It reads one key ahead, and supports
+   * removal by removing the last key returned from the map: the map's iterators visit its table
+   * backwards, so the entries that removal moves to fill the gap have already been visited.
+   */
+  private abstract class Itr<T> implements Iterator<T> {
+    private final Object2IntHashMap<E>.EntryIterator entries = map.new EntryIterator();
+    private @Nullable E next;
+    private int nextCount;
+    private @Nullable E last;
+
+    Itr() {
+      entries.reset();
+      advance();
+    }
+
+    abstract T output(E element, int count);
+
+    private void advance() {
+      next = null;
+      while (entries.hasNext()) {
+        entries.next();
+        int count = entries.getIntValue();
+        if (count > 0) {
+          next = entries.getKey();
+          nextCount = count;
+          return;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public T next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      last = next;
+      T result = output(next, nextCount);
+      advance();
+      return result;
+    }
+
+    @Override
+    public void remove() {
+      checkRemove(last != null);
+      map.removeKey(last);
+      last = null;
+    }
+  }
+}
@@ -0,0 +1,1067 @@
+/*
+ * Copyright 2014-2018 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.common.collect;
+
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToLongFunction;
+
+import static com.google.common.BitUtil.findNextPositivePowerOfTwo;
+import static com.google.common.collect.CollectionUtil.validateLoadFactor;
+import static java.util.Objects.requireNonNull;
+
+
+/**
+ * {@link Map} implementation specialised for long values using open addressing and
+ * linear probing for cache efficient access. Keys and values are held in parallel arrays, so
+ * counting with {@link #increment(Object)} or {@link #addAndGet(Object, long)} boxes nothing and
+ * allocates nothing once a key is present.
+ * <p>
+ * Keys must not be null. A value equal to {@link #missingValue()} cannot be stored, and is
+ * returned by the primitive lookups when a key is absent.
+ * <p>
+ * Where the counting is confined to one thread, this map can take the place of an
+ * {@link com.google.common.util.concurrent.AtomicLongMap} without holding an {@code AtomicLong}
+ * for every key.
+ *
+ * @param <K> type of keys stored in the {@link Map}
+ */
+public class Object2LongHashMap<K> extends AbstractMap<K, Long> implements Map<K, Long>, Serializable
+{
+    static final int MIN_CAPACITY = 8;
+
+    private final float loadFactor;
+    private final long missingValue;
+    private int resizeThreshold;
+    private int size;
+    private final boolean shouldAvoidAllocation;
+
+    private Object[] keys;
+    private long[] values;
+
+    private KeySet keySet;
+    private ValueCollection valueCollection;
+    private EntrySet entrySet;
+
+    public Object2LongHashMap()
+    {
+        this(MIN_CAPACITY, Hashing.DEFAULT_LOAD_FACTOR, Long.MIN_VALUE);
+    }
+
+    public Object2LongHashMap(final long missingValue)
+    {
+        this(MIN_CAPACITY, Hashing.DEFAULT_LOAD_FACTOR, missingValue);
+    }
+
+    public Object2LongHashMap(
+        final int initialCapacity,
+        final float loadFactor,
+        final long missingValue)
+    {
+        this(initialCapacity, loadFactor, missingValue, true);
+    }
+
+    /**
+     * @param initialCapacity       for the map to override {@link #MIN_CAPACITY}
+     * @param loadFactor            for the map to override {@link Hashing#DEFAULT_LOAD_FACTOR}.
+     * @param missingValue          for the map that represents null.
+     * @param shouldAvoidAllocation should allocation be avoided by caching iterators and map entries.
+     */
+    public Object2LongHashMap(
+        final int initialCapacity,
+        final float loadFactor,
+        final long missingValue,
+        final boolean shouldAvoidAllocation)
+    {
+        validateLoadFactor(loadFactor);
+
+        this.loadFactor = loadFactor;
+        this.missingValue = missingValue;
+        this.shouldAvoidAllocation = shouldAvoidAllocation;
+
+        capacity(findNextPositivePowerOfTwo(Math.max(MIN_CAPACITY, initialCapacity)));
+    }
+
+    /**
+     * The value to be used as a null marker in the map.
+     *
+     * @return value to be used as a null marker in the map.
+     */
+    public long missingValue()
+    {
+        return missingValue;
+    }
+
+    /**
+     * Get the load factor beyond which the map will increase size.
+     *
+     * @return load factor for when the map should increase size.
+     */
+    public float loadFactor()
+    {
+        return loadFactor;
+    }
+
+    /**
+     * Get the total capacity for the map to which the load factor will be a fraction of.
+     *
+     * @return the total capacity for the map.
+     */
+    public int capacity()
+    {
+        return values.length;
+    }
+
+    /**
+     * Get the actual threshold which when reached the map will resize.
+     * This is a function of the current capacity and load factor.
+     *
+     * @return the threshold when the map will resize.
+     */
+    public int resizeThreshold()
+    {
+        return resizeThreshold;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEmpty()
+    {
+        return 0 == size;
+    }
+
+    /**
+     * Overloaded version of {@link Map#get(Object)} that returns a primitive long value.
+     *
+     * @param key for indexing the {@link Map}
+     * @return the value if found otherwise {@link #missingValue()}
+     */
+    public long getValue(final Object key)
+    {
+        final Object[] keys = this.keys;
+        final int mask = keys.length - 1;
+        int index = Hashing.hash(requireNonNull(key), mask);
+
+        long value = missingValue;
+        Object k;
+        while (null != (k = keys[index]))
+        {
+            if (k.equals(key))
+            {
+                value = values[index];
+                break;
+            }
+
+            index = next(index, mask);
+        }
+
+        return value;
+    }
+
+    /**
+     * Put a key value pair into the map.
+     *
+     * @param key   lookup key
+     * @param value new value, must not be missingValue
+     * @return previous value associated with key, or missingValue if none found
+     * @throws IllegalArgumentException if value is missingValue
+     */
+    public long put(final K key, final long value)
+    {
+        if (value == missingValue)
+        {
+            throw new IllegalArgumentException("cannot accept missingValue");
+        }
+
+        final Object[] keys = this.keys;
+        final int mask = keys.length - 1;
+        int index = Hashing.hash(requireNonNull(key, "key cannot be null"), mask);
+
+        long oldValue = missingValue;
+        Object k;
+        while (null != (k = keys[index]))
+        {
+            if (k.equals(key))
+            {
+                oldValue = values[index];
+                break;
+            }
+
+            index = next(index, mask);
+        }
+
+        values[index] = value;
+        if (null == k)
+        {
+            keys[index] = key;
+            ++size;
+            increaseCapacity();
+        }
+
+        return oldValue;
+    }
+
+    /**
+     * Add {@code delta} to the value of a key, treating an absent key as having the value zero.
+     * A key whose value becomes zero is removed, so a map used only for counting holds just the
+     * keys that have a non-zero count.
+     *
+     * @param key   lookup key
+     * @param delta to add to the value
+     * @return the new value associated with key, which is zero if it has been removed.
+     * @throws IllegalArgumentException if the new value would be missingValue
+     */
+    public long addAndGet(final K key, final long delta)
+    {
+        final Object[] keys = this.keys;
+        final long[] values = this.values;
+        final int mask = keys.length - 1;
+        int index = Hashing.hash(requireNonNull(key, "key cannot be null"), mask);
+
+        long oldValue = 0;
+        Object k;
+        while (null != (k = keys[index]))
+        {
+            if (k.equals(key))
+            {
+                oldValue = values[index];
+                break;
+            }
+
+            index = next(index, mask);
+        }
+
+        final long newValue = oldValue + delta;
+        if (0 == newValue)
+        {
+            if (null != k)
+            {
+                removeAt(index);
+            }
+        }
+        else if (newValue == missingValue)
+        {
+            throw new IllegalArgumentException("cannot accept missingValue");
+        }
+        else
+        {
+            values[index] = newValue;
+            if (null == k)
+            {
+                keys[index] = key;
+                ++size;
+                increaseCapacity();
+            }
+        }
+
+        return newValue;
+    }
+
+    /**
+     * Add {@code delta} to the value of a key as {@link #addAndGet(Object, long)} does.
+     *
+     * @param key   lookup key
+     * @param delta to add to the value
+     * @return the previous value associated with key, which is zero if it was absent.
+     * @throws IllegalArgumentException if the new value would be missingValue
+     */
+    public long getAndAdd(final K key, final long delta)
+    {
+        return addAndGet(key, delta) - delta;
+    }
+
+    /**
+     * Equivalent to {@code addAndGet(key, 1L)}.
+     *
+     * @param key lookup key
+     * @return the new value associated with key.
+     */
+    public long increment(final K key)
+    {
+        return addAndGet(key, 1L);
+    }
+
+    /**
+     * Equivalent to {@code addAndGet(key, -1L)}.
+     *
+     * @param key lookup key
+     * @return the new value associated with key, which is zero if it has been removed.
+     */
+    public long decrement(final K key)
+    {
+        return addAndGet(key, -1L);
+    }
+
+    /**
+     * Primitive specialised version of {@link #computeIfAbsent(Object, java.util.function.Function)}
+     * <p>
+     * NB: Named differently from computeIfAbsent to avoid overloading on parameter types of lambda
+     * expression, which makes a call such as {@code computeIfAbsent(key, k -> k.length())}
+     * ambiguous.
+     *
+     * @param key             to search on.
+     * @param mappingFunction to provide a value if the get returns missingValue.
+     * @return the value if found otherwise the computed value.
+     */
+    public long computeLongIfAbsent(final K key, final ToLongFunction<? super K> mappingFunction)
+    {
+        long value = getValue(key);
+        if (value == missingValue)
+        {
+            value = mappingFunction.applyAsLong(key);
+            if (value != missingValue)
+            {
+                put(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Remove a key from the map.
+     *
+     * @param key to be removed
+     * @return the value that was associated with key, or missingValue if none found
+     */
+    public long removeKey(final Object key)
+    {
+        final Object[] keys = this.keys;
+        final int mask = keys.length - 1;
+        int index = Hashing.hash(requireNonNull(key), mask);
+
+        long oldValue = missingValue;
+        Object k;
+        while (null != (k = keys[index]))
+        {
+            if (k.equals(key))
+            {
+                oldValue = values[index];
+                removeAt(index);
+                break;
+            }
+
+            index = next(index, mask);
+        }
+
+        return oldValue;
+    }
+
+    /**
+     * Does the map contain the value.
+     *
+     * @param value to be tested against contained values.
+     * @return true if contained otherwise value.
+     */
+    public boolean containsValue(final long value)
+    {
+        boolean found = false;
+        if (value != missingValue)
+        {
+            final Object[] keys = this.keys;
+            final long[] values = this.values;
+
+            for (int i = 0, length = values.length; i < length; i++)
+            {
+                if (null != keys[i] && value == values[i])
+                {
+                    found = true;
+                    break;
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Primitive specialised forEach implementation.
+     * <p>
+     * NB: Renamed from forEach to avoid overloading on parameter types of lambda
+     * expression, which doesn't interplay well with type inference in lambda expressions.
+     *
+     * @param consumer a callback called for each key/value pair in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public void objLongForEach(final ObjLongConsumer<? super K> consumer)
+    {
+        final Object[] keys = this.keys;
+        final long[] values = this.values;
+
+        for (int i = 0, length = keys.length; i < length; i++)
+        {
+            final Object key = keys[i];
+            if (null != key)
+            {
+                consumer.accept((K)key, values[i]);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void clear()
+    {
+        if (size > 0)
+        {
+            Arrays.fill(keys, null);
+            Arrays.fill(values, missingValue);
+            size = 0;
+        }
+    }
+
+    /**
+     * Compact the backing arrays by rehashing with a capacity just larger than current size
+     * and giving consideration to the load factor.
+     */
+    public void compact()
+    {
+        final int idealCapacity = (int)Math.round(size() * (1.0d / loadFactor));
+        rehash(findNextPositivePowerOfTwo(Math.max(MIN_CAPACITY, idealCapacity)));
+    }
+
+    // ---------------- Boxed Versions Below ----------------
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKey(final Object key)
+    {
+        return getValue(key) != missingValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsValue(final Object value)
+    {
+        return value instanceof Long && containsValue(((Long)value).longValue());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Long get(final Object key)
+    {
+        return valOrNull(getValue(key));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Long put(final K key, final Long value)
+    {
+        return valOrNull(put(key, value.longValue()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Long remove(final Object key)
+    {
+        return valOrNull(removeKey(key));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void forEach(final BiConsumer<? super K, ? super Long> action)
+    {
+        objLongForEach(action::accept);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void putAll(final Map<? extends K, ? extends Long> map)
+    {
+        for (final Entry<? extends K, ? extends Long> entry : map.entrySet())
+        {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public KeySet keySet()
+    {
+        if (null == keySet)
+        {
+            keySet = new KeySet();
+        }
+
+        return keySet;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ValueCollection values()
+    {
+        if (null == valueCollection)
+        {
+            valueCollection = new ValueCollection();
+        }
+
+        return valueCollection;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Set<Entry<K, Long>> entrySet()
+    {
+        if (null == entrySet)
+        {
+            entrySet = new EntrySet();
+        }
+
+        return entrySet;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString()
+    {
+        if (isEmpty())
+        {
+            return "{}";
+        }
+
+        final EntryIterator entryIterator = new EntryIterator();
+        entryIterator.reset();
+
+        final StringBuilder sb = new StringBuilder().append('{');
+        while (true)
+        {
+            entryIterator.next();
+            sb.append(entryIterator.getKey()).append('=').append(entryIterator.getLongValue());
+            if (!entryIterator.hasNext())
+            {
+                return sb.append('}').toString();
+            }
+            sb.append(',').append(' ');
+        }
+    }
+
+    private static int next(final int index, final int mask)
+    {
+        return (index + 1) & mask;
+    }
+
+    private void capacity(final int newCapacity)
+    {
+        resizeThreshold = (int)(newCapacity * loadFactor);
+        keys = new Object[newCapacity];
+        values = new long[newCapacity];
+        Arrays.fill(values, missingValue);
+    }
+
+    private void increaseCapacity()
+    {
+        if (size > resizeThreshold)
+        {
+            final int newCapacity = values.length << 1;
+            if (newCapacity < 0)
+            {
+                throw new IllegalStateException("max capacity reached at size=" + size);
+            }
+
+            rehash(newCapacity);
+        }
+    }
+
+    private void rehash(final int newCapacity)
+    {
+        final Object[] oldKeys = keys;
+        final long[] oldValues = values;
+
+        capacity(newCapacity);
+
+        final Object[] newKeys = keys;
+        final long[] newValues = values;
+        final int mask = newCapacity - 1;
+
+        for (int i = 0, length = oldKeys.length; i < length; i++)
+        {
+            final Object key = oldKeys[i];
+            if (null != key)
+            {
+                int index = Hashing.hash(key, mask);
+                while (null != newKeys[index])
+                {
+                    index = next(index, mask);
+                }
+
+                newKeys[index] = key;
+                newValues[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void removeAt(final int index)
+    {
+        keys[index] = null;
+        values[index] = missingValue;
+        --size;
+
+        compactChain(index);
+    }
+
+    @SuppressWarnings("FinalParameters")
+    private void compactChain(int deleteIndex)
+    {
+        final Object[] keys = this.keys;
+        final long[] values = this.values;
+        final int mask = keys.length - 1;
+        int index = deleteIndex;
+
+        while (true)
+        {
+            index = next(index, mask);
+            final Object key = keys[index];
+            if (null == key)
+            {
+                break;
+            }
+
+            final int hash = Hashing.hash(key, mask);
+
+            if ((index < hash && (hash <= deleteIndex || deleteIndex <= index)) ||
+                (hash <= deleteIndex && deleteIndex <= index))
+            {
+                keys[deleteIndex] = key;
+                values[deleteIndex] = values[index];
+
+                keys[index] = null;
+                values[index] = missingValue;
+                deleteIndex = index;
+            }
+        }
+    }
+
+    private Long valOrNull(final long value)
+    {
+        return value == missingValue ? null : value;
+    }
+
+    // ---------------- Utility Classes ----------------
+
+    abstract class AbstractIterator implements Serializable
+    {
+        protected boolean isPositionValid = false;
+        private int remaining;
+        private int positionCounter;
+        private int stopCounter;
+
+        final void reset()
+        {
+            isPositionValid = false;
+            remaining = Object2LongHashMap.this.size;
+            final Object[] keys = Object2LongHashMap.this.keys;
+            final int capacity = keys.length;
+
+            int i = capacity;
+            if (null != keys[capacity - 1])
+            {
+                for (i = 0; i < capacity; i++)
+                {
+                    if (null == keys[i])
+                    {
+                        break;
+                    }
+                }
+            }
+
+            stopCounter = i;
+            positionCounter = i + capacity;
+        }
+
+        protected final int position()
+        {
+            return positionCounter & (keys.length - 1);
+        }
+
+        public int remaining()
+        {
+            return remaining;
+        }
+
+        public boolean hasNext()
+        {
+            return remaining > 0;
+        }
+
+        protected final void findNext()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+
+            final Object[] keys = Object2LongHashMap.this.keys;
+            final int mask = keys.length - 1;
+
+            for (int i = positionCounter - 1; i >= stopCounter; i--)
+            {
+                final int index = i & mask;
+                if (null != keys[index])
+                {
+                    isPositionValid = true;
+                    positionCounter = i;
+                    --remaining;
+                    return;
+                }
+            }
+
+            isPositionValid = false;
+            throw new IllegalStateException();
+        }
+
+        public void remove()
+        {
+            if (isPositionValid)
+            {
+                removeAt(position());
+                isPositionValid = false;
+            }
+            else
+            {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    public final class KeyIterator extends AbstractIterator implements Iterator<K>
+    {
+        @SuppressWarnings("unchecked")
+        public K next()
+        {
+            findNext();
+
+            return (K)keys[position()];
+        }
+    }
+
+    public final class ValueIterator extends AbstractIterator implements Iterator<Long>
+    {
+        public Long next()
+        {
+            return nextLong();
+        }
+
+        public long nextLong()
+        {
+            findNext();
+
+            return values[position()];
+        }
+    }
+
+    public final class EntryIterator
+        extends AbstractIterator
+        implements Iterator<Entry<K, Long>>, Entry<K, Long>
+    {
+        @SuppressWarnings("unchecked")
+        public K getKey()
+        {
+            return (K)keys[position()];
+        }
+
+        public Long getValue()
+        {
+            return getLongValue();
+        }
+
+        public long getLongValue()
+        {
+            return values[position()];
+        }
+
+        public Long setValue(final Long value)
+        {
+            if (!isPositionValid)
+            {
+                throw new IllegalStateException();
+            }
+
+            if (missingValue == value)
+            {
+                throw new IllegalArgumentException();
+            }
+
+            final int position = position();
+            final long prevValue = values[position];
+            values[position] = value;
+            return prevValue;
+        }
+
+        public Entry<K, Long> next()
+        {
+            findNext();
+
+            if (shouldAvoidAllocation)
+            {
+                return this;
+            }
+
+            return allocateDuplicateEntry();
+        }
+
+        private Entry<K, Long> allocateDuplicateEntry()
+        {
+            final K k = getKey();
+            final long v = getLongValue();
+
+            return new Entry<K, Long>()
+            {
+                public K getKey()
+                {
+                    return k;
+                }
+
+                public Long getValue()
+                {
+                    return v;
+                }
+
+                public Long setValue(final Long value)
+                {
+                    return Object2LongHashMap.this.put(k, value);
+                }
+
+                public int hashCode()
+                {
+                    return k.hashCode() ^ Long.hashCode(v);
+                }
+
+                public boolean equals(final Object o)
+                {
+                    if (!(o instanceof Entry))
+                    {
+                        return false;
+                    }
+
+                    final Entry e = (Entry)o;
+
+                    return k.equals(e.getKey()) && Long.valueOf(v).equals(e.getValue());
+                }
+
+                public String toString()
+                {
+                    return k + "=" + v;
+                }
+            };
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public int hashCode()
+        {
+            return getKey().hashCode() ^ Long.hashCode(getLongValue());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean equals(final Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Entry))
+            {
+                return false;
+            }
+
+            final Entry that = (Entry)o;
+
+            return Objects.equals(getKey(), that.getKey()) && Objects.equals(getValue(), that.getValue());
+        }
+    }
+
+    public final class KeySet extends AbstractSet<K> implements Serializable
+    {
+        private final KeyIterator keyIterator = shouldAvoidAllocation ? new KeyIterator() : null;
+
+        /**
+         * {@inheritDoc}
+         */
+        public KeyIterator iterator()
+        {
+            KeyIterator keyIterator = this.keyIterator;
+            if (null == keyIterator)
+            {
+                keyIterator = new KeyIterator();
+            }
+
+            keyIterator.reset();
+            return keyIterator;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public int size()
+        {
+            return Object2LongHashMap.this.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean contains(final Object o)
+        {
+            return containsKey(o);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean remove(final Object o)
+        {
+            return missingValue != removeKey(o);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void clear()
+        {
+            Object2LongHashMap.this.clear();
+        }
+    }
+
+    public final class ValueCollection extends AbstractCollection<Long> implements Serializable
+    {
+        private final ValueIterator valueIterator = shouldAvoidAllocation ? new ValueIterator() : null;
+
+        /**
+         * {@inheritDoc}
+         */
+        public ValueIterator iterator()
+        {
+            ValueIterator valueIterator = this.valueIterator;
+            if (null == valueIterator)
+            {
+                valueIterator = new ValueIterator();
+            }
+
+            valueIterator.reset();
+            return valueIterator;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public int size()
+        {
+            return Object2LongHashMap.this.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean contains(final Object o)
+        {
+            return containsValue(o);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void clear()
+        {
+            Object2LongHashMap.this.clear();
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, Long>> implements Serializable
+    {
+        private final EntryIterator entryIterator = shouldAvoidAllocation ? new EntryIterator() : null;
+
+        /**
+         * {@inheritDoc}
+         */
+        public EntryIterator iterator()
+        {
+            EntryIterator entryIterator = this.entryIterator;
+            if (null == entryIterator)
+            {
+                entryIterator = new EntryIterator();
+            }
+
+            entryIterator.reset();
+            return entryIterator;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public int size()
+        {
+            return Object2LongHashMap.this.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void clear()
+        {
+            Object2LongHashMap.this.clear();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean contains(final Object o)
+        {
+            if (!(o instanceof Entry))
+            {
+                return false;
+            }
+
+            final Entry entry = (Entry)o;
+            final Object key = entry.getKey();
+            return null != key && Objects.equals(get(key), entry.getValue());
+        }
+    }
+}
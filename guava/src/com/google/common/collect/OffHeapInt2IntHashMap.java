@@ -0,0 +1,1229 @@
+/*
+ * Copyright 2014-2018 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.common.collect;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.IntUnaryOperator;
+
+import static com.google.common.BitUtil.findNextPositivePowerOfTwo;
+import static com.google.common.collect.CollectionUtil.validateLoadFactor;
+
+/**
+ * A variant of {@link Int2IntHashMap} whose table lives outside the Java heap, in direct memory or in a memory-mapped
+ * file, so that a map of hundreds of millions of entries neither needs a humongous array on the heap nor is copied or
+ * scanned by the garbage collector. It uses the same open addressing with linear probing, with each key and its value
+ * in adjacent slots, and the same API.
+ * <p>
+ * A map created by a constructor or by {@link #load(Path)} keeps its table in direct memory. A map created by
+ * {@link #create(Path, int, float, int)} or {@link #map(Path)} keeps its table in the given file, which is then a
+ * snapshot in the format written by {@link #writeTo(Path)} once {@link #flush()} or {@link #close()} returns. When a
+ * mapped map grows, its entries are rehashed into a new file alongside, which then replaces the old one.
+ * <p>
+ * The memory is released by {@link #close()}, after which the map must not be used; until then it is only released
+ * when the map is garbage collected. This class is not thread-safe.
+ *
+ * @see Int2IntHashMap
+ */
+public class OffHeapInt2IntHashMap extends AbstractMap<Integer, Integer> implements Closeable
+{
+    static final int MIN_CAPACITY = 8;
+
+    /**
+     * The largest capacity, at which the table takes 8 GiB.
+     */
+    public static final int MAX_CAPACITY = 1 << 30;
+
+    private static final int MAGIC = 0x4F493249;
+
+    private final float loadFactor;
+    private final int missingValue;
+    private int capacity;
+    private int resizeThreshold;
+    private int size;
+
+    private OffHeapIntTable table;
+    private KeySet keySet;
+    private Values values;
+    private EntrySet entrySet;
+
+    /**
+     * Construct a map in direct memory with {@link #MIN_CAPACITY}, {@link Hashing#DEFAULT_LOAD_FACTOR} and a missing
+     * value of {@link Integer#MIN_VALUE}.
+     */
+    public OffHeapInt2IntHashMap()
+    {
+        this(MIN_CAPACITY, Hashing.DEFAULT_LOAD_FACTOR, Integer.MIN_VALUE);
+    }
+
+    /**
+     * @param initialCapacity for the map to override {@link #MIN_CAPACITY}
+     * @param loadFactor      for the map to override {@link Hashing#DEFAULT_LOAD_FACTOR}.
+     * @param missingValue    for the map that represents null.
+     */
+    public OffHeapInt2IntHashMap(final int initialCapacity, final float loadFactor, final int missingValue)
+    {
+        this(capacityFor(initialCapacity), loadFactor, missingValue, 0);
+        table = OffHeapIntTable.allocate(2L * capacity);
+        if (missingValue != 0)
+        {
+            table.fill(missingValue);
+        }
+    }
+
+    private OffHeapInt2IntHashMap(final int capacity, final float loadFactor, final int missingValue, final int size)
+    {
+        validateLoadFactor(loadFactor);
+
+        this.loadFactor = loadFactor;
+        this.missingValue = missingValue;
+        this.size = size;
+        capacity(capacity);
+    }
+
+    /**
+     * Create an empty map whose table is mapped from a file, replacing any existing file.
+     *
+     * @param file            to hold the table.
+     * @param initialCapacity for the map to override {@link #MIN_CAPACITY}
+     * @param loadFactor      for the map to override {@link Hashing#DEFAULT_LOAD_FACTOR}.
+     * @param missingValue    for the map that represents null.
+     * @return the new map.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public static OffHeapInt2IntHashMap create(
+        final Path file,
+        final int initialCapacity,
+        final float loadFactor,
+        final int missingValue) throws IOException
+    {
+        final OffHeapInt2IntHashMap map =
+            new OffHeapInt2IntHashMap(capacityFor(initialCapacity), loadFactor, missingValue, 0);
+        map.table = OffHeapIntTable.create(file, 2L * map.capacity);
+        if (missingValue != 0)
+        {
+            map.table.fill(missingValue);
+        }
+        map.flush();
+
+        return map;
+    }
+
+    /**
+     * Open a snapshot written by {@link #writeTo(Path)} or a map mapped from a file, mapping the table from the file
+     * rather than reading it, so that opening a map takes no time and the pages of the table are read on demand.
+     *
+     * @param file holding the snapshot.
+     * @return the map, whose changes are written through to the file.
+     * @throws IOException if the file cannot be mapped or is not a snapshot of a map.
+     */
+    public static OffHeapInt2IntHashMap map(final Path file) throws IOException
+    {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final OffHeapInt2IntHashMap map;
+        try
+        {
+            map = fromHeader(OffHeapIntTable.readHeader(channel, MAGIC));
+        }
+        catch (final IOException | RuntimeException ex)
+        {
+            channel.close();
+            throw ex;
+        }
+        map.table = OffHeapIntTable.map(file, channel, 2L * map.capacity);
+
+        return map;
+    }
+
+    /**
+     * Read a snapshot written by {@link #writeTo(Path)} or a map mapped from a file into direct memory.
+     *
+     * @param file holding the snapshot.
+     * @return the map, which is independent of the file.
+     * @throws IOException if the file cannot be read or is not a snapshot of a map.
+     */
+    public static OffHeapInt2IntHashMap load(final Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            final OffHeapInt2IntHashMap map = fromHeader(OffHeapIntTable.readHeader(channel, MAGIC));
+            map.table = OffHeapIntTable.allocate(2L * map.capacity);
+            try
+            {
+                map.table.readFrom(channel);
+            }
+            catch (final IOException | RuntimeException ex)
+            {
+                map.close();
+                throw ex;
+            }
+
+            return map;
+        }
+    }
+
+    private static OffHeapInt2IntHashMap fromHeader(final ByteBuffer header) throws IOException
+    {
+        final int capacity = header.getInt(OffHeapIntTable.CAPACITY_OFFSET);
+        if (capacity < MIN_CAPACITY || capacity > MAX_CAPACITY)
+        {
+            throw new IOException("invalid capacity in snapshot: " + capacity);
+        }
+
+        return new OffHeapInt2IntHashMap(
+            capacity,
+            header.getFloat(OffHeapIntTable.LOAD_FACTOR_OFFSET),
+            header.getInt(OffHeapIntTable.EXTRA_OFFSET),
+            header.getInt(OffHeapIntTable.SIZE_OFFSET));
+    }
+
+    private static int capacityFor(final int initialCapacity)
+    {
+        if (initialCapacity > MAX_CAPACITY)
+        {
+            throw new IllegalArgumentException("initial capacity exceeds " + MAX_CAPACITY + ": " + initialCapacity);
+        }
+
+        return findNextPositivePowerOfTwo(Math.max(MIN_CAPACITY, initialCapacity));
+    }
+
+    /**
+     * The value to be used as a null marker in the map.
+     *
+     * @return value to be used as a null marker in the map.
+     */
+    public int missingValue()
+    {
+        return missingValue;
+    }
+
+    /**
+     * Get the load factor applied for resize operations.
+     *
+     * @return the load factor applied for resize operations.
+     */
+    public float loadFactor()
+    {
+        return loadFactor;
+    }
+
+    /**
+     * Get the total capacity for the map to which the load factor will be a fraction of.
+     *
+     * @return the total capacity for the map.
+     */
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Get the actual threshold which when reached the map will resize.
+     * This is a function of the current capacity and load factor.
+     *
+     * @return the threshold when the map will resize.
+     */
+    public int resizeThreshold()
+    {
+        return resizeThreshold;
+    }
+
+    /**
+     * Get the number of bytes of off-heap memory, or of the file, taken by the table.
+     *
+     * @return the size of the table in bytes.
+     */
+    public long tableBytes()
+    {
+        return (long)capacity << 3;
+    }
+
+    /**
+     * @return whether the table is mapped from a file rather than held in direct memory.
+     */
+    public boolean isMapped()
+    {
+        return table().isMapped();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int get(final int key)
+    {
+        final OffHeapIntTable table = table();
+        final int missingValue = this.missingValue;
+        final int mask = capacity - 1;
+        int slot = Hashing.hash(key, mask);
+
+        int value;
+        while ((value = table.getInt(valueIndex(slot))) != missingValue)
+        {
+            if (table.getInt(keyIndex(slot)) == key)
+            {
+                break;
+            }
+
+            slot = next(slot, mask);
+        }
+
+        return value;
+    }
+
+    /**
+     * Put a key value pair into the map.
+     *
+     * @param key   lookup key
+     * @param value new value, must not be initialValue
+     * @return current counter value associated with key, or initialValue if none found
+     * @throws IllegalArgumentException if value is missingValue
+     */
+    public int put(final int key, final int value)
+    {
+        if (value == missingValue)
+        {
+            throw new IllegalArgumentException("cannot accept missingValue");
+        }
+
+        final OffHeapIntTable table = table();
+        final int missingValue = this.missingValue;
+        final int mask = capacity - 1;
+        int slot = Hashing.hash(key, mask);
+
+        int oldValue;
+        while ((oldValue = table.getInt(valueIndex(slot))) != missingValue)
+        {
+            if (table.getInt(keyIndex(slot)) == key)
+            {
+                break;
+            }
+
+            slot = next(slot, mask);
+        }
+
+        if (oldValue == missingValue)
+        {
+            ++size;
+            table.putInt(keyIndex(slot), key);
+        }
+
+        table.putInt(valueIndex(slot), value);
+
+        increaseCapacity();
+
+        return oldValue;
+    }
+
+    private void increaseCapacity()
+    {
+        if (size > resizeThreshold)
+        {
+            final int newCapacity = capacity * 2;
+            if (newCapacity > MAX_CAPACITY || newCapacity < 0)
+            {
+                throw new IllegalStateException("max capacity reached at size=" + size);
+            }
+
+            rehash(newCapacity);
+        }
+    }
+
+    private void rehash(final int newCapacity)
+    {
+        final OffHeapIntTable oldTable = table();
+        final int missingValue = this.missingValue;
+        final int oldCapacity = capacity;
+        try
+        {
+            final OffHeapIntTable newTable = oldTable.allocateLike(2L * newCapacity);
+            try
+            {
+                if (missingValue != 0)
+                {
+                    newTable.fill(missingValue);
+                }
+                final int mask = newCapacity - 1;
+
+                for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++)
+                {
+                    final int value = oldTable.getInt(valueIndex(oldSlot));
+                    if (value != missingValue)
+                    {
+                        final int key = oldTable.getInt(keyIndex(oldSlot));
+                        int slot = Hashing.hash(key, mask);
+
+                        while (newTable.getInt(valueIndex(slot)) != missingValue)
+                        {
+                            slot = next(slot, mask);
+                        }
+
+                        newTable.putInt(keyIndex(slot), key);
+                        newTable.putInt(valueIndex(slot), value);
+                    }
+                }
+            }
+            catch (final RuntimeException | Error ex)
+            {
+                try
+                {
+                    newTable.close();
+                }
+                catch (final IOException closeEx)
+                {
+                    ex.addSuppressed(closeEx);
+                }
+                throw ex;
+            }
+
+            capacity(newCapacity);
+            try
+            {
+                newTable.replace(oldTable, header());
+            }
+            catch (final IOException ex)
+            {
+                capacity(oldCapacity);
+                newTable.close();
+                throw ex;
+            }
+            table = newTable;
+        }
+        catch (final IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Primitive specialised forEach implementation.
+     *
+     * @param consumer a callback called for each key/value pair in the map.
+     */
+    public void intForEach(final IntIntConsumer consumer)
+    {
+        final OffHeapIntTable table = table();
+        final int missingValue = this.missingValue;
+
+        for (int slot = 0, capacity = this.capacity; slot < capacity; slot++)
+        {
+            final int value = table.getInt(valueIndex(slot));
+            if (value != missingValue)
+            {
+                consumer.accept(table.getInt(keyIndex(slot)), value);
+            }
+        }
+    }
+
+    /**
+     * Int primitive specialised containsKey.
+     *
+     * @param key the key to check.
+     * @return true if the map contains key as a key, false otherwise.
+     */
+    public boolean containsKey(final int key)
+    {
+        return get(key) != missingValue;
+    }
+
+    /**
+     * Does the map contain the value.
+     *
+     * @param value to be tested against contained values.
+     * @return true if contained otherwise value.
+     */
+    public boolean containsValue(final int value)
+    {
+        if (value != missingValue)
+        {
+            final OffHeapIntTable table = table();
+            for (int slot = 0, capacity = this.capacity; slot < capacity; slot++)
+            {
+                if (value == table.getInt(valueIndex(slot)))
+                {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void clear()
+    {
+        if (size > 0)
+        {
+            table().fill(missingValue);
+            size = 0;
+        }
+    }
+
+    /**
+     * Compact the table by rehashing with a capacity just larger than current size
+     * and giving consideration to the load factor.
+     */
+    public void compact()
+    {
+        final int idealCapacity = (int)Math.round(size() * (1.0d / loadFactor));
+        rehash(findNextPositivePowerOfTwo(Math.max(MIN_CAPACITY, idealCapacity)));
+    }
+
+    /**
+     * Primitive specialised version of {@link #computeIfAbsent(Object, java.util.function.Function)}
+     *
+     * @param key             to search on.
+     * @param mappingFunction to provide a value if the get returns null.
+     * @return the value if found otherwise the missing value.
+     */
+    public int computeIfAbsent(final int key, final IntUnaryOperator mappingFunction)
+    {
+        int value = get(key);
+        if (value == missingValue)
+        {
+            value = mappingFunction.applyAsInt(key);
+            if (value != missingValue)
+            {
+                put(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Add {@code delta} to the value associated with a key, treating an absent key as having the
+     * value zero. A key whose value becomes zero is removed, as in {@link Int2IntHashMap#addAndGet(int, int)}.
+     *
+     * @param key   lookup key
+     * @param delta to add to the value
+     * @return the new value associated with key, which is zero if it has been removed.
+     * @throws IllegalArgumentException if the new value would be missingValue
+     */
+    public int addAndGet(final int key, final int delta)
+    {
+        final OffHeapIntTable table = table();
+        final int missingValue = this.missingValue;
+        final int mask = capacity - 1;
+        int slot = Hashing.hash(key, mask);
+
+        int oldValue;
+        while ((oldValue = table.getInt(valueIndex(slot))) != missingValue)
+        {
+            if (table.getInt(keyIndex(slot)) == key)
+            {
+                break;
+            }
+
+            slot = next(slot, mask);
+        }
+
+        final boolean found = oldValue != missingValue;
+        final int newValue = (found ? oldValue : 0) + delta;
+        if (0 == newValue)
+        {
+            if (found)
+            {
+                table.putInt(valueIndex(slot), missingValue);
+                size--;
+                compactChain(slot);
+            }
+        }
+        else if (newValue == missingValue)
+        {
+            throw new IllegalArgumentException("cannot accept missingValue");
+        }
+        else
+        {
+            table.putInt(valueIndex(slot), newValue);
+            if (!found)
+            {
+                ++size;
+                table.putInt(keyIndex(slot), key);
+                increaseCapacity();
+            }
+        }
+
+        return newValue;
+    }
+
+    /**
+     * Add {@code delta} to the value of a key as {@link #addAndGet(int, int)} does.
+     *
+     * @param key   lookup key
+     * @param delta to add to the value
+     * @return the previous value associated with key, which is zero if it was absent.
+     * @throws IllegalArgumentException if the new value would be missingValue
+     */
+    public int getAndAdd(final int key, final int delta)
+    {
+        return addAndGet(key, delta) - delta;
+    }
+
+    /**
+     * Equivalent to {@code addAndGet(key, 1)}.
+     *
+     * @param key lookup key
+     * @return the new value associated with key.
+     */
+    public int increment(final int key)
+    {
+        return addAndGet(key, 1);
+    }
+
+    public int remove(final int key)
+    {
+        final OffHeapIntTable table = table();
+        final int missingValue = this.missingValue;
+        final int mask = capacity - 1;
+        int slot = Hashing.hash(key, mask);
+
+        int oldValue;
+        while ((oldValue = table.getInt(valueIndex(slot))) != missingValue)
+        {
+            if (table.getInt(keyIndex(slot)) == key)
+            {
+                table.putInt(valueIndex(slot), missingValue);
+                size--;
+
+                compactChain(slot);
+
+                break;
+            }
+
+            slot = next(slot, mask);
+        }
+
+        return oldValue;
+    }
+
+    @SuppressWarnings("FinalParameters")
+    private void compactChain(int deleteSlot)
+    {
+        final OffHeapIntTable table = this.table;
+        final int missingValue = this.missingValue;
+        final int mask = capacity - 1;
+        int slot = deleteSlot;
+
+        while (true)
+        {
+            slot = next(slot, mask);
+            final int value = table.getInt(valueIndex(slot));
+            if (value == missingValue)
+            {
+                break;
+            }
+
+            final int key = table.getInt(keyIndex(slot));
+            final int hash = Hashing.hash(key, mask);
+
+            if ((slot < hash && (hash <= deleteSlot || deleteSlot <= slot)) ||
+                (hash <= deleteSlot && deleteSlot <= slot))
+            {
+                table.putInt(keyIndex(deleteSlot), key);
+                table.putInt(valueIndex(deleteSlot), value);
+
+                table.putInt(valueIndex(slot), missingValue);
+                deleteSlot = slot;
+            }
+        }
+    }
+
+    /**
+     * Get the minimum value stored in the map. If the map is empty then it will return {@link #missingValue()}
+     *
+     * @return the minimum value stored in the map.
+     */
+    public int minValue()
+    {
+        final int missingValue = this.missingValue;
+        int min = size == 0 ? missingValue : Integer.MAX_VALUE;
+
+        final OffHeapIntTable table = table();
+        for (int slot = 0, capacity = this.capacity; slot < capacity; slot++)
+        {
+            final int value = table.getInt(valueIndex(slot));
+            if (value != missingValue)
+            {
+                min = Math.min(min, value);
+            }
+        }
+
+        return min;
+    }
+
+    /**
+     * Get the maximum value stored in the map. If the map is empty then it will return {@link #missingValue()}
+     *
+     * @return the maximum value stored in the map.
+     */
+    public int maxValue()
+    {
+        final int missingValue = this.missingValue;
+        int max = size == 0 ? missingValue : Integer.MIN_VALUE;
+
+        final OffHeapIntTable table = table();
+        for (int slot = 0, capacity = this.capacity; slot < capacity; slot++)
+        {
+            final int value = table.getInt(valueIndex(slot));
+            if (value != missingValue)
+            {
+                max = Math.max(max, value);
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Primitive specialised version of {@link #replace(Object, Object)}
+     *
+     * @param key key with which the specified value is associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@link #missingValue()} if there was no mapping for the key.
+     */
+    public int replace(final int key, final int value)
+    {
+        int curValue = get(key);
+        if (curValue != missingValue)
+        {
+            curValue = put(key, value);
+        }
+
+        return curValue;
+    }
+
+    /**
+     * Primitive specialised version of {@link #replace(Object, Object, Object)}
+     *
+     * @param key key with which the specified value is associated
+     * @param oldValue value expected to be associated with the specified key
+     * @param newValue value to be associated with the specified key
+     * @return {@code true} if the value was replaced
+     */
+    public boolean replace(final int key, final int oldValue, final int newValue)
+    {
+        final int curValue = get(key);
+        if (curValue != oldValue || curValue == missingValue)
+        {
+            return false;
+        }
+
+        put(key, newValue);
+
+        return true;
+    }
+
+    /**
+     * Write the header of a map mapped from a file and force its changes to storage, so that the file is a snapshot of
+     * the map. Does nothing for a map in direct memory.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public void flush() throws IOException
+    {
+        table().flush(header());
+    }
+
+    /**
+     * Write a snapshot of the map to a file, replacing any existing file, which can be opened with {@link #map(Path)}
+     * or {@link #load(Path)}. The table is written as it is, so a snapshot takes as long as copying the file.
+     *
+     * @param file to write to.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeTo(final Path file) throws IOException
+    {
+        table().writeTo(file, header());
+    }
+
+    /**
+     * Release the memory of the table and, for a map mapped from a file, flush and close the file. The map must not be
+     * used afterwards, apart from calling this method again, which does nothing.
+     *
+     * @throws UncheckedIOException if the file of a mapped map cannot be written.
+     */
+    public void close()
+    {
+        final OffHeapIntTable table = this.table;
+        if (null != table)
+        {
+            this.table = null;
+            try
+            {
+                try
+                {
+                    table.flush(header());
+                }
+                finally
+                {
+                    table.close();
+                }
+            }
+            catch (final IOException ex)
+            {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    // ---------------- Boxed Versions Below ----------------
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer get(final Object key)
+    {
+        return key instanceof Integer ? valOrNull(get((int)key)) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer put(final Integer key, final Integer value)
+    {
+        return valOrNull(put((int)key, (int)value));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void forEach(final BiConsumer<? super Integer, ? super Integer> action)
+    {
+        intForEach(action::accept);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKey(final Object key)
+    {
+        return key instanceof Integer && containsKey((int)key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsValue(final Object value)
+    {
+        return value instanceof Integer && containsValue((int)value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer remove(final Object key)
+    {
+        return key instanceof Integer ? valOrNull(remove((int)key)) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public KeySet keySet()
+    {
+        if (null == keySet)
+        {
+            keySet = new KeySet();
+        }
+
+        return keySet;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Values values()
+    {
+        if (null == values)
+        {
+            values = new Values();
+        }
+
+        return values;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Set<Entry<Integer, Integer>> entrySet()
+    {
+        if (null == entrySet)
+        {
+            entrySet = new EntrySet();
+        }
+
+        return entrySet;
+    }
+
+    private OffHeapIntTable table()
+    {
+        final OffHeapIntTable table = this.table;
+        if (null == table)
+        {
+            throw new IllegalStateException("map has been closed");
+        }
+
+        return table;
+    }
+
+    private ByteBuffer header()
+    {
+        final ByteBuffer header = OffHeapIntTable.newHeader();
+        header.putInt(OffHeapIntTable.MAGIC_OFFSET, MAGIC);
+        header.putInt(OffHeapIntTable.CAPACITY_OFFSET, capacity);
+        header.putInt(OffHeapIntTable.SIZE_OFFSET, size);
+        header.putInt(OffHeapIntTable.EXTRA_OFFSET, missingValue);
+        header.putFloat(OffHeapIntTable.LOAD_FACTOR_OFFSET, loadFactor);
+
+        return header;
+    }
+
+    private static long keyIndex(final int slot)
+    {
+        return (long)slot << 1;
+    }
+
+    private static long valueIndex(final int slot)
+    {
+        return ((long)slot << 1) + 1;
+    }
+
+    private static int next(final int slot, final int mask)
+    {
+        return (slot + 1) & mask;
+    }
+
+    private void capacity(final int newCapacity)
+    {
+        capacity = newCapacity;
+        resizeThreshold = (int)(newCapacity * loadFactor);
+    }
+
+    private Integer valOrNull(final int value)
+    {
+        return value == missingValue ? null : value;
+    }
+
+    // ---------------- Utility Classes ----------------
+
+    abstract class AbstractIterator
+    {
+        protected boolean isPositionValid = false;
+        private int remaining;
+        // long, as the counters run up to twice the capacity
+        private long positionCounter;
+        private long stopCounter;
+
+        final void reset()
+        {
+            isPositionValid = false;
+            remaining = OffHeapInt2IntHashMap.this.size;
+            final OffHeapIntTable table = table();
+            final int missingValue = OffHeapInt2IntHashMap.this.missingValue;
+            final int capacity = OffHeapInt2IntHashMap.this.capacity;
+
+            int slot = capacity;
+            if (table.getInt(valueIndex(capacity - 1)) != missingValue)
+            {
+                for (slot = 0; slot < capacity; slot++)
+                {
+                    if (table.getInt(valueIndex(slot)) == missingValue)
+                    {
+                        break;
+                    }
+                }
+            }
+
+            stopCounter = slot;
+            positionCounter = (long)slot + capacity;
+        }
+
+        protected final int slot()
+        {
+            return (int)positionCounter & (capacity - 1);
+        }
+
+        public int remaining()
+        {
+            return remaining;
+        }
+
+        public boolean hasNext()
+        {
+            return remaining > 0;
+        }
+
+        protected final void findNext()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+
+            final OffHeapIntTable table = table();
+            final int missingValue = OffHeapInt2IntHashMap.this.missingValue;
+            final int mask = capacity - 1;
+
+            for (long counter = positionCounter - 1; counter >= stopCounter; counter--)
+            {
+                if (table.getInt(valueIndex((int)counter & mask)) != missingValue)
+                {
+                    isPositionValid = true;
+                    positionCounter = counter;
+                    --remaining;
+                    return;
+                }
+            }
+
+            isPositionValid = false;
+            throw new IllegalStateException();
+        }
+
+        public void remove()
+        {
+            if (isPositionValid)
+            {
+                final int slot = slot();
+                table().putInt(valueIndex(slot), missingValue);
+                --size;
+
+                compactChain(slot);
+
+                isPositionValid = false;
+            }
+            else
+            {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    public final class KeyIterator extends AbstractIterator implements Iterator<Integer>
+    {
+        public Integer next()
+        {
+            return nextValue();
+        }
+
+        public int nextValue()
+        {
+            findNext();
+
+            return table().getInt(keyIndex(slot()));
+        }
+    }
+
+    public final class ValueIterator extends AbstractIterator implements Iterator<Integer>
+    {
+        public Integer next()
+        {
+            return nextValue();
+        }
+
+        public int nextValue()
+        {
+            findNext();
+
+            return table().getInt(valueIndex(slot()));
+        }
+    }
+
+    public final class EntryIterator extends AbstractIterator implements Iterator<Entry<Integer, Integer>>
+    {
+        public Entry<Integer, Integer> next()
+        {
+            findNext();
+
+            final OffHeapIntTable table = table();
+            final int slot = slot();
+            final int key = table.getInt(keyIndex(slot));
+
+            return new SimpleEntry<Integer, Integer>(key, table.getInt(valueIndex(slot)))
+            {
+                public Integer setValue(final Integer value)
+                {
+                    super.setValue(value);
+                    return OffHeapInt2IntHashMap.this.put(key, value.intValue());
+                }
+            };
+        }
+    }
+
+    public final class KeySet extends AbstractSet<Integer>
+    {
+        /**
+         * {@inheritDoc}
+         */
+        public KeyIterator iterator()
+        {
+            final KeyIterator keyIterator = new KeyIterator();
+            keyIterator.reset();
+            return keyIterator;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public int size()
+        {
+            return OffHeapInt2IntHashMap.this.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean isEmpty()
+        {
+            return OffHeapInt2IntHashMap.this.isEmpty();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void clear()
+        {
+            OffHeapInt2IntHashMap.this.clear();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean contains(final Object o)
+        {
+            return containsKey(o);
+        }
+
+        public boolean contains(final int key)
+        {
+            return containsKey(key);
+        }
+    }
+
+    public final class Values extends AbstractCollection<Integer>
+    {
+        /**
+         * {@inheritDoc}
+         */
+        public ValueIterator iterator()
+        {
+            final ValueIterator valueIterator = new ValueIterator();
+            valueIterator.reset();
+            return valueIterator;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public int size()
+        {
+            return OffHeapInt2IntHashMap.this.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean contains(final Object o)
+        {
+            return containsValue(o);
+        }
+
+        public boolean contains(final int value)
+        {
+            return containsValue(value);
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<Integer, Integer>>
+    {
+        /**
+         * {@inheritDoc}
+         */
+        public EntryIterator iterator()
+        {
+            final EntryIterator entryIterator = new EntryIterator();
+            entryIterator.reset();
+            return entryIterator;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public int size()
+        {
+            return OffHeapInt2IntHashMap.this.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean isEmpty()
+        {
+            return OffHeapInt2IntHashMap.this.isEmpty();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void clear()
+        {
+            OffHeapInt2IntHashMap.this.clear();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean contains(final Object o)
+        {
+            if (!(o instanceof Entry))
+            {
+                return false;
+            }
+
+            final Entry<?, ?> entry = (Entry<?, ?>)o;
+            final Integer value = get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,784 @@
+/*
+ * Copyright 2014-2018 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.common.collect;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static com.google.common.BitUtil.findNextPositivePowerOfTwo;
+import static com.google.common.collect.CollectionUtil.checkElementNotNull;
+import static com.google.common.collect.CollectionUtil.validateLoadFactor;
+
+/**
+ * A variant of {@link IntHashSet} whose table lives outside the Java heap, in direct memory or in a memory-mapped
+ * file, so that a set of hundreds of millions of values neither needs a humongous array on the heap nor is copied or
+ * scanned by the garbage collector. It uses the same open addressing with linear probing, and the same API.
+ * <p>
+ * A set created by a constructor or by {@link #load(Path)} keeps its table in direct memory. A set created by
+ * {@link #create(Path, int, float)} or {@link #map(Path)} keeps its table in the given file, which is then a snapshot
+ * in the format written by {@link #writeTo(Path)} once {@link #flush()} or {@link #close()} returns. When a mapped set
+ * grows, its values are rehashed into a new file alongside, which then replaces the old one.
+ * <p>
+ * The memory is released by {@link #close()}, after which the set must not be used; until then it is only released
+ * when the set is garbage collected. This class is not thread-safe.
+ *
+ * @see IntHashSet
+ */
+public class OffHeapIntHashSet extends AbstractSet<Integer> implements Closeable
+{
+    /**
+     * The initial capacity used when none is specified in the constructor.
+     */
+    public static final int DEFAULT_INITIAL_CAPACITY = 8;
+
+    /**
+     * The largest capacity, at which the table takes 4 GiB.
+     */
+    public static final int MAX_CAPACITY = 1 << 30;
+
+    static final int MISSING_VALUE = 0;
+
+    private static final int MAGIC = 0x4F494853;
+
+    private final float loadFactor;
+    private boolean containsMissingValue;
+    private int capacity;
+    private int resizeThreshold;
+    // NB: excludes missing value
+    private int sizeOfArrayValues;
+
+    private OffHeapIntTable table;
+
+    /**
+     * Construct a hash set in direct memory with {@link #DEFAULT_INITIAL_CAPACITY} and
+     * {@link Hashing#DEFAULT_LOAD_FACTOR}.
+     */
+    public OffHeapIntHashSet()
+    {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Construct a hash set in direct memory with a proposed capacity and {@link Hashing#DEFAULT_LOAD_FACTOR}.
+     *
+     * @param proposedCapacity for the initial capacity of the set.
+     */
+    public OffHeapIntHashSet(final int proposedCapacity)
+    {
+        this(proposedCapacity, Hashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Construct a hash set in direct memory with a proposed initial capacity and load factor.
+     *
+     * @param proposedCapacity for the initial capacity of the set.
+     * @param loadFactor       to be used for resizing.
+     */
+    public OffHeapIntHashSet(final int proposedCapacity, final float loadFactor)
+    {
+        this(capacityFor(proposedCapacity), loadFactor, 0, false);
+        table = OffHeapIntTable.allocate(capacity);
+    }
+
+    private OffHeapIntHashSet(
+        final int capacity,
+        final float loadFactor,
+        final int sizeOfArrayValues,
+        final boolean containsMissingValue)
+    {
+        validateLoadFactor(loadFactor);
+
+        this.loadFactor = loadFactor;
+        this.sizeOfArrayValues = sizeOfArrayValues;
+        this.containsMissingValue = containsMissingValue;
+        capacity(capacity);
+    }
+
+    /**
+     * Create an empty hash set whose table is mapped from a file, replacing any existing file.
+     *
+     * @param file             to hold the table.
+     * @param proposedCapacity for the initial capacity of the set.
+     * @param loadFactor       to be used for resizing.
+     * @return the new set.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public static OffHeapIntHashSet create(final Path file, final int proposedCapacity, final float loadFactor)
+        throws IOException
+    {
+        final OffHeapIntHashSet set = new OffHeapIntHashSet(capacityFor(proposedCapacity), loadFactor, 0, false);
+        set.table = OffHeapIntTable.create(file, set.capacity);
+        set.flush();
+
+        return set;
+    }
+
+    /**
+     * Open a snapshot written by {@link #writeTo(Path)} or a set mapped from a file, mapping the table from the file
+     * rather than reading it, so that opening a set takes no time and the pages of the table are read on demand.
+     *
+     * @param file holding the snapshot.
+     * @return the set, whose changes are written through to the file.
+     * @throws IOException if the file cannot be mapped or is not a snapshot of a set.
+     */
+    public static OffHeapIntHashSet map(final Path file) throws IOException
+    {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final OffHeapIntHashSet set;
+        try
+        {
+            set = fromHeader(OffHeapIntTable.readHeader(channel, MAGIC));
+        }
+        catch (final IOException | RuntimeException ex)
+        {
+            channel.close();
+            throw ex;
+        }
+        set.table = OffHeapIntTable.map(file, channel, set.capacity);
+
+        return set;
+    }
+
+    /**
+     * Read a snapshot written by {@link #writeTo(Path)} or a set mapped from a file into direct memory.
+     *
+     * @param file holding the snapshot.
+     * @return the set, which is independent of the file.
+     * @throws IOException if the file cannot be read or is not a snapshot of a set.
+     */
+    public static OffHeapIntHashSet load(final Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            final OffHeapIntHashSet set = fromHeader(OffHeapIntTable.readHeader(channel, MAGIC));
+            set.table = OffHeapIntTable.allocate(set.capacity);
+            try
+            {
+                set.table.readFrom(channel);
+            }
+            catch (final IOException | RuntimeException ex)
+            {
+                set.close();
+                throw ex;
+            }
+
+            return set;
+        }
+    }
+
+    private static OffHeapIntHashSet fromHeader(final ByteBuffer header) throws IOException
+    {
+        final int capacity = header.getInt(OffHeapIntTable.CAPACITY_OFFSET);
+        if (capacity < DEFAULT_INITIAL_CAPACITY || capacity > MAX_CAPACITY)
+        {
+            throw new IOException("invalid capacity in snapshot: " + capacity);
+        }
+
+        return new OffHeapIntHashSet(
+            capacity,
+            header.getFloat(OffHeapIntTable.LOAD_FACTOR_OFFSET),
+            header.getInt(OffHeapIntTable.SIZE_OFFSET),
+            header.getInt(OffHeapIntTable.EXTRA_OFFSET) != 0);
+    }
+
+    private static int capacityFor(final int proposedCapacity)
+    {
+        if (proposedCapacity > MAX_CAPACITY)
+        {
+            throw new IllegalArgumentException("proposed capacity exceeds " + MAX_CAPACITY + ": " + proposedCapacity);
+        }
+
+        return findNextPositivePowerOfTwo(Math.max(DEFAULT_INITIAL_CAPACITY, proposedCapacity));
+    }
+
+    /**
+     * Get the load factor beyond which the set will increase size.
+     *
+     * @return load factor for when the set should increase size.
+     */
+    public float loadFactor()
+    {
+        return loadFactor;
+    }
+
+    /**
+     * Get the total capacity for the set to which the load factor with be a fraction of.
+     *
+     * @return the total capacity for the set.
+     */
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Get the actual threshold which when reached the map will resize.
+     * This is a function of the current capacity and load factor.
+     *
+     * @return the threshold when the map will resize.
+     */
+    public int resizeThreshold()
+    {
+        return resizeThreshold;
+    }
+
+    /**
+     * Get the number of bytes of off-heap memory, or of the file, taken by the table.
+     *
+     * @return the size of the table in bytes.
+     */
+    public long tableBytes()
+    {
+        return (long)capacity << 2;
+    }
+
+    /**
+     * @return whether the table is mapped from a file rather than held in direct memory.
+     */
+    public boolean isMapped()
+    {
+        return table().isMapped();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean add(final Integer value)
+    {
+        checkElementNotNull(value);
+        return add(value.intValue());
+    }
+
+    /**
+     * Primitive specialised overload of {this#add(Integer)}
+     *
+     * @param value the value to add
+     * @return true if the collection has changed, false otherwise
+     */
+    public boolean add(final int value)
+    {
+        if (value == MISSING_VALUE)
+        {
+            final boolean previousContainsMissingValue = this.containsMissingValue;
+            containsMissingValue = true;
+            return !previousContainsMissingValue;
+        }
+
+        final OffHeapIntTable table = table();
+        final int mask = capacity - 1;
+        int index = Hashing.hash(value, mask);
+
+        int candidate;
+        while ((candidate = table.getInt(index)) != MISSING_VALUE)
+        {
+            if (candidate == value)
+            {
+                return false;
+            }
+
+            index = next(index, mask);
+        }
+
+        table.putInt(index, value);
+        sizeOfArrayValues++;
+
+        if (sizeOfArrayValues > resizeThreshold)
+        {
+            increaseCapacity();
+        }
+
+        return true;
+    }
+
+    private void increaseCapacity()
+    {
+        final int newCapacity = capacity * 2;
+        if (newCapacity > MAX_CAPACITY || newCapacity < 0)
+        {
+            throw new IllegalStateException("max capacity reached at size=" + size());
+        }
+
+        rehash(newCapacity);
+    }
+
+    private void rehash(final int newCapacity)
+    {
+        final OffHeapIntTable oldTable = table();
+        final int oldCapacity = capacity;
+        try
+        {
+            final OffHeapIntTable newTable = oldTable.allocateLike(newCapacity);
+            try
+            {
+                final int mask = newCapacity - 1;
+
+                for (int i = 0; i < oldCapacity; i++)
+                {
+                    final int value = oldTable.getInt(i);
+                    if (value != MISSING_VALUE)
+                    {
+                        int newHash = Hashing.hash(value, mask);
+                        while (newTable.getInt(newHash) != MISSING_VALUE)
+                        {
+                            newHash = ++newHash & mask;
+                        }
+
+                        newTable.putInt(newHash, value);
+                    }
+                }
+            }
+            catch (final RuntimeException | Error ex)
+            {
+                try
+                {
+                    newTable.close();
+                }
+                catch (final IOException closeEx)
+                {
+                    ex.addSuppressed(closeEx);
+                }
+                throw ex;
+            }
+
+            capacity(newCapacity);
+            try
+            {
+                newTable.replace(oldTable, header());
+            }
+            catch (final IOException ex)
+            {
+                capacity(oldCapacity);
+                newTable.close();
+                throw ex;
+            }
+            table = newTable;
+        }
+        catch (final IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean remove(final Object value)
+    {
+        return value instanceof Integer && remove(((Integer)value).intValue());
+    }
+
+    /**
+     * An int specialised version of {this#remove(Object)}.
+     *
+     * @param value the value to remove
+     * @return true if the value was present, false otherwise
+     */
+    public boolean remove(final int value)
+    {
+        if (value == MISSING_VALUE)
+        {
+            final boolean previousContainsMissingValue = this.containsMissingValue;
+            containsMissingValue = false;
+            return previousContainsMissingValue;
+        }
+
+        final OffHeapIntTable table = table();
+        final int mask = capacity - 1;
+        int index = Hashing.hash(value, mask);
+
+        int candidate;
+        while ((candidate = table.getInt(index)) != MISSING_VALUE)
+        {
+            if (candidate == value)
+            {
+                table.putInt(index, MISSING_VALUE);
+                compactChain(index);
+                sizeOfArrayValues--;
+                return true;
+            }
+
+            index = next(index, mask);
+        }
+
+        return false;
+    }
+
+    private static int next(final int index, final int mask)
+    {
+        return (index + 1) & mask;
+    }
+
+    @SuppressWarnings("FinalParameters")
+    private void compactChain(int deleteIndex)
+    {
+        final OffHeapIntTable table = this.table;
+        final int mask = capacity - 1;
+
+        int index = deleteIndex;
+        while (true)
+        {
+            index = next(index, mask);
+            final int value = table.getInt(index);
+            if (value == MISSING_VALUE)
+            {
+                return;
+            }
+
+            final int hash = Hashing.hash(value, mask);
+
+            if ((index < hash && (hash <= deleteIndex || deleteIndex <= index)) ||
+                (hash <= deleteIndex && deleteIndex <= index))
+            {
+                table.putInt(deleteIndex, value);
+
+                table.putInt(index, MISSING_VALUE);
+                deleteIndex = index;
+            }
+        }
+    }
+
+    /**
+     * Compact the table by rehashing with a capacity just larger than current size
+     * and giving consideration to the load factor.
+     */
+    public void compact()
+    {
+        final int idealCapacity = (int)Math.round(size() * (1.0 / loadFactor));
+        rehash(findNextPositivePowerOfTwo(Math.max(DEFAULT_INITIAL_CAPACITY, idealCapacity)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(final Object value)
+    {
+        return value instanceof Integer && contains(((Integer)value).intValue());
+    }
+
+    /**
+     * Primitive specialised overload of {this#contains(Object)}
+     *
+     * @param value to be checked.
+     * @return true if the value is in the set, false otherwise
+     */
+    public boolean contains(final int value)
+    {
+        if (value == MISSING_VALUE)
+        {
+            return containsMissingValue;
+        }
+
+        final OffHeapIntTable table = table();
+        final int mask = capacity - 1;
+        int index = Hashing.hash(value, mask);
+
+        int candidate;
+        while ((candidate = table.getInt(index)) != MISSING_VALUE)
+        {
+            if (candidate == value)
+            {
+                return true;
+            }
+
+            index = next(index, mask);
+        }
+
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size()
+    {
+        return sizeOfArrayValues + (containsMissingValue ? 1 : 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void clear()
+    {
+        if (size() > 0)
+        {
+            table().fill(MISSING_VALUE);
+            sizeOfArrayValues = 0;
+            containsMissingValue = false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean addAll(final Collection<? extends Integer> coll)
+    {
+        boolean added = false;
+
+        for (final Integer value : coll)
+        {
+            added |= add(value);
+        }
+
+        return added;
+    }
+
+    /**
+     * Alias for {@link #addAll(Collection)} for the specialized case when adding an IntHashSet, avoiding boxing.
+     *
+     * @param coll containing the values to be added.
+     * @return {@code true} if this set changed as a result of the call
+     */
+    public boolean addAll(final IntHashSet coll)
+    {
+        boolean acc = false;
+
+        for (final IntHashSet.IntIterator iterator = coll.iterator(); iterator.hasNext(); )
+        {
+            acc |= add(iterator.nextValue());
+        }
+
+        return acc;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public IntIterator iterator()
+    {
+        return new IntIterator().reset();
+    }
+
+    /**
+     * Write the header of a set mapped from a file and force its changes to storage, so that the file is a snapshot of
+     * the set. Does nothing for a set in direct memory.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public void flush() throws IOException
+    {
+        table().flush(header());
+    }
+
+    /**
+     * Write a snapshot of the set to a file, replacing any existing file, which can be opened with {@link #map(Path)}
+     * or {@link #load(Path)}. The table is written as it is, so a snapshot takes as long as copying the file.
+     *
+     * @param file to write to.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeTo(final Path file) throws IOException
+    {
+        table().writeTo(file, header());
+    }
+
+    /**
+     * Release the memory of the table and, for a set mapped from a file, flush and close the file. The set must not be
+     * used afterwards, apart from calling this method again, which does nothing.
+     *
+     * @throws UncheckedIOException if the file of a mapped set cannot be written.
+     */
+    public void close()
+    {
+        final OffHeapIntTable table = this.table;
+        if (null != table)
+        {
+            this.table = null;
+            try
+            {
+                try
+                {
+                    table.flush(header());
+                }
+                finally
+                {
+                    table.close();
+                }
+            }
+            catch (final IOException ex)
+            {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    private OffHeapIntTable table()
+    {
+        final OffHeapIntTable table = this.table;
+        if (null == table)
+        {
+            throw new IllegalStateException("set has been closed");
+        }
+
+        return table;
+    }
+
+    private ByteBuffer header()
+    {
+        final ByteBuffer header = OffHeapIntTable.newHeader();
+        header.putInt(OffHeapIntTable.MAGIC_OFFSET, MAGIC);
+        header.putInt(OffHeapIntTable.CAPACITY_OFFSET, capacity);
+        header.putInt(OffHeapIntTable.SIZE_OFFSET, sizeOfArrayValues);
+        header.putInt(OffHeapIntTable.EXTRA_OFFSET, containsMissingValue ? 1 : 0);
+        header.putFloat(OffHeapIntTable.LOAD_FACTOR_OFFSET, loadFactor);
+
+        return header;
+    }
+
+    private void capacity(final int newCapacity)
+    {
+        capacity = newCapacity;
+        resizeThreshold = (int)(newCapacity * loadFactor);
+    }
+
+    public final class IntIterator implements Iterator<Integer>
+    {
+        private int remaining;
+        // long, as the counters run up to twice the capacity
+        private long positionCounter;
+        private long stopCounter;
+        private boolean isPositionValid = false;
+
+        IntIterator reset()
+        {
+            this.remaining = size();
+
+            final OffHeapIntTable table = table();
+            final int length = capacity;
+            int i = length;
+
+            if (table.getInt(length - 1) != MISSING_VALUE)
+            {
+                for (i = 0; i < length; i++)
+                {
+                    if (table.getInt(i) == MISSING_VALUE)
+                    {
+                        break;
+                    }
+                }
+            }
+
+            stopCounter = i;
+            positionCounter = (long)i + length;
+            isPositionValid = false;
+
+            return this;
+        }
+
+        public boolean hasNext()
+        {
+            return remaining > 0;
+        }
+
+        public int remaining()
+        {
+            return remaining;
+        }
+
+        public Integer next()
+        {
+            return nextValue();
+        }
+
+        /**
+         * Strongly typed alternative of {@link Iterator#next()} to avoid boxing.
+         *
+         * @return the next int value.
+         */
+        public int nextValue()
+        {
+            if (remaining == 1 && containsMissingValue)
+            {
+                remaining = 0;
+                isPositionValid = true;
+
+                return MISSING_VALUE;
+            }
+
+            findNext();
+
+            return table().getInt(position());
+        }
+
+        public void remove()
+        {
+            if (isPositionValid)
+            {
+                if (0 == remaining && containsMissingValue)
+                {
+                    containsMissingValue = false;
+                }
+                else
+                {
+                    final int position = position();
+                    table().putInt(position, MISSING_VALUE);
+                    --sizeOfArrayValues;
+
+                    compactChain(position);
+                }
+
+                isPositionValid = false;
+            }
+            else
+            {
+                throw new IllegalStateException();
+            }
+        }
+
+        private void findNext()
+        {
+            final OffHeapIntTable table = table();
+            final int mask = capacity - 1;
+            isPositionValid = true;
+
+            for (long i = positionCounter - 1; i >= stopCounter; i--)
+            {
+                final int index = (int)i & mask;
+                if (table.getInt(index) != MISSING_VALUE)
+                {
+                    positionCounter = i;
+                    --remaining;
+                    return;
+                }
+            }
+
+            isPositionValid = false;
+            throw new NoSuchElementException();
+        }
+
+        private int position()
+        {
+            return (int)positionCounter & (capacity - 1);
+        }
+    }
+}
@@ -0,0 +1,440 @@
+/*
+ * Copyright 2014-2018 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.common.collect;
+
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import static com.google.common.BitUtil.CACHE_LINE_LENGTH;
+import static com.google.common.BitUtil.SIZE_OF_INT;
+import static com.google.common.BitUtil.align;
+import static com.google.common.BitUtil.isPowerOfTwo;
+
+/**
+ * A fixed length table of int slots held outside the Java heap, either in direct {@link ByteBuffer}s or in a
+ * memory-mapped file, for {@link OffHeapIntHashSet} and {@link OffHeapInt2IntHashMap}.
+ * <p>
+ * A buffer is indexed by an int, so the slots are split across segments of {@link #SEGMENT_LENGTH} slots, which lets a
+ * table hold more than 2^31 bytes. Slots are little-endian so that snapshots can be read on any platform.
+ * <p>
+ * A snapshot file starts with a header of {@link #HEADER_LENGTH} bytes, written by the owner of the table, followed by
+ * the slots. The header is padded to a cache line so that, as a file is mapped at a page boundary, no slot of a mapped
+ * table straddles a cache line.
+ */
+final class OffHeapIntTable implements Closeable
+{
+    static final int MAGIC_OFFSET = 0;
+    static final int CAPACITY_OFFSET = MAGIC_OFFSET + SIZE_OF_INT;
+    static final int SIZE_OFFSET = CAPACITY_OFFSET + SIZE_OF_INT;
+    /**
+     * A field whose meaning is up to the owner of the table.
+     */
+    static final int EXTRA_OFFSET = SIZE_OFFSET + SIZE_OF_INT;
+    static final int LOAD_FACTOR_OFFSET = EXTRA_OFFSET + SIZE_OF_INT;
+
+    static final int HEADER_LENGTH = align(LOAD_FACTOR_OFFSET + SIZE_OF_INT, CACHE_LINE_LENGTH);
+
+    private static final int SEGMENT_SHIFT = 28;
+
+    /**
+     * The number of slots in each segment but the last, which is a GiB of memory.
+     */
+    static final long SEGMENT_LENGTH = 1L << SEGMENT_SHIFT;
+
+    private static final long SEGMENT_MASK = SEGMENT_LENGTH - 1;
+
+    private static final Consumer<ByteBuffer> FREE = freeFunction();
+
+    private final ByteBuffer[] segments;
+    private final long length;
+    // null unless the table is mapped
+    private Path file;
+    private FileChannel channel;
+
+    private OffHeapIntTable(final ByteBuffer[] segments, final long length, final Path file, final FileChannel channel)
+    {
+        this.segments = segments;
+        this.length = length;
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Allocate a table of zeroed slots in direct memory.
+     *
+     * @param length of the table in slots.
+     * @return the new table.
+     */
+    static OffHeapIntTable allocate(final long length)
+    {
+        final ByteBuffer[] segments = new ByteBuffer[segmentCount(length)];
+        for (int i = 0; i < segments.length; i++)
+        {
+            segments[i] = ByteBuffer.allocateDirect(segmentBytes(length, i)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        return new OffHeapIntTable(segments, length, null, null);
+    }
+
+    /**
+     * Create a table of zeroed slots mapped from a file, replacing any existing file. The header is left for the owner
+     * to write.
+     *
+     * @param file   to hold the table.
+     * @param length of the table in slots.
+     * @return the new table.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    static OffHeapIntTable create(final Path file, final long length) throws IOException
+    {
+        final FileChannel channel = FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+
+        return map(file, channel, length);
+    }
+
+    /**
+     * Map the slots of a snapshot file whose header has been read from {@code channel}, which the table then owns.
+     *
+     * @param file    holding the snapshot.
+     * @param channel open for reading and writing on the file.
+     * @param length  of the table in slots.
+     * @return the mapped table.
+     * @throws IOException if the file is too short or cannot be mapped, in which case the channel is closed.
+     */
+    static OffHeapIntTable map(final Path file, final FileChannel channel, final long length) throws IOException
+    {
+        try
+        {
+            final long requiredSize = HEADER_LENGTH + length * SIZE_OF_INT;
+            if (channel.size() != 0 && channel.size() < requiredSize)
+            {
+                throw new EOFException("snapshot is truncated: " + file);
+            }
+
+            final ByteBuffer[] segments = new ByteBuffer[segmentCount(length)];
+            for (int i = 0; i < segments.length; i++)
+            {
+                final long position = HEADER_LENGTH + i * SEGMENT_LENGTH * SIZE_OF_INT;
+                segments[i] = channel
+                    .map(FileChannel.MapMode.READ_WRITE, position, segmentBytes(length, i))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            return new OffHeapIntTable(segments, length, file, channel);
+        }
+        catch (final IOException | RuntimeException ex)
+        {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Read the header of a snapshot file and check that it was written by the expected owner.
+     *
+     * @param channel open for reading on the file.
+     * @param magic   number expected at the start of the file.
+     * @return the header, positioned at zero.
+     * @throws IOException if the file is not a snapshot of the expected kind.
+     */
+    static ByteBuffer readHeader(final FileChannel channel, final int magic) throws IOException
+    {
+        final ByteBuffer header = newHeader();
+        readFully(channel, header, 0);
+        header.clear();
+
+        final int capacity = header.getInt(CAPACITY_OFFSET);
+        if (header.getInt(MAGIC_OFFSET) != magic || !isPowerOfTwo(capacity) || header.getInt(SIZE_OFFSET) < 0)
+        {
+            throw new IOException("not a snapshot of the expected kind");
+        }
+
+        return header;
+    }
+
+    /**
+     * @return a zeroed buffer for the owner to fill with its header.
+     */
+    static ByteBuffer newHeader()
+    {
+        return ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return the number of slots in the table.
+     */
+    long length()
+    {
+        return length;
+    }
+
+    /**
+     * @return whether the table is mapped from a file rather than held in direct memory.
+     */
+    boolean isMapped()
+    {
+        return null != file;
+    }
+
+    int getInt(final long index)
+    {
+        return segments[(int)(index >>> SEGMENT_SHIFT)].getInt((int)(index & SEGMENT_MASK) << 2);
+    }
+
+    void putInt(final long index, final int value)
+    {
+        segments[(int)(index >>> SEGMENT_SHIFT)].putInt((int)(index & SEGMENT_MASK) << 2, value);
+    }
+
+    /**
+     * Set every slot to a value, a long at a time.
+     *
+     * @param value to set.
+     */
+    void fill(final int value)
+    {
+        final long word = (value & 0xFFFF_FFFFL) | ((long)value << 32);
+        for (final ByteBuffer segment : segments)
+        {
+            for (int i = 0, limit = segment.capacity(); i < limit; i += 8)
+            {
+                segment.putLong(i, word);
+            }
+        }
+    }
+
+    /**
+     * Allocate an empty table in the same kind of memory as this one. A new mapped table is created in a file alongside
+     * this table's file, which it should {@link #replace(OffHeapIntTable, ByteBuffer)} once filled.
+     *
+     * @param length of the table in slots.
+     * @return the new table.
+     * @throws IOException if the file for a mapped table cannot be created.
+     */
+    OffHeapIntTable allocateLike(final long length) throws IOException
+    {
+        return null == file ? allocate(length) : create(file.resolveSibling(file.getFileName() + ".resize"), length);
+    }
+
+    /**
+     * Take the place of a table this one was allocated like, and close it. A mapped table is first flushed with the
+     * given header, then its file is moved over the previous table's file, so the file is complete at every point.
+     *
+     * @param previous table to be replaced.
+     * @param header   for this table.
+     * @throws IOException if this table cannot be flushed or moved, in which case the previous table is left open.
+     */
+    void replace(final OffHeapIntTable previous, final ByteBuffer header) throws IOException
+    {
+        if (null != file)
+        {
+            flush(header);
+            Files.move(file, previous.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            file = previous.file;
+        }
+
+        previous.close();
+    }
+
+    /**
+     * Write the header of a mapped table and force its changes to storage. Does nothing for a table in direct memory.
+     *
+     * @param header to write.
+     * @throws IOException if the file cannot be written.
+     */
+    void flush(final ByteBuffer header) throws IOException
+    {
+        if (null != file)
+        {
+            writeFully(channel, header.duplicate(), 0);
+            for (final ByteBuffer segment : segments)
+            {
+                ((MappedByteBuffer)segment).force();
+            }
+        }
+    }
+
+    /**
+     * Write a snapshot of the table to a file, replacing any existing file. If the file is the one this table is mapped
+     * from then the table is flushed instead.
+     *
+     * @param target to write to.
+     * @param header to start the snapshot with.
+     * @throws IOException if the file cannot be written.
+     */
+    void writeTo(final Path target, final ByteBuffer header) throws IOException
+    {
+        if (null != file && Files.exists(target) && Files.isSameFile(file, target))
+        {
+            flush(header);
+            return;
+        }
+
+        try (FileChannel out = FileChannel.open(
+            target,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE))
+        {
+            writeFully(out, header.duplicate(), 0);
+            long position = HEADER_LENGTH;
+            for (final ByteBuffer segment : segments)
+            {
+                position += writeFully(out, segment.duplicate(), position);
+            }
+        }
+    }
+
+    /**
+     * Read the slots of a snapshot file into this table.
+     *
+     * @param in positioned anywhere in the snapshot file.
+     * @throws IOException if the file cannot be read or is too short.
+     */
+    void readFrom(final FileChannel in) throws IOException
+    {
+        long position = HEADER_LENGTH;
+        for (final ByteBuffer segment : segments)
+        {
+            position += readFully(in, segment.duplicate(), position);
+        }
+    }
+
+    /**
+     * Release the memory of the table, and close the file it is mapped from. The table must not be used afterwards.
+     */
+    public void close() throws IOException
+    {
+        for (int i = 0; i < segments.length; i++)
+        {
+            if (null != segments[i])
+            {
+                FREE.accept(segments[i]);
+                segments[i] = null;
+            }
+        }
+
+        if (null != channel)
+        {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private static int segmentCount(final long length)
+    {
+        return (int)((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    }
+
+    private static int segmentBytes(final long length, final int segment)
+    {
+        return (int)(Math.min(SEGMENT_LENGTH, length - ((long)segment << SEGMENT_SHIFT)) * SIZE_OF_INT);
+    }
+
+    private static int writeFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+        throws IOException
+    {
+        final int length = buffer.remaining();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer, position + length - buffer.remaining());
+        }
+
+        return length;
+    }
+
+    private static int readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+        throws IOException
+    {
+        final int length = buffer.remaining();
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + length - buffer.remaining()) < 0)
+            {
+                throw new EOFException("snapshot is truncated");
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Find a way to release the memory of a direct or mapped buffer without waiting for it to be garbage collected,
+     * which matters when the buffers hold gigabytes, and which for a mapped buffer also releases the file.
+     */
+    private static Consumer<ByteBuffer> freeFunction()
+    {
+        try
+        {
+            // Java 9 and later
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+
+            return (buffer) -> invoke(invokeCleaner, unsafe, buffer);
+        }
+        catch (final ReflectiveOperationException | RuntimeException ignore)
+        {
+        }
+
+        try
+        {
+            // Java 8
+            final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+
+            return (buffer) -> invoke(clean, invoke(cleaner, buffer));
+        }
+        catch (final ReflectiveOperationException | RuntimeException ignore)
+        {
+        }
+
+        // leave the memory to be released when the buffers are garbage collected
+        return (buffer) -> {};
+    }
+
+    private static Object invoke(final Method method, final Object target, final Object... args)
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch (final ReflectiveOperationException ex)
+        {
+            throw new IllegalStateException("cannot release off-heap memory", ex);
+        }
+    }
+}
@@ -104,6 +104,46 @@ public final class Queues {
     return queue;
   }
 
+  // ConcurrentArrayQueue
+
+  /**
+   * Creates an empty, lock-free {@link ConcurrentArrayQueue} with the given (fixed) capacity, which
+   * only one thread at a time may add elements to, and only one thread at a time may remove them
+   * from. This is the cheapest kind of {@code ConcurrentArrayQueue} to pass elements from one
+   * thread to another.
+   *
+   * @throws IllegalArgumentException if {@code capacity} is negative or greater than {@code 2^30}
+   */
+  @Beta
+  @GwtIncompatible // ConcurrentArrayQueue
+  public static <E> ConcurrentArrayQueue<E> newSpscArrayQueue(int capacity) {
+    return new SpscArrayQueue<E>(capacity);
+  }
+
+  /**
+   * Creates an empty, lock-free {@link ConcurrentArrayQueue} with the given (fixed) capacity, which
+   * any number of threads may add elements to, but only one thread at a time may remove them from.
+   *
+   * @throws IllegalArgumentException if {@code capacity} is negative or greater than {@code 2^30}
+   */
+  @Beta
+  @GwtIncompatible // ConcurrentArrayQueue
+  public static <E> ConcurrentArrayQueue<E> newMpscArrayQueue(int capacity) {
+    return new MpscArrayQueue<E>(capacity);
+  }
+
+  /**
+   * Creates an empty, lock-free {@link ConcurrentArrayQueue} with the given (fixed) capacity, which
+   * any number of threads may add elements to and remove them from.
+   *
+   * @throws IllegalArgumentException if {@code capacity} is negative or greater than {@code 2^30}
+   */
+  @Beta
+  @GwtIncompatible // ConcurrentArrayQueue
+  public static <E> ConcurrentArrayQueue<E> newMpmcArrayQueue(int capacity) {
+    return new MpmcArrayQueue<E>(capacity);
+  }
+
   // LinkedBlockingDeque
 
   /**
@@ -0,0 +1,1747 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.CollectPreconditions.checkRemove;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A set of {@code int} values held as a compressed bitmap, in the manner of <a
+ * href="https://arxiv.org/abs/1603.06549">Roaring bitmaps</a>. Values are grouped by their high 16
+ * bits, and the low 16 bits of each group are held in whichever container is smallest: a sorted
+ * {@code char[]} for up to 4096 values, a 65536-bit bitmap for more, or a list of runs for values
+ * that form long consecutive ranges. A set of a million scattered values takes about 2 MB, and a
+ * set of a few ranges takes a few bytes per range, however long they are; an {@link IntHashSet} of
+ * a million values takes 8 MB.
+ *
+ * <p>The set algebra methods {@link #and}, {@link #or}, {@link #andNot} and {@link #xor}, and
+ * their in-place counterparts {@link #retainAll(RoaringIntSet)}, {@link
+ * #addAll(RoaringIntSet)} and {@link #removeAll(RoaringIntSet)}, combine two sets a container at a
+ * time, in time proportional to the size of the containers rather than the number of values.
+ * {@link #rank} and {@link #select} convert between values and their positions in the set, and
+ * {@link #addRange}, {@link #copyOf(RangeSet)} and {@link #toRangeSet} convert to and from ranges
+ * without visiting each value. Mutations may leave ranges in bitmap or array containers; {@link
+ * #runOptimize} converts containers back to runs wherever that is smaller.
+ *
+ * <p>Iteration, {@link #first}, {@link #last} and {@link #toString} follow the signed order of the
+ * values, as in {@code ImmutableSortedSet<Integer>} and {@link RangeSet RangeSet&lt;Integer&gt;}.
+ * The {@link Integer} methods of {@link java.util.Set} box their values; the {@code int} overloads
+ * and {@link #forEachInt} do not.
+ *
+ * <p>{@link #writeTo} writes the set in a little-endian format whose containers can be read in
+ * place, and {@link #map} views such a buffer, typically a {@link java.nio.MappedByteBuffer}, as a
+ * read-only set without copying it to the heap. A mapped set answers {@link #contains(int)} from
+ * the buffer alone, and reads a container onto the heap only while another method visits it.
+ *
+ * <p>This class is not thread-safe.
+ */
+@GwtIncompatible
+public final class RoaringIntSet extends AbstractSet<Integer> implements Serializable {
+  /** The most values an array container holds; a larger container is a bitmap. */
+  private static final int ARRAY_MAX = 4096;
+
+  private static final int BITMAP_WORDS = 1 << 10;
+  private static final int BITMAP_BYTES = BITMAP_WORDS * Long.BYTES;
+
+  private static final int ARRAY = 0;
+  private static final int BITMAP = 1;
+  private static final int RUN = 2;
+
+  private static final int AND = 0;
+  private static final int OR = 1;
+  private static final int AND_NOT = 2;
+  private static final int XOR = 3;
+
+  // "RBIS", followed by the container count and a (key, type, cardinality, offset) descriptor per
+  // container; the data of each container starts at an 8-byte aligned offset
+  private static final int SERIAL_COOKIE = 0x53494252;
+  private static final int HEADER_BYTES = 8;
+  private static final int DESCRIPTOR_BYTES = 12;
+
+  private static final int INITIAL_CONTAINERS = 4;
+
+  private char[] keys;
+  private int containerCount;
+  private long cardinality;
+
+  // exactly one of containers and mapped is non-null; a mapped set keeps its containers in the
+  // buffer, and its types, cardinalities and data offsets on the heap
+  private Container @Nullable [] containers;
+  private final @Nullable ByteBuffer mapped;
+  private final int @Nullable [] types;
+  private final int @Nullable [] cardinalities;
+  private final int @Nullable [] offsets;
+
+  private RoaringIntSet(int expectedContainers) {
+    this.keys = new char[expectedContainers];
+    this.containers = new Container[expectedContainers];
+    this.mapped = null;
+    this.types = null;
+    this.cardinalities = null;
+    this.offsets = null;
+  }
+
+  private RoaringIntSet(
+      ByteBuffer mapped, char[] keys, int[] types, int[] cardinalities, int[] offsets) {
+    this.keys = keys;
+    this.containerCount = keys.length;
+    this.containers = null;
+    this.mapped = mapped;
+    this.types = types;
+    this.cardinalities = cardinalities;
+    this.offsets = offsets;
+    for (int cardinality : cardinalities) {
+      this.cardinality += cardinality;
+    }
+  }
+
+  /** Creates an empty set. */
+  public static RoaringIntSet create() {
+    return new RoaringIntSet(INITIAL_CONTAINERS);
+  }
+
+  /** Returns a new set containing {@code values}. */
+  public static RoaringIntSet of(int... values) {
+    RoaringIntSet set = create();
+    for (int value : values) {
+      set.add(value);
+    }
+    return set;
+  }
+
+  /**
+   * Returns a new, mutable set containing the values of {@code set}, which may be a mapped set.
+   */
+  public static RoaringIntSet copyOf(RoaringIntSet set) {
+    RoaringIntSet copy = new RoaringIntSet(Math.max(INITIAL_CONTAINERS, set.containerCount));
+    for (int i = 0; i < set.containerCount; i++) {
+      copy.append(set.keys[i], set.containerCopy(i));
+    }
+    return copy;
+  }
+
+  /**
+   * Returns a new set containing {@code values}. A {@link ContiguousSet} or {@code RoaringIntSet}
+   * is copied without visiting each value, and an {@link IntHashSet} without boxing them.
+   */
+  public static RoaringIntSet copyOf(Collection<Integer> values) {
+    if (values instanceof RoaringIntSet) {
+      return copyOf((RoaringIntSet) values);
+    }
+    RoaringIntSet set = create();
+    set.addAll(values);
+    return set;
+  }
+
+  /** Returns a new set containing the values in the ranges of {@code rangeSet}. */
+  public static RoaringIntSet copyOf(RangeSet<Integer> rangeSet) {
+    RoaringIntSet set = create();
+    for (Range<Integer> range : rangeSet.asRanges()) {
+      long[] bounds = unsignedBounds(range);
+      if (bounds != null) {
+        set.appendRange(bounds[0], bounds[1]);
+      }
+    }
+    return set;
+  }
+
+  /**
+   * Returns a read-only set backed by the serialized form that {@link #writeTo} wrote at the
+   * position of {@code buffer}. The set reads the buffer in place, so it must not change while the
+   * set is in use; {@link #copyOf(RoaringIntSet)} copies a mapped set to the heap.
+   *
+   * @throws IllegalArgumentException if the buffer does not hold a serialized set
+   */
+  public static RoaringIntSet map(ByteBuffer buffer) {
+    ByteBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    int limit = data.limit();
+    checkArgument(
+        limit >= HEADER_BYTES && data.getInt(0) == SERIAL_COOKIE,
+        "buffer does not hold a serialized RoaringIntSet");
+    int count = data.getInt(4);
+    checkArgument(
+        count >= 0 && count <= 1 << 16 && HEADER_BYTES + (long) count * DESCRIPTOR_BYTES <= limit,
+        "corrupt container count %s",
+        count);
+    char[] keys = new char[count];
+    int[] types = new int[count];
+    int[] cardinalities = new int[count];
+    int[] offsets = new int[count];
+    for (int i = 0; i < count; i++) {
+      int descriptor = HEADER_BYTES + i * DESCRIPTOR_BYTES;
+      keys[i] = data.getChar(descriptor);
+      types[i] = data.getChar(descriptor + 2);
+      cardinalities[i] = data.getInt(descriptor + 4);
+      offsets[i] = data.getInt(descriptor + 8);
+      checkArgument(i == 0 || keys[i] > keys[i - 1], "keys out of order at container %s", i);
+      checkArgument(
+          cardinalities[i] > 0 && cardinalities[i] <= 1 << 16,
+          "corrupt cardinality in container %s",
+          i);
+      long end;
+      switch (types[i]) {
+        case ARRAY:
+          checkArgument(cardinalities[i] <= ARRAY_MAX, "corrupt array container %s", i);
+          end = offsets[i] + 2L * cardinalities[i];
+          break;
+        case BITMAP:
+          end = offsets[i] + (long) BITMAP_BYTES;
+          break;
+        case RUN:
+          checkArgument(
+              offsets[i] >= 0 && offsets[i] + 4L <= limit, "corrupt run container %s", i);
+          end = offsets[i] + 4L + 4L * data.getInt(offsets[i]);
+          break;
+        default:
+          throw new IllegalArgumentException("unknown type of container " + i);
+      }
+      checkArgument(offsets[i] >= 0 && end <= limit, "container %s is out of bounds", i);
+    }
+    return new RoaringIntSet(data, keys, types, cardinalities, offsets);
+  }
+
+  /** Returns the intersection of {@code a} and {@code b} as a new, mutable set. */
+  public static RoaringIntSet and(RoaringIntSet a, RoaringIntSet b) {
+    return combine(a, b, AND, false);
+  }
+
+  /** Returns the union of {@code a} and {@code b} as a new, mutable set. */
+  public static RoaringIntSet or(RoaringIntSet a, RoaringIntSet b) {
+    return combine(a, b, OR, false);
+  }
+
+  /** Returns the values of {@code a} that are not in {@code b} as a new, mutable set. */
+  public static RoaringIntSet andNot(RoaringIntSet a, RoaringIntSet b) {
+    return combine(a, b, AND_NOT, false);
+  }
+
+  /** Returns the values in exactly one of {@code a} and {@code b} as a new, mutable set. */
+  public static RoaringIntSet xor(RoaringIntSet a, RoaringIntSet b) {
+    return combine(a, b, XOR, false);
+  }
+
+  /** Returns the number of values in both {@code a} and {@code b}, without building the set. */
+  public static long andCardinality(RoaringIntSet a, RoaringIntSet b) {
+    long cardinality = 0;
+    for (int i = 0, j = 0; i < a.containerCount && j < b.containerCount; ) {
+      if (a.keys[i] < b.keys[j]) {
+        i++;
+      } else if (a.keys[i] > b.keys[j]) {
+        j++;
+      } else {
+        Container c = Container.and(a.container(i++), b.container(j++));
+        cardinality += c == null ? 0 : c.cardinality();
+      }
+    }
+    return cardinality;
+  }
+
+  /** Returns whether {@code a} and {@code b} have any value in common. */
+  public static boolean intersects(RoaringIntSet a, RoaringIntSet b) {
+    for (int i = 0, j = 0; i < a.containerCount && j < b.containerCount; ) {
+      if (a.keys[i] < b.keys[j]) {
+        i++;
+      } else if (a.keys[i] > b.keys[j]) {
+        j++;
+      } else if (Container.and(a.container(i++), b.container(j++)) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns whether this set is a read-only view of a buffer, as returned by {@link #map}. */
+  public boolean isMapped() {
+    return mapped != null;
+  }
+
+  /** Returns the number of values in this set, which may exceed {@link Integer#MAX_VALUE}. */
+  public long cardinality() {
+    return cardinality;
+  }
+
+  /**
+   * Returns the number of values in this set, or {@link Integer#MAX_VALUE} if there are more.
+   *
+   * @see #cardinality()
+   */
+  @Override
+  public int size() {
+    return (int) Math.min(cardinality, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return cardinality == 0;
+  }
+
+  /** Returns whether this set contains {@code value}. */
+  public boolean contains(int value) {
+    int i = keyIndex(high(value));
+    if (i < 0) {
+      return false;
+    }
+    return mapped == null ? containers[i].contains(low(value)) : mappedContains(i, low(value));
+  }
+
+  @Override
+  public boolean contains(@Nullable Object o) {
+    return o instanceof Integer && contains((int) (Integer) o);
+  }
+
+  /** Adds {@code value} to this set, returning whether it was absent. */
+  @CanIgnoreReturnValue
+  public boolean add(int value) {
+    checkMutable();
+    int high = high(value);
+    int i = keyIndex(high);
+    if (i < 0) {
+      insertContainer(-i - 1, high, new ArrayContainer(new char[] {(char) value}, 1));
+    } else {
+      Container container = containers[i];
+      int before = container.cardinality();
+      container = container.add(low(value));
+      containers[i] = container;
+      if (container.cardinality() == before) {
+        return false;
+      }
+    }
+    cardinality++;
+    return true;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public boolean add(Integer value) {
+    return add((int) value);
+  }
+
+  /** Removes {@code value} from this set, returning whether it was present. */
+  @CanIgnoreReturnValue
+  public boolean remove(int value) {
+    checkMutable();
+    int i = keyIndex(high(value));
+    if (i < 0) {
+      return false;
+    }
+    Container container = containers[i];
+    int before = container.cardinality();
+    container = container.remove(low(value));
+    if (container.cardinality() == before) {
+      return false;
+    }
+    if (container.cardinality() == 0) {
+      removeContainer(i);
+    } else {
+      containers[i] = container;
+    }
+    cardinality--;
+    return true;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public boolean remove(@Nullable Object o) {
+    return o instanceof Integer && remove((int) (Integer) o);
+  }
+
+  /** Adds every value of {@code range} to this set. */
+  public void addRange(Range<Integer> range) {
+    checkMutable();
+    long[] bounds = unsignedBounds(range);
+    if (bounds != null) {
+      updateRange(bounds[0], bounds[1], true);
+    }
+  }
+
+  /** Removes every value of {@code range} from this set. */
+  public void removeRange(Range<Integer> range) {
+    checkMutable();
+    long[] bounds = unsignedBounds(range);
+    if (bounds != null) {
+      updateRange(bounds[0], bounds[1], false);
+    }
+  }
+
+  /** Adds the values of {@code other} to this set, returning whether this set changed. */
+  @CanIgnoreReturnValue
+  public boolean addAll(RoaringIntSet other) {
+    checkMutable();
+    return replaceWith(combine(this, other, OR, true));
+  }
+
+  /** Removes the values not in {@code other} from this set, returning whether this set changed. */
+  @CanIgnoreReturnValue
+  public boolean retainAll(RoaringIntSet other) {
+    checkMutable();
+    return replaceWith(combine(this, other, AND, true));
+  }
+
+  /** Removes the values of {@code other} from this set, returning whether this set changed. */
+  @CanIgnoreReturnValue
+  public boolean removeAll(RoaringIntSet other) {
+    checkMutable();
+    return replaceWith(combine(this, other, AND_NOT, true));
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  @SuppressWarnings("unchecked") // a ContiguousSet in a Collection<? extends Integer> is of Integer
+  public boolean addAll(Collection<? extends Integer> values) {
+    if (values instanceof RoaringIntSet) {
+      return addAll((RoaringIntSet) values);
+    }
+    checkMutable();
+    long before = cardinality;
+    if (values instanceof ContiguousSet) {
+      if (!values.isEmpty()) {
+        addRange(((ContiguousSet<Integer>) values).range());
+      }
+    } else if (values instanceof IntHashSet) {
+      IntHashSet.IntIterator iterator = ((IntHashSet) values).iterator();
+      while (iterator.hasNext()) {
+        add(iterator.nextValue());
+      }
+    } else {
+      for (Integer value : values) {
+        add((int) value);
+      }
+    }
+    return cardinality != before;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public boolean retainAll(Collection<?> values) {
+    return values instanceof RoaringIntSet
+        ? retainAll((RoaringIntSet) values)
+        : super.retainAll(checkNotNull(values));
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public boolean removeAll(Collection<?> values) {
+    return values instanceof RoaringIntSet
+        ? removeAll((RoaringIntSet) values)
+        : super.removeAll(checkNotNull(values));
+  }
+
+  @Override
+  public void clear() {
+    checkMutable();
+    keys = new char[INITIAL_CONTAINERS];
+    containers = new Container[INITIAL_CONTAINERS];
+    containerCount = 0;
+    cardinality = 0;
+  }
+
+  /**
+   * Converts each container to runs where that is smaller, and runs back to an array or bitmap
+   * where it is not, returning whether any container changed.
+   */
+  @CanIgnoreReturnValue
+  public boolean runOptimize() {
+    checkMutable();
+    boolean changed = false;
+    for (int i = 0; i < containerCount; i++) {
+      Container optimized = Container.optimize(containers[i]);
+      changed |= optimized != containers[i];
+      containers[i] = optimized;
+    }
+    return changed;
+  }
+
+  /**
+   * Returns the smallest value in this set.
+   *
+   * @throws NoSuchElementException if this set is empty
+   */
+  public int first() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return base(keys[0]) | container(0).next(0);
+  }
+
+  /**
+   * Returns the largest value in this set.
+   *
+   * @throws NoSuchElementException if this set is empty
+   */
+  public int last() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return base(keys[containerCount - 1]) | container(containerCount - 1).last();
+  }
+
+  /** Returns the number of values in this set that are less than or equal to {@code value}. */
+  public long rank(int value) {
+    int high = high(value);
+    long rank = 0;
+    for (int i = 0; i < containerCount && keys[i] <= high; i++) {
+      rank += keys[i] < high ? containerCardinality(i) : container(i).rank(low(value));
+    }
+    return rank;
+  }
+
+  /**
+   * Returns the value at {@code index} in the order of this set, so that {@code rank(select(i)) ==
+   * i + 1}.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or not less than {@link
+   *     #cardinality()}
+   */
+  public int select(long index) {
+    if (index < 0 || index >= cardinality) {
+      throw new IndexOutOfBoundsException(
+          "index (" + index + ") must be less than cardinality (" + cardinality + ")");
+    }
+    int i = 0;
+    for (int c = containerCardinality(0); index >= c; c = containerCardinality(++i)) {
+      index -= c;
+    }
+    return base(keys[i]) | container(i).select((int) index);
+  }
+
+  /** Calls {@code action} with each value of this set in order, without boxing. */
+  public void forEachInt(IntConsumer action) {
+    checkNotNull(action);
+    for (int i = 0; i < containerCount; i++) {
+      container(i).forEach(base(keys[i]), action);
+    }
+  }
+
+  /** Returns an iterator over the values of this set in order. */
+  @Override
+  public PrimitiveIterator.OfInt iterator() {
+    return new Itr();
+  }
+
+  /** Returns the values of this set in order. */
+  public int[] toIntArray() {
+    checkArgument(cardinality <= Integer.MAX_VALUE, "set is too large for an array");
+    final int[] array = new int[(int) cardinality];
+    forEachInt(
+        new IntConsumer() {
+          int size;
+
+          @Override
+          public void accept(int value) {
+            array[size++] = value;
+          }
+        });
+    return array;
+  }
+
+  /** Returns the values of this set in an {@link IntHashSet}. */
+  public IntHashSet toIntHashSet() {
+    checkArgument(cardinality <= 1 << 29, "set is too large for an IntHashSet");
+    IntHashSet set =
+        new IntHashSet((int) Math.max(8, (long) (cardinality / Hashing.DEFAULT_LOAD_FACTOR) + 1));
+    forEachInt(set::add);
+    return set;
+  }
+
+  /**
+   * Returns the values of this set as a range set, with one closed range for each run of
+   * consecutive values.
+   */
+  public ImmutableRangeSet<Integer> toRangeSet() {
+    final ImmutableRangeSet.Builder<Integer> builder = ImmutableRangeSet.builder();
+    RunCollector collector =
+        new RunCollector() {
+          @Override
+          void run(long start, long end) {
+            builder.add(Range.closed(signed(start), signed(end)));
+          }
+        };
+    for (int i = 0; i < containerCount; i++) {
+      collector.base = (long) keys[i] << 16;
+      container(i).forEachRun(collector);
+    }
+    collector.flush();
+    return builder.build();
+  }
+
+  /** Returns the number of bytes {@link #writeTo} writes. */
+  public int serializedSizeInBytes() {
+    long size = align(HEADER_BYTES + (long) containerCount * DESCRIPTOR_BYTES);
+    for (int i = 0; i < containerCount; i++) {
+      size = align(size + container(i).dataLength());
+    }
+    checkArgument(size <= Integer.MAX_VALUE, "set is too large to serialize");
+    return (int) size;
+  }
+
+  /**
+   * Writes this set at the position of {@code buffer}, in a form that {@link #map} can read in
+   * place, and advances the position past it.
+   *
+   * @throws BufferOverflowException if the buffer has less than {@link #serializedSizeInBytes()}
+   *     bytes remaining
+   */
+  public void writeTo(ByteBuffer buffer) {
+    int size = serializedSizeInBytes();
+    if (buffer.remaining() < size) {
+      throw new BufferOverflowException();
+    }
+    ByteBuffer out = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    out.putInt(0, SERIAL_COOKIE);
+    out.putInt(4, containerCount);
+    int offset = (int) align(HEADER_BYTES + (long) containerCount * DESCRIPTOR_BYTES);
+    for (int i = 0; i < containerCount; i++) {
+      Container container = container(i);
+      int descriptor = HEADER_BYTES + i * DESCRIPTOR_BYTES;
+      out.putChar(descriptor, keys[i]);
+      out.putChar(descriptor + 2, (char) container.type());
+      out.putInt(descriptor + 4, container.cardinality());
+      out.putInt(descriptor + 8, offset);
+      container.writeData(out, offset);
+      offset = (int) align(offset + container.dataLength());
+    }
+    // the cast keeps this compatible with Java 8, where position(int) is only defined on Buffer
+    ((Buffer) buffer).position(buffer.position() + size);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof RoaringIntSet)) {
+      return super.equals(o);
+    }
+    RoaringIntSet that = (RoaringIntSet) o;
+    if (cardinality != that.cardinality || containerCount != that.containerCount) {
+      return false;
+    }
+    for (int i = 0; i < containerCount; i++) {
+      if (keys[i] != that.keys[i] || !Container.equal(container(i), that.container(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    final int[] hashCode = new int[1];
+    forEachInt(value -> hashCode[0] += value);
+    return hashCode[0];
+  }
+
+  private void checkMutable() {
+    if (mapped != null) {
+      throw new UnsupportedOperationException("a mapped set is read-only");
+    }
+  }
+
+  private static int high(int value) {
+    return (value ^ Integer.MIN_VALUE) >>> 16;
+  }
+
+  private static int low(int value) {
+    return value & 0xFFFF;
+  }
+
+  /** Returns the value whose low 16 bits are zero in the container for {@code high}. */
+  private static int base(int high) {
+    return (high << 16) ^ Integer.MIN_VALUE;
+  }
+
+  private static long unsigned(int value) {
+    return (value ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+  }
+
+  private static int signed(long unsigned) {
+    return (int) unsigned ^ Integer.MIN_VALUE;
+  }
+
+  private static long align(long offset) {
+    return (offset + Long.BYTES - 1) & -Long.BYTES;
+  }
+
+  /**
+   * Returns the first and last values of {@code range} as unsigned offsets from {@link
+   * Integer#MIN_VALUE}, or null if the range is empty.
+   */
+  private static long @Nullable [] unsignedBounds(Range<Integer> range) {
+    Range<Integer> canonical = range.canonical(DiscreteDomain.integers());
+    if (canonical.isEmpty()) {
+      return null;
+    }
+    long first = unsigned(canonical.lowerEndpoint());
+    long last = canonical.hasUpperBound() ? unsigned(canonical.upperEndpoint()) - 1 : 0xFFFFFFFFL;
+    return new long[] {first, last};
+  }
+
+  private int keyIndex(int high) {
+    return Arrays.binarySearch(keys, 0, containerCount, (char) high);
+  }
+
+  private int containerCardinality(int i) {
+    return mapped == null ? containers[i].cardinality() : cardinalities[i];
+  }
+
+  /** Returns container {@code i}, which for a mapped set is read onto the heap for each call. */
+  private Container container(int i) {
+    return mapped == null ? containers[i] : read(i);
+  }
+
+  /** Returns a copy of container {@code i} that this set does not share. */
+  private Container containerCopy(int i) {
+    return mapped == null ? containers[i].copy() : read(i);
+  }
+
+  private Container read(int i) {
+    int offset = offsets[i];
+    int cardinality = cardinalities[i];
+    switch (types[i]) {
+      case ARRAY:
+        char[] values = new char[cardinality];
+        for (int k = 0; k < cardinality; k++) {
+          values[k] = mapped.getChar(offset + 2 * k);
+        }
+        return new ArrayContainer(values, cardinality);
+      case BITMAP:
+        long[] words = new long[BITMAP_WORDS];
+        for (int k = 0; k < BITMAP_WORDS; k++) {
+          words[k] = mapped.getLong(offset + 8 * k);
+        }
+        return new BitmapContainer(words, cardinality);
+      default:
+        int runCount = mapped.getInt(offset);
+        char[] runs = new char[2 * runCount];
+        for (int k = 0; k < runs.length; k++) {
+          runs[k] = mapped.getChar(offset + 4 + 2 * k);
+        }
+        return new RunContainer(runs, runCount);
+    }
+  }
+
+  private boolean mappedContains(int i, int low) {
+    int offset = offsets[i];
+    switch (types[i]) {
+      case ARRAY:
+        for (int lo = 0, hi = cardinalities[i] - 1; lo <= hi; ) {
+          int mid = (lo + hi) >>> 1;
+          int value = mapped.getChar(offset + 2 * mid);
+          if (value < low) {
+            lo = mid + 1;
+          } else if (value > low) {
+            hi = mid - 1;
+          } else {
+            return true;
+          }
+        }
+        return false;
+      case BITMAP:
+        return (mapped.getLong(offset + 8 * (low >>> 6)) & (1L << low)) != 0;
+      default:
+        int lo = 0;
+        int hi = mapped.getInt(offset) - 1;
+        while (lo <= hi) {
+          int mid = (lo + hi) >>> 1;
+          if (mapped.getChar(offset + 4 + 4 * mid) <= low) {
+            lo = mid + 1;
+          } else {
+            hi = mid - 1;
+          }
+        }
+        int run = offset + 4 + 4 * hi;
+        return hi >= 0 && low <= mapped.getChar(run) + mapped.getChar(run + 2);
+    }
+  }
+
+  private void ensureCapacity(int count) {
+    if (count > keys.length) {
+      int length = Math.min(1 << 16, Math.max(count, keys.length * 2));
+      keys = Arrays.copyOf(keys, length);
+      containers = Arrays.copyOf(containers, length);
+    }
+  }
+
+  /** Appends a container, whose key must be greater than those of this set. */
+  private void append(int high, Container container) {
+    ensureCapacity(containerCount + 1);
+    keys[containerCount] = (char) high;
+    containers[containerCount++] = container;
+    cardinality += container.cardinality();
+  }
+
+  private void insertContainer(int i, int high, Container container) {
+    ensureCapacity(containerCount + 1);
+    System.arraycopy(keys, i, keys, i + 1, containerCount - i);
+    System.arraycopy(containers, i, containers, i + 1, containerCount - i);
+    keys[i] = (char) high;
+    containers[i] = container;
+    containerCount++;
+  }
+
+  private void removeContainer(int i) {
+    System.arraycopy(keys, i + 1, keys, i, containerCount - i - 1);
+    System.arraycopy(containers, i + 1, containers, i, containerCount - i - 1);
+    containers[--containerCount] = null;
+  }
+
+  /**
+   * Appends the unsigned range from {@code first} to {@code last}, which must not start before the
+   * last value of this set.
+   */
+  private void appendRange(long first, long last) {
+    for (int high = (int) (first >>> 16); high <= last >>> 16; high++) {
+      int start = high == first >>> 16 ? (int) first & 0xFFFF : 0;
+      int end = high == last >>> 16 ? (int) last & 0xFFFF : 0xFFFF;
+      Container run = new RunContainer(new char[] {(char) start, (char) (end - start)}, 1);
+      if (containerCount > 0 && keys[containerCount - 1] == high) {
+        Container merged = Container.or(containers[containerCount - 1], run);
+        cardinality += merged.cardinality() - containers[containerCount - 1].cardinality();
+        containers[containerCount - 1] = merged;
+      } else {
+        append(high, run);
+      }
+    }
+  }
+
+  private void updateRange(long first, long last, boolean add) {
+    int high = (int) (first >>> 16);
+    if (high != last >>> 16) {
+      RoaringIntSet range = create();
+      range.appendRange(first, last);
+      replaceWith(combine(this, range, add ? OR : AND_NOT, true));
+      return;
+    }
+    int start = (int) first & 0xFFFF;
+    int end = (int) last & 0xFFFF;
+    int i = keyIndex(high);
+    if (i < 0) {
+      if (add) {
+        insertContainer(
+            -i - 1, high, new RunContainer(new char[] {(char) start, (char) (end - start)}, 1));
+        cardinality += end - start + 1;
+      }
+      return;
+    }
+    long[] words = Container.words(containers[i]);
+    if (add) {
+      Container.setRange(words, start, end);
+    } else {
+      Container.clearRange(words, start, end);
+    }
+    Container container = Container.fromWords(words);
+    cardinality -= containers[i].cardinality();
+    if (container == null) {
+      removeContainer(i);
+    } else {
+      containers[i] = Container.optimize(container);
+      cardinality += container.cardinality();
+    }
+  }
+
+  /** Takes the containers of {@code result}, returning whether that changed this set. */
+  private boolean replaceWith(RoaringIntSet result) {
+    boolean changed = result.cardinality != cardinality;
+    keys = result.keys;
+    containers = result.containers;
+    containerCount = result.containerCount;
+    cardinality = result.cardinality;
+    return changed;
+  }
+
+  /**
+   * Combines {@code a} and {@code b} container by container. Unless {@code reuseA}, the result
+   * shares no containers with {@code a} or {@code b}; containers combined from both are always
+   * new.
+   */
+  private static RoaringIntSet combine(RoaringIntSet a, RoaringIntSet b, int op, boolean reuseA) {
+    RoaringIntSet result =
+        new RoaringIntSet(
+            Math.max(
+                INITIAL_CONTAINERS,
+                op == AND
+                    ? Math.min(a.containerCount, b.containerCount)
+                    : op == AND_NOT ? a.containerCount : a.containerCount + b.containerCount));
+    int i = 0;
+    int j = 0;
+    while (i < a.containerCount || j < b.containerCount) {
+      int keyA = i < a.containerCount ? a.keys[i] : Integer.MAX_VALUE;
+      int keyB = j < b.containerCount ? b.keys[j] : Integer.MAX_VALUE;
+      if (keyA == keyB) {
+        Container container = Container.combine(a.container(i++), b.container(j++), op);
+        if (container != null) {
+          result.append(keyA, container);
+        }
+      } else if (keyA < keyB) {
+        if (op != AND) {
+          result.append(keyA, reuseA ? a.container(i) : a.containerCopy(i));
+        }
+        i++;
+      } else {
+        if (op == OR || op == XOR) {
+          result.append(keyB, b.containerCopy(j));
+        }
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /** An iterator that finds each value from the last, so that it tolerates its own removals. */
+  private final class Itr implements PrimitiveIterator.OfInt {
+    // the next value as an unsigned offset from Integer.MIN_VALUE, or -1 at the end
+    private long next;
+    private int containerIndex;
+    private @Nullable Container container;
+    private int last;
+    private boolean canRemove;
+
+    Itr() {
+      next = seek(0);
+    }
+
+    /** Returns the first unsigned value of the set not less than {@code from}, or -1. */
+    private long seek(long from) {
+      if (from > 0xFFFFFFFFL) {
+        return -1;
+      }
+      int high = (int) (from >>> 16);
+      int low = (int) from & 0xFFFF;
+      int i =
+          containerIndex < containerCount && keys[containerIndex] == high
+              ? containerIndex
+              : keyIndex(high);
+      if (i < 0) {
+        i = -i - 1;
+        low = 0;
+      }
+      for (; i < containerCount; i++, low = 0) {
+        if (mapped == null) {
+          container = containers[i];
+        } else if (i != containerIndex || container == null) {
+          container = read(i);
+        }
+        containerIndex = i;
+        int found = container.next(low);
+        if (found >= 0) {
+          return (long) keys[i] << 16 | found;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    @Override
+    public int nextInt() {
+      if (next < 0) {
+        throw new NoSuchElementException();
+      }
+      last = signed(next);
+      canRemove = true;
+      next = seek(next + 1);
+      return last;
+    }
+
+    @Override
+    public void remove() {
+      checkRemove(canRemove);
+      canRemove = false;
+      RoaringIntSet.this.remove(last);
+    }
+  }
+
+  /** Merges the runs of consecutive containers into maximal runs. */
+  private abstract static class RunCollector implements IntIntConsumer {
+    long base;
+    private long start = -1;
+    private long end = -1;
+
+    @Override
+    public void accept(int first, int last) {
+      if (start >= 0 && base + first == end + 1) {
+        end = base + last;
+      } else {
+        flush();
+        start = base + first;
+        end = base + last;
+      }
+    }
+
+    void flush() {
+      if (start >= 0) {
+        run(start, end);
+      }
+      start = -1;
+    }
+
+    abstract void run(long start, long end);
+  }
+
+  /**
+   * The low 16 bits of the values that share their high 16 bits. Array and bitmap containers change
+   * in place, and may return a container of another type when they grow or shrink; run containers
+   * never change, and return an array or bitmap container from {@link #add} and {@link #remove}.
+   */
+  private abstract static class Container {
+    abstract int cardinality();
+
+    abstract boolean contains(int low);
+
+    /** Returns the number of values not greater than {@code low}. */
+    abstract int rank(int low);
+
+    abstract int select(int index);
+
+    /** Returns the first value not less than {@code low}, or -1 if there is none. */
+    abstract int next(int low);
+
+    abstract int last();
+
+    /** Calls {@code action} with {@code base | value} for each value in order. */
+    abstract void forEach(int base, IntConsumer action);
+
+    /** Calls {@code action} with the first and last value of each run of consecutive values. */
+    abstract void forEachRun(IntIntConsumer action);
+
+    /** Sets the bits of the values of this container in {@code words}. */
+    abstract void orInto(long[] words);
+
+    abstract int runCount();
+
+    abstract Container add(int low);
+
+    abstract Container remove(int low);
+
+    abstract Container copy();
+
+    abstract int type();
+
+    abstract int dataLength();
+
+    abstract void writeData(ByteBuffer out, int offset);
+
+    static long[] words(Container container) {
+      long[] words = new long[BITMAP_WORDS];
+      container.orInto(words);
+      return words;
+    }
+
+    /** Returns the values set in {@code words}, which it may keep, or null if there are none. */
+    static @Nullable Container fromWords(long[] words) {
+      int cardinality = 0;
+      for (long word : words) {
+        cardinality += Long.bitCount(word);
+      }
+      if (cardinality == 0) {
+        return null;
+      } else if (cardinality > ARRAY_MAX) {
+        return new BitmapContainer(words, cardinality);
+      }
+      char[] values = new char[cardinality];
+      int size = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        for (long word = words[i]; word != 0; word &= word - 1) {
+          values[size++] = (char) (i << 6 | Long.numberOfTrailingZeros(word));
+        }
+      }
+      return new ArrayContainer(values, size);
+    }
+
+    static void setRange(long[] words, int first, int last) {
+      int firstWord = first >>> 6;
+      int lastWord = last >>> 6;
+      long firstMask = -1L << first;
+      long lastMask = -1L >>> ~last;
+      if (firstWord == lastWord) {
+        words[firstWord] |= firstMask & lastMask;
+        return;
+      }
+      words[firstWord] |= firstMask;
+      Arrays.fill(words, firstWord + 1, lastWord, -1L);
+      words[lastWord] |= lastMask;
+    }
+
+    static void clearRange(long[] words, int first, int last) {
+      int firstWord = first >>> 6;
+      int lastWord = last >>> 6;
+      long firstMask = -1L << first;
+      long lastMask = -1L >>> ~last;
+      if (firstWord == lastWord) {
+        words[firstWord] &= ~(firstMask & lastMask);
+        return;
+      }
+      words[firstWord] &= ~firstMask;
+      Arrays.fill(words, firstWord + 1, lastWord, 0L);
+      words[lastWord] &= ~lastMask;
+    }
+
+    /** Returns whichever of the array, bitmap and run forms of {@code container} is smallest. */
+    static Container optimize(Container container) {
+      int runCount = container.runCount();
+      int cardinality = container.cardinality();
+      int runBytes = 4 + 4 * runCount;
+      int otherBytes = cardinality <= ARRAY_MAX ? 2 * cardinality : BITMAP_BYTES;
+      if (runBytes < otherBytes) {
+        if (container instanceof RunContainer) {
+          return container;
+        }
+        final char[] runs = new char[2 * runCount];
+        container.forEachRun(
+            new IntIntConsumer() {
+              int size;
+
+              @Override
+              public void accept(int first, int last) {
+                runs[size++] = (char) first;
+                runs[size++] = (char) (last - first);
+              }
+            });
+        return new RunContainer(runs, runCount);
+      }
+      return container instanceof RunContainer ? fromWords(words(container)) : container;
+    }
+
+    static @Nullable Container combine(Container a, Container b, int op) {
+      switch (op) {
+        case AND:
+          return and(a, b);
+        case OR:
+          return or(a, b);
+        case AND_NOT:
+          return andNot(a, b);
+        default:
+          return xor(a, b);
+      }
+    }
+
+    static @Nullable Container and(Container a, Container b) {
+      boolean runs = a instanceof RunContainer && b instanceof RunContainer;
+      if (a.cardinality() > b.cardinality()) {
+        Container swap = a;
+        a = b;
+        b = swap;
+      }
+      Container result;
+      if (a.cardinality() <= ARRAY_MAX) {
+        result = filter(a, b, true);
+      } else {
+        long[] words = words(a);
+        long[] other = words(b);
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          words[i] &= other[i];
+        }
+        result = fromWords(words);
+      }
+      return runs && result != null ? optimize(result) : result;
+    }
+
+    static Container or(Container a, Container b) {
+      if (a instanceof ArrayContainer
+          && b instanceof ArrayContainer
+          && a.cardinality() + b.cardinality() <= ARRAY_MAX) {
+        return merge((ArrayContainer) a, (ArrayContainer) b, false);
+      }
+      long[] words = words(a);
+      b.orInto(words);
+      Container result = fromWords(words);
+      return a instanceof RunContainer || b instanceof RunContainer ? optimize(result) : result;
+    }
+
+    static @Nullable Container andNot(Container a, Container b) {
+      Container result;
+      if (a.cardinality() <= ARRAY_MAX) {
+        result = filter(a, b, false);
+      } else {
+        long[] words = words(a);
+        long[] other = words(b);
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          words[i] &= ~other[i];
+        }
+        result = fromWords(words);
+      }
+      return a instanceof RunContainer && result != null ? optimize(result) : result;
+    }
+
+    static @Nullable Container xor(Container a, Container b) {
+      if (a instanceof ArrayContainer
+          && b instanceof ArrayContainer
+          && a.cardinality() + b.cardinality() <= ARRAY_MAX) {
+        return merge((ArrayContainer) a, (ArrayContainer) b, true);
+      }
+      long[] words = words(a);
+      long[] other = words(b);
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        words[i] ^= other[i];
+      }
+      Container result = fromWords(words);
+      return (a instanceof RunContainer || b instanceof RunContainer) && result != null
+          ? optimize(result)
+          : result;
+    }
+
+    /** Returns the values of {@code a} that {@code b} contains, or does not contain. */
+    private static @Nullable Container filter(Container a, final Container b, final boolean in) {
+      final char[] values = new char[a.cardinality()];
+      final int[] size = new int[1];
+      a.forEach(
+          0,
+          value -> {
+            if (b.contains(value) == in) {
+              values[size[0]++] = (char) value;
+            }
+          });
+      return size[0] == 0 ? null : new ArrayContainer(values, size[0]);
+    }
+
+    /** Returns the union, or the symmetric difference, of two arrays. */
+    private static @Nullable Container merge(ArrayContainer a, ArrayContainer b, boolean xor) {
+      char[] values = new char[a.size + b.size];
+      int size = 0;
+      int i = 0;
+      int j = 0;
+      while (i < a.size && j < b.size) {
+        if (a.values[i] < b.values[j]) {
+          values[size++] = a.values[i++];
+        } else if (a.values[i] > b.values[j]) {
+          values[size++] = b.values[j++];
+        } else {
+          if (!xor) {
+            values[size++] = a.values[i];
+          }
+          i++;
+          j++;
+        }
+      }
+      System.arraycopy(a.values, i, values, size, a.size - i);
+      size += a.size - i;
+      System.arraycopy(b.values, j, values, size, b.size - j);
+      size += b.size - j;
+      return size == 0 ? null : new ArrayContainer(values, size);
+    }
+
+    static boolean equal(Container a, Container b) {
+      if (a.cardinality() != b.cardinality()) {
+        return false;
+      }
+      if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+        ArrayContainer x = (ArrayContainer) a;
+        ArrayContainer y = (ArrayContainer) b;
+        for (int i = 0; i < x.size; i++) {
+          if (x.values[i] != y.values[i]) {
+            return false;
+          }
+        }
+        return true;
+      }
+      return Arrays.equals(words(a), words(b));
+    }
+  }
+
+  /** Up to {@link #ARRAY_MAX} values in a sorted array. */
+  private static final class ArrayContainer extends Container {
+    char[] values;
+    int size;
+
+    ArrayContainer(char[] values, int size) {
+      this.values = values;
+      this.size = size;
+    }
+
+    @Override
+    int cardinality() {
+      return size;
+    }
+
+    @Override
+    boolean contains(int low) {
+      return Arrays.binarySearch(values, 0, size, (char) low) >= 0;
+    }
+
+    @Override
+    int rank(int low) {
+      int i = Arrays.binarySearch(values, 0, size, (char) low);
+      return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    @Override
+    int select(int index) {
+      return values[index];
+    }
+
+    @Override
+    int next(int low) {
+      int i = Arrays.binarySearch(values, 0, size, (char) low);
+      if (i >= 0) {
+        return low;
+      }
+      i = -i - 1;
+      return i < size ? values[i] : -1;
+    }
+
+    @Override
+    int last() {
+      return values[size - 1];
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+      for (int i = 0; i < size; i++) {
+        action.accept(base | values[i]);
+      }
+    }
+
+    @Override
+    void forEachRun(IntIntConsumer action) {
+      for (int i = 0; i < size; ) {
+        int first = values[i];
+        int last = first;
+        while (++i < size && values[i] == last + 1) {
+          last++;
+        }
+        action.accept(first, last);
+      }
+    }
+
+    @Override
+    void orInto(long[] words) {
+      for (int i = 0; i < size; i++) {
+        int value = values[i];
+        words[value >>> 6] |= 1L << value;
+      }
+    }
+
+    @Override
+    int runCount() {
+      int runCount = 0;
+      for (int i = 0; i < size; i++) {
+        if (i == 0 || values[i] != values[i - 1] + 1) {
+          runCount++;
+        }
+      }
+      return runCount;
+    }
+
+    @Override
+    Container add(int low) {
+      int i = Arrays.binarySearch(values, 0, size, (char) low);
+      if (i >= 0) {
+        return this;
+      }
+      if (size == ARRAY_MAX) {
+        return new BitmapContainer(words(this), size).add(low);
+      }
+      i = -i - 1;
+      if (size == values.length) {
+        values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, size * 2)));
+      }
+      System.arraycopy(values, i, values, i + 1, size - i);
+      values[i] = (char) low;
+      size++;
+      return this;
+    }
+
+    @Override
+    Container remove(int low) {
+      int i = Arrays.binarySearch(values, 0, size, (char) low);
+      if (i >= 0) {
+        System.arraycopy(values, i + 1, values, i, size - i - 1);
+        size--;
+      }
+      return this;
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, size), size);
+    }
+
+    @Override
+    int type() {
+      return ARRAY;
+    }
+
+    @Override
+    int dataLength() {
+      return 2 * size;
+    }
+
+    @Override
+    void writeData(ByteBuffer out, int offset) {
+      for (int i = 0; i < size; i++) {
+        out.putChar(offset + 2 * i, values[i]);
+      }
+    }
+  }
+
+  /** More than {@link #ARRAY_MAX} values as a bitmap of 65536 bits. */
+  private static final class BitmapContainer extends Container {
+    final long[] words;
+    int cardinality;
+
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int low) {
+      return (words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    int rank(int low) {
+      int rank = 0;
+      int last = low >>> 6;
+      for (int i = 0; i < last; i++) {
+        rank += Long.bitCount(words[i]);
+      }
+      // 2L << 63 overflows to zero, which leaves every bit in the mask
+      return rank + Long.bitCount(words[last] & ((2L << low) - 1));
+    }
+
+    @Override
+    int select(int index) {
+      for (int i = 0; ; i++) {
+        long word = words[i];
+        int count = Long.bitCount(word);
+        if (index < count) {
+          for (; index > 0; index--) {
+            word &= word - 1;
+          }
+          return i << 6 | Long.numberOfTrailingZeros(word);
+        }
+        index -= count;
+      }
+    }
+
+    @Override
+    int next(int low) {
+      int i = low >>> 6;
+      long word = words[i] & (-1L << low);
+      while (word == 0) {
+        if (++i == BITMAP_WORDS) {
+          return -1;
+        }
+        word = words[i];
+      }
+      return i << 6 | Long.numberOfTrailingZeros(word);
+    }
+
+    /** Returns the first value not in this container and not less than {@code low}. */
+    private int nextAbsent(int low) {
+      int i = low >>> 6;
+      long word = ~words[i] & (-1L << low);
+      while (word == 0) {
+        if (++i == BITMAP_WORDS) {
+          return 1 << 16;
+        }
+        word = ~words[i];
+      }
+      return i << 6 | Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    int last() {
+      int i = BITMAP_WORDS - 1;
+      while (words[i] == 0) {
+        i--;
+      }
+      return i << 6 | 63 - Long.numberOfLeadingZeros(words[i]);
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        for (long word = words[i]; word != 0; word &= word - 1) {
+          action.accept(base | i << 6 | Long.numberOfTrailingZeros(word));
+        }
+      }
+    }
+
+    @Override
+    void forEachRun(IntIntConsumer action) {
+      for (int first = next(0); first >= 0; ) {
+        int end = nextAbsent(first);
+        action.accept(first, end - 1);
+        first = end < 1 << 16 ? next(end) : -1;
+      }
+    }
+
+    @Override
+    void orInto(long[] words) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        words[i] |= this.words[i];
+      }
+    }
+
+    @Override
+    int runCount() {
+      int runCount = 0;
+      long previous = 0;
+      for (long word : words) {
+        // a run starts at each set bit whose lower neighbour is clear
+        runCount += Long.bitCount(word & ~(word << 1 | previous >>> 63));
+        previous = word;
+      }
+      return runCount;
+    }
+
+    @Override
+    Container add(int low) {
+      long bit = 1L << low;
+      if ((words[low >>> 6] & bit) == 0) {
+        words[low >>> 6] |= bit;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(int low) {
+      long bit = 1L << low;
+      if ((words[low >>> 6] & bit) == 0) {
+        return this;
+      }
+      words[low >>> 6] &= ~bit;
+      return --cardinality <= ARRAY_MAX ? fromWords(words) : this;
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    int type() {
+      return BITMAP;
+    }
+
+    @Override
+    int dataLength() {
+      return BITMAP_BYTES;
+    }
+
+    @Override
+    void writeData(ByteBuffer out, int offset) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        out.putLong(offset + 8 * i, words[i]);
+      }
+    }
+  }
+
+  /** Values as runs of consecutive values, each held as its first value and its length - 1. */
+  private static final class RunContainer extends Container {
+    final char[] runs;
+    final int runCount;
+    final int cardinality;
+
+    RunContainer(char[] runs, int runCount) {
+      this.runs = runs;
+      this.runCount = runCount;
+      int cardinality = runCount;
+      for (int i = 0; i < runCount; i++) {
+        cardinality += runs[2 * i + 1];
+      }
+      this.cardinality = cardinality;
+    }
+
+    private int first(int run) {
+      return runs[2 * run];
+    }
+
+    private int last(int run) {
+      return runs[2 * run] + runs[2 * run + 1];
+    }
+
+    /** Returns the last run that starts at or before {@code low}, or -1 if there is none. */
+    private int runIndex(int low) {
+      int lo = 0;
+      int hi = runCount - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (runs[2 * mid] <= low) {
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return hi;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int low) {
+      int run = runIndex(low);
+      return run >= 0 && low <= last(run);
+    }
+
+    @Override
+    int rank(int low) {
+      int rank = 0;
+      for (int run = 0; run < runCount && first(run) <= low; run++) {
+        rank += Math.min(last(run), low) - first(run) + 1;
+      }
+      return rank;
+    }
+
+    @Override
+    int select(int index) {
+      for (int run = 0; ; run++) {
+        int length = runs[2 * run + 1] + 1;
+        if (index < length) {
+          return first(run) + index;
+        }
+        index -= length;
+      }
+    }
+
+    @Override
+    int next(int low) {
+      int run = runIndex(low);
+      if (run >= 0 && low <= last(run)) {
+        return low;
+      }
+      return run + 1 < runCount ? first(run + 1) : -1;
+    }
+
+    @Override
+    int last() {
+      return last(runCount - 1);
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+      for (int run = 0; run < runCount; run++) {
+        for (int value = first(run), last = last(run); value <= last; value++) {
+          action.accept(base | value);
+        }
+      }
+    }
+
+    @Override
+    void forEachRun(IntIntConsumer action) {
+      for (int run = 0; run < runCount; run++) {
+        action.accept(first(run), last(run));
+      }
+    }
+
+    @Override
+    void orInto(long[] words) {
+      for (int run = 0; run < runCount; run++) {
+        setRange(words, first(run), last(run));
+      }
+    }
+
+    @Override
+    int runCount() {
+      return runCount;
+    }
+
+    @Override
+    Container add(int low) {
+      return contains(low) ? this : fromWords(words(this)).add(low);
+    }
+
+    @Override
+    Container remove(int low) {
+      if (!contains(low)) {
+        return this;
+      }
+      Container container = fromWords(words(this));
+      // a container of one run of one value becomes empty
+      return container.remove(low);
+    }
+
+    @Override
+    Container copy() {
+      return this;
+    }
+
+    @Override
+    int type() {
+      return RUN;
+    }
+
+    @Override
+    int dataLength() {
+      return 4 + 4 * runCount;
+    }
+
+    @Override
+    void writeData(ByteBuffer out, int offset) {
+      out.putInt(offset, runCount);
+      for (int i = 0; i < 2 * runCount; i++) {
+        out.putChar(offset + 4 + 2 * i, runs[i]);
+      }
+    }
+  }
+
+  private void readObject(ObjectInputStream stream) throws InvalidObjectException {
+    throw new InvalidObjectException("Use SerializedForm");
+  }
+
+  Object writeReplace() {
+    ByteBuffer buffer = ByteBuffer.allocate(serializedSizeInBytes());
+    writeTo(buffer);
+    return new SerializedForm(buffer.array());
+  }
+
+  private static final class SerializedForm implements Serializable {
+    private final byte[] data;
+
+    SerializedForm(byte[] data) {
+      this.data = data;
+    }
+
+    Object readResolve() {
+      return copyOf(map(ByteBuffer.wrap(data)));
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+}
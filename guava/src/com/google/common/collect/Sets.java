@@ -243,6 +243,22 @@ public final class Sets {
     return new IntHashSet(array);
   }
 
+  /**
+   * create a instance of LongHashSet
+   * @return
+   */
+  public static  LongHashSet newLongHashSet() {
+    return new LongHashSet();
+  }
+
+  /**
+   * Construct a hash set with long[] array
+   * and iterator caching support.
+   */
+  public static  LongHashSet newLongHashSet(long[] array) {
+    return new LongHashSet(array);
+  }
+
   /**
    * Creates a <i>mutable</i> {@code HashSet} instance initially containing the given elements.
    *
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link ConcurrentArrayQueue} for a single producer thread and a single consumer thread. Neither
+ * side ever retries: the producer writes its element and then publishes the new tail, and the
+ * consumer recognizes published elements by their slot being non-null. The producer only reads the
+ * consumer's head when a stale copy of it says the queue is full.
+ */
+@GwtIncompatible
+final class SpscArrayQueue<E> extends ConcurrentArrayQueue<E> {
+  /** The producer's most recently read value of {@link #head}. Only accessed by the producer. */
+  private long headCache;
+
+  SpscArrayQueue(int capacity) {
+    super(capacity);
+  }
+
+  @Override
+  public boolean offer(E e) {
+    checkNotNull(e);
+    long t = tail;
+    if (t - headCache >= capacity) {
+      headCache = head;
+      if (t - headCache >= capacity) {
+        return false;
+      }
+    }
+    buffer.lazySet((int) t & mask, e);
+    TAIL.lazySet(this, t + 1);
+    return true;
+  }
+
+  @Override
+  public @Nullable E poll() {
+    long h = head;
+    int index = (int) h & mask;
+    E e = buffer.get(index);
+    if (e == null) {
+      return null;
+    }
+    buffer.lazySet(index, null);
+    HEAD.lazySet(this, h + 1);
+    return e;
+  }
+
+  @Override
+  public @Nullable E peek() {
+    return buffer.get((int) head & mask);
+  }
+
+  @Override
+  public int drain(Consumer<? super E> consumer, int maxElements) {
+    return drainSingleConsumer(consumer, maxElements);
+  }
+
+  /** Writes the supplied elements and then publishes them all with a single write of the tail. */
+  @Override
+  public int fill(Supplier<? extends E> supplier, int maxElements) {
+    checkNotNull(supplier);
+    checkArgument(maxElements >= 0, "maxElements must be nonnegative: %s", maxElements);
+    long t = tail;
+    headCache = head;
+    long room = Math.min(maxElements, capacity - (t - headCache));
+    int filled = 0;
+    try {
+      for (; filled < room; filled++) {
+        buffer.lazySet((int) (t + filled) & mask, checkNotNull(supplier.get()));
+      }
+    } finally {
+      TAIL.lazySet(this, t + filled);
+    }
+    return filled;
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collector;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+
+/**
+ * The counterpart of {@link java.util.stream.Collector} for a {@link DoubleStream}, whose elements
+ * reach the accumulator as {@code double} values rather than being boxed. {@link
+ * PrimitiveCollectors} provides the standard implementations.
+ *
+ * <p>The supplier, accumulator and combiner are those taken by {@link
+ * DoubleStream#collect(Supplier, ObjDoubleConsumer, BiConsumer)}; the combiner merges its second
+ * argument into its first, and is only called for parallel streams.
+ *
+ * @param <A> the mutable accumulation type
+ * @param <R> the result type
+ */
+public interface DoubleCollector<A, R>
+{
+    Supplier<A> supplier();
+
+    ObjDoubleConsumer<A> accumulator();
+
+    BiConsumer<A, A> combiner();
+
+    Function<A, R> finisher();
+
+    /**
+     * Perform a mutable reduction of the elements of {@code stream} with this collector.
+     *
+     * @param stream whose elements are to be collected.
+     * @return the result of the reduction.
+     */
+    default R collect(final DoubleStream stream)
+    {
+        return finisher().apply(stream.collect(supplier(), accumulator(), combiner()));
+    }
+}
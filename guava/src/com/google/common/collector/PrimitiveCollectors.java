@@ -3,6 +3,15 @@ package com.google.common.collector;
 import com.google.common.collect.Int2IntHashMap;
 import com.google.common.collect.IntArrayList;
 import com.google.common.collect.IntHashSet;
+import com.google.common.collect.Long2LongHashMap;
+import com.google.common.collect.Long2ObjectHashMap;
+import com.google.common.collect.LongHashSet;
+import com.google.common.primitives.ByteArrayList;
+import com.google.common.primitives.DoubleArrayList;
+import com.google.common.primitives.ImmutableDoubleArray;
+import com.google.common.primitives.ImmutableIntArray;
+import com.google.common.primitives.ImmutableLongArray;
+import com.google.common.primitives.LongArrayList;
 
 import java.util.Collections;
 import java.util.EnumSet;
@@ -11,7 +20,13 @@ import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
 
 public final class PrimitiveCollectors {
@@ -53,13 +68,147 @@ public final class PrimitiveCollectors {
                 CH_ID);
     }
 
-    public static <T, Integer,M extends Map<Integer, Integer>>
-    Collector<Integer,?,Int2IntHashMap> toInt2IntHashMap(Function<? super T, ? extends Integer> keyMapper,
-                             Function<? super T, ? extends Integer> valueMapper) {
-        BiConsumer<M, T> accumulator
-                = (map, element) -> map.merge(keyMapper.apply(element),
-                valueMapper.apply(element), throwingMerger());
-        return new CollectorImpl(Int2IntHashMap::new, accumulator, mapMerger(throwingMerger()), CH_ID);
+    /**
+     * Returns a {@code Collector} that accumulates elements into an {@link Int2IntHashMap} whose
+     * keys and values are the result of applying the provided mapping functions to the input
+     * elements. Each key and value is unboxed as it is stored, and parallel results are merged
+     * table to table rather than through {@link Map#merge}.
+     *
+     * @throws IllegalStateException from the collection if two elements map to the same key
+     * @throws IllegalArgumentException from the collection if an element maps to the map's
+     *     {@linkplain Int2IntHashMap#missingValue() missing value}
+     */
+    public static <T>
+    Collector<T, ?, Int2IntHashMap> toInt2IntHashMap(
+            Function<? super T, ? extends Integer> keyMapper,
+            Function<? super T, ? extends Integer> valueMapper) {
+        BiConsumer<Int2IntHashMap, T> accumulator
+                = (map, element) -> putUnique(map, keyMapper.apply(element),
+                valueMapper.apply(element));
+        return new CollectorImpl<>(Int2IntHashMap::new, accumulator,
+                (left, right) -> {
+                    right.intForEach((k, v) -> putUnique(left, k, v));
+                    return left;
+                },
+                CH_ID);
+    }
+
+
+    public static
+    Collector<Long, ?, LongHashSet> toLongHashSet() {
+        return new CollectorImpl<>(LongHashSet::new, LongHashSet::add,
+                (left, right) -> { left.addAll(right); return left; },
+                CH_ID);
+    }
+
+    public static
+    Collector<Long, ?, LongArrayList> toLongArrayList() {
+        return new CollectorImpl<>(LongArrayList::new, LongArrayList::add,
+                (left, right) -> { left.addAll(right); return left; },
+                CH_ID);
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates elements into an {@link ImmutableLongArray}. The
+     * elements are gathered in a {@link LongArrayList}, which is then frozen without being copied.
+     */
+    public static
+    Collector<Long, ?, ImmutableLongArray> toImmutableLongArray() {
+        return new CollectorImpl<>(LongArrayList::new, LongArrayList::add,
+                (left, right) -> { left.addAll(right); return left; },
+                LongArrayList::freeze,
+                CH_NOID);
+    }
+
+    public static
+    Collector<Double, ?, DoubleArrayList> toDoubleArrayList() {
+        return new CollectorImpl<>(DoubleArrayList::new, DoubleArrayList::add,
+                (left, right) -> { left.addAll(right); return left; },
+                CH_ID);
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates elements into an {@link ImmutableDoubleArray}.
+     * The elements are gathered in a {@link DoubleArrayList}, which is then frozen without being
+     * copied.
+     */
+    public static
+    Collector<Double, ?, ImmutableDoubleArray> toImmutableDoubleArray() {
+        return new CollectorImpl<>(DoubleArrayList::new, DoubleArrayList::add,
+                (left, right) -> { left.addAll(right); return left; },
+                DoubleArrayList::freeze,
+                CH_NOID);
+    }
+
+    public static
+    Collector<Byte, ?, ByteArrayList> toByteArrayList() {
+        return new CollectorImpl<>(ByteArrayList::new, ByteArrayList::add,
+                (left, right) -> { left.addAll(right); return left; },
+                CH_ID);
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates elements into a {@link Long2LongHashMap} whose
+     * keys and values are the result of applying the provided mapping functions to the input
+     * elements, without boxing either.
+     *
+     * @throws IllegalStateException from the collection if two elements map to the same key
+     * @throws IllegalArgumentException from the collection if an element maps to the map's
+     *     {@linkplain Long2LongHashMap#missingValue() missing value}
+     */
+    public static <T>
+    Collector<T, ?, Long2LongHashMap> toLong2LongHashMap(ToLongFunction<? super T> keyMapper,
+                                                         ToLongFunction<? super T> valueMapper) {
+        BiConsumer<Long2LongHashMap, T> accumulator
+                = (map, element) -> putUnique(map, keyMapper.applyAsLong(element),
+                valueMapper.applyAsLong(element));
+        return new CollectorImpl<>(Long2LongHashMap::new, accumulator,
+                (left, right) -> {
+                    right.longForEach((k, v) -> putUnique(left, k, v));
+                    return left;
+                },
+                CH_ID);
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates elements into a {@link Long2ObjectHashMap} whose
+     * keys are the result of applying {@code keyMapper} to the input elements, without boxing them,
+     * and whose values are the result of applying {@code valueMapper}.
+     *
+     * @throws IllegalStateException from the collection if two elements map to the same key
+     * @throws NullPointerException from the collection if an element maps to a null value
+     */
+    public static <T, U>
+    Collector<T, ?, Long2ObjectHashMap<U>> toLong2ObjectHashMap(
+            ToLongFunction<? super T> keyMapper,
+            Function<? super T, ? extends U> valueMapper) {
+        BiConsumer<Long2ObjectHashMap<U>, T> accumulator
+                = (map, element) -> putUnique(map, keyMapper.applyAsLong(element),
+                valueMapper.apply(element));
+        return new CollectorImpl<>(Long2ObjectHashMap::new, accumulator,
+                (left, right) -> {
+                    right.longForEach((k, v) -> putUnique(left, k, v));
+                    return left;
+                },
+                CH_ID);
+    }
+
+    private static void putUnique(Int2IntHashMap map, int key, int value) {
+        if (map.put(key, value) != map.missingValue()) {
+            throw new IllegalStateException(String.format("Duplicate key %s", key));
+        }
+    }
+
+    private static void putUnique(Long2LongHashMap map, long key, long value) {
+        if (map.put(key, value) != map.missingValue()) {
+            throw new IllegalStateException(String.format("Duplicate key %s", key));
+        }
+    }
+
+    private static <U> void putUnique(Long2ObjectHashMap<U> map, long key, U value) {
+        if (map.put(key, value) != null) {
+            throw new IllegalStateException(String.format("Duplicate key %s", key));
+        }
     }
 
 
@@ -74,6 +223,152 @@ public final class PrimitiveCollectors {
         return new CollectorImpl(mapSupplier, accumulator, mapMerger(mergeFunction), CH_ID);
     }
 
+    // ---------------- Collectors for primitive streams ----------------
+
+    /**
+     * Returns an {@link IntCollector} that accumulates the elements of an {@code IntStream} into an
+     * {@link IntArrayList} in encounter order, without boxing them.
+     */
+    public static IntCollector<?, IntArrayList> intsToIntArrayList() {
+        return new IntCollectorImpl<>(IntArrayList::new, IntArrayList::addInt,
+                IntArrayList::addAll, castingIdentity());
+    }
+
+    /**
+     * Returns an {@link IntCollector} that accumulates the elements of an {@code IntStream} into an
+     * {@link ImmutableIntArray} in encounter order, without boxing them.
+     */
+    public static IntCollector<?, ImmutableIntArray> intsToImmutableIntArray() {
+        return new IntCollectorImpl<>(ImmutableIntArray::builder, ImmutableIntArray.Builder::add,
+                (left, right) -> left.addAll(right.build()), ImmutableIntArray.Builder::build);
+    }
+
+    /**
+     * Returns an {@link IntCollector} that accumulates the elements of an {@code IntStream} into an
+     * {@link IntHashSet}, without boxing them.
+     */
+    public static IntCollector<?, IntHashSet> intsToIntHashSet() {
+        return new IntCollectorImpl<>(IntHashSet::new, IntHashSet::add,
+                IntHashSet::addAll, castingIdentity());
+    }
+
+    /**
+     * Returns an {@link IntCollector} that accumulates the elements of an {@code IntStream} into an
+     * {@link Int2IntHashMap} whose keys and values are the result of applying the provided mapping
+     * functions to each element.
+     *
+     * @throws IllegalStateException from the collection if two elements map to the same key
+     * @throws IllegalArgumentException from the collection if an element maps to the map's
+     *     {@linkplain Int2IntHashMap#missingValue() missing value}
+     */
+    public static IntCollector<?, Int2IntHashMap> intsToInt2IntHashMap(
+            IntUnaryOperator keyMapper,
+            IntUnaryOperator valueMapper) {
+        return new IntCollectorImpl<Int2IntHashMap, Int2IntHashMap>(Int2IntHashMap::new,
+                (map, element) -> putUnique(map, keyMapper.applyAsInt(element),
+                        valueMapper.applyAsInt(element)),
+                (left, right) -> right.intForEach((k, v) -> putUnique(left, k, v)),
+                castingIdentity());
+    }
+
+    /**
+     * Returns an {@link IntCollector} that counts the occurrences of each element of an {@code
+     * IntStream}, as {@code Collectors.groupingBy(identity(), counting())} would without boxing.
+     *
+     * @see #intsCountingBy(IntUnaryOperator)
+     */
+    public static IntCollector<?, Int2IntHashMap> intsCounting() {
+        return intsCountingBy(IntUnaryOperator.identity());
+    }
+
+    /**
+     * Returns an {@link IntCollector} that groups the elements of an {@code IntStream} by the
+     * result of applying {@code classifier} to them, and counts the elements in each group. The
+     * counts are held in an {@link Int2IntHashMap} whose {@linkplain Int2IntHashMap#missingValue()
+     * missing value} is zero, so {@link Int2IntHashMap#get(int)} returns zero for a key with no
+     * elements.
+     *
+     * <p>Counting an element whose key is already present allocates nothing, and the partial
+     * results of a parallel stream are merged with {@link Int2IntHashMap#addValues}.
+     */
+    public static IntCollector<?, Int2IntHashMap> intsCountingBy(IntUnaryOperator classifier) {
+        return new IntCollectorImpl<Int2IntHashMap, Int2IntHashMap>(
+                () -> new Int2IntHashMap(0),
+                (map, element) -> map.increment(classifier.applyAsInt(element)),
+                Int2IntHashMap::addValues, castingIdentity());
+    }
+
+    /**
+     * Returns a {@link LongCollector} that accumulates the elements of a {@code LongStream} into a
+     * {@link LongArrayList} in encounter order, without boxing them.
+     */
+    public static LongCollector<?, LongArrayList> longsToLongArrayList() {
+        return new LongCollectorImpl<>(LongArrayList::new, LongArrayList::addLong,
+                LongArrayList::addAll, castingIdentity());
+    }
+
+    /**
+     * Returns a {@link LongCollector} that accumulates the elements of a {@code LongStream} into an
+     * {@link ImmutableLongArray} in encounter order, without boxing them. The elements are gathered
+     * in a {@link LongArrayList}, which is then frozen without being copied.
+     */
+    public static LongCollector<?, ImmutableLongArray> longsToImmutableLongArray() {
+        return new LongCollectorImpl<>(LongArrayList::new, LongArrayList::addLong,
+                LongArrayList::addAll, LongArrayList::freeze);
+    }
+
+    /**
+     * Returns a {@link LongCollector} that accumulates the elements of a {@code LongStream} into a
+     * {@link LongHashSet}, without boxing them.
+     */
+    public static LongCollector<?, LongHashSet> longsToLongHashSet() {
+        return new LongCollectorImpl<>(LongHashSet::new, LongHashSet::add,
+                LongHashSet::addAll, castingIdentity());
+    }
+
+    /**
+     * Returns a {@link LongCollector} that counts the occurrences of each element of a {@code
+     * LongStream}, as {@code Collectors.groupingBy(identity(), counting())} would without boxing.
+     *
+     * @see #longsCountingBy(LongUnaryOperator)
+     */
+    public static LongCollector<?, Long2LongHashMap> longsCounting() {
+        return longsCountingBy(LongUnaryOperator.identity());
+    }
+
+    /**
+     * Returns a {@link LongCollector} that groups the elements of a {@code LongStream} by the
+     * result of applying {@code classifier} to them, and counts the elements in each group. The
+     * counts are held in a {@link Long2LongHashMap} whose {@linkplain
+     * Long2LongHashMap#missingValue() missing value} is zero, so {@link Long2LongHashMap#get(long)}
+     * returns zero for a key with no elements.
+     */
+    public static LongCollector<?, Long2LongHashMap> longsCountingBy(LongUnaryOperator classifier) {
+        return new LongCollectorImpl<Long2LongHashMap, Long2LongHashMap>(
+                () -> new Long2LongHashMap(0L),
+                (map, element) -> map.increment(classifier.applyAsLong(element)),
+                Long2LongHashMap::addValues, castingIdentity());
+    }
+
+    /**
+     * Returns a {@link DoubleCollector} that accumulates the elements of a {@code DoubleStream}
+     * into a {@link DoubleArrayList} in encounter order, without boxing them.
+     */
+    public static DoubleCollector<?, DoubleArrayList> doublesToDoubleArrayList() {
+        return new DoubleCollectorImpl<>(DoubleArrayList::new, DoubleArrayList::addDouble,
+                DoubleArrayList::addAll, castingIdentity());
+    }
+
+    /**
+     * Returns a {@link DoubleCollector} that accumulates the elements of a {@code DoubleStream}
+     * into an {@link ImmutableDoubleArray} in encounter order, without boxing them. The elements
+     * are gathered in a {@link DoubleArrayList}, which is then frozen without being copied.
+     */
+    public static DoubleCollector<?, ImmutableDoubleArray> doublesToImmutableDoubleArray() {
+        return new DoubleCollectorImpl<>(DoubleArrayList::new, DoubleArrayList::addDouble,
+                DoubleArrayList::addAll, DoubleArrayList::freeze);
+    }
+
     private static <K, V, M extends Map<K,V>>
     BinaryOperator<M> mapMerger(BinaryOperator<V> mergeFunction) {
         return (m1, m2) -> {
@@ -83,10 +378,6 @@ public final class PrimitiveCollectors {
         };
     }
 
-    private static <T> BinaryOperator<T> throwingMerger() {
-        return (u,v) -> { throw new IllegalStateException(String.format("Duplicate key %s", u)); };
-    }
-
 
 
 
@@ -99,6 +390,135 @@ public final class PrimitiveCollectors {
     }
 
 
+    /**
+     * Simple implementation class for {@code IntCollector}.
+     *
+     * @param <A> the mutable accumulation type
+     * @param <R> the type of the result
+     */
+    static class IntCollectorImpl<A, R> implements IntCollector<A, R> {
+        private final Supplier<A> supplier;
+        private final ObjIntConsumer<A> accumulator;
+        private final BiConsumer<A, A> combiner;
+        private final Function<A, R> finisher;
+
+        IntCollectorImpl(Supplier<A> supplier,
+                         ObjIntConsumer<A> accumulator,
+                         BiConsumer<A, A> combiner,
+                         Function<A, R> finisher) {
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+            this.finisher = finisher;
+        }
+
+        @Override
+        public Supplier<A> supplier() {
+            return supplier;
+        }
+
+        @Override
+        public ObjIntConsumer<A> accumulator() {
+            return accumulator;
+        }
+
+        @Override
+        public BiConsumer<A, A> combiner() {
+            return combiner;
+        }
+
+        @Override
+        public Function<A, R> finisher() {
+            return finisher;
+        }
+    }
+
+    /**
+     * Simple implementation class for {@code LongCollector}.
+     *
+     * @param <A> the mutable accumulation type
+     * @param <R> the type of the result
+     */
+    static class LongCollectorImpl<A, R> implements LongCollector<A, R> {
+        private final Supplier<A> supplier;
+        private final ObjLongConsumer<A> accumulator;
+        private final BiConsumer<A, A> combiner;
+        private final Function<A, R> finisher;
+
+        LongCollectorImpl(Supplier<A> supplier,
+                          ObjLongConsumer<A> accumulator,
+                          BiConsumer<A, A> combiner,
+                          Function<A, R> finisher) {
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+            this.finisher = finisher;
+        }
+
+        @Override
+        public Supplier<A> supplier() {
+            return supplier;
+        }
+
+        @Override
+        public ObjLongConsumer<A> accumulator() {
+            return accumulator;
+        }
+
+        @Override
+        public BiConsumer<A, A> combiner() {
+            return combiner;
+        }
+
+        @Override
+        public Function<A, R> finisher() {
+            return finisher;
+        }
+    }
+
+    /**
+     * Simple implementation class for {@code DoubleCollector}.
+     *
+     * @param <A> the mutable accumulation type
+     * @param <R> the type of the result
+     */
+    static class DoubleCollectorImpl<A, R> implements DoubleCollector<A, R> {
+        private final Supplier<A> supplier;
+        private final ObjDoubleConsumer<A> accumulator;
+        private final BiConsumer<A, A> combiner;
+        private final Function<A, R> finisher;
+
+        DoubleCollectorImpl(Supplier<A> supplier,
+                            ObjDoubleConsumer<A> accumulator,
+                            BiConsumer<A, A> combiner,
+                            Function<A, R> finisher) {
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+            this.finisher = finisher;
+        }
+
+        @Override
+        public Supplier<A> supplier() {
+            return supplier;
+        }
+
+        @Override
+        public ObjDoubleConsumer<A> accumulator() {
+            return accumulator;
+        }
+
+        @Override
+        public BiConsumer<A, A> combiner() {
+            return combiner;
+        }
+
+        @Override
+        public Function<A, R> finisher() {
+            return finisher;
+        }
+    }
+
     /**
      * Simple implementation class for {@code Collector}.
      *
@@ -0,0 +1,360 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.graph;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.graph.GraphConstants.DEFAULT_NODE_COUNT;
+import static com.google.common.graph.GraphConstants.NODE_NOT_IN_GRAPH;
+import static com.google.common.graph.GraphConstants.SELF_LOOPS_NOT_ALLOWED;
+import static com.google.common.graph.Graphs.checkNonNegative;
+import static com.google.common.graph.Graphs.checkPositive;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.Int2IntArrayMultimap;
+import com.google.common.collect.IntHashSet;
+import com.google.common.collect.LongHashSet;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link MutableGraph} whose nodes are {@code int} values, stored without boxing. Nodes are held
+ * in an {@link IntHashSet}, edges in a {@link LongHashSet} of packed node pairs, and adjacency in
+ * {@link Int2IntArrayMultimap}s rather than in a map of per-node {@code GraphConnections} objects,
+ * so a graph of a million nodes holds a few primitive arrays rather than millions of boxed nodes
+ * and hash tables.
+ *
+ * <p>Each {@link MutableGraph} method has a primitive overload, such as {@link #putEdge(int, int)}
+ * and {@link #hasEdgeConnecting(int, int)}, and {@link #forEachSuccessor} and {@link
+ * #forEachPredecessor} visit neighbors without allocating. The {@link Graph} views, such as {@link
+ * #successors(Integer)}, box their elements as they are read.
+ *
+ * <p>Self-loops are not allowed, and {@link #nodeOrder()} is {@linkplain ElementOrder#unordered()
+ * unordered}. Adding an edge and testing for one take constant time, as with {@link
+ * GraphBuilder}'s graphs; removing a node or edge takes time proportional to the degree of the
+ * nodes involved.
+ * This class is not thread-safe.
+ */
+@Beta
+@GwtIncompatible
+public final class IntGraph extends AbstractGraph<Integer> implements MutableGraph<Integer> {
+  private static final float NODE_LOAD_FACTOR = 0.75f;
+
+  private final boolean directed;
+  // Iterators are not cached, as algorithms over graphs often iterate over the nodes reentrantly
+  private final IntHashSet nodes = new IntHashSet(DEFAULT_NODE_COUNT, NODE_LOAD_FACTOR, false);
+  private final Int2IntArrayMultimap successors = new Int2IntArrayMultimap();
+  // The same multimap as successors when the graph is undirected
+  private final Int2IntArrayMultimap predecessors;
+  // Each edge as edgeKey(nodeU, nodeV), and also as edgeKey(nodeV, nodeU) when undirected
+  private final LongHashSet edges = new LongHashSet(DEFAULT_NODE_COUNT, NODE_LOAD_FACTOR, false);
+  private long edgeCount;
+
+  /** Returns a new, empty directed graph. */
+  public static IntGraph directed() {
+    return new IntGraph(true);
+  }
+
+  /** Returns a new, empty undirected graph. */
+  public static IntGraph undirected() {
+    return new IntGraph(false);
+  }
+
+  private IntGraph(boolean directed) {
+    this.directed = directed;
+    this.predecessors = directed ? new Int2IntArrayMultimap() : successors;
+  }
+
+  @Override
+  public boolean isDirected() {
+    return directed;
+  }
+
+  @Override
+  public boolean allowsSelfLoops() {
+    return false;
+  }
+
+  @Override
+  public ElementOrder<Integer> nodeOrder() {
+    return ElementOrder.unordered();
+  }
+
+  @Override
+  protected long edgeCount() {
+    return edgeCount;
+  }
+
+  /** Returns whether {@code node} is an element of this graph. */
+  public boolean containsNode(int node) {
+    return nodes.contains(node);
+  }
+
+  /**
+   * Returns whether this graph has an edge from {@code nodeU} to {@code nodeV}, or between them if
+   * the graph is undirected.
+   */
+  public boolean hasEdgeConnecting(int nodeU, int nodeV) {
+    return edges.contains(edgeKey(nodeU, nodeV));
+  }
+
+  @Override
+  public boolean hasEdgeConnecting(Integer nodeU, Integer nodeV) {
+    return hasEdgeConnecting((int) checkNotNull(nodeU), (int) checkNotNull(nodeV));
+  }
+
+  /**
+   * Returns the number of edges leaving {@code node}, or incident to it if the graph is undirected.
+   *
+   * @throws IllegalArgumentException if {@code node} is not an element of this graph
+   */
+  public int outDegree(int node) {
+    checkNode(node);
+    return successors.valueCount(node);
+  }
+
+  @Override
+  public int outDegree(Integer node) {
+    return outDegree((int) checkNotNull(node));
+  }
+
+  /**
+   * Returns the number of edges entering {@code node}, or incident to it if the graph is
+   * undirected.
+   *
+   * @throws IllegalArgumentException if {@code node} is not an element of this graph
+   */
+  public int inDegree(int node) {
+    checkNode(node);
+    return predecessors.valueCount(node);
+  }
+
+  @Override
+  public int inDegree(Integer node) {
+    return inDegree((int) checkNotNull(node));
+  }
+
+  /**
+   * Calls {@code action} with each successor of {@code node}, in the order their edges were added,
+   * without allocating. The graph must not be modified while the successors are being visited.
+   *
+   * @throws IllegalArgumentException if {@code node} is not an element of this graph
+   */
+  public void forEachSuccessor(int node, IntConsumer action) {
+    checkNode(node);
+    successors.forEachValue(node, action);
+  }
+
+  /**
+   * Calls {@code action} with each predecessor of {@code node}, in the order their edges were
+   * added, without allocating. The graph must not be modified while the predecessors are being
+   * visited.
+   *
+   * @throws IllegalArgumentException if {@code node} is not an element of this graph
+   */
+  public void forEachPredecessor(int node, IntConsumer action) {
+    checkNode(node);
+    predecessors.forEachValue(node, action);
+  }
+
+  @Override
+  public Set<Integer> nodes() {
+    return Collections.unmodifiableSet(nodes);
+  }
+
+  @Override
+  public Set<Integer> successors(Integer node) {
+    return new NeighborSet(checkNode(checkNotNull(node)), successors, true);
+  }
+
+  @Override
+  public Set<Integer> predecessors(Integer node) {
+    return new NeighborSet(checkNode(checkNotNull(node)), predecessors, false);
+  }
+
+  @Override
+  public Set<Integer> adjacentNodes(Integer node) {
+    return directed ? Sets.union(successors(node), predecessors(node)) : successors(node);
+  }
+
+  /**
+   * Adds {@code node} to this graph.
+   *
+   * @return whether the graph changed
+   */
+  @CanIgnoreReturnValue
+  public boolean addNode(int node) {
+    return nodes.add(node);
+  }
+
+  @Override
+  @CanIgnoreReturnValue
+  public boolean addNode(Integer node) {
+    return addNode((int) checkNotNull(node, "node"));
+  }
+
+  /**
+   * Adds an edge from {@code nodeU} to {@code nodeV}, or between them if the graph is undirected,
+   * adding either node if it is not already present.
+   *
+   * @return whether the graph changed
+   * @throws IllegalArgumentException if {@code nodeU} and {@code nodeV} are the same node
+   */
+  @CanIgnoreReturnValue
+  public boolean putEdge(int nodeU, int nodeV) {
+    checkArgument(nodeU != nodeV, SELF_LOOPS_NOT_ALLOWED, nodeU);
+    nodes.add(nodeU);
+    nodes.add(nodeV);
+    if (!edges.add(edgeKey(nodeU, nodeV))) {
+      return false;
+    }
+    if (!directed) {
+      edges.add(edgeKey(nodeV, nodeU));
+    }
+    successors.put(nodeU, nodeV);
+    predecessors.put(nodeV, nodeU);
+    checkPositive(++edgeCount);
+    return true;
+  }
+
+  @Override
+  @CanIgnoreReturnValue
+  public boolean putEdge(Integer nodeU, Integer nodeV) {
+    return putEdge((int) checkNotNull(nodeU, "nodeU"), (int) checkNotNull(nodeV, "nodeV"));
+  }
+
+  /**
+   * Removes {@code node} and every edge incident to it from this graph.
+   *
+   * @return whether the graph changed
+   */
+  @CanIgnoreReturnValue
+  public boolean removeNode(int node) {
+    if (!nodes.remove(node)) {
+      return false;
+    }
+    successors.forEachValue(
+        node,
+        successor -> {
+          predecessors.remove(successor, node);
+          removeEdgeKeys(node, successor);
+        });
+    edgeCount -= successors.removeAll(node);
+    if (directed) { // In undirected graphs, the successors and predecessors are the same.
+      predecessors.forEachValue(
+          node,
+          predecessor -> {
+            successors.remove(predecessor, node);
+            removeEdgeKeys(predecessor, node);
+          });
+      edgeCount -= predecessors.removeAll(node);
+    }
+    checkNonNegative(edgeCount);
+    return true;
+  }
+
+  @Override
+  @CanIgnoreReturnValue
+  public boolean removeNode(Integer node) {
+    return removeNode((int) checkNotNull(node, "node"));
+  }
+
+  /**
+   * Removes the edge from {@code nodeU} to {@code nodeV}, or between them if the graph is
+   * undirected.
+   *
+   * @return whether the graph changed
+   */
+  @CanIgnoreReturnValue
+  public boolean removeEdge(int nodeU, int nodeV) {
+    if (!edges.contains(edgeKey(nodeU, nodeV))) {
+      return false;
+    }
+    removeEdgeKeys(nodeU, nodeV);
+    successors.remove(nodeU, nodeV);
+    predecessors.remove(nodeV, nodeU);
+    checkNonNegative(--edgeCount);
+    return true;
+  }
+
+  @Override
+  @CanIgnoreReturnValue
+  public boolean removeEdge(Integer nodeU, Integer nodeV) {
+    return removeEdge((int) checkNotNull(nodeU, "nodeU"), (int) checkNotNull(nodeV, "nodeV"));
+  }
+
+  private void removeEdgeKeys(int nodeU, int nodeV) {
+    edges.remove(edgeKey(nodeU, nodeV));
+    if (!directed) {
+      edges.remove(edgeKey(nodeV, nodeU));
+    }
+  }
+
+  /** Packs the edge from {@code nodeU} to {@code nodeV} into a single {@code long}. */
+  private static long edgeKey(int nodeU, int nodeV) {
+    return ((long) nodeU << 32) | (nodeV & 0xFFFFFFFFL);
+  }
+
+  private int checkNode(int node) {
+    checkArgument(nodes.contains(node), NODE_NOT_IN_GRAPH, node);
+    return node;
+  }
+
+  /**
+   * An unmodifiable view of the neighbors of a node on one side. Its size is read from the
+   * adjacency multimap and its membership tests from the edge set; its iterator walks a copy of the
+   * neighbors taken when the iterator is created.
+   */
+  private final class NeighborSet extends AbstractSet<Integer> {
+    private final int node;
+    private final Int2IntArrayMultimap adjacency;
+    private final boolean outgoing;
+
+    NeighborSet(int node, Int2IntArrayMultimap adjacency, boolean outgoing) {
+      this.node = node;
+      this.adjacency = adjacency;
+      this.outgoing = outgoing;
+    }
+
+    @Override
+    public int size() {
+      return adjacency.valueCount(node);
+    }
+
+    @Override
+    public boolean contains(@Nullable Object object) {
+      if (!(object instanceof Integer)) {
+        return false;
+      }
+      int neighbor = (Integer) object;
+      return outgoing ? hasEdgeConnecting(node, neighbor) : hasEdgeConnecting(neighbor, node);
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+      return Collections.unmodifiableList(Ints.asList(adjacency.get(node))).iterator();
+    }
+  }
+}
@@ -22,17 +22,26 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.hash.BloomFilterStrategies.LockFreeBitArray;
+import com.google.common.hash.BloomFilterStrategies.LongArray;
 import com.google.common.math.DoubleMath;
+import com.google.common.math.LongMath;
 import com.google.common.primitives.SignedBytes;
 import com.google.common.primitives.UnsignedBytes;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.stream.Collector;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -115,6 +124,11 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
     checkArgument(numHashFunctions > 0, "numHashFunctions (%s) must be > 0", numHashFunctions);
     checkArgument(
         numHashFunctions <= 255, "numHashFunctions (%s) must be <= 255", numHashFunctions);
+    checkArgument(
+        strategy != BloomFilterStrategies.MURMUR128_BLOCKED
+            || bits.data.length() % BloomFilterStrategies.LONGS_PER_BLOCK == 0,
+        "blocked BloomFilter must have a whole number of blocks (%s longs)",
+        bits.data.length());
     this.bits = checkNotNull(bits);
     this.numHashFunctions = numHashFunctions;
     this.funnel = checkNotNull(funnel);
@@ -177,6 +191,10 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
    * @since 14.0 (since 11.0 as expectedFalsePositiveProbability())
    */
   public double expectedFpp() {
+    if (strategy == BloomFilterStrategies.MURMUR128_BLOCKED) {
+      return blockedFalsePositiveProbability(
+          approximateElementCount(), bitSize(), numHashFunctions);
+    }
     // You down with FPP? (Yeah you know me!) Who's down with FPP? (Every last homie!)
     return Math.pow((double) bits.bitCount() / bitSize(), numHashFunctions);
   }
@@ -405,31 +423,68 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
     return create(funnel, expectedInsertions, fpp, BloomFilterStrategies.MURMUR128_MITZ_64);
   }
 
+  /**
+   * Creates a blocked {@link BloomFilter} with the expected number of insertions and expected false
+   * positive probability. A blocked Bloom filter sets and tests all the bits of an element within
+   * one 64-byte block, so each {@link #put} or {@link #mightContain} reads one or two adjacent
+   * cache lines, rather than one per hash function. This makes it faster than the filters returned
+   * by {@link #create(Funnel, long, double)} once they no longer fit in the CPU caches, by as much
+   * as the cache misses cost relative to hashing the element. In exchange, it needs more bits for
+   * the same false positive probability: about 3% more at {@code fpp} 3%, 10% more at 0.1% and 35%
+   * more at 0.0001%.
+   *
+   * <p>Blocked filters are otherwise used like any other: they are serializable, can be written
+   * with {@link #writeTo} and read back with {@link #readFrom}, and can be combined with compatible
+   * (that is, blocked) filters by {@link #putAll}.
+   *
+   * @param funnel the funnel of T's that the constructed {@code BloomFilter} will use
+   * @param expectedInsertions the number of expected insertions to the constructed {@code
+   *     BloomFilter}; must be positive
+   * @param fpp the desired false positive probability (must be positive and less than 1.0)
+   * @return a {@code BloomFilter}
+   */
+  public static <T> BloomFilter<T> createBlocked(
+      Funnel<? super T> funnel, long expectedInsertions, double fpp) {
+    return create(funnel, expectedInsertions, fpp, BloomFilterStrategies.MURMUR128_BLOCKED);
+  }
+
   @VisibleForTesting
   static <T> BloomFilter<T> create(
       Funnel<? super T> funnel, long expectedInsertions, double fpp, Strategy strategy) {
     checkNotNull(funnel);
+    long numBits = numBits(expectedInsertions, fpp, strategy);
+    int numHashFunctions = numHashFunctions(expectedInsertions, numBits, strategy);
+    try {
+      return new BloomFilter<T>(new LockFreeBitArray(numBits), numHashFunctions, funnel, strategy);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Could not create BloomFilter of " + numBits + " bits", e);
+    }
+  }
+
+  /** Checks the arguments of {@code create}, and returns the number of bits to create. */
+  private static long numBits(long expectedInsertions, double fpp, Strategy strategy) {
     checkArgument(
         expectedInsertions >= 0, "Expected insertions (%s) must be >= 0", expectedInsertions);
     checkArgument(fpp > 0.0, "False positive probability (%s) must be > 0.0", fpp);
     checkArgument(fpp < 1.0, "False positive probability (%s) must be < 1.0", fpp);
     checkNotNull(strategy);
 
-    if (expectedInsertions == 0) {
-      expectedInsertions = 1;
-    }
     /*
      * TODO(user): Put a warning in the javadoc about tiny fpp values, since the resulting size
      * is proportional to -log(p), but there is not much of a point after all, e.g.
      * optimalM(1000, 0.0000000000000001) = 76680 which is less than 10kb. Who cares!
      */
-    long numBits = optimalNumOfBits(expectedInsertions, fpp);
-    int numHashFunctions = optimalNumOfHashFunctions(expectedInsertions, numBits);
-    try {
-      return new BloomFilter<T>(new LockFreeBitArray(numBits), numHashFunctions, funnel, strategy);
-    } catch (IllegalArgumentException e) {
-      throw new IllegalArgumentException("Could not create BloomFilter of " + numBits + " bits", e);
-    }
+    expectedInsertions = Math.max(expectedInsertions, 1);
+    return strategy == BloomFilterStrategies.MURMUR128_BLOCKED
+        ? optimalNumOfBlockedBits(expectedInsertions, fpp)
+        : optimalNumOfBits(expectedInsertions, fpp);
+  }
+
+  private static int numHashFunctions(long expectedInsertions, long numBits, Strategy strategy) {
+    expectedInsertions = Math.max(expectedInsertions, 1);
+    return strategy == BloomFilterStrategies.MURMUR128_BLOCKED
+        ? optimalNumOfBlockedHashFunctions(expectedInsertions, numBits)
+        : optimalNumOfHashFunctions(expectedInsertions, numBits);
   }
 
   /**
@@ -524,6 +579,83 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
     return (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2)));
   }
 
+  // A blocked Bloom filter of m bits is m / B small Bloom filters of B bits, with the elements
+  // spread among them at random. The number of elements in a block is then (nearly) Poisson
+  // distributed with mean n * B / m, and the false positive probability is the average, over that
+  // distribution, of the false positive probability of a B-bit filter. Fuller blocks cost more
+  // than emptier ones save, so blocked filters need more bits, and a somewhat smaller k.
+
+  /** The largest number of bits that a {@link LockFreeBitArray} can hold. */
+  private static final long MAX_BITS = (long) Integer.MAX_VALUE * Long.SIZE;
+
+  /**
+   * Computes the false positive probability of a blocked Bloom filter of {@code m} bits with
+   * {@code k} hash functions, once {@code n} elements have been inserted.
+   */
+  @VisibleForTesting
+  static double blockedFalsePositiveProbability(long n, long m, int k) {
+    double lambda = (double) n * BloomFilterStrategies.BITS_PER_BLOCK / m;
+    if (lambda == 0) {
+      return 0;
+    }
+    // ln of the probability that one element leaves a given bit of its block clear
+    double logBitClear = k * Math.log1p(-1.0 / BloomFilterStrategies.BITS_PER_BLOCK);
+    // Sum the Poisson probabilities out to 12 standard deviations, where the rest is negligible
+    double spread = 12 * Math.sqrt(lambda) + 12;
+    double logLambda = Math.log(lambda);
+    double logPoisson = -lambda;
+    double p = 0;
+    for (int i = 0; i <= lambda + spread; i++) {
+      if (i > 0) {
+        logPoisson += logLambda - Math.log(i);
+      }
+      if (i >= lambda - spread) {
+        p += Math.exp(logPoisson) * Math.pow(-Math.expm1(i * logBitClear), k);
+      }
+    }
+    return Math.min(p, 1.0);
+  }
+
+  /**
+   * Computes the k that minimizes the false positive probability of a blocked Bloom filter of
+   * {@code m} bits after {@code n} insertions.
+   */
+  @VisibleForTesting
+  static int optimalNumOfBlockedHashFunctions(long n, long m) {
+    // The probability is unimodal in k, so stop as soon as it stops falling.
+    int k = 1;
+    double p = blockedFalsePositiveProbability(n, m, k);
+    while (k < 255) {
+      double next = blockedFalsePositiveProbability(n, m, k + 1);
+      if (next >= p) {
+        break;
+      }
+      k++;
+      p = next;
+    }
+    return k;
+  }
+
+  /**
+   * Computes m for a blocked Bloom filter: the least whole number of blocks, to within about 3%,
+   * that achieves the required false positive probability for the specified expected insertions.
+   *
+   * @param n expected insertions (must be positive)
+   * @param p false positive rate (must be 0 < p < 1)
+   */
+  @VisibleForTesting
+  static long optimalNumOfBlockedBits(long n, double p) {
+    long blockBits = BloomFilterStrategies.BITS_PER_BLOCK;
+    // An unblocked filter of the same fpp is a lower bound
+    long m = Math.max(1, LongMath.divide(optimalNumOfBits(n, p), blockBits, RoundingMode.CEILING));
+    m *= blockBits;
+    while (m < MAX_BITS
+        && blockedFalsePositiveProbability(n, m, optimalNumOfBlockedHashFunctions(n, m)) > p) {
+      m += Math.max(1, m / blockBits / 32) * blockBits;
+    }
+    return m;
+  }
+
   private Object writeReplace() {
     return new SerialForm<T>(this);
   }
@@ -615,4 +747,177 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
       throw new IOException(message, e);
     }
   }
+
+  /*
+   * The file of a mapped BloomFilter is little-endian, so that its bits can be updated in place on
+   * common platforms. It starts with a header of MAPPED_HEADER_LENGTH bytes:
+   *
+   *   0  int   MAPPED_MAGIC
+   *   4  byte  the format version, MAPPED_VERSION
+   *   5  byte  the strategy ordinal
+   *   6  byte  the number of hash functions, unsigned
+   *   7  byte  zero
+   *   8  int   the number of longs of bits
+   *  12        zeros
+   *
+   * followed by the longs of bits. The header takes a cache line, so that the blocks of a blocked
+   * filter are aligned to cache lines in memory. A new version may only use the zeros for new
+   * fields, or change the format entirely; readers reject versions they don't know.
+   */
+
+  /** "GBMF", for Guava Bloom Mapped Filter, in ASCII. */
+  private static final int MAPPED_MAGIC = 0x464D4247;
+
+  private static final byte MAPPED_VERSION = 1;
+
+  private static final int MAPPED_HEADER_LENGTH = 64;
+
+  /**
+   * Creates a {@link BloomFilter} like {@link #create(Funnel, long, double)}, whose bits are stored
+   * in {@code file} instead of on the heap. The file is created, or truncated if it exists, and
+   * mapped into memory read-write. The operating system writes the bits back to it as they change,
+   * so that it can be opened by {@link #openMapped}, at the same time by other processes or later.
+   *
+   * <p>To store a filter created by {@link #create(Funnel, long, double)} in a file, {@link
+   * #putAll} it into a mapped filter created with the same arguments. A mapped filter is unmapped
+   * when it is garbage collected; its {@link #copy} is on the heap.
+   *
+   * @param file the file to store the bits in
+   * @param funnel the funnel of T's that the constructed {@code BloomFilter} will use
+   * @param expectedInsertions the number of expected insertions to the constructed {@code
+   *     BloomFilter}; must be positive
+   * @param fpp the desired false positive probability (must be positive and less than 1.0)
+   * @return a {@code BloomFilter}
+   * @throws IOException if the file cannot be written or mapped
+   */
+  @Beta
+  public static <T> BloomFilter<T> createMapped(
+      Path file, Funnel<? super T> funnel, long expectedInsertions, double fpp)
+      throws IOException {
+    return createMapped(
+        file, funnel, expectedInsertions, fpp, BloomFilterStrategies.MURMUR128_MITZ_64);
+  }
+
+  @VisibleForTesting
+  static <T> BloomFilter<T> createMapped(
+      Path file, Funnel<? super T> funnel, long expectedInsertions, double fpp, Strategy strategy)
+      throws IOException {
+    checkNotNull(file);
+    checkNotNull(funnel);
+    long numBits = numBits(expectedInsertions, fpp, strategy);
+    int numHashFunctions = numHashFunctions(expectedInsertions, numBits, strategy);
+    long dataLength = LongMath.divide(numBits, Long.SIZE, RoundingMode.CEILING);
+    checkArgument(
+        dataLength <= Integer.MAX_VALUE,
+        "Could not create BloomFilter of %s bits",
+        numBits);
+
+    ByteBuffer header = ByteBuffer.allocate(MAPPED_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+    header
+        .putInt(MAPPED_MAGIC)
+        .put(MAPPED_VERSION)
+        .put(SignedBytes.checkedCast(strategy.ordinal()))
+        .put(UnsignedBytes.checkedCast(numHashFunctions))
+        .put((byte) 0)
+        .putInt((int) dataLength);
+    header.clear();
+    try (FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      while (header.hasRemaining()) {
+        channel.write(header, header.position());
+      }
+      // Writing the last byte zero-fills the file, usually without allocating the bits on disk
+      channel.write(ByteBuffer.allocate(1), MAPPED_HEADER_LENGTH + dataLength * Long.BYTES - 1);
+      LongArray data =
+          MappedLongArray.map(
+              channel, MapMode.READ_WRITE, MAPPED_HEADER_LENGTH, (int) dataLength);
+      return new BloomFilter<T>(new LockFreeBitArray(data), numHashFunctions, funnel, strategy);
+    }
+  }
+
+  /**
+   * Opens a {@link BloomFilter} stored in {@code file} by {@link #createMapped}, by mapping it into
+   * memory. This takes constant time: the bits are only read from the file as they are needed.
+   *
+   * <p>With {@link MapMode#READ_WRITE}, other processes that map the same file see the bits set
+   * through this filter, and vice versa. Where the platform permits, bits are set with atomic
+   * instructions on the mapped memory, so concurrent {@link #put} calls from different processes
+   * are as safe as from different threads; otherwise they are only safe within a process. With
+   * {@link MapMode#READ_ONLY}, a {@link #put} that would change the filter throws {@link
+   * java.nio.ReadOnlyBufferException}. With {@link MapMode#PRIVATE}, the changes are only seen by
+   * this filter.
+   *
+   * <p>{@link #approximateElementCount} and {@link #expectedFpp} of a mapped filter count the set
+   * bits each time they are called, so that they include the bits set by other processes; this
+   * takes time proportional to its size.
+   *
+   * <p>The {@code Funnel} to be used is not stored in the file, so it must be provided here.
+   * <b>Warning:</b> the funnel provided <b>must</b> behave identically to the one used to populate
+   * the filter!
+   *
+   * @throws IOException if the file cannot be read or mapped, or does not appear to be a
+   *     BloomFilter created by {@link #createMapped}
+   */
+  @Beta
+  public static <T> BloomFilter<T> openMapped(Path file, Funnel<? super T> funnel, MapMode mode)
+      throws IOException {
+    checkNotNull(file, "Path");
+    checkNotNull(funnel, "Funnel");
+    checkNotNull(mode, "MapMode");
+    try (FileChannel channel =
+        mode == MapMode.READ_ONLY
+            ? FileChannel.open(file, StandardOpenOption.READ)
+            : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(MAPPED_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining()) {
+        if (channel.read(header, header.position()) < 0) {
+          throw new EOFException("Mapped BloomFilter header is truncated: " + file);
+        }
+      }
+      int magic = header.getInt(0);
+      int version = header.get(4);
+      int strategyOrdinal = header.get(5);
+      int numHashFunctions = UnsignedBytes.toInt(header.get(6));
+      int dataLength = header.getInt(8);
+      if (magic != MAPPED_MAGIC) {
+        throw new IOException("Not a mapped BloomFilter: " + file);
+      }
+      if (version != MAPPED_VERSION) {
+        throw new IOException("Unsupported mapped BloomFilter version " + version + ": " + file);
+      }
+      long expectedSize = MAPPED_HEADER_LENGTH + (long) dataLength * Long.BYTES;
+      if (dataLength < 0 || channel.size() != expectedSize) {
+        throw new IOException(
+            "Mapped BloomFilter of "
+                + dataLength
+                + " longs should take "
+                + expectedSize
+                + " bytes, not "
+                + channel.size()
+                + ": "
+                + file);
+      }
+      try {
+        Strategy strategy = BloomFilterStrategies.values()[strategyOrdinal];
+        LongArray data = MappedLongArray.map(channel, mode, MAPPED_HEADER_LENGTH, dataLength);
+        return new BloomFilter<T>(new LockFreeBitArray(data), numHashFunctions, funnel, strategy);
+      } catch (RuntimeException e) {
+        String message =
+            "Unable to open mapped BloomFilter from "
+                + file
+                + ". strategyOrdinal: "
+                + strategyOrdinal
+                + " numHashFunctions: "
+                + numHashFunctions
+                + " dataLength: "
+                + dataLength;
+        throw new IOException(message, e);
+      }
+    }
+  }
 }
@@ -0,0 +1,471 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.math.DoubleMath;
+import com.google.common.math.LongMath;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.RoundingMode;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A cuckoo filter for instances of {@code T}: like a {@link BloomFilter}, an approximate
+ * containment test with one-sided error, but one from which elements can also be {@linkplain
+ * #remove removed}. See "Cuckoo Filter: Practically Better Than Bloom" by Bin Fan, David G.
+ * Andersen, Michael Kaminsky and Michael D. Mitzenmacher.
+ *
+ * <p>The filter is a table of buckets of four slots, each of which holds a short fingerprint of an
+ * element or is empty. An element's fingerprint is stored in one of two buckets, the second of
+ * which can be computed from the first and the fingerprint alone, so that {@link #put} can make
+ * room by moving fingerprints to their other bucket. {@link #mightContain} reads just the two
+ * buckets. At false positive probabilities below about 0.5%, cuckoo filters take less space than
+ * Bloom filters; above it, they take more.
+ *
+ * <p>The price of deletion is that the filter has a fixed capacity: once it is nearly full, {@link
+ * #put} fails and returns {@code false}. Filters are sized so that this does not happen before
+ * {@code expectedInsertions} elements have been put. Putting the same element repeatedly stores a
+ * fingerprint each time, and so does count against the capacity (and needs as many removals).
+ *
+ * <p>Unlike {@link BloomFilter}, this class is not thread-safe.
+ *
+ * @param <T> the type of instances that the {@code CuckooFilter} accepts
+ */
+@Beta
+public final class CuckooFilter<T> {
+  /** The number of fingerprints a bucket holds. */
+  static final int SLOTS_PER_BUCKET = 4;
+
+  /** The fraction of slots that a filter is sized to fill after {@code expectedInsertions}. */
+  @VisibleForTesting static final double LOAD_FACTOR = 0.94;
+
+  /** The number of fingerprints {@link #put} moves, looking for an empty slot, before failing. */
+  private static final int MAX_KICKS = 500;
+
+  /** The fingerprints, SLOTS_PER_BUCKET per bucket, of which 0 marks an empty slot */
+  private final FingerprintArray fingerprints;
+
+  private final long numBuckets;
+
+  /** The funnel to translate Ts to bytes */
+  private final Funnel<? super T> funnel;
+
+  /** The number of fingerprints stored, including the victim */
+  private long size;
+
+  /**
+   * The fingerprint that the last failed {@link #put} was left holding, when no bucket had room for
+   * it, and its bucket; 0 if there is none. While it is set, the filter is full.
+   */
+  private int victimFingerprint;
+
+  private long victimBucket;
+
+  /** The state of the xorshift generator that picks which fingerprint {@link #put} moves. */
+  private long kickState = 0x9E3779B97F4A7C15L;
+
+  private CuckooFilter(
+      FingerprintArray fingerprints,
+      long numBuckets,
+      Funnel<? super T> funnel,
+      long size,
+      int victimFingerprint,
+      long victimBucket) {
+    checkArgument(numBuckets > 0, "numBuckets (%s) must be > 0", numBuckets);
+    this.fingerprints = checkNotNull(fingerprints);
+    this.numBuckets = numBuckets;
+    this.funnel = checkNotNull(funnel);
+    this.size = size;
+    this.victimFingerprint = victimFingerprint;
+    this.victimBucket = victimBucket;
+  }
+
+  /**
+   * Creates a {@link CuckooFilter} with the expected number of insertions and expected false
+   * positive probability.
+   *
+   * <p>Note that {@link #put} starts to fail once the filter holds somewhat more elements than
+   * {@code expectedInsertions}.
+   *
+   * @param funnel the funnel of T's that the constructed {@code CuckooFilter} will use
+   * @param expectedInsertions the number of expected insertions to the constructed {@code
+   *     CuckooFilter}; must be positive
+   * @param fpp the desired false positive probability (must be positive and less than 1.0). The
+   *     fingerprints are at most 32 bits, which limits the probability achieved to about {@code
+   *     2e-9}.
+   * @return a {@code CuckooFilter}
+   */
+  public static <T> CuckooFilter<T> create(
+      Funnel<? super T> funnel, long expectedInsertions, double fpp) {
+    checkNotNull(funnel);
+    checkArgument(
+        expectedInsertions >= 0, "Expected insertions (%s) must be >= 0", expectedInsertions);
+    checkArgument(fpp > 0.0, "False positive probability (%s) must be > 0.0", fpp);
+    checkArgument(fpp < 1.0, "False positive probability (%s) must be < 1.0", fpp);
+
+    long numBuckets =
+        Math.max(
+            1,
+            LongMath.divide(
+                (long) Math.ceil(expectedInsertions / LOAD_FACTOR),
+                SLOTS_PER_BUCKET,
+                RoundingMode.CEILING));
+    int bitsPerFingerprint = optimalBitsPerFingerprint(fpp);
+    try {
+      return new CuckooFilter<T>(
+          new FingerprintArray(numBuckets * SLOTS_PER_BUCKET, bitsPerFingerprint),
+          numBuckets,
+          funnel,
+          0,
+          0,
+          0);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          "Could not create CuckooFilter of " + numBuckets + " buckets", e);
+    }
+  }
+
+  /**
+   * Creates a {@link CuckooFilter} with the expected number of insertions and a default expected
+   * false positive probability of 3%.
+   *
+   * @param funnel the funnel of T's that the constructed {@code CuckooFilter} will use
+   * @param expectedInsertions the number of expected insertions to the constructed {@code
+   *     CuckooFilter}; must be positive
+   * @return a {@code CuckooFilter}
+   */
+  public static <T> CuckooFilter<T> create(Funnel<? super T> funnel, long expectedInsertions) {
+    return create(funnel, expectedInsertions, 0.03);
+  }
+
+  /**
+   * Computes the number of bits per fingerprint that achieves the false positive probability {@code
+   * p} in a full filter, in which a lookup compares against 2 * SLOTS_PER_BUCKET fingerprints.
+   */
+  @VisibleForTesting
+  static int optimalBitsPerFingerprint(double p) {
+    int bits = DoubleMath.log2(2 * SLOTS_PER_BUCKET / p, RoundingMode.CEILING);
+    return Math.max(1, Math.min(32, bits));
+  }
+
+  /**
+   * Creates a new {@code CuckooFilter} that's a copy of this instance. The new instance is equal to
+   * this instance but shares no mutable state.
+   */
+  public CuckooFilter<T> copy() {
+    return new CuckooFilter<T>(
+        fingerprints.copy(), numBuckets, funnel, size, victimFingerprint, victimBucket);
+  }
+
+  /**
+   * Returns {@code true} if the element <i>might</i> have been put in this filter (and not removed
+   * since), {@code false} if this is <i>definitely</i> not the case.
+   */
+  public boolean mightContain(T object) {
+    byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
+    int fingerprint = fingerprint(BloomFilterStrategies.upperEight(bytes));
+    long bucket1 = bucket(BloomFilterStrategies.lowerEight(bytes));
+    long bucket2 = alternateBucket(bucket1, fingerprint);
+    return bucketContains(bucket1, fingerprint)
+        || bucketContains(bucket2, fingerprint)
+        || (victimFingerprint == fingerprint
+            && (victimBucket == bucket1 || victimBucket == bucket2));
+  }
+
+  /**
+   * Puts an element into this {@code CuckooFilter}. Ensures that subsequent invocations of {@link
+   * #mightContain(Object)} with the same element will return {@code true}, until it is removed.
+   *
+   * @return true if the element was added; false, with the filter unchanged, if the filter is full
+   */
+  @CanIgnoreReturnValue
+  public boolean put(T object) {
+    if (victimFingerprint != 0) {
+      return false;
+    }
+    byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
+    int fingerprint = fingerprint(BloomFilterStrategies.upperEight(bytes));
+    long bucket = bucket(BloomFilterStrategies.lowerEight(bytes));
+    if (insert(bucket, fingerprint)) {
+      size++;
+      return true;
+    }
+    bucket = alternateBucket(bucket, fingerprint);
+    if (insert(bucket, fingerprint)) {
+      size++;
+      return true;
+    }
+
+    // Both buckets are full: displace a random fingerprint to its other bucket, and so on
+    for (int kick = 0; kick < MAX_KICKS; kick++) {
+      long slot = bucket * SLOTS_PER_BUCKET + (nextRandom() & (SLOTS_PER_BUCKET - 1));
+      int displaced = fingerprints.get(slot);
+      fingerprints.set(slot, fingerprint);
+      fingerprint = displaced;
+      bucket = alternateBucket(bucket, fingerprint);
+      if (insert(bucket, fingerprint)) {
+        size++;
+        return true;
+      }
+    }
+    // The element is stored, but some other is left over; keep it aside, so nothing is lost
+    victimFingerprint = fingerprint;
+    victimBucket = bucket;
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes an element from this {@code CuckooFilter}, if it might be contained in it, so that it
+   * takes one less {@link #put} to fill the filter. Only elements that have been put should be
+   * removed: removing a false positive removes the fingerprint of another element, which is then
+   * no longer reported as contained.
+   *
+   * @return true if a fingerprint matching the element was found and removed
+   */
+  @CanIgnoreReturnValue
+  public boolean remove(T object) {
+    byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
+    int fingerprint = fingerprint(BloomFilterStrategies.upperEight(bytes));
+    long bucket1 = bucket(BloomFilterStrategies.lowerEight(bytes));
+    long bucket2 = alternateBucket(bucket1, fingerprint);
+    if (delete(bucket1, fingerprint) || delete(bucket2, fingerprint)) {
+      size--;
+      if (victimFingerprint != 0) {
+        // There is room now, possibly in one of the victim's buckets
+        if (insert(victimBucket, victimFingerprint)
+            || insert(alternateBucket(victimBucket, victimFingerprint), victimFingerprint)) {
+          victimFingerprint = 0;
+        }
+      }
+      return true;
+    }
+    if (victimFingerprint == fingerprint && (victimBucket == bucket1 || victimBucket == bucket2)) {
+      victimFingerprint = 0;
+      size--;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of elements in this filter: those that have been put and not removed,
+   * counting an element as often as it was put.
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns the probability that {@linkplain #mightContain(Object)} will erroneously return {@code
+   * true} for an object that has not actually been put in the {@code CuckooFilter}, given how full
+   * it is.
+   */
+  public double expectedFpp() {
+    // Each of the 2 * SLOTS_PER_BUCKET slots that a lookup checks is occupied with probability
+    // load, and then matches with probability 1 / (2^bits - 1), 0 meaning empty
+    double load = (double) size / (numBuckets * SLOTS_PER_BUCKET);
+    double nonZeroFingerprints = (1L << fingerprints.bitsPerFingerprint) - 1;
+    return -Math.expm1(2 * SLOTS_PER_BUCKET * load * Math.log1p(-1.0 / nonZeroFingerprints));
+  }
+
+  /** Returns the number of bits in the underlying fingerprint array. */
+  @VisibleForTesting
+  long bitSize() {
+    return fingerprints.bitSize();
+  }
+
+  private long bucket(long hash) {
+    return (hash & Long.MAX_VALUE) % numBuckets;
+  }
+
+  /** Returns a nonzero fingerprint of {@code hash}, with the filter's number of bits. */
+  private int fingerprint(long hash) {
+    return (int) ((hash >>> 1) % ((1L << fingerprints.bitsPerFingerprint) - 1)) + 1;
+  }
+
+  /**
+   * Returns the other bucket for {@code fingerprint}, which is in {@code bucket}. The buckets of a
+   * fingerprint sum to a hash of it (modulo numBuckets), so that each is a function of the other;
+   * this works for any number of buckets, unlike the xor in the paper, which needs a power of two.
+   */
+  private long alternateBucket(long bucket, int fingerprint) {
+    long fingerprintHash = ((fingerprint * 0xC6A4A7935BD1E995L) >>> 1) % numBuckets;
+    long alternate = fingerprintHash - bucket;
+    return alternate < 0 ? alternate + numBuckets : alternate;
+  }
+
+  private boolean bucketContains(long bucket, int fingerprint) {
+    long start = bucket * SLOTS_PER_BUCKET;
+    for (int i = 0; i < SLOTS_PER_BUCKET; i++) {
+      if (fingerprints.get(start + i) == fingerprint) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Stores {@code fingerprint} in an empty slot of {@code bucket}, if there is one. */
+  private boolean insert(long bucket, int fingerprint) {
+    long start = bucket * SLOTS_PER_BUCKET;
+    for (int i = 0; i < SLOTS_PER_BUCKET; i++) {
+      if (fingerprints.get(start + i) == 0) {
+        fingerprints.set(start + i, fingerprint);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Clears a slot of {@code bucket} holding {@code fingerprint}, if there is one. */
+  private boolean delete(long bucket, int fingerprint) {
+    long start = bucket * SLOTS_PER_BUCKET;
+    for (int i = 0; i < SLOTS_PER_BUCKET; i++) {
+      if (fingerprints.get(start + i) == fingerprint) {
+        fingerprints.set(start + i, 0);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int nextRandom() {
+    long x = kickState;
+    x ^= x << 13;
+    x ^= x >>> 7;
+    x ^= x << 17;
+    kickState = x;
+    return (int) x;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (object instanceof CuckooFilter) {
+      CuckooFilter<?> that = (CuckooFilter<?>) object;
+      return this.numBuckets == that.numBuckets
+          && this.size == that.size
+          && this.victimFingerprint == that.victimFingerprint
+          && this.victimBucket == that.victimBucket
+          && this.funnel.equals(that.funnel)
+          && this.fingerprints.equals(that.fingerprints);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(numBuckets, size, funnel, fingerprints);
+  }
+
+  /**
+   * Writes this {@code CuckooFilter} to an output stream, with a custom format (not Java
+   * serialization).
+   *
+   * <p>Use {@linkplain #readFrom(InputStream, Funnel)} to reconstruct the written CuckooFilter.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    // Serial form:
+    // 1 unsigned byte for the number of bits per fingerprint
+    // 1 big endian long, the number of buckets
+    // 1 big endian long, the number of elements
+    // 1 big endian int and 1 big endian long, the victim fingerprint and its bucket
+    // 1 big endian int, the number of longs in our fingerprint array
+    // N big endian longs of our fingerprint array
+    DataOutputStream dout = new DataOutputStream(out);
+    dout.writeByte(UnsignedBytes.checkedCast(fingerprints.bitsPerFingerprint));
+    dout.writeLong(numBuckets);
+    dout.writeLong(size);
+    dout.writeInt(victimFingerprint);
+    dout.writeLong(victimBucket);
+    dout.writeInt(fingerprints.data.length);
+    for (long value : fingerprints.data) {
+      dout.writeLong(value);
+    }
+  }
+
+  /**
+   * Reads a byte stream, which was written by {@linkplain #writeTo(OutputStream)}, into a {@code
+   * CuckooFilter}.
+   *
+   * <p>The {@code Funnel} to be used is not encoded in the stream, so it must be provided here.
+   * <b>Warning:</b> the funnel provided <b>must</b> behave identically to the one used to populate
+   * the original cuckoo filter!
+   *
+   * @throws IOException if the InputStream throws an {@code IOException}, or if its data does not
+   *     appear to be a CuckooFilter serialized using the {@linkplain #writeTo(OutputStream)}
+   *     method.
+   */
+  public static <T> CuckooFilter<T> readFrom(InputStream in, Funnel<? super T> funnel)
+      throws IOException {
+    checkNotNull(in, "InputStream");
+    checkNotNull(funnel, "Funnel");
+    int bitsPerFingerprint = -1;
+    long numBuckets = -1;
+    int dataLength = -1;
+    try {
+      DataInputStream din = new DataInputStream(in);
+      bitsPerFingerprint = UnsignedBytes.toInt(din.readByte());
+      numBuckets = din.readLong();
+      long size = din.readLong();
+      int victimFingerprint = din.readInt();
+      long victimBucket = din.readLong();
+      dataLength = din.readInt();
+      checkArgument(numBuckets > 0, "numBuckets must be positive");
+      checkArgument(
+          victimFingerprint == 0 || (victimBucket >= 0 && victimBucket < numBuckets),
+          "victimBucket (%s) out of range",
+          victimBucket);
+
+      long[] data = new long[dataLength];
+      for (int i = 0; i < data.length; i++) {
+        data[i] = din.readLong();
+      }
+      FingerprintArray fingerprints = new FingerprintArray(data, bitsPerFingerprint);
+      checkArgument(
+          fingerprints.bitSize()
+              >= LongMath.checkedMultiply(
+                  LongMath.checkedMultiply(numBuckets, SLOTS_PER_BUCKET), bitsPerFingerprint),
+          "too few longs for the buckets");
+      return new CuckooFilter<T>(
+          fingerprints, numBuckets, funnel, size, victimFingerprint, victimBucket);
+    } catch (RuntimeException e) {
+      String message =
+          "Unable to deserialize CuckooFilter from InputStream."
+              + " bitsPerFingerprint: "
+              + bitsPerFingerprint
+              + " numBuckets: "
+              + numBuckets
+              + " dataLength: "
+              + dataLength;
+      throw new IOException(message, e);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.math.LongMath;
+import com.google.common.primitives.Ints;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An array of fingerprints of between 1 and 32 bits each, packed into longs, for the filters that
+ * store fingerprints rather than bits ({@link CuckooFilter} and {@link XorFilter}). Fingerprints
+ * may straddle two longs. Not thread-safe.
+ */
+final class FingerprintArray {
+  final long[] data;
+  final int bitsPerFingerprint;
+  private final long mask;
+
+  FingerprintArray(long length, int bitsPerFingerprint) {
+    this(new long[longsFor(length, bitsPerFingerprint)], bitsPerFingerprint);
+  }
+
+  // Used by serialization
+  FingerprintArray(long[] data, int bitsPerFingerprint) {
+    checkArgument(
+        bitsPerFingerprint >= 1 && bitsPerFingerprint <= 32,
+        "bitsPerFingerprint (%s) must be between 1 and 32",
+        bitsPerFingerprint);
+    this.data = checkNotNull(data);
+    this.bitsPerFingerprint = bitsPerFingerprint;
+    this.mask = (1L << bitsPerFingerprint) - 1;
+  }
+
+  private static int longsFor(long length, int bitsPerFingerprint) {
+    return Ints.checkedCast(LongMath.divide(length * bitsPerFingerprint, 64, RoundingMode.CEILING));
+  }
+
+  /** Returns the fingerprint at {@code index}. */
+  int get(long index) {
+    long bitIndex = index * bitsPerFingerprint;
+    int longIndex = (int) (bitIndex >>> 6);
+    int shift = (int) bitIndex & 63;
+    long value = data[longIndex] >>> shift;
+    if (shift + bitsPerFingerprint > Long.SIZE) {
+      value |= data[longIndex + 1] << (Long.SIZE - shift);
+    }
+    return (int) (value & mask);
+  }
+
+  /** Replaces the fingerprint at {@code index} by the low bits of {@code fingerprint}. */
+  void set(long index, int fingerprint) {
+    long value = fingerprint & mask;
+    long bitIndex = index * bitsPerFingerprint;
+    int longIndex = (int) (bitIndex >>> 6);
+    int shift = (int) bitIndex & 63;
+    data[longIndex] = (data[longIndex] & ~(mask << shift)) | (value << shift);
+    if (shift + bitsPerFingerprint > Long.SIZE) {
+      int spill = Long.SIZE - shift;
+      data[longIndex + 1] = (data[longIndex + 1] & ~(mask >>> spill)) | (value >>> spill);
+    }
+  }
+
+  /** Number of bits */
+  long bitSize() {
+    return (long) data.length * Long.SIZE;
+  }
+
+  FingerprintArray copy() {
+    return new FingerprintArray(data.clone(), bitsPerFingerprint);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (o instanceof FingerprintArray) {
+      FingerprintArray that = (FingerprintArray) o;
+      return bitsPerFingerprint == that.bitsPerFingerprint && Arrays.equals(data, that.data);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * bitsPerFingerprint + Arrays.hashCode(data);
+  }
+}
@@ -0,0 +1,701 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.math.DoubleMath;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A HyperLogLog sketch, which estimates the number of distinct elements put into it in a fixed,
+ * small amount of space: 2<sup>{@code precision}</sup> registers of 6 bits, or 12 KiB for the
+ * default precision of 14, whose estimates have a relative standard error of 0.81%. This is an
+ * alternative to counting the elements of a {@link java.util.HashSet}, whose size grows with the
+ * number of elements.
+ *
+ * <p>As in HyperLogLog++ (see "HyperLogLog in Practice: Algorithmic Engineering of a State of The
+ * Art Cardinality Estimation Algorithm" by Stefan Heule, Marc Nunkesser and Alexander Hall), a
+ * sketch uses 64-bit hashes, and starts with a sparse representation that stores the hashes it
+ * has seen at a precision of 25 bits, so that small counts are almost exact. It switches to the
+ * dense registers once the sparse representation would take as much space. Instead of the
+ * empirical bias correction of HyperLogLog++, the dense registers are estimated as described in
+ * "New cardinality estimation algorithms for HyperLogLog sketches" by Otmar Ertl, which is as
+ * accurate over the whole range of counts.
+ *
+ * <p>Sketches of the same elements can be combined with {@link #putAll}, to estimate the number of
+ * distinct elements of their union. They can be written with {@link #writeTo} and read back with
+ * {@link #readFrom(InputStream, Funnel)}.
+ *
+ * <p>This class is thread-safe and lock-free: registers are updated by compare-and-swap, and a
+ * sketch that is being switched to dense registers can still be put into.
+ *
+ * @param <T> the type of instances that the {@code HyperLogLog} accepts
+ */
+@Beta
+public final class HyperLogLog<T> {
+  /** The smallest supported precision. */
+  public static final int MIN_PRECISION = 4;
+
+  /** The largest supported precision. */
+  public static final int MAX_PRECISION = 18;
+
+  private static final int DEFAULT_PRECISION = 14;
+
+  /** The precision of the sparse representation. */
+  private static final int SPARSE_PRECISION = 25;
+
+  /** The bits of a sparse entry that hold the rank, below the index. */
+  private static final int RANK_BITS = 6;
+
+  private static final int RANK_MASK = (1 << RANK_BITS) - 1;
+
+  private static final int REGISTER_BITS = 6;
+  private static final int REGISTER_MASK = (1 << REGISTER_BITS) - 1;
+  private static final int REGISTERS_PER_LONG = Long.SIZE / REGISTER_BITS;
+
+  /** The smallest sparse representation worth starting with, in entries. */
+  private static final int MIN_SPARSE_LENGTH = 16;
+
+  /** 1 / (2 ln 2), the limit of the bias correction constant of HyperLogLog. */
+  private static final double ALPHA_INFINITY = 0.721347520444481703680;
+
+  private static final byte SPARSE = 0;
+  private static final byte DENSE = 1;
+
+  /**
+   * The sparse representation: entries that hold the index of a hash at {@link #SPARSE_PRECISION},
+   * and the rank of its remaining bits, in a lock-free open-addressed hash set keyed by index.
+   */
+  private static final class Sparse {
+    static final int CHANGED = 0;
+    static final int UNCHANGED = 1;
+    static final int FULL = 2;
+
+    /** The entries; zero for an empty slot, which is no entry since ranks are positive. */
+    final AtomicIntegerArray entries;
+
+    final AtomicInteger size = new AtomicInteger();
+
+    /** The number of entries past which the representation is full. */
+    final int maxSize;
+
+    Sparse(int length) {
+      this.entries = new AtomicIntegerArray(length);
+      this.maxSize = length / 4 * 3;
+    }
+
+    /** Puts an entry, unless one with the same index and at least its rank is there. */
+    int put(int entry) {
+      int index = entry >>> RANK_BITS;
+      int mask = entries.length() - 1;
+      // The index is made of hash bits, so its low bits are as good a hash as any
+      int slot = index & mask;
+      for (int probes = 0; probes <= mask; ) {
+        int current = entries.get(slot);
+        if (current == 0) {
+          if (size.get() >= maxSize) {
+            return FULL;
+          }
+          if (entries.compareAndSet(slot, 0, entry)) {
+            size.incrementAndGet();
+            return CHANGED;
+          }
+        } else if (current >>> RANK_BITS == index) {
+          if ((current & RANK_MASK) >= (entry & RANK_MASK)) {
+            return UNCHANGED;
+          }
+          if (entries.compareAndSet(slot, current, entry)) {
+            return CHANGED;
+          }
+        } else {
+          slot = (slot + 1) & mask;
+          probes++;
+        }
+      }
+      return FULL;
+    }
+
+    /** Returns the entries, in increasing order. */
+    int[] toSortedArray() {
+      int[] array = new int[entries.length()];
+      int size = 0;
+      for (int i = 0; i < array.length; i++) {
+        int entry = entries.get(i);
+        if (entry != 0) {
+          array[size++] = entry;
+        }
+      }
+      array = Arrays.copyOf(array, size);
+      Arrays.sort(array);
+      return array;
+    }
+  }
+
+  /**
+   * The dense representation: registers packed {@link #REGISTERS_PER_LONG} to a long, each holding
+   * the largest rank of the hashes with its index.
+   */
+  private static final class Dense {
+    final AtomicLongArray words;
+
+    /**
+     * The sparse representation that this one replaces, until all of its entries have been merged
+     * into the registers; null after.
+     */
+    volatile @Nullable Sparse migrating;
+
+    Dense(int numRegisters, @Nullable Sparse migrating) {
+      this.words = new AtomicLongArray(numWords(numRegisters));
+      this.migrating = migrating;
+    }
+
+    Dense(long[] words) {
+      this.words = new AtomicLongArray(words);
+    }
+
+    /** Raises register {@code index} to {@code rank}, returning whether it was lower. */
+    boolean update(int index, int rank) {
+      int word = index / REGISTERS_PER_LONG;
+      int shift = (index - word * REGISTERS_PER_LONG) * REGISTER_BITS;
+      long oldValue;
+      long newValue;
+      do {
+        oldValue = words.get(word);
+        if ((int) (oldValue >>> shift & REGISTER_MASK) >= rank) {
+          return false;
+        }
+        newValue = oldValue & ~((long) REGISTER_MASK << shift) | (long) rank << shift;
+      } while (!words.compareAndSet(word, oldValue, newValue));
+      return true;
+    }
+
+    /** Returns the registers, including the entries that are still being migrated. */
+    int[] registers(int precision) {
+      // Read migrating first: if it is null, the registers include all of its entries
+      Sparse sparse = migrating;
+      int[] registers = new int[1 << precision];
+      for (int i = 0; i < registers.length; i++) {
+        long word = words.get(i / REGISTERS_PER_LONG);
+        registers[i] = (int) (word >>> (i % REGISTERS_PER_LONG * REGISTER_BITS) & REGISTER_MASK);
+      }
+      if (sparse != null) {
+        for (int i = 0; i < sparse.entries.length(); i++) {
+          int entry = sparse.entries.get(i);
+          if (entry != 0) {
+            int index = denseIndex(entry, precision);
+            registers[index] = Math.max(registers[index], denseRank(entry, precision));
+          }
+        }
+      }
+      return registers;
+    }
+
+    static int numWords(int numRegisters) {
+      return (numRegisters + REGISTERS_PER_LONG - 1) / REGISTERS_PER_LONG;
+    }
+
+    static long[] pack(int[] registers) {
+      long[] words = new long[numWords(registers.length)];
+      for (int i = 0; i < registers.length; i++) {
+        words[i / REGISTERS_PER_LONG] |=
+            (long) registers[i] << (i % REGISTERS_PER_LONG * REGISTER_BITS);
+      }
+      return words;
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<HyperLogLog, Object> STATE =
+      AtomicReferenceFieldUpdater.newUpdater(HyperLogLog.class, Object.class, "state");
+
+  /** A {@link Sparse}, replaced by a {@link Dense} once it is full. */
+  private volatile Object state;
+
+  private final int precision;
+
+  /** The funnel to translate Ts to bytes */
+  private final Funnel<? super T> funnel;
+
+  private final HashFunction hashFunction;
+
+  private HyperLogLog(
+      Object state, int precision, Funnel<? super T> funnel, HashFunction hashFunction) {
+    this.state = state;
+    this.precision = precision;
+    this.funnel = funnel;
+    this.hashFunction = hashFunction;
+  }
+
+  /**
+   * Creates a {@link HyperLogLog} with the default precision of 14, whose estimates have a relative
+   * standard error of 0.81%, and that hashes elements with {@link Hashing#murmur3_128()}.
+   *
+   * @param funnel the funnel of T's that the constructed {@code HyperLogLog} will use
+   */
+  public static <T> HyperLogLog<T> create(Funnel<? super T> funnel) {
+    return create(funnel, DEFAULT_PRECISION);
+  }
+
+  /**
+   * Creates a {@link HyperLogLog} with 2<sup>{@code precision}</sup> registers, that hashes
+   * elements with {@link Hashing#murmur3_128()}. Each additional bit of precision doubles the size
+   * of the sketch, and divides the relative standard error of its estimates by the square root of
+   * two.
+   *
+   * @param funnel the funnel of T's that the constructed {@code HyperLogLog} will use
+   * @param precision between {@link #MIN_PRECISION} and {@link #MAX_PRECISION}
+   */
+  public static <T> HyperLogLog<T> create(Funnel<? super T> funnel, int precision) {
+    return create(funnel, precision, Hashing.murmur3_128());
+  }
+
+  /**
+   * Creates a {@link HyperLogLog} with 2<sup>{@code precision}</sup> registers, that hashes
+   * elements with {@code hashFunction}. Its estimates are only as good as the hash function, whose
+   * first 64 bits must be uniformly distributed.
+   *
+   * @param funnel the funnel of T's that the constructed {@code HyperLogLog} will use
+   * @param precision between {@link #MIN_PRECISION} and {@link #MAX_PRECISION}
+   * @param hashFunction a hash function of at least 64 bits
+   */
+  public static <T> HyperLogLog<T> create(
+      Funnel<? super T> funnel, int precision, HashFunction hashFunction) {
+    checkNotNull(funnel);
+    checkNotNull(hashFunction);
+    checkArgument(
+        precision >= MIN_PRECISION && precision <= MAX_PRECISION,
+        "precision (%s) must be between %s and %s",
+        precision,
+        MIN_PRECISION,
+        MAX_PRECISION);
+    checkArgument(
+        hashFunction.bits() >= Long.SIZE,
+        "hashFunction must produce at least 64 bits: %s",
+        hashFunction);
+    // The sparse representation takes half the space of the dense one when full
+    int sparseLength = (1 << precision) / 8;
+    Object state =
+        sparseLength >= MIN_SPARSE_LENGTH
+            ? new Sparse(sparseLength)
+            : new Dense(1 << precision, null);
+    return new HyperLogLog<T>(state, precision, funnel, hashFunction);
+  }
+
+  /**
+   * Creates a new {@code HyperLogLog} that's a copy of this instance. The new instance is equal to
+   * this instance but shares no mutable state.
+   */
+  public HyperLogLog<T> copy() {
+    Object current = state;
+    Object copy;
+    if (current instanceof Sparse) {
+      Sparse sparse = (Sparse) current;
+      Sparse sparseCopy = new Sparse(sparse.entries.length());
+      for (int entry : sparse.toSortedArray()) {
+        sparseCopy.put(entry);
+      }
+      copy = sparseCopy;
+    } else {
+      copy = new Dense(Dense.pack(((Dense) current).registers(precision)));
+    }
+    return new HyperLogLog<T>(copy, precision, funnel, hashFunction);
+  }
+
+  /**
+   * Puts an element into this {@code HyperLogLog}.
+   *
+   * @return true if the sketch changed as a result of this operation, in which case this is
+   *     <i>definitely</i> the first time {@code object} has been put into it
+   */
+  @CanIgnoreReturnValue
+  public boolean put(T object) {
+    return putEntry(sparseEntry(hashFunction.hashObject(object, funnel).asLong()));
+  }
+
+  private boolean putEntry(int entry) {
+    Object current = state;
+    if (current instanceof Sparse) {
+      Sparse sparse = (Sparse) current;
+      int result = sparse.put(entry);
+      if (result != Sparse.FULL) {
+        current = state;
+        if (current != sparse) {
+          // Switched to dense since, maybe after the entry was copied into the registers
+          putDense((Dense) current, entry);
+        }
+        return result == Sparse.CHANGED;
+      }
+      current = toDense(sparse);
+    }
+    return putDense((Dense) current, entry);
+  }
+
+  private boolean putDense(Dense dense, int entry) {
+    return dense.update(denseIndex(entry, precision), denseRank(entry, precision));
+  }
+
+  /**
+   * Replaces {@code sparse} by dense registers, unless another thread already has, and returns
+   * them. Threads that put entries into {@code sparse} check the state afterwards, and put them
+   * into the registers too if it has changed; the entries put before are copied here after the
+   * switch, so none are lost.
+   */
+  private Dense toDense(Sparse sparse) {
+    Dense dense = new Dense(1 << precision, sparse);
+    if (STATE.compareAndSet(this, sparse, dense)) {
+      for (int i = 0; i < sparse.entries.length(); i++) {
+        int entry = sparse.entries.get(i);
+        if (entry != 0) {
+          putDense(dense, entry);
+        }
+      }
+      dense.migrating = null;
+      return dense;
+    }
+    return (Dense) state;
+  }
+
+  /**
+   * Returns an estimate of the number of distinct elements that have been put into this {@code
+   * HyperLogLog}, or into the sketches {@linkplain #putAll combined} with it. Its relative standard
+   * error is {@link #relativeStandardError()}, or smaller for counts up to a few thousand.
+   */
+  public long approximateElementCount() {
+    Object current = state;
+    double estimate;
+    if (current instanceof Sparse) {
+      // Linear counting of the sparse indexes, which is nearly exact while they rarely collide
+      double numIndexes = 1 << SPARSE_PRECISION;
+      estimate = -numIndexes * Math.log1p(-((Sparse) current).size.get() / numIndexes);
+    } else {
+      estimate = estimate(((Dense) current).registers(precision), precision);
+    }
+    return DoubleMath.roundToLong(estimate, RoundingMode.HALF_UP);
+  }
+
+  /**
+   * Returns the relative standard error of the estimates of {@link #approximateElementCount()}
+   * once dense: 1.04 / √m, where m is the number of registers.
+   */
+  public double relativeStandardError() {
+    return 1.04 / Math.sqrt(1 << precision);
+  }
+
+  /** Returns whether this sketch still stores its entries in the sparse representation. */
+  @VisibleForTesting
+  boolean isSparse() {
+    return state instanceof Sparse;
+  }
+
+  /**
+   * Determines whether a given sketch is compatible with this one. For two sketches to be
+   * compatible, they must:
+   *
+   * <ul>
+   *   <li>not be the same instance
+   *   <li>have the same precision
+   *   <li>have equal funnels
+   *   <li>have equal hash functions
+   * </ul>
+   *
+   * @param that The sketch to check for compatibility.
+   */
+  public boolean isCompatible(HyperLogLog<T> that) {
+    checkNotNull(that);
+    return this != that
+        && this.precision == that.precision
+        && this.funnel.equals(that.funnel)
+        && this.hashFunction.equals(that.hashFunction);
+  }
+
+  /**
+   * Combines this sketch with another, so that it estimates the number of distinct elements put
+   * into either. The mutations happen to <b>this</b> instance. Callers must ensure the sketches are
+   * appropriately sized to avoid saturating them.
+   *
+   * @param that The sketch to combine this one with. It is not mutated.
+   * @throws IllegalArgumentException if {@code isCompatible(that) == false}
+   */
+  public void putAll(HyperLogLog<T> that) {
+    checkNotNull(that);
+    checkArgument(isCompatible(that), "HyperLogLogs must be compatible");
+    Object theirs = that.state;
+    if (theirs instanceof Sparse) {
+      for (int entry : ((Sparse) theirs).toSortedArray()) {
+        putEntry(entry);
+      }
+    } else {
+      Object ours = state;
+      Dense dense = ours instanceof Sparse ? toDense((Sparse) ours) : (Dense) ours;
+      int[] registers = ((Dense) theirs).registers(precision);
+      for (int i = 0; i < registers.length; i++) {
+        if (registers[i] != 0) {
+          dense.update(i, registers[i]);
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (object instanceof HyperLogLog) {
+      HyperLogLog<?> that = (HyperLogLog<?>) object;
+      if (this.precision != that.precision
+          || !this.funnel.equals(that.funnel)
+          || !this.hashFunction.equals(that.hashFunction)) {
+        return false;
+      }
+      Object thisState = this.state;
+      Object thatState = that.state;
+      if (thisState instanceof Sparse && thatState instanceof Sparse) {
+        return Arrays.equals(
+            ((Sparse) thisState).toSortedArray(), ((Sparse) thatState).toSortedArray());
+      }
+      if (thisState instanceof Dense && thatState instanceof Dense) {
+        return Arrays.equals(
+            ((Dense) thisState).registers(precision), ((Dense) thatState).registers(precision));
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    Object current = state;
+    int contents =
+        current instanceof Sparse
+            ? Arrays.hashCode(((Sparse) current).toSortedArray())
+            : Arrays.hashCode(((Dense) current).registers(precision));
+    return Objects.hashCode(precision, funnel, hashFunction) * 31 + contents;
+  }
+
+  /**
+   * Returns the sparse entry of {@code hash}: its first {@link #SPARSE_PRECISION} bits, followed by
+   * the rank of the rest, which is one more than their number of leading zeros.
+   */
+  @VisibleForTesting
+  static int sparseEntry(long hash) {
+    int index = (int) (hash >>> (Long.SIZE - SPARSE_PRECISION));
+    // The rank is at most 64 - SPARSE_PRECISION + 1, which fits in RANK_BITS
+    int rank =
+        Long.numberOfLeadingZeros((hash << SPARSE_PRECISION) | (1L << (SPARSE_PRECISION - 1)))
+            + 1;
+    return (index << RANK_BITS) | rank;
+  }
+
+  /** Returns the register of a hash, given its sparse entry. */
+  @VisibleForTesting
+  static int denseIndex(int entry, int precision) {
+    return entry >>> (RANK_BITS + SPARSE_PRECISION - precision);
+  }
+
+  /**
+   * Returns the rank of the bits of a hash after its first {@code precision}, given its sparse
+   * entry: the rank of the index bits after the first {@code precision}, or if they are all zero,
+   * their number plus the rank in the entry.
+   */
+  @VisibleForTesting
+  static int denseRank(int entry, int precision) {
+    int extraBits = SPARSE_PRECISION - precision;
+    int extra = (entry >>> RANK_BITS) & ((1 << extraBits) - 1);
+    return extra != 0
+        ? Integer.numberOfLeadingZeros(extra) - (Integer.SIZE - extraBits) + 1
+        : extraBits + (entry & RANK_MASK);
+  }
+
+  /**
+   * Estimates the number of distinct hashes from the registers, with the improved raw estimator of
+   * Ertl, which needs neither bias correction nor linear counting for small counts.
+   */
+  @VisibleForTesting
+  static double estimate(int[] registers, int precision) {
+    int maxRank = Long.SIZE - precision + 1;
+    int[] histogram = new int[maxRank + 1];
+    for (int register : registers) {
+      histogram[register]++;
+    }
+    double m = registers.length;
+    double z = m * tau(1 - histogram[maxRank] / m);
+    for (int k = maxRank - 1; k >= 1; k--) {
+      z = 0.5 * (z + histogram[k]);
+    }
+    z += m * sigma(histogram[0] / m);
+    return ALPHA_INFINITY * m * m / z;
+  }
+
+  private static double sigma(double x) {
+    if (x == 1) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double y = 1;
+    double z = x;
+    double previous;
+    do {
+      x *= x;
+      previous = z;
+      z += x * y;
+      y += y;
+    } while (z != previous);
+    return z;
+  }
+
+  private static double tau(double x) {
+    if (x == 0 || x == 1) {
+      return 0;
+    }
+    double y = 1;
+    double z = 1 - x;
+    double previous;
+    do {
+      x = Math.sqrt(x);
+      previous = z;
+      y *= 0.5;
+      z -= (1 - x) * (1 - x) * y;
+    } while (z != previous);
+    return z / 3;
+  }
+
+  /**
+   * Writes this sketch to an output stream, in a format that can be read back by {@link
+   * #readFrom(InputStream, Funnel, HashFunction)}. Neither the funnel nor the hash function are
+   * written.
+   *
+   * <p>The format is a byte holding the precision, a byte that is 0 for the sparse representation
+   * or 1 for the dense one, then an int count followed by that many ints (the sparse entries, in
+   * increasing order) or longs (the packed registers), all big-endian.
+   *
+   * @param out the stream to write to
+   * @throws IOException if an I/O error occurs
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    DataOutputStream dout = new DataOutputStream(out);
+    Object current = state;
+    dout.writeByte(precision);
+    if (current instanceof Sparse) {
+      int[] entries = ((Sparse) current).toSortedArray();
+      dout.writeByte(SPARSE);
+      dout.writeInt(entries.length);
+      for (int entry : entries) {
+        dout.writeInt(entry);
+      }
+    } else {
+      long[] words = Dense.pack(((Dense) current).registers(precision));
+      dout.writeByte(DENSE);
+      dout.writeInt(words.length);
+      for (long word : words) {
+        dout.writeLong(word);
+      }
+    }
+  }
+
+  /**
+   * Reads a sketch written by {@link #writeTo} with the default hash function, {@link
+   * Hashing#murmur3_128()}.
+   *
+   * @throws IOException if the InputStream throws an {@code IOException}, or if its data does not
+   *     appear to be a sketch written by {@link #writeTo}
+   */
+  public static <T> HyperLogLog<T> readFrom(InputStream in, Funnel<? super T> funnel)
+      throws IOException {
+    return readFrom(in, funnel, Hashing.murmur3_128());
+  }
+
+  /**
+   * Reads a sketch written by {@link #writeTo}.
+   *
+   * <p>Neither the {@code Funnel} nor the {@code HashFunction} to be used are encoded in the
+   * stream, so they must be provided here. <b>Warning:</b> they <b>must</b> behave identically to
+   * the ones used to populate the original sketch!
+   *
+   * @throws IOException if the InputStream throws an {@code IOException}, or if its data does not
+   *     appear to be a sketch written by {@link #writeTo}
+   */
+  public static <T> HyperLogLog<T> readFrom(
+      InputStream in, Funnel<? super T> funnel, HashFunction hashFunction) throws IOException {
+    checkNotNull(in, "InputStream");
+    checkNotNull(funnel, "Funnel");
+    checkNotNull(hashFunction, "HashFunction");
+    int precision = -1;
+    int representation = -1;
+    int length = -1;
+    try {
+      DataInputStream din = new DataInputStream(in);
+      precision = UnsignedBytes.toInt(din.readByte());
+      representation = din.readByte();
+      length = din.readInt();
+      HyperLogLog<T> sketch = create(funnel, precision, hashFunction);
+      if (representation == SPARSE) {
+        int maxRank = Long.SIZE - SPARSE_PRECISION + 1;
+        for (int i = 0; i < length; i++) {
+          int entry = din.readInt();
+          checkArgument(
+              entry > 0 && (entry & RANK_MASK) >= 1 && (entry & RANK_MASK) <= maxRank,
+              "invalid sparse entry: %s",
+              entry);
+          sketch.putEntry(entry);
+        }
+      } else {
+        checkArgument(representation == DENSE, "invalid representation: %s", representation);
+        int numRegisters = 1 << precision;
+        long[] words = new long[Dense.numWords(numRegisters)];
+        checkArgument(length == words.length, "expected %s longs", words.length);
+        for (int i = 0; i < length; i++) {
+          words[i] = din.readLong();
+        }
+        Dense dense = new Dense(words);
+        int[] registers = dense.registers(precision);
+        for (int register : registers) {
+          checkArgument(register <= Long.SIZE - precision + 1, "invalid register: %s", register);
+        }
+        checkArgument(Arrays.equals(words, Dense.pack(registers)), "invalid padding");
+        sketch.state = dense;
+      }
+      return sketch;
+    } catch (RuntimeException e) {
+      String message =
+          "Unable to deserialize HyperLogLog from InputStream."
+              + " precision: "
+              + precision
+              + " representation: "
+              + representation
+              + " length: "
+              + length;
+      throw new IOException(message, e);
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.BloomFilterStrategies.LongArray;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link LongArray} stored little-endian in a mapped file, which other processes may map at the
+ * same time. Files larger than a {@link MappedByteBuffer} can be are mapped in segments.
+ *
+ * <p>Where {@link sun.misc.Unsafe} is available and the platform is little-endian, the longs are
+ * read with volatile loads and updated with compare-and-swap instructions on the mapped memory, so
+ * updates are atomic across processes. Otherwise they go through the buffers, and updates are only
+ * atomic within this array, by locking it.
+ *
+ * <p>The file is unmapped when the array is garbage collected.
+ */
+final class MappedLongArray extends LongArray {
+  /** Each segment maps 2^27 longs, or 1 GiB. */
+  private static final int SEGMENT_SHIFT = 27;
+
+  private final MappedByteBuffer[] segments;
+  private final int length;
+  private final int segmentShift;
+  private final int segmentMask;
+  private final boolean readOnly;
+
+  /** The addresses of the segments, if the longs are accessed with {@code Unsafe}. */
+  private final long @Nullable [] addresses;
+
+  private MappedLongArray(
+      MappedByteBuffer[] segments, int length, int segmentShift, boolean readOnly, boolean atomic) {
+    this.segments = segments;
+    this.length = length;
+    this.segmentShift = segmentShift;
+    this.segmentMask = (1 << segmentShift) - 1;
+    this.readOnly = readOnly;
+    if (atomic) {
+      addresses = new long[segments.length];
+      for (int i = 0; i < segments.length; i++) {
+        addresses[i] = UnsafeAccess.address(segments[i]);
+      }
+    } else {
+      addresses = null;
+    }
+  }
+
+  /**
+   * Maps {@code length} longs of {@code channel}, starting at byte {@code position}, in {@code
+   * mode}. The channel may be closed afterwards. Writes through a {@link MapMode#READ_ONLY} array
+   * throw {@link ReadOnlyBufferException}.
+   */
+  static MappedLongArray map(FileChannel channel, MapMode mode, long position, int length)
+      throws IOException {
+    return map(channel, mode, position, length, SEGMENT_SHIFT, UnsafeAccess.AVAILABLE);
+  }
+
+  @VisibleForTesting
+  static MappedLongArray map(
+      FileChannel channel,
+      MapMode mode,
+      long position,
+      int length,
+      int segmentShift,
+      boolean atomic)
+      throws IOException {
+    checkArgument(length >= 0, "length (%s) must be >= 0", length);
+    checkArgument(!atomic || UnsafeAccess.AVAILABLE, "Unsafe is not available");
+    int numSegments = (int) (((long) length + (1 << segmentShift) - 1) >>> segmentShift);
+    MappedByteBuffer[] segments = new MappedByteBuffer[numSegments];
+    for (int i = 0; i < numSegments; i++) {
+      long first = (long) i << segmentShift;
+      long longs = Math.min(length - first, 1L << segmentShift);
+      segments[i] = channel.map(mode, position + first * Long.BYTES, longs * Long.BYTES);
+      segments[i].order(ByteOrder.LITTLE_ENDIAN);
+    }
+    return new MappedLongArray(segments, length, segmentShift, mode == MapMode.READ_ONLY, atomic);
+  }
+
+  /** Returns whether new arrays update their longs atomically across processes. */
+  static boolean usingUnsafe() {
+    return UnsafeAccess.AVAILABLE;
+  }
+
+  @Override
+  int length() {
+    return length;
+  }
+
+  @Override
+  long get(int index) {
+    if (addresses != null) {
+      return UnsafeAccess.UNSAFE.getLongVolatile(null, address(index));
+    }
+    return segments[index >>> segmentShift].getLong((index & segmentMask) << 3);
+  }
+
+  @Override
+  boolean compareAndSet(int index, long expect, long update) {
+    if (readOnly) {
+      // Unsafe would crash writing to a read-only mapping, rather than throw
+      throw new ReadOnlyBufferException();
+    }
+    if (addresses != null) {
+      return UnsafeAccess.UNSAFE.compareAndSwapLong(null, address(index), expect, update);
+    }
+    synchronized (this) {
+      MappedByteBuffer segment = segments[index >>> segmentShift];
+      int offset = (index & segmentMask) << 3;
+      if (segment.getLong(offset) != expect) {
+        return false;
+      }
+      segment.putLong(offset, update);
+      return true;
+    }
+  }
+
+  private long address(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("index " + index + " out of bounds for " + length);
+    }
+    return addresses[index >>> segmentShift] + ((long) (index & segmentMask) << 3);
+  }
+
+  /**
+   * The only reference to Unsafe is in this nested class. If it is inaccessible, or the platform
+   * is big-endian, loading the class still succeeds, but {@link #AVAILABLE} is false.
+   */
+  private static final class UnsafeAccess {
+    static final sun.misc.@Nullable Unsafe UNSAFE;
+    static final long ADDRESS_OFFSET;
+    static final boolean AVAILABLE;
+
+    static {
+      sun.misc.Unsafe unsafe = null;
+      long addressOffset = -1;
+      try {
+        if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+          unsafe = getUnsafe();
+          addressOffset = unsafe.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        }
+      } catch (Throwable t) { // ensure we really catch *everything*
+        unsafe = null;
+      }
+      UNSAFE = unsafe;
+      ADDRESS_OFFSET = addressOffset;
+      AVAILABLE = unsafe != null;
+    }
+
+    /** Returns the address of the first byte of a direct buffer. */
+    static long address(Buffer buffer) {
+      return UNSAFE.getLong(buffer, ADDRESS_OFFSET);
+    }
+
+    /**
+     * Returns a sun.misc.Unsafe, reading it reflectively when {@code Unsafe.getUnsafe} refuses.
+     * Unlike the older accessors in this package, this doesn't use {@code
+     * AccessController.doPrivileged}, which is deprecated for removal; under a security manager
+     * that denies the reflection, the caller falls back to {@code ByteBuffer} access instead.
+     */
+    private static sun.misc.Unsafe getUnsafe() throws IllegalAccessException {
+      try {
+        return sun.misc.Unsafe.getUnsafe();
+      } catch (SecurityException e) {
+        // that's okay; try reflection instead
+      }
+      Class<sun.misc.Unsafe> k = sun.misc.Unsafe.class;
+      for (java.lang.reflect.Field f : k.getDeclaredFields()) {
+        f.setAccessible(true);
+        Object x = f.get(null);
+        if (k.isInstance(x)) {
+          return k.cast(x);
+        }
+      }
+      throw new NoSuchFieldError("the Unsafe");
+    }
+  }
+}
@@ -0,0 +1,439 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.hash.BloomFilterStrategies.LockFreeBitArray;
+import com.google.common.math.DoubleMath;
+import com.google.common.math.LongMath;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A Bloom filter that grows as elements are put into it, so that its false positive probability
+ * stays below the one it was created with however many elements it holds. See "Scalable Bloom
+ * Filters" by Paulo Sérgio Almeida, Carlos Baquero, Nuno Preguiça and David Hutchison.
+ *
+ * <p>The filter is a chain of Bloom filters, or stages. Elements are put into the last stage until
+ * it is full, then a new stage is added, with {@code growthFactor} times the capacity and {@code
+ * tighteningRatio} times the false positive probability of the previous one. The probabilities of
+ * the stages thus sum to at most the probability asked for, while the number of stages only grows
+ * logarithmically with the number of elements. A {@link #mightContain} checks every stage, so it is
+ * slower than that of a {@link BloomFilter} sized for the final number of elements, and the filter
+ * takes more space; both are the price of not knowing that number in advance.
+ *
+ * <p>Like {@link BloomFilter}, this class is thread-safe and lock-free: stages are added by
+ * compare-and-swap.
+ *
+ * @param <T> the type of instances that the {@code ScalableBloomFilter} accepts
+ */
+@Beta
+public final class ScalableBloomFilter<T> {
+  /**
+   * A Bloom filter in the chain. Like {@link BloomFilterStrategies#MURMUR128_MITZ_64}, it derives
+   * its bits from two 64-bit hashes by double hashing, but it mixes each combined hash before
+   * taking it modulo the number of bits. Otherwise the first stages, which are small and have a
+   * tight false positive probability, would only see the low bits of the hashes, and many elements
+   * would share the same few bits.
+   */
+  private static final class Stage {
+    final LockFreeBitArray bits;
+    final int numHashFunctions;
+
+    /** The number of set bits at which the stage holds as many elements as it was sized for. */
+    final long fullBitCount;
+
+    Stage(LockFreeBitArray bits, int numHashFunctions, long fullBitCount) {
+      this.bits = bits;
+      this.numHashFunctions = numHashFunctions;
+      this.fullBitCount = fullBitCount;
+    }
+
+    boolean isFull() {
+      return bits.bitCount() >= fullBitCount;
+    }
+
+    boolean put(long hash1, long hash2) {
+      long bitSize = bits.bitSize();
+      boolean bitsChanged = false;
+      long combinedHash = hash1;
+      for (int i = 0; i < numHashFunctions; i++) {
+        bitsChanged |= bits.set(index(combinedHash, bitSize));
+        combinedHash += hash2;
+      }
+      return bitsChanged;
+    }
+
+    boolean mightContain(long hash1, long hash2) {
+      long bitSize = bits.bitSize();
+      long combinedHash = hash1;
+      for (int i = 0; i < numHashFunctions; i++) {
+        if (!bits.get(index(combinedHash, bitSize))) {
+          return false;
+        }
+        combinedHash += hash2;
+      }
+      return true;
+    }
+
+    /**
+     * Returns the bit that {@code combinedHash} selects. The hash is mixed first so that every one
+     * of its bits matters, even when {@code bitSize} is a small power of two.
+     */
+    private static long index(long combinedHash, long bitSize) {
+      long mixed = (combinedHash ^ (combinedHash >>> 32)) * 0xFF51AFD7ED558CCDL;
+      // Make the mixed hash positive and indexable
+      return ((mixed ^ (mixed >>> 29)) & Long.MAX_VALUE) % bitSize;
+    }
+
+    double expectedFpp() {
+      return Math.pow((double) bits.bitCount() / bits.bitSize(), numHashFunctions);
+    }
+
+    double approximateElementCount() {
+      double bitSize = bits.bitSize();
+      return -Math.log1p(-bits.bitCount() / bitSize) * bitSize / numHashFunctions;
+    }
+
+    Stage copy() {
+      return new Stage(bits.copy(), numHashFunctions, fullBitCount);
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<ScalableBloomFilter, Stage[]> STAGES =
+      AtomicReferenceFieldUpdater.newUpdater(ScalableBloomFilter.class, Stage[].class, "stages");
+
+  /** The stages, oldest first; replaced by a longer array when the last one fills up. */
+  private volatile Stage[] stages;
+
+  private final long initialExpectedInsertions;
+  private final double fpp;
+  private final int growthFactor;
+  private final double tighteningRatio;
+
+  /** The funnel to translate Ts to bytes */
+  private final Funnel<? super T> funnel;
+
+  private ScalableBloomFilter(
+      Stage[] stages,
+      long initialExpectedInsertions,
+      double fpp,
+      int growthFactor,
+      double tighteningRatio,
+      Funnel<? super T> funnel) {
+    this.stages = stages;
+    this.initialExpectedInsertions = initialExpectedInsertions;
+    this.fpp = fpp;
+    this.growthFactor = growthFactor;
+    this.tighteningRatio = tighteningRatio;
+    this.funnel = funnel;
+  }
+
+  /**
+   * Creates a {@link ScalableBloomFilter} whose false positive probability stays below {@code fpp},
+   * with a first stage sized for {@code initialExpectedInsertions}. Each stage has twice the
+   * capacity of the previous one, and 0.8 times its false positive probability.
+   *
+   * @param funnel the funnel of T's that the constructed {@code ScalableBloomFilter} will use
+   * @param initialExpectedInsertions the number of insertions that the first stage is sized for;
+   *     must be positive. A good guess saves space and time, but any guess is correct.
+   * @param fpp the desired false positive probability (must be positive and less than 1.0)
+   * @return a {@code ScalableBloomFilter}
+   */
+  public static <T> ScalableBloomFilter<T> create(
+      Funnel<? super T> funnel, long initialExpectedInsertions, double fpp) {
+    return create(funnel, initialExpectedInsertions, fpp, 2, 0.8);
+  }
+
+  /**
+   * Creates a {@link ScalableBloomFilter} whose false positive probability stays below {@code fpp},
+   * with a first stage sized for {@code initialExpectedInsertions}.
+   *
+   * @param funnel the funnel of T's that the constructed {@code ScalableBloomFilter} will use
+   * @param initialExpectedInsertions the number of insertions that the first stage is sized for;
+   *     must be positive
+   * @param fpp the desired false positive probability (must be positive and less than 1.0)
+   * @param growthFactor how many times more elements each stage holds than the previous one; at
+   *     least 2. Larger factors mean fewer stages for a given number of elements, but more unused
+   *     space in the last one.
+   * @param tighteningRatio how many times the false positive probability of the previous stage
+   *     each stage has (must be positive and less than 1.0). Ratios close to 1 make the first
+   *     stages smaller, and the later ones larger.
+   * @return a {@code ScalableBloomFilter}
+   */
+  public static <T> ScalableBloomFilter<T> create(
+      Funnel<? super T> funnel,
+      long initialExpectedInsertions,
+      double fpp,
+      int growthFactor,
+      double tighteningRatio) {
+    checkNotNull(funnel);
+    checkArgument(
+        initialExpectedInsertions > 0,
+        "Initial expected insertions (%s) must be > 0",
+        initialExpectedInsertions);
+    checkArgument(fpp > 0.0, "False positive probability (%s) must be > 0.0", fpp);
+    checkArgument(fpp < 1.0, "False positive probability (%s) must be < 1.0", fpp);
+    checkArgument(growthFactor >= 2, "Growth factor (%s) must be >= 2", growthFactor);
+    checkArgument(
+        tighteningRatio > 0.0 && tighteningRatio < 1.0,
+        "Tightening ratio (%s) must be > 0.0 and < 1.0",
+        tighteningRatio);
+    ScalableBloomFilter<T> filter =
+        new ScalableBloomFilter<T>(
+            new Stage[0], initialExpectedInsertions, fpp, growthFactor, tighteningRatio, funnel);
+    filter.stages = new Stage[] {filter.newStage(0)};
+    return filter;
+  }
+
+  /** Creates the {@code index}-th stage, empty. */
+  private Stage newStage(int index) {
+    long capacity =
+        LongMath.saturatedMultiply(
+            initialExpectedInsertions, LongMath.saturatedPow(growthFactor, index));
+    // The stages' probabilities form a geometric series that sums to fpp
+    double stageFpp = fpp * (1 - tighteningRatio) * Math.pow(tighteningRatio, index);
+    long numBits = BloomFilter.optimalNumOfBits(capacity, stageFpp);
+    int numHashFunctions = BloomFilter.optimalNumOfHashFunctions(capacity, numBits);
+    checkArgument(
+        numHashFunctions <= 255,
+        "ScalableBloomFilter has too many stages (%s) to add another",
+        index);
+    // The expected number of bits set by capacity elements (see approximateElementCount)
+    long fullBitCount =
+        (long) (numBits * -Math.expm1(-(double) numHashFunctions * capacity / numBits));
+    try {
+      return new Stage(new LockFreeBitArray(numBits), numHashFunctions, fullBitCount);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          "Could not create ScalableBloomFilter stage of " + numBits + " bits", e);
+    }
+  }
+
+  /**
+   * Returns the stages after adding one to {@code current}, unless another thread already has (in
+   * which case the new stages are returned anyway).
+   */
+  private Stage[] grow(Stage[] current) {
+    Stage[] grown = Arrays.copyOf(current, current.length + 1);
+    grown[current.length] = newStage(current.length);
+    return STAGES.compareAndSet(this, current, grown) ? grown : stages;
+  }
+
+  /**
+   * Creates a new {@code ScalableBloomFilter} that's a copy of this instance. The new instance is
+   * equal to this instance but shares no mutable state.
+   */
+  public ScalableBloomFilter<T> copy() {
+    Stage[] current = stages;
+    Stage[] copies = new Stage[current.length];
+    for (int i = 0; i < current.length; i++) {
+      copies[i] = current[i].copy();
+    }
+    return new ScalableBloomFilter<T>(
+        copies, initialExpectedInsertions, fpp, growthFactor, tighteningRatio, funnel);
+  }
+
+  /**
+   * Returns {@code true} if the element <i>might</i> have been put in this Bloom filter, {@code
+   * false} if this is <i>definitely</i> not the case.
+   */
+  public boolean mightContain(T object) {
+    byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
+    long hash1 = BloomFilterStrategies.lowerEight(bytes);
+    long hash2 = BloomFilterStrategies.upperEight(bytes);
+    return mightContain(stages, hash1, hash2);
+  }
+
+  private static boolean mightContain(Stage[] stages, long hash1, long hash2) {
+    // The last stage is the largest, and the likeliest to contain an element
+    for (int i = stages.length - 1; i >= 0; i--) {
+      if (stages[i].mightContain(hash1, hash2)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Puts an element into this {@code ScalableBloomFilter}, unless it might already be contained.
+   * Ensures that subsequent invocations of {@link #mightContain(Object)} with the same element will
+   * always return {@code true}.
+   *
+   * @return true if the Bloom filter's bits changed as a result of this operation, in which case
+   *     this is <i>definitely</i> the first time {@code object} has been added to the filter. As
+   *     with {@link BloomFilter#put}, this is the opposite of what {@code mightContain(t)} would
+   *     have returned.
+   * @throws IllegalArgumentException if the filter needs another stage, and it would be too large
+   */
+  @CanIgnoreReturnValue
+  public boolean put(T object) {
+    byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
+    long hash1 = BloomFilterStrategies.lowerEight(bytes);
+    long hash2 = BloomFilterStrategies.upperEight(bytes);
+    Stage[] current = stages;
+    // Elements already in an earlier stage aren't put again, so that stages fill with new elements
+    if (mightContain(current, hash1, hash2)) {
+      return false;
+    }
+    while (current[current.length - 1].isFull()) {
+      current = grow(current);
+    }
+    return current[current.length - 1].put(hash1, hash2);
+  }
+
+  /**
+   * Returns the probability that {@linkplain #mightContain(Object)} will erroneously return {@code
+   * true} for an object that has not actually been put in the {@code ScalableBloomFilter}. It stays
+   * below the {@code fpp} the filter was created with, unless {@link #putAll} overfilled it.
+   */
+  public double expectedFpp() {
+    // The probability that no stage gives a false positive, assuming they're independent
+    double noFalsePositive = 1;
+    for (Stage stage : stages) {
+      noFalsePositive *= 1 - stage.expectedFpp();
+    }
+    return 1 - noFalsePositive;
+  }
+
+  /**
+   * Returns an estimate for the total number of distinct elements that have been added to this
+   * Bloom filter. Since an element is only added to one stage, this is the sum of the estimates
+   * for the stages, each of which is as accurate as that of a {@link BloomFilter} that is not
+   * overfilled.
+   */
+  public long approximateElementCount() {
+    double count = 0;
+    for (Stage stage : stages) {
+      count += stage.approximateElementCount();
+    }
+    return DoubleMath.roundToLong(count, RoundingMode.HALF_UP);
+  }
+
+  /** Returns the number of stages. */
+  @VisibleForTesting
+  int stageCount() {
+    return stages.length;
+  }
+
+  /** Returns the number of bits in all the stages. */
+  @VisibleForTesting
+  long bitSize() {
+    long bitSize = 0;
+    for (Stage stage : stages) {
+      bitSize += stage.bits.bitSize();
+    }
+    return bitSize;
+  }
+
+  /**
+   * Determines whether a given scalable Bloom filter is compatible with this one. For two scalable
+   * Bloom filters to be compatible, they must:
+   *
+   * <ul>
+   *   <li>not be the same instance
+   *   <li>have been created with the same initial expected insertions, false positive probability,
+   *       growth factor and tightening ratio
+   *   <li>have equal funnels
+   * </ul>
+   *
+   * <p>Their stages are then created alike, whatever elements they hold.
+   *
+   * @param that The scalable Bloom filter to check for compatibility.
+   */
+  public boolean isCompatible(ScalableBloomFilter<T> that) {
+    checkNotNull(that);
+    return this != that
+        && this.initialExpectedInsertions == that.initialExpectedInsertions
+        && this.fpp == that.fpp
+        && this.growthFactor == that.growthFactor
+        && this.tighteningRatio == that.tighteningRatio
+        && this.funnel.equals(that.funnel);
+  }
+
+  /**
+   * Combines this scalable Bloom filter with another, by adding stages to this one until it has as
+   * many, then performing a bitwise OR of the corresponding stages. The mutations happen to
+   * <b>this</b> instance.
+   *
+   * <p>A stage that ends up holding more elements than it was sized for has a higher false positive
+   * probability; {@link #expectedFpp} accounts for that, and later {@link #put} calls go to a new
+   * stage. So after combining filters of similar sizes, the probability can exceed the {@code fpp}
+   * they were created with, by up to the number of filters combined.
+   *
+   * @param that The scalable Bloom filter to combine this one with. It is not mutated.
+   * @throws IllegalArgumentException if {@code isCompatible(that) == false}
+   */
+  public void putAll(ScalableBloomFilter<T> that) {
+    checkNotNull(that);
+    checkArgument(isCompatible(that), "ScalableBloomFilters must be compatible");
+    Stage[] theirs = that.stages;
+    Stage[] ours = stages;
+    while (ours.length < theirs.length) {
+      ours = grow(ours);
+    }
+    for (int i = 0; i < theirs.length; i++) {
+      ours[i].bits.putAll(theirs[i].bits);
+    }
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (object instanceof ScalableBloomFilter) {
+      ScalableBloomFilter<?> that = (ScalableBloomFilter<?>) object;
+      Stage[] theseStages = this.stages;
+      Stage[] thoseStages = that.stages;
+      if (this.initialExpectedInsertions != that.initialExpectedInsertions
+          || this.fpp != that.fpp
+          || this.growthFactor != that.growthFactor
+          || this.tighteningRatio != that.tighteningRatio
+          || !this.funnel.equals(that.funnel)
+          || theseStages.length != thoseStages.length) {
+        return false;
+      }
+      for (int i = 0; i < theseStages.length; i++) {
+        if (!theseStages[i].bits.equals(thoseStages[i].bits)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode =
+        Objects.hashCode(initialExpectedInsertions, fpp, growthFactor, tighteningRatio, funnel);
+    for (Stage stage : stages) {
+      hashCode = 31 * hashCode + stage.bits.hashCode();
+    }
+    return hashCode;
+  }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.math.DoubleMath;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.UnsignedBytes;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collection;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable xor filter for instances of {@code T}: like a {@link BloomFilter}, an approximate
+ * containment test with one-sided error, but built once from a known collection of elements, in
+ * exchange for which it takes less space. Specifically, this is a binary fuse filter; see "Binary
+ * Fuse Filters: Fast and Smaller Than Xor Filters" by Thomas Mueller Graf and Daniel Lemire.
+ *
+ * <p>The filter is an array of fingerprints, in which every element maps to three positions whose
+ * fingerprints xor to the element's own fingerprint. {@link #mightContain} reads those three
+ * positions. A filter with a false positive probability of 2<sup>-b</sup> takes about {@code 1.13
+ * * b} bits per element for large collections (and more for small ones, such as {@code 1.4 * b}
+ * for a thousand elements), against {@code 1.44 * b} for a Bloom filter.
+ *
+ * <p>Instances are thread-safe.
+ *
+ * @param <T> the type of instances that the {@code XorFilter} accepts
+ */
+@Beta
+public final class XorFilter<T> {
+  /** The number of times {@link #create} tries a new seed before giving up. */
+  private static final int MAX_ATTEMPTS = 100;
+
+  /** The largest length of a segment; larger segments slow down construction. */
+  private static final int MAX_SEGMENT_LENGTH = 1 << 18;
+
+  private final FingerprintArray fingerprints;
+
+  /*
+   * The array is divided into segmentCount + 2 segments of segmentLength (a power of two)
+   * fingerprints; the three positions of an element are in three consecutive segments.
+   */
+  private final int segmentLength;
+  private final int segmentCount;
+
+  /** The seed that the hashes of the elements are remixed with, the first that let them peel */
+  private final long seed;
+
+  /** The funnel to translate Ts to bytes */
+  private final Funnel<? super T> funnel;
+
+  private XorFilter(
+      FingerprintArray fingerprints,
+      int segmentLength,
+      int segmentCount,
+      long seed,
+      Funnel<? super T> funnel) {
+    checkArgument(
+        segmentLength > 0 && (segmentLength & (segmentLength - 1)) == 0,
+        "segmentLength (%s) must be a power of two",
+        segmentLength);
+    checkArgument(segmentCount > 0, "segmentCount (%s) must be > 0", segmentCount);
+    this.fingerprints = checkNotNull(fingerprints);
+    this.segmentLength = segmentLength;
+    this.segmentCount = segmentCount;
+    this.seed = seed;
+    this.funnel = checkNotNull(funnel);
+  }
+
+  /**
+   * Creates an {@link XorFilter} that contains the given elements, with the given false positive
+   * probability or lower. Duplicate elements are ignored.
+   *
+   * @param elements the elements that the filter will contain
+   * @param funnel the funnel of T's that the constructed {@code XorFilter} will use
+   * @param fpp the desired false positive probability (must be positive and less than 1.0). It is
+   *     rounded down to a power of two, no smaller than 2<sup>-32</sup>.
+   * @return an {@code XorFilter}
+   */
+  public static <T> XorFilter<T> create(
+      Collection<? extends T> elements, Funnel<? super T> funnel, double fpp) {
+    checkNotNull(elements);
+    checkNotNull(funnel);
+    checkArgument(fpp > 0.0, "False positive probability (%s) must be > 0.0", fpp);
+    checkArgument(fpp < 1.0, "False positive probability (%s) must be < 1.0", fpp);
+
+    // Hash the elements once; different seeds only remix these hashes
+    long[] hashes = new long[elements.size()];
+    int size = 0;
+    for (T element : elements) {
+      hashes[size++] = Hashing.murmur3_128().hashObject(element, funnel).asLong();
+    }
+    hashes = distinct(hashes, size);
+    size = hashes.length;
+
+    int segmentLength = segmentLength(size);
+    int arrayLength = arrayLength(size, segmentLength);
+    int segmentCount = arrayLength / segmentLength - 2;
+    int bitsPerFingerprint = optimalBitsPerFingerprint(fpp);
+    FingerprintArray fingerprints;
+    try {
+      fingerprints = new FingerprintArray(arrayLength, bitsPerFingerprint);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          "Could not create XorFilter of " + arrayLength + " fingerprints", e);
+    }
+    XorFilter<T> filter;
+    int attempt = 0;
+    do {
+      checkArgument(attempt < MAX_ATTEMPTS, "Could not build XorFilter in %s attempts", attempt);
+      long seed = (attempt + 1) * 0x9E3779B97F4A7C15L;
+      filter = new XorFilter<T>(fingerprints, segmentLength, segmentCount, seed, funnel);
+      attempt++;
+    } while (!filter.populate(hashes));
+    return filter;
+  }
+
+  /** Returns the first {@code size} elements of {@code hashes}, sorted and without duplicates. */
+  private static long[] distinct(long[] hashes, int size) {
+    Arrays.sort(hashes, 0, size);
+    int distinct = 0;
+    for (int i = 0; i < size; i++) {
+      if (i == 0 || hashes[i] != hashes[i - 1]) {
+        hashes[distinct++] = hashes[i];
+      }
+    }
+    return Arrays.copyOf(hashes, distinct);
+  }
+
+  /**
+   * Computes the number of bits per fingerprint for the false positive probability {@code p},
+   * which is the chance that a random fingerprint equals the xor of three others.
+   */
+  @VisibleForTesting
+  static int optimalBitsPerFingerprint(double p) {
+    int bits = DoubleMath.log2(1 / p, RoundingMode.CEILING);
+    return Math.max(1, Math.min(32, bits));
+  }
+
+  // The sizes below are those of the paper's reference implementation for three positions.
+
+  @VisibleForTesting
+  static int segmentLength(int size) {
+    if (size == 0) {
+      return 4;
+    }
+    int log2 = (int) Math.floor(Math.log(size) / Math.log(3.33) + 2.25);
+    return Math.min(1 << log2, MAX_SEGMENT_LENGTH);
+  }
+
+  @VisibleForTesting
+  static int arrayLength(int size, int segmentLength) {
+    // More slack is needed for fewer elements, for the peeling to succeed
+    double sizeFactor =
+        size <= 1 ? 0 : Math.max(1.125, 0.875 + 0.25 * Math.log(1000000) / Math.log(size));
+    long capacity = Math.round(size * sizeFactor);
+    long segmentCount = (capacity + segmentLength - 1) / segmentLength - 2;
+    segmentCount = segmentCount <= 0 ? 1 : segmentCount;
+    return Ints.checkedCast((segmentCount + 2) * segmentLength);
+  }
+
+  /**
+   * Tries to fill the fingerprints so that those at the three positions of each hash xor to its
+   * fingerprint, returning false if that fails with the current seed.
+   *
+   * <p>A position that only one hash maps to can always be set last to satisfy that hash. So
+   * remove such hashes ("peel" them) one at a time, as long as there is one, then set their
+   * positions in reverse order. This succeeds if all the hashes could be peeled.
+   */
+  private boolean populate(long[] hashes) {
+    int arrayLength = (segmentCount + 2) * segmentLength;
+    // For each position: 4 * the number of unpeeled hashes there, plus the xor of the index
+    // (0, 1 or 2) of this position among the positions of each such hash; and the xor of the hashes
+    int[] counts = new int[arrayLength];
+    long[] xors = new long[arrayLength];
+    int[] positions = new int[3];
+    for (long hash : hashes) {
+      long mixed = mix(hash + seed);
+      positions(mixed, positions);
+      for (int i = 0; i < 3; i++) {
+        counts[positions[i]] += 4;
+        counts[positions[i]] ^= i;
+        xors[positions[i]] ^= mixed;
+      }
+    }
+
+    int[] queue = new int[arrayLength];
+    int queueSize = 0;
+    for (int i = 0; i < arrayLength; i++) {
+      if (counts[i] >> 2 == 1) {
+        queue[queueSize++] = i;
+      }
+    }
+    long[] peeledHashes = new long[hashes.length];
+    byte[] peeledIndexes = new byte[hashes.length];
+    int peeled = 0;
+    while (queueSize > 0) {
+      int position = queue[--queueSize];
+      if (counts[position] >> 2 != 1) {
+        continue; // emptied since it was queued
+      }
+      long mixed = xors[position];
+      int found = counts[position] & 3;
+      peeledHashes[peeled] = mixed;
+      peeledIndexes[peeled] = (byte) found;
+      peeled++;
+      positions(mixed, positions);
+      for (int i = 0; i < 3; i++) {
+        int other = positions[i];
+        counts[other] -= 4;
+        counts[other] ^= i;
+        xors[other] ^= mixed;
+        if (counts[other] >> 2 == 1) {
+          queue[queueSize++] = other;
+        }
+      }
+    }
+    if (peeled < hashes.length) {
+      return false;
+    }
+
+    positions = new int[3];
+    for (int i = peeled - 1; i >= 0; i--) {
+      long mixed = peeledHashes[i];
+      int found = peeledIndexes[i];
+      positions(mixed, positions);
+      int fingerprint = fingerprint(mixed);
+      for (int j = 0; j < 3; j++) {
+        if (j != found) {
+          fingerprint ^= fingerprints.get(positions[j]);
+        }
+      }
+      fingerprints.set(positions[found], fingerprint);
+    }
+    return true;
+  }
+
+  /**
+   * Returns {@code true} if the element <i>might</i> have been one of those that this filter was
+   * created with, {@code false} if this is <i>definitely</i> not the case.
+   */
+  public boolean mightContain(T object) {
+    long mixed = mix(Hashing.murmur3_128().hashObject(object, funnel).asLong() + seed);
+    int position0 = (int) multiplyHigh(mixed, segmentCount * segmentLength);
+    int position1 = (position0 + segmentLength) ^ ((int) (mixed >>> 18) & (segmentLength - 1));
+    int position2 = (position1 + segmentLength) ^ ((int) mixed & (segmentLength - 1));
+    int xor =
+        fingerprints.get(position0) ^ fingerprints.get(position1) ^ fingerprints.get(position2);
+    return xor == fingerprint(mixed);
+  }
+
+  /**
+   * Returns the probability that {@linkplain #mightContain(Object)} will erroneously return {@code
+   * true} for an object that was not one of those that this filter was created with.
+   */
+  public double expectedFpp() {
+    return Math.scalb(1.0, -fingerprints.bitsPerFingerprint);
+  }
+
+  /** Returns the number of bits in the underlying fingerprint array. */
+  @VisibleForTesting
+  long bitSize() {
+    return fingerprints.bitSize();
+  }
+
+  /** Stores the three positions of an element, whose mixed hash is {@code mixed}, in an array. */
+  private void positions(long mixed, int[] positions) {
+    positions[0] = (int) multiplyHigh(mixed, segmentCount * segmentLength);
+    positions[1] = (positions[0] + segmentLength) ^ ((int) (mixed >>> 18) & (segmentLength - 1));
+    positions[2] = (positions[1] + segmentLength) ^ ((int) mixed & (segmentLength - 1));
+  }
+
+  private int fingerprint(long mixed) {
+    return (int) ((mixed ^ (mixed >>> 32)) & ((1L << fingerprints.bitsPerFingerprint) - 1));
+  }
+
+  /** The finalization mix of MurmurHash3, so that each seed gives unrelated positions. */
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  /**
+   * Returns the high 64 bits of the unsigned 128-bit product of {@code x} and {@code y}, which must
+   * be nonnegative and less than 2<sup>32</sup>; that is, {@code x} scaled into {@code [0, y)}.
+   */
+  private static long multiplyHigh(long x, int y) {
+    long high = (x >>> 32) * y;
+    long low = (x & 0xFFFFFFFFL) * y;
+    return (high + (low >>> 32)) >>> 32;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (object instanceof XorFilter) {
+      XorFilter<?> that = (XorFilter<?>) object;
+      return this.segmentLength == that.segmentLength
+          && this.segmentCount == that.segmentCount
+          && this.seed == that.seed
+          && this.funnel.equals(that.funnel)
+          && this.fingerprints.equals(that.fingerprints);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(segmentLength, segmentCount, seed, funnel, fingerprints);
+  }
+
+  /**
+   * Writes this {@code XorFilter} to an output stream, with a custom format (not Java
+   * serialization).
+   *
+   * <p>Use {@linkplain #readFrom(InputStream, Funnel)} to reconstruct the written XorFilter.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    // Serial form:
+    // 1 unsigned byte for the number of bits per fingerprint
+    // 1 big endian int, the length of a segment
+    // 1 big endian int, the number of segments (less 2)
+    // 1 big endian long, the seed
+    // 1 big endian int, the number of longs in our fingerprint array
+    // N big endian longs of our fingerprint array
+    DataOutputStream dout = new DataOutputStream(out);
+    dout.writeByte(UnsignedBytes.checkedCast(fingerprints.bitsPerFingerprint));
+    dout.writeInt(segmentLength);
+    dout.writeInt(segmentCount);
+    dout.writeLong(seed);
+    dout.writeInt(fingerprints.data.length);
+    for (long value : fingerprints.data) {
+      dout.writeLong(value);
+    }
+  }
+
+  /**
+   * Reads a byte stream, which was written by {@linkplain #writeTo(OutputStream)}, into an {@code
+   * XorFilter}.
+   *
+   * <p>The {@code Funnel} to be used is not encoded in the stream, so it must be provided here.
+   * <b>Warning:</b> the funnel provided <b>must</b> behave identically to the one used to create
+   * the original xor filter!
+   *
+   * @throws IOException if the InputStream throws an {@code IOException}, or if its data does not
+   *     appear to be an XorFilter serialized using the {@linkplain #writeTo(OutputStream)} method.
+   */
+  public static <T> XorFilter<T> readFrom(InputStream in, Funnel<? super T> funnel)
+      throws IOException {
+    checkNotNull(in, "InputStream");
+    checkNotNull(funnel, "Funnel");
+    int bitsPerFingerprint = -1;
+    int segmentLength = -1;
+    int segmentCount = -1;
+    int dataLength = -1;
+    try {
+      DataInputStream din = new DataInputStream(in);
+      bitsPerFingerprint = UnsignedBytes.toInt(din.readByte());
+      segmentLength = din.readInt();
+      segmentCount = din.readInt();
+      long seed = din.readLong();
+      dataLength = din.readInt();
+
+      long[] data = new long[dataLength];
+      for (int i = 0; i < data.length; i++) {
+        data[i] = din.readLong();
+      }
+      FingerprintArray fingerprints = new FingerprintArray(data, bitsPerFingerprint);
+      checkArgument(
+          fingerprints.bitSize()
+              >= ((long) segmentCount + 2) * segmentLength * bitsPerFingerprint,
+          "too few longs for the segments");
+      return new XorFilter<T>(fingerprints, segmentLength, segmentCount, seed, funnel);
+    } catch (RuntimeException e) {
+      String message =
+          "Unable to deserialize XorFilter from InputStream."
+              + " bitsPerFingerprint: "
+              + bitsPerFingerprint
+              + " segmentLength: "
+              + segmentLength
+              + " segmentCount: "
+              + segmentCount
+              + " dataLength: "
+              + dataLength;
+      throw new IOException(message, e);
+    }
+  }
+}
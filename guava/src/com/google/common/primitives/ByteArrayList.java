@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.primitives;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.nio.ByteBuffer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A growable list of {@code byte} values, held in a {@code byte[]} rather than boxed as in an
+ * {@code ArrayList<Byte>}. The {@link java.util.List} methods box; their counterparts whose names
+ * end in {@code Byte}, such as {@link #addByte} and {@link #getByte}, do not. Null elements are
+ * not permitted.
+ *
+ * <p>The list can also {@linkplain #wrap wrap} an existing array, serve as a stack through {@link
+ * #pushByte} and {@link #popByte}, and {@linkplain #freeze freeze} into a read-only {@link
+ * ByteBuffer} without copying an array that it allocated.
+ *
+ * <p>Like {@link java.util.ArrayList}, this class is not thread-safe, and its iterators fail fast
+ * when the list is structurally modified while they are in use.
+ */
+@GwtIncompatible
+public final class ByteArrayList extends AbstractList<Byte> implements RandomAccess, Serializable {
+  /** The capacity of the array allocated by the no-argument constructor. */
+  public static final int INITIAL_CAPACITY = 8;
+
+  private static final byte[] EMPTY_ARRAY = new byte[0];
+
+  private byte[] elements;
+  private int size;
+
+  /**
+   * Whether {@link #elements} is an array that was passed to {@link #wrap}, which the caller may
+   * still modify, rather than one that this list allocated.
+   */
+  private transient boolean wrapped;
+
+  /** Creates an empty list with a capacity of {@link #INITIAL_CAPACITY}. */
+  public ByteArrayList() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Creates an empty list with the given capacity.
+   *
+   * @throws IllegalArgumentException if {@code initialCapacity} is negative
+   */
+  public ByteArrayList(int initialCapacity) {
+    checkArgument(
+        initialCapacity >= 0, "initialCapacity must not be negative: %s", initialCapacity);
+    elements = (initialCapacity == 0) ? EMPTY_ARRAY : new byte[initialCapacity];
+  }
+
+  /**
+   * Creates a list whose elements are the first {@code initialSize} values of {@code
+   * initialElements}, as {@link #wrap} does.
+   */
+  public ByteArrayList(byte[] initialElements, int initialSize) {
+    wrap(initialElements, initialSize);
+  }
+
+  /**
+   * Replaces the elements of this list with the first {@code initialSize} values of {@code
+   * initialElements}, without copying them. The list writes to the array until it needs to grow,
+   * so the caller should not use the array while the list does.
+   *
+   * @throws IllegalArgumentException if {@code initialSize} is negative or greater than the length
+   *     of {@code initialElements}
+   */
+  public void wrap(byte[] initialElements, int initialSize) {
+    checkNotNull(initialElements);
+    checkArgument(
+        initialSize >= 0 && initialSize <= initialElements.length,
+        "illegal initial size %s for array length of %s",
+        initialSize,
+        initialElements.length);
+    elements = initialElements;
+    size = initialSize;
+    wrapped = true;
+    modCount++;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public void clear() {
+    size = 0;
+    modCount++;
+  }
+
+  /** Reduces the capacity of the backing array to the size of the list. */
+  public void trimToSize() {
+    if (elements.length != size) {
+      elements = (size == 0) ? EMPTY_ARRAY : Arrays.copyOf(elements, size);
+      wrapped = false;
+    }
+  }
+
+  /** Ensures that the list can hold {@code requiredCapacity} elements without growing. */
+  public void ensureCapacity(int requiredCapacity) {
+    if (requiredCapacity > elements.length) {
+      grow(requiredCapacity);
+    }
+  }
+
+  @Override
+  public Byte get(int index) {
+    return getByte(index);
+  }
+
+  /** Returns the element at {@code index} without boxing it. */
+  public byte getByte(int index) {
+    checkElementIndex(index, size);
+    return elements[index];
+  }
+
+  @Override
+  public Byte set(int index, Byte element) {
+    return setByte(index, checkNotNull(element));
+  }
+
+  /** Replaces the element at {@code index} without boxing it, and returns the previous element. */
+  @CanIgnoreReturnValue
+  public byte setByte(int index, byte element) {
+    checkElementIndex(index, size);
+    byte previous = elements[index];
+    elements[index] = element;
+    return previous;
+  }
+
+  @Override
+  public boolean add(Byte element) {
+    return addByte(checkNotNull(element));
+  }
+
+  /** Appends {@code element} without boxing it. */
+  @CanIgnoreReturnValue
+  public boolean addByte(byte element) {
+    if (size == elements.length) {
+      grow(size + 1);
+    }
+    elements[size++] = element;
+    modCount++;
+    return true;
+  }
+
+  @Override
+  public void add(int index, Byte element) {
+    addByte(index, checkNotNull(element));
+  }
+
+  /** Inserts {@code element} at {@code index} without boxing it. */
+  public void addByte(int index, byte element) {
+    checkPositionIndex(index, size);
+    if (size == elements.length) {
+      grow(size + 1);
+    }
+    System.arraycopy(elements, index, elements, index + 1, size - index);
+    elements[index] = element;
+    size++;
+    modCount++;
+  }
+
+  /** Appends all of the elements of {@code values}. */
+  @CanIgnoreReturnValue
+  public boolean addAll(ByteArrayList values) {
+    int count = values.size;
+    ensureCapacity(size + count);
+    System.arraycopy(values.elements, 0, elements, size, count);
+    size += count;
+    modCount++;
+    return count != 0;
+  }
+
+  @Override
+  public Byte remove(int index) {
+    checkElementIndex(index, size);
+    byte value = elements[index];
+    System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+    size--;
+    modCount++;
+    return value;
+  }
+
+  /** Removes the first element equal to {@code value}, and returns whether there was one. */
+  @CanIgnoreReturnValue
+  public boolean removeByte(byte value) {
+    int index = indexOf(value);
+    if (index == -1) {
+      return false;
+    }
+    remove(index);
+    return true;
+  }
+
+  /**
+   * Removes the element at {@code index} by moving the last element into its place rather than
+   * shifting every later element down, which changes the order of the list.
+   *
+   * @return the element that was removed
+   */
+  @CanIgnoreReturnValue
+  public byte fastUnorderedRemove(int index) {
+    checkElementIndex(index, size);
+    byte value = elements[index];
+    elements[index] = elements[--size];
+    modCount++;
+    return value;
+  }
+
+  /**
+   * Removes the first element equal to {@code value} as {@link #fastUnorderedRemove} does, and
+   * returns whether there was one.
+   */
+  @CanIgnoreReturnValue
+  public boolean fastUnorderedRemoveByte(byte value) {
+    int index = indexOf(value);
+    if (index == -1) {
+      return false;
+    }
+    fastUnorderedRemove(index);
+    return true;
+  }
+
+  /** Pushes {@code element} onto the end of the list, treating it as a stack. */
+  public void pushByte(byte element) {
+    addByte(element);
+  }
+
+  /**
+   * Removes and returns the last element, treating the list as a stack.
+   *
+   * @throws NoSuchElementException if the list is empty
+   */
+  @CanIgnoreReturnValue
+  public byte popByte() {
+    if (size == 0) {
+      throw new NoSuchElementException();
+    }
+    modCount++;
+    return elements[--size];
+  }
+
+  @Override
+  public boolean contains(@Nullable Object target) {
+    return target instanceof Byte && contains((byte) (Byte) target);
+  }
+
+  /** Returns whether the list contains an element equal to {@code value}. */
+  public boolean contains(byte value) {
+    return indexOf(value) != -1;
+  }
+
+  @Override
+  public int indexOf(@Nullable Object target) {
+    return (target instanceof Byte) ? indexOf((byte) (Byte) target) : -1;
+  }
+
+  /** Returns the index of the first element equal to {@code value}, or -1 if there is none. */
+  public int indexOf(byte value) {
+    for (int i = 0; i < size; i++) {
+      if (elements[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public int lastIndexOf(@Nullable Object target) {
+    return (target instanceof Byte) ? lastIndexOf((byte) (Byte) target) : -1;
+  }
+
+  /** Returns the index of the last element equal to {@code value}, or -1 if there is none. */
+  public int lastIndexOf(byte value) {
+    for (int i = size - 1; i >= 0; i--) {
+      if (elements[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Calls {@code consumer} with each element in order, widened to an int. */
+  public void forEachOrderedByte(IntConsumer consumer) {
+    checkNotNull(consumer);
+    for (int i = 0; i < size; i++) {
+      consumer.accept(elements[i]);
+    }
+  }
+
+  /** Returns a sequential {@link IntStream} over the elements of this list, widened to ints. */
+  public IntStream intStream() {
+    final byte[] elements = this.elements;
+    return IntStream.range(0, size).map(i -> elements[i]);
+  }
+
+  /** Returns a new array holding the elements of this list. */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(elements, size);
+  }
+
+  /**
+   * Returns a read-only buffer of the elements of this list, which takes over the backing array
+   * rather than copying it, and leaves this list empty. An array that was passed to {@link #wrap}
+   * is copied instead, as its caller could still modify it. There is no immutable array type for
+   * {@code byte} values, so this is the closest equivalent of {@code freeze()} on {@link
+   * LongArrayList}.
+   */
+  public ByteBuffer freeze() {
+    ByteBuffer frozen =
+        (wrapped ? ByteBuffer.wrap(toByteArray()) : ByteBuffer.wrap(elements, 0, size).slice())
+            .asReadOnlyBuffer();
+    elements = EMPTY_ARRAY;
+    size = 0;
+    wrapped = false;
+    modCount++;
+    return frozen;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object instanceof ByteArrayList) {
+      ByteArrayList that = (ByteArrayList) object;
+      if (size != that.size) {
+        return false;
+      }
+      for (int i = 0; i < size; i++) {
+        if (elements[i] != that.elements[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return super.equals(object);
+  }
+
+  @Override
+  public int hashCode() {
+    // Consistent with List.hashCode(), as super.hashCode() would compute it after boxing
+    int hashCode = 1;
+    for (int i = 0; i < size; i++) {
+      hashCode = 31 * hashCode + Byte.hashCode(elements[i]);
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(size * 5).append('[');
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(elements[i]);
+    }
+    return builder.append(']').toString();
+  }
+
+  private void grow(int requiredCapacity) {
+    if (requiredCapacity < 0) {
+      throw new IllegalStateException("max capacity reached");
+    }
+    int newCapacity = Math.max(elements.length + (elements.length >> 1), INITIAL_CAPACITY);
+    if (newCapacity < requiredCapacity) {
+      newCapacity = requiredCapacity;
+    } else if (newCapacity < 0) {
+      newCapacity = Integer.MAX_VALUE;
+    }
+    elements = Arrays.copyOf(elements, newCapacity);
+    wrapped = false;
+  }
+
+  private static final long serialVersionUID = 0;
+}
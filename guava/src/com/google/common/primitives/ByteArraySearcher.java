@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.primitives;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.UnsignedBytes.LexicographicalComparatorHolder.UnsafeComparator;
+
+/**
+ * Searches byte arrays for a single byte value; either with a Java implementation or with a faster
+ * implementation that uses {@link sun.misc.Unsafe} to test eight bytes per step, SIMD-within-a-
+ * register style.
+ *
+ * <p>Uses reflection to gracefully fall back to the Java implementation under the same conditions
+ * as {@link UnsignedBytes#lexicographicalComparator()}, whose {@code Unsafe} instance it shares.
+ */
+@GwtIncompatible // sun.misc.Unsafe
+abstract class ByteArraySearcher {
+  static final String UNSAFE_SEARCHER_NAME = ByteArraySearcher.class.getName() + "$UnsafeSearcher";
+
+  /**
+   * Holds the best searcher. This can't be a static field of {@code ByteArraySearcher} itself:
+   * both implementations extend it, so initializing one of them first would run the lookup while
+   * that implementation's {@code INSTANCE} was still null.
+   */
+  static final class BestSearcherHolder {
+    static final ByteArraySearcher BEST_SEARCHER = getBestSearcher();
+  }
+
+  /**
+   * Returns the least index {@code i} in {@code [start, end)} for which {@code array[i] ==
+   * target}, or {@code -1}. The range must already have been checked against {@code array}.
+   */
+  abstract int indexOf(byte[] array, byte target, int start, int end);
+
+  @VisibleForTesting
+  static final class UnsafeSearcher extends ByteArraySearcher {
+    static final UnsafeSearcher INSTANCE = new UnsafeSearcher();
+
+    // Copied into static finals of this class so that the compiler constant-folds them.
+    private static final sun.misc.Unsafe theUnsafe = UnsafeComparator.theUnsafe;
+    private static final long BYTE_ARRAY_BASE_OFFSET = UnsafeComparator.BYTE_ARRAY_BASE_OFFSET;
+    private static final boolean BIG_ENDIAN = UnsafeComparator.BIG_ENDIAN;
+
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long ONES = 0x0101010101010101L;
+
+    @Override
+    int indexOf(byte[] array, byte target, int start, int end) {
+      int i = start;
+
+      // Scan up to the first 8-byte aligned index, so that every word read below is aligned.
+      int aligned = Math.min((start + 7) & ~7, end);
+      for (; i < aligned; i++) {
+        if (array[i] == target) {
+          return i;
+        }
+      }
+
+      long pattern = (target & 0xFFL) * ONES;
+      // Two words per branch; the loop is limited by the branch rather than by the arithmetic.
+      for (; end - i >= 16; i += 16) {
+        long matches0 = matches(theUnsafe.getLong(array, BYTE_ARRAY_BASE_OFFSET + i) ^ pattern);
+        long matches1 =
+            matches(theUnsafe.getLong(array, BYTE_ARRAY_BASE_OFFSET + i + 8) ^ pattern);
+        if ((matches0 | matches1) != 0) {
+          return matches0 != 0 ? i + firstMatch(matches0) : i + 8 + firstMatch(matches1);
+        }
+      }
+      if (end - i >= 8) {
+        long matches = matches(theUnsafe.getLong(array, BYTE_ARRAY_BASE_OFFSET + i) ^ pattern);
+        if (matches != 0) {
+          return i + firstMatch(matches);
+        }
+        i += 8;
+      }
+
+      for (; i < end; i++) {
+        if (array[i] == target) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Returns a word whose bytes have only their high bit set where the corresponding byte of
+     * {@code word} is zero, and are zero elsewhere.
+     */
+    private static long matches(long word) {
+      /*
+       * Adding 0x7F to the low seven bits of a byte carries into its high bit unless they are all
+       * zero, so after or-ing in the byte itself and the low seven bits, only the high bits of zero
+       * bytes are left clear. Unlike the shorter (word - ONES) & ~word trick, no carry crosses
+       * bytes, so every set bit is exact and the byte order doesn't matter.
+       */
+      return ~(((word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | word | LOW_SEVEN_BITS);
+    }
+
+    /** Returns the index, in memory order, of the first byte flagged in a nonzero match word. */
+    private static int firstMatch(long matches) {
+      return (BIG_ENDIAN ? Long.numberOfLeadingZeros(matches) : Long.numberOfTrailingZeros(matches))
+          >>> 3;
+    }
+
+    @Override
+    public String toString() {
+      return "ByteArraySearcher (sun.misc.Unsafe version)";
+    }
+  }
+
+  @VisibleForTesting
+  static final class PureJavaSearcher extends ByteArraySearcher {
+    static final PureJavaSearcher INSTANCE = new PureJavaSearcher();
+
+    @Override
+    int indexOf(byte[] array, byte target, int start, int end) {
+      for (int i = start; i < end; i++) {
+        if (array[i] == target) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public String toString() {
+      return "ByteArraySearcher (pure Java version)";
+    }
+  }
+
+  /**
+   * Returns the Unsafe-using searcher, or falls back to the pure-Java implementation if unable to
+   * do so.
+   */
+  static ByteArraySearcher getBestSearcher() {
+    try {
+      Class<?> theClass = Class.forName(UNSAFE_SEARCHER_NAME);
+      return (ByteArraySearcher) theClass.getDeclaredField("INSTANCE").get(null);
+    } catch (Throwable t) { // ensure we really catch *everything*
+      return PureJavaSearcher.INSTANCE;
+    }
+  }
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.primitives;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A growable list of {@code double} values, held in a {@code double[]} rather than boxed as in an
+ * {@code ArrayList<Double>}. The {@link java.util.List} methods box; their counterparts whose names
+ * end in {@code Double}, such as {@link #addDouble} and {@link #getDouble}, do not. Null elements
+ * are not permitted.
+ *
+ * <p>The list can also {@linkplain #wrap wrap} an existing array, serve as a stack through {@link
+ * #pushDouble} and {@link #popDouble}, and {@linkplain #freeze freeze} into an {@link
+ * ImmutableDoubleArray} without copying an array that it allocated.
+ *
+ * <p>Like {@link java.util.ArrayList}, this class is not thread-safe, and its iterators fail fast
+ * when the list is structurally modified while they are in use.
+ */
+@GwtIncompatible
+public final class DoubleArrayList extends AbstractList<Double>
+    implements RandomAccess, Serializable {
+  /** The capacity of the array allocated by the no-argument constructor. */
+  public static final int INITIAL_CAPACITY = 8;
+
+  private static final double[] EMPTY_ARRAY = new double[0];
+
+  private double[] elements;
+  private int size;
+
+  /**
+   * Whether {@link #elements} is an array that was passed to {@link #wrap}, which the caller may
+   * still modify, rather than one that this list allocated.
+   */
+  private transient boolean wrapped;
+
+  /** Creates an empty list with a capacity of {@link #INITIAL_CAPACITY}. */
+  public DoubleArrayList() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Creates an empty list with the given capacity.
+   *
+   * @throws IllegalArgumentException if {@code initialCapacity} is negative
+   */
+  public DoubleArrayList(int initialCapacity) {
+    checkArgument(
+        initialCapacity >= 0, "initialCapacity must not be negative: %s", initialCapacity);
+    elements = (initialCapacity == 0) ? EMPTY_ARRAY : new double[initialCapacity];
+  }
+
+  /**
+   * Creates a list whose elements are the first {@code initialSize} values of {@code
+   * initialElements}, as {@link #wrap} does.
+   */
+  public DoubleArrayList(double[] initialElements, int initialSize) {
+    wrap(initialElements, initialSize);
+  }
+
+  /**
+   * Replaces the elements of this list with the first {@code initialSize} values of {@code
+   * initialElements}, without copying them. The list writes to the array until it needs to grow,
+   * so the caller should not use the array while the list does.
+   *
+   * @throws IllegalArgumentException if {@code initialSize} is negative or greater than the length
+   *     of {@code initialElements}
+   */
+  public void wrap(double[] initialElements, int initialSize) {
+    checkNotNull(initialElements);
+    checkArgument(
+        initialSize >= 0 && initialSize <= initialElements.length,
+        "illegal initial size %s for array length of %s",
+        initialSize,
+        initialElements.length);
+    elements = initialElements;
+    size = initialSize;
+    wrapped = true;
+    modCount++;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public void clear() {
+    size = 0;
+    modCount++;
+  }
+
+  /** Reduces the capacity of the backing array to the size of the list. */
+  public void trimToSize() {
+    if (elements.length != size) {
+      elements = (size == 0) ? EMPTY_ARRAY : Arrays.copyOf(elements, size);
+      wrapped = false;
+    }
+  }
+
+  /** Ensures that the list can hold {@code requiredCapacity} elements without growing. */
+  public void ensureCapacity(int requiredCapacity) {
+    if (requiredCapacity > elements.length) {
+      grow(requiredCapacity);
+    }
+  }
+
+  @Override
+  public Double get(int index) {
+    return getDouble(index);
+  }
+
+  /** Returns the element at {@code index} without boxing it. */
+  public double getDouble(int index) {
+    checkElementIndex(index, size);
+    return elements[index];
+  }
+
+  @Override
+  public Double set(int index, Double element) {
+    return setDouble(index, checkNotNull(element));
+  }
+
+  /** Replaces the element at {@code index} without boxing it, and returns the previous element. */
+  @CanIgnoreReturnValue
+  public double setDouble(int index, double element) {
+    checkElementIndex(index, size);
+    double previous = elements[index];
+    elements[index] = element;
+    return previous;
+  }
+
+  @Override
+  public boolean add(Double element) {
+    return addDouble(checkNotNull(element));
+  }
+
+  /** Appends {@code element} without boxing it. */
+  @CanIgnoreReturnValue
+  public boolean addDouble(double element) {
+    if (size == elements.length) {
+      grow(size + 1);
+    }
+    elements[size++] = element;
+    modCount++;
+    return true;
+  }
+
+  @Override
+  public void add(int index, Double element) {
+    addDouble(index, checkNotNull(element));
+  }
+
+  /** Inserts {@code element} at {@code index} without boxing it. */
+  public void addDouble(int index, double element) {
+    checkPositionIndex(index, size);
+    if (size == elements.length) {
+      grow(size + 1);
+    }
+    System.arraycopy(elements, index, elements, index + 1, size - index);
+    elements[index] = element;
+    size++;
+    modCount++;
+  }
+
+  /** Appends all of the elements of {@code values}. */
+  @CanIgnoreReturnValue
+  public boolean addAll(DoubleArrayList values) {
+    int count = values.size;
+    ensureCapacity(size + count);
+    System.arraycopy(values.elements, 0, elements, size, count);
+    size += count;
+    modCount++;
+    return count != 0;
+  }
+
+  @Override
+  public Double remove(int index) {
+    checkElementIndex(index, size);
+    double value = elements[index];
+    System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+    size--;
+    modCount++;
+    return value;
+  }
+
+  /** Removes the first element equal to {@code value}, and returns whether there was one. */
+  @CanIgnoreReturnValue
+  public boolean removeDouble(double value) {
+    int index = indexOf(value);
+    if (index == -1) {
+      return false;
+    }
+    remove(index);
+    return true;
+  }
+
+  /**
+   * Removes the element at {@code index} by moving the last element into its place rather than
+   * shifting every later element down, which changes the order of the list.
+   *
+   * @return the element that was removed
+   */
+  @CanIgnoreReturnValue
+  public double fastUnorderedRemove(int index) {
+    checkElementIndex(index, size);
+    double value = elements[index];
+    elements[index] = elements[--size];
+    modCount++;
+    return value;
+  }
+
+  /**
+   * Removes the first element equal to {@code value} as {@link #fastUnorderedRemove} does, and
+   * returns whether there was one.
+   */
+  @CanIgnoreReturnValue
+  public boolean fastUnorderedRemoveDouble(double value) {
+    int index = indexOf(value);
+    if (index == -1) {
+      return false;
+    }
+    fastUnorderedRemove(index);
+    return true;
+  }
+
+  /** Pushes {@code element} onto the end of the list, treating it as a stack. */
+  public void pushDouble(double element) {
+    addDouble(element);
+  }
+
+  /**
+   * Removes and returns the last element, treating the list as a stack.
+   *
+   * @throws NoSuchElementException if the list is empty
+   */
+  @CanIgnoreReturnValue
+  public double popDouble() {
+    if (size == 0) {
+      throw new NoSuchElementException();
+    }
+    modCount++;
+    return elements[--size];
+  }
+
+  @Override
+  public boolean contains(@Nullable Object target) {
+    return target instanceof Double && contains((double) (Double) target);
+  }
+
+  /** Returns whether the list contains an element equal to {@code value}. */
+  public boolean contains(double value) {
+    return indexOf(value) != -1;
+  }
+
+  @Override
+  public int indexOf(@Nullable Object target) {
+    return (target instanceof Double) ? indexOf((double) (Double) target) : -1;
+  }
+
+  /** Returns the index of the first element equal to {@code value}, or -1 if there is none. */
+  public int indexOf(double value) {
+    for (int i = 0; i < size; i++) {
+      if (areEqual(elements[i], value)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public int lastIndexOf(@Nullable Object target) {
+    return (target instanceof Double) ? lastIndexOf((double) (Double) target) : -1;
+  }
+
+  /** Returns the index of the last element equal to {@code value}, or -1 if there is none. */
+  public int lastIndexOf(double value) {
+    for (int i = size - 1; i >= 0; i--) {
+      if (areEqual(elements[i], value)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Calls {@code consumer} with each element in order, without boxing them. */
+  public void forEachOrderedDouble(DoubleConsumer consumer) {
+    checkNotNull(consumer);
+    for (int i = 0; i < size; i++) {
+      consumer.accept(elements[i]);
+    }
+  }
+
+  /** Returns a sequential {@link DoubleStream} over the elements of this list. */
+  public DoubleStream doubleStream() {
+    return Arrays.stream(elements, 0, size);
+  }
+
+  /** Returns a new array holding the elements of this list. */
+  public double[] toDoubleArray() {
+    return Arrays.copyOf(elements, size);
+  }
+
+  /**
+   * Returns an immutable array of the elements of this list, which takes over the backing array
+   * rather than copying it, and leaves this list empty. An array that was passed to {@link #wrap}
+   * is copied instead, as its caller could still modify it. The backing array may be larger than the
+   * list, as it may be for {@link ImmutableDoubleArray.Builder#build}; call {@link
+   * ImmutableDoubleArray#trimmed} on the result to copy its values into an array of the right size.
+   */
+  public ImmutableDoubleArray freeze() {
+    ImmutableDoubleArray frozen;
+    if (size == 0) {
+      frozen = ImmutableDoubleArray.of();
+    } else if (wrapped) {
+      frozen = new ImmutableDoubleArray(toDoubleArray(), 0, size);
+    } else {
+      frozen = new ImmutableDoubleArray(elements, 0, size);
+    }
+    elements = EMPTY_ARRAY;
+    size = 0;
+    wrapped = false;
+    modCount++;
+    return frozen;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object instanceof DoubleArrayList) {
+      DoubleArrayList that = (DoubleArrayList) object;
+      if (size != that.size) {
+        return false;
+      }
+      for (int i = 0; i < size; i++) {
+        if (!areEqual(elements[i], that.elements[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return super.equals(object);
+  }
+
+  @Override
+  public int hashCode() {
+    // Consistent with List.hashCode(), as super.hashCode() would compute it after boxing
+    int hashCode = 1;
+    for (int i = 0; i < size; i++) {
+      hashCode = 31 * hashCode + Double.hashCode(elements[i]);
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(size * 5).append('[');
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(elements[i]);
+    }
+    return builder.append(']').toString();
+  }
+
+  private void grow(int requiredCapacity) {
+    if (requiredCapacity < 0) {
+      throw new IllegalStateException("max capacity reached");
+    }
+    int newCapacity = Math.max(elements.length + (elements.length >> 1), INITIAL_CAPACITY);
+    if (newCapacity < requiredCapacity) {
+      newCapacity = requiredCapacity;
+    } else if (newCapacity < 0) {
+      newCapacity = Integer.MAX_VALUE;
+    }
+    elements = Arrays.copyOf(elements, newCapacity);
+    wrapped = false;
+  }
+
+  // Match the behavior of Double.equals()
+  private static boolean areEqual(double a, double b) {
+    return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+  }
+
+  private static final long serialVersionUID = 0;
+}
@@ -427,6 +427,84 @@ public final class Doubles {
     reverse(array, fromIndex, toIndex);
   }
 
+  /**
+   * Sorts the elements of {@code array} in ascending order, like {@link Arrays#sort(double[])}, but
+   * with a radix sort. This takes time linear in the length of the array, plus a temporary array of
+   * the same length, and is typically several times faster than {@code Arrays.sort} for arrays of
+   * more than a few thousand elements.
+   *
+   * <p>Note that this method uses the total order imposed by {@link Double#compare}, which treats
+   * all NaN values as equal and 0.0 as greater than -0.0. Each NaN in the sorted range may be
+   * replaced by {@link Double#NaN}.
+   */
+  @Beta
+  @GwtIncompatible // PrimitiveSorting
+  public static void radixSort(double[] array) {
+    checkNotNull(array);
+    radixSort(array, 0, array.length);
+  }
+
+  /**
+   * Sorts the elements of {@code array} between {@code fromIndex} inclusive and {@code toIndex}
+   * exclusive in ascending order, with a radix sort.
+   *
+   * @see #radixSort(double[])
+   */
+  @Beta
+  @GwtIncompatible // PrimitiveSorting
+  public static void radixSort(double[] array, int fromIndex, int toIndex) {
+    checkNotNull(array);
+    checkPositionIndexes(fromIndex, toIndex, array.length);
+    PrimitiveSorting.radixSort(array, fromIndex, toIndex, false);
+  }
+
+  /**
+   * Sorts the elements of {@code array} in ascending order with a radix sort whose passes are
+   * split between the threads of the {@linkplain java.util.concurrent.ForkJoinPool#commonPool()
+   * common fork/join pool}. Arrays of fewer than 65536 elements are sorted on the calling thread.
+   *
+   * @see #radixSort(double[])
+   */
+  @Beta
+  @GwtIncompatible // ForkJoinPool
+  public static void parallelRadixSort(double[] array) {
+    checkNotNull(array);
+    parallelRadixSort(array, 0, array.length);
+  }
+
+  /**
+   * Sorts the elements of {@code array} between {@code fromIndex} inclusive and {@code toIndex}
+   * exclusive in ascending order, with a parallel radix sort.
+   *
+   * @see #parallelRadixSort(double[])
+   */
+  @Beta
+  @GwtIncompatible // ForkJoinPool
+  public static void parallelRadixSort(double[] array, int fromIndex, int toIndex) {
+    checkNotNull(array);
+    checkPositionIndexes(fromIndex, toIndex, array.length);
+    PrimitiveSorting.radixSort(array, fromIndex, toIndex, true);
+  }
+
+  /**
+   * Returns the indexes of the elements of {@code array} in the order that would sort them, so
+   * that {@code array[indexes[0]]} is the least element; equal elements keep the order of their
+   * indexes. This is an indirect sort, or "argsort": it leaves {@code array} unchanged, and lets
+   * other arrays indexed in the same way be put in the same order.
+   *
+   * <p>Note that this method uses the total order imposed by {@link Double#compare}, which treats
+   * all NaN values as equal and 0.0 as greater than -0.0.
+   */
+  @Beta
+  @GwtIncompatible // PrimitiveSorting
+  public static int[] sortedIndexes(double[] array) {
+    long[] keys = new long[array.length];
+    for (int i = 0; i < array.length; i++) {
+      keys[i] = PrimitiveSorting.sortableBits(array[i]);
+    }
+    return PrimitiveSorting.sortedIndexes(keys);
+  }
+
   /**
    * Reverses the elements of {@code array}. This is equivalent to {@code
    * Collections.reverse(Doubles.asList(array))}, but is likely to be more efficient.
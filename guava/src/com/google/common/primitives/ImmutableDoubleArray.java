@@ -351,7 +351,8 @@ public final class ImmutableDoubleArray implements Serializable {
     this(array, 0, array.length);
   }
 
-  private ImmutableDoubleArray(double[] array, int start, int end) {
+  // Package-private so that DoubleArrayList.freeze() can hand over its array without copying
+  ImmutableDoubleArray(double[] array, int start, int end) {
     this.array = array;
     this.start = start;
     this.end = end;
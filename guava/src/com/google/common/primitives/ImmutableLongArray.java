@@ -350,7 +350,8 @@ public final class ImmutableLongArray implements Serializable {
     this(array, 0, array.length);
   }
 
-  private ImmutableLongArray(long[] array, int start, int end) {
+  // Package-private so that LongArrayList.freeze() can hand over its array without copying
+  ImmutableLongArray(long[] array, int start, int end) {
     this.array = array;
     this.start = start;
     this.end = end;
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.primitives;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import java.util.Arrays;
+
+/**
+ * An accumulator that selects the least or greatest {@code k} of the {@code int} values offered to
+ * it, without boxing them. This is the primitive counterpart of the {@code TopKSelector} behind
+ * {@link com.google.common.collect.Ordering#leastOf(Iterable, int)}, with the same algorithm: it
+ * buffers up to {@code 2k} candidates, and whenever the buffer fills, quickselects the best {@code
+ * k} of them and forgets the rest. This takes expected O(n + k log k) time for n calls to {@link
+ * #offer} and a call to {@link #topK}, with O(k) memory.
+ *
+ * <p>To select from values already in an array that may be rearranged, {@link
+ * Ints#partialSort(int[], int)} avoids the buffer.
+ *
+ * <p>This class is not thread-safe.
+ */
+@Beta
+@GwtIncompatible
+public final class IntTopKSelector {
+  /**
+   * Returns a selector that collects the least {@code k} values offered to it, and returns them
+   * from {@link #topK} in ascending order.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative or greater than {@code
+   *     Integer.MAX_VALUE / 2}
+   */
+  public static IntTopKSelector least(int k) {
+    return new IntTopKSelector(k, false);
+  }
+
+  /**
+   * Returns a selector that collects the greatest {@code k} values offered to it, and returns them
+   * from {@link #topK} in descending order.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative or greater than {@code
+   *     Integer.MAX_VALUE / 2}
+   */
+  public static IntTopKSelector greatest(int k) {
+    return new IntTopKSelector(k, true);
+  }
+
+  private final int k;
+
+  /*
+   * The greatest values are selected as the least of their complements, which reverses the order
+   * of ints without the overflow of negating Integer.MIN_VALUE.
+   */
+  private final boolean complement;
+
+  /*
+   * The candidates for the top k values are in buffer[0, bufferSize). Whenever the buffer fills,
+   * the least k candidates are quickselected into [0, k) and the rest are dropped.
+   */
+  private final int[] buffer;
+  private int bufferSize;
+
+  /**
+   * The greatest of the least k candidates seen so far. Once bufferSize ≥ k, values greater than
+   * this can be ignored.
+   */
+  private int threshold;
+
+  private IntTopKSelector(int k, boolean complement) {
+    checkArgument(k >= 0, "k must be nonnegative, was %s", k);
+    checkArgument(
+        k <= Integer.MAX_VALUE / 2, "k must be at most %s, was %s", Integer.MAX_VALUE / 2, k);
+    this.k = k;
+    this.complement = complement;
+    this.buffer = new int[2 * k];
+  }
+
+  /** Adds {@code value} as a candidate for the top {@code k} values, in amortized O(1) time. */
+  public void offer(int value) {
+    int key = complement ? ~value : value;
+    if (k == 0) {
+      return;
+    } else if (bufferSize == 0) {
+      buffer[0] = key;
+      threshold = key;
+      bufferSize = 1;
+    } else if (bufferSize < k) {
+      buffer[bufferSize++] = key;
+      threshold = Math.max(threshold, key);
+    } else if (key < threshold) {
+      buffer[bufferSize++] = key;
+      if (bufferSize == 2 * k) {
+        trim();
+      }
+    }
+  }
+
+  /** Adds each of {@code values} as a candidate for the top {@code k} values. */
+  public void offerAll(int... values) {
+    checkNotNull(values);
+    for (int value : values) {
+      offer(value);
+    }
+  }
+
+  /** Quickselects the least k candidates into [0, k), the last of which is then the greatest. */
+  private void trim() {
+    PrimitiveSorting.select(buffer, 0, bufferSize, k - 1);
+    bufferSize = k;
+    threshold = buffer[k - 1];
+  }
+
+  /**
+   * Returns the top {@code k} values offered to this selector, or all of them if fewer than {@code
+   * k} have been offered, in the order given by the factory that created this selector. The array
+   * is a copy, which later offers do not change. This takes O(k log k) time.
+   */
+  public int[] topK() {
+    Arrays.sort(buffer, 0, bufferSize);
+    if (bufferSize > k) {
+      bufferSize = k;
+      threshold = buffer[k - 1];
+    }
+    int[] topK = Arrays.copyOf(buffer, bufferSize);
+    if (complement) {
+      for (int i = 0; i < topK.length; i++) {
+        topK[i] = ~topK[i];
+      }
+    }
+    return topK;
+  }
+}
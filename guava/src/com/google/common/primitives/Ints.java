@@ -21,6 +21,7 @@ import static com.google.common.base.Preconditions.checkPositionIndexes;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
 import com.google.common.base.Converter;
 import java.io.Serializable;
 import java.util.AbstractList;
@@ -223,10 +224,9 @@ public final class Ints {
   public static int min(int... array) {
     checkArgument(array.length > 0);
     int min = array[0];
+    // Unlike a conditional assignment, Math.min lets HotSpot vectorize this loop as a reduction.
     for (int i = 1; i < array.length; i++) {
-      if (array[i] < min) {
-        min = array[i];
-      }
+      min = Math.min(min, array[i]);
     }
     return min;
   }
@@ -243,13 +243,27 @@ public final class Ints {
     checkArgument(array.length > 0);
     int max = array[0];
     for (int i = 1; i < array.length; i++) {
-      if (array[i] > max) {
-        max = array[i];
-      }
+      max = Math.max(max, array[i]);
     }
     return max;
   }
 
+  /**
+   * Returns the sum of the values in {@code array}. The sum is computed as a {@code long}, which
+   * cannot overflow even for the longest possible array of {@code Integer.MAX_VALUE} elements.
+   *
+   * @param array an array of {@code int} values, possibly empty
+   * @return the sum of the values in {@code array}, or {@code 0} if it is empty
+   */
+  @Beta
+  public static long sum(int... array) {
+    long sum = 0;
+    for (int value : array) {
+      sum += value;
+    }
+    return sum;
+  }
+
   /**
    * Returns the value nearest to {@code value} which is within the closed range {@code [min..max]}.
    *
@@ -475,6 +489,94 @@ public final class Ints {
     reverse(array, fromIndex, toIndex);
   }
 
+  /**
+   * Sorts the elements of {@code array} in ascending order, like {@link Arrays#sort(int[])}, but
+   * with a radix sort. This takes time linear in the length of the array, plus a temporary array of
+   * the same length, and is typically several times faster than {@code Arrays.sort} for arrays of
+   * more than a few thousand elements.
+   */
+  @Beta
+  @GwtIncompatible // PrimitiveSorting
+  public static void radixSort(int[] array) {
+    checkNotNull(array);
+    radixSort(array, 0, array.length);
+  }
+
+  /**
+   * Sorts the elements of {@code array} between {@code fromIndex} inclusive and {@code toIndex}
+   * exclusive in ascending order, with a radix sort.
+   *
+   * @see #radixSort(int[])
+   */
+  @Beta
+  @GwtIncompatible // PrimitiveSorting
+  public static void radixSort(int[] array, int fromIndex, int toIndex) {
+    checkNotNull(array);
+    checkPositionIndexes(fromIndex, toIndex, array.length);
+    PrimitiveSorting.radixSort(array, fromIndex, toIndex);
+  }
+
+  /**
+   * Sorts the elements of {@code array} in ascending order with a radix sort whose passes are
+   * split between the threads of the {@linkplain java.util.concurrent.ForkJoinPool#commonPool()
+   * common fork/join pool}. Arrays of fewer than 65536 elements are sorted on the calling thread.
+   *
+   * @see #radixSort(int[])
+   */
+  @Beta
+  @GwtIncompatible // ForkJoinPool
+  public static void parallelRadixSort(int[] array) {
+    checkNotNull(array);
+    parallelRadixSort(array, 0, array.length);
+  }
+
+  /**
+   * Sorts the elements of {@code array} between {@code fromIndex} inclusive and {@code toIndex}
+   * exclusive in ascending order, with a parallel radix sort.
+   *
+   * @see #parallelRadixSort(int[])
+   */
+  @Beta
+  @GwtIncompatible // ForkJoinPool
+  public static void parallelRadixSort(int[] array, int fromIndex, int toIndex) {
+    checkNotNull(array);
+    checkPositionIndexes(fromIndex, toIndex, array.length);
+    PrimitiveSorting.parallelRadixSort(array, fromIndex, toIndex);
+  }
+
+  /**
+   * Returns the indexes of the elements of {@code array} in the order that would sort them, so
+   * that {@code array[indexes[0]]} is the least element; equal elements keep the order of their
+   * indexes. This is an indirect sort, or "argsort": it leaves {@code array} unchanged, and lets
+   * other arrays indexed in the same way be put in the same order.
+   */
+  @Beta
+  @GwtIncompatible // PrimitiveSorting
+  public static int[] sortedIndexes(int[] array) {
+    return PrimitiveSorting.sortedIndexes(array.clone());
+  }
+
+  /**
+   * Rearranges the elements of {@code array} so that its first {@code k} elements are its {@code
+   * k} least, in ascending order, and the rest are in no particular order. This selects the
+   * {@code k} least elements with quickselect and then sorts them, taking expected time O(n + k
+   * log k) rather than the O(n log n) of sorting the whole array.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative or greater than {@code
+   *     array.length}
+   */
+  @Beta
+  @GwtIncompatible // PrimitiveSorting
+  public static void partialSort(int[] array, int k) {
+    checkNotNull(array);
+    checkArgument(
+        k >= 0 && k <= array.length, "k (%s) must be between 0 and %s", k, array.length);
+    if (k > 0) {
+      PrimitiveSorting.select(array, 0, array.length, k - 1);
+      Arrays.sort(array, 0, k - 1);
+    }
+  }
+
   /**
    * Reverses the elements of {@code array}. This is equivalent to {@code
    * Collections.reverse(Ints.asList(array))}, but is likely to be more efficient.
@@ -21,6 +21,7 @@ import static com.google.common.base.Preconditions.checkPositionIndexes;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
 import com.google.common.base.Converter;
 import java.io.Serializable;
 import java.util.AbstractList;
@@ -196,9 +197,7 @@ public final class Longs {
     checkArgument(array.length > 0);
     long min = array[0];
     for (int i = 1; i < array.length; i++) {
-      if (array[i] < min) {
-        min = array[i];
-      }
+      min = Math.min(min, array[i]);
     }
     return min;
   }
@@ -215,9 +214,7 @@ public final class Longs {
     checkArgument(array.length > 0);
     long max = array[0];
     for (int i = 1; i < array.length; i++) {
-      if (array[i] > max) {
-        max = array[i];
-      }
+      max = Math.max(max, array[i]);
     }
     return max;
   }
@@ -572,6 +569,94 @@ public final class Longs {
     reverse(array, fromIndex, toIndex);
   }
 
+  /**
+   * Sorts the elements of {@code array} in ascending order, like {@link Arrays#sort(long[])}, but
+   * with a radix sort. This takes time linear in the length of the array, plus a temporary array of
+   * the same length, and is typically several times faster than {@code Arrays.sort} for arrays of
+   * more than a few thousand elements.
+   */
+  @Beta
+  @GwtIncompatible // PrimitiveSorting
+  public static void radixSort(long[] array) {
+    checkNotNull(array);
+    radixSort(array, 0, array.length);
+  }
+
+  /**
+   * Sorts the elements of {@code array} between {@code fromIndex} inclusive and {@code toIndex}
+   * exclusive in ascending order, with a radix sort.
+   *
+   * @see #radixSort(long[])
+   */
+  @Beta
+  @GwtIncompatible // PrimitiveSorting
+  public static void radixSort(long[] array, int fromIndex, int toIndex) {
+    checkNotNull(array);
+    checkPositionIndexes(fromIndex, toIndex, array.length);
+    PrimitiveSorting.radixSort(array, fromIndex, toIndex);
+  }
+
+  /**
+   * Sorts the elements of {@code array} in ascending order with a radix sort whose passes are
+   * split between the threads of the {@linkplain java.util.concurrent.ForkJoinPool#commonPool()
+   * common fork/join pool}. Arrays of fewer than 65536 elements are sorted on the calling thread.
+   *
+   * @see #radixSort(long[])
+   */
+  @Beta
+  @GwtIncompatible // ForkJoinPool
+  public static void parallelRadixSort(long[] array) {
+    checkNotNull(array);
+    parallelRadixSort(array, 0, array.length);
+  }
+
+  /**
+   * Sorts the elements of {@code array} between {@code fromIndex} inclusive and {@code toIndex}
+   * exclusive in ascending order, with a parallel radix sort.
+   *
+   * @see #parallelRadixSort(long[])
+   */
+  @Beta
+  @GwtIncompatible // ForkJoinPool
+  public static void parallelRadixSort(long[] array, int fromIndex, int toIndex) {
+    checkNotNull(array);
+    checkPositionIndexes(fromIndex, toIndex, array.length);
+    PrimitiveSorting.parallelRadixSort(array, fromIndex, toIndex);
+  }
+
+  /**
+   * Returns the indexes of the elements of {@code array} in the order that would sort them, so
+   * that {@code array[indexes[0]]} is the least element; equal elements keep the order of their
+   * indexes. This is an indirect sort, or "argsort": it leaves {@code array} unchanged, and lets
+   * other arrays indexed in the same way be put in the same order.
+   */
+  @Beta
+  @GwtIncompatible // PrimitiveSorting
+  public static int[] sortedIndexes(long[] array) {
+    return PrimitiveSorting.sortedIndexes(array.clone());
+  }
+
+  /**
+   * Rearranges the elements of {@code array} so that its first {@code k} elements are its {@code
+   * k} least, in ascending order, and the rest are in no particular order. This selects the
+   * {@code k} least elements with quickselect and then sorts them, taking expected time O(n + k
+   * log k) rather than the O(n log n) of sorting the whole array.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative or greater than {@code
+   *     array.length}
+   */
+  @Beta
+  @GwtIncompatible // PrimitiveSorting
+  public static void partialSort(long[] array, int k) {
+    checkNotNull(array);
+    checkArgument(
+        k >= 0 && k <= array.length, "k (%s) must be between 0 and %s", k, array.length);
+    if (k > 0) {
+      PrimitiveSorting.select(array, 0, array.length, k - 1);
+      Arrays.sort(array, 0, k - 1);
+    }
+  }
+
   /**
    * Reverses the elements of {@code array}. This is equivalent to {@code
    * Collections.reverse(Longs.asList(array))}, but is likely to be more efficient.
@@ -0,0 +1,558 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.primitives;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Sorting and selection algorithms for primitive arrays, behind the radix sort, indirect sort and
+ * partial sort methods of {@link Ints}, {@link Longs}, {@link Floats} and {@link Doubles}.
+ *
+ * <p>The radix sorts are least-significant-digit first, with 8-bit digits: one pass over the input
+ * counts every digit, and then each digit that is not the same for all values takes one stable
+ * pass that scatters the values into a buffer as long as the input. Floating-point values are
+ * sorted as integer keys whose signed order is that of {@link Float#compare} and {@link
+ * Double#compare}.
+ */
+@GwtIncompatible
+final class PrimitiveSorting {
+  private PrimitiveSorting() {}
+
+  private static final int RADIX_BITS = 8;
+  private static final int RADIX = 1 << RADIX_BITS;
+  private static final int DIGIT_MASK = RADIX - 1;
+
+  /** Below this length, {@link Arrays#sort} is faster than counting and scattering. */
+  static final int RADIX_SORT_THRESHOLD = 512;
+
+  /** Below this length, the parallel sorts sort on the calling thread. */
+  static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
+  /** The least number of values the parallel sorts give to each task. */
+  private static final int MIN_CHUNK_LENGTH = 1 << 14;
+
+  static void radixSort(int[] array, int fromIndex, int toIndex) {
+    int length = toIndex - fromIndex;
+    if (length < RADIX_SORT_THRESHOLD) {
+      Arrays.sort(array, fromIndex, toIndex);
+      return;
+    }
+    int[][] counts = new int[Integer.SIZE / RADIX_BITS][RADIX];
+    for (int i = fromIndex; i < toIndex; i++) {
+      int key = array[i] ^ Integer.MIN_VALUE;
+      for (int digit = 0; digit < counts.length; digit++) {
+        counts[digit][(key >>> (digit * RADIX_BITS)) & DIGIT_MASK]++;
+      }
+    }
+    int[] source = array;
+    int sourceFrom = fromIndex;
+    int[] target = new int[length];
+    int targetFrom = 0;
+    for (int digit = 0; digit < counts.length; digit++) {
+      int[] offsets = counts[digit];
+      if (!toOffsets(offsets, length)) {
+        continue;
+      }
+      int shift = digit * RADIX_BITS;
+      for (int i = sourceFrom; i < sourceFrom + length; i++) {
+        int value = source[i];
+        target[targetFrom + offsets[((value ^ Integer.MIN_VALUE) >>> shift) & DIGIT_MASK]++] =
+            value;
+      }
+      int[] swap = source;
+      source = target;
+      target = swap;
+      int swapFrom = sourceFrom;
+      sourceFrom = targetFrom;
+      targetFrom = swapFrom;
+    }
+    if (source != array) {
+      System.arraycopy(source, sourceFrom, array, fromIndex, length);
+    }
+  }
+
+  static void radixSort(long[] array, int fromIndex, int toIndex) {
+    int length = toIndex - fromIndex;
+    if (length < RADIX_SORT_THRESHOLD) {
+      Arrays.sort(array, fromIndex, toIndex);
+      return;
+    }
+    int[][] counts = new int[Long.SIZE / RADIX_BITS][RADIX];
+    for (int i = fromIndex; i < toIndex; i++) {
+      long key = array[i] ^ Long.MIN_VALUE;
+      for (int digit = 0; digit < counts.length; digit++) {
+        counts[digit][(int) (key >>> (digit * RADIX_BITS)) & DIGIT_MASK]++;
+      }
+    }
+    long[] source = array;
+    int sourceFrom = fromIndex;
+    long[] target = new long[length];
+    int targetFrom = 0;
+    for (int digit = 0; digit < counts.length; digit++) {
+      int[] offsets = counts[digit];
+      if (!toOffsets(offsets, length)) {
+        continue;
+      }
+      int shift = digit * RADIX_BITS;
+      for (int i = sourceFrom; i < sourceFrom + length; i++) {
+        long value = source[i];
+        target[targetFrom + offsets[(int) ((value ^ Long.MIN_VALUE) >>> shift) & DIGIT_MASK]++] =
+            value;
+      }
+      long[] swap = source;
+      source = target;
+      target = swap;
+      int swapFrom = sourceFrom;
+      sourceFrom = targetFrom;
+      targetFrom = swapFrom;
+    }
+    if (source != array) {
+      System.arraycopy(source, sourceFrom, array, fromIndex, length);
+    }
+  }
+
+  /**
+   * Replaces the counts of each digit with the offset at which the values with that digit start,
+   * returning false, and leaving the counts unchanged, if every value has the same digit.
+   */
+  private static boolean toOffsets(int[] counts, int length) {
+    int offset = 0;
+    for (int i = 0; i < RADIX; i++) {
+      int count = counts[i];
+      if (count == length) {
+        return false;
+      }
+      counts[i] = offset;
+      offset += count;
+    }
+    return true;
+  }
+
+  static void parallelRadixSort(final int[] array, int fromIndex, int toIndex) {
+    final int length = toIndex - fromIndex;
+    final int chunks = chunks(length);
+    if (chunks < 2) {
+      radixSort(array, fromIndex, toIndex);
+      return;
+    }
+    final int[][] offsets = new int[chunks][RADIX];
+    int[] source = array;
+    int sourceFrom = fromIndex;
+    int[] target = new int[length];
+    int targetFrom = 0;
+    for (int shift = 0; shift < Integer.SIZE; shift += RADIX_BITS) {
+      final int[] from = source;
+      final int[] to = target;
+      final int fromStart = sourceFrom;
+      final int toStart = targetFrom;
+      final int digitShift = shift;
+      forEachChunk(
+          chunks,
+          chunk -> {
+            int[] counts = offsets[chunk];
+            Arrays.fill(counts, 0);
+            for (int i = fromStart + start(chunk, chunks, length),
+                    end = fromStart + start(chunk + 1, chunks, length);
+                i < end;
+                i++) {
+              counts[((from[i] ^ Integer.MIN_VALUE) >>> digitShift) & DIGIT_MASK]++;
+            }
+          });
+      if (!toChunkOffsets(offsets, length)) {
+        continue;
+      }
+      forEachChunk(
+          chunks,
+          chunk -> {
+            int[] chunkOffsets = offsets[chunk];
+            for (int i = fromStart + start(chunk, chunks, length),
+                    end = fromStart + start(chunk + 1, chunks, length);
+                i < end;
+                i++) {
+              int value = from[i];
+              int digit = ((value ^ Integer.MIN_VALUE) >>> digitShift) & DIGIT_MASK;
+              to[toStart + chunkOffsets[digit]++] = value;
+            }
+          });
+      source = to;
+      sourceFrom = toStart;
+      target = from;
+      targetFrom = fromStart;
+    }
+    if (source != array) {
+      System.arraycopy(source, sourceFrom, array, fromIndex, length);
+    }
+  }
+
+  static void parallelRadixSort(final long[] array, int fromIndex, int toIndex) {
+    final int length = toIndex - fromIndex;
+    final int chunks = chunks(length);
+    if (chunks < 2) {
+      radixSort(array, fromIndex, toIndex);
+      return;
+    }
+    final int[][] offsets = new int[chunks][RADIX];
+    long[] source = array;
+    int sourceFrom = fromIndex;
+    long[] target = new long[length];
+    int targetFrom = 0;
+    for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+      final long[] from = source;
+      final long[] to = target;
+      final int fromStart = sourceFrom;
+      final int toStart = targetFrom;
+      final int digitShift = shift;
+      forEachChunk(
+          chunks,
+          chunk -> {
+            int[] counts = offsets[chunk];
+            Arrays.fill(counts, 0);
+            for (int i = fromStart + start(chunk, chunks, length),
+                    end = fromStart + start(chunk + 1, chunks, length);
+                i < end;
+                i++) {
+              counts[(int) ((from[i] ^ Long.MIN_VALUE) >>> digitShift) & DIGIT_MASK]++;
+            }
+          });
+      if (!toChunkOffsets(offsets, length)) {
+        continue;
+      }
+      forEachChunk(
+          chunks,
+          chunk -> {
+            int[] chunkOffsets = offsets[chunk];
+            for (int i = fromStart + start(chunk, chunks, length),
+                    end = fromStart + start(chunk + 1, chunks, length);
+                i < end;
+                i++) {
+              long value = from[i];
+              int digit = (int) ((value ^ Long.MIN_VALUE) >>> digitShift) & DIGIT_MASK;
+              to[toStart + chunkOffsets[digit]++] = value;
+            }
+          });
+      source = to;
+      sourceFrom = toStart;
+      target = from;
+      targetFrom = fromStart;
+    }
+    if (source != array) {
+      System.arraycopy(source, sourceFrom, array, fromIndex, length);
+    }
+  }
+
+  /** Returns how many tasks a parallel sort of {@code length} values uses. */
+  private static int chunks(int length) {
+    if (length < PARALLEL_SORT_THRESHOLD) {
+      return 1;
+    }
+    // a few tasks per thread, so that a slow thread does not hold up a pass
+    return Math.min(4 * ForkJoinPool.getCommonPoolParallelism(), length / MIN_CHUNK_LENGTH);
+  }
+
+  private static int start(int chunk, int chunks, int length) {
+    return (int) ((long) chunk * length / chunks);
+  }
+
+  /**
+   * Replaces the per-chunk counts of each digit with the offset at which each chunk writes its
+   * values with that digit: the values with smaller digits come first, and then the values with
+   * the same digit from earlier chunks. Returns false, leaving the counts unchanged, if every value
+   * has the same digit.
+   */
+  private static boolean toChunkOffsets(int[][] counts, int length) {
+    for (int digit = 0; digit < RADIX; digit++) {
+      int total = 0;
+      for (int[] chunkCounts : counts) {
+        total += chunkCounts[digit];
+      }
+      if (total == length) {
+        return false;
+      }
+    }
+    int offset = 0;
+    for (int digit = 0; digit < RADIX; digit++) {
+      for (int[] chunkCounts : counts) {
+        int count = chunkCounts[digit];
+        chunkCounts[digit] = offset;
+        offset += count;
+      }
+    }
+    return true;
+  }
+
+  /** Runs {@code task} for each chunk in the common fork/join pool, and waits for them all. */
+  private static void forEachChunk(int chunks, IntConsumer task) {
+    List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      final int taskChunk = chunk;
+      tasks.add(ForkJoinTask.adapt(() -> task.accept(taskChunk)));
+    }
+    ForkJoinTask.invokeAll(tasks);
+  }
+
+  /**
+   * Returns the indexes of {@code keys} in the order that sorts the keys, keeping equal keys in
+   * index order. The keys are sorted in place.
+   */
+  static int[] sortedIndexes(int[] keys) {
+    int length = keys.length;
+    int[] indexes = new int[length];
+    for (int i = 0; i < length; i++) {
+      indexes[i] = i;
+    }
+    int[][] counts = new int[Integer.SIZE / RADIX_BITS][RADIX];
+    for (int key : keys) {
+      key ^= Integer.MIN_VALUE;
+      for (int digit = 0; digit < counts.length; digit++) {
+        counts[digit][(key >>> (digit * RADIX_BITS)) & DIGIT_MASK]++;
+      }
+    }
+    int[] sourceKeys = keys;
+    int[] sourceIndexes = indexes;
+    int[] targetKeys = new int[length];
+    int[] targetIndexes = new int[length];
+    for (int digit = 0; digit < counts.length; digit++) {
+      int[] offsets = counts[digit];
+      if (!toOffsets(offsets, length)) {
+        continue;
+      }
+      int shift = digit * RADIX_BITS;
+      for (int i = 0; i < length; i++) {
+        int key = sourceKeys[i];
+        int offset = offsets[((key ^ Integer.MIN_VALUE) >>> shift) & DIGIT_MASK]++;
+        targetKeys[offset] = key;
+        targetIndexes[offset] = sourceIndexes[i];
+      }
+      int[] swap = sourceKeys;
+      sourceKeys = targetKeys;
+      targetKeys = swap;
+      swap = sourceIndexes;
+      sourceIndexes = targetIndexes;
+      targetIndexes = swap;
+    }
+    return sourceIndexes;
+  }
+
+  /**
+   * Returns the indexes of {@code keys} in the order that sorts the keys, keeping equal keys in
+   * index order. The keys are sorted in place.
+   */
+  static int[] sortedIndexes(long[] keys) {
+    int length = keys.length;
+    int[] indexes = new int[length];
+    for (int i = 0; i < length; i++) {
+      indexes[i] = i;
+    }
+    int[][] counts = new int[Long.SIZE / RADIX_BITS][RADIX];
+    for (long key : keys) {
+      key ^= Long.MIN_VALUE;
+      for (int digit = 0; digit < counts.length; digit++) {
+        counts[digit][(int) (key >>> (digit * RADIX_BITS)) & DIGIT_MASK]++;
+      }
+    }
+    long[] sourceKeys = keys;
+    int[] sourceIndexes = indexes;
+    long[] targetKeys = new long[length];
+    int[] targetIndexes = new int[length];
+    for (int digit = 0; digit < counts.length; digit++) {
+      int[] offsets = counts[digit];
+      if (!toOffsets(offsets, length)) {
+        continue;
+      }
+      int shift = digit * RADIX_BITS;
+      for (int i = 0; i < length; i++) {
+        long key = sourceKeys[i];
+        int offset = offsets[(int) ((key ^ Long.MIN_VALUE) >>> shift) & DIGIT_MASK]++;
+        targetKeys[offset] = key;
+        targetIndexes[offset] = sourceIndexes[i];
+      }
+      long[] swapKeys = sourceKeys;
+      sourceKeys = targetKeys;
+      targetKeys = swapKeys;
+      int[] swapIndexes = sourceIndexes;
+      sourceIndexes = targetIndexes;
+      targetIndexes = swapIndexes;
+    }
+    return sourceIndexes;
+  }
+
+  /**
+   * Sorts {@code array} between {@code fromIndex} and {@code toIndex} by radix sorting the {@link
+   * #sortableBits(float)} of its values.
+   */
+  static void radixSort(float[] array, int fromIndex, int toIndex, boolean parallel) {
+    int length = toIndex - fromIndex;
+    if (length < RADIX_SORT_THRESHOLD) {
+      Arrays.sort(array, fromIndex, toIndex);
+      return;
+    }
+    int[] keys = new int[length];
+    indexes(length, parallel).forEach(i -> keys[i] = sortableBits(array[fromIndex + i]));
+    if (parallel) {
+      parallelRadixSort(keys, 0, length);
+    } else {
+      radixSort(keys, 0, length);
+    }
+    indexes(length, parallel).forEach(i -> array[fromIndex + i] = fromSortableBits(keys[i]));
+  }
+
+  /**
+   * Sorts {@code array} between {@code fromIndex} and {@code toIndex} by radix sorting the {@link
+   * #sortableBits(double)} of its values.
+   */
+  static void radixSort(double[] array, int fromIndex, int toIndex, boolean parallel) {
+    int length = toIndex - fromIndex;
+    if (length < RADIX_SORT_THRESHOLD) {
+      Arrays.sort(array, fromIndex, toIndex);
+      return;
+    }
+    long[] keys = new long[length];
+    indexes(length, parallel).forEach(i -> keys[i] = sortableBits(array[fromIndex + i]));
+    if (parallel) {
+      parallelRadixSort(keys, 0, length);
+    } else {
+      radixSort(keys, 0, length);
+    }
+    indexes(length, parallel).forEach(i -> array[fromIndex + i] = fromSortableBits(keys[i]));
+  }
+
+  private static IntStream indexes(int length, boolean parallel) {
+    IntStream indexes = IntStream.range(0, length);
+    return parallel && length >= PARALLEL_SORT_THRESHOLD ? indexes.parallel() : indexes;
+  }
+
+  /**
+   * Returns an {@code int} whose signed order is the order of {@code value} under {@link
+   * Float#compare}. This is its own inverse, except that every NaN becomes {@link Float#NaN}.
+   */
+  static int sortableBits(float value) {
+    int bits = Float.floatToIntBits(value);
+    // flip the magnitude of negative values, so that more negative values have smaller keys
+    return bits ^ ((bits >> 31) & Integer.MAX_VALUE);
+  }
+
+  static float fromSortableBits(int bits) {
+    return Float.intBitsToFloat(bits ^ ((bits >> 31) & Integer.MAX_VALUE));
+  }
+
+  /**
+   * Returns a {@code long} whose signed order is the order of {@code value} under {@link
+   * Double#compare}. This is its own inverse, except that every NaN becomes {@link Double#NaN}.
+   */
+  static long sortableBits(double value) {
+    long bits = Double.doubleToLongBits(value);
+    return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+  }
+
+  static double fromSortableBits(long bits) {
+    return Double.longBitsToDouble(bits ^ ((bits >> 63) & Long.MAX_VALUE));
+  }
+
+  /**
+   * Rearranges {@code array} between {@code fromIndex} inclusive and {@code toIndex} exclusive so
+   * that {@code array[k]} holds the value it would hold if the range were sorted, with no greater
+   * value before it and no smaller value after it. This is Hoare's quickselect, taking expected
+   * linear time; if it has not converged after a logarithmic number of partitions, it sorts what is
+   * left, which bounds the worst case to O(n log n).
+   */
+  static void select(int[] array, int fromIndex, int toIndex, int k) {
+    int left = fromIndex;
+    int right = toIndex - 1;
+    int partitions = 3 * (Integer.SIZE - Integer.numberOfLeadingZeros(toIndex - fromIndex));
+    while (left < right) {
+      if (partitions-- == 0) {
+        Arrays.sort(array, left, right + 1);
+        return;
+      }
+      int pivot = medianOfThree(array[left], array[(left + right) >>> 1], array[right]);
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (array[i] < pivot) {
+          i++;
+        }
+        while (array[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          int swap = array[i];
+          array[i++] = array[j];
+          array[j--] = swap;
+        }
+      }
+      // [left, j] holds no value greater than pivot, [i, right] no value less, and (j, i) pivots
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /** The {@code long} counterpart of {@link #select(int[], int, int, int)}. */
+  static void select(long[] array, int fromIndex, int toIndex, int k) {
+    int left = fromIndex;
+    int right = toIndex - 1;
+    int partitions = 3 * (Integer.SIZE - Integer.numberOfLeadingZeros(toIndex - fromIndex));
+    while (left < right) {
+      if (partitions-- == 0) {
+        Arrays.sort(array, left, right + 1);
+        return;
+      }
+      long pivot = medianOfThree(array[left], array[(left + right) >>> 1], array[right]);
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (array[i] < pivot) {
+          i++;
+        }
+        while (array[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          long swap = array[i];
+          array[i++] = array[j];
+          array[j--] = swap;
+        }
+      }
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private static int medianOfThree(int a, int b, int c) {
+    return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+  }
+
+  private static long medianOfThree(long a, long b, long c) {
+    return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+  }
+}
@@ -9,8 +9,9 @@
  * http://gee.cs.oswego.edu/cgi-bin/viewcvs.cgi/jsr166/src/jsr166e/LongAdder.java?revision=1.17
  */
 
-package com.google.common.hash;
+package com.google.common.util.concurrent.atomic;
 
+import com.google.common.annotations.GwtIncompatible;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -33,15 +34,17 @@ import java.util.concurrent.atomic.AtomicLong;
  * equals}, {@code hashCode} and {@code compareTo} because instances are expected to be mutated, and
  * so are not useful as collection keys.
  *
- * <p><em>jsr166e note: This class is targeted to be placed in java.util.concurrent.atomic.</em>
+ * <p>The same striping is used to track a maximum by {@link LongMaxUpdater}, a minimum by {@link
+ * LongMinUpdater}, and a distribution by {@link StripedHistogram}.
  *
- * @since 1.8
  * @author Doug Lea
  */
-final class LongAdder extends Striped64 implements Serializable, LongAddable {
+@GwtIncompatible
+public final class LongAdder extends Striped64 implements Serializable {
   private static final long serialVersionUID = 7249069246863182397L;
 
   /** Version of plus for use in retryUpdate */
+  @Override
   final long fn(long v, long x) {
     return v + x;
   }
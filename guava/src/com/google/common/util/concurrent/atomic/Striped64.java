@@ -9,16 +9,25 @@
  * http://gee.cs.oswego.edu/cgi-bin/viewcvs.cgi/jsr166/src/jsr166e/Striped64.java?revision=1.9
  */
 
-package com.google.common.hash;
+package com.google.common.util.concurrent.atomic;
+
+import static com.google.common.BitUtil.CACHE_LINE_LENGTH;
+import static com.google.common.BitUtil.SIZE_OF_LONG;
 
 import com.google.common.annotations.GwtIncompatible;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * A package-local class holding common representation and mechanics for classes supporting dynamic
  * striping on 64bit values. The class extends Number so that concrete subclasses must publicly do
  * so.
+ *
+ * <p>Unlike the jsr166e original, this class performs its CASes through field updaters rather than
+ * {@code sun.misc.Unsafe}, so that it can be used where {@code Unsafe} is unavailable without
+ * falling back to a single contended {@code AtomicLong}.
  */
 @GwtIncompatible
 abstract class Striped64 extends Number {
@@ -87,7 +96,9 @@ abstract class Striped64 extends Number {
 
   /**
    * Padded variant of AtomicLong supporting only raw accesses plus CAS. The value field is placed
-   * between pads, hoping that the JVM doesn't reorder them.
+   * between pads of {@link #PADDING_LONGS} longs each, so that it has a {@linkplain
+   * com.google.common.BitUtil#CACHE_LINE_LENGTH cache line} to itself, hoping that the JVM doesn't
+   * reorder them.
    *
    * <p>JVM intrinsics note: It would be possible to use a release-only form of CAS here, if it were
    * provided.
@@ -102,24 +113,19 @@ abstract class Striped64 extends Number {
     }
 
     final boolean cas(long cmp, long val) {
-      return UNSAFE.compareAndSwapLong(this, valueOffset, cmp, val);
+      return VALUE_UPDATER.compareAndSet(this, cmp, val);
     }
 
-    // Unsafe mechanics
-    private static final sun.misc.Unsafe UNSAFE;
-    private static final long valueOffset;
-
-    static {
-      try {
-        UNSAFE = getUnsafe();
-        Class<?> ak = Cell.class;
-        valueOffset = UNSAFE.objectFieldOffset(ak.getDeclaredField("value"));
-      } catch (Exception e) {
-        throw new Error(e);
-      }
-    }
+    private static final AtomicLongFieldUpdater<Cell> VALUE_UPDATER =
+        AtomicLongFieldUpdater.newUpdater(Cell.class, "value");
   }
 
+  /**
+   * The number of longs that fill a cache line apart from the value they pad. {@link Cell} declares
+   * this many fields on either side of its value, which {@code Striped64Test} checks.
+   */
+  static final int PADDING_LONGS = CACHE_LINE_LENGTH / SIZE_OF_LONG - 1;
+
   /**
    * ThreadLocal holding a single-slot int array holding hash code. Unlike the JDK8 version of this
    * class, we use a suboptimal int[] representation to avoid introducing a new type that can impede
@@ -150,12 +156,12 @@ abstract class Striped64 extends Number {
 
   /** CASes the base field. */
   final boolean casBase(long cmp, long val) {
-    return UNSAFE.compareAndSwapLong(this, baseOffset, cmp, val);
+    return BASE_UPDATER.compareAndSet(this, cmp, val);
   }
 
   /** CASes the busy field from 0 to 1 to acquire lock. */
   final boolean casBusy() {
-    return UNSAFE.compareAndSwapInt(this, busyOffset, 0, 1);
+    return BUSY_UPDATER.compareAndSet(this, 0, 1);
   }
 
   /**
@@ -263,48 +269,9 @@ abstract class Striped64 extends Number {
     }
   }
 
-  // Unsafe mechanics
-  private static final sun.misc.Unsafe UNSAFE;
-  private static final long baseOffset;
-  private static final long busyOffset;
-
-  static {
-    try {
-      UNSAFE = getUnsafe();
-      Class<?> sk = Striped64.class;
-      baseOffset = UNSAFE.objectFieldOffset(sk.getDeclaredField("base"));
-      busyOffset = UNSAFE.objectFieldOffset(sk.getDeclaredField("busy"));
-    } catch (Exception e) {
-      throw new Error(e);
-    }
-  }
+  private static final AtomicLongFieldUpdater<Striped64> BASE_UPDATER =
+      AtomicLongFieldUpdater.newUpdater(Striped64.class, "base");
 
-  /**
-   * Returns a sun.misc.Unsafe. Suitable for use in a 3rd party package. Replace with a simple call
-   * to Unsafe.getUnsafe when integrating into a jdk.
-   *
-   * @return a sun.misc.Unsafe
-   */
-  private static sun.misc.Unsafe getUnsafe() {
-    try {
-      return sun.misc.Unsafe.getUnsafe();
-    } catch (SecurityException tryReflectionInstead) {
-    }
-    try {
-      return java.security.AccessController.doPrivileged(
-          new java.security.PrivilegedExceptionAction<sun.misc.Unsafe>() {
-            public sun.misc.Unsafe run() throws Exception {
-              Class<sun.misc.Unsafe> k = sun.misc.Unsafe.class;
-              for (java.lang.reflect.Field f : k.getDeclaredFields()) {
-                f.setAccessible(true);
-                Object x = f.get(null);
-                if (k.isInstance(x)) return k.cast(x);
-              }
-              throw new NoSuchFieldError("the Unsafe");
-            }
-          });
-    } catch (java.security.PrivilegedActionException e) {
-      throw new RuntimeException("Could not initialize intrinsics", e.getCause());
-    }
-  }
+  private static final AtomicIntegerFieldUpdater<Striped64> BUSY_UPDATER =
+      AtomicIntegerFieldUpdater.newUpdater(Striped64.class, "busy");
 }
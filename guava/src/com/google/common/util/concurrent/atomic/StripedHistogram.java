@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent.atomic;
+
+import static com.google.common.BitUtil.CACHE_LINE_LENGTH;
+import static com.google.common.BitUtil.SIZE_OF_LONG;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.math.IntMath.ceilingPowerOfTwo;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A fixed number of {@code long} counts, one for each bucket of a histogram, that may be updated
+ * by many threads at once. How values are assigned to buckets is up to the caller.
+ *
+ * <p>Like {@link LongAdder}, this class spreads contended updates over a number of stripes, each
+ * holding a count for every bucket, and sums the stripes when the counts are read. A thread starts
+ * out updating the first stripe and moves to another, chosen at random, each time an update
+ * collides with another thread's. Stripes are created when first used, so a histogram that is only
+ * updated by one thread at a time holds a single stripe. The counts of each stripe are padded by a
+ * {@linkplain com.google.common.BitUtil#CACHE_LINE_LENGTH cache line} on either side, so that
+ * threads updating different stripes never write to the same cache line.
+ *
+ * <p>The counts are read without stopping updates, so {@link #counts} is <em>not</em> an atomic
+ * snapshot: updates concurrent with it might not be incorporated.
+ */
+@GwtIncompatible
+public final class StripedHistogram {
+  /** The number of longs in a cache line, which pad either side of a stripe's counts. */
+  private static final int PADDING = CACHE_LINE_LENGTH / SIZE_OF_LONG;
+
+  /** The maximum number of stripes, to bound the memory held by each histogram. */
+  static final int MAXIMUM_STRIPES = 64;
+
+  private final int bucketCount;
+  private final AtomicReferenceArray<AtomicLongArray> stripes;
+  private final int stripeMask;
+
+  /**
+   * Creates a histogram with {@code bucketCount} buckets, all of whose counts are zero.
+   *
+   * @throws IllegalArgumentException if {@code bucketCount} is not positive
+   */
+  public StripedHistogram(int bucketCount) {
+    checkArgument(bucketCount > 0, "bucketCount must be positive: %s", bucketCount);
+    this.bucketCount = bucketCount;
+    int stripeCount = Math.min(ceilingPowerOfTwo(Striped64.NCPU), MAXIMUM_STRIPES);
+    this.stripes = new AtomicReferenceArray<>(stripeCount);
+    this.stripeMask = stripeCount - 1;
+  }
+
+  /** Returns the number of buckets. */
+  public int bucketCount() {
+    return bucketCount;
+  }
+
+  /**
+   * Equivalent to {@code add(bucket, 1)}.
+   *
+   * @throws IndexOutOfBoundsException if {@code bucket} is negative or not less than {@link
+   *     #bucketCount}
+   */
+  public void increment(int bucket) {
+    add(bucket, 1L);
+  }
+
+  /**
+   * Adds {@code x} to the count of {@code bucket}.
+   *
+   * @throws IndexOutOfBoundsException if {@code bucket} is negative or not less than {@link
+   *     #bucketCount}
+   */
+  public void add(int bucket, long x) {
+    checkElementIndex(bucket, bucketCount);
+    int index = PADDING + bucket;
+    int[] hc = Striped64.threadHashCode.get();
+    AtomicLongArray stripe = stripe((hc == null) ? 0 : hc[0] & stripeMask);
+    long v = stripe.get(index);
+    if (!stripe.compareAndSet(index, v, v + x)) {
+      // Another thread is updating this stripe, so move to a different one for next time
+      stripe = stripe(rehash(hc) & stripeMask);
+      stripe.getAndAdd(index, x);
+    }
+  }
+
+  /**
+   * Returns the current count of {@code bucket}.
+   *
+   * @throws IndexOutOfBoundsException if {@code bucket} is negative or not less than {@link
+   *     #bucketCount}
+   */
+  public long count(int bucket) {
+    checkElementIndex(bucket, bucketCount);
+    long count = 0;
+    for (int i = 0; i < stripes.length(); i++) {
+      AtomicLongArray stripe = stripes.get(i);
+      if (stripe != null) {
+        count += stripe.get(PADDING + bucket);
+      }
+    }
+    return count;
+  }
+
+  /** Returns the current counts of all of the buckets, indexed by bucket. */
+  public long[] counts() {
+    long[] counts = new long[bucketCount];
+    for (int i = 0; i < stripes.length(); i++) {
+      AtomicLongArray stripe = stripes.get(i);
+      if (stripe != null) {
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+          counts[bucket] += stripe.get(PADDING + bucket);
+        }
+      }
+    }
+    return counts;
+  }
+
+  /** Returns the sum of the current counts of all of the buckets. */
+  public long totalCount() {
+    long total = 0;
+    for (long count : counts()) {
+      total += count;
+    }
+    return total;
+  }
+
+  /**
+   * Resets every count to zero. Like {@link LongAdder#reset}, this is only effective if there are
+   * no concurrent updates.
+   */
+  public void reset() {
+    for (int i = 0; i < stripes.length(); i++) {
+      AtomicLongArray stripe = stripes.get(i);
+      if (stripe != null) {
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+          stripe.set(PADDING + bucket, 0L);
+        }
+      }
+    }
+  }
+
+  /** Returns the stripe at {@code index}, creating it if no thread has used it yet. */
+  private AtomicLongArray stripe(int index) {
+    AtomicLongArray stripe = stripes.get(index);
+    if (stripe == null) {
+      AtomicLongArray created = new AtomicLongArray(PADDING + bucketCount + PADDING);
+      stripe = stripes.compareAndSet(index, null, created) ? created : stripes.get(index);
+    }
+    return stripe;
+  }
+
+  /**
+   * Gives the current thread a new hash code, as {@link Striped64} does after a collision, and
+   * returns it.
+   */
+  private static int rehash(int @Nullable [] hc) {
+    int h;
+    if (hc == null) {
+      Striped64.threadHashCode.set(hc = new int[1]);
+      int r = Striped64.rng.nextInt(); // Avoid zero to allow xorShift rehash
+      h = (r == 0) ? 1 : r;
+    } else {
+      h = hc[0];
+      h ^= h << 13;
+      h ^= h >>> 17;
+      h ^= h << 5;
+    }
+    hc[0] = h;
+    return h;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(counts());
+  }
+}
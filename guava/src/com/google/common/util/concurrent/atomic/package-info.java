@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Counters that many threads can update at once without contending on a single memory location.
+ *
+ * <p>{@link com.google.common.util.concurrent.atomic.LongAdder} maintains a sum, {@link
+ * com.google.common.util.concurrent.atomic.LongMaxUpdater} and {@link
+ * com.google.common.util.concurrent.atomic.LongMinUpdater} a running maximum and minimum, and
+ * {@link com.google.common.util.concurrent.atomic.StripedHistogram} the counts of a histogram. Each
+ * spreads contended updates over cells padded to a cache line, and combines the cells when read.
+ *
+ * <p>This package is a part of the open-source <a href="http://github.com/google/guava">Guava</a>
+ * library.
+ */
+@CheckReturnValue
+@ParametersAreNonnullByDefault
+package com.google.common.util.concurrent.atomic;
+
+import com.google.errorprone.annotations.CheckReturnValue;
+import javax.annotation.ParametersAreNonnullByDefault;